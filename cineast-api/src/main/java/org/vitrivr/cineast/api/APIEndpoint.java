@@ -16,6 +16,7 @@
 import org.eclipse.jetty.server.ServerConnector;
 import org.eclipse.jetty.util.ssl.SslContextFactory;
 import org.eclipse.jetty.util.thread.QueuedThreadPool;
+import org.vitrivr.cineast.api.messages.general.Error;
 import org.vitrivr.cineast.api.rest.OpenApiCompatHelper;
 import org.vitrivr.cineast.api.rest.handlers.actions.StatusInvocationHandler;
 import org.vitrivr.cineast.api.rest.handlers.actions.bool.CountRowsGetHandler;
@@ -59,6 +60,7 @@
 import org.vitrivr.cineast.api.rest.resolvers.FileSystemThumbnailResolver;
 import org.vitrivr.cineast.api.rest.routes.ResolvedContentRoute;
 import org.vitrivr.cineast.api.websocket.WebsocketAPI;
+import org.vitrivr.cineast.api.util.QueryRejectedException;
 import org.vitrivr.cineast.core.db.dao.reader.MediaObjectReader;
 import org.vitrivr.cineast.standalone.config.APIConfig;
 import org.vitrivr.cineast.standalone.config.Config;
@@ -311,6 +313,12 @@ public Javalin dispatchService(boolean secure) {
       this.registerServingRoutes(service, config);
     }
 
+    /* Queries rejected by the admission control are answered with 503 such that clients may retry later. */
+    service.exception(QueryRejectedException.class, (ex, ctx) -> {
+      ctx.header("Retry-After", "1");
+      ctx.status(503).json(new Error(ex.getMessage()));
+    });
+
     /* Register a general exception handler. TODO: Add fine grained exception handling. */
     service.exception(Exception.class, (ex, ctx) -> {
       ex.printStackTrace();
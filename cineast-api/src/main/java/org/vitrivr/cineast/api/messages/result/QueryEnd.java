@@ -7,8 +7,9 @@
  * Message for a query result end to communicate the end of a query result.
  *
  * @param queryId String representing the ID of the query to which this part of the result message.
+ * @param partial True if the deadline of the query expired before all retrievers completed, in which case the results comprise those of the completed retrievers only.
  */
-public record QueryEnd(String queryId, MessageType messageType) implements Message {
+public record QueryEnd(String queryId, boolean partial, MessageType messageType) implements Message {
 
   public QueryEnd {
     if (messageType != MessageType.QR_END) {
@@ -17,7 +18,11 @@ public record QueryEnd(String queryId, MessageType messageType) implements Messa
   }
 
   public QueryEnd(String queryId) {
-    this(queryId, MessageType.QR_END);
+    this(queryId, false);
+  }
+
+  public QueryEnd(String queryId, boolean partial) {
+    this(queryId, partial, MessageType.QR_END);
   }
 
 }
@@ -6,6 +6,7 @@
 import org.vitrivr.cineast.api.messages.query.SimilarityQuery;
 import org.vitrivr.cineast.api.messages.result.SimilarityQueryResultBatch;
 import org.vitrivr.cineast.api.rest.handlers.interfaces.ParsingPostRestHandler;
+import org.vitrivr.cineast.api.util.QueryAdmissionController;
 import org.vitrivr.cineast.api.util.QueryUtil;
 import org.vitrivr.cineast.standalone.config.ConstrainedQueryConfig;
 import org.vitrivr.cineast.standalone.util.ContinuousRetrievalLogic;
@@ -23,7 +24,7 @@ public FindSegmentSimilarPostHandler(ContinuousRetrievalLogic continuousRetrieva
   public SimilarityQueryResultBatch performPost(SimilarityQuery query, Context ctx) {
     ConstrainedQueryConfig config = ConstrainedQueryConfig.getApplyingConfig(query.config());
 
-    var returnMap = QueryUtil.findSegmentsSimilar(continuousRetrievalLogic, query.terms(), config);
+    var returnMap = QueryAdmissionController.SIMILARITY.call(ctx.ip(), QueryAdmissionController.cost(query.terms().stream()), () -> QueryUtil.findSegmentsSimilar(continuousRetrievalLogic, query.terms(), config));
 
     return new SimilarityQueryResultBatch(returnMap, config.getQueryId());
   }
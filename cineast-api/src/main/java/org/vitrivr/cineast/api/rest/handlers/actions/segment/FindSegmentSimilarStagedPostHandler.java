@@ -6,6 +6,7 @@
 import org.vitrivr.cineast.api.messages.query.StagedSimilarityQuery;
 import org.vitrivr.cineast.api.messages.result.SimilarityQueryResultBatch;
 import org.vitrivr.cineast.api.rest.handlers.interfaces.ParsingPostRestHandler;
+import org.vitrivr.cineast.api.util.QueryAdmissionController;
 import org.vitrivr.cineast.api.util.QueryUtil;
 import org.vitrivr.cineast.standalone.config.ConstrainedQueryConfig;
 import org.vitrivr.cineast.standalone.util.ContinuousRetrievalLogic;
@@ -37,7 +38,8 @@ public OpenApiDocumentation docs() {
   public SimilarityQueryResultBatch performPost(StagedSimilarityQuery query, Context ctx) {
     ConstrainedQueryConfig config = ConstrainedQueryConfig.getApplyingConfig(query.config());
 
-    var results = QueryUtil.findSegmentsSimilarStaged(continuousRetrievalLogic, query.stages(), config);
+    var cost = QueryAdmissionController.cost(query.stages().stream().flatMap(stage -> stage.terms().stream()));
+    var results = QueryAdmissionController.SIMILARITY.call(ctx.ip(), cost, () -> QueryUtil.findSegmentsSimilarStaged(continuousRetrievalLogic, query.stages(), config));
 
     return new SimilarityQueryResultBatch(results, config.getQueryId());
   }
@@ -6,6 +6,7 @@
 import org.vitrivr.cineast.api.messages.query.TemporalQuery;
 import org.vitrivr.cineast.api.messages.result.TemporalQueryResult;
 import org.vitrivr.cineast.api.rest.handlers.interfaces.ParsingPostRestHandler;
+import org.vitrivr.cineast.api.util.QueryAdmissionController;
 import org.vitrivr.cineast.api.util.QueryUtil;
 import org.vitrivr.cineast.standalone.config.ConstrainedQueryConfig;
 import org.vitrivr.cineast.standalone.util.ContinuousRetrievalLogic;
@@ -37,7 +38,8 @@ public OpenApiDocumentation docs() {
   public TemporalQueryResult performPost(TemporalQuery query, Context ctx) {
     ConstrainedQueryConfig config = ConstrainedQueryConfig.getApplyingConfig(query.config());
 
-    var temporalResults = QueryUtil.findSegmentsSimilarTemporal(continuousRetrievalLogic, query, config);
+    var cost = QueryAdmissionController.cost(query.queries().stream().flatMap(staged -> staged.stages().stream()).flatMap(stage -> stage.terms().stream()));
+    var temporalResults = QueryAdmissionController.SIMILARITY.call(ctx.ip(), cost, () -> QueryUtil.findSegmentsSimilarTemporal(continuousRetrievalLogic, query, config));
 
     return new TemporalQueryResult(config.getQueryId(), temporalResults);
   }
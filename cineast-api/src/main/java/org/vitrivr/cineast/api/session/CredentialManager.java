@@ -1,37 +1,39 @@
 package org.vitrivr.cineast.api.session;
 
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
 import java.io.File;
 import java.io.FileInputStream;
-import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.ObjectInputStream;
-import java.io.ObjectOutputStream;
 import java.io.Serializable;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
 import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 import org.mindrot.jbcrypt.BCrypt;
 import org.vitrivr.cineast.api.messages.credentials.Credentials;
 import org.vitrivr.cineast.core.util.LogHelper;
 
+/**
+ * Manages the users of the API. Users are kept in memory and persisted in an append-only file with one tab-separated line (username, password hash, admin flag) per change, which is read once when the class is loaded; later lines take precedence over earlier ones. Users stored in the legacy, serialized user file are migrated on first use.
+ */
 public class CredentialManager {
 
   private static final Logger LOGGER = LogManager.getLogger();
-  private static final File storedUserFile = new File("users"); //TODO move to config
-  private static HashMap<String, User> userMap = new HashMap<>();
+  private static final File storedUserFile = new File("users.log"); //TODO move to config
+  private static final File legacyUserFile = new File("users");
+  private static final Map<String, User> userMap = new ConcurrentHashMap<>();
 
   static {
     if (storedUserFile.exists()) {
-      try {
-        ObjectInputStream oin = new ObjectInputStream(new FileInputStream(storedUserFile));
-        @SuppressWarnings("unchecked")
-        HashMap<String, User> users = (HashMap<String, User>) oin.readObject();
-        userMap.putAll(users);
-        oin.close();
-      } catch (ClassNotFoundException | IOException e) {
-        LOGGER.error("could not load user file: {}", LogHelper.getStackTrace(e));
-      }
-
+      loadUsers(storedUserFile, userMap);
+    } else if (legacyUserFile.exists()) {
+      migrateLegacyUsers(legacyUserFile, storedUserFile, userMap);
     }
   }
 
@@ -66,14 +68,58 @@ public static SessionType authenticate(Credentials credentials) {
 
   }
 
-  private static void storeUsers() {
-    try {
-      ObjectOutputStream oos = new ObjectOutputStream(new FileOutputStream(storedUserFile));
-      oos.writeObject(userMap);
-      oos.flush();
-      oos.close();
+  /**
+   * Reads all users from an append-only user file into the given map.
+   */
+  static void loadUsers(File file, Map<String, User> users) {
+    try (BufferedReader reader = Files.newBufferedReader(file.toPath(), StandardCharsets.UTF_8)) {
+      String line;
+      while ((line = reader.readLine()) != null) {
+        final String[] fields = line.split("\t");
+        if (fields.length != 3) {
+          if (!line.isEmpty()) {
+            LOGGER.warn("skipping malformed line in user file");
+          }
+          continue;
+        }
+        users.put(fields[0], new User(fields[0], fields[1], Boolean.parseBoolean(fields[2])));
+      }
+    } catch (IOException e) {
+      LOGGER.error("could not load user file: {}", LogHelper.getStackTrace(e));
+    }
+  }
+
+  /**
+   * Reads the users from a legacy, serialized user file, appends them to the append-only user file and puts them into the given map.
+   */
+  static void migrateLegacyUsers(File legacyFile, File file, Map<String, User> users) {
+    try (ObjectInputStream oin = new ObjectInputStream(new FileInputStream(legacyFile))) {
+      @SuppressWarnings("unchecked")
+      HashMap<String, User> legacyUsers = (HashMap<String, User>) oin.readObject();
+      for (User user : legacyUsers.values()) {
+        if (appendUser(file, user)) {
+          users.put(user.username, user);
+        }
+      }
+      LOGGER.info("migrated {} users from legacy user file", legacyUsers.size());
+    } catch (ClassNotFoundException | IOException e) {
+      LOGGER.error("could not load legacy user file: {}", LogHelper.getStackTrace(e));
+    }
+  }
+
+  /**
+   * Appends a single user to an append-only user file.
+   *
+   * @return True on success, false otherwise.
+   */
+  static synchronized boolean appendUser(File file, User user) {
+    try (BufferedWriter writer = Files.newBufferedWriter(file.toPath(), StandardCharsets.UTF_8, StandardOpenOption.CREATE, StandardOpenOption.APPEND)) {
+      writer.write(user.username + "\t" + user.passwordHash + "\t" + user.isAdmin);
+      writer.newLine();
+      return true;
     } catch (IOException e) {
       LOGGER.error("could not store user file: {}", LogHelper.getStackTrace(e));
+      return false;
     }
   }
 
@@ -82,20 +128,30 @@ public static boolean createUser(String username, String password, boolean admin
       LOGGER.error("cannot create user username or password null");
       return false;
     }
+    if (username.isEmpty() || username.indexOf('\t') >= 0 || username.indexOf('\n') >= 0 || username.indexOf('\r') >= 0) {
+      LOGGER.error("cannot create user, username must not be empty or contain tabs or line breaks");
+      return false;
+    }
     if (userMap.containsKey(username)) {
       LOGGER.error("user '{}' already exists", username);
       return false;
     }
 
     User u = User.newUser(username, password, admin);
-    userMap.put(username, u);
-    storeUsers();
+    if (userMap.putIfAbsent(username, u) != null) {
+      LOGGER.error("user '{}' already exists", username);
+      return false;
+    }
+    if (!appendUser(storedUserFile, u)) {
+      userMap.remove(username, u);
+      return false;
+    }
     LOGGER.info("created user '{}'", username);
     return true;
 
   }
 
-  private static class User implements Serializable {
+  static class User implements Serializable {
 
     private static final long serialVersionUID = -7409429664837688894L;
     public final String username, passwordHash;
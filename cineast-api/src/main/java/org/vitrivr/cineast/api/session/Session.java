@@ -6,7 +6,7 @@ public class Session {
 
   private final String id;
   private final SessionType type;
-  private long validUntil;
+  private volatile long validUntil;
 
   /**
    * @param id       unique session id
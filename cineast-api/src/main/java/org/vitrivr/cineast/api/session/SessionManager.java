@@ -1,11 +1,11 @@
 package org.vitrivr.cineast.api.session;
 
-import java.util.HashMap;
-import java.util.Set;
-
+/**
+ * Process-wide store of {@link Session}s; see {@link SessionStore} for how expired sessions are purged.
+ */
 public class SessionManager {
 
-  private static HashMap<String, Session> sessions = new HashMap<>();
+  private static final SessionStore sessions = new SessionStore(() -> System.currentTimeMillis() / 1000);
 
   private SessionManager() {
   }
@@ -15,36 +15,31 @@ public static Session newSession(int lifetime, SessionType type) {
     if (type == null) {
       throw new NullPointerException("session type cannot be null");
     }
-    synchronized (sessions) {
-      do {
-        s = new Session(type, lifetime);
-      } while (sessions.containsKey(s.getSessionId()));
-      sessions.put(s.getSessionId(), s);
-    }
+    do {
+      s = new Session(type, lifetime);
+    } while (!sessions.add(s));
     return s;
   }
 
   public static void endSession(String sessionId) {
-    synchronized (sessions) {
-      sessions.remove(sessionId);
-    }
+    sessions.remove(sessionId);
   }
 
+  /**
+   * Returns the {@link Session} with the given id.
+   *
+   * @param sessionId The id of the session.
+   * @return The {@link Session} or null, if no such session exists or it has expired.
+   */
   public static Session get(String sessionId) {
-    synchronized (sessions) {
-      return sessions.get(sessionId);
-    }
+    return sessions.get(sessionId);
   }
 
+  /**
+   * Purges all expired sessions whose expiry the timing wheel has reached.
+   */
   public static void cleanup() {
-    synchronized (sessions) {
-      Set<String> keys = sessions.keySet();
-      for (String key : keys) {
-        if (!sessions.get(key).isValid()) {
-          sessions.remove(key);
-        }
-      }
-    }
+    sessions.advance();
   }
 
 }
@@ -0,0 +1,131 @@
+package org.vitrivr.cineast.api.session;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.LongSupplier;
+
+/**
+ * Concurrent store of {@link Session}s backing the {@link SessionManager}. Lookups are lock-free; expired sessions are purged by a hashed timing wheel with one bucket per second, which is advanced lazily by the threads accessing the store. Advancing the wheel only touches the sessions scheduled for the elapsed seconds, i.e. the expired sessions plus, once per rotation, sessions with a longer remaining lifetime.
+ */
+final class SessionStore {
+
+  /**
+   * Number of buckets (seconds) of the timing wheel.
+   */
+  static final int WHEEL_SIZE = 512;
+
+  private final ConcurrentHashMap<String, Session> sessions = new ConcurrentHashMap<>();
+
+  private final Queue<Session>[] wheel;
+
+  /**
+   * Returns the current time in seconds since the epoch.
+   */
+  private final LongSupplier clock;
+
+  /**
+   * The last second (in seconds since the epoch) for which the timing wheel was advanced.
+   */
+  private final AtomicLong processed;
+
+  /**
+   * Held by the thread advancing the timing wheel; other threads do not wait for it.
+   */
+  private final ReentrantLock advancing = new ReentrantLock();
+
+  /**
+   * @param clock Returns the current time in seconds since the epoch.
+   */
+  @SuppressWarnings("unchecked")
+  SessionStore(LongSupplier clock) {
+    this.clock = clock;
+    this.processed = new AtomicLong(clock.getAsLong());
+    this.wheel = new Queue[WHEEL_SIZE];
+    for (int i = 0; i < WHEEL_SIZE; i++) {
+      this.wheel[i] = new ConcurrentLinkedQueue<>();
+    }
+  }
+
+  /**
+   * Adds a {@link Session} unless a session with the same id exists.
+   *
+   * @return True if the session was added, false otherwise.
+   */
+  boolean add(Session session) {
+    if (this.sessions.putIfAbsent(session.getSessionId(), session) != null) {
+      return false;
+    }
+    this.schedule(session);
+    this.advance();
+    return true;
+  }
+
+  void remove(String sessionId) {
+    this.sessions.remove(sessionId);
+  }
+
+  /**
+   * Returns the {@link Session} with the given id or null, if no such session exists or it has expired.
+   */
+  Session get(String sessionId) {
+    this.advance();
+    final Session session = this.sessions.get(sessionId);
+    if (session != null && session.getEndTimeStamp() < this.clock.getAsLong()) {
+      this.sessions.remove(sessionId, session);
+      return null;
+    }
+    return session;
+  }
+
+  /**
+   * Returns the number of sessions in this store, including expired sessions the timing wheel has not reached yet.
+   */
+  int size() {
+    return this.sessions.size();
+  }
+
+  /**
+   * Puts the {@link Session} into the bucket of the second it expires in.
+   */
+  private void schedule(Session session) {
+    this.wheel[(int) Math.floorMod(session.getEndTimeStamp() + 1, (long) WHEEL_SIZE)].add(session);
+  }
+
+  /**
+   * Advances the timing wheel to the current second, unless another thread is already doing so. Sessions that have been ended are dropped from the wheel, sessions whose lifetime has been extended are rescheduled.
+   */
+  void advance() {
+    final long now = this.clock.getAsLong();
+    if (this.processed.get() >= now || !this.advancing.tryLock()) {
+      return;
+    }
+    try {
+      final long from = this.processed.get();
+      /* Every bucket is drained completely, hence a single rotation covers any longer interval. */
+      final long to = Math.min(now, from + WHEEL_SIZE);
+      for (long second = from + 1; second <= to; second++) {
+        final Queue<Session> bucket = this.wheel[(int) Math.floorMod(second, (long) WHEEL_SIZE)];
+        for (int remaining = bucket.size(); remaining > 0; remaining--) {
+          final Session session = bucket.poll();
+          if (session == null) {
+            break;
+          }
+          if (this.sessions.get(session.getSessionId()) != session) {
+            continue;
+          }
+          if (session.getEndTimeStamp() >= now) {
+            this.schedule(session);
+          } else {
+            this.sessions.remove(session.getSessionId(), session);
+          }
+        }
+      }
+      this.processed.set(now);
+    } finally {
+      this.advancing.unlock();
+    }
+  }
+}
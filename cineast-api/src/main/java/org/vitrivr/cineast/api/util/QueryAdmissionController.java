@@ -0,0 +1,209 @@
+package org.vitrivr.cineast.api.util;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.stream.Stream;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.vitrivr.cineast.api.messages.query.QueryTerm;
+import org.vitrivr.cineast.core.util.LogHelper;
+import org.vitrivr.cineast.standalone.config.APIConfig;
+import org.vitrivr.cineast.standalone.config.Config;
+
+/**
+ * Limits the number of queries that are executed concurrently and decides which of the waiting queries is executed next.
+ * <p>
+ * Waiting queries are queued per client and admitted by start-time fair queuing: every client is served in proportion to the estimated cost of its queries, such that a client issuing a burst of expensive queries does not delay the queries of other clients. Once the queue of a client or the overall queue is full, further queries are rejected rather than queued, such that an overloaded server keeps answering the queries it has accepted in time.
+ * <p>
+ * Similarity queries and segment lookups are admitted by separate controllers, such that lookups never wait behind similarity queries.
+ */
+public final class QueryAdmissionController {
+
+  private static final Logger LOGGER = LogManager.getLogger();
+
+  /**
+   * Message sent to clients whose query was rejected.
+   */
+  public static final String BUSY = "busy: the server is not accepting further queries at the moment, please try again later";
+
+  private static final APIConfig CONFIG = Config.sharedConfig().getApi();
+
+  public static final QueryAdmissionController SIMILARITY = new QueryAdmissionController("similarity", CONFIG.getMaxConcurrentQueries(), CONFIG.getMaxQueuedQueries(), CONFIG.getMaxQueuedQueriesPerClient());
+
+  public static final QueryAdmissionController LOOKUPS = new QueryAdmissionController("lookup", CONFIG.getLookupThreadPoolSize(), CONFIG.getMaxQueuedQueries(), CONFIG.getMaxQueuedQueriesPerClient());
+
+  private final String name;
+  private final int maxConcurrent;
+  private final int maxQueued;
+  private final int maxQueuedPerClient;
+
+  private final ExecutorService executor;
+
+  /*
+   * All of the following fields are guarded by this.
+   */
+  private final Map<Object, Client> clients = new HashMap<>();
+  private final PriorityQueue<Pending> queue = new PriorityQueue<>(Comparator.comparingDouble(Pending::start).thenComparingLong(Pending::sequence));
+  private double virtualTime = 0;
+  private long sequence = 0;
+  private int running = 0;
+  private long rejected = 0;
+
+  /**
+   * Per-client state: the finish tag of the last query of the client and the number of its queries that are queued or running.
+   */
+  private static final class Client {
+
+    private final Object key;
+    private double finish = 0;
+    private int queued = 0;
+    private int running = 0;
+
+    private Client(Object key) {
+      this.key = key;
+    }
+  }
+
+  private record Pending(Client client, Runnable task, double start, long sequence) {
+
+  }
+
+  QueryAdmissionController(String name, int maxConcurrent, int maxQueued, int maxQueuedPerClient) {
+    this.name = name;
+    this.maxConcurrent = maxConcurrent;
+    this.maxQueued = maxQueued;
+    this.maxQueuedPerClient = maxQueuedPerClient;
+    this.executor = Executors.newFixedThreadPool(maxConcurrent, new ThreadFactoryBuilder().setNameFormat(name + "-query-%d").setDaemon(true).build());
+  }
+
+  /**
+   * Estimates the cost of a query as the number of categories it is executed in.
+   */
+  public static int cost(Stream<QueryTerm> terms) {
+    return Math.max(1, terms.mapToInt(term -> term.categories() == null ? 0 : term.categories().size()).sum());
+  }
+
+  /**
+   * Executes a query once it is admitted.
+   *
+   * @param client Identifies the client that issued the query, e.g. its WebSocket session.
+   * @param cost   Estimated cost of the query, see {@link #cost(Stream)}.
+   * @param task   The query.
+   * @return False, if the query was rejected because too many queries are waiting.
+   */
+  public synchronized boolean submit(Object client, int cost, Runnable task) {
+    final Client state = this.clients.computeIfAbsent(client, Client::new);
+    if (this.running >= this.maxConcurrent && (this.queue.size() >= this.maxQueued || state.queued >= this.maxQueuedPerClient)) {
+      this.rejected++;
+      this.release(state);
+      LOGGER.debug("Rejected {} query; {} queries running, {} waiting, {} waiting for the client", this.name, this.running, this.queue.size(), state.queued);
+      return false;
+    }
+    final double start = Math.max(this.virtualTime, state.finish);
+    state.finish = start + Math.max(1, cost);
+    state.queued++;
+    this.queue.add(new Pending(state, task, start, this.sequence++));
+    this.dispatch();
+    return true;
+  }
+
+  /**
+   * Executes a query once it is admitted and waits for its result.
+   *
+   * @throws QueryRejectedException If the query was rejected because too many queries are waiting.
+   */
+  public <T> T call(Object client, int cost, Callable<T> task) {
+    final CompletableFuture<T> future = new CompletableFuture<>();
+    final boolean admitted = this.submit(client, cost, () -> {
+      try {
+        future.complete(task.call());
+      } catch (Throwable t) {
+        future.completeExceptionally(t);
+      }
+    });
+    if (!admitted) {
+      throw new QueryRejectedException(BUSY);
+    }
+    try {
+      return future.join();
+    } catch (CompletionException e) {
+      if (e.getCause() instanceof RuntimeException) {
+        throw (RuntimeException) e.getCause();
+      }
+      throw e;
+    }
+  }
+
+  /**
+   * Discards the queued queries of a client, e.g. because its session was closed. Running queries are not affected.
+   */
+  public synchronized void withdraw(Object client) {
+    final Client state = this.clients.get(client);
+    if (state == null) {
+      return;
+    }
+    this.queue.removeIf(pending -> pending.client() == state);
+    state.queued = 0;
+    this.release(state);
+  }
+
+  private void dispatch() {
+    while (this.running < this.maxConcurrent && !this.queue.isEmpty()) {
+      final Pending next = this.queue.poll();
+      final Client state = next.client();
+      this.virtualTime = next.start();
+      state.queued--;
+      state.running++;
+      this.running++;
+      this.executor.execute(() -> {
+        try {
+          next.task().run();
+        } catch (Throwable t) {
+          LOGGER.error("Uncaught error in {} query: {}", this.name, LogHelper.getStackTrace(t));
+        } finally {
+          this.complete(state);
+        }
+      });
+    }
+  }
+
+  private synchronized void complete(Client state) {
+    this.running--;
+    state.running--;
+    this.release(state);
+    this.dispatch();
+  }
+
+  /**
+   * Forgets a client without queued or running queries.
+   */
+  private void release(Client state) {
+    if (state.queued == 0 && state.running == 0) {
+      this.clients.remove(state.key, state);
+    }
+  }
+
+  public String getName() {
+    return this.name;
+  }
+
+  public synchronized int runningCount() {
+    return this.running;
+  }
+
+  public synchronized int queuedCount() {
+    return this.queue.size();
+  }
+
+  public synchronized long rejectedCount() {
+    return this.rejected;
+  }
+}
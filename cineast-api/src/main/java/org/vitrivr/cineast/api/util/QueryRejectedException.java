@@ -0,0 +1,16 @@
+package org.vitrivr.cineast.api.util;
+
+import java.io.Serial;
+
+/**
+ * Thrown if a query is not admitted by the {@link QueryAdmissionController} because too many queries are waiting for execution.
+ */
+public class QueryRejectedException extends RuntimeException {
+
+  @Serial
+  private static final long serialVersionUID = 2716344386413405517L;
+
+  public QueryRejectedException(String message) {
+    super(message);
+  }
+}
@@ -1,8 +1,10 @@
 package org.vitrivr.cineast.api.websocket;
 
 import java.io.IOException;
+import java.util.EnumSet;
 import java.util.HashMap;
 import java.util.Queue;
+import java.util.Set;
 import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.SynchronousQueue;
@@ -20,8 +22,13 @@
 import org.vitrivr.cineast.api.messages.general.AnyMessage;
 import org.vitrivr.cineast.api.messages.interfaces.Message;
 import org.vitrivr.cineast.api.messages.interfaces.MessageType;
+import org.vitrivr.cineast.api.messages.interfaces.Query;
+import org.vitrivr.cineast.api.messages.query.MoreLikeThisQuery;
+import org.vitrivr.cineast.api.messages.query.TemporalQuery;
+import org.vitrivr.cineast.api.util.QueryAdmissionController;
 import org.vitrivr.cineast.api.websocket.handlers.StatusMessageHandler;
 import org.vitrivr.cineast.api.websocket.handlers.interfaces.WebsocketMessageHandler;
+import org.vitrivr.cineast.api.websocket.handlers.queries.AbstractQueryMessageHandler;
 import org.vitrivr.cineast.api.websocket.handlers.queries.MoreLikeThisQueryMessageHandler;
 import org.vitrivr.cineast.api.websocket.handlers.queries.NeighbouringQueryMessageHandler;
 import org.vitrivr.cineast.api.websocket.handlers.queries.SegmentQueryMessageHandler;
@@ -48,7 +55,7 @@ public class WebsocketAPI {
   private static final Queue<Session> SESSIONS = new ConcurrentLinkedQueue<>();
 
   /**
-   * A cached ThreadPoolExecutor used to execute tasks submitted and handled by the WebSocket API
+   * A cached ThreadPoolExecutor used to execute tasks submitted and handled by the WebSocket API, except queries, which are executed once admitted by a {@link QueryAdmissionController}.
    */
   private static final ExecutorService EXECUTORS = new ThreadPoolExecutor(2, Integer.MAX_VALUE, 60L, TimeUnit.SECONDS, new SynchronousQueue<Runnable>());
 
@@ -57,6 +64,11 @@ public class WebsocketAPI {
    */
   private static final HashMap<MessageType, WebsocketMessageHandler<?>> STATELESS_HANDLERS = new HashMap<>();
 
+  /**
+   * Message types of queries that merely look up segments and are therefore admitted separately from similarity queries.
+   */
+  private static final Set<MessageType> LOOKUP_QUERIES = EnumSet.of(MessageType.Q_SEG, MessageType.Q_NESEG);
+
   static {
     STATELESS_HANDLERS.put(MessageType.Q_TEMPORAL, new TemporalQueryMessageHandler(APIEndpoint.retrievalLogic));
     STATELESS_HANDLERS.put(MessageType.Q_MLT, new MoreLikeThisQueryMessageHandler(APIEndpoint.retrievalLogic));
@@ -102,6 +114,8 @@ public void connected(Session session) {
   @OnWebSocketClose
   public void closed(Session session, int statusCode, String reason) {
     SESSIONS.remove(session);
+    QueryAdmissionController.SIMILARITY.withdraw(session);
+    QueryAdmissionController.LOOKUPS.withdraw(session);
     LOGGER.debug("Connection of session closed (Code: {}, Reason: {}).", statusCode, reason);
   }
 
@@ -114,7 +128,7 @@ public void onWebSocketException(Session session, Throwable error) {
   }
 
   /**
-   * Handles incoming messages. This method determines the message-type of the message. If that type is known, the message is routed to a pre-registered message handler.
+   * Handles incoming messages. This method determines the message-type of the message. If that type is known, the message is routed to a pre-registered message handler. Queries are executed once admitted by a {@link QueryAdmissionController}; if they are rejected, the client is informed instead.
    *
    * @param session Session the message belongs to.
    * @param message String message.
@@ -126,9 +140,31 @@ public void message(Session session, String message) throws IOException {
     if (testMessage != null) {
       final MessageType type = testMessage.messageType();
       final WebsocketMessageHandler handler = STATELESS_HANDLERS.get(type);
-      if (handler != null) {
-        EXECUTORS.execute(() -> handler.handle(session, this.reader.toObject(message, type.getMessageClass())));
+      if (handler == null) {
+        return;
       }
+      final Object parsed = this.reader.toObject(message, type.getMessageClass());
+      if (handler instanceof AbstractQueryMessageHandler queryHandler && parsed instanceof Query query) {
+        final QueryAdmissionController controller = LOOKUP_QUERIES.contains(type) ? QueryAdmissionController.LOOKUPS : QueryAdmissionController.SIMILARITY;
+        if (!controller.submit(session, cost(query), () -> queryHandler.handle(session, query))) {
+          queryHandler.reject(session, query);
+        }
+      } else {
+        EXECUTORS.execute(() -> handler.handle(session, parsed));
+      }
+    }
+  }
+
+  /**
+   * Estimates the cost of a {@link Query} for the {@link QueryAdmissionController}.
+   */
+  private static int cost(Query query) {
+    if (query instanceof TemporalQuery temporal) {
+      return QueryAdmissionController.cost(temporal.queries().stream().flatMap(staged -> staged.stages().stream()).flatMap(stage -> stage.terms().stream()));
+    }
+    if (query instanceof MoreLikeThisQuery mlt && mlt.categories() != null) {
+      return Math.max(1, mlt.categories().size());
     }
+    return 1;
   }
 }
@@ -13,6 +13,8 @@
 import org.vitrivr.cineast.api.websocket.handlers.interfaces.WebsocketMessageHandler;
 import org.vitrivr.cineast.core.util.json.JacksonJsonProvider;
 import org.vitrivr.cineast.core.util.json.JsonWriter;
+import org.vitrivr.cineast.core.util.tracing.QueryTracer;
+import org.vitrivr.cineast.core.util.tracing.Span;
 
 /**
  * This abstract class implements the WebsocketMessageHandler interface and provides basic functionality like a convenience method to write information back to the underlying WebSocket stream.
@@ -32,7 +34,10 @@
   protected final CompletableFuture<Void> write(Session session, Message message) {
 
     StopWatch watch = StopWatch.createStarted();
-    String json = this.writer.toJson(message);
+    String json;
+    try (Span span = QueryTracer.start("serialization", message.messageType().name())) {
+      json = this.writer.toJson(message);
+    }
     if (message.messageType() != MessageType.PING) {
       LOGGER.trace("Serialization for {} in {} ms", message.messageType(), watch.getTime(TimeUnit.MILLISECONDS));
     }
@@ -3,16 +3,17 @@
 import static org.vitrivr.cineast.api.util.APIConstants.ACCESS_ALL_METADATA;
 
 import com.google.common.collect.Lists;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import java.util.ArrayList;
 import java.util.Collection;
-import java.util.Collections;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import java.util.concurrent.TimeUnit;
-import java.util.concurrent.atomic.AtomicInteger;
 import java.util.stream.Collectors;
 import org.apache.commons.lang3.time.StopWatch;
 import org.apache.logging.log4j.Level;
@@ -29,8 +30,10 @@
 import org.vitrivr.cineast.api.messages.result.QueryStart;
 import org.vitrivr.cineast.api.messages.result.SimilarityQueryResult;
 import org.vitrivr.cineast.api.messages.result.TemporalQueryResult;
+import org.vitrivr.cineast.api.util.QueryAdmissionController;
 import org.vitrivr.cineast.api.websocket.handlers.abstracts.StatelessWebsocketMessageHandler;
 import org.vitrivr.cineast.core.config.QueryConfig;
+import org.vitrivr.cineast.core.config.QueryDeadline;
 import org.vitrivr.cineast.core.data.StringDoublePair;
 import org.vitrivr.cineast.core.data.TemporalObject;
 import org.vitrivr.cineast.core.data.entities.MediaObjectDescriptor;
@@ -44,6 +47,7 @@
 import org.vitrivr.cineast.core.db.dao.reader.MediaSegmentReader;
 import org.vitrivr.cineast.core.util.LogHelper;
 import org.vitrivr.cineast.core.util.TimeHelper;
+import org.vitrivr.cineast.core.util.tracing.QueryTracer;
 import org.vitrivr.cineast.standalone.config.Config;
 import org.vitrivr.cineast.standalone.config.ConstrainedQueryConfig;
 
@@ -54,6 +58,11 @@
 
   private static final Logger LOGGER = LogManager.getLogger();
 
+  /**
+   * Executor for metadata retrieval, shared by all handlers and kept apart from the execution of the queries themselves, see {@link QueryAdmissionController}.
+   */
+  private static final ExecutorService METADATA_EXECUTOR = Executors.newFixedThreadPool(Config.sharedConfig().getApi().getLookupThreadPoolSize(), new ThreadFactoryBuilder().setNameFormat("metadata-retrieval-%d").setDaemon(true).build());
+
   /**
    * {@link MediaSegmentReader} instance used to read segments from the storage layer.
    */
@@ -93,8 +102,9 @@ public final void handle(Session session, T message) {
       qconf.setMaxResults(max);
       final int resultsPerModule = Math.min(qconf.getRawResultsPerModule() == -1 ? Config.sharedConfig().getRetriever().getMaxResultsPerModule() : qconf.getResultsPerModule(), Config.sharedConfig().getRetriever().getMaxResultsPerModule());
       qconf.setResultsPerModule(resultsPerModule);
+      qconf.setTimeoutIfEmpty(Config.sharedConfig().getRetriever().getQueryTimeout());
       Thread.currentThread().setName("q-msg-handler-" + uuid.substring(0, 3));
-      try {
+      try (QueryTracer.Scope scope = QueryTracer.enter(uuid, null)) {
         /* Begin of Query: Send QueryStart Message to Client.
          *  We could wait for future-completion here, but there will likely never be a case where a simple write would fall behind the first message we send to the client.
          * Additionally, QR_START is informational - the client already knows that they sent a request.
@@ -110,15 +120,35 @@ public final void handle(Session session, T message) {
         LOGGER.error("An exception occurred during execution of similarity query message {}.", LogHelper.getStackTrace(e));
         this.write(session, new QueryError(uuid, e.getMessage()));
         return;
+      } finally {
+        QueryTracer.complete(uuid);
       }
 
       /* End of Query: Send QueryEnd Message to Client. */
-      this.write(session, new QueryEnd(uuid));
+      this.write(session, new QueryEnd(uuid, qconf.getDeadline().map(QueryDeadline::isExceeded).orElse(false)));
     } catch (Throwable t) {
       t.printStackTrace();
     }
   }
 
+  /**
+   * Informs the client that a {@link Query} was not executed, because the {@link QueryAdmissionController} rejected it.
+   *
+   * @param session WebSocketSession for which the message arrived.
+   * @param message The rejected message.
+   */
+  public final void reject(Session session, T message) {
+    this.write(session, rejection(message));
+  }
+
+  /**
+   * Creates the {@link QueryError} that informs the client that a {@link Query} was rejected.
+   */
+  static QueryError rejection(Query message) {
+    final String uuid = message.config() == null ? new ConstrainedQueryConfig().getQueryId() : message.config().getQueryId();
+    return new QueryError(uuid, QueryAdmissionController.BUSY);
+  }
+
   /**
    * Executes the actual query specified by the {@link Query} object.
    *
@@ -169,7 +199,7 @@ protected List<MediaObjectDescriptor> loadObjects(List<String> objectIds, String
    * @param objectIds          List of object IDs for which to lookup metadata.
    * @param metadataAccessSpec if this parameter is null, no metadata is fetched
    */
-  protected synchronized List<Thread> loadAndWriteObjectMetadata(Session session, String queryId, List<String> objectIds, Collection<String> objectIdsForWhichMetadataIsFetched, List<MetadataAccessSpecification> metadataAccessSpec) {
+  protected synchronized List<CompletableFuture<Void>> loadAndWriteObjectMetadata(Session session, String queryId, List<String> objectIds, Collection<String> objectIdsForWhichMetadataIsFetched, List<MetadataAccessSpecification> metadataAccessSpec) {
     if (objectIds.isEmpty()) {
       return new ArrayList<>();
     }
@@ -178,7 +208,7 @@ protected synchronized List<Thread> loadAndWriteObjectMetadata(Session session,
     if (objectIds.size() > 100_000) {
       return Lists.partition(objectIds, 100_000).stream().map(list -> loadAndWriteObjectMetadata(session, queryId, list, objectIdsForWhichMetadataIsFetched, metadataAccessSpec)).flatMap(Collection::stream).collect(Collectors.toList());
     }
-    Thread thread = new Thread(() -> {
+    return Lists.newArrayList(CompletableFuture.runAsync(() -> {
       final List<MediaObjectMetadataDescriptor> objectMetadata = this.objectMetadataReader.findBySpec(objectIds, metadataAccessSpec, queryId);
       if (objectMetadata.isEmpty()) {
         return;
@@ -189,10 +219,7 @@ protected synchronized List<Thread> loadAndWriteObjectMetadata(Session session,
       List<CompletableFuture<Void>> futures = new ArrayList<>();
       Lists.partition(objectMetadata, 100_000).forEach(list -> futures.add(this.write(session, new MediaObjectMetadataQueryResult(queryId, list))));
       futures.forEach(CompletableFuture::join);
-    });
-    thread.setName("metadata-retrieval-objects");
-    thread.start();
-    return Collections.singletonList(thread);
+    }, METADATA_EXECUTOR));
   }
 
   /**
@@ -204,7 +231,7 @@ protected synchronized List<Thread> loadAndWriteObjectMetadata(Session session,
    * @param segmentIdsForWhichMetadataIsFetched segmentids for which metadata is already fetched
    * @param metadataAccessSpec                  if this parameter is null, no metadata is fetched.
    */
-  synchronized List<Thread> loadAndWriteSegmentMetadata(Session session, String queryId, List<String> segmentIds, Collection<String> segmentIdsForWhichMetadataIsFetched, List<MetadataAccessSpecification> metadataAccessSpec) {
+  synchronized List<CompletableFuture<Void>> loadAndWriteSegmentMetadata(Session session, String queryId, List<String> segmentIds, Collection<String> segmentIdsForWhichMetadataIsFetched, List<MetadataAccessSpecification> metadataAccessSpec) {
     if (segmentIds.isEmpty()) {
       return new ArrayList<>();
     }
@@ -214,32 +241,15 @@ synchronized List<Thread> loadAndWriteSegmentMetadata(Session session, String qu
     if (segmentIds.size() > 100_000) {
       return Lists.partition(segmentIds, 100_000).stream().map(list -> loadAndWriteSegmentMetadata(session, queryId, list, segmentIdsForWhichMetadataIsFetched, metadataAccessSpec)).flatMap(Collection::stream).collect(Collectors.toList());
     }
-    Thread fetching = new Thread(() -> {
+    return Lists.newArrayList(CompletableFuture.runAsync(() -> {
       final List<MediaSegmentMetadataDescriptor> segmentMetadata = this.segmentMetadataReader.findBySpec(segmentIds, metadataAccessSpec, queryId);
       if (segmentMetadata.isEmpty()) {
         return;
       }
-      List<Thread> threads = new ArrayList<>();
-      AtomicInteger i = new AtomicInteger(0);
-      Lists.partition(segmentMetadata, 100_000).forEach(list -> {
-        Thread writing = new Thread(() -> {
-          this.write(session, new MediaSegmentMetadataQueryResult(queryId, list)).join();
-        });
-        writing.setName("metadata-ws-write-queryId" + i.getAndIncrement());
-        writing.start();
-        threads.add(writing);
-      });
-      for (Thread thread : threads) {
-        try {
-          thread.join();
-        } catch (InterruptedException e) {
-          LOGGER.error(e);
-        }
-      }
-    });
-    fetching.setName("metadata-load-write-" + queryId);
-    fetching.start();
-    return Lists.newArrayList(fetching);
+      List<CompletableFuture<Void>> futures = new ArrayList<>();
+      Lists.partition(segmentMetadata, 100_000).forEach(list -> futures.add(this.write(session, new MediaSegmentMetadataQueryResult(queryId, list))));
+      futures.forEach(CompletableFuture::join);
+    }, METADATA_EXECUTOR));
   }
 
   /**
@@ -295,16 +305,16 @@ void submitSegmentAndObjectInformationFromIds(Session session, String queryId, L
    * @param segmentIdsForWhichMetadataIsFetched Segment IDs for which the metadata was fetched and transferred.
    * @param metadataAccessSpec                  if this param is null, all metadata is fetched
    */
-  protected List<Thread> submitMetadata(Session session, String queryId, List<String> segmentIds, List<String> objectIds, Collection<String> segmentIdsForWhichMetadataIsFetched, Collection<String> objectIdsForWhichMetadataIsFetched, List<MetadataAccessSpecification> metadataAccessSpec) {
+  protected List<CompletableFuture<Void>> submitMetadata(Session session, String queryId, List<String> segmentIds, List<String> objectIds, Collection<String> segmentIdsForWhichMetadataIsFetched, Collection<String> objectIdsForWhichMetadataIsFetched, List<MetadataAccessSpecification> metadataAccessSpec) {
     // this ensures maximum backwards compatibility. The API should probably include a NONE option
     if (metadataAccessSpec == null) {
       metadataAccessSpec = ACCESS_ALL_METADATA;
     }
     /* Load and transmit segment & object metadata. */
-    List<Thread> segmentThreads = this.loadAndWriteSegmentMetadata(session, queryId, segmentIds, segmentIdsForWhichMetadataIsFetched, metadataAccessSpec);
-    List<Thread> objectThreads = this.loadAndWriteObjectMetadata(session, queryId, objectIds, objectIdsForWhichMetadataIsFetched, metadataAccessSpec);
-    segmentThreads.addAll(objectThreads);
-    return segmentThreads;
+    List<CompletableFuture<Void>> segmentFutures = this.loadAndWriteSegmentMetadata(session, queryId, segmentIds, segmentIdsForWhichMetadataIsFetched, metadataAccessSpec);
+    List<CompletableFuture<Void>> objectFutures = this.loadAndWriteObjectMetadata(session, queryId, objectIds, objectIdsForWhichMetadataIsFetched, metadataAccessSpec);
+    segmentFutures.addAll(objectFutures);
+    return segmentFutures;
   }
 
   /**
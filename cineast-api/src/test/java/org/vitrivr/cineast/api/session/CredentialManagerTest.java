@@ -0,0 +1,67 @@
+package org.vitrivr.cineast.api.session;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.ObjectOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.vitrivr.cineast.api.session.CredentialManager.User;
+
+public class CredentialManagerTest {
+
+  @TempDir
+  Path directory;
+
+  @Test
+  @DisplayName("Users of the legacy user file are migrated")
+  void testMigration() throws IOException {
+    final File legacy = this.directory.resolve("users").toFile();
+    final File file = this.directory.resolve("users.log").toFile();
+    final HashMap<String, User> legacyUsers = new HashMap<>();
+    legacyUsers.put("alice", User.newUser("alice", "secret", true));
+    legacyUsers.put("bob", User.newUser("bob", "password", false));
+    try (ObjectOutputStream out = new ObjectOutputStream(new FileOutputStream(legacy))) {
+      out.writeObject(legacyUsers);
+    }
+
+    final Map<String, User> migrated = new HashMap<>();
+    CredentialManager.migrateLegacyUsers(legacy, file, migrated);
+    assertEquals(legacyUsers, migrated);
+    assertEquals(2, Files.readAllLines(file.toPath(), StandardCharsets.UTF_8).size());
+
+    final Map<String, User> loaded = new HashMap<>();
+    CredentialManager.loadUsers(file, loaded);
+    assertEquals(legacyUsers, loaded);
+    assertTrue(loaded.get("alice").isAdmin);
+    assertTrue(loaded.get("alice").checkPassword("secret"));
+    assertFalse(loaded.get("bob").isAdmin);
+    assertFalse(loaded.get("bob").checkPassword("secret"));
+  }
+
+  @Test
+  @DisplayName("Later lines of the user file take precedence and malformed lines are skipped")
+  void testLoad() throws IOException {
+    final File file = this.directory.resolve("users.log").toFile();
+    Files.write(file.toPath(), List.of("alice\thash1\tfalse", "malformed", "", "alice\thash2\ttrue", "bob\thash3\tfalse"), StandardCharsets.UTF_8);
+    assertTrue(CredentialManager.appendUser(file, User.newUser("carol", "pw", false)));
+
+    final Map<String, User> users = new HashMap<>();
+    CredentialManager.loadUsers(file, users);
+    assertEquals(3, users.size());
+    assertEquals("hash2", users.get("alice").passwordHash);
+    assertTrue(users.get("alice").isAdmin);
+    assertTrue(users.get("carol").checkPassword("pw"));
+  }
+}
@@ -0,0 +1,126 @@
+package org.vitrivr.cineast.api.session;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.concurrent.atomic.AtomicLong;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+public class SessionStoreTest {
+
+  /**
+   * Simulated time in seconds since the epoch; sessions derive their expiry from the real clock, hence all times are relative to their end time stamps.
+   */
+  private final AtomicLong time = new AtomicLong(System.currentTimeMillis() / 1000);
+
+  private SessionStore store;
+
+  @BeforeEach
+  void setUp() {
+    this.store = new SessionStore(this.time::get);
+  }
+
+  private Session add(String id, long lifetime) {
+    final Session session = new Session(id, SessionType.USER, lifetime);
+    assertTrue(this.store.add(session));
+    return session;
+  }
+
+  /**
+   * Advances the simulated time second by second.
+   */
+  private void advanceTo(long second) {
+    while (this.time.get() < second) {
+      this.time.incrementAndGet();
+      this.store.advance();
+    }
+  }
+
+  @Test
+  @DisplayName("Sessions are purged once the wheel passes their expiry")
+  void testExpiry() {
+    final Session first = this.add("first", 10);
+    final Session second = this.add("second", 20);
+    assertFalse(this.store.add(new Session("first", SessionType.USER, 10)));
+
+    this.advanceTo(first.getEndTimeStamp());
+    assertEquals(2, this.store.size());
+    assertSame(first, this.store.get("first"));
+
+    this.advanceTo(first.getEndTimeStamp() + 1);
+    assertEquals(1, this.store.size());
+    assertNull(this.store.get("first"));
+
+    this.advanceTo(second.getEndTimeStamp() + 1);
+    assertEquals(0, this.store.size());
+  }
+
+  @Test
+  @DisplayName("Sessions outliving a rotation of the wheel are rescheduled")
+  void testLongLifetime() {
+    final Session session = this.add("long", 3L * SessionStore.WHEEL_SIZE + 7);
+    this.advanceTo(session.getEndTimeStamp());
+    assertSame(session, this.store.get("long"));
+
+    this.advanceTo(session.getEndTimeStamp() + 1);
+    assertEquals(0, this.store.size());
+  }
+
+  @Test
+  @DisplayName("Sessions whose lifetime was extended across the wheel boundary are rescheduled")
+  void testRefresh() {
+    final Session session = this.add("refreshed", 10);
+    final long end = session.getEndTimeStamp();
+    this.advanceTo(end - 1);
+    session.extendLifeTime(SessionStore.WHEEL_SIZE);
+
+    /* The original bucket is passed, and so is the bucket of the new expiry modulo the wheel size. */
+    this.advanceTo(end + 1);
+    assertSame(session, this.store.get("refreshed"));
+    this.advanceTo(end + SessionStore.WHEEL_SIZE);
+    assertSame(session, this.store.get("refreshed"));
+
+    this.advanceTo(end + SessionStore.WHEEL_SIZE + 1);
+    assertEquals(0, this.store.size());
+  }
+
+  @Test
+  @DisplayName("Gaps longer than a rotation are covered by a single advance")
+  void testLongGap() {
+    final Session expired = this.add("expired", 5);
+    final Session alive = this.add("alive", 5L * SessionStore.WHEEL_SIZE);
+    this.time.set(expired.getEndTimeStamp() + 2L * SessionStore.WHEEL_SIZE);
+    this.store.advance();
+    assertEquals(1, this.store.size());
+    assertSame(alive, this.store.get("alive"));
+
+    this.time.set(alive.getEndTimeStamp() + 1);
+    this.store.advance();
+    assertEquals(0, this.store.size());
+  }
+
+  @Test
+  @DisplayName("Expired sessions are not returned before the wheel reaches them")
+  void testGetExpired() {
+    final Session session = this.add("session", 1);
+    /* Move the clock without advancing the wheel. */
+    this.time.set(session.getEndTimeStamp() + 1);
+    assertNull(this.store.get("session"));
+    assertEquals(0, this.store.size());
+  }
+
+  @Test
+  @DisplayName("Ended sessions are dropped from the wheel")
+  void testEndedSession() {
+    final Session ended = this.add("session", 10);
+    this.store.remove("session");
+    final Session replacement = this.add("session", 100);
+    this.advanceTo(ended.getEndTimeStamp() + 1);
+    assertSame(replacement, this.store.get("session"));
+  }
+}
@@ -0,0 +1,154 @@
+package org.vitrivr.cineast.api.util;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+public class QueryAdmissionControllerTest {
+
+  private final List<String> executed = Collections.synchronizedList(new ArrayList<>());
+
+  /**
+   * Occupies a slot of the controller until released.
+   */
+  private static CountDownLatch block(QueryAdmissionController controller, Object client) throws InterruptedException {
+    final CountDownLatch started = new CountDownLatch(1);
+    final CountDownLatch release = new CountDownLatch(1);
+    assertTrue(controller.submit(client, 1, () -> {
+      started.countDown();
+      try {
+        release.await(10, TimeUnit.SECONDS);
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+    }));
+    assertTrue(started.await(10, TimeUnit.SECONDS));
+    return release;
+  }
+
+  private boolean submit(QueryAdmissionController controller, Object client, int cost, String name, CountDownLatch done) {
+    return controller.submit(client, cost, () -> {
+      this.executed.add(name);
+      done.countDown();
+    });
+  }
+
+  @Test
+  @DisplayName("Queries beyond the limit per client are rejected")
+  void testClientLimit() throws InterruptedException {
+    final QueryAdmissionController controller = new QueryAdmissionController("test", 1, 10, 2);
+    final CountDownLatch release = block(controller, "blocker");
+    final CountDownLatch done = new CountDownLatch(3);
+    assertTrue(this.submit(controller, "a", 1, "a1", done));
+    assertTrue(this.submit(controller, "a", 1, "a2", done));
+    assertFalse(this.submit(controller, "a", 1, "a3", done));
+    assertTrue(this.submit(controller, "b", 1, "b1", done));
+    assertEquals(1, controller.runningCount());
+    assertEquals(3, controller.queuedCount());
+    assertEquals(1, controller.rejectedCount());
+
+    release.countDown();
+    assertTrue(done.await(10, TimeUnit.SECONDS));
+    assertEquals(List.of("a1", "b1", "a2"), this.executed);
+  }
+
+  @Test
+  @DisplayName("Queries beyond the overall limit are rejected")
+  void testOverallLimit() throws InterruptedException {
+    final QueryAdmissionController controller = new QueryAdmissionController("test", 2, 2, 5);
+    final CountDownLatch first = block(controller, "blocker");
+    final CountDownLatch second = block(controller, "blocker");
+    final CountDownLatch done = new CountDownLatch(2);
+    assertTrue(this.submit(controller, "a", 1, "a1", done));
+    assertTrue(this.submit(controller, "b", 1, "b1", done));
+    assertFalse(this.submit(controller, "c", 1, "c1", done));
+    assertEquals(1, controller.rejectedCount());
+
+    first.countDown();
+    second.countDown();
+    assertTrue(done.await(10, TimeUnit.SECONDS));
+    assertEquals(List.of("a1", "b1"), this.executed);
+  }
+
+  @Test
+  @DisplayName("Clients are served in proportion to the cost of their queries")
+  void testFairQueueing() throws InterruptedException {
+    final QueryAdmissionController controller = new QueryAdmissionController("test", 1, 100, 100);
+    final CountDownLatch release = block(controller, "blocker");
+    final CountDownLatch done = new CountDownLatch(7);
+    assertTrue(this.submit(controller, "expensive", 4, "e1", done));
+    assertTrue(this.submit(controller, "expensive", 4, "e2", done));
+    for (int i = 1; i <= 5; i++) {
+      assertTrue(this.submit(controller, "cheap", 1, "c" + i, done));
+    }
+
+    release.countDown();
+    assertTrue(done.await(10, TimeUnit.SECONDS));
+    assertEquals(List.of("e1", "c1", "c2", "c3", "c4", "e2", "c5"), this.executed);
+  }
+
+  @Test
+  @DisplayName("A burst of one client does not delay a later client")
+  void testBurst() throws InterruptedException {
+    final QueryAdmissionController controller = new QueryAdmissionController("test", 1, 100, 100);
+    final CountDownLatch release = block(controller, "blocker");
+    final CountDownLatch done = new CountDownLatch(11);
+    for (int i = 1; i <= 10; i++) {
+      assertTrue(this.submit(controller, "burst", 1, "burst" + i, done));
+    }
+    assertTrue(this.submit(controller, "late", 1, "late", done));
+
+    release.countDown();
+    assertTrue(done.await(10, TimeUnit.SECONDS));
+    assertEquals(1, this.executed.indexOf("late"));
+  }
+
+  @Test
+  @DisplayName("Queued queries of a client are withdrawn once its session closes")
+  void testWithdraw() throws InterruptedException {
+    final QueryAdmissionController controller = new QueryAdmissionController("test", 1, 10, 2);
+    final CountDownLatch release = block(controller, "blocker");
+    final CountDownLatch done = new CountDownLatch(2);
+    final CountDownLatch never = new CountDownLatch(2);
+    assertTrue(this.submit(controller, "closed", 1, "closed1", never));
+    assertTrue(this.submit(controller, "closed", 1, "closed2", never));
+    assertTrue(this.submit(controller, "open", 1, "open1", done));
+    assertFalse(this.submit(controller, "closed", 1, "closed3", never));
+
+    controller.withdraw("closed");
+    assertEquals(1, controller.queuedCount());
+
+    /* The withdrawn client starts afresh. */
+    assertTrue(this.submit(controller, "closed", 1, "closed4", done));
+    release.countDown();
+    assertTrue(done.await(10, TimeUnit.SECONDS));
+    assertEquals(List.of("open1", "closed4"), this.executed);
+    assertEquals(2, never.getCount());
+  }
+
+  @Test
+  @DisplayName("Calls return the result of admitted queries and fail if rejected")
+  void testCall() throws InterruptedException {
+    final QueryAdmissionController controller = new QueryAdmissionController("test", 1, 1, 1);
+    assertEquals("result", controller.call("a", 1, () -> "result"));
+    assertThrows(IllegalStateException.class, () -> controller.call("a", 1, () -> {
+      throw new IllegalStateException();
+    }));
+
+    final CountDownLatch release = block(controller, "blocker");
+    assertTrue(controller.submit("queued", 1, () -> {
+    }));
+    final QueryRejectedException rejected = assertThrows(QueryRejectedException.class, () -> controller.call("a", 1, () -> "result"));
+    assertEquals(QueryAdmissionController.BUSY, rejected.getMessage());
+    release.countDown();
+  }
+}
@@ -0,0 +1,25 @@
+package org.vitrivr.cineast.api.websocket.handlers.queries;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.List;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.vitrivr.cineast.api.messages.interfaces.MessageType;
+import org.vitrivr.cineast.api.messages.query.SegmentQuery;
+import org.vitrivr.cineast.api.messages.result.QueryError;
+import org.vitrivr.cineast.api.util.QueryAdmissionController;
+import org.vitrivr.cineast.core.config.QueryConfig;
+
+public class AbstractQueryMessageHandlerTest {
+
+  @Test
+  @DisplayName("Rejected queries are answered with a busy error for their query id")
+  void testRejection() {
+    final QueryConfig config = new QueryConfig(null);
+    final QueryError error = AbstractQueryMessageHandler.rejection(new SegmentQuery("v_1_1", List.of(), config, MessageType.Q_SEG));
+    assertEquals(config.getQueryId(), error.queryId());
+    assertEquals(QueryAdmissionController.BUSY, error.message());
+    assertEquals(MessageType.QR_ERROR, error.messageType());
+  }
+}
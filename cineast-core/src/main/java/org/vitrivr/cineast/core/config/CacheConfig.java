@@ -29,6 +29,25 @@ public final class CacheConfig {
    */
   private long queryCacheDuration = 600;
 
+  private boolean enableRetrieverCaching = false;
+  /**
+   * maximum number of score elements to cache across the results of all retrievers
+   */
+  private int retrieverCacheSize = 1_000_000;
+
+  /**
+   * approximate maximum heap size in bytes of the cached segment descriptors
+   */
+  private long segmentDescriptorCacheSize = 128L << 20;
+  /**
+   * approximate maximum heap size in bytes of the cached object descriptors
+   */
+  private long objectDescriptorCacheSize = 32L << 20;
+  /**
+   * maximum duration in seconds for which to cache a descriptor, since other processes may change it
+   */
+  private long descriptorCacheDuration = 600;
+
   public CacheConfig() {
   }
 
@@ -181,6 +200,63 @@ public void setQueryCacheDuration(long queryCacheDuration) {
     }
   }
 
+  public boolean isEnableRetrieverCaching() {
+    return enableRetrieverCaching;
+  }
+
+  public void setEnableRetrieverCaching(boolean enableRetrieverCaching) {
+    this.enableRetrieverCaching = enableRetrieverCaching;
+  }
+
+  public int getRetrieverCacheSize() {
+    return retrieverCacheSize;
+  }
+
+  /**
+   * negative value will disable cache
+   */
+  public void setRetrieverCacheSize(int retrieverCacheSize) {
+    if (retrieverCacheSize < 0) {
+      this.retrieverCacheSize = 0;
+      this.enableRetrieverCaching = false;
+    } else {
+      this.retrieverCacheSize = retrieverCacheSize;
+    }
+  }
+
+  public long getSegmentDescriptorCacheSize() {
+    return segmentDescriptorCacheSize;
+  }
+
+  /**
+   * negative value will disable cache
+   */
+  public void setSegmentDescriptorCacheSize(long segmentDescriptorCacheSize) {
+    this.segmentDescriptorCacheSize = Math.max(0, segmentDescriptorCacheSize);
+  }
+
+  public long getObjectDescriptorCacheSize() {
+    return objectDescriptorCacheSize;
+  }
+
+  /**
+   * negative value will disable cache
+   */
+  public void setObjectDescriptorCacheSize(long objectDescriptorCacheSize) {
+    this.objectDescriptorCacheSize = Math.max(0, objectDescriptorCacheSize);
+  }
+
+  public long getDescriptorCacheDuration() {
+    return descriptorCacheDuration;
+  }
+
+  /**
+   * negative value will disable cache
+   */
+  public void setDescriptorCacheDuration(long descriptorCacheDuration) {
+    this.descriptorCacheDuration = Math.max(0, descriptorCacheDuration);
+  }
+
   @Override
   public String toString() {
     return "\"cache\" : { \"cachePolicy\" : \"" + this.cachingPolicy.toString() + ", \"cacheLocation\" : \"" + this.cacheLocation.toString() + "\" }";
@@ -6,6 +6,8 @@
 import org.vitrivr.cineast.core.db.DBSelectorSupplier;
 import org.vitrivr.cineast.core.db.DataSource;
 import org.vitrivr.cineast.core.db.PersistencyWriterSupplier;
+import org.vitrivr.cineast.core.db.TracingDBSelector;
+import org.vitrivr.cineast.core.db.TracingPersistencyWriter;
 import org.vitrivr.cineast.core.db.setup.EntityCreator;
 
 public final class DatabaseConfig {
@@ -27,6 +29,21 @@ public final class DatabaseConfig {
   private Integer batchsize = DEFAULT_BATCH_SIZE;
   private boolean useTransactions = true;
 
+  /**
+   * Configuration of the HNSW indexes used by local storage engines; null to answer nearest neighbour queries by full scans.
+   */
+  private HnswConfig hnsw = null;
+
+  /**
+   * Configuration of the quantized vectors used by local storage engines if no HNSW indexes are configured; null to answer nearest neighbour queries by full scans.
+   */
+  private QuantizationConfig quantization = null;
+
+  /**
+   * Directory of the state shared between Cineast processes, e.g. the rows written per entity since its last optimization; null to keep such state in memory only.
+   */
+  private String stateDirectory = null;
+
   @JsonCreator
   public DatabaseConfig() {
   }
@@ -91,16 +108,22 @@ public void setSelector(DataSource selector) {
     this.selector = selector;
   }
 
+  /**
+   * The writers are decorated by a {@link TracingPersistencyWriter}, which records nothing unless tracing is enabled.
+   */
   public PersistencyWriterSupplier getWriterSupplier() {
-    return this.writer.getWriterSupplier(this);
+    return TracingPersistencyWriter.wrap(this.writer.getWriterSupplier(this));
   }
 
   public Supplier<EntityCreator> getEntityCreatorSupplier() {
     return this.writer.getEntityCreatorSupplier(this);
   }
 
+  /**
+   * The selectors are decorated by a {@link TracingDBSelector}, which records nothing unless tracing is enabled.
+   */
   public DBSelectorSupplier getSelectorSupplier() {
-    return this.selector.getSelectorSupplier(this);
+    return TracingDBSelector.wrap(this.selector.getSelectorSupplier(this));
   }
 
   @JsonProperty
@@ -111,4 +134,31 @@ public boolean getUseTransactions() {
   public void setUseTransactions(boolean useTransactions) {
     this.useTransactions = useTransactions;
   }
+
+  @JsonProperty
+  public HnswConfig getHnsw() {
+    return this.hnsw;
+  }
+
+  public void setHnsw(HnswConfig hnsw) {
+    this.hnsw = hnsw;
+  }
+
+  @JsonProperty
+  public QuantizationConfig getQuantization() {
+    return this.quantization;
+  }
+
+  public void setQuantization(QuantizationConfig quantization) {
+    this.quantization = quantization;
+  }
+
+  @JsonProperty
+  public String getStateDirectory() {
+    return this.stateDirectory;
+  }
+
+  public void setStateDirectory(String stateDirectory) {
+    this.stateDirectory = stateDirectory;
+  }
 }
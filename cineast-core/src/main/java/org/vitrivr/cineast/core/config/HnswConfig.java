@@ -0,0 +1,92 @@
+package org.vitrivr.cineast.core.config;
+
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import org.vitrivr.cineast.core.util.knn.HnswIndex;
+
+/**
+ * Configuration of the {@link HnswIndex}es that local storage engines (e.g. the JSON selector) use to answer nearest neighbour queries on vector columns. The indexes are only used if this configuration is present in the {@link DatabaseConfig}.
+ */
+public final class HnswConfig {
+
+  public static final int DEFAULT_M = 16;
+  public static final int DEFAULT_EF_CONSTRUCTION = 200;
+  public static final int DEFAULT_EF_SEARCH = 128;
+
+  /**
+   * Maximum number of connections per node and layer; twice as many are kept on the lowest layer.
+   */
+  private int m = DEFAULT_M;
+
+  /**
+   * Size of the candidate list while inserting.
+   */
+  private int efConstruction = DEFAULT_EF_CONSTRUCTION;
+
+  /**
+   * Size of the candidate list while searching; trades recall for latency.
+   */
+  private int efSearch = DEFAULT_EF_SEARCH;
+
+  /**
+   * Number of threads inserting vectors while an index is built.
+   */
+  private int buildThreads = Runtime.getRuntime().availableProcessors();
+
+  /**
+   * Directory the indexes are persisted in; if null, indexes are persisted next to the data they index.
+   */
+  private String directory = null;
+
+  @JsonCreator
+  public HnswConfig() {
+  }
+
+  @JsonProperty
+  public int getM() {
+    return this.m;
+  }
+
+  public void setM(int m) {
+    if (m < 2) {
+      throw new IllegalArgumentException("m must be at least 2.");
+    }
+    this.m = m;
+  }
+
+  @JsonProperty
+  public int getEfConstruction() {
+    return this.efConstruction;
+  }
+
+  public void setEfConstruction(int efConstruction) {
+    this.efConstruction = Math.max(1, efConstruction);
+  }
+
+  @JsonProperty
+  public int getEfSearch() {
+    return this.efSearch;
+  }
+
+  public void setEfSearch(int efSearch) {
+    this.efSearch = Math.max(1, efSearch);
+  }
+
+  @JsonProperty
+  public int getBuildThreads() {
+    return this.buildThreads;
+  }
+
+  public void setBuildThreads(int buildThreads) {
+    this.buildThreads = Math.max(1, buildThreads);
+  }
+
+  @JsonProperty
+  public String getDirectory() {
+    return this.directory;
+  }
+
+  public void setDirectory(String directory) {
+    this.directory = directory;
+  }
+}
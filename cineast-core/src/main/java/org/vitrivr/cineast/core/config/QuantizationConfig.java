@@ -0,0 +1,94 @@
+package org.vitrivr.cineast.core.config;
+
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import org.vitrivr.cineast.core.util.knn.QuantizedVectors;
+import org.vitrivr.cineast.core.util.knn.QuantizedVectors.Quantization;
+
+/**
+ * Configuration of the {@link QuantizedVectors} that local storage engines (e.g. the JSON selector) use to answer nearest neighbour queries on vector columns by scanning compact codes and re-ranking the best candidates. The quantized vectors are only used if this configuration is present in the {@link DatabaseConfig} and no {@link HnswConfig} is.
+ */
+public final class QuantizationConfig {
+
+  public static final int DEFAULT_SUBSPACE_DIMENSIONS = 8;
+  public static final int DEFAULT_SCALAR_RERANK = 4;
+  public static final int DEFAULT_PRODUCT_RERANK = 32;
+  public static final int DEFAULT_TRAINING_SAMPLES = 1 << 15;
+
+  /**
+   * The {@link Quantization} applied to the vectors.
+   */
+  private Quantization type = Quantization.SCALAR;
+
+  /**
+   * Number of dimensions per subspace of a product quantization; every subspace is encoded in one byte.
+   */
+  private int subspaceDimensions = DEFAULT_SUBSPACE_DIMENSIONS;
+
+  /**
+   * Number of candidates re-ranked by their exact distance per requested neighbour; if null, a default suitable for the {@link Quantization} is used, as product quantization is much coarser than scalar quantization.
+   */
+  private Integer rerank = null;
+
+  /**
+   * Maximum number of vectors the quantizer is trained on.
+   */
+  private int trainingSamples = DEFAULT_TRAINING_SAMPLES;
+
+  /**
+   * Directory the quantized vectors are persisted in; if null, they are persisted next to the data they were derived from.
+   */
+  private String directory = null;
+
+  @JsonCreator
+  public QuantizationConfig() {
+  }
+
+  @JsonProperty
+  public Quantization getType() {
+    return this.type;
+  }
+
+  public void setType(Quantization type) {
+    this.type = type == null ? Quantization.SCALAR : type;
+  }
+
+  @JsonProperty
+  public int getSubspaceDimensions() {
+    return this.subspaceDimensions;
+  }
+
+  public void setSubspaceDimensions(int subspaceDimensions) {
+    this.subspaceDimensions = Math.max(1, subspaceDimensions);
+  }
+
+  @JsonProperty
+  public int getRerank() {
+    if (this.rerank == null) {
+      return this.type == Quantization.PRODUCT ? DEFAULT_PRODUCT_RERANK : DEFAULT_SCALAR_RERANK;
+    }
+    return this.rerank;
+  }
+
+  public void setRerank(Integer rerank) {
+    this.rerank = rerank == null ? null : Math.max(1, rerank);
+  }
+
+  @JsonProperty
+  public int getTrainingSamples() {
+    return this.trainingSamples;
+  }
+
+  public void setTrainingSamples(int trainingSamples) {
+    this.trainingSamples = Math.max(256, trainingSamples);
+  }
+
+  @JsonProperty
+  public String getDirectory() {
+    return this.directory;
+  }
+
+  public void setDirectory(String directory) {
+    this.directory = directory;
+  }
+}
@@ -78,6 +78,23 @@ public QueryConfig setMaxResults(int max) {
     return this;
   }
 
+  /**
+   * Sets the time budget of the query, starting now. Retrievers that are still running when it expires are cancelled and the results of the others are returned.
+   *
+   * @param millis Time budget in milliseconds; values of zero or below remove the deadline.
+   */
+  public QueryConfig setTimeout(long millis) {
+    this.deadline = millis > 0 ? QueryDeadline.in(millis) : null;
+    return this;
+  }
+
+  public QueryConfig setTimeoutIfEmpty(long millis) {
+    if (this.deadline == null) {
+      return setTimeout(millis);
+    }
+    return this;
+  }
+
   public QueryConfig setNormIfEmpty(float norm) {
     if (Float.isNaN(this.norm)) {
       return setNorm(norm);
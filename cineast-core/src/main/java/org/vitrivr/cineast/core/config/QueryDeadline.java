@@ -0,0 +1,64 @@
+package org.vitrivr.cineast.core.config;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Point in time by which a query should be answered. All copies of the {@link ReadableQueryConfig} of a query share its {@link QueryDeadline}, such that retrievers can check it while they execute and whoever holds the config can tell whether the results of the query are partial.
+ */
+public final class QueryDeadline {
+
+  /**
+   * The deadline in terms of {@link System#nanoTime()}.
+   */
+  private final long deadline;
+
+  private volatile boolean exceeded = false;
+
+  private QueryDeadline(long deadline) {
+    this.deadline = deadline;
+  }
+
+  /**
+   * Creates a {@link QueryDeadline} that expires after the given number of milliseconds from now.
+   */
+  public static QueryDeadline in(long millis) {
+    return new QueryDeadline(System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(Math.max(0, millis)));
+  }
+
+  public boolean isExpired() {
+    return System.nanoTime() - this.deadline >= 0;
+  }
+
+  /**
+   * Returns the time left until the deadline expires, which is zero if it has already expired.
+   */
+  public long remaining(TimeUnit unit) {
+    return unit.convert(Math.max(0L, this.deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+  }
+
+  /**
+   * Aborts the calling retriever if the deadline has expired.
+   *
+   * @throws QueryDeadlineExceededException If the deadline has expired.
+   */
+  public void check() {
+    if (this.isExpired()) {
+      this.exceeded = true;
+      throw new QueryDeadlineExceededException();
+    }
+  }
+
+  /**
+   * Records that some part of the query was not evaluated because the deadline expired.
+   */
+  public void markExceeded() {
+    this.exceeded = true;
+  }
+
+  /**
+   * Returns true if some part of the query was not evaluated because the deadline expired, i.e., if its results are partial.
+   */
+  public boolean isExceeded() {
+    return this.exceeded;
+  }
+}
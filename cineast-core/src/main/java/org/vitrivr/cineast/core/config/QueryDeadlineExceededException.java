@@ -0,0 +1,16 @@
+package org.vitrivr.cineast.core.config;
+
+import java.io.Serial;
+
+/**
+ * Thrown by retrievers that abort their evaluation because the {@link QueryDeadline} of the query expired.
+ */
+public class QueryDeadlineExceededException extends RuntimeException {
+
+  @Serial
+  private static final long serialVersionUID = -2268465406640811147L;
+
+  public QueryDeadlineExceededException() {
+    super("The deadline of the query expired.");
+  }
+}
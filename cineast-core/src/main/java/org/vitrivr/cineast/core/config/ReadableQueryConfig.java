@@ -1,6 +1,7 @@
 package org.vitrivr.cineast.core.config;
 
 import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.annotation.JsonProperty;
 import java.util.Arrays;
 import java.util.Collections;
@@ -26,6 +27,7 @@ public class ReadableQueryConfig {
   protected CorrespondenceFunction correspondence = null;
   protected int resultsPerModule = -1;
   protected Optional<Integer> maxResults = Optional.empty();
+  protected QueryDeadline deadline = null;
 
   /**
    * Constructor used to parse a {@link ReadableQueryConfig} from JSON.
@@ -72,6 +74,7 @@ protected ReadableQueryConfig(ReadableQueryConfig qc, String queryId) {
     this.correspondence = qc.correspondence;
     this.resultsPerModule = qc.resultsPerModule;
     this.maxResults = qc.maxResults;
+    this.deadline = qc.deadline;
     this.hints.addAll(qc.hints);
     this.relevantSegmentIds.addAll(qc.relevantSegmentIds);
   }
@@ -114,6 +117,25 @@ public Optional<float[]> getDistanceWeights() {
     return Optional.ofNullable(this.distanceWeights);
   }
 
+  /**
+   * The deadline of the query, which is shared by all copies of this config. Not considered by {@link #equals(Object)}, as it does not change the results of a query that completes in time.
+   */
+  @JsonIgnore
+  public Optional<QueryDeadline> getDeadline() {
+    return Optional.ofNullable(this.deadline);
+  }
+
+  /**
+   * Aborts the calling retriever if the deadline of the query has expired; retrievers that evaluate a query in several steps should call it between steps.
+   *
+   * @throws QueryDeadlineExceededException If the deadline has expired.
+   */
+  public void checkDeadline() {
+    if (this.deadline != null) {
+      this.deadline.check();
+    }
+  }
+
   public Set<Hints> getHints() {
     return this.hints;
   }
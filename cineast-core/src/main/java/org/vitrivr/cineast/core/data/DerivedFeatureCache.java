@@ -0,0 +1,60 @@
+package org.vitrivr.cineast.core.data;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+import org.vitrivr.cineast.core.data.providers.DerivedFeatureProvider;
+
+/**
+ * Thread-safe cache of the intermediate results calculated for a single segment, see {@link DerivedFeatureProvider}. Every result is calculated at most once, even if it is requested by multiple threads at the same time; other threads wait for the calculation to finish. Results may themselves be calculated from other cached results of the same segment.
+ */
+public final class DerivedFeatureCache {
+
+  /**
+   * The results that have been calculated or are being calculated.
+   */
+  private final ConcurrentHashMap<Object, CompletableFuture<Object>> results = new ConcurrentHashMap<>();
+
+  /**
+   * Returns the result identified by the given key, calculating it using the supplier if necessary. If the calculation fails, the exception is thrown to all callers waiting for it and the result is calculated again upon the next request.
+   *
+   * @param key      Key identifying the result.
+   * @param supplier Calculates the result.
+   * @return The result.
+   */
+  @SuppressWarnings("unchecked")
+  public <T> T get(Object key, Supplier<T> supplier) {
+    CompletableFuture<Object> future = this.results.get(key);
+    if (future == null) {
+      final CompletableFuture<Object> created = new CompletableFuture<>();
+      future = this.results.putIfAbsent(key, created);
+      if (future == null) {
+        try {
+          final T result = supplier.get();
+          created.complete(result);
+          return result;
+        } catch (RuntimeException | Error e) {
+          this.results.remove(key, created);
+          created.completeExceptionally(e);
+          throw e;
+        }
+      }
+    }
+    try {
+      return (T) future.join();
+    } catch (CompletionException e) {
+      if (e.getCause() instanceof RuntimeException) {
+        throw (RuntimeException) e.getCause();
+      }
+      throw e;
+    }
+  }
+
+  /**
+   * Removes all results from this cache.
+   */
+  public void clear() {
+    this.results.clear();
+  }
+}
@@ -0,0 +1,30 @@
+package org.vitrivr.cineast.core.data;
+
+import com.google.common.hash.HashCode;
+import org.vitrivr.cineast.core.config.CacheableQueryConfig;
+import org.vitrivr.cineast.core.config.ReadableQueryConfig;
+import org.vitrivr.cineast.core.data.query.containers.AbstractQueryTermContainer;
+
+/**
+ * A container to serve as a key for caching the results of a single retriever, as opposed to the fused results of a {@link QueryResultCacheKey}
+ * <p>
+ * A query term container is identified by its {@link AbstractQueryTermContainer#getFingerprint()}, such that cached keys do not retain decoded images, audio or meshes.
+ */
+public record RetrieverResultCacheKey(String retrieverSpecification, HashCode queryTermContainerFingerprint, String querySegmentId, CacheableQueryConfig queryConfig) {
+
+  /**
+   * @param retrieverSpecification Identifies the retriever class along with its configuration.
+   */
+  public RetrieverResultCacheKey(String retrieverSpecification, String querySegmentId, ReadableQueryConfig queryConfig) {
+    this(retrieverSpecification, null, querySegmentId, new CacheableQueryConfig(queryConfig));
+  }
+
+  /**
+   * @param retrieverSpecification Identifies the retriever class along with its configuration.
+   * @return The key or null, if the container has no fingerprint and its results can hence not be cached.
+   */
+  public static RetrieverResultCacheKey of(String retrieverSpecification, AbstractQueryTermContainer queryTermContainer, ReadableQueryConfig queryConfig) {
+    return queryTermContainer.getFingerprint().map(fingerprint -> new RetrieverResultCacheKey(retrieverSpecification, fingerprint, null, new CacheableQueryConfig(queryConfig))).orElse(null);
+  }
+
+}
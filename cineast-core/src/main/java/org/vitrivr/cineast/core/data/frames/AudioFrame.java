@@ -3,6 +3,7 @@
 
 import java.nio.ByteBuffer;
 import java.nio.ByteOrder;
+import java.util.Arrays;
 import java.util.Objects;
 import javax.sound.sampled.AudioFormat;
 
@@ -10,6 +11,8 @@
  * Represents a single audio-frame containing a specific number of samples (the number depends on the decoder that created the AudioFrame). Sample data is stored in a byte array and internally represented as 16bit int PCM i.e. each sample is represented by a signed 16bit short between -32767 and 32767.
  * <p>
  * The AudioFrame class supports different sample-rates and an arbitrary number of samples and is compatible with the Java Audio API.
+ * <p>
+ * An AudioFrame may be a view over a range of a larger, shared byte array (see {@link #split(int)}). Appending to an AudioFrame that owns its buffer grows that buffer geometrically, so that repeated calls to {@link #append(AudioFrame)} are amortized linear in the total number of bytes.
  */
 public class AudioFrame {
 
@@ -44,10 +47,30 @@ public class AudioFrame {
   private int numberOfSamples;
 
   /**
-   * ByteBuffer holding the raw 16bit int data.
+   * ByteBuffer holding the raw 16bit int data. This is a view over the range [offset, offset + length) of the backing array.
    */
   private ByteBuffer data;
 
+  /**
+   * Backing array holding the raw 16bit int data. May be shared with other {@link AudioFrame}s and may be larger than the range used by this frame.
+   */
+  private byte[] buffer;
+
+  /**
+   * Offset of the first byte of this {@link AudioFrame} in the backing array.
+   */
+  private int offset;
+
+  /**
+   * Number of bytes of the backing array used by this {@link AudioFrame}.
+   */
+  private int length;
+
+  /**
+   * Flag indicating whether this {@link AudioFrame} is the sole writer of the backing array beyond its own range. Only then may {@link #append(AudioFrame, int)} write into the spare capacity in place.
+   */
+  private boolean ownsBuffer;
+
   /**
    * Default constructor.
    *
@@ -60,11 +83,28 @@ public AudioFrame(long idx, long timestamp, byte[] data, AudioDescriptor descrip
     this.idx = idx;
     this.descriptor = descriptor;
     this.timestamp = timestamp;
-    this.setData(data);
+    this.setData(data, 0, data.length, false);
+  }
+
+  /**
+   * Constructor for a view over a range of an existing byte array. The byte array is shared and not copied.
+   *
+   * @param idx        Index of the first sample (pair) in the AudioFrame.
+   * @param timestamp  Index of the first sample.
+   * @param data       Byte array containing 16bit signed PCM data.
+   * @param offset     Offset of the first byte in the byte array.
+   * @param length     Number of bytes that belong to this AudioFrame.
+   * @param descriptor AudioDescriptor for the stream this frame stems from.
+   */
+  private AudioFrame(long idx, long timestamp, byte[] data, int offset, int length, AudioDescriptor descriptor) {
+    this.idx = idx;
+    this.descriptor = descriptor;
+    this.timestamp = timestamp;
+    this.setData(data, offset, length, false);
   }
 
   public AudioFrame(AudioFrame other) {
-    this(other.idx, other.timestamp, other.data.array(), new AudioDescriptor(other.descriptor.getSamplingrate(), other.descriptor.getChannels(), other.descriptor.getDuration()));
+    this(other.idx, other.timestamp, other.buffer, other.offset, other.length, new AudioDescriptor(other.descriptor.getSamplingrate(), other.descriptor.getChannels(), other.descriptor.getDuration()));
   }
 
   /**
@@ -100,7 +140,7 @@ public long getTimestamp() {
    * @return Size of {@link AudioFrame} in bytes.
    */
   public final int size() {
-    return this.data.array().length;
+    return this.length;
   }
 
   /**
@@ -122,22 +162,32 @@ public final long getIdx() {
   }
 
   /**
-   * Getter for the raw byte array.
+   * Getter for the raw byte array. If this {@link AudioFrame} is a view over a larger buffer, the relevant range is copied.
    *
    * @return Byte array containing the frames data of this AudioFrame.
    */
   public final byte[] getData() {
-    return this.data.array();
+    if (this.offset == 0 && this.length == this.buffer.length) {
+      return this.buffer;
+    }
+    return Arrays.copyOfRange(this.buffer, this.offset, this.offset + this.length);
   }
 
   /**
    * Internal method to update the buffer holding the actual audio data.
    *
-   * @param data Byte array with the samples.
+   * @param data       Byte array with the samples.
+   * @param offset     Offset of the first byte that belongs to this {@link AudioFrame}.
+   * @param length     Number of bytes that belong to this {@link AudioFrame}.
+   * @param ownsBuffer True if this {@link AudioFrame} may write into the spare capacity of the byte array.
    */
-  private void setData(byte[] data) {
-    this.data = ByteBuffer.wrap(data).order(ByteOrder.LITTLE_ENDIAN);
-    this.numberOfSamples = data.length / (2 * this.descriptor.getChannels());
+  private void setData(byte[] data, int offset, int length, boolean ownsBuffer) {
+    this.buffer = data;
+    this.offset = offset;
+    this.length = length;
+    this.ownsBuffer = ownsBuffer;
+    this.data = ByteBuffer.wrap(data, offset, length).slice().order(ByteOrder.LITTLE_ENDIAN);
+    this.numberOfSamples = length / (2 * this.descriptor.getChannels());
   }
 
   /**
@@ -232,15 +282,59 @@ public final short getMeanSampleAsShort(int idx) {
    * @return Mean value of the sample at the specified index as float.
    */
   public final double getMeanSampleAsDouble(int idx) {
-    float meanSample = 0;
+    int meanSample = 0;
     for (int i = 0; i < this.descriptor.getChannels(); i++) {
       meanSample += this.getSampleAsShort(idx, i);
     }
-    return (meanSample / (this.descriptor.getChannels() * Short.MAX_VALUE));
+    return (meanSample / ((double) this.descriptor.getChannels() * Short.MAX_VALUE));
+  }
+
+  /**
+   * Down-mixes all samples of this {@link AudioFrame} (i.e. calculates the mean across all channels) and writes them as double values between -1.0 and 1.0 into the provided array. Reads directly from the backing array and does not allocate.
+   *
+   * @param out    Array to write the mean samples to. Must hold at least offset + {@link #numberOfSamples()} entries.
+   * @param offset Index in the array at which to write the first sample.
+   * @return Number of samples that were written.
+   */
+  public final int getMeanSamplesAsDouble(double[] out, int offset) {
+    final int channels = this.descriptor.getChannels();
+    final double norm = (double) channels * Short.MAX_VALUE;
+    int pos = this.offset;
+    for (int i = 0; i < this.numberOfSamples; i++) {
+      int sum = 0;
+      for (int c = 0; c < channels; c++, pos += 2) {
+        sum += (short) ((this.buffer[pos] & 0xFF) | (this.buffer[pos + 1] << 8));
+      }
+      out[offset + i] = sum / norm;
+    }
+    return this.numberOfSamples;
+  }
+
+  /**
+   * Down-mixes all samples of this {@link AudioFrame} (i.e. calculates the mean across all channels) and writes them as float values between -1.0 and 1.0 into the provided array. Reads directly from the backing array and does not allocate.
+   *
+   * @param out    Array to write the mean samples to. Must hold at least offset + {@link #numberOfSamples()} entries.
+   * @param offset Index in the array at which to write the first sample.
+   * @return Number of samples that were written.
+   */
+  public final int getMeanSamplesAsFloat(float[] out, int offset) {
+    final int channels = this.descriptor.getChannels();
+    final double norm = (double) channels * Short.MAX_VALUE;
+    int pos = this.offset;
+    for (int i = 0; i < this.numberOfSamples; i++) {
+      int sum = 0;
+      for (int c = 0; c < channels; c++, pos += 2) {
+        sum += (short) ((this.buffer[pos] & 0xFF) | (this.buffer[pos + 1] << 8));
+      }
+      out[offset + i] = (float) (sum / norm);
+    }
+    return this.numberOfSamples;
   }
 
   /**
    * Appends an AudioFrame to the current AudioFrame if the two frames have the same specs in terms of sampleRate and number of channels. The raw bytes of the other AudioFrame are appended to the byte-array of the current AudioFrame.
+   * <p>
+   * If this AudioFrame owns its backing array and that array has enough spare capacity, the bytes are written in place. Otherwise, a new backing array with geometrically increased capacity is allocated.
    *
    * @param that            The AudioFrame to append to the current frame.
    * @param numberOfSamples The number of samples to append. Must be smaller than the size of the other AudioFrame!
@@ -251,17 +345,21 @@ public boolean append(AudioFrame that, int numberOfSamples) {
       return false;
     }
     int bytes = that.descriptor.getChannels() * numberOfSamples * (BITS_PER_SAMPLE / 8);
-    if (bytes > that.data.capacity()) {
+    if (bytes > that.length) {
       return false;
     }
 
-    /* Copy data. */
-    byte[] data = new byte[this.data.capacity() + bytes];
-    System.arraycopy(this.data.array(), 0, data, 0, this.data.capacity());
-    System.arraycopy(that.data.array(), 0, data, this.data.capacity(), bytes);
-
-    /* Update local ByteBuffer reference. */
-    this.setData(data);
+    /* Write in place if possible; otherwise grow (and compact) the backing array. */
+    final int required = this.length + bytes;
+    if (this.ownsBuffer && this.offset + required <= this.buffer.length) {
+      System.arraycopy(that.buffer, that.offset, this.buffer, this.offset + this.length, bytes);
+      this.setData(this.buffer, this.offset, required, true);
+    } else {
+      byte[] data = new byte[Math.max(required, 2 * this.length)];
+      System.arraycopy(this.buffer, this.offset, data, 0, this.length);
+      System.arraycopy(that.buffer, that.offset, data, this.length, bytes);
+      this.setData(data, 0, required, true);
+    }
     return true;
   }
 
@@ -275,6 +373,12 @@ public boolean append(AudioFrame that) {
     return this.append(that, that.numberOfSamples);
   }
 
+  /**
+   * Splits the first numberOfSamples samples off this {@link AudioFrame}. The returned {@link AudioFrame} is a read-only view over the head of the backing array and this {@link AudioFrame} is advanced to the remaining samples. No data is copied.
+   *
+   * @param numberOfSamples The number of samples to split off.
+   * @return {@link AudioFrame} holding the first numberOfSamples samples or this {@link AudioFrame}, if it holds fewer samples.
+   */
   public AudioFrame split(int numberOfSamples) {
 
     if (numberOfSamples > this.numberOfSamples) {
@@ -282,15 +386,11 @@ public AudioFrame split(int numberOfSamples) {
     }
 
     int bytesToCut = this.descriptor.getChannels() * numberOfSamples * (BITS_PER_SAMPLE / 8);
-    byte[] cutBytes = new byte[bytesToCut];
-    byte[] remaining = new byte[this.data.capacity() - bytesToCut];
-
-    System.arraycopy(this.data.array(), 0, cutBytes, 0, bytesToCut);
-    System.arraycopy(this.data.array(), bytesToCut, remaining, 0, remaining.length);
+    AudioFrame cut = new AudioFrame(idx, timestamp, this.buffer, this.offset, bytesToCut, new AudioDescriptor(descriptor.getSamplingrate(), descriptor.getChannels(), (long) (numberOfSamples / descriptor.getSamplingrate())));
 
-    setData(remaining);
+    setData(this.buffer, this.offset + bytesToCut, this.length - bytesToCut, this.ownsBuffer);
 
-    return new AudioFrame(idx, timestamp, cutBytes, new AudioDescriptor(descriptor.getSamplingrate(), descriptor.getChannels(), (long) (numberOfSamples / descriptor.getSamplingrate())));
+    return cut;
   }
 
   @Override
@@ -1,11 +1,11 @@
 package org.vitrivr.cineast.core.data.m3d;
 
 import java.awt.Color;
-import java.util.ArrayList;
+import java.util.AbstractList;
 import java.util.Arrays;
-import java.util.Collections;
 import java.util.List;
 import java.util.Objects;
+import java.util.RandomAccess;
 import org.apache.commons.math3.util.FastMath;
 import org.joml.Matrix4f;
 import org.joml.Vector3f;
@@ -21,14 +21,47 @@ public class Mesh implements WritableMesh {
    * The default, empty mesh.
    */
   public static final Mesh EMPTY = new Mesh(1, 1);
+
+  /**
+   * Default color of a vertex.
+   */
+  private static final float DEFAULT_COLOR = 1.0f;
+
+  /**
+   * Vertex positions stored as consecutive x, y, z triples.
+   */
+  private float[] positions;
+
+  /**
+   * Vertex colors stored as consecutive r, g, b triples.
+   */
+  private float[] colors;
+
+  /**
+   * Vertex normals stored as consecutive x, y, z triples. Normals of vertices that participate in a face are derived lazily from the face normals (see {@link #rebuildNormals()}).
+   */
+  private float[] normals;
+
   /**
-   * List of vertices in the Mesh.
+   * Vertex indices of the faces stored as consecutive quadruples. The fourth index of a triangular face is -1.
    */
-  private final List<Vertex> vertices;
+  private int[] faces;
+
   /**
-   * List of faces in the mesh.
+   * Number of vertices in the Mesh.
    */
-  private final List<Face> faces;
+  private int vertexCount;
+
+  /**
+   * Number of faces in the Mesh.
+   */
+  private int faceCount;
+
+  /**
+   * Number of faces each vertex participates in. Calculated together with the vertex normals and null while these are outdated.
+   */
+  private int[] vertexFaces;
+
   /**
    * The position of the Mesh's barycenter. Its value is lazily calculated during invocation of the @see barycenter() method.
    */
@@ -49,16 +82,28 @@ public class Mesh implements WritableMesh {
    */
   public Mesh(ReadableMesh mesh) {
     this(mesh.numberOfFaces(), mesh.numberOfVertices());
+    if (mesh instanceof Mesh other) {
+      synchronized (other) {
+        other.rebuildNormals();
+        this.vertexCount = other.vertexCount;
+        this.faceCount = other.faceCount;
+        this.positions = Arrays.copyOf(other.positions, Math.max(this.positions.length, 3 * other.vertexCount));
+        this.colors = Arrays.copyOf(other.colors, this.positions.length);
+        this.normals = Arrays.copyOf(other.normals, this.positions.length);
+        this.faces = Arrays.copyOf(other.faces, Math.max(this.faces.length, 4 * other.faceCount));
+      }
+      return;
+    }
 
     for (Vertex vertex : mesh.getVertices()) {
-      this.addVertex(new Vector3f(vertex.position), new Vector3f(vertex.color), new Vector3f(vertex.normal));
+      this.addVertex(new Vector3f(vertex.getPosition()), new Vector3f(vertex.getColor()), new Vector3f(vertex.getNormal()));
     }
 
     for (Face face : mesh.getFaces()) {
       if (face.getType() == FaceType.QUAD) {
-        this.addFace(new Vector4i(face.vertexIndices[0], face.vertexIndices[1], face.vertexIndices[2], face.vertexIndices[3]));
+        this.addFace(face.getIndex(0), face.getIndex(1), face.getIndex(2), face.getIndex(3));
       } else {
-        this.addFace(new Vector4i(face.vertexIndices[0], face.vertexIndices[1], face.vertexIndices[2], -1));
+        this.addFace(face.getIndex(0), face.getIndex(1), face.getIndex(2), -1);
       }
     }
   }
@@ -70,15 +115,17 @@ public Mesh(ReadableMesh mesh) {
    * @param vertices Expected number of vertices (not a fixed limit).
    */
   public Mesh(int faces, int vertices) {
-    this.faces = new ArrayList<>(faces);
-    this.vertices = new ArrayList<>(vertices);
+    this.faces = new int[4 * Math.max(faces, 1)];
+    this.positions = new float[3 * Math.max(vertices, 1)];
+    this.colors = new float[this.positions.length];
+    this.normals = new float[this.positions.length];
   }
 
   /**
    * Adds an vector defining a vertex to the Mesh.
    */
   public synchronized void addVertex(Vector3f vertex) {
-    this.addVertex(vertex, new Vector3f(1.0f, 1.0f, 1.0f));
+    this.addVertex(vertex.x, vertex.y, vertex.z);
   }
 
   /**
@@ -92,7 +139,33 @@ public synchronized void addVertex(Vector3f vertex, Vector3f color) {
    * Adds an vector defining a vertex to the Mesh.
    */
   public synchronized void addVertex(Vector3f vertex, Vector3f color, Vector3f normal) {
-    this.vertices.add(new Vertex(vertex, color, normal));
+    final int offset = this.appendVertex();
+    this.positions[offset] = vertex.x;
+    this.positions[offset + 1] = vertex.y;
+    this.positions[offset + 2] = vertex.z;
+    this.colors[offset] = color.x;
+    this.colors[offset + 1] = color.y;
+    this.colors[offset + 2] = color.z;
+    this.normals[offset] = normal.x;
+    this.normals[offset + 1] = normal.y;
+    this.normals[offset + 2] = normal.z;
+  }
+
+  /**
+   * Adds a vertex with the default color to the Mesh without allocating any intermediate objects.
+   *
+   * @param x x-coordinate of the vertex.
+   * @param y y-coordinate of the vertex.
+   * @param z z-coordinate of the vertex.
+   */
+  public synchronized void addVertex(float x, float y, float z) {
+    final int offset = this.appendVertex();
+    this.positions[offset] = x;
+    this.positions[offset + 1] = y;
+    this.positions[offset + 2] = z;
+    this.colors[offset] = DEFAULT_COLOR;
+    this.colors[offset + 1] = DEFAULT_COLOR;
+    this.colors[offset + 2] = DEFAULT_COLOR;
   }
 
   /**
@@ -102,14 +175,7 @@ public synchronized void addVertex(Vector3f vertex, Vector3f color, Vector3f nor
    */
   @Override
   public synchronized boolean addFace(Vector3i vertices) {
-    int limit = this.vertices.size();
-    if (vertices.x < limit && vertices.y < limit && vertices.z < limit) {
-      Mesh.Face face = new Face(new Vector4i(vertices, -1));
-      this.faces.add(face);
-      return true;
-    } else {
-      return false;
-    }
+    return this.addFace(vertices.x, vertices.y, vertices.z, -1);
   }
 
   /**
@@ -119,14 +185,33 @@ public synchronized boolean addFace(Vector3i vertices) {
    */
   @Override
   public synchronized boolean addFace(Vector4i vertices) {
-    int limit = this.vertices.size();
-    if (vertices.x < limit && vertices.y < limit && vertices.z < limit && vertices.w < limit) {
-      Mesh.Face face = new Face(vertices);
-      this.faces.add(face);
-      return true;
-    } else {
+    return this.addFace(vertices.x, vertices.y, vertices.z, vertices.w);
+  }
+
+  /**
+   * Adds a new triangular or quadratic face to the Mesh without allocating any intermediate objects.
+   *
+   * @param v1 Index of the first vertex.
+   * @param v2 Index of the second vertex.
+   * @param v3 Index of the third vertex.
+   * @param v4 Index of the fourth vertex or -1, if the face is a triangle.
+   * @return True if face was added, false if one of the indices points to a non-existing vertex.
+   */
+  public synchronized boolean addFace(int v1, int v2, int v3, int v4) {
+    final int limit = this.vertexCount;
+    if (v1 < 0 || v1 >= limit || v2 < 0 || v2 >= limit || v3 < 0 || v3 >= limit || v4 >= limit) {
       return false;
     }
+    if (4 * (this.faceCount + 1) > this.faces.length) {
+      this.faces = Arrays.copyOf(this.faces, Math.max(4 * (this.faceCount + 1), 2 * this.faces.length));
+    }
+    final int offset = 4 * this.faceCount++;
+    this.faces[offset] = v1;
+    this.faces[offset + 1] = v2;
+    this.faces[offset + 2] = v3;
+    this.faces[offset + 3] = Math.max(v4, -1);
+    this.vertexFaces = null;
+    return true;
   }
 
   /**
@@ -137,7 +222,8 @@ public synchronized boolean addFace(Vector4i vertices) {
    */
   @Override
   public synchronized Vertex getVertex(int vertexIndex) {
-    return this.vertices.get(vertexIndex);
+    Objects.checkIndex(vertexIndex, this.vertexCount);
+    return new Vertex(vertexIndex);
   }
 
   /**
@@ -147,7 +233,7 @@ public synchronized Vertex getVertex(int vertexIndex) {
    */
   @Override
   public List<Vertex> getVertices() {
-    return Collections.unmodifiableList(this.vertices);
+    return new VertexList(this.vertexCount);
   }
 
   /**
@@ -157,7 +243,7 @@ public List<Vertex> getVertices() {
    */
   @Override
   public List<Face> getFaces() {
-    return Collections.unmodifiableList(faces);
+    return new FaceList(this.faceCount);
   }
 
   /**
@@ -167,7 +253,7 @@ public List<Face> getFaces() {
    */
   @Override
   public synchronized final int numberOfVertices() {
-    return this.vertices.size();
+    return this.vertexCount;
   }
 
   /**
@@ -177,7 +263,7 @@ public synchronized final int numberOfVertices() {
    */
   @Override
   public synchronized final int numberOfFaces() {
-    return this.faces.size();
+    return this.faceCount;
   }
 
   /**
@@ -187,7 +273,7 @@ public synchronized final int numberOfFaces() {
    */
   @Override
   public synchronized final boolean isEmpty() {
-    return this.faces.isEmpty();
+    return this.faceCount == 0;
   }
 
   /**
@@ -199,22 +285,46 @@ public synchronized final boolean isEmpty() {
   public synchronized final double surfaceArea() {
     if (this.surfaceArea == null) {
       this.surfaceArea = 0.0;
-      for (Face face : this.faces) {
-        this.surfaceArea += face.area();
+      for (int f = 0; f < this.faceCount; f++) {
+        this.surfaceArea += new Face(f).area();
       }
     }
     return this.surfaceArea;
   }
 
   /**
-   * Calculates and returns the Mesh's bounding-box
+   * Calculates and returns the Mesh's bounding-box. Only vertices that are part of a face are considered.
    *
    * @return Bounding-box of the mesh.
    */
   @Override
   public synchronized float[] bounds() {
     if (this.boundingbox == null) {
-      this.boundingbox = MeshMathUtil.bounds(this);
+      final float[] bounds = new float[6];
+      if (this.faceCount > 0) {
+        bounds[0] = -Float.MAX_VALUE;
+        bounds[1] = Float.MAX_VALUE;
+        bounds[2] = -Float.MAX_VALUE;
+        bounds[3] = Float.MAX_VALUE;
+        bounds[4] = -Float.MAX_VALUE;
+        bounds[5] = Float.MAX_VALUE;
+      }
+      for (int i = 0; i < 4 * this.faceCount; i++) {
+        if (this.faces[i] < 0) {
+          continue;
+        }
+        final int offset = 3 * this.faces[i];
+        for (int axis = 0; axis < 3; axis++) {
+          final float value = this.positions[offset + axis];
+          if (value > bounds[2 * axis]) {
+            bounds[2 * axis] = value;
+          }
+          if (value < bounds[2 * axis + 1]) {
+            bounds[2 * axis + 1] = value;
+          }
+        }
+      }
+      this.boundingbox = bounds;
     }
     return Arrays.copyOf(this.boundingbox, 6);
   }
@@ -240,9 +350,7 @@ public synchronized Vector3fc barycenter() {
   @Override
   public synchronized final void move(Vector3f translation) {
     Matrix4f translationMatrix = new Matrix4f().translation(translation);
-    for (Mesh.Vertex v : this.vertices) {
-      v.position.mulPosition(translationMatrix);
-    }
+    this.transformPositions(translationMatrix);
     if (this.barycenter != null) {
       this.barycenter.mulPosition(translationMatrix);
     }
@@ -255,10 +363,7 @@ public synchronized final void move(Vector3f translation) {
    */
   @Override
   public synchronized final void scale(float factor) {
-    Matrix4f scaling = new Matrix4f().scale(factor);
-    for (Mesh.Vertex v : this.vertices) {
-      v.position.mulPosition(scaling);
-    }
+    this.transformPositions(new Matrix4f().scale(factor));
 
     /* Reset surface-area and bounding box, which are not invariant under scaling. */
     this.surfaceArea = null;
@@ -275,9 +380,7 @@ public synchronized final void scale(float factor) {
    */
   @Override
   public synchronized final void transform(Matrix4f transformation) {
-    for (Mesh.Vertex v : this.vertices) {
-      v.position.mulPosition(transformation);
-    }
+    this.transformPositions(transformation);
 
     /* Reset surface-area and bounding box, which are not invariant under scaling. */
     this.surfaceArea = null;
@@ -293,10 +396,106 @@ public synchronized final void transform(Matrix4f transformation) {
    */
   @Override
   public synchronized void updateColor(int vertexIndex, Color color) {
-    Vertex vertex = this.vertices.get(vertexIndex);
-    vertex.color.x = color.getRed() / 255.0f;
-    vertex.color.y = color.getBlue() / 255.0f;
-    vertex.color.z = color.getGreen() / 255.0f;
+    Objects.checkIndex(vertexIndex, this.vertexCount);
+    this.colors[3 * vertexIndex] = color.getRed() / 255.0f;
+    this.colors[3 * vertexIndex + 1] = color.getBlue() / 255.0f;
+    this.colors[3 * vertexIndex + 2] = color.getGreen() / 255.0f;
+  }
+
+  /**
+   * Reserves space for a new vertex and returns the offset of its first component.
+   *
+   * @return Offset of the new vertex in the attribute arrays.
+   */
+  private int appendVertex() {
+    if (3 * (this.vertexCount + 1) > this.positions.length) {
+      final int capacity = Math.max(3 * (this.vertexCount + 1), 2 * this.positions.length);
+      this.positions = Arrays.copyOf(this.positions, capacity);
+      this.colors = Arrays.copyOf(this.colors, capacity);
+      this.normals = Arrays.copyOf(this.normals, capacity);
+    }
+    if (this.vertexFaces != null) {
+      this.vertexFaces = Arrays.copyOf(this.vertexFaces, this.vertexCount + 1);
+    }
+    return 3 * this.vertexCount++;
+  }
+
+  /**
+   * Applies the provided matrix to the position of every vertex. Like before the positions were stored in a flat array, the vertex normals are not transformed: they are derived from the faces as they were before the transformation.
+   *
+   * @param matrix The transformation matrix.
+   */
+  private void transformPositions(Matrix4f matrix) {
+    this.rebuildNormals();
+    final Vector3f position = new Vector3f();
+    for (int offset = 0; offset < 3 * this.vertexCount; offset += 3) {
+      position.set(this.positions[offset], this.positions[offset + 1], this.positions[offset + 2]).mulPosition(matrix);
+      this.positions[offset] = position.x;
+      this.positions[offset + 1] = position.y;
+      this.positions[offset + 2] = position.z;
+    }
+  }
+
+  /**
+   * Re-calculates the vertex-normals by calculating the mean of all face-normals each vertex participates in, if they are outdated. Vertices that are not part of any face retain the normal they were added with.
+   */
+  private synchronized void rebuildNormals() {
+    if (this.vertexFaces != null) {
+      return;
+    }
+
+    /* Count the faces every vertex participates in; a face is counted once per distinct vertex. */
+    final int[] counts = new int[this.vertexCount];
+    for (int f = 0; f < this.faceCount; f++) {
+      final int offset = 4 * f;
+      for (int i = 0; i < 4; i++) {
+        if (this.isDistinctCorner(offset, i)) {
+          counts[this.faces[offset + i]]++;
+        }
+      }
+    }
+
+    for (int v = 0; v < this.vertexCount; v++) {
+      if (counts[v] > 0) {
+        this.normals[3 * v] = 0.0f;
+        this.normals[3 * v + 1] = 0.0f;
+        this.normals[3 * v + 2] = 0.0f;
+      }
+    }
+
+    /* Accumulate the face normals in face order. */
+    for (int f = 0; f < this.faceCount; f++) {
+      final Vector3f fn = new Face(f).normal();
+      if (Float.isNaN(fn.x) || Float.isNaN(fn.y) || Float.isNaN(fn.z)) {
+        continue;
+      }
+      final int offset = 4 * f;
+      for (int i = 0; i < 4; i++) {
+        if (this.isDistinctCorner(offset, i)) {
+          final int v = this.faces[offset + i];
+          this.normals[3 * v] += fn.x / counts[v];
+          this.normals[3 * v + 1] += fn.y / counts[v];
+          this.normals[3 * v + 2] += fn.z / counts[v];
+        }
+      }
+    }
+    this.vertexFaces = counts;
+  }
+
+  /**
+   * Checks whether the i-th corner of the face at the given offset is a valid vertex that has not been listed by a previous corner of the same face.
+   */
+  private boolean isDistinctCorner(int offset, int i) {
+    final int v = this.faces[offset + i];
+    if (v < 0) {
+      return false;
+    }
+    for (int j = 0; j < i; j++) {
+      if (this.faces[offset + j] == v) {
+        return false;
+      }
+    }
+    return true;
   }
 
   /**
@@ -307,38 +506,17 @@ public enum FaceType {
   }
 
   /**
-   * A single vertex, which contains all the information about position, normal and color.
+   * A single vertex, which provides access to the information about position, normal and color. Vertices are lightweight views onto the Mesh's attribute arrays and are created on demand.
    */
   public class Vertex {
 
     /**
-     * Position of the vertex in 3D space.
-     */
-    private final Vector3f position;
-
-    /**
-     * The vertex-normal.
-     */
-    private final Vector3f normal;
-
-    /**
-     * Color of the vertex.
+     * Index of the vertex in the Mesh.
      */
-    private final Vector3f color;
+    private final int index;
 
-    /**
-     * List of faces the current vertex participates in.
-     */
-    private final List<Face> faces = new ArrayList<>(4);
-
-    public Vertex(Vector3f position) {
-      this(position, new Vector3f(0.0f, 0.0f, 0.0f), new Vector3f(0.0f, 0.0f, 0.0f));
-    }
-
-    public Vertex(Vector3f position, Vector3f color, Vector3f normal) {
-      this.position = position;
-      this.normal = normal;
-      this.color = color;
+    private Vertex(int index) {
+      this.index = index;
     }
 
     /**
@@ -347,17 +525,20 @@ public Vertex(Vector3f position, Vector3f color, Vector3f normal) {
      * @return Number of faces.
      */
     public int numberOfFaces() {
-      return this.faces.size();
+      synchronized (Mesh.this) {
+        Mesh.this.rebuildNormals();
+        return Mesh.this.vertexFaces[this.index];
+      }
     }
 
-
     /**
      * Getter to the position vector.
      *
      * @return Immutable version of the position vector.
      */
     public Vector3fc getPosition() {
-      return this.position;
+      final float[] positions = Mesh.this.positions;
+      return new Vector3f(positions[3 * this.index], positions[3 * this.index + 1], positions[3 * this.index + 2]);
     }
 
     /**
@@ -366,7 +547,11 @@ public Vector3fc getPosition() {
      * @return Immutable version of the vertex normal.
      */
     public Vector3fc getNormal() {
-      return this.normal;
+      synchronized (Mesh.this) {
+        Mesh.this.rebuildNormals();
+        final float[] normals = Mesh.this.normals;
+        return new Vector3f(normals[3 * this.index], normals[3 * this.index + 1], normals[3 * this.index + 2]);
+      }
     }
 
     /**
@@ -375,110 +560,46 @@ public Vector3fc getNormal() {
      * @return Immutable version of the vertex normal.
      */
     public Vector3fc getColor() {
-      return this.color;
+      final float[] colors = Mesh.this.colors;
+      return new Vector3f(colors[3 * this.index], colors[3 * this.index + 1], colors[3 * this.index + 2]);
     }
 
-    /**
-     * Attaches the vertex to a face, which causes the vertex-normal to be re-calculated.
-     *
-     * @param face Face to which the vertex should be attached.
-     */
-    private void attachToFace(Face face) {
-      if (!this.faces.contains(face)) {
-        this.faces.add(face);
-        this.rebuild();
+    @Override
+    public boolean equals(Object o) {
+      if (this == o) {
+        return true;
+      }
+      if (!(o instanceof Vertex vertex)) {
+        return false;
       }
+      return this.index == vertex.index && this.mesh() == vertex.mesh();
     }
 
-    /**
-     * Detaches the vertex from a face, which causes the vertex-normal to be re-calculated.
-     *
-     * @param face Face to which the vertex should be attached.
-     */
-    private void detachFromFace(Face face) {
-      if (!this.faces.contains(face)) {
-        this.faces.remove(face);
-        this.rebuild();
-      }
+    @Override
+    public int hashCode() {
+      return 31 * System.identityHashCode(Mesh.this) + this.index;
     }
 
-    /**
-     * Re-calculates the vertex-normal by calculating the weighted mean of all face-normals this vertex participates in.
-     */
-    private void rebuild() {
-      this.normal.x = 0.0f;
-      this.normal.y = 0.0f;
-      this.normal.z = 0.0f;
-
-      for (Face face : this.faces) {
-        Vector3f fn = face.normal();
-        if (!Float.isNaN(fn.x) && !Float.isNaN(fn.y) && !Float.isNaN(fn.z)) {
-          this.normal.x += fn.x / this.numberOfFaces();
-          this.normal.y += fn.y / this.numberOfFaces();
-          this.normal.z += fn.z / this.numberOfFaces();
-        }
-      }
+    private Mesh mesh() {
+      return Mesh.this;
     }
   }
 
   /**
-   * A face defined that is made up by either three or four vertices.
+   * A face defined that is made up by either three or four vertices. Faces are lightweight views onto the Mesh's index array and are created on demand.
    */
   public class Face {
 
     /**
-     * Type of face, defaults to TRI (= three vertices).
-     */
-    private final FaceType type;
-
-    /**
-     * List of vertices in this face.
+     * Offset of the face's first vertex index in the Mesh's index array.
      */
-    private final Vertex[] vertices;
-
-    /**
-     * Vertex indices.
-     */
-    private final int[] vertexIndices;
+    private final int offset;
 
     /**
      * Constructor for a face.
      */
-    private Face(Vector4i indices) {
-      /* If the w-index is greater than -1 a QUAD face is created. */
-      if (indices.w > -1) {
-        this.type = FaceType.QUAD;
-        this.vertices = new Vertex[4];
-        this.vertexIndices = new int[4];
-      } else {
-        this.type = FaceType.TRI;
-        this.vertices = new Vertex[3];
-        this.vertexIndices = new int[3];
-      }
-
-      /* Store vertex-indices. */
-      this.vertexIndices[0] = indices.x;
-      this.vertexIndices[1] = indices.y;
-      this.vertexIndices[2] = indices.z;
-      if (this.getType() == FaceType.QUAD) {
-        this.vertexIndices[3] = indices.w;
-      }
-
-      /* Add vertices to face. */
-      this.vertices[0] = Mesh.this.vertices.get(this.vertexIndices[0]);
-      this.vertices[1] = Mesh.this.vertices.get(this.vertexIndices[1]);
-      this.vertices[2] = Mesh.this.vertices.get(this.vertexIndices[2]);
-      if (this.getType() == FaceType.QUAD) {
-        this.vertices[3] = Mesh.this.vertices.get(this.vertexIndices[3]);
-      }
-
-      /* Attach face to vertices. */
-      this.vertices[0].attachToFace(this);
-      this.vertices[1].attachToFace(this);
-      this.vertices[2].attachToFace(this);
-      if (this.getType() == FaceType.QUAD) {
-        this.vertices[3].attachToFace(this);
-      }
+    private Face(int index) {
+      this.offset = 4 * index;
     }
 
     /**
@@ -487,7 +608,18 @@ private Face(Vector4i indices) {
      * @return Type of the face.
      */
     public final FaceType getType() {
-      return type;
+      return Mesh.this.faces[this.offset + 3] > -1 ? FaceType.QUAD : FaceType.TRI;
+    }
+
+    /**
+     * Returns the index of the i-th vertex of this face.
+     *
+     * @param i Position of the vertex within the face (0 to 3).
+     * @return Index of the vertex in the Mesh.
+     */
+    public final int getIndex(int i) {
+      Objects.checkIndex(i, this.getType() == FaceType.QUAD ? 4 : 3);
+      return Mesh.this.faces[this.offset + i];
     }
 
     /**
@@ -496,7 +628,12 @@ public final FaceType getType() {
      * @return Unmodifiable list of vertices.
      */
     public final List<Vertex> getVertices() {
-      return Arrays.asList(this.vertices);
+      final int[] faces = Mesh.this.faces;
+      if (this.getType() == FaceType.QUAD) {
+        return List.of(new Vertex(faces[this.offset]), new Vertex(faces[this.offset + 1]), new Vertex(faces[this.offset + 2]), new Vertex(faces[this.offset + 3]));
+      } else {
+        return List.of(new Vertex(faces[this.offset]), new Vertex(faces[this.offset + 1]), new Vertex(faces[this.offset + 2]));
+      }
     }
 
     /**
@@ -505,32 +642,23 @@ public final List<Vertex> getVertices() {
      * @return Area of the face.
      */
     public double area() {
-      if (this.type == FaceType.TRI) {
+      if (this.getType() == FaceType.TRI) {
         /* Extract vertices. */
-        Vector3f v1 = this.vertices[0].position;
-        Vector3f v2 = this.vertices[1].position;
-        Vector3f v3 = this.vertices[2].position;
+        Vector3f v1 = this.position(0);
+        Vector3f v2 = this.position(1);
+        Vector3f v3 = this.position(2);
 
         /* Generate the edges and sort them in ascending order. */
-        List<Vector3f> edges = new ArrayList<>();
-        edges.add(new Vector3f(v1).sub(v2));
-        edges.add(new Vector3f(v2).sub(v3));
-        edges.add(new Vector3f(v3).sub(v1));
-
-        edges.sort((o1, o2) -> {
-          float difference = o1.length() - o2.length();
-          if (difference < 0) {
-            return -1;
-          } else if (difference > 0) {
-            return 1;
-          } else {
-            return 0;
-          }
-        });
+        float[] edges = {
+            new Vector3f(v1).sub(v2).length(),
+            new Vector3f(v2).sub(v3).length(),
+            new Vector3f(v3).sub(v1).length()
+        };
+        Arrays.sort(edges);
 
-        float a = edges.get(2).length();
-        float b = edges.get(1).length();
-        float c = edges.get(0).length();
+        float a = edges[2];
+        float b = edges[1];
+        float c = edges[0];
 
         /* Returns the area of the triangle according to Heron's Formula. */
         double area = 0.25 * FastMath.sqrt((a + (b + c)) * (c - (a - b)) * (c + (a - b)) * (a + (b - c)));
@@ -541,10 +669,10 @@ public double area() {
         }
       } else {
         /* Extract vertices. */
-        Vector3f v1 = this.vertices[0].position;
-        Vector3f v2 = this.vertices[1].position;
-        Vector3f v3 = this.vertices[2].position;
-        Vector3f v4 = this.vertices[3].position;
+        Vector3f v1 = this.position(0);
+        Vector3f v2 = this.position(1);
+        Vector3f v3 = this.position(2);
+        Vector3f v4 = this.position(3);
 
         /* Calculates the area of the face using Bretschneider's Formula. */
         Vector3f s1 = new Vector3f(v1).sub(v2);
@@ -562,8 +690,9 @@ public double area() {
      * Calculates and returns the face normal.
      */
     public Vector3f normal() {
-      Vector3f e1 = new Vector3f(this.vertices[1].position).sub(this.vertices[0].position);
-      Vector3f e2 = new Vector3f(this.vertices[2].position).sub(this.vertices[0].position);
+      Vector3f v0 = this.position(0);
+      Vector3f e1 = this.position(1).sub(v0);
+      Vector3f e2 = this.position(2).sub(v0);
       return e1.cross(e2).normalize();
     }
 
@@ -574,18 +703,94 @@ public Vector3f normal() {
      */
     public Vector3f centroid() {
       Vector3f centroid = new Vector3f(0f, 0f, 0f);
-      for (Vertex vertex : this.vertices) {
-        centroid.add(vertex.position);
-      }
+      centroid.add(this.position(0));
+      centroid.add(this.position(1));
+      centroid.add(this.position(2));
 
-      if (this.type == FaceType.TRI) {
+      if (this.getType() == FaceType.TRI) {
         centroid.div(3.0f);
       } else {
+        centroid.add(this.position(3));
         centroid.div(4.0f);
       }
 
       return centroid;
     }
+
+    /**
+     * Returns a copy of the position of the i-th vertex of this face.
+     */
+    private Vector3f position(int i) {
+      final float[] positions = Mesh.this.positions;
+      final int v = 3 * Mesh.this.faces[this.offset + i];
+      return new Vector3f(positions[v], positions[v + 1], positions[v + 2]);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      if (this == o) {
+        return true;
+      }
+      if (!(o instanceof Face face)) {
+        return false;
+      }
+      return this.offset == face.offset && this.mesh() == face.mesh();
+    }
+
+    @Override
+    public int hashCode() {
+      return 31 * System.identityHashCode(Mesh.this) + this.offset;
+    }
+
+    private Mesh mesh() {
+      return Mesh.this;
+    }
+  }
+
+  /**
+   * Unmodifiable, random-access list of {@link Vertex} views.
+   */
+  private class VertexList extends AbstractList<Vertex> implements RandomAccess {
+
+    private final int size;
+
+    private VertexList(int size) {
+      this.size = size;
+    }
+
+    @Override
+    public Vertex get(int index) {
+      Objects.checkIndex(index, this.size);
+      return new Vertex(index);
+    }
+
+    @Override
+    public int size() {
+      return this.size;
+    }
+  }
+
+  /**
+   * Unmodifiable, random-access list of {@link Face} views.
+   */
+  private class FaceList extends AbstractList<Face> implements RandomAccess {
+
+    private final int size;
+
+    private FaceList(int size) {
+      this.size = size;
+    }
+
+    @Override
+    public Face get(int index) {
+      Objects.checkIndex(index, this.size);
+      return new Face(index);
+    }
+
+    @Override
+    public int size() {
+      return this.size;
+    }
   }
 
   @Override
@@ -597,13 +802,21 @@ public boolean equals(Object o) {
       return false;
     }
     Mesh mesh = (Mesh) o;
-    return Objects.equals(vertices, mesh.vertices) && Objects.equals(faces, mesh.faces) && Objects.equals(barycenter, mesh.barycenter) && Objects.equals(surfaceArea, mesh.surfaceArea) && Arrays.equals(boundingbox, mesh.boundingbox);
+    return vertexCount == mesh.vertexCount && faceCount == mesh.faceCount
+        && Arrays.equals(positions, 0, 3 * vertexCount, mesh.positions, 0, 3 * vertexCount)
+        && Arrays.equals(colors, 0, 3 * vertexCount, mesh.colors, 0, 3 * vertexCount)
+        && Arrays.equals(faces, 0, 4 * faceCount, mesh.faces, 0, 4 * faceCount);
   }
 
   @Override
   public int hashCode() {
-    int result = Objects.hash(vertices, faces, barycenter, surfaceArea);
-    result = 31 * result + Arrays.hashCode(boundingbox);
+    int result = Objects.hash(vertexCount, faceCount);
+    for (int i = 0; i < 3 * vertexCount; i++) {
+      result = 31 * result + Float.floatToIntBits(positions[i]);
+    }
+    for (int i = 0; i < 4 * faceCount; i++) {
+      result = 31 * result + faces[i];
+    }
     return result;
   }
 }
@@ -1,11 +1,17 @@
 package org.vitrivr.cineast.core.data.m3d;
 
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.util.Arrays;
+import java.util.concurrent.atomic.LongAdder;
 import org.joml.Vector3f;
 import org.joml.Vector3fc;
 import org.joml.Vector3i;
 
 /**
  * This class represents a Voxel grid, i.e. a 3-dimensional grid of 3D pixels (called Voxels). Every voxel can either be visible or invisible.
+ * <p>
+ * The voxels are stored as a bitset, one bit per voxel. Voxels may be toggled concurrently by multiple threads, e.g. by the {@link Voxelizer}; reads are not synchronized and only reflect changes made by other threads once these threads have been joined.
  */
 public class VoxelGrid {
 
@@ -30,9 +36,13 @@ public class VoxelGrid {
    */
   private final int length;
   /**
-   * Array holding the actual voxels.
+   * Bitset holding the actual voxels; the bit of the voxel at (x, y, z) has the index (x * sizeY + y) * sizeZ + z.
    */
-  private final Voxel[][][] voxelGrid;
+  private final long[] voxels;
+  /**
+   * Used to atomically update the words of the bitset.
+   */
+  private static final VarHandle WORDS = MethodHandles.arrayElementVarHandle(long[].class);
   /**
    * Defines the center of the voxel-grid (in the world coordinate system). It corresponds to the center of the voxel at (sizeX/2, sizeY/2, sizeZ/2).
    *
@@ -47,11 +57,7 @@ public class VoxelGrid {
   /**
    * Number of visible voxels in the grid.
    */
-  private int visible = 0;
-  /**
-   * Number of invisible voxels in the grid.
-   */
-  private int invisible = 0;
+  private final LongAdder visible = new LongAdder();
 
   /**
    * Default constructor: Initializes a new, fully active Voxel-Grid
@@ -80,19 +86,11 @@ public VoxelGrid(int sizeX, int sizeY, int sizeZ, float resolution, boolean acti
     this.sizeZ = sizeZ;
     this.resolution = resolution;
     this.length = sizeX * sizeY * sizeZ;
-    this.voxelGrid = new Voxel[sizeX][sizeY][sizeZ];
-    for (short i = 0; i < this.sizeX; i++) {
-      for (short j = 0; j < this.sizeY; j++) {
-        for (short k = 0; k < this.sizeZ; k++) {
-          if (active) {
-            this.voxelGrid[i][j][k] = Voxel.VISIBLE;
-            this.visible += 1;
-          } else {
-            this.voxelGrid[i][j][k] = Voxel.INVISIBLE;
-            this.invisible += 1;
-          }
-        }
-      }
+    this.voxels = new long[(this.length + 63) >>> 6];
+    if (active && this.length > 0) {
+      Arrays.fill(this.voxels, -1L);
+      this.voxels[this.voxels.length - 1] = -1L >>> (-this.length & 63);
+      this.visible.add(this.length);
     }
   }
 
@@ -147,7 +145,7 @@ public final Vector3fc getGridCenter() {
    * @return Number of visible Voxels in the grid.
    */
   public final int getVisible() {
-    return visible;
+    return this.visible.intValue();
   }
 
   /**
@@ -156,14 +154,14 @@ public final int getVisible() {
    * @return Number of invisible Voxels in the grid.
    */
   public final int getInvisible() {
-    return invisible;
+    return this.length - this.visible.intValue();
   }
 
   /**
    * Returns true if VoxelGrid is visible (i.e. there is at least one visible Voxel) and false otherwise.
    */
   public final boolean isVisible() {
-    return this.visible > 0;
+    return this.getVisible() > 0;
   }
 
   /**
@@ -198,7 +196,7 @@ public final Vector3i coordinateToVoxel(Vector3fc coordinate) {
    * @throws ArrayIndexOutOfBoundsException If one of the three indices is larger than the grid.
    */
   public final Voxel get(int x, int y, int z) {
-    return this.voxelGrid[x][y][z];
+    return this.isVisible(x, y, z) ? Voxel.VISIBLE : Voxel.INVISIBLE;
   }
 
   /**
@@ -210,7 +208,8 @@ public final Voxel get(int x, int y, int z) {
    * @throws ArrayIndexOutOfBoundsException If one of the three indices is larger than the grid.
    */
   public final boolean isVisible(int x, int y, int z) {
-    return this.voxelGrid[x][y][z] == Voxel.VISIBLE;
+    final int index = this.index(x, y, z);
+    return (this.voxels[index >>> 6] & (1L << index)) != 0;
   }
 
   /**
@@ -236,15 +235,27 @@ public Vector3f getVoxelCenter(int x, int y, int z) {
    * @throws ArrayIndexOutOfBoundsException If one of the three indices is larger than the grid.
    */
   public final void toggleVoxel(boolean visible, int x, int y, int z) {
-    if (visible && this.voxelGrid[x][y][z] == Voxel.INVISIBLE) {
-      this.voxelGrid[x][y][z] = Voxel.VISIBLE;
-      this.invisible -= 1;
-      this.visible += 1;
-    } else if (!visible && this.voxelGrid[x][y][z] == Voxel.VISIBLE) {
-      this.voxelGrid[x][y][z] = Voxel.INVISIBLE;
-      this.invisible += 1;
-      this.visible -= 1;
+    final int index = this.index(x, y, z);
+    final long mask = 1L << index;
+    if (visible) {
+      if ((this.voxels[index >>> 6] & mask) == 0 && ((long) WORDS.getAndBitwiseOr(this.voxels, index >>> 6, mask) & mask) == 0) {
+        this.visible.increment();
+      }
+    } else if ((this.voxels[index >>> 6] & mask) != 0 && ((long) WORDS.getAndBitwiseAnd(this.voxels, index >>> 6, ~mask) & mask) != 0) {
+      this.visible.decrement();
+    }
+  }
+
+  /**
+   * Returns the index of the bit that holds the Voxel at the specified position.
+   *
+   * @throws ArrayIndexOutOfBoundsException If one of the three indices is larger than the grid.
+   */
+  private int index(int x, int y, int z) {
+    if (x < 0 || x >= this.sizeX || y < 0 || y >= this.sizeY || z < 0 || z >= this.sizeZ) {
+      throw new ArrayIndexOutOfBoundsException(String.format("Voxel (%d, %d, %d) is out of bounds for a grid of size %d x %d x %d.", x, y, z, this.sizeX, this.sizeY, this.sizeZ));
     }
+    return (x * this.sizeY + y) * this.sizeZ + z;
   }
 
   /**
@@ -258,7 +269,7 @@ public String toMatlabArray() {
     for (int x = 0; x < this.sizeX; x++) {
       for (int y = 0; y < this.sizeY; y++) {
         for (int z = 0; z < this.sizeZ; z++) {
-          if (this.voxelGrid[x][y][z] == Voxel.VISIBLE) {
+          if (this.isVisible(x, y, z)) {
             buffer.append(String.format("%d %d %d; ", x, y, z));
           }
         }
@@ -1,16 +1,14 @@
 package org.vitrivr.cineast.core.data.m3d;
 
-import java.util.ArrayList;
 import java.util.List;
+import java.util.stream.IntStream;
 import org.apache.logging.log4j.Level;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 import org.joml.Vector3f;
 import org.joml.Vector3fc;
 import org.joml.Vector3i;
-import org.vitrivr.cineast.core.data.Pair;
 import org.vitrivr.cineast.core.util.math.MathConstants;
-import org.vitrivr.cineast.core.util.mesh.MeshMathUtil;
 
 /**
  * This class can be used to to transform a 3D polygon Mesh into a 3D VoxelGrid. The class performs this transformation by applying the algorithm described in [1]. It can either use a grid of fixed size or one that dynamically fits the bounding box of the Mesh given the resolution.
@@ -29,6 +27,11 @@ public class Voxelizer {
    */
   private static final Logger LOGGER = LogManager.getLogger();
 
+  /**
+   * Number of faces voxelized by a single parallel task.
+   */
+  private static final int FACES_PER_TASK = 256;
+
   /**
    * Resolution, i.e. size of a single voxel.
    */
@@ -90,7 +93,7 @@ public VoxelGrid voxelize(ReadableMesh mesh, int sizeX, int sizeY, int sizeZ) {
   }
 
   /**
-   * Voxelizes the provided mesh into the provided VoxelGrid
+   * Voxelizes the provided mesh into the provided VoxelGrid. The faces of the mesh are processed in parallel, in chunks of {@link #FACES_PER_TASK} faces.
    *
    * @param mesh Mesh that should be voxelized.
    * @param grid VoxelGrid to use for voxelization.
@@ -101,43 +104,15 @@ public VoxelGrid voxelize(ReadableMesh mesh, VoxelGrid grid) {
     long start = System.currentTimeMillis();
 
     /* Process the faces and perform all the relevant tests described in [1]. */
-    for (Mesh.Face face : mesh.getFaces()) {
-      List<Mesh.Vertex> vertices = face.getVertices();
-      List<Pair<Vector3i, Vector3f>> enclosings = Voxelizer.this.enclosingGrid(vertices, grid);
-      for (Pair<Vector3i, Vector3f> enclosing : enclosings) {
-        /* Perform vertex-tests. */
-        if (Voxelizer.this.vertextTest(vertices.get(0), enclosing)) {
-          grid.toggleVoxel(true, enclosing.first.x, enclosing.first.y, enclosing.first.z);
-          continue;
-        }
-        if (Voxelizer.this.vertextTest(vertices.get(1), enclosing)) {
-          grid.toggleVoxel(true, enclosing.first.x, enclosing.first.y, enclosing.first.z);
-          continue;
-        }
-        if (Voxelizer.this.vertextTest(vertices.get(2), enclosing)) {
-          grid.toggleVoxel(true, enclosing.first.x, enclosing.first.y, enclosing.first.z);
-          continue;
-        }
-        /* Perform edge-tests. */
-        if (Voxelizer.this.edgeTest(vertices.get(0), vertices.get(1), enclosing)) {
-          grid.toggleVoxel(true, enclosing.first.x, enclosing.first.y, enclosing.first.z);
-          continue;
-        }
-        if (Voxelizer.this.edgeTest(vertices.get(1), vertices.get(2), enclosing)) {
-          grid.toggleVoxel(true, enclosing.first.x, enclosing.first.y, enclosing.first.z);
-          continue;
-        }
-        if (Voxelizer.this.edgeTest(vertices.get(2), vertices.get(0), enclosing)) {
-          grid.toggleVoxel(true, enclosing.first.x, enclosing.first.y, enclosing.first.z);
-          continue;
-        }
-
-        /* Perform plane-tests. */
-        if (Voxelizer.this.planeTest(vertices.get(0), vertices.get(1), vertices.get(2), enclosing)) {
-          grid.toggleVoxel(true, enclosing.first.x, enclosing.first.y, enclosing.first.z);
-        }
+    final List<Mesh.Face> faces = mesh.getFaces();
+    final int tasks = (faces.size() + FACES_PER_TASK - 1) / FACES_PER_TASK;
+    IntStream.range(0, tasks).parallel().forEach(task -> {
+      final FaceVoxelizer voxelizer = new FaceVoxelizer(grid);
+      final int end = Math.min(faces.size(), (task + 1) * FACES_PER_TASK);
+      for (int i = task * FACES_PER_TASK; i < end; i++) {
+        voxelizer.voxelize(faces.get(i));
       }
-    }
+    });
 
     long stop = System.currentTimeMillis();
     LOGGER.log(Level.DEBUG, String.format("Voxelization of mesh completed in %d ms (Size: %d x %d x %d).", (stop - start), grid.getSizeX(), grid.getSizeY(), grid.getSizeZ()));
@@ -146,103 +121,206 @@ public VoxelGrid voxelize(ReadableMesh mesh, VoxelGrid grid) {
   }
 
   /**
-   * Performs the vertex-test described in [1]. Checks if the provided voxel's center is within the area of circle with radius L/2 around the vertex (L being the size of a voxel).
-   *
-   * @param vertex Vertex to be tested.
-   * @param voxel  Voxel to be tested.
-   * @return true if the voxel's center is within the circle, false otherwise.
+   * Voxelizes single faces into a VoxelGrid. Quantities that only depend on the face are calculated once per face and the voxels are tested on primitive coordinates, using vectors that are re-used for all faces. Instances are therefore not thread-safe and every task uses its own.
    */
-  private boolean vertextTest(Mesh.Vertex vertex, Pair<Vector3i, Vector3f> voxel) {
-    return vertex.getPosition().distanceSquared(voxel.second) > this.rcsq;
-  }
+  private final class FaceVoxelizer {
 
-  /**
-   * Performs the edge-test described in [1]. Checks if the provided voxel's center is enclosed in the cylinder around the line between vertex a and vertex b.
-   *
-   * @param a     First vertex that constitutes the line used to draw a cylinder around.
-   * @param b     Second vertex that constitutes the line used to draw a cylinder around.
-   * @param voxel Voxel to be tested.
-   * @return true if voxel's center is contained in cylinder, false otherwise.
-   */
-  private boolean edgeTest(Mesh.Vertex a, Mesh.Vertex b, Pair<Vector3i, Vector3f> voxel) {
-    Vector3f line = (new Vector3f(b.getPosition())).sub(a.getPosition());
-    Vector3f pd = voxel.second.sub(a.getPosition());
-
-    /* Calculate distance between a and b (Edge). */
-    float lsq = a.getPosition().distanceSquared(b.getPosition());
-    float dot = line.dot(pd);
-
-    if (dot < 0.0f || dot > lsq) {
-      return false;
-    } else {
-      float dsq = pd.lengthSquared() - ((float) Math.pow(dot, 2)) / lsq;
-      return dsq > rc;
-    }
-  }
+    /**
+     * VoxelGrid to voxelize the faces into.
+     */
+    private final VoxelGrid grid;
 
-  /**
-   * Performs a simplified version of the plane-test described in [1]. Checks if the provided voxel's center is enclosed in the space spanned by two planes parallel to the face.
-   * <p>
-   * The original version of the test performs three addition checks with planes that go through the edges. These tests are ommited because we only work on a reduced set of voxels that directly enclose the vertices in question.
-   *
-   * @param a     First vertex that spans the face.
-   * @param b     Second vertex that spans the face.
-   * @param c     Third vertex that spans the face.
-   * @param voxel Voxel to be tested.
-   * @return true if voxel's center is contained in the area, false otherwise.
-   */
-  private boolean planeTest(Mesh.Vertex a, Mesh.Vertex b, Mesh.Vertex c, Pair<Vector3i, Vector3f> voxel) {
-    /* Retrieve center and corner of voxel. */
-    Vector3f vcenter = voxel.second;
-    Vector3f vcorner = (new Vector3f(this.rc, this.rc, this.rc)).add(vcenter);
+    /**
+     * Center of the grid, see {@link VoxelGrid#getGridCenter()}.
+     */
+    private final Vector3fc gridCenter;
 
-    /* Calculate the vectors spanning the plane of the facepolyon and its plane-normal. */
-    Vector3f ab = (new Vector3f(b.getPosition())).sub(a.getPosition());
-    Vector3f ac = (new Vector3f(c.getPosition())).sub(a.getPosition());
-    Vector3f planenorm = (new Vector3f(ab)).cross(ac);
+    /**
+     * Positions of the first three vertices of the current face.
+     */
+    private final float[] a = new float[3];
+    private final float[] b = new float[3];
+    private final float[] c = new float[3];
 
-    /* Calculate the distance t for enclosing planes. */
-    float t = (float) (this.rc * MathConstants.SQRT3 * vcorner.angleCos(vcenter));
+    /**
+     * Edges of the current face, i.e. b - a, c - b and a - c, and their squared lengths.
+     */
+    private final Vector3f ab = new Vector3f();
+    private final Vector3f bc = new Vector3f();
+    private final Vector3f ca = new Vector3f();
+    private float absq;
+    private float bcsq;
+    private float casq;
 
-    /* Derive new displaced plane normals. */
-    Vector3f planenorm_plus = new Vector3f(planenorm.x + t, planenorm.y + t, planenorm.z + t);
-    Vector3f planenorm_minus = new Vector3f(planenorm.x - t, planenorm.y - t, planenorm.z - t);
+    /**
+     * Normal of the plane spanned by the current face.
+     */
+    private final Vector3f normal = new Vector3f();
 
-    /* Check if the center is under the planenorm_plus and above the planenorm_minus. */
-    return planenorm_plus.dot(vcenter) < 0 && planenorm_minus.dot(vcenter) > 0;
-  }
+    /**
+     * Scratch vectors used by the tests.
+     */
+    private final Vector3f corner = new Vector3f();
+    private final Vector3f center = new Vector3f();
+    private final Vector3f plane = new Vector3f();
 
-  /**
-   * Calculates and returns the enclosing grid, i.e. a list of Voxels from the grid that enclose the list of provided vertices.
-   *
-   * @param vertices The Vertices for which an enclosing grid needs to be found.
-   * @param grid     VoxelGrid to select voxels from.
-   * @return List of voxels that confine the provided vertices.
-   */
-  private List<Pair<Vector3i, Vector3f>> enclosingGrid(List<Mesh.Vertex> vertices, VoxelGrid grid) {
-    /* Calculate bounding box for provided vertices. */
-    ArrayList<Vector3fc> positions = new ArrayList<>(vertices.size());
-    for (Mesh.Vertex vertex : vertices) {
-      positions.add(vertex.getPosition());
+    private FaceVoxelizer(VoxelGrid grid) {
+      this.grid = grid;
+      this.gridCenter = grid.getGridCenter();
     }
 
-    float bounds[] = MeshMathUtil.bounds(positions);
+    /**
+     * Voxelizes the provided face, i.e. tests every voxel of the enclosing grid of the face and makes the voxels that pass one of the tests visible.
+     *
+     * @param face The face to voxelize.
+     */
+    private void voxelize(Mesh.Face face) {
+      final List<Mesh.Vertex> vertices = face.getVertices();
 
-    /* Derive max and min voxel-indices from bounding-boxes. */
-    Vector3i max = grid.coordinateToVoxel(new Vector3f(bounds[0], bounds[2], bounds[4]));
-    Vector3i min = grid.coordinateToVoxel(new Vector3f(bounds[1], bounds[3], bounds[5]));
+      /* Calculate bounding box for the vertices of the face. */
+      float maxX = -Float.MAX_VALUE, minX = Float.MAX_VALUE, maxY = -Float.MAX_VALUE, minY = Float.MAX_VALUE, maxZ = -Float.MAX_VALUE, minZ = Float.MAX_VALUE;
+      for (int i = 0; i < vertices.size(); i++) {
+        final Vector3fc position = vertices.get(i).getPosition();
+        if (i < 3) {
+          final float[] vertex = i == 0 ? this.a : (i == 1 ? this.b : this.c);
+          vertex[0] = position.x();
+          vertex[1] = position.y();
+          vertex[2] = position.z();
+        }
+        if (position.x() > maxX) {
+          maxX = position.x();
+        }
+        if (position.x() < minX) {
+          minX = position.x();
+        }
+        if (position.y() > maxY) {
+          maxY = position.y();
+        }
+        if (position.y() < minY) {
+          minY = position.y();
+        }
+        if (position.z() > maxZ) {
+          maxZ = position.z();
+        }
+        if (position.z() < minZ) {
+          minZ = position.z();
+        }
+      }
 
-    /* Initialize an empty ArrayList for the Voxel-Elements. */
-    List<Pair<Vector3i, Vector3f>> enclosing = new ArrayList<>((max.x - min.x) * (max.y - min.y) * (max.z - min.z));
-    for (int i = min.x; i <= max.x; i++) {
-      for (int j = min.y; j <= max.y; j++) {
-        for (int k = min.z; k <= max.z; k++) {
-          enclosing.add(new Pair<>(new Vector3i(i, j, k), grid.getVoxelCenter(i, j, k)));
+      /* Derive max and min voxel-indices from bounding-boxes. */
+      final Vector3i max = this.grid.coordinateToVoxel(this.center.set(maxX, maxY, maxZ));
+      final Vector3i min = this.grid.coordinateToVoxel(this.center.set(minX, minY, minZ));
+
+      /* Calculate the edges and the plane-normal of the face. */
+      final float[] a = this.a, b = this.b, c = this.c;
+      this.ab.set(b[0] - a[0], b[1] - a[1], b[2] - a[2]);
+      this.bc.set(c[0] - b[0], c[1] - b[1], c[2] - b[2]);
+      this.ca.set(a[0] - c[0], a[1] - c[1], a[2] - c[2]);
+      this.absq = Vector3f.distanceSquared(a[0], a[1], a[2], b[0], b[1], b[2]);
+      this.bcsq = Vector3f.distanceSquared(b[0], b[1], b[2], c[0], c[1], c[2]);
+      this.casq = Vector3f.distanceSquared(c[0], c[1], c[2], a[0], a[1], a[2]);
+      this.normal.set(this.ab).cross(this.corner.set(c[0] - a[0], c[1] - a[1], c[2] - a[2]));
+
+      final int halfX = this.grid.getSizeX() / 2;
+      final int halfY = this.grid.getSizeY() / 2;
+      final int halfZ = this.grid.getSizeZ() / 2;
+      final float resolution = this.grid.getResolution();
+      for (int i = min.x; i <= max.x; i++) {
+        final float x = (i - halfX) * resolution + this.gridCenter.x();
+        for (int j = min.y; j <= max.y; j++) {
+          final float y = (j - halfY) * resolution + this.gridCenter.y();
+          for (int k = min.z; k <= max.z; k++) {
+            final float z = (k - halfZ) * resolution + this.gridCenter.z();
+            if (this.test(x, y, z)) {
+              this.grid.toggleVoxel(true, i, j, k);
+            }
+          }
         }
       }
     }
 
-    /* Return list of enclosing voxels. */
-    return enclosing;
+    /**
+     * Performs the vertex-, edge- and plane-tests described in [1] for the voxel with the provided center.
+     * <p>
+     * The edge-tests successively translate the center of the voxel by the start of the edge they test; subsequent tests operate on the translated center.
+     *
+     * @return true if the voxel passes one of the tests, false otherwise.
+     */
+    private boolean test(float x, float y, float z) {
+      final float[] a = this.a, b = this.b, c = this.c;
+
+      /* Perform vertex-tests. */
+      if (this.vertexTest(a, x, y, z) || this.vertexTest(b, x, y, z) || this.vertexTest(c, x, y, z)) {
+        return true;
+      }
+
+      /* Perform edge-tests. */
+      x -= a[0];
+      y -= a[1];
+      z -= a[2];
+      if (this.edgeTest(this.ab, this.absq, x, y, z)) {
+        return true;
+      }
+      x -= b[0];
+      y -= b[1];
+      z -= b[2];
+      if (this.edgeTest(this.bc, this.bcsq, x, y, z)) {
+        return true;
+      }
+      x -= c[0];
+      y -= c[1];
+      z -= c[2];
+      if (this.edgeTest(this.ca, this.casq, x, y, z)) {
+        return true;
+      }
+
+      /* Perform plane-tests. */
+      return this.planeTest(x, y, z);
+    }
+
+    /**
+     * Performs the vertex-test described in [1]. Checks if the provided voxel's center is within the area of circle with radius L/2 around the vertex (L being the size of a voxel).
+     *
+     * @param vertex Position of the vertex to be tested.
+     * @return true if the voxel's center is within the circle, false otherwise.
+     */
+    private boolean vertexTest(float[] vertex, float x, float y, float z) {
+      return Vector3f.distanceSquared(vertex[0], vertex[1], vertex[2], x, y, z) > Voxelizer.this.rcsq;
+    }
+
+    /**
+     * Performs the edge-test described in [1]. Checks if the provided voxel's center is enclosed in the cylinder around an edge of the face.
+     *
+     * @param line   The edge, i.e. the vector from its start to its end.
+     * @param lsq    Squared length of the edge.
+     * @return true if voxel's center is contained in cylinder, false otherwise.
+     */
+    private boolean edgeTest(Vector3f line, float lsq, float x, float y, float z) {
+      float dot = line.dot(x, y, z);
+      if (dot < 0.0f || dot > lsq) {
+        return false;
+      } else {
+        float dsq = Vector3f.lengthSquared(x, y, z) - ((float) Math.pow(dot, 2)) / lsq;
+        return dsq > Voxelizer.this.rc;
+      }
+    }
+
+    /**
+     * Performs a simplified version of the plane-test described in [1]. Checks if the provided voxel's center is enclosed in the space spanned by two planes parallel to the face.
+     * <p>
+     * The original version of the test performs three addition checks with planes that go through the edges. These tests are ommited because we only work on a reduced set of voxels that directly enclose the vertices in question.
+     *
+     * @return true if voxel's center is contained in the area, false otherwise.
+     */
+    private boolean planeTest(float x, float y, float z) {
+      final float rc = Voxelizer.this.rc;
+
+      /* Calculate the distance t for enclosing planes. */
+      float t = (float) (rc * MathConstants.SQRT3 * this.corner.set(rc + x, rc + y, rc + z).angleCos(this.center.set(x, y, z)));
+
+      /* Check if the center is under the plane displaced by +t and above the plane displaced by -t. */
+      final Vector3f normal = this.normal;
+      return this.plane.set(normal.x + t, normal.y + t, normal.z + t).dot(x, y, z) < 0 && this.plane.set(normal.x - t, normal.y - t, normal.z - t).dot(x, y, z) > 0;
+    }
   }
 }
@@ -78,12 +78,33 @@ default short[] getMeanSamplesAsShort() {
    * @return double array containing the mean sample values.
    */
   default double[] getMeanSamplesAsDouble() {
-    double[] samples = new double[this.getNumberOfSamples()];
+    return this.getMeanSamplesAsDouble(new double[this.getNumberOfSamples()]);
+  }
+
+  /**
+   * Writes the mean samples across all channels into the provided double array. Allows callers to re-use buffers across segments.
+   *
+   * @param samples Array to write the mean sample values to. Must hold at least {@link #getNumberOfSamples()} entries.
+   * @return The provided array.
+   */
+  default double[] getMeanSamplesAsDouble(double[] samples) {
     int idx = 0;
     for (AudioFrame frame : this.getAudioFrames()) {
-      for (int sample = 0; sample < frame.numberOfSamples(); sample++, idx++) {
-        samples[idx] = frame.getMeanSampleAsDouble(sample);
-      }
+      idx += frame.getMeanSamplesAsDouble(samples, idx);
+    }
+    return samples;
+  }
+
+  /**
+   * Writes the mean samples across all channels into the provided float array. Allows callers to re-use buffers across segments.
+   *
+   * @param samples Array to write the mean sample values to. Must hold at least {@link #getNumberOfSamples()} entries.
+   * @return The provided array.
+   */
+  default float[] getMeanSamplesAsFloat(float[] samples) {
+    int idx = 0;
+    for (AudioFrame frame : this.getAudioFrames()) {
+      idx += frame.getMeanSamplesAsFloat(samples, idx);
     }
     return samples;
   }
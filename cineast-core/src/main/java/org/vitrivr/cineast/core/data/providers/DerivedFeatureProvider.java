@@ -0,0 +1,19 @@
+package org.vitrivr.cineast.core.data.providers;
+
+import java.util.function.Supplier;
+
+public interface DerivedFeatureProvider {
+
+  /**
+   * Returns the intermediate result (e.g. a STFT or a HPCP) identified by the given key, which is calculated by the supplier unless it has been calculated for this container before. Such results are shared by all feature modules processing the container and must not be modified.
+   * <p>
+   * The default implementation does not cache anything.
+   *
+   * @param key      Key identifying the type and parameters of the result; must implement equals() and hashCode().
+   * @param supplier Calculates the result if it is not available yet.
+   * @return The (possibly shared) result, which may be null.
+   */
+  default <T> T getDerivedFeature(Object key, Supplier<T> supplier) {
+    return supplier.get();
+  }
+}
@@ -1,6 +1,11 @@
 package org.vitrivr.cineast.core.data.query.containers;
 
+import com.google.common.hash.HashCode;
+import com.google.common.hash.Hasher;
+import com.google.common.hash.Hashing;
+import java.nio.charset.StandardCharsets;
 import java.util.Objects;
+import java.util.Optional;
 import org.apache.commons.lang3.builder.ReflectionToStringBuilder;
 import org.apache.commons.lang3.builder.ToStringStyle;
 import org.vitrivr.cineast.core.data.entities.MediaObjectDescriptor;
@@ -20,6 +25,11 @@ public abstract class AbstractQueryTermContainer implements SegmentContainer {
 
   private int containerId = -1;
 
+  /**
+   * Digest of the serialized data this container was decoded from; null if it was created from decoded data.
+   */
+  private HashCode source = null;
+
   /**
    * Weight of this specific query container. Defaults to {@link #weight} (1f)
    */
@@ -72,6 +82,47 @@ public void setSuperId(String id) {
     this.superId = id;
   }
 
+  /**
+   * Records the serialized data (e.g. the data URL of a query term) this container was decoded from, which identifies its contents. Called by the constructors decoding such data.
+   */
+  protected final void setSource(String data) {
+    this.source = Hashing.sha256().hashString(data == null ? "" : data, StandardCharsets.UTF_8);
+  }
+
+  /**
+   * Returns a fingerprint of the contents of this container, derived from the serialized data it was decoded from and its properties (e.g. its weight). Unlike the container itself, the fingerprint can be retained without retaining the decoded data.
+   *
+   * @return The fingerprint or an empty {@link Optional}, if the container was not decoded from serialized data.
+   */
+  public Optional<HashCode> getFingerprint() {
+    if (this.source == null) {
+      return Optional.empty();
+    }
+    final Hasher hasher = Hashing.sha256().newHasher().putBytes(this.source.asBytes()).putFloat(this.weight).putInt(this.containerId);
+    putString(hasher, this.getClass().getName());
+    putString(hasher, this.id);
+    putString(hasher, this.superId);
+    this.fingerprint(hasher);
+    return Optional.of(hasher.hash());
+  }
+
+  /**
+   * Adds the properties of this container that are not determined by the data it was decoded from to its fingerprint.
+   */
+  protected void fingerprint(Hasher hasher) {
+  }
+
+  /**
+   * Adds a nullable string to a fingerprint, such that consecutive strings cannot be confused.
+   */
+  private static void putString(Hasher hasher, String string) {
+    if (string == null) {
+      hasher.putInt(-1);
+    } else {
+      hasher.putInt(string.length()).putString(string, StandardCharsets.UTF_8);
+    }
+  }
+
   @Override
   public String toString() {
     return ReflectionToStringBuilder.toString(this, ToStringStyle.SHORT_PREFIX_STYLE);
@@ -2,6 +2,8 @@
 
 import java.util.List;
 import java.util.Objects;
+import java.util.function.Supplier;
+import org.vitrivr.cineast.core.data.DerivedFeatureCache;
 import org.vitrivr.cineast.core.data.frames.AudioDescriptor;
 import org.vitrivr.cineast.core.data.frames.AudioFrame;
 import org.vitrivr.cineast.core.util.dsp.fft.STFT;
@@ -31,6 +33,11 @@ public class AudioQueryTermContainer extends AbstractQueryTermContainer {
    */
   private AudioDescriptor descriptor;
 
+  /**
+   * Cached intermediate results (e.g. STFTs and HPCPs) shared by the feature modules processing this container.
+   */
+  private final DerivedFeatureCache derivedFeatures = new DerivedFeatureCache();
+
   /**
    * Constructs an {@link AudioQueryTermContainer} from base 64 encoded wave audio data. The constructor assumes the following audio settings: 22050Hz, 1 Channel, 16bit PCM
    *
@@ -38,6 +45,7 @@ public class AudioQueryTermContainer extends AbstractQueryTermContainer {
    */
   public AudioQueryTermContainer(String data) {
     this(AudioParser.parseWaveAudio(data, 22050.0f, 1));
+    this.setSource(data);
   }
 
   /**
@@ -99,6 +107,18 @@ public STFT getSTFT(int windowsize, int overlap, int padding, WindowFunction fun
     return stft;
   }
 
+  /**
+   * Returns the intermediate result identified by the given key from the cache of this {@link AudioQueryTermContainer}, calculating it if necessary.
+   *
+   * @param key      Key identifying the type and parameters of the result.
+   * @param supplier Calculates the result if it is not available yet.
+   * @return The (possibly shared) result.
+   */
+  @Override
+  public <T> T getDerivedFeature(Object key, Supplier<T> supplier) {
+    return this.derivedFeatures.get(key, supplier);
+  }
+
   @Override
   public boolean equals(Object o) {
     if (this == o) {
@@ -29,6 +29,7 @@ public BooleanQueryTermContainer(Collection<BooleanExpression> expressions) {
 
   public BooleanQueryTermContainer(String data) {
     this(DataURLParser.dataURLtoJsonNode(data).orElseThrow(() -> new IllegalArgumentException("Failed to parse the provided Boolean expression data.")));
+    this.setSource(data);
   }
 
   public BooleanQueryTermContainer(JsonNode json) {
@@ -4,6 +4,7 @@ public class IdQueryTermContainer extends AbstractQueryTermContainer {
 
   public IdQueryTermContainer(String id) {
     setId(id);
+    setSource(id);
   }
 
 }
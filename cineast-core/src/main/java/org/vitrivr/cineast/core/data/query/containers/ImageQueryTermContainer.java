@@ -1,5 +1,6 @@
 package org.vitrivr.cineast.core.data.query.containers;
 
+import com.google.common.hash.Hasher;
 import georegression.struct.point.Point2D_F32;
 import java.awt.image.BufferedImage;
 import java.util.ArrayList;
@@ -31,6 +32,7 @@ public class ImageQueryTermContainer extends AbstractQueryTermContainer {
    */
   public ImageQueryTermContainer(String data, CachedDataFactory factory) {
     this(ImageParser.dataURLtoBufferedImage(data), factory);
+    this.setSource(data);
   }
 
   public ImageQueryTermContainer(BufferedImage image, CachedDataFactory factory) {
@@ -92,6 +94,11 @@ public void setRelativeStart(float relativeStart) {
     this.relativeStart = relativeStart;
   }
 
+  @Override
+  protected void fingerprint(Hasher hasher) {
+    hasher.putFloat(this.relativeStart).putFloat(this.relativeEnd);
+  }
+
   @Override
   public float getRelativeEnd() {
     return relativeEnd;
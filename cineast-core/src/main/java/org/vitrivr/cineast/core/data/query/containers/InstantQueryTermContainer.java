@@ -20,6 +20,7 @@ public class InstantQueryTermContainer extends AbstractQueryTermContainer {
    */
   public InstantQueryTermContainer(String data) {
     this(GpsData.parseInstant(data).orElseThrow(() -> new IllegalArgumentException("The provided JSON data did not contain valid GPS information.")));
+    this.setSource(data);
   }
 
   /**
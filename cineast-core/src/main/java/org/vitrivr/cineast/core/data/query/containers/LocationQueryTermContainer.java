@@ -28,6 +28,7 @@ public LocationQueryTermContainer(String json) {
     } else {
       throw new IllegalArgumentException("Failed to parse the provided JSON data.");
     }
+    this.setSource(json);
   }
 
   /**
@@ -12,6 +12,11 @@
 
 public class ModelQueryTermContainer extends AbstractQueryTermContainer {
 
+  /**
+   * Resolution that sketches are required in; the Lightfield features resample them to 256 x 256 pixels, hence larger sketches are subsampled while they are decoded.
+   */
+  public static final int SKETCH_RESOLUTION = 256;
+
   /**
    * Original Mesh as transferred by the client.
    */
@@ -39,13 +44,14 @@ public ModelQueryTermContainer(String data, CachedDataFactory factory) {
       this.normalizedMesh = MeshTransformUtil.khlTransform(mesh, 1.0f);
       this.image = MultiImage.EMPTY_MULTIIMAGE;
     } else if (ImageParser.isValidImage(data)) {
-      final BufferedImage img = ImageParser.dataURLtoBufferedImage(data);
+      final BufferedImage img = ImageParser.dataURLtoBufferedImage(data, SKETCH_RESOLUTION);
       this.image = factory.newMultiImage(img);
       this.mesh = Mesh.EMPTY;
       this.normalizedMesh = Mesh.EMPTY;
     } else {
       throw new IllegalArgumentException("The provided data could not be converted to a Mesh.");
     }
+    this.setSource(data);
   }
 
   public ModelQueryTermContainer(String data) {
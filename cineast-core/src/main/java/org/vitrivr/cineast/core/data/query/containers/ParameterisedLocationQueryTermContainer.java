@@ -35,6 +35,7 @@ public ParameterisedLocationQueryTermContainer(String json) {
     } else {
       throw new IllegalArgumentException("Failed to parse the provided JSON data.");
     }
+    this.setSource(json);
   }
 
   /**
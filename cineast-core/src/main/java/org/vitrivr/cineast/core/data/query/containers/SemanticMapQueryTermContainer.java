@@ -43,6 +43,7 @@ public SemanticMapQueryTermContainer(SemanticMap map) {
    */
   public SemanticMapQueryTermContainer(String data) {
     this(DataURLParser.dataURLtoJsonNode(data).orElseThrow(() -> new IllegalArgumentException("Failed to parse the provided semantic map data.")));
+    this.setSource(data);
   }
 
   /**
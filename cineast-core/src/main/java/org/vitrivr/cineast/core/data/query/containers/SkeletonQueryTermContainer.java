@@ -20,6 +20,7 @@ public SkeletonQueryTermContainer(String data) {
     if (skeletons != null) {
       this.skeletons.addAll(Arrays.asList(skeletons));
     }
+    this.setSource(data);
   }
 
   public SkeletonQueryTermContainer(Collection<Skeleton> skeletons) {
@@ -34,6 +34,7 @@ public TagQueryTermContainer(String data) {
     } else {
       this.tags = new ArrayList<>(0);
     }
+    this.setSource(data);
   }
 
   public TagQueryTermContainer(Collection<Tag> tags) {
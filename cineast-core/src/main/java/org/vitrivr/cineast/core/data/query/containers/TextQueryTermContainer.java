@@ -16,6 +16,7 @@ public class TextQueryTermContainer extends AbstractQueryTermContainer {
    */
   public TextQueryTermContainer(String text) {
     this.text = (text == null ? "" : text);
+    this.setSource(this.text);
   }
 
   @Override
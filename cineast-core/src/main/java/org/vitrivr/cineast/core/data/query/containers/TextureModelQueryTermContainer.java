@@ -33,12 +33,13 @@ public TextureModelQueryTermContainer(String data, CachedDataFactory factory) {
       this.model = ModelParser.parseThreeJSV4Geometry(data);
       this.image = MultiImage.EMPTY_MULTIIMAGE;
     } else if (ImageParser.isValidImage(data)) {
-      final BufferedImage img = ImageParser.dataURLtoBufferedImage(data);
+      final BufferedImage img = ImageParser.dataURLtoBufferedImage(data, ModelQueryTermContainer.SKETCH_RESOLUTION);
       this.image = factory.newMultiImage(img);
       this.model = Model.EMPTY;
     } else {
       throw new IllegalArgumentException("The provided data could not be converted to a Mesh.");
     }
+    this.setSource(data);
   }
 
   public TextureModelQueryTermContainer(String data) {
@@ -3,6 +3,8 @@
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
+import java.util.function.Supplier;
+import org.vitrivr.cineast.core.data.DerivedFeatureCache;
 import org.vitrivr.cineast.core.data.frames.AudioDescriptor;
 import org.vitrivr.cineast.core.data.frames.AudioFrame;
 import org.vitrivr.cineast.core.util.dsp.fft.STFT;
@@ -44,6 +46,16 @@ public class AudioSegment implements SegmentContainer {
    */
   private AudioDescriptor descriptor;
 
+  /**
+   * Cached, down-mixed samples of this AudioSegment. Computed lazily upon the first call to {@link #getSTFT(int, int, int, WindowFunction)} and shared by all subsequent calls, since the different audio features usually request multiple STFTs of the same segment.
+   */
+  private double[] meanSamples;
+
+  /**
+   * Cached intermediate results (e.g. STFTs and HPCPs) shared by the feature modules processing this AudioSegment.
+   */
+  private final DerivedFeatureCache derivedFeatures = new DerivedFeatureCache();
+
   /**
    * @return a unique id of this
    */
@@ -97,6 +109,8 @@ public boolean addFrame(AudioFrame frame) {
     this.totalSamples += frame.numberOfSamples();
     this.totalDuration += frame.getDuration();
     this.frames.add(frame);
+    this.meanSamples = null;
+    this.derivedFeatures.clear();
 
     return true;
   }
@@ -190,7 +204,31 @@ public STFT getSTFT(int windowsize, int overlap, int padding, WindowFunction fun
       throw new IllegalArgumentException("The combined padding must be smaller than the sample window.");
     }
     STFT stft = new STFT(windowsize, overlap, padding, function, this.descriptor.getSamplingrate());
-    stft.forward(this.getMeanSamplesAsDouble());
+    stft.forward(this.cachedMeanSamples());
     return stft;
   }
+
+  /**
+   * Returns the intermediate result identified by the given key from the cache of this {@link AudioSegment}, calculating it if necessary.
+   *
+   * @param key      Key identifying the type and parameters of the result.
+   * @param supplier Calculates the result if it is not available yet.
+   * @return The (possibly shared) result.
+   */
+  @Override
+  public <T> T getDerivedFeature(Object key, Supplier<T> supplier) {
+    return this.derivedFeatures.get(key, supplier);
+  }
+
+  /**
+   * Returns the cached, down-mixed samples of this AudioSegment, computing them if necessary. The returned array must not be modified.
+   *
+   * @return Mean samples across all channels.
+   */
+  private synchronized double[] cachedMeanSamples() {
+    if (this.meanSamples == null) {
+      this.meanSamples = this.getMeanSamplesAsDouble();
+    }
+    return this.meanSamples;
+  }
 }
@@ -4,6 +4,7 @@
 import org.vitrivr.cineast.core.data.providers.AudioSTFTProvider;
 import org.vitrivr.cineast.core.data.providers.AvgImgProvider;
 import org.vitrivr.cineast.core.data.providers.BooleanExpressionProvider;
+import org.vitrivr.cineast.core.data.providers.DerivedFeatureProvider;
 import org.vitrivr.cineast.core.data.providers.DurationProvider;
 import org.vitrivr.cineast.core.data.providers.FrameListProvider;
 import org.vitrivr.cineast.core.data.providers.IdProvider;
@@ -40,6 +41,7 @@
     FrameListProvider,
     AudioFrameProvider,
     AudioSTFTProvider,
+    DerivedFeatureProvider,
     MeshProvider,
     ModelProvider,
     VoxelGridProvider,
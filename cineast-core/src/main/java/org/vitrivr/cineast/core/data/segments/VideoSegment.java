@@ -6,8 +6,10 @@
 import java.util.Collections;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.function.Supplier;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
+import org.vitrivr.cineast.core.data.DerivedFeatureCache;
 import org.vitrivr.cineast.core.data.Pair;
 import org.vitrivr.cineast.core.data.frames.AudioDescriptor;
 import org.vitrivr.cineast.core.data.frames.AudioFrame;
@@ -58,6 +60,12 @@ public class VideoSegment implements SegmentContainer {
    * {@link VideoDescriptor} for the video stream in this {@link VideoSegment}. Can be null!
    */
   private VideoDescriptor videoDescriptor = null;
+
+  /**
+   * Cached intermediate results (e.g. STFTs and HPCPs) shared by the feature modules processing this VideoSegment.
+   */
+  private final DerivedFeatureCache derivedFeatures = new DerivedFeatureCache();
+
   private Object getAvgLock = new Object();
   private Object getMedianLock = new Object();
   private Object getPathsLock = new Object();
@@ -197,6 +205,18 @@ public STFT getSTFT(int windowsize, int overlap, int padding, WindowFunction fun
     return stft;
   }
 
+  /**
+   * Returns the intermediate result identified by the given key from the cache of this {@link VideoSegment}, calculating it if necessary.
+   *
+   * @param key      Key identifying the type and parameters of the result.
+   * @param supplier Calculates the result if it is not available yet.
+   * @return The (possibly shared) result.
+   */
+  @Override
+  public <T> T getDerivedFeature(Object key, Supplier<T> supplier) {
+    return this.derivedFeatures.get(key, supplier);
+  }
+
   @Override
   public MultiImage getAvgImg() {
     synchronized (getAvgLock) {
@@ -398,5 +418,6 @@ private void addAudioFrame(AudioFrame frame) {
     this.totalSamples += frame.numberOfSamples();
     this.totalAudioDuration += frame.getDuration();
     this.audioFrames.add(frame);
+    this.derivedFeatures.clear();
   }
 }
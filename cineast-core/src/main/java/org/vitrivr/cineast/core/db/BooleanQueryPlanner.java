@@ -0,0 +1,553 @@
+package org.vitrivr.cineast.core.db;
+
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Predicate;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import org.apache.commons.lang3.tuple.Triple;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.vitrivr.cineast.core.config.ReadableQueryConfig;
+import org.vitrivr.cineast.core.data.providers.primitive.PrimitiveTypeProvider;
+import org.vitrivr.cineast.core.data.providers.primitive.ProviderDataType;
+import org.vitrivr.cineast.core.data.providers.primitive.StringTypeProvider;
+
+/**
+ * Cost-based planner for conjunctive boolean queries as executed by {@link DBSelector#getRowsAND(List, String, List, ReadableQueryConfig)}.
+ * <p>
+ * The planner estimates the selectivity of every condition based on per-column statistics (number of rows and histogram of values as obtained by {@link DBSelector#countDistinctValues(String)}) and orders the conditions such that the most selective condition comes first. Statistics are shared process-wide per entity and column and gathered lazily, only for queries with more than one condition, on a background thread with a selector of its own: Queries never wait for statistics but use default selectivities until they are available. After the entity has been written to, statistics are gathered again at most once per {@link #DEFAULT_REFRESH_INTERVAL_MS}, since a full scan after every write would cost more than slightly stale estimates.
+ * <p>
+ * In addition, the planner provides the client-side evaluation of conditions, which {@link DBSelector}s without native support for conjunctions use to evaluate all but the first condition on the rows of the remaining candidates only (see {@link #compileExact(Triple)}).
+ */
+public final class BooleanQueryPlanner {
+
+  private static final Logger LOGGER = LogManager.getLogger();
+
+  /**
+   * Maximum number of candidates for which the remaining conditions of a conjunction are evaluated on the candidates' rows (fetched with a single IN query) instead of being executed separately.
+   */
+  public static final int MAX_RESTRICTED_CANDIDATES = 4096;
+
+  /**
+   * Maximum number of distinct values for which a histogram is kept. Columns with more distinct values are assumed to be uniformly distributed.
+   */
+  private static final int MAX_HISTOGRAM_SIZE = 10_000;
+
+  /**
+   * Minimum time between two gatherings of the statistics of a column that has been written to.
+   */
+  public static final long DEFAULT_REFRESH_INTERVAL_MS = TimeUnit.MINUTES.toMillis(5);
+
+  /**
+   * Statistics used until they have been gathered or if gathering them failed.
+   */
+  private static final ColumnStatistics EMPTY = new ColumnStatistics(Collections.emptyMap());
+
+  /**
+   * Statistics gathered so far, keyed by entity and column.
+   */
+  private static final Map<StatisticsKey, VersionedStatistics> STATISTICS = new ConcurrentHashMap<>();
+
+  /**
+   * Pending gatherings of statistics, keyed by entity and column.
+   */
+  private static final Map<StatisticsKey, CompletableFuture<Void>> GATHERING = new ConcurrentHashMap<>();
+
+  /**
+   * Gathers statistics in the background, one column at a time so as not to compete with queries for the database.
+   */
+  private static final ExecutorService GATHERER = Executors.newSingleThreadExecutor(runnable -> {
+    final Thread thread = new Thread(runnable, "boolean-query-planner-statistics");
+    thread.setDaemon(true);
+    return thread;
+  });
+
+  /**
+   * Supplies the {@link DBSelector}s used to gather statistics.
+   */
+  private final DBSelectorSupplier selectorSupply;
+
+  /**
+   * Name of the entity the conditions refer to.
+   */
+  private final String entity;
+
+  /**
+   * Minimum time between two gatherings of the statistics of a column that has been written to, in milliseconds.
+   */
+  private final long refreshInterval;
+
+  /**
+   * Key of the statistics of a column.
+   */
+  private record StatisticsKey(String entity, String column) {
+
+  }
+
+  /**
+   * Statistics along with the version of the entity (see {@link EntityWriteStatistics#version(String)}) and the time they were gathered at.
+   */
+  private record VersionedStatistics(ColumnStatistics statistics, long version, long gathered) {
+
+  }
+
+  /**
+   * Statistics of a single column.
+   */
+  private static final class ColumnStatistics {
+
+    /**
+     * Number of rows with a value in the column.
+     */
+    private final long rows;
+
+    /**
+     * Number of distinct values in the column.
+     */
+    private final int distinct;
+
+    /**
+     * Number of occurrences per value; null if there are more than {@link #MAX_HISTOGRAM_SIZE} distinct values.
+     */
+    private final Map<String, Integer> histogram;
+
+    private ColumnStatistics(Map<String, Integer> counts) {
+      this.rows = counts.values().stream().mapToLong(Integer::longValue).sum();
+      this.distinct = counts.size();
+      this.histogram = counts.size() <= MAX_HISTOGRAM_SIZE ? counts : null;
+    }
+  }
+
+  /**
+   * Constructor for {@link BooleanQueryPlanner}.
+   *
+   * @param selectorSupply Supplies the {@link DBSelector}s used to gather statistics in the background.
+   * @param entity         Name of the entity the conditions refer to.
+   */
+  public BooleanQueryPlanner(DBSelectorSupplier selectorSupply, String entity) {
+    this(selectorSupply, entity, DEFAULT_REFRESH_INTERVAL_MS);
+  }
+
+  /**
+   * Constructor for {@link BooleanQueryPlanner}.
+   *
+   * @param selectorSupply  Supplies the {@link DBSelector}s used to gather statistics in the background.
+   * @param entity          Name of the entity the conditions refer to.
+   * @param refreshInterval Minimum time between two gatherings of the statistics of a column that has been written to, in milliseconds.
+   */
+  BooleanQueryPlanner(DBSelectorSupplier selectorSupply, String entity, long refreshInterval) {
+    this.selectorSupply = selectorSupply;
+    this.entity = entity;
+    this.refreshInterval = refreshInterval;
+  }
+
+  /**
+   * Orders the provided conditions by their estimated selectivity, most selective condition first. Conditions with equal estimates keep their relative order.
+   *
+   * @param conditions The conditions, which are linked by AND.
+   * @return Ordered list of conditions.
+   */
+  public List<Triple<String, RelationalOperator, List<PrimitiveTypeProvider>>> plan(List<Triple<String, RelationalOperator, List<PrimitiveTypeProvider>>> conditions) {
+    if (conditions.size() < 2) {
+      return conditions;
+    }
+    final double[] selectivities = conditions.stream().mapToDouble(this::estimateSelectivity).toArray();
+    final List<Triple<String, RelationalOperator, List<PrimitiveTypeProvider>>> plan = IntStream.range(0, conditions.size()).boxed()
+        .sorted(Comparator.comparingDouble(i -> selectivities[i]))
+        .map(conditions::get)
+        .collect(Collectors.toList());
+    LOGGER.trace("Planned conjunction on {}: {} (selectivities {})", this.entity, plan, selectivities);
+    return plan;
+  }
+
+  /**
+   * Estimates the fraction of rows that satisfy the provided condition. The estimate is exact (up to stale statistics) for columns with at most {@link #MAX_HISTOGRAM_SIZE} distinct values.
+   *
+   * @param condition The condition (column, operator, values).
+   * @return Estimated selectivity between 0 and 1.
+   */
+  public double estimateSelectivity(Triple<String, RelationalOperator, List<PrimitiveTypeProvider>> condition) {
+    final ColumnStatistics statistics = this.statistics(condition.getLeft());
+    if (statistics.rows == 0) {
+      return defaultSelectivity(condition.getMiddle(), condition.getRight());
+    }
+
+    /* Evaluate the condition on the histogram. A value that does not occur at all may have been added since the statistics were gathered, hence the lower bound. */
+    if (statistics.histogram != null) {
+      final Optional<Predicate<PrimitiveTypeProvider>> predicate = compile(condition);
+      if (predicate.isPresent()) {
+        long matches = 0;
+        for (Map.Entry<String, Integer> entry : statistics.histogram.entrySet()) {
+          if (predicate.get().test(entry.getKey() == null ? null : new StringTypeProvider(entry.getKey()))) {
+            matches += entry.getValue();
+          }
+        }
+        return Math.max(matches, 0.5) / statistics.rows;
+      }
+    }
+
+    /* Assume uniformly distributed values otherwise. */
+    final double equality = 1.0 / Math.max(1, statistics.distinct);
+    switch (condition.getMiddle()) {
+      case EQ:
+        return equality;
+      case NEQ:
+        return 1.0 - equality;
+      case IN:
+        return Math.min(1.0, condition.getRight().size() * equality);
+      default:
+        return defaultSelectivity(condition.getMiddle(), condition.getRight());
+    }
+  }
+
+  /**
+   * Compiles the provided condition into a {@link Predicate} that approximates it on a single value, as used to estimate selectivities on the histograms, whose values are strings regardless of the type of the column. The semantics follow SQL, i.e. comparisons with a missing value are false. Values are compared numerically if either side is numeric and both can be interpreted as number, and lexicographically otherwise.
+   * <p>
+   * Since the result may differ from the database's (e.g. for LIKE, whose case sensitivity and escaping depend on the database, or for values of different types), the predicate must not be used to evaluate conditions; use {@link #compileExact(Triple)} instead.
+   *
+   * @param condition The condition (column, operator, values).
+   * @return {@link Predicate} or an empty {@link Optional}, if the condition cannot be approximated.
+   */
+  public static Optional<Predicate<PrimitiveTypeProvider>> compile(Triple<String, RelationalOperator, List<PrimitiveTypeProvider>> condition) {
+    final List<PrimitiveTypeProvider> values = condition.getRight();
+    final RelationalOperator operator = condition.getMiddle();
+    switch (operator) {
+      case ISNULL:
+        return Optional.of(BooleanQueryPlanner::isNull);
+      case ISNOTNULL:
+        return Optional.of(v -> !isNull(v));
+      case MATCH:
+        return Optional.empty();
+      default:
+        break;
+    }
+    if (values.isEmpty() || (operator == RelationalOperator.BETWEEN && values.size() < 2)) {
+      return Optional.empty();
+    }
+    final PrimitiveTypeProvider first = values.get(0);
+    switch (operator) {
+      case EQ:
+        return Optional.of(v -> !isNull(v) && compare(v, first) == 0);
+      case NEQ:
+        return Optional.of(v -> !isNull(v) && compare(v, first) != 0);
+      case GEQ:
+        return Optional.of(v -> !isNull(v) && compare(v, first) >= 0);
+      case LEQ:
+        return Optional.of(v -> !isNull(v) && compare(v, first) <= 0);
+      case GREATER:
+        return Optional.of(v -> !isNull(v) && compare(v, first) > 0);
+      case LESS:
+        return Optional.of(v -> !isNull(v) && compare(v, first) < 0);
+      case BETWEEN:
+        final PrimitiveTypeProvider second = values.get(1);
+        return Optional.of(v -> !isNull(v) && compare(v, first) >= 0 && compare(v, second) <= 0);
+      case IN:
+        return Optional.of(v -> !isNull(v) && values.stream().anyMatch(value -> compare(v, value) == 0));
+      case LIKE:
+      case NLIKE:
+        final Pattern pattern = toPattern(first.getString());
+        final boolean negate = operator == RelationalOperator.NLIKE;
+        return Optional.of(v -> !isNull(v) && pattern.matcher(v.getString()).matches() != negate);
+      default:
+        return Optional.empty();
+    }
+  }
+
+  /**
+   * Compiles the provided condition into a {@link Predicate} that evaluates it on a single value client-side exactly as the database does, for those values accepted by {@link #isExact(PrimitiveTypeProvider, Triple)}. Only comparisons whose semantics do not depend on the database are supported: Equality (EQ, NEQ, IN) of numbers, strings and booleans and the order (GEQ, LEQ, GREATER, LESS, BETWEEN) of numbers. Comparisons with a missing value are false.
+   *
+   * @param condition The condition (column, operator, values).
+   * @return {@link Predicate} or an empty {@link Optional}, if the condition must be evaluated by the database.
+   */
+  public static Optional<Predicate<PrimitiveTypeProvider>> compileExact(Triple<String, RelationalOperator, List<PrimitiveTypeProvider>> condition) {
+    final List<PrimitiveTypeProvider> values = condition.getRight();
+    final RelationalOperator operator = condition.getMiddle();
+    if (values.isEmpty() || (operator == RelationalOperator.BETWEEN && values.size() < 2)) {
+      return Optional.empty();
+    }
+    final Category category = Category.of(values.get(0));
+    if (category == null || values.stream().anyMatch(v -> Category.of(v) != category)) {
+      return Optional.empty();
+    }
+    final PrimitiveTypeProvider first = values.get(0);
+    switch (operator) {
+      case EQ:
+        return Optional.of(v -> !isNull(v) && category.equal(v, first));
+      case NEQ:
+        return Optional.of(v -> !isNull(v) && !category.equal(v, first));
+      case IN:
+        return Optional.of(v -> !isNull(v) && values.stream().anyMatch(value -> category.equal(v, value)));
+      default:
+        break;
+    }
+    if (category != Category.NUMBER) {
+      return Optional.empty();
+    }
+    switch (operator) {
+      case GEQ:
+        return Optional.of(v -> !isNull(v) && compareNumbers(v, first) >= 0);
+      case LEQ:
+        return Optional.of(v -> !isNull(v) && compareNumbers(v, first) <= 0);
+      case GREATER:
+        return Optional.of(v -> !isNull(v) && compareNumbers(v, first) > 0);
+      case LESS:
+        return Optional.of(v -> !isNull(v) && compareNumbers(v, first) < 0);
+      case BETWEEN:
+        final PrimitiveTypeProvider second = values.get(1);
+        return Optional.of(v -> !isNull(v) && compareNumbers(v, first) >= 0 && compareNumbers(v, second) <= 0);
+      default:
+        return Optional.empty();
+    }
+  }
+
+  /**
+   * Checks whether the {@link Predicate} obtained by {@link #compileExact(Triple)} evaluates the provided condition on the provided value exactly as the database does, which is the case for missing values and values of the same kind (number, string or boolean) as the condition's values. For values of another kind, the result depends on the database's type coercion and the condition must be evaluated by the database.
+   *
+   * @param value     The value; may be null.
+   * @param condition The condition (column, operator, values).
+   * @return True, if the predicate's result is exact.
+   */
+  public static boolean isExact(PrimitiveTypeProvider value, Triple<String, RelationalOperator, List<PrimitiveTypeProvider>> condition) {
+    return isNull(value) || (!condition.getRight().isEmpty() && Category.of(value) == Category.of(condition.getRight().get(0)));
+  }
+
+  /**
+   * Returns the statistics for the given column. Missing statistics, and statistics of an entity that has been written to since they were gathered more than {@link #refreshInterval} ago, are gathered in the background; until they are available, the current (or empty) statistics are used.
+   */
+  private ColumnStatistics statistics(String column) {
+    final StatisticsKey key = new StatisticsKey(this.entity, column);
+    final VersionedStatistics current = STATISTICS.get(key);
+    if (current == null) {
+      this.gather(key);
+      return EMPTY;
+    }
+    if (System.currentTimeMillis() - current.gathered() >= this.refreshInterval && current.version() != EntityWriteStatistics.version(this.entity)) {
+      this.gather(key);
+    }
+    return current.statistics();
+  }
+
+  /**
+   * Gathers the statistics for the given column in the background, unless they are being gathered already. If gathering fails, empty statistics are registered so that the failure is not repeated before the next refresh.
+   *
+   * @return Future that completes once the statistics have been gathered.
+   */
+  private CompletableFuture<Void> gather(StatisticsKey key) {
+    final CompletableFuture<Void> gathering = new CompletableFuture<>();
+    final CompletableFuture<Void> pending = GATHERING.putIfAbsent(key, gathering);
+    if (pending != null) {
+      return pending;
+    }
+    GATHERER.execute(() -> {
+      final long version = EntityWriteStatistics.version(this.entity);
+      ColumnStatistics statistics = EMPTY;
+      try {
+        final DBSelector selector = this.selectorSupply.get();
+        try {
+          selector.open(this.entity);
+          statistics = new ColumnStatistics(selector.countDistinctValues(key.column()));
+          LOGGER.debug("Gathered statistics for column {} of {}: {} rows, {} distinct values.", key.column(), this.entity, statistics.rows, statistics.distinct);
+        } finally {
+          selector.close();
+        }
+      } catch (RuntimeException e) {
+        LOGGER.warn("Failed to gather statistics for column {} of {}: {}", key.column(), this.entity, e.getMessage());
+      } finally {
+        STATISTICS.put(key, new VersionedStatistics(statistics, version, System.currentTimeMillis()));
+        GATHERING.remove(key, gathering);
+        gathering.complete(null);
+      }
+    });
+    return gathering;
+  }
+
+  /**
+   * Gathers the statistics for the given columns unless they are available, and waits for them as well as for pending refreshes. Used by tests and to warm up the planner.
+   *
+   * @param columns The columns.
+   */
+  public void awaitStatistics(String... columns) {
+    for (String column : columns) {
+      final StatisticsKey key = new StatisticsKey(this.entity, column);
+      final CompletableFuture<Void> pending = STATISTICS.containsKey(key) ? GATHERING.get(key) : this.gather(key);
+      if (pending != null) {
+        pending.join();
+      }
+    }
+  }
+
+  /**
+   * Default selectivities used in the absence of statistics.
+   */
+  private static double defaultSelectivity(RelationalOperator operator, List<PrimitiveTypeProvider> values) {
+    switch (operator) {
+      case EQ:
+        return 0.05;
+      case IN:
+        return Math.min(1.0, 0.05 * values.size());
+      case NEQ:
+      case ISNOTNULL:
+        return 0.95;
+      case ISNULL:
+        return 0.05;
+      case BETWEEN:
+        return 0.25;
+      case GEQ:
+      case LEQ:
+      case GREATER:
+      case LESS:
+        return 1.0 / 3.0;
+      case LIKE:
+        return values.isEmpty() || values.get(0).getString().matches("[^%_]*") ? 0.05 : 0.25;
+      case NLIKE:
+        return 0.75;
+      default:
+        return 0.1;
+    }
+  }
+
+  private static boolean isNull(PrimitiveTypeProvider value) {
+    return value == null || value.getType() == ProviderDataType.UNKNOWN;
+  }
+
+  /**
+   * Kinds of values that are compared alike by all databases.
+   */
+  private enum Category {
+    NUMBER, STRING, BOOLEAN;
+
+    /**
+     * @return The kind of the value or null, if it is missing or of another kind.
+     */
+    private static Category of(PrimitiveTypeProvider value) {
+      if (isNull(value)) {
+        return null;
+      }
+      if (isNumeric(value.getType())) {
+        return NUMBER;
+      }
+      switch (value.getType()) {
+        case STRING:
+          return STRING;
+        case BOOLEAN:
+          return BOOLEAN;
+        default:
+          return null;
+      }
+    }
+
+    private boolean equal(PrimitiveTypeProvider value, PrimitiveTypeProvider reference) {
+      switch (this) {
+        case NUMBER:
+          return compareNumbers(value, reference) == 0;
+        case STRING:
+          return value.getString().equals(reference.getString());
+        default:
+          return value.getBoolean() == reference.getBoolean();
+      }
+    }
+  }
+
+  /**
+   * Compares two numbers; integral numbers are compared as long so as not to lose precision.
+   */
+  private static int compareNumbers(PrimitiveTypeProvider value, PrimitiveTypeProvider reference) {
+    if (isIntegral(value.getType()) && isIntegral(reference.getType())) {
+      return Long.compare(value.getLong(), reference.getLong());
+    }
+    return Double.compare(toDouble(value) + 0.0, toDouble(reference) + 0.0);
+  }
+
+  private static boolean isIntegral(ProviderDataType type) {
+    return type == ProviderDataType.BYTE || type == ProviderDataType.SHORT || type == ProviderDataType.INT || type == ProviderDataType.LONG;
+  }
+
+  /**
+   * Compares two values numerically, if either is numeric and both can be interpreted as number, and lexicographically otherwise.
+   */
+  private static int compare(PrimitiveTypeProvider value, PrimitiveTypeProvider reference) {
+    if (isNumeric(value.getType()) || isNumeric(reference.getType())) {
+      final double a = toDouble(value);
+      final double b = toDouble(reference);
+      if (!Double.isNaN(a) && !Double.isNaN(b)) {
+        return a < b ? -1 : (a > b ? 1 : 0);
+      }
+    }
+    return value.getString().compareTo(reference.getString());
+  }
+
+  private static boolean isNumeric(ProviderDataType type) {
+    switch (type) {
+      case BYTE:
+      case SHORT:
+      case INT:
+      case LONG:
+      case FLOAT:
+      case DOUBLE:
+        return true;
+      default:
+        return false;
+    }
+  }
+
+  /**
+   * Converts the value into a double; returns NaN if it cannot be interpreted as number.
+   */
+  private static double toDouble(PrimitiveTypeProvider value) {
+    switch (value.getType()) {
+      case BYTE:
+        return value.getByte();
+      case SHORT:
+        return value.getShort();
+      case INT:
+        return value.getInt();
+      case LONG:
+        return value.getLong();
+      case FLOAT:
+        return value.getFloat();
+      case DOUBLE:
+        return value.getDouble();
+      case STRING:
+        try {
+          return Double.parseDouble(value.getString());
+        } catch (NumberFormatException e) {
+          return Double.NaN;
+        }
+      default:
+        return Double.NaN;
+    }
+  }
+
+  /**
+   * Converts an SQL LIKE pattern into a regular expression.
+   */
+  private static Pattern toPattern(String like) {
+    final StringBuilder regex = new StringBuilder();
+    final StringBuilder literal = new StringBuilder();
+    for (char c : like.toCharArray()) {
+      if (c == '%' || c == '_') {
+        if (literal.length() > 0) {
+          regex.append(Pattern.quote(literal.toString()));
+          literal.setLength(0);
+        }
+        regex.append(c == '%' ? ".*" : ".");
+      } else {
+        literal.append(c);
+      }
+    }
+    if (literal.length() > 0) {
+      regex.append(Pattern.quote(literal.toString()));
+    }
+    return Pattern.compile(regex.toString(), Pattern.DOTALL);
+  }
+}
@@ -11,7 +11,10 @@
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Optional;
 import java.util.Set;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
 import java.util.stream.Collectors;
 import org.apache.commons.lang3.compare.ObjectToStringComparator;
 import org.apache.commons.lang3.tuple.Triple;
@@ -80,6 +83,30 @@ default <T extends DistanceElement> List<T> getNearestNeighboursGeneric(int k, P
    */
   <T extends DistanceElement> List<T> getBatchedNearestNeighbours(int k, List<float[]> vectors, String column, Class<T> distanceElementClass, List<ReadableQueryConfig> queryConfigs);
 
+  /**
+   * Performs a kNN-search with multiple query vectors and combines the hits per id. That is, the {@code k} nearest neighbours of every query vector whose distance does not exceed {@code threshold} are aggregated per id using the provided {@link NearestNeighbourAggregation}. Every id hit by at least one query vector is returned exactly once, i.e. the result contains the same ids as the individual kNN-searches.
+   * <p>
+   * The default implementation issues one kNN-search per query vector and aggregates the hits in primitive arrays; storage engines that can evaluate all query vectors in a single pass or concurrently should override it.
+   *
+   * @param k                    maximum number of results per query vector
+   * @param vectors              list of query vectors
+   * @param column               feature column to do the nns on
+   * @param distanceElementClass class of the {@link DistanceElement} type (e.g., {@link SegmentDistanceElement}
+   * @param queryConfigs         query configs, one per query vector
+   * @param aggregation          the {@link NearestNeighbourAggregation} used to combine the hits of an id
+   * @param threshold            hits with a larger distance are ignored; use {@link Double#POSITIVE_INFINITY} to consider all hits
+   * @param <T>                  The type T of the resulting <T> type of the {@link DistanceElement}.
+   * @return a list of distinct ids (at most k per query vector) with their aggregated distance, sorted by ascending distance
+   */
+  default <T extends DistanceElement> List<T> getAggregatedNearestNeighbours(int k, List<float[]> vectors, String column, Class<T> distanceElementClass, List<ReadableQueryConfig> queryConfigs, NearestNeighbourAggregation aggregation, double threshold) {
+    final NearestNeighbourAggregator aggregator = new NearestNeighbourAggregator(aggregation, threshold);
+    for (int i = 0; i < vectors.size(); i++) {
+      queryConfigs.get(i).checkDeadline();
+      aggregator.addAll(this.getNearestNeighboursGeneric(k, vectors.get(i), column, distanceElementClass, queryConfigs.get(i)));
+    }
+    return aggregator.top(aggregator.size(), distanceElementClass);
+  }
+
   /**
    * In contrast to {@link #getNearestNeighboursGeneric(int, float[], String, Class, ReadableQueryConfig)}, this method returns all columns per result row
    */
@@ -169,6 +196,8 @@ default List<Map<String, PrimitiveTypeProvider>> getRows(String column, Relation
 
   /**
    * Performs a boolean lookup based on multiple conditions, linked with AND. Each element of the list specifies one of the conditions - left middle right, i.e. id IN (1, 5, 7)
+   * <p>
+   * Conditions are evaluated in the provided order, which should put the most selective condition first (see {@link BooleanQueryPlanner}). The default implementation executes the first condition and, if the number of candidates is small enough, fetches the rows of the candidates with a single IN query and evaluates the remaining conditions on them client-side, as far as the result does not depend on the database (see {@link BooleanQueryPlanner#compileExact(Triple)}). Otherwise, the remaining conditions are executed one by one and the identifiers are intersected.
    *
    * @param conditions  conditions which will be linked by AND
    * @param identifier  column upon which the retain operation will be performed if the database layer does not support compound boolean retrieval.
@@ -176,24 +205,59 @@ default List<Map<String, PrimitiveTypeProvider>> getRows(String column, Relation
    * @param queryConfig query config
    */
   default List<Map<String, PrimitiveTypeProvider>> getRowsAND(List<Triple<String, RelationalOperator, List<PrimitiveTypeProvider>>> conditions, String identifier, List<String> projection, ReadableQueryConfig queryConfig) {
-    HashMap<String, Map<String, PrimitiveTypeProvider>> relevant = new HashMap<>();
-    for (Triple<String, RelationalOperator, List<PrimitiveTypeProvider>> condition : conditions) {
-      List<Map<String, PrimitiveTypeProvider>> rows = this.getRows(condition.getLeft(), condition.getMiddle(), condition.getRight(), queryConfig);
-      if (rows.isEmpty()) {
-        return Collections.emptyList();
-      }
-      Set<String> ids = rows.stream().map(x -> x.get(identifier).getString()).collect(Collectors.toSet());
-
-      if (relevant.size() == 0) {
-        rows.forEach(map -> relevant.put(map.get(identifier).getString(), map));
-      } else {
-        relevant.keySet().retainAll(ids);
-      }
+    if (conditions.isEmpty()) {
+      return Collections.emptyList();
     }
+    final Triple<String, RelationalOperator, List<PrimitiveTypeProvider>> first = conditions.get(0);
+    final HashMap<String, Map<String, PrimitiveTypeProvider>> relevant = new HashMap<>();
+    this.getRows(first.getLeft(), first.getMiddle(), first.getRight(), queryConfig).forEach(map -> relevant.put(map.get(identifier).getString(), map));
     if (relevant.isEmpty()) {
       return Collections.emptyList();
     }
 
+    /* Restricted evaluation: a single IN query for the rows of the candidates, remaining conditions whose result does not depend on the database are checked client-side. */
+    List<Triple<String, RelationalOperator, List<PrimitiveTypeProvider>>> remaining = conditions.subList(1, conditions.size());
+    final List<Predicate<PrimitiveTypeProvider>> predicates = remaining.stream().map(BooleanQueryPlanner::compileExact).flatMap(Optional::stream).collect(Collectors.toList());
+    if (!remaining.isEmpty() && predicates.size() == remaining.size() && relevant.size() <= BooleanQueryPlanner.MAX_RESTRICTED_CANDIDATES) {
+      final List<PrimitiveTypeProvider> candidates = relevant.values().stream().map(map -> map.get(identifier)).collect(Collectors.toList());
+      final List<Set<String>> satisfied = remaining.stream().<Set<String>>map(c -> new HashSet<>()).collect(Collectors.toList());
+      final boolean[] undecided = new boolean[remaining.size()];
+      for (Map<String, PrimitiveTypeProvider> row : this.getRows(identifier, candidates, null)) {
+        final String id = row.get(identifier).getString();
+        for (int i = 0; i < remaining.size(); i++) {
+          final PrimitiveTypeProvider value = row.get(remaining.get(i).getLeft());
+          if (!BooleanQueryPlanner.isExact(value, remaining.get(i))) {
+            undecided[i] = true;
+          } else if (predicates.get(i).test(value)) {
+            satisfied.get(i).add(id);
+          }
+        }
+      }
+
+      /* Conditions that could not be decided for some row are left to the database. */
+      final List<Triple<String, RelationalOperator, List<PrimitiveTypeProvider>>> undecidedConditions = new ArrayList<>();
+      for (int i = 0; i < remaining.size(); i++) {
+        if (undecided[i]) {
+          undecidedConditions.add(remaining.get(i));
+        } else {
+          relevant.keySet().retainAll(satisfied.get(i));
+        }
+      }
+      remaining = undecidedConditions;
+      if (relevant.isEmpty()) {
+        return Collections.emptyList();
+      }
+    }
+
+    /* Separate evaluation of the remaining conditions. */
+    for (Triple<String, RelationalOperator, List<PrimitiveTypeProvider>> condition : remaining) {
+      List<Map<String, PrimitiveTypeProvider>> rows = this.getRows(condition.getLeft(), condition.getMiddle(), condition.getRight(), queryConfig);
+      Set<String> ids = rows.stream().map(x -> x.get(identifier).getString()).collect(Collectors.toSet());
+      relevant.keySet().retainAll(ids);
+      if (relevant.isEmpty()) {
+        return Collections.emptyList();
+      }
+    }
     return new ArrayList<>(relevant.values());
   }
 
@@ -215,7 +279,7 @@ default List<PrimitiveTypeProvider> getUniqueValues(String column) {
    */
   default Map<String, Integer> countDistinctValues(String column) {
     Map<String, Integer> count = new HashMap<>();
-    this.getAll(Collections.singletonList(column), -1).forEach(el -> count.compute(el.get(column).getString(), (k, v) -> v == null ? 1 : v++));
+    this.getAll(Collections.singletonList(column), -1).forEach(el -> count.compute(el.get(column).getString(), (k, v) -> v == null ? 1 : v + 1));
     return count;
   }
 
@@ -299,6 +363,16 @@ default List<Map<String, PrimitiveTypeProvider>> getAll(List<String> columns, in
     return collect;
   }
 
+  /**
+   * Streams the given columns of all rows to the consumer (SELECT columns FROM table), such that large entities can be processed without holding all their rows in memory. The default implementation materializes the rows with {@link #getAll(List, int)}; storage engines that can stream their results should override it.
+   *
+   * @param columns  The columns to select.
+   * @param consumer Consumer invoked for every row.
+   */
+  default void forEachRow(List<String> columns, Consumer<Map<String, PrimitiveTypeProvider>> consumer) {
+    this.getAll(columns, -1).forEach(consumer);
+  }
+
   /**
    * SELECT * FROM entity ORDER BY order ASC LIMIT limit SKIP skip
    * <br>
@@ -66,7 +66,7 @@ public DBSelectorSupplier getSelectorSupplier(DatabaseConfig config) {
       case POLYPHENY:
         return () -> new PolyphenySelector(new PolyphenyWrapper(config.getHost(), config.getPort()));
       case JSON:
-        return () -> new JsonSelector(new File(config.getHost()));
+        return () -> new JsonSelector(new File(config.getHost()), config.getHnsw(), config.getQuantization());
       default:
         throw new IllegalStateException("No supplier for " + this + " selector.");
     }
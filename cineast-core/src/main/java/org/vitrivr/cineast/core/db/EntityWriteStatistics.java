@@ -0,0 +1,311 @@
+package org.vitrivr.cineast.core.db;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * Process-wide count of the rows written to each entity by the {@link PersistencyWriter}s since the entity was last optimized. Counts are accumulated in memory and merged into a state file by {@link #flush()}, such that they survive the extraction run and can be consumed by a separate optimization run. The state file is locked while it is updated, hence several processes may share it.
+ * <p>
+ * The state file is kept in the directory passed to {@link #configure(Path)} (see {@link org.vitrivr.cineast.core.config.DatabaseConfig#getStateDirectory()}) or at the location given by the system property {@value #STATE_FILE_PROPERTY}. If neither is set, the counts are kept in memory only and are not shared with other processes.
+ * <p>
+ * In addition, the state file keeps the total number of rows ever written to each entity, which is never reset. Together with the rows written by this process, it forms the {@link #version(String)} of the entity, by which in-memory structures derived from the entity detect writes of any process (see {@link IndexRegistry}).
+ */
+public final class EntityWriteStatistics {
+
+  private static final Logger LOGGER = LogManager.getLogger();
+
+  /**
+   * Name of the system property that overrides the location of the state file.
+   */
+  public static final String STATE_FILE_PROPERTY = "cineast.entityWrites";
+
+  /**
+   * Name of the state file within the configured state directory.
+   */
+  public static final String STATE_FILE_NAME = "entity-writes.properties";
+
+  /**
+   * Directory of the state file; null if none has been configured.
+   */
+  private static volatile Path directory = null;
+
+  /**
+   * Rows written in this process that have not been merged into the state file yet, keyed by entity.
+   */
+  private static final Map<String, LongAdder> UNFLUSHED = new ConcurrentHashMap<>();
+
+  /**
+   * Rows written in this process since it was started, keyed by entity; never reset.
+   */
+  private static final Map<String, LongAdder> WRITTEN = new ConcurrentHashMap<>();
+
+  /**
+   * Time in milliseconds after which the state file is checked for writes of other processes again.
+   */
+  private static final long REMOTE_CHECK_INTERVAL_MS = 1000L;
+
+  /**
+   * Rows written in this process that have been merged into the state file, keyed by entity. Guarded by the class lock.
+   */
+  private static final Map<String, Long> FLUSHED = new HashMap<>();
+
+  /**
+   * Rows written by other processes as last read from the state file.
+   */
+  private static volatile Remote remote = new Remote(Map.of(), Long.MIN_VALUE, Long.MIN_VALUE);
+
+  /**
+   * Rows written to each entity by other processes, along with the modification time of the state file they were read from and the time of the last check.
+   */
+  private record Remote(Map<String, Long> written, long modified, long checked) {
+
+  }
+
+  private EntityWriteStatistics() {
+  }
+
+  /**
+   * Sets the directory the state file is kept in, which is created if necessary. The system property {@value #STATE_FILE_PROPERTY} takes precedence over the directory.
+   *
+   * @param directory Directory of the state file; null to keep the counts in memory only.
+   */
+  public static synchronized void configure(Path directory) {
+    if (directory != null) {
+      try {
+        Files.createDirectories(directory);
+      } catch (IOException e) {
+        LOGGER.warn("Failed to create state directory {}; entity write statistics are kept in memory only: {}", directory, e.getMessage());
+        directory = null;
+      }
+    }
+    EntityWriteStatistics.directory = directory;
+    remote = new Remote(Map.of(), Long.MIN_VALUE, Long.MIN_VALUE);
+  }
+
+  /**
+   * Returns true if the counts are shared with other processes through a state file, i.e. if {@link #pending()} includes rows written by other processes.
+   */
+  public static boolean isShared() {
+    return stateFile() != null;
+  }
+
+  /**
+   * Records that rows have been written to an entity.
+   *
+   * @param entity Name of the entity.
+   * @param rows   Number of rows written.
+   */
+  public static void record(String entity, long rows) {
+    if (entity != null && rows > 0) {
+      UNFLUSHED.computeIfAbsent(entity, e -> new LongAdder()).add(rows);
+      WRITTEN.computeIfAbsent(entity, e -> new LongAdder()).add(rows);
+    }
+  }
+
+  /**
+   * Returns the number of rows written to an entity by this process since it was started. Unlike {@link #pending()}, the count is neither shared between processes nor reset, hence it tells whether data derived from the entity is still current.
+   *
+   * @param entity Name of the entity.
+   * @return Number of rows written.
+   */
+  public static long written(String entity) {
+    final LongAdder rows = WRITTEN.get(entity);
+    return rows == null ? 0L : rows.sum();
+  }
+
+  /**
+   * Returns the version of an entity, i.e. the number of rows ever written to it by this process and by the processes that shared their counts through the state file. The version changes with every write, immediately for writes of this process and within {@link #REMOTE_CHECK_INTERVAL_MS} of the flush for writes of other processes.
+   *
+   * @param entity Name of the entity.
+   * @return Version of the entity.
+   */
+  public static long version(String entity) {
+    Remote current = remote;
+    if (System.currentTimeMillis() - current.checked() >= REMOTE_CHECK_INTERVAL_MS) {
+      current = refresh();
+    }
+    return written(entity) + current.written().getOrDefault(entity, 0L);
+  }
+
+  /**
+   * Merges the counts recorded in this process into the state file.
+   */
+  public static void flush() {
+    if (stateFile() == null || UNFLUSHED.values().stream().allMatch(rows -> rows.sum() == 0)) {
+      return;
+    }
+    update(counts -> {
+      /* Merging the counts of this process is all there is to do. */
+    });
+  }
+
+  /**
+   * Returns the number of rows written to each entity since it was last {@link #reset(String, long)}, including rows recorded by other processes.
+   *
+   * @return Map of entity names to row counts.
+   */
+  public static Map<String, Long> pending() {
+    final Map<String, Long> pending = new HashMap<>();
+    update(pending::putAll);
+    return pending;
+  }
+
+  /**
+   * Subtracts rows from the count of an entity, usually after the entity has been optimized. Only the rows observed before the optimization should be subtracted, so rows written concurrently are still counted afterwards.
+   *
+   * @param entity Name of the entity.
+   * @param rows   Number of rows to subtract.
+   */
+  public static void reset(String entity, long rows) {
+    update(counts -> {
+      final long remaining = counts.getOrDefault(entity, 0L) - rows;
+      if (remaining > 0) {
+        counts.put(entity, remaining);
+      } else {
+        counts.remove(entity);
+      }
+    });
+  }
+
+  /**
+   * Merges the counts recorded in this process into the counts of the state file, applies the given update and writes the result back while holding an exclusive lock on the file. If there is no state file or it cannot be accessed, the update is applied to the counts of this process only, which are then kept in memory.
+   */
+  private static synchronized void update(Consumer<Map<String, Long>> update) {
+    final Map<String, Long> unflushed = new HashMap<>();
+    for (Map.Entry<String, LongAdder> entry : UNFLUSHED.entrySet()) {
+      final long rows = entry.getValue().sumThenReset();
+      if (rows > 0) {
+        unflushed.put(entry.getKey(), rows);
+      }
+    }
+    final Path path = stateFile();
+    if (path == null) {
+      updateInMemory(unflushed, update);
+      return;
+    }
+    try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE); FileLock ignored = channel.lock()) {
+      final Map<String, Long> counts = new HashMap<>();
+      final Map<String, Long> written = new HashMap<>();
+      read(channel, path, counts, written);
+      unflushed.forEach((entity, rows) -> {
+        counts.merge(entity, rows, Long::sum);
+        written.merge(entity, rows, Long::sum);
+        FLUSHED.merge(entity, rows, Long::sum);
+      });
+      update.accept(counts);
+
+      final Properties updated = new Properties();
+      written.forEach((entity, rows) -> updated.setProperty(entity, counts.getOrDefault(entity, 0L) + "," + rows));
+      final StringWriter writer = new StringWriter();
+      updated.store(writer, "Rows written per entity since its last optimization and in total");
+      channel.truncate(0);
+      channel.position(0);
+      Channels.newOutputStream(channel).write(writer.toString().getBytes(StandardCharsets.ISO_8859_1));
+      channel.force(false);
+      remote = new Remote(others(written), Files.getLastModifiedTime(path).toMillis(), System.currentTimeMillis());
+    } catch (IOException e) {
+      LOGGER.warn("Failed to update entity write statistics in {}: {}", path, e.getMessage());
+      updateInMemory(unflushed, update);
+    }
+  }
+
+  /**
+   * Applies the given update to the counts of this process only and keeps the result in memory.
+   */
+  private static void updateInMemory(Map<String, Long> unflushed, Consumer<Map<String, Long>> update) {
+    final Map<String, Long> counts = new HashMap<>(unflushed);
+    update.accept(counts);
+    counts.forEach((entity, rows) -> UNFLUSHED.computeIfAbsent(entity, key -> new LongAdder()).add(rows));
+  }
+
+  /**
+   * Re-reads the rows written by other processes from the state file, if it has been modified since it was last read.
+   */
+  private static synchronized Remote refresh() {
+    final long now = System.currentTimeMillis();
+    final Path path = stateFile();
+    if (path == null) {
+      remote = new Remote(remote.written(), remote.modified(), now);
+      return remote;
+    }
+    try {
+      final long modified = Files.exists(path) ? Files.getLastModifiedTime(path).toMillis() : Long.MIN_VALUE;
+      if (modified == remote.modified()) {
+        remote = new Remote(remote.written(), modified, now);
+        return remote;
+      }
+      try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ); FileLock ignored = channel.lock(0L, Long.MAX_VALUE, true)) {
+        final Map<String, Long> written = new HashMap<>();
+        read(channel, path, new HashMap<>(), written);
+        remote = new Remote(others(written), modified, now);
+      }
+    } catch (IOException e) {
+      LOGGER.debug("Failed to read entity write statistics from {}: {}", path, e.getMessage());
+      remote = new Remote(remote.written(), remote.modified(), now);
+    }
+    return remote;
+  }
+
+  /**
+   * Reads the rows written per entity since its last optimization and in total from the state file. Files written before the total was recorded hold a single count, which is used for both.
+   */
+  private static void read(FileChannel channel, Path path, Map<String, Long> counts, Map<String, Long> written) throws IOException {
+    final ByteBuffer buffer = ByteBuffer.allocate((int) channel.size());
+    while (buffer.hasRemaining() && channel.read(buffer) >= 0) {
+      /* Read until the buffer is full. */
+    }
+    final Properties properties = new Properties();
+    properties.load(new StringReader(new String(buffer.array(), 0, buffer.position(), StandardCharsets.ISO_8859_1)));
+    for (String entity : properties.stringPropertyNames()) {
+      final String[] values = properties.getProperty(entity).split(",");
+      try {
+        final long pending = Long.parseLong(values[0].trim());
+        if (pending > 0) {
+          counts.put(entity, pending);
+        }
+        written.put(entity, values.length > 1 ? Long.parseLong(values[1].trim()) : pending);
+      } catch (NumberFormatException e) {
+        LOGGER.warn("Ignoring malformed write count '{}' of entity {} in {}.", properties.getProperty(entity), entity, path);
+      }
+    }
+  }
+
+  /**
+   * Subtracts the rows flushed by this process from the total rows written per entity, which leaves the rows written by other processes.
+   */
+  private static Map<String, Long> others(Map<String, Long> written) {
+    final Map<String, Long> others = new HashMap<>(written.size());
+    written.forEach((entity, rows) -> others.put(entity, rows - FLUSHED.getOrDefault(entity, 0L)));
+    return others;
+  }
+
+  /**
+   * Returns the path of the state file or null, if none has been configured.
+   */
+  private static Path stateFile() {
+    final String property = System.getProperty(STATE_FILE_PROPERTY);
+    if (property != null) {
+      return Paths.get(property);
+    }
+    final Path current = directory;
+    return current == null ? null : current.resolve(STATE_FILE_NAME);
+  }
+}
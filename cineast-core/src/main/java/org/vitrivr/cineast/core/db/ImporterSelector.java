@@ -6,13 +6,18 @@
 import java.io.File;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Optional;
 import java.util.Set;
+import java.util.function.Consumer;
 import java.util.stream.Collectors;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
+import org.vitrivr.cineast.core.config.HnswConfig;
+import org.vitrivr.cineast.core.config.QuantizationConfig;
 import org.vitrivr.cineast.core.config.QueryConfig;
 import org.vitrivr.cineast.core.config.ReadableQueryConfig;
 import org.vitrivr.cineast.core.data.FixedSizePriorityQueue;
@@ -26,14 +31,35 @@
 import org.vitrivr.cineast.core.util.distance.Distance;
 import org.vitrivr.cineast.core.util.distance.FloatArrayDistance;
 import org.vitrivr.cineast.core.util.distance.PrimitiveTypeMapDistanceComparator;
+import org.vitrivr.cineast.core.util.knn.HnswIndex;
+import org.vitrivr.cineast.core.util.knn.QuantizedVectors;
 
 public abstract class ImporterSelector<T extends Importer<?>> implements DBSelector {
 
   private static final Logger LOGGER = LogManager.getLogger();
+
+  /**
+   * Full table scans check the deadline of the query whenever the number of rows read is a multiple of this mask plus one.
+   */
+  private static final int DEADLINE_CHECK_MASK = 1023;
   private final File baseDirectory;
+  /**
+   * Configuration of the {@link HnswIndex}es used for nearest neighbour queries; null if queries are answered by full table scans.
+   */
+  private final HnswConfig hnsw;
+  /**
+   * Configuration of the {@link QuantizedVectors} used for nearest neighbour queries if no {@link HnswIndex}es are configured; null if queries are answered by full table scans.
+   */
+  private final QuantizationConfig quantization;
   private File file;
   protected ImporterSelector(File baseDirectory) {
+    this(baseDirectory, null, null);
+  }
+
+  protected ImporterSelector(File baseDirectory, HnswConfig hnsw, QuantizationConfig quantization) {
     this.baseDirectory = baseDirectory;
+    this.hnsw = hnsw;
+    this.quantization = quantization;
   }
 
   @Override
@@ -58,13 +84,64 @@ public void close() {
   public <E extends DistanceElement> List<E> getNearestNeighboursGeneric(int k, PrimitiveTypeProvider queryProvider, String column, Class<E> distanceElementClass, ReadableQueryConfig queryConfig) {
     List<Map<String, PrimitiveTypeProvider>> results;
     if (queryProvider.getType().equals(ProviderDataType.FLOAT_ARRAY) || queryProvider.getType().equals(ProviderDataType.INT_ARRAY)) {
-      results = getNearestNeighbourRows(k, queryProvider.getFloatArray(), column, queryConfig);
+      final float[] vector = PrimitiveTypeProvider.getSafeFloatArray(queryProvider);
+      final Optional<HnswIndex> index = this.index(vector, column, queryConfig);
+      if (index.isPresent()) {
+        return index.get().nearest(k, vector, this.hnsw.getEfSearch(), queryConfig.getRelevantSegmentIds(), distanceElementClass);
+      }
+      final Optional<QuantizedVectors> quantized = this.quantized(vector, column, queryConfig);
+      if (quantized.isPresent()) {
+        return quantized.get().nearest(k, vector, this.quantization.getRerank(), queryConfig.getRelevantSegmentIds(), distanceElementClass);
+      }
+      results = getNearestNeighbourRows(k, vector, column, queryConfig);
     } else {
       results = getNearestNeighbourRows(k, queryProvider, column, queryConfig);
     }
     return results.stream().map(m -> DistanceElement.create(distanceElementClass, m.get(GENERIC_ID_COLUMN_QUALIFIER).getString(), m.get(DB_DISTANCE_VALUE_QUALIFIER).getDouble())).limit(k).collect(Collectors.toList());
   }
 
+  /**
+   * Returns the {@link HnswIndex} that answers nearest neighbour queries on the given column with the distance of the query, if HNSW indexes are configured and support the distance.
+   */
+  private Optional<HnswIndex> index(float[] vector, String column, ReadableQueryConfig queryConfig) {
+    if (this.hnsw == null) {
+      return Optional.empty();
+    }
+    return this.metric(queryConfig)
+        .flatMap(metric -> LocalVectorIndexes.hnsw(this.entity(), this.file, column, metric, this.hnsw, () -> newImporter(this.file)))
+        .filter(index -> index.dimensions() == vector.length);
+  }
+
+  /**
+   * Returns the {@link QuantizedVectors} that answer nearest neighbour queries on the given column with the distance of the query, if quantization (and no HNSW index) is configured and supports the distance.
+   */
+  private Optional<QuantizedVectors> quantized(float[] vector, String column, ReadableQueryConfig queryConfig) {
+    if (this.quantization == null || this.hnsw != null) {
+      return Optional.empty();
+    }
+    return this.metric(queryConfig)
+        .flatMap(metric -> LocalVectorIndexes.quantized(this.entity(), this.file, column, metric, this.quantization, () -> newImporter(this.file)))
+        .filter(vectors -> vectors.dimensions() == vector.length);
+  }
+
+  /**
+   * Returns the name of the entity held by the opened file, i.e. the name of the file without its extension.
+   */
+  private String entity() {
+    final String name = this.file.getName();
+    return name.endsWith(getFileExtension()) ? name.substring(0, name.length() - getFileExtension().length()) : name;
+  }
+
+  /**
+   * Returns the metric of the query, if the query can be answered by an in-process nearest neighbour structure.
+   */
+  private Optional<HnswIndex.Metric> metric(ReadableQueryConfig queryConfig) {
+    if (this.file == null || !this.file.isFile() || queryConfig.getDistanceWeights().isPresent()) {
+      return Optional.empty();
+    }
+    return HnswIndex.Metric.of(queryConfig.getDistance().orElse(ReadableQueryConfig.Distance.manhattan));
+  }
+
   /**
    * Full table scan. Don't do it for performance-intensive stuff.
    */
@@ -86,7 +163,11 @@ private List<Map<String, PrimitiveTypeProvider>> getNearestNeighbourRows(int k,
     }
 
     Map<String, PrimitiveTypeProvider> map;
+    int rows = 0;
     while ((map = importer.readNextAsMap()) != null) {
+      if ((++rows & DEADLINE_CHECK_MASK) == 0) {
+        config.checkDeadline();
+      }
       if (!map.containsKey(column)) {
         continue;
       }
@@ -133,11 +214,15 @@ public List<Map<String, PrimitiveTypeProvider>> getNearestNeighbourRows(int k, f
     }
 
     Map<String, PrimitiveTypeProvider> map;
+    int rows = 0;
     while ((map = importer.readNextAsMap()) != null) {
+      if ((++rows & DEADLINE_CHECK_MASK) == 0) {
+        queryConfig.checkDeadline();
+      }
       if (!map.containsKey(column)) {
         continue;
       }
-      if (relevant != null && !relevant.contains(map.get(GENERIC_ID_COLUMN_QUALIFIER))) {
+      if (relevant != null && (map.get(GENERIC_ID_COLUMN_QUALIFIER) == null || !relevant.contains(map.get(GENERIC_ID_COLUMN_QUALIFIER).getString()))) {
         continue;
       }
       double d = distance.applyAsDouble(vector, PrimitiveTypeProvider.getSafeFloatArray(map.get(column)));
@@ -158,6 +243,119 @@ public List<Map<String, PrimitiveTypeProvider>> getNearestNeighbourRows(int k, f
     return _return;
   }
 
+  /**
+   * Evaluates all query vectors in a single full table scan. Only the k nearest rows per query vector are retained (in primitive arrays) and aggregated afterwards.
+   */
+  @Override
+  public <E extends DistanceElement> List<E> getAggregatedNearestNeighbours(int k, List<float[]> vectors, String column, Class<E> distanceElementClass, List<ReadableQueryConfig> queryConfigs, NearestNeighbourAggregation aggregation, double threshold) {
+    if (!vectors.isEmpty() && (this.index(vectors.get(0), column, queryConfigs.get(0)).isPresent() || this.quantized(vectors.get(0), column, queryConfigs.get(0)).isPresent())) {
+      /* Individual index lookups are cheaper than a full table scan. */
+      return DBSelector.super.getAggregatedNearestNeighbours(k, vectors, column, distanceElementClass, queryConfigs, aggregation, threshold);
+    }
+    final int n = vectors.size();
+    final FloatArrayDistance[] distances = new FloatArrayDistance[n];
+    final List<Set<String>> relevant = new ArrayList<>(n);
+    final BoundedHeap[] heaps = new BoundedHeap[n];
+    for (int i = 0; i < n; i++) {
+      final ReadableQueryConfig queryConfig = QueryConfig.clone(queryConfigs.get(i));
+      distances[i] = FloatArrayDistance.fromQueryConfig(queryConfig);
+      relevant.add(queryConfig.hasRelevantSegmentIds() ? new HashSet<>(queryConfig.getRelevantSegmentIds()) : null);
+      heaps[i] = new BoundedHeap(k);
+    }
+
+    /* Ids of all rows that entered at least one heap; the heaps refer to them by index. */
+    final List<String> candidates = new ArrayList<>();
+    final Importer<?> importer = newImporter(this.file);
+    Map<String, PrimitiveTypeProvider> map;
+    int rows = 0;
+    while ((map = importer.readNextAsMap()) != null) {
+      if ((++rows & DEADLINE_CHECK_MASK) == 0) {
+        queryConfigs.forEach(ReadableQueryConfig::checkDeadline);
+      }
+      final PrimitiveTypeProvider value = map.get(column);
+      final PrimitiveTypeProvider id = map.get(GENERIC_ID_COLUMN_QUALIFIER);
+      if (value == null || id == null) {
+        continue;
+      }
+      final float[] feature = PrimitiveTypeProvider.getSafeFloatArray(value);
+      final String identifier = id.getString();
+      final int candidate = candidates.size();
+      boolean retained = false;
+      for (int i = 0; i < n; i++) {
+        if (relevant.get(i) != null && !relevant.get(i).contains(identifier)) {
+          continue;
+        }
+        retained |= heaps[i].offer(distances[i].applyAsDouble(vectors.get(i), feature), candidate);
+      }
+      if (retained) {
+        candidates.add(identifier);
+      }
+    }
+
+    final NearestNeighbourAggregator aggregator = new NearestNeighbourAggregator(aggregation, threshold);
+    for (BoundedHeap heap : heaps) {
+      for (int j = 0; j < heap.size; j++) {
+        aggregator.add(candidates.get(heap.candidates[j]), heap.distances[j]);
+      }
+    }
+    return aggregator.top(aggregator.size(), distanceElementClass);
+  }
+
+  /**
+   * Max-heap of the k smallest distances seen so far, along with the index of the row they belong to.
+   */
+  private static final class BoundedHeap {
+
+    private final double[] distances;
+    private final int[] candidates;
+    private int size;
+
+    private BoundedHeap(int k) {
+      this.distances = new double[Math.max(0, k)];
+      this.candidates = new int[Math.max(0, k)];
+    }
+
+    /**
+     * Offers a distance to the heap and returns true, if it was retained.
+     */
+    private boolean offer(double distance, int candidate) {
+      if (Double.isNaN(distance)) {
+        return false;
+      }
+      if (this.size < this.distances.length) {
+        int i = this.size++;
+        while (i > 0 && this.distances[(i - 1) / 2] < distance) {
+          this.distances[i] = this.distances[(i - 1) / 2];
+          this.candidates[i] = this.candidates[(i - 1) / 2];
+          i = (i - 1) / 2;
+        }
+        this.distances[i] = distance;
+        this.candidates[i] = candidate;
+        return true;
+      }
+      if (this.size == 0 || !(distance < this.distances[0])) {
+        return false;
+      }
+      int i = 0;
+      while (true) {
+        final int left = 2 * i + 1;
+        if (left >= this.size) {
+          break;
+        }
+        final int child = left + 1 < this.size && this.distances[left + 1] > this.distances[left] ? left + 1 : left;
+        if (this.distances[child] <= distance) {
+          break;
+        }
+        this.distances[i] = this.distances[child];
+        this.candidates[i] = this.candidates[child];
+        i = child;
+      }
+      this.distances[i] = distance;
+      this.candidates[i] = candidate;
+      return true;
+    }
+  }
+
   @Override
   public List<float[]> getFeatureVectors(String column, PrimitiveTypeProvider value, String vectorName, ReadableQueryConfig queryConfig) {
     ArrayList<float[]> _return = new ArrayList<>(1);
@@ -213,6 +411,21 @@ public List<Map<String, PrimitiveTypeProvider>> getAll() {
     return _return;
   }
 
+  @Override
+  public void forEachRow(List<String> columns, Consumer<Map<String, PrimitiveTypeProvider>> consumer) {
+    Importer<?> importer = newImporter(this.file);
+    Map<String, PrimitiveTypeProvider> map;
+    while ((map = importer.readNextAsMap()) != null) {
+      final Map<String, PrimitiveTypeProvider> row = new HashMap<>(columns.size());
+      for (String column : columns) {
+        if (map.containsKey(column)) {
+          row.put(column, map.get(column));
+        }
+      }
+      consumer.accept(row);
+    }
+  }
+
   @Override
   public boolean existsEntity(String name) {
     File file = new File(this.baseDirectory, name + getFileExtension());
@@ -0,0 +1,110 @@
+package org.vitrivr.cineast.core.db;
+
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+/**
+ * Process-wide registry of in-memory structures derived from the persistent layer, e.g. indexes. Every structure is registered along with the version of the data it was derived from (usually {@link EntityWriteStatistics#version(String)} of its entity) and is rebuilt on its first use after the version has changed.
+ * <p>
+ * Structures are built outside of any lock of the registry: The first caller registers a placeholder and builds the structure, while concurrent callers asking for the same structure wait for the placeholder to be completed. Callers asking for other structures are never blocked by a build.
+ */
+public final class IndexRegistry {
+
+  /**
+   * The registered structures, keyed by an arbitrary key provided by the owner of the structure.
+   */
+  private static final Map<Object, Entry> ENTRIES = new ConcurrentHashMap<>();
+
+  /**
+   * A (possibly not yet completed) structure along with the entity and the version of the data it is derived from. A structure completed with null denotes that the data cannot be indexed.
+   */
+  private record Entry(String entity, long version, CompletableFuture<Object> structure) {
+
+  }
+
+  private IndexRegistry() {
+  }
+
+  /**
+   * Returns the structure registered for the given key if it was derived from the current version of the given entity, or otherwise builds and registers it.
+   *
+   * @param key    Key of the structure; keys must be unique across all owners, which is usually ensured by using a private record type.
+   * @param entity Name of the entity the structure is derived from.
+   * @param build  Builds the structure; may return null if the entity cannot be indexed.
+   * @return The structure or an empty {@link Optional}, if it could not be built.
+   */
+  public static <T> Optional<T> lookup(Object key, String entity, Supplier<T> build) {
+    return lookup(key, entity, EntityWriteStatistics.version(entity), build);
+  }
+
+  /**
+   * Returns the structure registered for the given key if it was derived from the given version of the data, or otherwise builds and registers it.
+   *
+   * @param key     Key of the structure; keys must be unique across all owners, which is usually ensured by using a private record type.
+   * @param entity  Name of the entity the structure is derived from, used by {@link #invalidate(String)}; may be null.
+   * @param version Version of the data the structure is derived from.
+   * @param build   Builds the structure; may return null if the data cannot be indexed.
+   * @return The structure or an empty {@link Optional}, if it could not be built.
+   */
+  @SuppressWarnings("unchecked")
+  public static <T> Optional<T> lookup(Object key, String entity, long version, Supplier<T> build) {
+    while (true) {
+      final Entry current = ENTRIES.get(key);
+      if (current != null && current.version() == version) {
+        return Optional.ofNullable((T) await(current.structure()));
+      }
+
+      /* Register a placeholder; if another caller was faster, wait for its structure instead. */
+      final Entry placeholder = new Entry(entity, version, new CompletableFuture<>());
+      final boolean registered = current == null ? ENTRIES.putIfAbsent(key, placeholder) == null : ENTRIES.replace(key, current, placeholder);
+      if (!registered) {
+        continue;
+      }
+      try {
+        final T structure = build.get();
+        placeholder.structure().complete(structure);
+        return Optional.ofNullable(structure);
+      } catch (RuntimeException | Error e) {
+        ENTRIES.remove(key, placeholder);
+        placeholder.structure().completeExceptionally(e);
+        throw e;
+      }
+    }
+  }
+
+  /**
+   * Discards all structures derived from the given entity, which are then rebuilt on their next use.
+   *
+   * @param entity Name of the entity.
+   * @return Number of discarded structures.
+   */
+  public static int invalidate(String entity) {
+    int invalidated = 0;
+    for (Iterator<Entry> entries = ENTRIES.values().iterator(); entries.hasNext(); ) {
+      if (entity.equals(entries.next().entity())) {
+        entries.remove();
+        invalidated++;
+      }
+    }
+    return invalidated;
+  }
+
+  /**
+   * Waits for a structure built by another caller.
+   */
+  private static Object await(CompletableFuture<Object> structure) {
+    try {
+      return structure.join();
+    } catch (CompletionException e) {
+      if (e.getCause() instanceof RuntimeException) {
+        throw (RuntimeException) e.getCause();
+      }
+      throw e;
+    }
+  }
+}
@@ -0,0 +1,235 @@
+package org.vitrivr.cineast.core.db;
+
+import static org.vitrivr.cineast.core.util.CineastConstants.GENERIC_ID_COLUMN_QUALIFIER;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.AbstractMap.SimpleImmutableEntry;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Optional;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BiFunction;
+import java.util.function.Supplier;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.vitrivr.cineast.core.config.HnswConfig;
+import org.vitrivr.cineast.core.config.QuantizationConfig;
+import org.vitrivr.cineast.core.data.providers.primitive.PrimitiveTypeProvider;
+import org.vitrivr.cineast.core.importer.Importer;
+import org.vitrivr.cineast.core.util.knn.HnswIndex;
+import org.vitrivr.cineast.core.util.knn.QuantizedVectors;
+
+/**
+ * Process-wide nearest neighbour structures ({@link HnswIndex}es and {@link QuantizedVectors}) over the vector columns of file-based entities, as read by an {@link ImporterSelector}. A structure is built on first use, persisted next to the file (or in the configured directory) and loaded from there by later processes. Structures are rebuilt whenever the file changes.
+ * <p>
+ * The structures are registered in the {@link IndexRegistry}, hence a build only blocks queries waiting for the same structure and {@link IndexRegistry#invalidate(String)} discards the structures of an entity.
+ */
+final class LocalVectorIndexes {
+
+  private static final Logger LOGGER = LogManager.getLogger();
+
+  /**
+   * Number of vectors handed to an insertion thread at once.
+   */
+  private static final int BATCH_SIZE = 256;
+
+  /**
+   * Key of a structure in the {@link IndexRegistry}: file, column, metric and kind of structure.
+   */
+  private record Key(String file, String column, HnswIndex.Metric metric, String kind) {
+
+  }
+
+  private LocalVectorIndexes() {
+  }
+
+  /**
+   * Returns the {@link HnswIndex} of the given column, loading, building or rebuilding it if necessary.
+   *
+   * @param entity   Name of the entity.
+   * @param file     The file holding the entity.
+   * @param column   Name of the vector column.
+   * @param metric   The {@link HnswIndex.Metric} of the index.
+   * @param config   The {@link HnswConfig}.
+   * @param importer Supplier of an {@link Importer} reading the file from the start.
+   * @return The {@link HnswIndex} or an empty {@link Optional}, if the column holds no vectors.
+   */
+  static Optional<HnswIndex> hnsw(String entity, File file, String column, HnswIndex.Metric metric, HnswConfig config, Supplier<Importer<?>> importer) {
+    return lookup(entity, file, column, metric, "hnsw", config.getDirectory(), (path, stamp) -> {
+      final Optional<HnswIndex> loaded = HnswIndex.load(path, stamp);
+      if (loaded.isPresent()) {
+        LOGGER.debug("Loaded HNSW index {} with {} vectors.", path, loaded.get().size());
+        return loaded.get();
+      }
+      final HnswIndex index = build(importer.get(), column, metric, config);
+      if (index != null) {
+        try {
+          index.save(path, stamp);
+        } catch (IOException e) {
+          LOGGER.warn("Failed to persist HNSW index {}: {}", path, e.getMessage());
+        }
+      }
+      return index;
+    }).map(HnswIndex.class::cast);
+  }
+
+  /**
+   * Returns the {@link QuantizedVectors} of the given column, loading, building or rebuilding them if necessary.
+   *
+   * @param entity   Name of the entity.
+   * @param file     The file holding the entity.
+   * @param column   Name of the vector column.
+   * @param metric   The {@link HnswIndex.Metric} of the queries.
+   * @param config   The {@link QuantizationConfig}.
+   * @param importer Supplier of an {@link Importer} reading the file from the start.
+   * @return The {@link QuantizedVectors} or an empty {@link Optional}, if the column holds no vectors.
+   */
+  static Optional<QuantizedVectors> quantized(String entity, File file, String column, HnswIndex.Metric metric, QuantizationConfig config, Supplier<Importer<?>> importer) {
+    final String kind = config.getType() == QuantizedVectors.Quantization.PRODUCT ? "pq" + config.getSubspaceDimensions() : "sq";
+    return lookup(entity, file, column, metric, kind, config.getDirectory(), (path, stamp) -> {
+      final Optional<QuantizedVectors> loaded = QuantizedVectors.load(path, stamp);
+      if (loaded.isPresent()) {
+        LOGGER.debug("Loaded quantized vectors {} with {} vectors.", path, loaded.get().size());
+        return loaded.get();
+      }
+      final Importer<?> source = importer.get();
+      if (source == null) {
+        return null;
+      }
+      try {
+        final long start = System.currentTimeMillis();
+        final QuantizedVectors vectors = QuantizedVectors.build(path, stamp, metric, config.getType(), config.getSubspaceDimensions(), config.getTrainingSamples(), vectors(source, column)).orElse(null);
+        if (vectors != null) {
+          LOGGER.debug("Quantized {} vectors of column {} to {} bytes each in {} ms.", vectors.size(), column, vectors.codeSize(), System.currentTimeMillis() - start);
+        }
+        return vectors;
+      } catch (IOException e) {
+        LOGGER.warn("Failed to quantize vectors into {}: {}", path, e.getMessage());
+        return null;
+      }
+    }).map(QuantizedVectors.class::cast);
+  }
+
+  /**
+   * Returns the structure registered for the given key if it was built from the current version of the file, or otherwise obtains it from the given function (which receives the path to persist the structure at and the stamp of the file) and registers it. The stamp of the file serves as the version of the structure.
+   */
+  private static Optional<Object> lookup(String entity, File file, String column, HnswIndex.Metric metric, String kind, String directory, BiFunction<Path, Long, Object> obtain) {
+    final long stamp = file.length() * 31 + file.lastModified();
+    final Path path = (directory == null ? file.toPath().toAbsolutePath().getParent() : Paths.get(directory))
+        .resolve(file.getName() + "." + column + "." + metric.name().toLowerCase() + "." + kind);
+    return IndexRegistry.lookup(new Key(file.getAbsolutePath(), column, metric, kind), entity, stamp, () -> obtain.apply(path, stamp));
+  }
+
+  /**
+   * Returns the identifiers and vectors of all rows of an importer that hold both.
+   */
+  private static Iterator<Map.Entry<String, float[]>> vectors(Importer<?> importer, String column) {
+    return new Iterator<>() {
+      private Map.Entry<String, float[]> next = this.advance();
+
+      private Map.Entry<String, float[]> advance() {
+        Map<String, PrimitiveTypeProvider> row;
+        while ((row = importer.readNextAsMap()) != null) {
+          final PrimitiveTypeProvider id = row.get(GENERIC_ID_COLUMN_QUALIFIER);
+          final PrimitiveTypeProvider value = row.get(column);
+          if (id != null && value != null) {
+            return new SimpleImmutableEntry<>(id.getString(), PrimitiveTypeProvider.getSafeFloatArray(value));
+          }
+        }
+        return null;
+      }
+
+      @Override
+      public boolean hasNext() {
+        return this.next != null;
+      }
+
+      @Override
+      public Map.Entry<String, float[]> next() {
+        if (this.next == null) {
+          throw new NoSuchElementException();
+        }
+        final Map.Entry<String, float[]> current = this.next;
+        this.next = this.advance();
+        return current;
+      }
+    };
+  }
+
+  /**
+   * Builds an index by reading all rows and inserting the vectors with several threads.
+   */
+  private static HnswIndex build(Importer<?> importer, String column, HnswIndex.Metric metric, HnswConfig config) {
+    if (importer == null) {
+      return null;
+    }
+    final long start = System.currentTimeMillis();
+    final ExecutorService executor = Executors.newFixedThreadPool(config.getBuildThreads());
+    final Semaphore pending = new Semaphore(2 * config.getBuildThreads());
+    HnswIndex index = null;
+    try {
+      List<String> ids = new ArrayList<>(BATCH_SIZE);
+      List<float[]> vectors = new ArrayList<>(BATCH_SIZE);
+      final Iterator<Map.Entry<String, float[]>> source = vectors(importer, column);
+      while (source.hasNext()) {
+        final Map.Entry<String, float[]> entry = source.next();
+        final float[] vector = entry.getValue();
+        if (index == null) {
+          if (vector.length == 0) {
+            continue;
+          }
+          index = new HnswIndex(vector.length, metric, config.getM(), config.getEfConstruction());
+        }
+        if (vector.length != index.dimensions()) {
+          continue;
+        }
+        ids.add(entry.getKey());
+        vectors.add(vector);
+        if (ids.size() == BATCH_SIZE) {
+          submit(executor, pending, index, ids, vectors);
+          ids = new ArrayList<>(BATCH_SIZE);
+          vectors = new ArrayList<>(BATCH_SIZE);
+        }
+      }
+      if (index != null) {
+        submit(executor, pending, index, ids, vectors);
+      }
+      executor.shutdown();
+      executor.awaitTermination(Long.MAX_VALUE, TimeUnit.MILLISECONDS);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      return null;
+    } finally {
+      executor.shutdownNow();
+    }
+    if (index != null) {
+      LOGGER.debug("Built HNSW index for column {} with {} vectors in {} ms.", column, index.size(), System.currentTimeMillis() - start);
+    }
+    return index;
+  }
+
+  /**
+   * Hands a batch of vectors to the insertion threads, blocking while too many batches are pending.
+   */
+  private static void submit(ExecutorService executor, Semaphore pending, HnswIndex index, List<String> ids, List<float[]> vectors) throws InterruptedException {
+    pending.acquire();
+    executor.execute(() -> {
+      try {
+        for (int i = 0; i < ids.size(); i++) {
+          index.add(ids.get(i), vectors.get(i));
+        }
+      } finally {
+        pending.release();
+      }
+    });
+  }
+}
@@ -0,0 +1,22 @@
+package org.vitrivr.cineast.core.db;
+
+/**
+ * Modes in which the hits of several query vectors are combined into one distance per id by {@link DBSelector#getAggregatedNearestNeighbours(int, java.util.List, String, Class, java.util.List, NearestNeighbourAggregation, double)}.
+ */
+public enum NearestNeighbourAggregation {
+
+  /**
+   * The smallest distance of all hits of an id.
+   */
+  MIN,
+
+  /**
+   * The mean distance of all hits of an id.
+   */
+  AVG,
+
+  /**
+   * The reciprocal of the number of hits of an id, i.e. ids hit by more query vectors are ranked higher.
+   */
+  COUNT
+}
@@ -0,0 +1,200 @@
+package org.vitrivr.cineast.core.db;
+
+import com.carrotsearch.hppc.ObjectIntHashMap;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import org.vitrivr.cineast.core.data.distance.DistanceElement;
+
+/**
+ * Accumulates the nearest neighbour hits of several query vectors per id in primitive arrays and returns the k best ids according to a {@link NearestNeighbourAggregation}. No {@link DistanceElement} is created for hits that do not make it into the final result.
+ */
+public final class NearestNeighbourAggregator {
+
+  /**
+   * The {@link NearestNeighbourAggregation} used to combine the hits of an id.
+   */
+  private final NearestNeighbourAggregation aggregation;
+
+  /**
+   * Hits with a distance above this threshold are ignored.
+   */
+  private final double threshold;
+
+  /**
+   * Slot of every id seen so far.
+   */
+  private final ObjectIntHashMap<String> slots = new ObjectIntHashMap<>();
+
+  /**
+   * The ids per slot.
+   */
+  private String[] ids = new String[16];
+
+  /**
+   * Minimum (for {@link NearestNeighbourAggregation#MIN}) or sum of the distances per slot.
+   */
+  private double[] distances = new double[16];
+
+  /**
+   * Number of hits per slot.
+   */
+  private int[] hits = new int[16];
+
+  /**
+   * Number of occupied slots.
+   */
+  private int size;
+
+  /**
+   * Constructor for {@link NearestNeighbourAggregator}.
+   *
+   * @param aggregation The {@link NearestNeighbourAggregation} used to combine the hits of an id.
+   * @param threshold   Hits with a distance above this threshold are ignored; use {@link Double#POSITIVE_INFINITY} to consider all hits.
+   */
+  public NearestNeighbourAggregator(NearestNeighbourAggregation aggregation, double threshold) {
+    this.aggregation = aggregation;
+    this.threshold = threshold;
+  }
+
+  /**
+   * Adds a single hit.
+   *
+   * @param id       The id of the hit.
+   * @param distance The distance between the hit and the query vector.
+   */
+  public void add(String id, double distance) {
+    if (!(distance <= this.threshold)) {
+      return;
+    }
+    final int slot = this.slots.getOrDefault(id, -1);
+    if (slot >= 0) {
+      this.hits[slot]++;
+      this.distances[slot] = this.aggregation == NearestNeighbourAggregation.MIN ? Math.min(this.distances[slot], distance) : this.distances[slot] + distance;
+      return;
+    }
+    if (this.size == this.ids.length) {
+      this.ids = Arrays.copyOf(this.ids, this.size * 2);
+      this.distances = Arrays.copyOf(this.distances, this.size * 2);
+      this.hits = Arrays.copyOf(this.hits, this.size * 2);
+    }
+    this.slots.put(id, this.size);
+    this.ids[this.size] = id;
+    this.distances[this.size] = distance;
+    this.hits[this.size++] = 1;
+  }
+
+  /**
+   * Adds a list of hits.
+   *
+   * @param hits The hits to add.
+   */
+  public void addAll(List<? extends DistanceElement> hits) {
+    for (DistanceElement hit : hits) {
+      this.add(hit.getId(), hit.getDistance());
+    }
+  }
+
+  /**
+   * Returns the number of distinct ids added so far.
+   */
+  public int size() {
+    return this.size;
+  }
+
+  /**
+   * Returns the k ids with the smallest aggregated distance.
+   *
+   * @param k                    Maximum number of results.
+   * @param distanceElementClass Class of the {@link DistanceElement}s to create.
+   * @return List of at most k {@link DistanceElement}s sorted by ascending aggregated distance; every id occurs at most once.
+   */
+  public <T extends DistanceElement> List<T> top(int k, Class<T> distanceElementClass) {
+    final int limit = Math.max(0, Math.min(k, this.size));
+
+    /* Bounded max-heap of slots, the worst slot at the top. */
+    final int[] heap = new int[limit];
+    int filled = 0;
+    for (int slot = 0; slot < this.size && limit > 0; slot++) {
+      if (filled < limit) {
+        heap[filled] = slot;
+        int i = filled++;
+        while (i > 0 && this.worse(heap[i], heap[(i - 1) / 2])) {
+          swap(heap, i, (i - 1) / 2);
+          i = (i - 1) / 2;
+        }
+      } else if (this.worse(heap[0], slot)) {
+        heap[0] = slot;
+        this.siftDown(heap, 0, limit);
+      }
+    }
+
+    /* Heapsort of the retained slots: repeatedly moving the worst slot behind the heap yields ascending order in O(k log k). */
+    for (int end = limit - 1; end > 0; end--) {
+      swap(heap, 0, end);
+      this.siftDown(heap, 0, end);
+    }
+
+    final List<T> results = new ArrayList<>(limit);
+    for (int i = 0; i < limit; i++) {
+      results.add(DistanceElement.create(distanceElementClass, this.ids[heap[i]], this.aggregated(heap[i])));
+    }
+    return results;
+  }
+
+  /**
+   * Restores the max-heap property of the first length elements of the heap below index i.
+   */
+  private void siftDown(int[] heap, int i, int length) {
+    while (true) {
+      final int left = 2 * i + 1;
+      final int right = left + 1;
+      int largest = i;
+      if (left < length && this.worse(heap[left], heap[largest])) {
+        largest = left;
+      }
+      if (right < length && this.worse(heap[right], heap[largest])) {
+        largest = right;
+      }
+      if (largest == i) {
+        return;
+      }
+      swap(heap, i, largest);
+      i = largest;
+    }
+  }
+
+  /**
+   * Returns the aggregated distance of a slot.
+   */
+  private double aggregated(int slot) {
+    switch (this.aggregation) {
+      case AVG:
+        return this.distances[slot] / this.hits[slot];
+      case COUNT:
+        return 1.0 / this.hits[slot];
+      default:
+        return this.distances[slot];
+    }
+  }
+
+  /**
+   * Returns true if slot a ranks behind slot b. Ties are broken by the sum of the distances (which favours closer hits for {@link NearestNeighbourAggregation#COUNT}) and then by id, such that the order does not depend on the order in which hits were added (up to rounding of the summed distances).
+   */
+  private boolean worse(int a, int b) {
+    int comparison = Double.compare(this.aggregated(a), this.aggregated(b));
+    if (comparison == 0) {
+      comparison = Double.compare(this.distances[a], this.distances[b]);
+    }
+    if (comparison == 0) {
+      comparison = this.ids[a].compareTo(this.ids[b]);
+    }
+    return comparison > 0;
+  }
+
+  private static void swap(int[] array, int i, int j) {
+    final int tmp = array[i];
+    array[i] = array[j];
+    array[j] = tmp;
+  }
+}
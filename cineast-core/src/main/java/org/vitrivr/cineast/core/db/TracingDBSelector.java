@@ -0,0 +1,247 @@
+package org.vitrivr.cineast.core.db;
+
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+import org.apache.commons.lang3.tuple.Triple;
+import org.vitrivr.cineast.core.config.ReadableQueryConfig;
+import org.vitrivr.cineast.core.data.distance.DistanceElement;
+import org.vitrivr.cineast.core.data.providers.primitive.PrimitiveTypeProvider;
+import org.vitrivr.cineast.core.db.dao.MetadataAccessSpecification;
+import org.vitrivr.cineast.core.util.tracing.QueryTracer;
+import org.vitrivr.cineast.core.util.tracing.Span;
+
+/**
+ * Decorates a {@link DBSelector} such that every call to the storage engine is recorded as a {@link Span} named after the method, see {@link QueryTracer}.
+ * <p>
+ * Every method, including the default methods, is delegated as is, such that optimized implementations of the decorated selector are used.
+ */
+public final class TracingDBSelector implements DBSelector {
+
+  private final DBSelector delegate;
+
+  private String entity;
+
+  private TracingDBSelector(DBSelector delegate) {
+    this.delegate = delegate;
+  }
+
+  /**
+   * Wraps the selectors provided by a {@link DBSelectorSupplier}.
+   */
+  public static DBSelectorSupplier wrap(DBSelectorSupplier supplier) {
+    return () -> new TracingDBSelector(supplier.get());
+  }
+
+  /**
+   * Returns the selector decorated by a {@link TracingDBSelector}, e.g., to access functionality specific to a storage engine, or the selector itself.
+   */
+  public static DBSelector unwrap(DBSelector selector) {
+    return selector instanceof TracingDBSelector tracing ? tracing.delegate : selector;
+  }
+
+  private Span span(String operation) {
+    return QueryTracer.start(operation, this.entity);
+  }
+
+  @Override
+  public boolean open(String name) {
+    this.entity = name;
+    return this.delegate.open(name);
+  }
+
+  @Override
+  public void close() {
+    this.delegate.close();
+  }
+
+  @Override
+  public <E extends DistanceElement> List<E> getNearestNeighboursGeneric(int k, float[] query, String column, Class<E> distanceElementClass, ReadableQueryConfig queryConfig) {
+    try (Span span = this.span("getNearestNeighboursGeneric")) {
+      return this.delegate.getNearestNeighboursGeneric(k, query, column, distanceElementClass, queryConfig);
+    }
+  }
+
+  @Override
+  public <T extends DistanceElement> List<T> getNearestNeighboursGeneric(int k, PrimitiveTypeProvider queryProvider, String column, Class<T> distanceElementClass, ReadableQueryConfig queryConfig) {
+    try (Span span = this.span("getNearestNeighboursGeneric")) {
+      return this.delegate.getNearestNeighboursGeneric(k, queryProvider, column, distanceElementClass, queryConfig);
+    }
+  }
+
+  @Override
+  public <T extends DistanceElement> List<T> getBatchedNearestNeighbours(int k, List<float[]> vectors, String column, Class<T> distanceElementClass, List<ReadableQueryConfig> queryConfigs) {
+    try (Span span = this.span("getBatchedNearestNeighbours")) {
+      return this.delegate.getBatchedNearestNeighbours(k, vectors, column, distanceElementClass, queryConfigs);
+    }
+  }
+
+  @Override
+  public <T extends DistanceElement> List<T> getAggregatedNearestNeighbours(int k, List<float[]> vectors, String column, Class<T> distanceElementClass, List<ReadableQueryConfig> queryConfigs, NearestNeighbourAggregation aggregation, double threshold) {
+    try (Span span = this.span("getAggregatedNearestNeighbours")) {
+      return this.delegate.getAggregatedNearestNeighbours(k, vectors, column, distanceElementClass, queryConfigs, aggregation, threshold);
+    }
+  }
+
+  @Override
+  public List<Map<String, PrimitiveTypeProvider>> getNearestNeighbourRows(int k, float[] vector, String column, ReadableQueryConfig queryConfig) {
+    try (Span span = this.span("getNearestNeighbourRows")) {
+      return this.delegate.getNearestNeighbourRows(k, vector, column, queryConfig);
+    }
+  }
+
+  @Override
+  public List<float[]> getFeatureVectors(String column, PrimitiveTypeProvider value, String vectorName, ReadableQueryConfig queryConfig) {
+    try (Span span = this.span("getFeatureVectors")) {
+      return this.delegate.getFeatureVectors(column, value, vectorName, queryConfig);
+    }
+  }
+
+  @Override
+  public List<PrimitiveTypeProvider> getFeatureVectorsGeneric(String column, PrimitiveTypeProvider value, String vectorName, ReadableQueryConfig qc) {
+    try (Span span = this.span("getFeatureVectors")) {
+      return this.delegate.getFeatureVectorsGeneric(column, value, vectorName, qc);
+    }
+  }
+
+  @Override
+  public List<Map<String, PrimitiveTypeProvider>> getRows(String column, PrimitiveTypeProvider value) {
+    try (Span span = this.span("getRows")) {
+      return this.delegate.getRows(column, value);
+    }
+  }
+
+  @Override
+  public List<Map<String, PrimitiveTypeProvider>> getRows(String column, Iterable<PrimitiveTypeProvider> values) {
+    try (Span span = this.span("getRows")) {
+      return this.delegate.getRows(column, values);
+    }
+  }
+
+  @Override
+  public List<Map<String, PrimitiveTypeProvider>> getRows(String column, Iterable<PrimitiveTypeProvider> values, String dbQueryId) {
+    try (Span span = this.span("getRows")) {
+      return this.delegate.getRows(column, values, dbQueryId);
+    }
+  }
+
+  @Override
+  public List<Map<String, PrimitiveTypeProvider>> getRows(String column, List<String> values) {
+    try (Span span = this.span("getRows")) {
+      return this.delegate.getRows(column, values);
+    }
+  }
+
+  @Override
+  public List<Map<String, PrimitiveTypeProvider>> getRows(String column, List<String> values, String dbQueryId) {
+    try (Span span = this.span("getRows")) {
+      return this.delegate.getRows(column, values, dbQueryId);
+    }
+  }
+
+  @Override
+  public List<Map<String, PrimitiveTypeProvider>> getFulltextRows(int rows, String column, ReadableQueryConfig queryConfig, String... terms) {
+    try (Span span = this.span("getFulltextRows")) {
+      return this.delegate.getFulltextRows(rows, column, queryConfig, terms);
+    }
+  }
+
+  @Override
+  public List<Map<String, PrimitiveTypeProvider>> getRows(String column, RelationalOperator operator, PrimitiveTypeProvider value, ReadableQueryConfig queryConfig) {
+    try (Span span = this.span("getRows")) {
+      return this.delegate.getRows(column, operator, value, queryConfig);
+    }
+  }
+
+  @Override
+  public List<Map<String, PrimitiveTypeProvider>> getRows(String column, RelationalOperator operator, Iterable<PrimitiveTypeProvider> values, ReadableQueryConfig queryConfig) {
+    try (Span span = this.span("getRows")) {
+      return this.delegate.getRows(column, operator, values, queryConfig);
+    }
+  }
+
+  @Override
+  public List<Map<String, PrimitiveTypeProvider>> getRowsAND(List<Triple<String, RelationalOperator, List<PrimitiveTypeProvider>>> conditions, String identifier, List<String> projection, ReadableQueryConfig queryConfig) {
+    try (Span span = this.span("getRowsAND")) {
+      return this.delegate.getRowsAND(conditions, identifier, projection, queryConfig);
+    }
+  }
+
+  @Override
+  public List<PrimitiveTypeProvider> getUniqueValues(String column) {
+    try (Span span = this.span("getUniqueValues")) {
+      return this.delegate.getUniqueValues(column);
+    }
+  }
+
+  @Override
+  public Map<String, Integer> countDistinctValues(String column) {
+    try (Span span = this.span("countDistinctValues")) {
+      return this.delegate.countDistinctValues(column);
+    }
+  }
+
+  @Override
+  public List<Map<String, PrimitiveTypeProvider>> getMetadataBySpec(List<MetadataAccessSpecification> spec, String dbQueryId, ReadableQueryConfig queryConfig) {
+    try (Span span = this.span("getMetadataBySpec")) {
+      return this.delegate.getMetadataBySpec(spec, dbQueryId, queryConfig);
+    }
+  }
+
+  @Override
+  public List<Map<String, PrimitiveTypeProvider>> getMetadataByIdAndSpec(List<String> ids, List<MetadataAccessSpecification> spec, String idColName, String dbQueryId, ReadableQueryConfig queryConfig) {
+    try (Span span = this.span("getMetadataByIdAndSpec")) {
+      return this.delegate.getMetadataByIdAndSpec(ids, spec, idColName, dbQueryId, queryConfig);
+    }
+  }
+
+  @Override
+  public List<Map<String, PrimitiveTypeProvider>> getAll(List<String> columns, int limit) {
+    try (Span span = this.span("getAll")) {
+      return this.delegate.getAll(columns, limit);
+    }
+  }
+
+  @Override
+  public void forEachRow(List<String> columns, Consumer<Map<String, PrimitiveTypeProvider>> consumer) {
+    try (Span span = this.span("forEachRow")) {
+      this.delegate.forEachRow(columns, consumer);
+    }
+  }
+
+  @Override
+  public List<Map<String, PrimitiveTypeProvider>> getAll(String order, int skip, int limit) {
+    try (Span span = this.span("getAll")) {
+      return this.delegate.getAll(order, skip, limit);
+    }
+  }
+
+  @Override
+  public List<Map<String, PrimitiveTypeProvider>> getAll() {
+    try (Span span = this.span("getAll")) {
+      return this.delegate.getAll();
+    }
+  }
+
+  @Override
+  public int rowCount() {
+    try (Span span = this.span("rowCount")) {
+      return this.delegate.rowCount();
+    }
+  }
+
+  @Override
+  public boolean existsEntity(String name) {
+    return this.delegate.existsEntity(name);
+  }
+
+  @Override
+  public boolean ping() {
+    return this.delegate.ping();
+  }
+
+  @Override
+  public String toString() {
+    return this.delegate.toString();
+  }
+}
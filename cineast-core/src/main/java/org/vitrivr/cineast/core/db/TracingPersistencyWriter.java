@@ -0,0 +1,98 @@
+package org.vitrivr.cineast.core.db;
+
+import java.util.List;
+import org.vitrivr.cineast.core.util.tracing.QueryTracer;
+import org.vitrivr.cineast.core.util.tracing.Span;
+
+/**
+ * Decorates a {@link PersistencyWriter} such that every call to the storage engine is recorded as a {@link Span} named after the method, see {@link QueryTracer}.
+ */
+public final class TracingPersistencyWriter<R> implements PersistencyWriter<R> {
+
+  private final PersistencyWriter<R> delegate;
+
+  private String entity;
+
+  private TracingPersistencyWriter(PersistencyWriter<R> delegate) {
+    this.delegate = delegate;
+  }
+
+  /**
+   * Wraps the writers provided by a {@link PersistencyWriterSupplier}.
+   */
+  public static PersistencyWriterSupplier wrap(PersistencyWriterSupplier supplier) {
+    return () -> wrap(supplier.get());
+  }
+
+  private static <R> PersistencyWriter<R> wrap(PersistencyWriter<R> writer) {
+    return new TracingPersistencyWriter<>(writer);
+  }
+
+  private Span span(String operation) {
+    return QueryTracer.start(operation, this.entity);
+  }
+
+  @Override
+  public void close() {
+    this.delegate.close();
+  }
+
+  @Override
+  public boolean open(String name) {
+    this.entity = name;
+    return this.delegate.open(name);
+  }
+
+  @Override
+  public boolean idExists(String id) {
+    try (Span span = this.span("idExists")) {
+      return this.delegate.idExists(id);
+    }
+  }
+
+  @Override
+  public boolean exists(String key, String value) {
+    try (Span span = this.span("exists")) {
+      return this.delegate.exists(key, value);
+    }
+  }
+
+  @Override
+  public PersistentTuple generateTuple(Object... objects) {
+    return this.delegate.generateTuple(objects);
+  }
+
+  @Override
+  public boolean persist(PersistentTuple tuple) {
+    try (Span span = this.span("persist")) {
+      return this.delegate.persist(tuple);
+    }
+  }
+
+  @Override
+  public void setFieldNames(String... names) {
+    this.delegate.setFieldNames(names);
+  }
+
+  @Override
+  public boolean persist(List<PersistentTuple> tuples) {
+    try (Span span = this.span("persist")) {
+      return this.delegate.persist(tuples);
+    }
+  }
+
+  @Override
+  public R getPersistentRepresentation(PersistentTuple tuple) {
+    return this.delegate.getPersistentRepresentation(tuple);
+  }
+
+  @Override
+  public int supportedBatchSize() {
+    return this.delegate.supportedBatchSize();
+  }
+
+  @Override
+  public String toString() {
+    return this.delegate.toString();
+  }
+}
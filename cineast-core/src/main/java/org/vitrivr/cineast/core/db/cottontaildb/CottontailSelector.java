@@ -17,7 +17,15 @@
 import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
 import java.util.stream.Collectors;
 import java.util.stream.StreamSupport;
 import org.apache.commons.lang3.time.StopWatch;
@@ -29,6 +37,8 @@
 import org.vitrivr.cineast.core.data.distance.DistanceElement;
 import org.vitrivr.cineast.core.data.providers.primitive.PrimitiveTypeProvider;
 import org.vitrivr.cineast.core.db.DBSelector;
+import org.vitrivr.cineast.core.db.NearestNeighbourAggregation;
+import org.vitrivr.cineast.core.db.NearestNeighbourAggregator;
 import org.vitrivr.cineast.core.db.RelationalOperator;
 import org.vitrivr.cineast.core.db.dao.MetadataAccessSpecification;
 import org.vitrivr.cineast.core.util.DBQueryIdGenerator;
@@ -47,6 +57,26 @@ public final class CottontailSelector implements DBSelector {
 
   private static final Logger LOGGER = LogManager.getLogger();
 
+  /**
+   * Issues the individual kNN queries of {@link #getAggregatedNearestNeighbours}. The calls block on Cottontail DB and are therefore kept off the common fork-join pool; the number of threads bounds the number of concurrent queries of this process.
+   */
+  private static final ExecutorService KNN_EXECUTOR = Executors.newFixedThreadPool(Math.max(2, Runtime.getRuntime().availableProcessors()), new KnnThreadFactory());
+
+  /**
+   * Creates the daemon threads of the {@link #KNN_EXECUTOR}.
+   */
+  private static final class KnnThreadFactory implements ThreadFactory {
+
+    private final AtomicInteger count = new AtomicInteger();
+
+    @Override
+    public Thread newThread(Runnable runnable) {
+      final Thread thread = new Thread(runnable, "cottontail-knn-" + this.count.incrementAndGet());
+      thread.setDaemon(true);
+      return thread;
+    }
+  }
+
   /**
    * Internal reference to the {@link CottontailWrapper} used by this {@link CottontailSelector}.
    */
@@ -237,6 +267,43 @@ public <E extends DistanceElement> List<E> getBatchedNearestNeighbours(int k, Li
     return new ArrayList<>(0); /* TODO. */
   }
 
+  /**
+   * Cottontail DB does not support batched kNN queries; the individual queries are therefore issued concurrently on the {@link #KNN_EXECUTOR}, such that the latency is that of the slowest query rather than the sum of all queries. The first query is issued by the calling thread.
+   */
+  @Override
+  public <E extends DistanceElement> List<E> getAggregatedNearestNeighbours(int k, List<float[]> vectors, String column, Class<E> distanceElementClass, List<ReadableQueryConfig> queryConfigs, NearestNeighbourAggregation aggregation, double threshold) {
+    if (vectors.isEmpty()) {
+      return new ArrayList<>(0);
+    }
+    final NearestNeighbourAggregator aggregator = new NearestNeighbourAggregator(aggregation, threshold);
+    final List<Future<List<E>>> futures = new ArrayList<>(vectors.size() - 1);
+    try {
+      for (int i = 1; i < vectors.size(); i++) {
+        final int index = i;
+        futures.add(KNN_EXECUTOR.submit(() -> {
+          queryConfigs.get(index).checkDeadline();
+          return this.getNearestNeighboursGeneric(k, vectors.get(index), column, distanceElementClass, queryConfigs.get(index));
+        }));
+      }
+      queryConfigs.get(0).checkDeadline();
+      aggregator.addAll(this.getNearestNeighboursGeneric(k, vectors.get(0), column, distanceElementClass, queryConfigs.get(0)));
+      for (Future<List<E>> future : futures) {
+        aggregator.addAll(future.get());
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new CompletionException(e);
+    } catch (ExecutionException e) {
+      if (e.getCause() instanceof RuntimeException) {
+        throw (RuntimeException) e.getCause();
+      }
+      throw new CompletionException(e.getCause());
+    } finally {
+      futures.forEach(future -> future.cancel(false));
+    }
+    return aggregator.top(aggregator.size(), distanceElementClass);
+  }
+
   @Override
   public List<Map<String, PrimitiveTypeProvider>> getNearestNeighbourRows(int k, float[] vector, String column, ReadableQueryConfig queryConfig) {
     final Query query = knn(k, vector, column, queryConfig, "*");
@@ -472,6 +539,28 @@ public List<Map<String, PrimitiveTypeProvider>> getAll(List<String> columns, int
     }
   }
 
+  /**
+   * Streams the rows directly from the {@link TupleIterator}. Unlike {@link #getAll(List, int)}, errors are not swallowed, since a partial result could not be told apart from a complete one.
+   */
+  @Override
+  public void forEachRow(List<String> columns, Consumer<Map<String, PrimitiveTypeProvider>> consumer) {
+    final Query query = new Query(this.fqn);
+    query.queryId(DBQueryIdGenerator.generateQueryId("for-each-row"));
+    for (String c : columns) {
+      query.select(c, null);
+    }
+    final TupleIterator results = this.cottontail.client.query(query);
+    final Collection<String> names = results.getSimpleNames();
+    while (results.hasNext()) {
+      final Tuple t = results.next();
+      final Map<String, PrimitiveTypeProvider> map = new HashMap<>(names.size());
+      for (String c : names) {
+        map.put(c, PrimitiveTypeProvider.fromObject(t.get(c)));
+      }
+      consumer.accept(map);
+    }
+  }
+
   @Override
   public List<PrimitiveTypeProvider> getUniqueValues(String column) {
     final Query query = new Query(this.fqn).distinct(column, null).
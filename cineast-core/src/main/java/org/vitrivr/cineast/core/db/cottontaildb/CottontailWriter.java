@@ -5,6 +5,7 @@
 import org.apache.commons.lang3.StringUtils;
 import org.vitrivr.cineast.core.data.ReadableFloatVector;
 import org.vitrivr.cineast.core.db.AbstractPersistencyWriter;
+import org.vitrivr.cineast.core.db.EntityWriteStatistics;
 import org.vitrivr.cineast.core.db.PersistentTuple;
 import org.vitrivr.cottontail.client.iterators.TupleIterator;
 import org.vitrivr.cottontail.client.language.basics.Constants;
@@ -28,6 +29,10 @@ public final class CottontailWriter extends AbstractPersistencyWriter<Insert> {
    * The fully qualified name of the entity handled by this {@link CottontailWriter}.
    */
   private String fqn;
+  /**
+   * The name of the entity handled by this {@link CottontailWriter}, as recorded in the {@link EntityWriteStatistics}.
+   */
+  private String entity;
 
   public CottontailWriter(CottontailWrapper wrapper, int batchSize, boolean useTransactions) {
     this.cottontail = wrapper;
@@ -38,11 +43,14 @@ public CottontailWriter(CottontailWrapper wrapper, int batchSize, boolean useTra
   @Override
   public boolean open(String name) {
     this.fqn = this.cottontail.fqnInput(name);
+    this.entity = name;
     return true;
   }
 
   @Override
-  public void close() { /* No op */ }
+  public void close() {
+    EntityWriteStatistics.flush();
+  }
 
   @Override
   public boolean exists(String key, String value) {
@@ -102,6 +110,7 @@ public boolean persist(List<PersistentTuple> tuples) {
         LOGGER.trace("Committing");
         this.cottontail.client.commit(txId);
       }
+      EntityWriteStatistics.record(this.entity, size);
       long stop = System.currentTimeMillis();
       LOGGER.trace("Completed insert of {} elements in {} ms", size, stop - start);
       return true;
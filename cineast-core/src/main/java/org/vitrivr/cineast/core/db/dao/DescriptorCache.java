@@ -0,0 +1,240 @@
+package org.vitrivr.cineast.core.db.dao;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheStats;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+import java.util.function.ToIntFunction;
+import org.vitrivr.cineast.core.config.CacheConfig;
+import org.vitrivr.cineast.core.data.entities.MediaObjectDescriptor;
+import org.vitrivr.cineast.core.data.entities.MediaSegmentDescriptor;
+import org.vitrivr.cineast.core.db.dao.reader.MediaObjectReader;
+import org.vitrivr.cineast.core.db.dao.reader.MediaSegmentReader;
+import org.vitrivr.cineast.core.db.dao.writer.MediaObjectWriter;
+import org.vitrivr.cineast.core.db.dao.writer.MediaSegmentWriter;
+import org.vitrivr.cineast.core.util.tracing.QueryTracer;
+import org.vitrivr.cineast.core.util.tracing.Span;
+
+/**
+ * Process-wide cache of the descriptors resolved by the {@link MediaSegmentReader} and the {@link MediaObjectReader}, bounded by the approximate heap size of the cached descriptors.
+ * <p>
+ * Misses are loaded in one batch per request. Ids that are already being loaded by a concurrent request are not loaded again; the request waits for the pending load instead. Entries are invalidated by the {@link MediaSegmentWriter} and the {@link MediaObjectWriter} once the descriptors have been persisted; a load of an id that is invalidated while it is in progress does not populate the cache. As other processes may write to the same database, entries expire nonetheless.
+ * <p>
+ * The size limits and the expiry are set by {@link #configure(CacheConfig)}.
+ */
+public final class DescriptorCache<T> {
+
+  /**
+   * Approximate heap size of an object with a few primitive fields, excluding referenced strings.
+   */
+  private static final int OBJECT_OVERHEAD = 48;
+
+  private static final CacheConfig DEFAULTS = new CacheConfig();
+
+  public static final DescriptorCache<MediaSegmentDescriptor> SEGMENTS = new DescriptorCache<>(
+      "segments", DEFAULTS.getSegmentDescriptorCacheSize(), DEFAULTS.getDescriptorCacheDuration(), segment -> OBJECT_OVERHEAD + weight(segment.getSegmentId()) + weight(segment.getObjectId()));
+
+  public static final DescriptorCache<MediaObjectDescriptor> OBJECTS = new DescriptorCache<>(
+      "objects", DEFAULTS.getObjectDescriptorCacheSize(), DEFAULTS.getDescriptorCacheDuration(), object -> OBJECT_OVERHEAD + weight(object.getObjectId()) + weight(object.getName()) + weight(object.getPath()));
+
+  private final String name;
+
+  private final ToIntFunction<T> weigher;
+
+  private volatile Cache<String, T> cache;
+
+  /**
+   * Loads that are currently in progress, by id.
+   */
+  private final ConcurrentHashMap<String, Load<T>> pending = new ConcurrentHashMap<>();
+
+  /**
+   * Number of ids that were served by a load of a concurrent request.
+   */
+  private final AtomicLong coalesced = new AtomicLong();
+
+  /**
+   * A load in progress; it is marked as stale if its id is invalidated meanwhile.
+   */
+  private static final class Load<T> {
+
+    private final CompletableFuture<T> future = new CompletableFuture<>();
+
+    private volatile boolean stale;
+  }
+
+  DescriptorCache(String name, long maximumWeight, long expireAfterSeconds, ToIntFunction<T> weigher) {
+    this.name = name;
+    this.weigher = weigher;
+    this.cache = this.build(maximumWeight, expireAfterSeconds);
+  }
+
+  private Cache<String, T> build(long maximumWeight, long expireAfterSeconds) {
+    return CacheBuilder.newBuilder()
+        .maximumWeight(maximumWeight)
+        .weigher((String id, T descriptor) -> this.weigher.applyAsInt(descriptor))
+        .expireAfterWrite(expireAfterSeconds, TimeUnit.SECONDS)
+        .recordStats()
+        .build();
+  }
+
+  /**
+   * Applies the descriptor cache settings of a {@link CacheConfig} to {@link #SEGMENTS} and {@link #OBJECTS}, discarding their contents.
+   */
+  public static void configure(CacheConfig config) {
+    SEGMENTS.resize(config.getSegmentDescriptorCacheSize(), config.getDescriptorCacheDuration());
+    OBJECTS.resize(config.getObjectDescriptorCacheSize(), config.getDescriptorCacheDuration());
+  }
+
+  private void resize(long maximumWeight, long expireAfterSeconds) {
+    this.pending.values().forEach(load -> load.stale = true);
+    this.cache = this.build(maximumWeight, expireAfterSeconds);
+  }
+
+  /**
+   * Approximate heap size of a string, including its header and the reference to it.
+   */
+  private static int weight(String string) {
+    return string == null ? 8 : 48 + string.length();
+  }
+
+  public String getName() {
+    return this.name;
+  }
+
+  public T getIfPresent(String id) {
+    return this.cache.getIfPresent(id);
+  }
+
+  /**
+   * Resolves the descriptors with the given ids, loading all ids that are neither cached nor being loaded by a concurrent request in one call to the loader. Ids the loader does not return a descriptor for are omitted from the result and not cached.
+   *
+   * @param ids    The ids to resolve; duplicates are ignored.
+   * @param loader Loads the descriptors of a list of ids from the database, by id.
+   * @return Resolved descriptors by id.
+   */
+  public Map<String, T> getAll(Iterable<String> ids, Function<List<String>, Map<String, T>> loader) {
+    final Set<String> unique = new LinkedHashSet<>();
+    ids.forEach(unique::add);
+    final Map<String, T> result = new HashMap<>(unique.size());
+    final Map<String, Load<T>> owned = new HashMap<>();
+    final Map<String, CompletableFuture<T>> awaited = new HashMap<>();
+    for (String id : unique) {
+      final T cached = this.cache.getIfPresent(id);
+      if (cached != null) {
+        result.put(id, cached);
+        continue;
+      }
+      final Load<T> load = new Load<>();
+      final Load<T> existing = this.pending.putIfAbsent(id, load);
+      if (existing == null) {
+        owned.put(id, load);
+      } else {
+        awaited.put(id, existing.future);
+      }
+    }
+    if (!owned.isEmpty()) {
+      this.load(owned, loader, result);
+    }
+    if (!awaited.isEmpty()) {
+      this.coalesced.addAndGet(awaited.size());
+      for (Map.Entry<String, CompletableFuture<T>> entry : awaited.entrySet()) {
+        final T descriptor;
+        try {
+          descriptor = entry.getValue().join();
+        } catch (CompletionException e) {
+          if (e.getCause() instanceof RuntimeException) {
+            throw (RuntimeException) e.getCause();
+          }
+          throw e;
+        }
+        if (descriptor != null) {
+          result.put(entry.getKey(), descriptor);
+        }
+      }
+    }
+    return result;
+  }
+
+  /**
+   * Loads the ids this request has registered as pending and completes their futures, even if the loader fails.
+   */
+  private void load(Map<String, Load<T>> owned, Function<List<String>, Map<String, T>> loader, Map<String, T> result) {
+    final Cache<String, T> cache = this.cache;
+    try {
+      final Map<String, T> loaded;
+      try (Span span = QueryTracer.start("lookUpDescriptors", this.name)) {
+        loaded = loader.apply(new ArrayList<>(owned.keySet()));
+      }
+      for (Map.Entry<String, Load<T>> entry : owned.entrySet()) {
+        final T descriptor = loaded.get(entry.getKey());
+        if (descriptor != null) {
+          /* The descriptor is put before checking whether the id was invalidated meanwhile, since an invalidation marks the load before it invalidates the cache. */
+          cache.put(entry.getKey(), descriptor);
+          if (entry.getValue().stale) {
+            cache.asMap().remove(entry.getKey(), descriptor);
+          }
+          result.put(entry.getKey(), descriptor);
+        }
+        entry.getValue().future.complete(descriptor);
+      }
+    } catch (RuntimeException | Error e) {
+      owned.values().forEach(load -> load.future.completeExceptionally(e));
+      throw e;
+    } finally {
+      owned.forEach(this.pending::remove);
+    }
+  }
+
+  /**
+   * Adds a descriptor that was read from the database by other means than {@link #getAll(Iterable, Function)}.
+   */
+  public void put(String id, T descriptor) {
+    this.cache.put(id, descriptor);
+  }
+
+  /**
+   * Discards the descriptor with the given id, including the result of a load of it that is in progress; the descriptor should have been persisted already.
+   */
+  public void invalidate(String id) {
+    final Load<T> load = this.pending.get(id);
+    if (load != null) {
+      load.stale = true;
+    }
+    this.cache.invalidate(id);
+  }
+
+  public void invalidateAll() {
+    this.pending.values().forEach(load -> load.stale = true);
+    this.cache.invalidateAll();
+  }
+
+  /**
+   * Hit and miss counts; a lookup that waited for a concurrent load counts as a miss.
+   */
+  public CacheStats stats() {
+    return this.cache.stats();
+  }
+
+  /**
+   * Number of lookups that were served by a load of a concurrent request rather than a load of their own.
+   */
+  public long coalescedCount() {
+    return this.coalesced.get();
+  }
+
+  public long size() {
+    return this.cache.size();
+  }
+}
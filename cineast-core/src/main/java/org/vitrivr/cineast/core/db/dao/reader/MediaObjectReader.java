@@ -1,13 +1,11 @@
 package org.vitrivr.cineast.core.db.dao.reader;
 
-import com.google.common.cache.Cache;
-import com.google.common.cache.CacheBuilder;
 import com.google.common.collect.Lists;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.concurrent.TimeUnit;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 import org.vitrivr.cineast.core.data.MediaType;
@@ -16,16 +14,14 @@
 import org.vitrivr.cineast.core.data.providers.primitive.ProviderDataType;
 import org.vitrivr.cineast.core.data.providers.primitive.StringTypeProvider;
 import org.vitrivr.cineast.core.db.DBSelector;
+import org.vitrivr.cineast.core.db.dao.DescriptorCache;
 import org.vitrivr.cineast.core.util.DBQueryIdGenerator;
 
 public class MediaObjectReader extends AbstractEntityReader {
 
   private static final Logger LOGGER = LogManager.getLogger();
 
-  private static final Cache<String, MediaObjectDescriptor> objectCache = CacheBuilder.newBuilder()
-      .maximumSize(100_000)
-      .expireAfterWrite(10, TimeUnit.MINUTES)
-      .build(); //TODO make configurable
+  private static final DescriptorCache<MediaObjectDescriptor> objectCache = DescriptorCache.OBJECTS;
 
   /**
    * Constructor for MediaObjectReader
@@ -38,13 +34,13 @@ public MediaObjectReader(DBSelector selector) {
   }
 
   public MediaObjectDescriptor lookUpObjectById(String objectId) {
-    List<Map<String, PrimitiveTypeProvider>> result = selector.getRows(MediaObjectDescriptor.FIELDNAMES[0], new StringTypeProvider(objectId));
+    MediaObjectDescriptor descriptor = this.lookUpObjects(Collections.singletonList(objectId)).get(objectId);
 
-    if (result.isEmpty()) {
+    if (descriptor == null) {
       return new MediaObjectDescriptor();
     }
 
-    return mapToDescriptor(result.get(0));
+    return descriptor;
   }
 
   private MediaObjectDescriptor mapToDescriptor(Map<String, PrimitiveTypeProvider> map) {
@@ -69,12 +65,17 @@ private MediaObjectDescriptor mapToDescriptor(Map<String, PrimitiveTypeProvider>
       return new MediaObjectDescriptor();
     }
 
-    MediaObjectDescriptor descriptor = new MediaObjectDescriptor(idProvider.getString(), nameProvider.getString(), pathProvider.getString(), MediaType.fromId(typeProvider.getInt()), true);
-
-    objectCache.put(descriptor.getObjectId(), descriptor);
+    return new MediaObjectDescriptor(idProvider.getString(), nameProvider.getString(), pathProvider.getString(), MediaType.fromId(typeProvider.getInt()), true);
+  }
 
+  /**
+   * Taps off descriptors that were not looked up by {@link #lookUpObjects(Iterable, String)}, which caches on its own.
+   */
+  private MediaObjectDescriptor cache(MediaObjectDescriptor descriptor) {
+    if (descriptor.exists()) {
+      objectCache.put(descriptor.getObjectId(), descriptor);
+    }
     return descriptor;
-
   }
 
   private boolean checkProvider(String name, PrimitiveTypeProvider provider,
@@ -100,7 +101,7 @@ public MediaObjectDescriptor lookUpObjectByName(String name) {
       return new MediaObjectDescriptor();
     }
 
-    return mapToDescriptor(result.get(0));
+    return cache(mapToDescriptor(result.get(0)));
   }
 
   public MediaObjectDescriptor lookUpObjectByPath(String path) {
@@ -110,7 +111,7 @@ public MediaObjectDescriptor lookUpObjectByPath(String path) {
       return new MediaObjectDescriptor();
     }
 
-    return mapToDescriptor(result.get(0));
+    return cache(mapToDescriptor(result.get(0)));
   }
 
   public Map<String, MediaObjectDescriptor> lookUpObjects(Iterable<String> videoIds, String queryId) {
@@ -118,30 +119,18 @@ public Map<String, MediaObjectDescriptor> lookUpObjects(Iterable<String> videoId
       return new HashMap<>();
     }
 
-    ArrayList<String> notCached = new ArrayList<>();
-    HashMap<String, MediaObjectDescriptor> _return = new HashMap<>();
-
-    videoIds.forEach(id -> {
-      MediaObjectDescriptor cached = objectCache.getIfPresent(id);
-      if (cached != null) {
-        _return.put(cached.getObjectId(), cached);
-      } else {
-        notCached.add(id);
-      }
-    });
-
-    if (!notCached.isEmpty()) {
-
+    return objectCache.getAll(videoIds, notCached -> {
       String dbQueryID = DBQueryIdGenerator.generateQueryId("load-obj", queryId);
-
-      List<Map<String, PrimitiveTypeProvider>> results = selector.getRows(MediaObjectDescriptor.FIELDNAMES[0], Lists.newArrayList(videoIds), dbQueryID);
+      List<Map<String, PrimitiveTypeProvider>> results = selector.getRows(MediaObjectDescriptor.FIELDNAMES[0], Lists.newArrayList(notCached), dbQueryID);
+      HashMap<String, MediaObjectDescriptor> loaded = new HashMap<>();
       results.forEach(el -> {
         MediaObjectDescriptor d = mapToDescriptor(el);
-        _return.put(d.getObjectId(), d);
+        if (d.exists()) {
+          loaded.put(d.getObjectId(), d);
+        }
       });
-
-    }
-    return _return;
+      return loaded;
+    });
   }
 
   public Map<String, MediaObjectDescriptor> lookUpObjects(Iterable<String> videoIds) {
@@ -152,7 +141,7 @@ public List<MediaObjectDescriptor> getAllObjects() {
     List<Map<String, PrimitiveTypeProvider>> all = selector.getAll();
     List<MediaObjectDescriptor> _return = new ArrayList<>(all.size());
     for (Map<String, PrimitiveTypeProvider> map : all) {
-      _return.add(mapToDescriptor(map));
+      _return.add(cache(mapToDescriptor(map)));
     }
     return _return;
   }
@@ -168,7 +157,7 @@ public List<MediaObjectDescriptor> getAllObjects(int skip, int limit) {
     List<Map<String, PrimitiveTypeProvider>> all = selector.getAll(MediaObjectDescriptor.FIELDNAMES[0], skip, limit);
     List<MediaObjectDescriptor> _return = new ArrayList<>(all.size());
     for (Map<String, PrimitiveTypeProvider> map : all) {
-      _return.add(mapToDescriptor(map));
+      _return.add(cache(mapToDescriptor(map)));
     }
     return _return;
   }
@@ -2,12 +2,9 @@
 
 import static org.vitrivr.cineast.core.data.entities.MediaSegmentDescriptor.FIELDNAMES;
 
-import com.google.common.cache.Cache;
-import com.google.common.cache.CacheBuilder;
 import com.google.common.collect.ListMultimap;
 import com.google.common.collect.Lists;
 import com.google.common.collect.Multimaps;
-import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
@@ -15,22 +12,18 @@
 import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
-import java.util.concurrent.TimeUnit;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
 import org.vitrivr.cineast.core.data.entities.MediaSegmentDescriptor;
 import org.vitrivr.cineast.core.data.providers.primitive.PrimitiveTypeProvider;
 import org.vitrivr.cineast.core.data.providers.primitive.StringTypeProvider;
 import org.vitrivr.cineast.core.db.DBSelector;
+import org.vitrivr.cineast.core.db.dao.DescriptorCache;
 import org.vitrivr.cineast.core.util.DBQueryIdGenerator;
 
 public class MediaSegmentReader extends AbstractEntityReader {
 
-  private static final Cache<String, MediaSegmentDescriptor> segmentCache = CacheBuilder.newBuilder()
-      .maximumSize(100_000)
-      .expireAfterWrite(10, TimeUnit.MINUTES)
-      .build(); //TODO make configurable
-
+  private static final DescriptorCache<MediaSegmentDescriptor> segmentCache = DescriptorCache.SEGMENTS;
 
   /**
    * Constructor for MediaSegmentReader
@@ -69,15 +62,7 @@ private static Optional<MediaSegmentDescriptor> propertiesToDescriptor(Map<Strin
   }
 
   public Optional<MediaSegmentDescriptor> lookUpSegment(String segmentId) {
-
-    MediaSegmentDescriptor cached = segmentCache.getIfPresent(segmentId);
-
-    if (cached != null) {
-      return Optional.of(cached);
-    }
-
-    Stream<MediaSegmentDescriptor> descriptors = this.lookUpSegmentsByField(FIELDNAMES[0], segmentId);
-    return descriptors.findFirst();
+    return Optional.ofNullable(this.lookUpSegments(Collections.singletonList(segmentId)).get(segmentId));
   }
 
   public Map<String, MediaSegmentDescriptor> lookUpSegments(Iterable<String> segmentIds) {
@@ -85,39 +70,21 @@ public Map<String, MediaSegmentDescriptor> lookUpSegments(Iterable<String> segme
   }
 
   public Map<String, MediaSegmentDescriptor> lookUpSegments(Iterable<String> segmentIds, String queryId) {
-
-    ArrayList<String> notCached = new ArrayList<>();
-    //this implicitly deduplicates the stream
-    Map<String, MediaSegmentDescriptor> _return = new HashMap<>();
-
-    segmentIds.forEach(id -> {
-      MediaSegmentDescriptor cached = segmentCache.getIfPresent(id);
-      if (cached != null) {
-        _return.put(id, cached);
-      } else {
-        notCached.add(id);
-      }
+    return segmentCache.getAll(segmentIds, notCached -> {
+      Map<String, MediaSegmentDescriptor> loaded = new HashMap<>();
+      this.lookUpSegmentsByField(FIELDNAMES[0], notCached, queryId).forEach(msd -> loaded.put(msd.getSegmentId(), msd));
+      return loaded;
     });
-
-    if (!notCached.isEmpty()) {
-      Stream<MediaSegmentDescriptor> descriptors = this.lookUpSegmentsByField(FIELDNAMES[0], notCached, queryId);
-
-      descriptors.forEach(msd -> {
-        _return.put(msd.getSegmentId(), msd);
-      });
-    }
-
-    return _return;
   }
 
   public List<MediaSegmentDescriptor> lookUpSegmentsOfObject(String objectId) {
     Stream<MediaSegmentDescriptor> descriptors = this.lookUpSegmentsByField(FIELDNAMES[1], objectId);
-    return descriptors.collect(Collectors.toList());
+    return descriptors.peek(MediaSegmentReader::cache).collect(Collectors.toList());
   }
 
   public ListMultimap<String, MediaSegmentDescriptor> lookUpSegmentsOfObjects(Iterable<String> objectIds) {
     Stream<MediaSegmentDescriptor> descriptors = this.lookUpSegmentsByField(FIELDNAMES[1], objectIds);
-    return Multimaps.index(descriptors.iterator(), MediaSegmentDescriptor::getObjectId);
+    return Multimaps.index(descriptors.peek(MediaSegmentReader::cache).iterator(), MediaSegmentDescriptor::getObjectId);
   }
 
   public List<MediaSegmentDescriptor> lookUpSegmentByNumber(String objectId, int segmentNumber) {
@@ -148,10 +115,13 @@ private Stream<MediaSegmentDescriptor> lookUpSegmentsByField(String fieldName, I
         .stream()
         .map(MediaSegmentReader::propertiesToDescriptor)
         .filter(Optional::isPresent)
-        .peek(optional -> { //tap of and add to cache
-          MediaSegmentDescriptor descriptor = optional.get();
-          segmentCache.put(descriptor.getSegmentId(), descriptor);
-        })
         .map(Optional::get);
   }
+
+  /**
+   * Taps off descriptors looked up by object; lookups by id are cached by {@link DescriptorCache#getAll(Iterable, java.util.function.Function)}.
+   */
+  private static void cache(MediaSegmentDescriptor descriptor) {
+    segmentCache.put(descriptor.getSegmentId(), descriptor);
+  }
 }
@@ -15,6 +15,10 @@
    * The {@link Queue} used to store {@link PersistentTuple}s until they are flushed to disk.
    */
   private final ArrayBlockingQueue<PersistentTuple> buffer;
+  /**
+   * The entities whose tuples are in the {@link #buffer}, in the same order.
+   */
+  private final List<T> buffered = new ArrayList<>();
   /**
    * Flag indicating whether inserts should be batched in memory and submitted all at once.
    */
@@ -38,6 +42,14 @@ protected AbstractBatchedEntityWriter(PersistencyWriter<?> writer) {
 
   protected abstract PersistentTuple generateTuple(T entity);
 
+  /**
+   * Called after the tuples of the given entities have been written to the underlying persistence layer, e.g. to invalidate cached copies of the entities.
+   *
+   * @param entities The persisted entities.
+   */
+  protected void persisted(List<T> entities) {
+  }
+
   /**
    * Persists the provided entity by first converting it to a {@link PersistentTuple} and subsequently writing that tuple to the local buffer. If the buffer is full, i.e. the batch size was reached, then buffer is flushed first.
    *
@@ -53,8 +65,10 @@ public void write(T entity) {
         this.flush();
       }
       this.buffer.offer(tuple);
+      this.buffered.add(entity);
     } else {
       this.writer.persist(tuple);
+      this.persisted(List.of(entity));
     }
   }
 
@@ -71,7 +85,10 @@ public final void flush() {
     }
     final List<PersistentTuple> batch = new ArrayList<>(buffer.size());
     this.buffer.drainTo(batch);
+    final List<T> entities = new ArrayList<>(this.buffered);
+    this.buffered.clear();
     this.writer.persist(batch);
+    this.persisted(entities);
   }
 
   /**
@@ -1,8 +1,10 @@
 package org.vitrivr.cineast.core.db.dao.writer;
 
+import java.util.List;
 import org.vitrivr.cineast.core.data.entities.MediaObjectDescriptor;
 import org.vitrivr.cineast.core.db.PersistencyWriter;
 import org.vitrivr.cineast.core.db.PersistentTuple;
+import org.vitrivr.cineast.core.db.dao.DescriptorCache;
 
 
 public class MediaObjectWriter extends AbstractBatchedEntityWriter<MediaObjectDescriptor> {
@@ -24,4 +26,9 @@ protected void init() {
   protected PersistentTuple generateTuple(MediaObjectDescriptor entity) {
     return this.writer.generateTuple(entity.getObjectId(), entity.getMediatypeId(), entity.getName(), entity.getPath());
   }
+
+  @Override
+  protected void persisted(List<MediaObjectDescriptor> entities) {
+    entities.forEach(entity -> DescriptorCache.OBJECTS.invalidate(entity.getObjectId()));
+  }
 }
@@ -1,8 +1,10 @@
 package org.vitrivr.cineast.core.db.dao.writer;
 
+import java.util.List;
 import org.vitrivr.cineast.core.data.entities.MediaSegmentDescriptor;
 import org.vitrivr.cineast.core.db.PersistencyWriter;
 import org.vitrivr.cineast.core.db.PersistentTuple;
+import org.vitrivr.cineast.core.db.dao.DescriptorCache;
 
 
 public class MediaSegmentWriter extends AbstractBatchedEntityWriter<MediaSegmentDescriptor> {
@@ -21,4 +23,9 @@ protected void init() {
   protected PersistentTuple generateTuple(MediaSegmentDescriptor entity) {
     return this.writer.generateTuple(entity.getSegmentId(), entity.getObjectId(), entity.getSequenceNumber(), entity.getStart(), entity.getEnd(), entity.getStartabs(), entity.getEndabs());
   }
+
+  @Override
+  protected void persisted(List<MediaSegmentDescriptor> entities) {
+    entities.forEach(entity -> DescriptorCache.SEGMENTS.invalidate(entity.getSegmentId()));
+  }
 }
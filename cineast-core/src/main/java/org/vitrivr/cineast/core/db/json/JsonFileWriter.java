@@ -10,6 +10,7 @@
 import java.util.List;
 import org.vitrivr.cineast.core.data.ReadableFloatVector;
 import org.vitrivr.cineast.core.db.AbstractPersistencyWriter;
+import org.vitrivr.cineast.core.db.EntityWriteStatistics;
 import org.vitrivr.cineast.core.db.PersistentTuple;
 
 public class JsonFileWriter extends AbstractPersistencyWriter<JsonObject> {
@@ -17,6 +18,7 @@ public class JsonFileWriter extends AbstractPersistencyWriter<JsonObject> {
   private File baseFolder;
   private PrintWriter out;
   private boolean first = true;
+  private String entity;
 
   public JsonFileWriter(File baseFolder) {
     this.baseFolder = baseFolder;
@@ -55,6 +57,7 @@ public boolean open(String name) {
     try {
       this.out = new PrintWriter(new File(baseFolder, name + ".json"));
       this.out.println('[');
+      this.entity = name;
       return true;
     } catch (FileNotFoundException e) {
       return false;
@@ -71,6 +74,7 @@ public synchronized void close() {
     out.flush();
     out.close();
     out = null;
+    EntityWriteStatistics.flush();
   }
 
   @Override
@@ -83,6 +87,7 @@ public boolean persist(PersistentTuple tuple) {
       this.out.flush();
       this.first = false;
     }
+    EntityWriteStatistics.record(this.entity, 1);
 
     return true;
 
@@ -4,6 +4,8 @@
 import java.io.IOException;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
+import org.vitrivr.cineast.core.config.HnswConfig;
+import org.vitrivr.cineast.core.config.QuantizationConfig;
 import org.vitrivr.cineast.core.db.ImporterSelector;
 import org.vitrivr.cineast.core.importer.JsonObjectImporter;
 
@@ -15,6 +17,10 @@ public JsonSelector(File baseDirectory) {
     super(baseDirectory);
   }
 
+  public JsonSelector(File baseDirectory, HnswConfig hnsw, QuantizationConfig quantization) {
+    super(baseDirectory, hnsw, quantization);
+  }
+
   @Override
   protected JsonObjectImporter newImporter(File f) {
     try {
@@ -5,6 +5,7 @@
 import java.util.List;
 import java.util.Optional;
 import org.vitrivr.cineast.core.db.AbstractPersistencyWriter;
+import org.vitrivr.cineast.core.db.EntityWriteStatistics;
 import org.vitrivr.cineast.core.db.PersistentTuple;
 import org.vitrivr.cineast.core.db.memory.InMemoryStore.Entity;
 
@@ -21,11 +22,14 @@ public class InMemoryWriter extends AbstractPersistencyWriter<PersistentTuple> {
 
   private Entity entity = null;
 
+  private String name = null;
+
   @Override
   public boolean open(String name) {
     final Optional<Entity> entity = this.store.getEntity(name);
     if (entity.isPresent()) {
       this.entity = entity.get();
+      this.name = name;
       return true;
     } else {
       return false;
@@ -51,6 +55,7 @@ public boolean persist(List<PersistentTuple> tuples) {
     for (PersistentTuple tuple : tuples) {
       this.entity.put(tuple.getElements().get(0).toString(), tuple);
     }
+    EntityWriteStatistics.record(this.name, tuples.size());
     return true;
   }
 
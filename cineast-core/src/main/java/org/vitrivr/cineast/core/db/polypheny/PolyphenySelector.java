@@ -31,6 +31,7 @@
 import org.vitrivr.cineast.core.data.providers.primitive.PrimitiveTypeProvider;
 import org.vitrivr.cineast.core.data.providers.primitive.ShortProviderImpl;
 import org.vitrivr.cineast.core.data.providers.primitive.StringProviderImpl;
+import org.vitrivr.cineast.core.data.providers.primitive.StringTypeProvider;
 import org.vitrivr.cineast.core.db.DBSelector;
 import org.vitrivr.cineast.core.db.RelationalOperator;
 
@@ -320,7 +321,20 @@ public List<Map<String, PrimitiveTypeProvider>> getRowsAND(List<Triple<String, R
       }
     }
 
-    try (final PreparedStatement statement = this.wrapper.connection.prepareStatement("SELECT * FROM " + this.fqn + " WHERE " + conditionBuilder)) {
+    /* Restrict the conjunction to the relevant segments, if any. */
+    if (queryConfig != null && !queryConfig.getRelevantSegmentIds().isEmpty()) {
+      if (i > 0) {
+        conditionBuilder.append(" AND ");
+      }
+      conditionBuilder.append(identifier);
+      conditionBuilder.append(" IN (");
+      conditionBuilder.append(queryConfig.getRelevantSegmentIds().stream().map(id -> "?").collect(Collectors.joining(",")));
+      conditionBuilder.append(")");
+      queryConfig.getRelevantSegmentIds().forEach(id -> values.add(new StringTypeProvider(id)));
+    }
+
+    final String select = projection.isEmpty() ? "*" : String.join(",", projection);
+    try (final PreparedStatement statement = this.wrapper.connection.prepareStatement("SELECT " + select + " FROM " + this.fqn + " WHERE " + conditionBuilder)) {
       int k = 1;
       for (PrimitiveTypeProvider v : values) {
         this.bindScalarValue(k++, v, statement);
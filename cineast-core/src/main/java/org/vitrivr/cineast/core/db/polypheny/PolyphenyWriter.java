@@ -7,6 +7,7 @@
 import java.util.List;
 import org.vitrivr.cineast.core.data.ReadableFloatVector;
 import org.vitrivr.cineast.core.db.AbstractPersistencyWriter;
+import org.vitrivr.cineast.core.db.EntityWriteStatistics;
 import org.vitrivr.cineast.core.db.PersistentTuple;
 
 /**
@@ -29,7 +30,10 @@ public final class PolyphenyWriter extends AbstractPersistencyWriter<PreparedSta
    * The fully qualified name of the entity handled by this {@link PolyphenyWriter}.
    */
   private String fqn;
-
+  /**
+   * The name of the entity handled by this {@link PolyphenyWriter}, as recorded in the {@link EntityWriteStatistics}.
+   */
+  private String entity;
 
   public PolyphenyWriter(PolyphenyWrapper wrapper, int batchSize) {
     this.wrapper = wrapper;
@@ -39,11 +43,13 @@ public PolyphenyWriter(PolyphenyWrapper wrapper, int batchSize) {
   @Override
   public boolean open(String name) {
     this.fqn = this.wrapper.fqnInput(name);
+    this.entity = name;
     return true;
   }
 
   @Override
   public void close() {
+    EntityWriteStatistics.flush();
     this.wrapper.close();
   }
 
@@ -75,6 +81,7 @@ public boolean persist(List<PersistentTuple> tuples) {
       }
       stmt.executeBatch(); /* Execute INSERTs. */
       this.wrapper.connection.commit();
+      EntityWriteStatistics.record(this.entity, size);
       long stop = System.currentTimeMillis();
       LOGGER.trace("Completed insert of {} elements in {} ms", size, stop - start);
       return true;
@@ -11,6 +11,7 @@
 import org.vitrivr.cineast.core.data.entities.MediaObjectMetadataDescriptor;
 import org.vitrivr.cineast.core.data.entities.MediaSegmentDescriptor;
 import org.vitrivr.cineast.core.data.entities.MediaSegmentMetadataDescriptor;
+import org.vitrivr.cineast.core.db.dao.DescriptorCache;
 import org.vitrivr.cineast.core.db.dao.reader.TagReader;
 import org.vitrivr.cineast.core.db.setup.AttributeDefinition.AttributeType;
 
@@ -76,6 +77,7 @@ default boolean createTagEntity() {
    */
   default boolean dropMultiMediaObjectsEntity() {
     if (this.dropEntity(MediaObjectDescriptor.ENTITY)) {
+      DescriptorCache.OBJECTS.invalidateAll();
       LOGGER.info("Successfully dropped multimedia object entity.");
       return true;
     } else {
@@ -89,6 +91,7 @@ default boolean dropMultiMediaObjectsEntity() {
    */
   default boolean dropSegmentEntity() {
     if (this.dropEntity(MediaSegmentDescriptor.ENTITY)) {
+      DescriptorCache.SEGMENTS.invalidateAll();
       LOGGER.info("Successfully dropped segment entity.");
       return true;
     } else {
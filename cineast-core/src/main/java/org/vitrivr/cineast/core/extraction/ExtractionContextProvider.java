@@ -127,6 +127,13 @@ default Optional<Path> relPath() {
    */
   int threadPoolSize();
 
+  /**
+   * Returns the number of threads used to run the {@link MetadataExtractor}s, independently of the extraction pipeline.
+   *
+   * @return Number of threads. Must be > 0.
+   */
+  int metadataThreadPoolSize();
+
   /**
    * Returns the size of the task queue. That queue is used to store extraction tasks right before they are being processed.
    *
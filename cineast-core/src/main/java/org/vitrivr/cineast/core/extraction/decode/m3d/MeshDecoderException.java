@@ -5,6 +5,10 @@ public class MeshDecoderException extends Exception {
 
   private static final long serialVersionUID = -6496491964433759446L;
 
+  MeshDecoderException(String message) {
+    super(message);
+  }
+
   MeshDecoderException(String message, Throwable cause) {
     super(message, cause);
   }
@@ -0,0 +1,332 @@
+package org.vitrivr.cineast.core.extraction.decode.m3d;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Allocation-light tokenizer for line-based ASCII mesh formats (OBJ, OFF, ASCII STL). Operates directly on the bytes of a (memory-mapped) {@link ByteBuffer} and parses numbers without creating intermediate {@link String}s.
+ * <p>
+ * Tokens are separated by spaces, tabs and carriage returns; lines are terminated by '\n'. A '/' terminates a number, which allows for parsing OBJ face definitions such as '1/2/3'.
+ */
+final class MeshTokenizer {
+
+  /**
+   * Powers of ten that can be represented exactly as double.
+   */
+  private static final double[] POWERS_OF_TEN = {
+      1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11,
+      1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22
+  };
+
+  /**
+   * Largest mantissa that can be represented exactly as double.
+   */
+  private static final long MAX_EXACT_MANTISSA = 1L << 53;
+
+  /**
+   * The buffer to read from.
+   */
+  private final ByteBuffer buffer;
+
+  /**
+   * The end of the readable region of the buffer.
+   */
+  private final int limit;
+
+  /**
+   * The current read position.
+   */
+  private int position;
+
+  /**
+   * The exponent parsed by the last invocation of {@link #exponent(int)}.
+   */
+  private int lastExponent;
+
+  /**
+   * Creates a new {@link MeshTokenizer} for the remaining bytes of the provided {@link ByteBuffer}.
+   *
+   * @param buffer The {@link ByteBuffer} to read from.
+   */
+  MeshTokenizer(ByteBuffer buffer) {
+    this.buffer = buffer;
+    this.position = buffer.position();
+    this.limit = buffer.limit();
+  }
+
+  /**
+   * Maps the file at the given path into memory.
+   *
+   * @param path Path to the file.
+   * @return Read-only {@link ByteBuffer} backed by the file.
+   * @throws IOException If the file could not be mapped, e.g., because it is larger than 2 GB.
+   */
+  static ByteBuffer map(Path path) throws IOException {
+    try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+      if (channel.size() > Integer.MAX_VALUE) {
+        throw new IOException("File " + path + " is too large to be memory-mapped (" + channel.size() + " bytes).");
+      }
+      return channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+    }
+  }
+
+  /**
+   * Returns true, if there are bytes left to read.
+   */
+  boolean hasRemaining() {
+    return this.position < this.limit;
+  }
+
+  /**
+   * Skips blanks and returns true, if the end of the current line (or the input) has been reached.
+   */
+  boolean endOfLine() {
+    this.skipBlanks();
+    return this.position >= this.limit || this.buffer.get(this.position) == '\n';
+  }
+
+  /**
+   * Advances the tokenizer to the beginning of the next line.
+   */
+  void nextLine() {
+    while (this.position < this.limit) {
+      if (this.buffer.get(this.position++) == '\n') {
+        return;
+      }
+    }
+  }
+
+  /**
+   * Skips blanks and consumes the next token if it equals the provided keyword. The tokenizer is not advanced otherwise.
+   *
+   * @param keyword The ASCII keyword to match.
+   * @return True if the keyword was matched and consumed, false otherwise.
+   */
+  boolean nextTokenIs(String keyword) {
+    this.skipBlanks();
+    final int length = keyword.length();
+    if (this.position + length > this.limit) {
+      return false;
+    }
+    for (int i = 0; i < length; i++) {
+      if (this.buffer.get(this.position + i) != keyword.charAt(i)) {
+        return false;
+      }
+    }
+    final int end = this.position + length;
+    if (end < this.limit && !isDelimiter(this.buffer.get(end))) {
+      return false;
+    }
+    this.position = end;
+    return true;
+  }
+
+  /**
+   * Returns true, if the remaining input starts with the provided ASCII prefix. Does not advance the tokenizer.
+   *
+   * @param prefix The prefix to check.
+   */
+  boolean startsWith(String prefix) {
+    if (this.position + prefix.length() > this.limit) {
+      return false;
+    }
+    for (int i = 0; i < prefix.length(); i++) {
+      if (this.buffer.get(this.position + i) != prefix.charAt(i)) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Skips the remainder of the current token, e.g. the '/vt/vn' suffix following a vertex index in an OBJ face. Does nothing if the tokenizer is positioned at a blank.
+   */
+  void skipToken() {
+    while (this.position < this.limit && !isDelimiter(this.buffer.get(this.position))) {
+      this.position++;
+    }
+  }
+
+  /**
+   * Skips blanks and parses the next integer. Parsing stops at the first blank, line break or '/'.
+   *
+   * @return The parsed integer.
+   * @throws NumberFormatException If no valid integer could be parsed.
+   */
+  int nextInt() {
+    this.skipBlanks();
+    final int start = this.position;
+    boolean negative = false;
+    if (this.position < this.limit) {
+      final byte sign = this.buffer.get(this.position);
+      if (sign == '-' || sign == '+') {
+        negative = sign == '-';
+        this.position++;
+      }
+    }
+    long value = 0;
+    int digits = 0;
+    while (this.position < this.limit) {
+      final int digit = this.buffer.get(this.position) - '0';
+      if (digit < 0 || digit > 9) {
+        break;
+      }
+      value = 10 * value + digit;
+      if (value > (long) Integer.MAX_VALUE + 1) {
+        throw new NumberFormatException("Integer out of range: " + this.token(start));
+      }
+      digits++;
+      this.position++;
+    }
+    if (digits == 0 || (this.position < this.limit && !isNumberEnd(this.buffer.get(this.position)))) {
+      throw new NumberFormatException("Invalid integer: " + this.token(start));
+    }
+    value = negative ? -value : value;
+    if (value > Integer.MAX_VALUE) {
+      throw new NumberFormatException("Integer out of range: " + this.token(start));
+    }
+    return (int) value;
+  }
+
+  /**
+   * Skips blanks and parses the next float. The result is identical to {@link Float#parseFloat(String)}; plain decimal numbers are parsed without allocation, other notations fall back to the JDK.
+   *
+   * @return The parsed float.
+   * @throws NumberFormatException If no valid float could be parsed.
+   */
+  float nextFloat() {
+    this.skipBlanks();
+    final int start = this.position;
+    int p = this.position;
+    boolean negative = false;
+    if (p < this.limit) {
+      final byte sign = this.buffer.get(p);
+      if (sign == '-' || sign == '+') {
+        negative = sign == '-';
+        p++;
+      }
+    }
+
+    long mantissa = 0;
+    int digits = 0;
+    int scale = 0;
+    boolean exact = true;
+    boolean fraction = false;
+    for (; p < this.limit; p++) {
+      final byte c = this.buffer.get(p);
+      if (c >= '0' && c <= '9') {
+        if (mantissa < MAX_EXACT_MANTISSA / 10) {
+          mantissa = 10 * mantissa + (c - '0');
+          if (fraction) {
+            scale++;
+          }
+        } else {
+          exact = false;
+        }
+        digits++;
+      } else if (c == '.' && !fraction) {
+        fraction = true;
+      } else if (c == 'e' || c == 'E') {
+        p = this.exponent(p + 1);
+        if (p < 0) {
+          exact = false;
+          p = -p;
+        } else {
+          scale -= this.lastExponent;
+        }
+        break;
+      } else {
+        break;
+      }
+    }
+
+    /* Fast path: mantissa and power of ten are exact doubles, hence their quotient / product is correctly rounded. */
+    if (exact && digits > 0 && (p >= this.limit || isNumberEnd(this.buffer.get(p))) && scale >= -22 && scale <= 22) {
+      final double value = scale >= 0 ? mantissa / POWERS_OF_TEN[scale] : mantissa * POWERS_OF_TEN[-scale];
+      final long bits = Double.doubleToRawLongBits(value);
+      /* Rounding to float is only ambiguous if the double lies exactly halfway between two floats. */
+      if ((bits & 0x1FFFFFFFL) != 0x10000000L || value == 0.0) {
+        this.position = p;
+        final float result = (float) value;
+        return negative ? -result : result;
+      }
+    }
+
+    /* Slow path: delegate to the JDK. */
+    this.position = start;
+    this.skipToken();
+    return Float.parseFloat(this.token(start));
+  }
+
+  /**
+   * Parses an exponent starting at the given position and stores it in {@link #lastExponent}.
+   *
+   * @param p Position after the 'e' / 'E'.
+   * @return Position after the exponent or its negative, if the exponent is malformed or out of the exact range.
+   */
+  private int exponent(int p) {
+    boolean negative = false;
+    if (p < this.limit) {
+      final byte sign = this.buffer.get(p);
+      if (sign == '-' || sign == '+') {
+        negative = sign == '-';
+        p++;
+      }
+    }
+    int exponent = 0;
+    int digits = 0;
+    for (; p < this.limit; p++) {
+      final int digit = this.buffer.get(p) - '0';
+      if (digit < 0 || digit > 9) {
+        break;
+      }
+      if (exponent < 1000) {
+        exponent = 10 * exponent + digit;
+      }
+      digits++;
+    }
+    if (digits == 0 || exponent > 22) {
+      return -p;
+    }
+    this.lastExponent = negative ? -exponent : exponent;
+    return p;
+  }
+
+  /**
+   * Skips spaces, tabs and carriage returns.
+   */
+  private void skipBlanks() {
+    while (this.position < this.limit) {
+      final byte c = this.buffer.get(this.position);
+      if (c != ' ' && c != '\t' && c != '\r') {
+        return;
+      }
+      this.position++;
+    }
+  }
+
+  /**
+   * Returns the token starting at the given position as string. Only used on slow paths and for error messages.
+   */
+  private String token(int start) {
+    int end = start;
+    while (end < this.limit && !isDelimiter(this.buffer.get(end))) {
+      end++;
+    }
+    final byte[] bytes = new byte[end - start];
+    this.buffer.get(start, bytes);
+    return new String(bytes, StandardCharsets.US_ASCII);
+  }
+
+  private static boolean isDelimiter(byte c) {
+    return c == ' ' || c == '\t' || c == '\r' || c == '\n';
+  }
+
+  private static boolean isNumberEnd(byte c) {
+    return isDelimiter(c) || c == '/';
+  }
+}
@@ -1,10 +1,6 @@
 package org.vitrivr.cineast.core.extraction.decode.m3d;
 
-import java.io.BufferedReader;
 import java.io.IOException;
-import java.io.InputStream;
-import java.io.InputStreamReader;
-import java.nio.file.Files;
 import java.nio.file.Path;
 import java.util.Collections;
 import java.util.HashSet;
@@ -12,9 +8,6 @@
 import java.util.concurrent.atomic.AtomicBoolean;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
-import org.joml.Vector3f;
-import org.joml.Vector3i;
-import org.joml.Vector4i;
 import org.vitrivr.cineast.core.config.CacheConfig;
 import org.vitrivr.cineast.core.config.DecoderConfig;
 import org.vitrivr.cineast.core.data.m3d.Mesh;
@@ -78,45 +71,45 @@ public boolean init(Path path, DecoderConfig decoderConfig, CacheConfig cacheCon
   public Mesh getNext() {
     Mesh mesh = new Mesh(100, 100);
     try {
-      InputStream is = Files.newInputStream(this.inputFile);
-      BufferedReader br = new BufferedReader(new InputStreamReader(is));
-      String line = null;
-      while ((line = br.readLine()) != null) {
-        String[] tokens = line.split("\\s+");
-        switch (tokens[0]) {
-          case "v":
-            mesh.addVertex(new Vector3f(Float.parseFloat(tokens[1]), Float.parseFloat(tokens[2]), Float.parseFloat(tokens[3])));
-            break;
-          case "f":
-            boolean quad = (tokens.length == 5);
-            String[] p1 = tokens[1].split("/");
-            String[] p2 = tokens[2].split("/");
-            String[] p3 = tokens[3].split("/");
+      final MeshTokenizer tokenizer = new MeshTokenizer(MeshTokenizer.map(this.inputFile));
+      final int[] indices = new int[4];
+      while (tokenizer.hasRemaining()) {
+        if (tokenizer.nextTokenIs("v")) {
+          mesh.addVertex(tokenizer.nextFloat(), tokenizer.nextFloat(), tokenizer.nextFloat());
+        } else if (tokenizer.nextTokenIs("f")) {
+          /* Only the vertex index of every 'v/vt/vn' triple is used; faces with more than four vertices are truncated to a triangle. */
+          int count = 0;
+          while (!tokenizer.endOfLine()) {
+            int index = tokenizer.nextInt() - 1;
+            if (count < 4) {
+              indices[count] = index;
+            }
+            count++;
+            tokenizer.skipToken();
+          }
+          if (count < 3) {
+            throw new MeshDecoderException("Face " + (mesh.numberOfFaces() + 1) + " lists " + count + " vertices but at least three are required.");
+          }
+          boolean quad = (count == 4);
+          if (!mesh.addFace(indices[0], indices[1], indices[2], quad ? indices[3] : -1)) {
             if (quad) {
-              String[] p4 = tokens[4].split("/");
-              Vector4i vertexIndex = new Vector4i(Integer.parseInt(p1[0]) - 1, Integer.parseInt(p2[0]) - 1, Integer.parseInt(p3[0]) - 1, Integer.parseInt(p4[0]) - 1);
-              if (!mesh.addFace(vertexIndex)) {
-                LOGGER.warn("Could not add face {}/{}/{}/{} because index points to non-existing vertex.", vertexIndex.x, vertexIndex.y, vertexIndex.z, vertexIndex.w);
-              }
+              LOGGER.warn("Could not add face {}/{}/{}/{} because index points to non-existing vertex.", indices[0], indices[1], indices[2], indices[3]);
             } else {
-              Vector3i vertexIndex = new Vector3i(Integer.parseInt(p1[0]) - 1, Integer.parseInt(p2[0]) - 1, Integer.parseInt(p3[0]) - 1);
-              if (!mesh.addFace(vertexIndex)) {
-                LOGGER.warn("Could not add face {}/{}/{} because index points to non-existing vertex.", vertexIndex.x, vertexIndex.y, vertexIndex.z);
-              }
+              LOGGER.warn("Could not add face {}/{}/{} because index points to non-existing vertex.", indices[0], indices[1], indices[2]);
             }
-            break;
-          default:
-            break;
+          }
         }
+        tokenizer.nextLine();
       }
-
-      br.close(); /* Closes the input stream. */
     } catch (IOException e) {
       LOGGER.error("Could not decode OBJ file {} due to an IO exception ({})", this.inputFile.toString(), LogHelper.getStackTrace(e));
       mesh = null;
     } catch (NumberFormatException e) {
       LOGGER.error("Could not decode OBJ file {} because one of the tokens could not be converted to a valid number.", this.inputFile.toString());
       mesh = null;
+    } catch (MeshDecoderException e) {
+      LOGGER.error("Could not decode OBJ file {}: {}", this.inputFile.toString(), e.getMessage());
+      mesh = null;
     } catch (ArrayIndexOutOfBoundsException e) {
       LOGGER.error("Could not decode OBJ file {} because one of the faces points to invalid vertex indices.", this.inputFile.toString());
       mesh = null;
@@ -1,10 +1,6 @@
 package org.vitrivr.cineast.core.extraction.decode.m3d;
 
-import java.io.BufferedReader;
 import java.io.IOException;
-import java.io.InputStream;
-import java.io.InputStreamReader;
-import java.nio.file.Files;
 import java.nio.file.Path;
 import java.util.Collections;
 import java.util.HashSet;
@@ -12,9 +8,6 @@
 import java.util.concurrent.atomic.AtomicBoolean;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
-import org.joml.Vector3f;
-import org.joml.Vector3i;
-import org.joml.Vector4i;
 import org.vitrivr.cineast.core.config.CacheConfig;
 import org.vitrivr.cineast.core.config.DecoderConfig;
 import org.vitrivr.cineast.core.data.m3d.Mesh;
@@ -37,11 +30,6 @@ public class OFFMeshDecoder implements Decoder<Mesh> {
    */
   private static final Logger LOGGER = LogManager.getLogger();
 
-  /**
-   * Delimiter used to separate two entries.
-   */
-  private static final String DELIMITER = " ";
-
   /**
    * Token used to denote the beginning of the OFF file.
    */
@@ -91,66 +79,59 @@ public boolean init(Path path, DecoderConfig decoderConfig, CacheConfig cacheCon
   @Override
   public Mesh getNext() {
     try {
-      InputStream is = Files.newInputStream(this.inputFile);
-      BufferedReader br = new BufferedReader(new InputStreamReader(is));
+      final MeshTokenizer tokenizer = new MeshTokenizer(MeshTokenizer.map(this.inputFile));
 
       /* First line must start with OFF. */
-      String line = br.readLine();
-      String[] tokens = null;
-      if (line == null || !line.startsWith(TOKEN_BOF)) {
+      if (!tokenizer.startsWith(TOKEN_BOF)) {
         return null;
       }
+      tokenizer.nextLine();
 
       /* Now read second line which should contain the number of vertices and faces. */
-      line = br.readLine();
-      if (line == null) {
+      if (tokenizer.endOfLine()) {
         return null;
       }
-      tokens = line.split(DELIMITER);
-
-      int vertices = Integer.parseInt(tokens[0]);
-      int faces = Integer.parseInt(tokens[1]);
+      int vertices = tokenizer.nextInt();
+      int faces = tokenizer.nextInt();
+      tokenizer.nextLine();
 
       /* Prepare empty mesh. */
       Mesh mesh = new Mesh(faces, vertices);
 
       /* Now read all the vertices. */
       for (int v = 0; v < vertices; v++) {
-        line = br.readLine();
-        if (line == null) {
+        if (!tokenizer.hasRemaining()) {
           LOGGER.error("Could not decode OFF file {} because file seems to be missing some vertices ({}/{}).", this.inputFile.toString(), v, vertices);
           return null;
         }
-        tokens = line.split(DELIMITER);
-        mesh.addVertex(new Vector3f(Float.parseFloat(tokens[0]), Float.parseFloat(tokens[1]), Float.parseFloat(tokens[2])));
+        mesh.addVertex(tokenizer.nextFloat(), tokenizer.nextFloat(), tokenizer.nextFloat());
+        tokenizer.nextLine();
       }
 
       /* Now read all the faces. */
       for (int f = 0; f < faces; f++) {
-        line = br.readLine();
-        if (line == null) {
+        if (!tokenizer.hasRemaining()) {
           LOGGER.error("Could not decode OFF file {} because file seems to be missing some faces ({}/{}).", this.inputFile.toString(), f, vertices);
           return null;
         }
-        tokens = line.split(DELIMITER);
-        if (Integer.parseInt(tokens[0]) == 4) {
-          Vector4i vertexIndex = new Vector4i(Integer.parseInt(tokens[1]), Integer.parseInt(tokens[2]), Integer.parseInt(tokens[3]), Integer.parseInt(tokens[4]));
-          if (!mesh.addFace(vertexIndex)) {
-            LOGGER.warn("Could not add face {}/{}/{}/{} because index points to non-existing vertex.", vertexIndex.x, vertexIndex.y, vertexIndex.z, vertexIndex.w);
+        int count = tokenizer.nextInt();
+        if (count == 4) {
+          int v1 = tokenizer.nextInt(), v2 = tokenizer.nextInt(), v3 = tokenizer.nextInt(), v4 = tokenizer.nextInt();
+          if (!mesh.addFace(v1, v2, v3, v4)) {
+            LOGGER.warn("Could not add face {}/{}/{}/{} because index points to non-existing vertex.", v1, v2, v3, v4);
           }
-        } else if (Integer.parseInt(tokens[0]) == 3) {
-          Vector3i vertexIndex = new Vector3i(Integer.parseInt(tokens[1]), Integer.parseInt(tokens[2]), Integer.parseInt(tokens[3]));
-          if (!mesh.addFace(vertexIndex)) {
-            LOGGER.warn("Could not add face {}/{}/{}/{} because index points to non-existing vertex.", vertexIndex.x, vertexIndex.y, vertexIndex.z);
+        } else if (count == 3) {
+          int v1 = tokenizer.nextInt(), v2 = tokenizer.nextInt(), v3 = tokenizer.nextInt();
+          if (!mesh.addFace(v1, v2, v3, -1)) {
+            LOGGER.warn("Could not add face {}/{}/{} because index points to non-existing vertex.", v1, v2, v3);
           }
         } else {
-          LOGGER.error("Could not decode OFF file {} because this implementation of Mesh only supports triangular and quadrilateral faces. The provided number of faces is {}.", this.inputFile.toString(), Integer.parseInt(tokens[0]));
+          LOGGER.error("Could not decode OFF file {} because this implementation of Mesh only supports triangular and quadrilateral faces. The provided number of faces is {}.", this.inputFile.toString(), count);
           return null;
         }
+        tokenizer.nextLine();
       }
 
-      br.close(); /* Closes the input stream. */
-
       return mesh;
     } catch (IOException e) {
       LOGGER.error("Could not decode OFF file {} due to an IO exception ({})", this.inputFile.toString(), LogHelper.getStackTrace(e));
@@ -158,9 +139,6 @@ public Mesh getNext() {
     } catch (NumberFormatException e) {
       LOGGER.error("Could not decode OFF file {} because one of the tokens could not be converted to a valid number.", this.inputFile.toString(), LogHelper.getStackTrace(e));
       return null;
-    } catch (ArrayIndexOutOfBoundsException e) {
-      LOGGER.error("Could not decode OFF file {} because one of the faces points to invalid vertex indices.", this.inputFile.toString(), LogHelper.getStackTrace(e));
-      return null;
     } finally {
       this.complete.set(true);
     }
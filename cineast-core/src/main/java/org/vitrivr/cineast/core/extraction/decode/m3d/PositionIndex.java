@@ -0,0 +1,109 @@
+package org.vitrivr.cineast.core.extraction.decode.m3d;
+
+import java.util.Arrays;
+
+/**
+ * Open-addressing hash map from vertex positions to vertex indices, used to merge the duplicate vertices found in STL files. Positions are compared bitwise (i.e. like {@link org.joml.Vector3f#equals(Object)}) without allocating a key object per vertex.
+ */
+final class PositionIndex {
+
+  /**
+   * Marker for empty slots.
+   */
+  private static final int EMPTY = -1;
+
+  /**
+   * Bit patterns of the stored positions (x, y, z per entry).
+   */
+  private int[] keys;
+
+  /**
+   * Slot table holding entry numbers or {@link #EMPTY}.
+   */
+  private int[] slots;
+
+  /**
+   * Number of stored entries.
+   */
+  private int size;
+
+  /**
+   * Creates a new {@link PositionIndex}.
+   *
+   * @param expected Expected number of distinct positions.
+   */
+  PositionIndex(int expected) {
+    final int capacity = Integer.highestOneBit(Math.max(16, 2 * expected) - 1) << 1;
+    this.slots = new int[capacity];
+    Arrays.fill(this.slots, EMPTY);
+    this.keys = new int[3 * Math.max(16, expected)];
+  }
+
+  /**
+   * Returns the index of the given position, adding it if it has not been seen before. Indices are assigned consecutively starting with zero.
+   *
+   * @param x x-coordinate.
+   * @param y y-coordinate.
+   * @param z z-coordinate.
+   * @return Index of the position; equal to {@link #size()} - 1 if it was just added.
+   */
+  int indexOf(float x, float y, float z) {
+    final int bx = Float.floatToIntBits(x);
+    final int by = Float.floatToIntBits(y);
+    final int bz = Float.floatToIntBits(z);
+    final int mask = this.slots.length - 1;
+    int slot = hash(bx, by, bz) & mask;
+    while (true) {
+      final int entry = this.slots[slot];
+      if (entry == EMPTY) {
+        break;
+      }
+      if (this.keys[3 * entry] == bx && this.keys[3 * entry + 1] == by && this.keys[3 * entry + 2] == bz) {
+        return entry;
+      }
+      slot = (slot + 1) & mask;
+    }
+
+    /* Position not found: add it. */
+    if (3 * (this.size + 1) > this.keys.length) {
+      this.keys = Arrays.copyOf(this.keys, 2 * this.keys.length);
+    }
+    final int entry = this.size++;
+    this.keys[3 * entry] = bx;
+    this.keys[3 * entry + 1] = by;
+    this.keys[3 * entry + 2] = bz;
+    this.slots[slot] = entry;
+    if (2 * this.size > this.slots.length) {
+      this.rehash();
+    }
+    return entry;
+  }
+
+  /**
+   * Returns the number of distinct positions.
+   */
+  int size() {
+    return this.size;
+  }
+
+  /**
+   * Doubles the slot table.
+   */
+  private void rehash() {
+    this.slots = new int[2 * this.slots.length];
+    Arrays.fill(this.slots, EMPTY);
+    final int mask = this.slots.length - 1;
+    for (int entry = 0; entry < this.size; entry++) {
+      int slot = hash(this.keys[3 * entry], this.keys[3 * entry + 1], this.keys[3 * entry + 2]) & mask;
+      while (this.slots[slot] != EMPTY) {
+        slot = (slot + 1) & mask;
+      }
+      this.slots[slot] = entry;
+    }
+  }
+
+  private static int hash(int x, int y, int z) {
+    int h = x * 0x9E3779B1 + y * 0x85EBCA77 + z * 0xC2B2AE3D;
+    return h ^ (h >>> 16);
+  }
+}
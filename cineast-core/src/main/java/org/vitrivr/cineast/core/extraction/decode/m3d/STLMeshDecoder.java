@@ -1,14 +1,9 @@
 package org.vitrivr.cineast.core.extraction.decode.m3d;
 
 
-import com.carrotsearch.hppc.ObjectIntHashMap;
-import java.io.BufferedReader;
 import java.io.IOException;
-import java.io.InputStream;
-import java.io.InputStreamReader;
 import java.nio.ByteBuffer;
 import java.nio.ByteOrder;
-import java.nio.file.Files;
 import java.nio.file.Path;
 import java.util.Collections;
 import java.util.HashSet;
@@ -16,8 +11,6 @@
 import java.util.concurrent.atomic.AtomicBoolean;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
-import org.joml.Vector3f;
-import org.joml.Vector3i;
 import org.vitrivr.cineast.core.config.CacheConfig;
 import org.vitrivr.cineast.core.config.DecoderConfig;
 import org.vitrivr.cineast.core.data.m3d.Mesh;
@@ -39,6 +32,16 @@ public class STLMeshDecoder implements Decoder<Mesh> {
    */
   private static final int MAX_TRIANGLES = 5000000;
 
+  /**
+   * Size of the binary STL header in bytes.
+   */
+  private static final int HEADER_SIZE = 80;
+
+  /**
+   * Size of a single triangle record in a binary STL file in bytes (normal, three vertices, attribute byte count).
+   */
+  private static final int TRIANGLE_SIZE = 50;
+
   /**
    * HashSet containing all the mime-types supported by this ImageDecoder instance.
    */
@@ -83,15 +86,14 @@ public boolean init(Path path, DecoderConfig decoderConfig, CacheConfig cacheCon
   @Override
   public Mesh getNext() {
     try {
-      InputStream is = Files.newInputStream(this.inputFile);
-      byte[] header = new byte[6];
-      if (is.read(header) == 6) {
-        if ((new String(header)).contains("solid ")) {
+      ByteBuffer buffer = MeshTokenizer.map(this.inputFile);
+      if (buffer.remaining() >= 6) {
+        if (new MeshTokenizer(buffer).startsWith("solid ")) {
           LOGGER.info("Found term 'solid' in header. Treating the STL file as ASCII STL file!");
-          return this.readAscii(is);
+          return this.readAscii(buffer);
         } else {
           LOGGER.info("Did not find term 'solid' in header. Treating the STL file as binary STL file!");
-          return this.readBinary(is, 74);
+          return this.readBinary(buffer);
         }
       } else {
         LOGGER.warn("Could not read the first 10 bytes of the file {}. This is not a valid STL file.", this.inputFile.toString());
@@ -101,6 +103,9 @@ public Mesh getNext() {
       LOGGER.error("Could not decode STL file {} due to an IO exception ({})", this.inputFile.toString(), LogHelper.getStackTrace(e));
       this.complete.set(true);
       return null;
+    } catch (NumberFormatException e) {
+      LOGGER.error("Could not decode STL file {} because one of the tokens could not be converted to a valid number.", this.inputFile.toString());
+      return null;
     } finally {
       this.complete.set(true);
     }
@@ -109,96 +114,73 @@ public Mesh getNext() {
   /**
    * Reads an ASCII STL file.
    *
-   * @param is InputStream to read from.
+   * @param buffer The memory-mapped STL file.
    * @return Mesh
-   * @throws IOException If an error occurs during reading.
    */
-  private Mesh readAscii(InputStream is) throws IOException {
-    BufferedReader br = new BufferedReader(new InputStreamReader(is));
-    String line = null;
+  private Mesh readAscii(ByteBuffer buffer) {
+    MeshTokenizer tokenizer = new MeshTokenizer(buffer);
 
     /* Prepare empty mesh. */
     Mesh mesh = new Mesh(100, 100);
 
     /* Prepare helper structures. */
-    ObjectIntHashMap<Vector3f> vertexBuffer = new ObjectIntHashMap<>();
-    int index = 0;
+    PositionIndex vertexBuffer = new PositionIndex(100);
     int[] vertexindices = new int[3];
+    int vidx = -1;
 
-    while ((line = br.readLine()) != null && !line.startsWith("endsolid")) {
-      line = line.trim();
-
+    while (tokenizer.hasRemaining()) {
       /* Detect end of STL file. */
-      if (line.startsWith("endsolid")) {
+      if (tokenizer.nextTokenIs("endsolid")) {
         break;
       }
 
-      /* Detect begin of facet. */
-      if (line.startsWith("facet normal ")) {
-        int vidx = 0;
-
-        while ((line = br.readLine()) != null) {
-
-          line = line.trim(); /* Trim line. */
-
-          /* Detect end of facet. */
-          if (line.equals("endfacet")) {
-            break;
-          }
-
-          /* Detect vertex. */
-          if (line.startsWith("vertex")) {
-            String[] splitVertex = line.split("\\s+");
-            Vector3f vertex = new Vector3f(Float.parseFloat(splitVertex[1]), Float.parseFloat(splitVertex[2]), Float.parseFloat(splitVertex[3]));
-            if (!vertexBuffer.containsKey(vertex)) {
-              mesh.addVertex(vertex);
-              vertexBuffer.put(vertex, index);
-              index++;
-            }
-            vertexindices[vidx] = vertexBuffer.get(vertex);
-            vidx++;
-          }
+      if (tokenizer.nextTokenIs("facet")) {
+        /* Detect begin of facet. */
+        vidx = 0;
+      } else if (tokenizer.nextTokenIs("vertex") && vidx >= 0) {
+        /* Detect vertex. */
+        float x = tokenizer.nextFloat();
+        float y = tokenizer.nextFloat();
+        float z = tokenizer.nextFloat();
+        int index = vertexBuffer.indexOf(x, y, z);
+        if (index == mesh.numberOfVertices()) {
+          mesh.addVertex(x, y, z);
         }
-
+        if (vidx < 3) {
+          vertexindices[vidx] = index;
+        }
+        vidx++;
+      } else if (tokenizer.nextTokenIs("endfacet") && vidx >= 3) {
         /* Add a new face to the Mesh. */
-        mesh.addFace(new Vector3i(vertexindices[0], vertexindices[1], vertexindices[2]));
+        mesh.addFace(vertexindices[0], vertexindices[1], vertexindices[2], -1);
+        vidx = -1;
       }
+      tokenizer.nextLine();
     }
 
-    /* Close the buffered reader. */
-    br.close();
-
     /* This covers the case, where the file starts with 'solid ' but is not an ASCII file. Unfortunately, such files do exist. */
     if (mesh.numberOfVertices() == 0) {
       LOGGER.warn("The provided ASCII STL file does not seem to contain any normals or vertices. Trying to decode it as binary STL even though it was marked as being ASCII.");
-      InputStream newIs = Files.newInputStream(this.inputFile);
-      return this.readBinary(newIs, 80);
+      return this.readBinary(buffer);
     } else {
       return mesh;
     }
   }
 
   /**
-   * Reads a binary STL file.
+   * Reads a binary STL file directly from the memory-mapped file.
    *
-   * @param is   InputStream to read from.
-   * @param skip Number of bytes to skip before reading the STL file.
+   * @param buffer The memory-mapped STL file.
    * @return Mesh
-   * @throws IOException If an error occurs during reading.
    */
-  private Mesh readBinary(InputStream is, int skip) throws IOException {
-    /* Prepare a ByteBuffer to read the rest of the STL file. */
-    byte[] bytes = new byte[50];
-    ByteBuffer buffer = ByteBuffer.wrap(bytes);
-    buffer.order(ByteOrder.LITTLE_ENDIAN);
-
-    /* Skip the STL header! */
-    is.skip(skip);
-
-    /* Read the bytes for the size (unsigned 32 bit int, little-endian). */
-    byte[] sizeBytes = new byte[4];
-    is.read(sizeBytes, 0, 4);
-    long triangles = ((sizeBytes[0] & 0xFF)) | ((sizeBytes[1] & 0xFF) << 8) | ((sizeBytes[2] & 0xFF) << 16) | ((sizeBytes[3] & 0xFF) << 24);
+  private Mesh readBinary(ByteBuffer buffer) {
+    /* Skip the STL header and read the size (unsigned 32 bit int, little-endian). */
+    buffer = buffer.duplicate().order(ByteOrder.LITTLE_ENDIAN);
+    if (buffer.limit() < HEADER_SIZE + 4) {
+      LOGGER.error("The STL file is too short to contain the number of triangles. This STL file is probably corrupt!");
+      return null;
+    }
+    long triangles = Integer.toUnsignedLong(buffer.getInt(HEADER_SIZE));
 
     /* TODO: Properly handle models whose triangles > MAX_TRIANGLES. */
     if (triangles <= 0) {
@@ -209,44 +191,41 @@ private Mesh readBinary(InputStream is, int skip) throws IOException {
       return null;
     }
 
+    long available = (buffer.limit() - HEADER_SIZE - 4) / TRIANGLE_SIZE;
+    if (available < triangles) {
+      LOGGER.warn("The STL file declares {} triangles but only contains {}. Reading the available triangles only.", triangles, available);
+      triangles = available;
+    }
+
     /* Prepare Mesh. */
     Mesh mesh = new Mesh((int) triangles, (int) triangles);
 
     /* Prepare helper structures. */
-    ObjectIntHashMap<Vector3f> vertexBuffer = new ObjectIntHashMap<>();
-    int index = 0;
+    PositionIndex vertexBuffer = new PositionIndex((int) triangles);
     int[] vertexindices = new int[3];
 
-    /* Now add all triangles. */
+    /* Now add all triangles; the face normal (first three floats) and the attribute byte count (last two bytes) are ignored. */
     for (int i = 0; i < triangles; i++) {
-      /* Ready 48 bytes from the stream. */
-      buffer.rewind();
-      is.read(bytes);
-
-      /* Read and ignore three floats. */
-      buffer.getFloat();
-      buffer.getFloat();
-      buffer.getFloat();
-
-      /* Add the vertices and the vertex-normal to the mesh. */
-      for (int vidx = 0; vidx < 3; vidx++) {
-        Vector3f vertex = new Vector3f(buffer.getFloat(), buffer.getFloat(), buffer.getFloat());
-        if (!vertexBuffer.containsKey(vertex)) {
-          mesh.addVertex(vertex);
-          vertexBuffer.put(vertex, index);
-          index++;
+      int offset = HEADER_SIZE + 4 + i * TRIANGLE_SIZE + 12;
+
+      /* Add the vertices to the mesh. */
+      for (int vidx = 0; vidx < 3; vidx++, offset += 12) {
+        float x = buffer.getFloat(offset);
+        float y = buffer.getFloat(offset + 4);
+        float z = buffer.getFloat(offset + 8);
+        int index = vertexBuffer.indexOf(x, y, z);
+        if (index == mesh.numberOfVertices()) {
+          mesh.addVertex(x, y, z);
         }
-        vertexindices[vidx] = vertexBuffer.get(vertex);
+        vertexindices[vidx] = index;
       }
 
       /* Add a new face to the Mesh. */
-      if (!mesh.addFace(new Vector3i(vertexindices[0], vertexindices[1], vertexindices[2]))) {
+      if (!mesh.addFace(vertexindices[0], vertexindices[1], vertexindices[2], -1)) {
         LOGGER.warn("Could not add face {}/{}/{} because index points to non-existing vertex.", vertexindices[0], vertexindices[1], vertexindices[2]);
       }
     }
 
-    /* Closes the InputStream. */
-    is.close();
     return mesh;
   }
 
@@ -63,4 +63,9 @@ public List<MediaObjectMetadataDescriptor> extract(String objectId, Path path) {
   public String domain() {
     return "EXIF";
   }
+
+  @Override
+  public boolean isThreadSafe() {
+    return true;
+  }
 }
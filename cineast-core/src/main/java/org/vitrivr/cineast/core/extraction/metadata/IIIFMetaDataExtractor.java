@@ -54,4 +54,9 @@ public List<MediaObjectMetadataDescriptor> extract(String objectId, Path path) {
   public String domain() {
     return "IIIF";
   }
+
+  @Override
+  public boolean isThreadSafe() {
+    return true;
+  }
 }
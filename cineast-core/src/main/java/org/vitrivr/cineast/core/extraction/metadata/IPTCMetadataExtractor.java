@@ -29,4 +29,9 @@ public List<MediaObjectMetadataDescriptor> extract(String objectId, Path path) {
   public String domain() {
     return null;
   }
+
+  @Override
+  public boolean isThreadSafe() {
+    return true;
+  }
 }
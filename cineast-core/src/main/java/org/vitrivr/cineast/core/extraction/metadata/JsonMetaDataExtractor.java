@@ -52,4 +52,8 @@ public String domain() {
     return "JSON";
   }
 
+  @Override
+  public boolean isThreadSafe() {
+    return true;
+  }
 }
@@ -23,6 +23,15 @@ default void init() {
    */
   List<MediaObjectMetadataDescriptor> extract(String objectId, Path path);
 
+  /**
+   * Returns true if {@link #extract(String, Path)} may be invoked concurrently for different files. Extractors that are not thread-safe are invoked by one thread at a time. The default implementation returns false.
+   *
+   * @return True if this extractor is thread-safe.
+   */
+  default boolean isThreadSafe() {
+    return false;
+  }
+
   /**
    * Closes and cleans up the extractor. The default implementation does nothing.
    */
@@ -115,4 +115,9 @@ public List<MediaObjectMetadataDescriptor> extract(String objectId, Path path) {
   public String domain() {
     return "technical";
   }
+
+  @Override
+  public boolean isThreadSafe() {
+    return true;
+  }
 }
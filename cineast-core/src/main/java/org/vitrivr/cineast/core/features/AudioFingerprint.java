@@ -17,6 +17,7 @@
 import org.vitrivr.cineast.core.data.segments.SegmentContainer;
 import org.vitrivr.cineast.core.db.PersistentTuple;
 import org.vitrivr.cineast.core.features.abstracts.StagedFeatureModule;
+import org.vitrivr.cineast.core.util.audio.DerivedAudioFeatures;
 import org.vitrivr.cineast.core.util.dsp.fft.FFTUtil;
 import org.vitrivr.cineast.core.util.dsp.fft.STFT;
 import org.vitrivr.cineast.core.util.dsp.fft.Spectrum;
@@ -173,7 +174,7 @@ private IntArrayList filterSpectrum(SegmentContainer segment) {
 
     /* Perform STFT and extract the Spectra. If this fails, return empty list. */
     Pair<Integer, Integer> properties = FFTUtil.parametersForDuration(segment.getSamplingrate(), WINDOW_SIZE);
-    STFT stft = segment.getSTFT(properties.first, (properties.first - 2 * properties.second) / 2, properties.second, new HanningWindow());
+    STFT stft = DerivedAudioFeatures.stft(segment, properties.first, (properties.first - 2 * properties.second) / 2, properties.second, new HanningWindow());
     if (stft == null) {
       return candidates;
     }
@@ -1,21 +1,21 @@
 package org.vitrivr.cineast.core.features;
 
 import java.util.ArrayList;
-import java.util.HashMap;
 import java.util.List;
+import java.util.Optional;
 import org.apache.commons.math3.stat.descriptive.SummaryStatistics;
 import org.vitrivr.cineast.core.config.ReadableQueryConfig;
 import org.vitrivr.cineast.core.data.CorrespondenceFunction;
 import org.vitrivr.cineast.core.data.FloatVectorImpl;
 import org.vitrivr.cineast.core.data.Pair;
-import org.vitrivr.cineast.core.data.distance.DistanceElement;
 import org.vitrivr.cineast.core.data.distance.SegmentDistanceElement;
 import org.vitrivr.cineast.core.data.score.ScoreElement;
 import org.vitrivr.cineast.core.data.segments.SegmentContainer;
+import org.vitrivr.cineast.core.db.NearestNeighbourAggregation;
 import org.vitrivr.cineast.core.features.abstracts.StagedFeatureModule;
+import org.vitrivr.cineast.core.util.audio.DerivedAudioFeatures;
 import org.vitrivr.cineast.core.util.audio.HPCP;
 import org.vitrivr.cineast.core.util.dsp.fft.FFTUtil;
-import org.vitrivr.cineast.core.util.dsp.fft.STFT;
 import org.vitrivr.cineast.core.util.dsp.fft.windows.HanningWindow;
 import org.vitrivr.cineast.core.util.math.MathHelper;
 
@@ -87,17 +87,19 @@ protected List<float[]> preprocessQuery(SegmentContainer sc, ReadableQueryConfig
    */
   @Override
   protected List<ScoreElement> postprocessQuery(List<SegmentDistanceElement> partialResults, ReadableQueryConfig qc) {
-    /* Prepare helper data-structures. */
-    final HashMap<String, DistanceElement> map = new HashMap<>();
-
-    /* Set QueryConfig and extract correspondence function. */
-    for (DistanceElement hit : partialResults) {
-      map.merge(hit.getId(), hit, (o, n) -> new SegmentDistanceElement(hit.getId(), (o.getDistance() + n.getDistance()) / 2));
-    }
-
-    /* Prepare final result-set. */
+    /* The partial results have already been averaged per segment during lookup. */
     final CorrespondenceFunction fkt = qc.getCorrespondenceFunction().orElse(this.correspondence);
-    return ScoreElement.filterMaximumScores(map.entrySet().stream().map(e -> e.getValue().toScore(fkt)));
+    return ScoreElement.filterMaximumScores(partialResults.stream().map(e -> e.toScore(fkt)));
+  }
+
+  /**
+   * The hits of all feature vectors are combined per segment by the storage engine, using their mean distance.
+   * <p>
+   * This is the true mean over all hits of a segment; it replaces the running pairwise average used before, which weighted later hits more heavily and depended on the order in which hits were returned.
+   */
+  @Override
+  protected Optional<NearestNeighbourAggregation> aggregation() {
+    return Optional.of(NearestNeighbourAggregation.AVG);
   }
 
   /**
@@ -118,16 +120,13 @@ public void processSegment(SegmentContainer segment) {
    * @return List of HPCP Shingle feature vectors.
    */
   private List<float[]> getFeatures(SegmentContainer segment) {
-    /* Create STFT. IF this fails, return empty list. */
+    /* Obtain the (shared) HPCP. If this fails, return empty list. */
     Pair<Integer, Integer> parameters = FFTUtil.parametersForDuration(segment.getSamplingrate(), WINDOW_SIZE);
-    STFT stft = segment.getSTFT(parameters.first, (parameters.first - 2 * parameters.second) / 2, parameters.second, new HanningWindow());
-    if (stft == null) {
+    HPCP hpcps = DerivedAudioFeatures.hpcp(segment, parameters.first, (parameters.first - 2 * parameters.second) / 2, parameters.second, new HanningWindow(), this.resolution, this.min_frequency, this.max_frequency);
+    if (hpcps == null) {
       return new ArrayList<>();
     }
 
-    HPCP hpcps = new HPCP(this.resolution, this.min_frequency, this.max_frequency);
-    hpcps.addContribution(stft);
-
     /* Determine number of vectors that will result from the data. */
     int vectors = hpcps.size() / this.average;
 
@@ -2,21 +2,21 @@
 
 
 import java.util.ArrayList;
-import java.util.HashMap;
 import java.util.List;
+import java.util.Optional;
 import org.vitrivr.cineast.core.config.QueryConfig;
 import org.vitrivr.cineast.core.config.ReadableQueryConfig;
 import org.vitrivr.cineast.core.data.CorrespondenceFunction;
 import org.vitrivr.cineast.core.data.FloatVectorImpl;
 import org.vitrivr.cineast.core.data.Pair;
-import org.vitrivr.cineast.core.data.distance.DistanceElement;
 import org.vitrivr.cineast.core.data.distance.SegmentDistanceElement;
 import org.vitrivr.cineast.core.data.score.ScoreElement;
 import org.vitrivr.cineast.core.data.segments.SegmentContainer;
+import org.vitrivr.cineast.core.db.NearestNeighbourAggregation;
 import org.vitrivr.cineast.core.features.abstracts.StagedFeatureModule;
+import org.vitrivr.cineast.core.util.audio.DerivedAudioFeatures;
 import org.vitrivr.cineast.core.util.audio.HPCP;
 import org.vitrivr.cineast.core.util.dsp.fft.FFTUtil;
-import org.vitrivr.cineast.core.util.dsp.fft.STFT;
 import org.vitrivr.cineast.core.util.dsp.fft.windows.BlackmanHarrisWindow;
 import org.vitrivr.cineast.core.util.dsp.fft.windows.HanningWindow;
 import org.vitrivr.cineast.core.util.math.MathHelper;
@@ -87,20 +87,16 @@ public CENS(String tableName, float minFrequency, float maxFrequency) {
   @Override
   protected List<float[]> preprocessQuery(SegmentContainer sc, ReadableQueryConfig qc) {
 
-    /* Create STFT. If this fails, return empty list. */
+    /* Obtain the (shared) HPCP. If this fails, return empty list. */
     final Pair<Integer, Integer> parameters = FFTUtil.parametersForDuration(sc.getSamplingrate(), WINDOW_SIZE);
-    final STFT stft = sc.getSTFT(parameters.first, (parameters.first - 2 * parameters.second) / 3, parameters.second, new BlackmanHarrisWindow());
-    if (stft == null) {
+    final HPCP hpcps = DerivedAudioFeatures.hpcp(sc, parameters.first, (parameters.first - 2 * parameters.second) / 3, parameters.second, new BlackmanHarrisWindow(), HPCP.Resolution.FULLSEMITONE, minFrequency, maxFrequency);
+    if (hpcps == null) {
       return new ArrayList<>(0);
     }
 
     /* Prepare empty features. */
     final List<float[]> features = new ArrayList<>(3 * QUERY_SETTINGS.length);
 
-    /* Prepare HPCPs... */
-    final HPCP hpcps = new HPCP(HPCP.Resolution.FULLSEMITONE, minFrequency, maxFrequency);
-    hpcps.addContribution(stft);
-
     /*
      * ... and derive CENS features; only three features per QUERY_SETTING are kept because the shifts
      * resulting from the Shingeling are realised as individual vectors during ingest!
@@ -126,15 +122,17 @@ protected List<float[]> preprocessQuery(SegmentContainer sc, ReadableQueryConfig
    */
   @Override
   protected List<ScoreElement> postprocessQuery(List<SegmentDistanceElement> partialResults, ReadableQueryConfig qc) {
-    /* Prepare map to build a unique set of results. */
-    final HashMap<String, DistanceElement> map = new HashMap<>();
-    for (DistanceElement hit : partialResults) {
-      map.merge(hit.getId(), hit, (o, n) -> o.getDistance() > n.getDistance() ? n : o);
-    }
-
-    /* Prepare final list of results. */
+    /* The partial results already hold the minimum distance per segment. */
     final CorrespondenceFunction correspondence = qc.getCorrespondenceFunction().orElse(this.correspondence);
-    return ScoreElement.filterMaximumScores(map.entrySet().stream().map((e) -> e.getValue().toScore(correspondence)));
+    return ScoreElement.filterMaximumScores(partialResults.stream().map((e) -> e.toScore(correspondence)));
+  }
+
+  /**
+   * The hits of all feature vectors are combined per segment by the storage engine, using their minimum distance.
+   */
+  @Override
+  protected Optional<NearestNeighbourAggregation> aggregation() {
+    return Optional.of(NearestNeighbourAggregation.MIN);
   }
 
   /**
@@ -144,17 +142,13 @@ protected List<ScoreElement> postprocessQuery(List<SegmentDistanceElement> parti
    */
   @Override
   public void processSegment(SegmentContainer sc) {
-    /* Create STFT. If this fails, return empty list. */
+    /* Obtain the (shared) HPCP. If this fails, return empty list. */
     Pair<Integer, Integer> parameters = FFTUtil.parametersForDuration(sc.getSamplingrate(), WINDOW_SIZE);
-    STFT stft = sc.getSTFT(parameters.first, (parameters.first - 2 * parameters.second) / 3, parameters.second, new HanningWindow());
-    if (stft == null) {
+    HPCP hpcps = DerivedAudioFeatures.hpcp(sc, parameters.first, (parameters.first - 2 * parameters.second) / 3, parameters.second, new HanningWindow(), HPCP.Resolution.FULLSEMITONE, minFrequency, maxFrequency);
+    if (hpcps == null) {
       return;
     }
 
-    /* Prepare HPCPs... */
-    HPCP hpcps = new HPCP(HPCP.Resolution.FULLSEMITONE, minFrequency, maxFrequency);
-    hpcps.addContribution(stft);
-
     List<float[]> features = this.getFeatures(hpcps, 41, 10);
     features.forEach(f -> this.persist(sc.getId(), new FloatVectorImpl(f)));
   }
@@ -1,8 +1,8 @@
 package org.vitrivr.cineast.core.features;
 
 import java.util.ArrayList;
-import java.util.HashMap;
 import java.util.List;
+import java.util.Optional;
 import java.util.stream.Collectors;
 import org.apache.commons.math3.stat.descriptive.SummaryStatistics;
 import org.vitrivr.cineast.core.config.QueryConfig;
@@ -10,14 +10,14 @@
 import org.vitrivr.cineast.core.data.CorrespondenceFunction;
 import org.vitrivr.cineast.core.data.FloatVectorImpl;
 import org.vitrivr.cineast.core.data.Pair;
-import org.vitrivr.cineast.core.data.distance.DistanceElement;
 import org.vitrivr.cineast.core.data.distance.SegmentDistanceElement;
 import org.vitrivr.cineast.core.data.score.ScoreElement;
 import org.vitrivr.cineast.core.data.segments.SegmentContainer;
+import org.vitrivr.cineast.core.db.NearestNeighbourAggregation;
 import org.vitrivr.cineast.core.features.abstracts.StagedFeatureModule;
+import org.vitrivr.cineast.core.util.audio.DerivedAudioFeatures;
 import org.vitrivr.cineast.core.util.audio.HPCP;
 import org.vitrivr.cineast.core.util.dsp.fft.FFTUtil;
-import org.vitrivr.cineast.core.util.dsp.fft.STFT;
 import org.vitrivr.cineast.core.util.dsp.fft.windows.HanningWindow;
 import org.vitrivr.cineast.core.util.math.MathHelper;
 
@@ -101,17 +101,27 @@ protected List<float[]> preprocessQuery(SegmentContainer sc, ReadableQueryConfig
    */
   @Override
   protected List<ScoreElement> postprocessQuery(List<SegmentDistanceElement> partialResults, ReadableQueryConfig qc) {
-    /* Prepare helper data-structures. */
-    final HashMap<String, DistanceElement> map = new HashMap<>();
-    for (DistanceElement hit : partialResults) {
-      if (hit.getDistance() <= this.distanceThreshold) {
-        map.merge(hit.getId(), hit, (o, n) -> new SegmentDistanceElement(o.getId(), (o.getDistance() + n.getDistance()) / 2));
-      }
-    }
-
-    /* Prepare final result-set. */
+    /* The partial results have already been averaged per segment during lookup. */
     final CorrespondenceFunction fkt = qc.getCorrespondenceFunction().orElse(this.correspondence);
-    return ScoreElement.filterMaximumScores(map.entrySet().stream().map(e -> e.getValue().toScore(fkt)));
+    return ScoreElement.filterMaximumScores(partialResults.stream().map(e -> e.toScore(fkt)));
+  }
+
+  /**
+   * The hits of all shingles are combined per segment by the storage engine, using the mean distance of the hits within the distance-threshold.
+   * <p>
+   * This is the true mean over all hits of a segment; it replaces the running pairwise average used before, which weighted later hits more heavily and depended on the order in which hits were returned.
+   */
+  @Override
+  protected Optional<NearestNeighbourAggregation> aggregation() {
+    return Optional.of(NearestNeighbourAggregation.AVG);
+  }
+
+  /**
+   * Only hits within the distance-threshold count towards the aggregated distance of a segment.
+   */
+  @Override
+  protected double aggregationThreshold() {
+    return this.distanceThreshold;
   }
 
   /**
@@ -169,16 +179,13 @@ protected QueryConfig defaultQueryConfig(ReadableQueryConfig qc) {
    * @return List of HPCP Shingle feature vectors.
    */
   private List<float[]> getFeatures(SegmentContainer segment) {
-    /* Create STFT; If this fails, return empty list. */
+    /* Obtain the (shared) HPCP; if this fails, return empty list. */
     Pair<Integer, Integer> parameters = FFTUtil.parametersForDuration(segment.getSamplingrate(), WINDOW_SIZE);
-    STFT stft = segment.getSTFT(parameters.first, (parameters.first - 2 * parameters.second) / 2, parameters.second, new HanningWindow());
-    if (stft == null) {
+    HPCP hpcps = DerivedAudioFeatures.hpcp(segment, parameters.first, (parameters.first - 2 * parameters.second) / 2, parameters.second, new HanningWindow(), this.resolution, this.min_frequency, this.max_frequency);
+    if (hpcps == null) {
       return new ArrayList<>(0);
     }
 
-    HPCP hpcps = new HPCP(this.resolution, this.min_frequency, this.max_frequency);
-    hpcps.addContribution(stft);
-
     int vectors = Math.max(hpcps.size() - SHINGLE_SIZE, 1);
     final SummaryStatistics statistics = new SummaryStatistics();
 
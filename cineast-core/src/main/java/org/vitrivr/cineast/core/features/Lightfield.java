@@ -10,6 +10,7 @@
 import java.util.HashMap;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.Map;
 import java.util.Stack;
 import java.util.concurrent.LinkedBlockingDeque;
 import javax.imageio.ImageIO;
@@ -29,6 +30,7 @@
 import org.vitrivr.cineast.core.render.JOGLOffscreenRenderer;
 import org.vitrivr.cineast.core.render.MeshOnlyRenderer;
 import org.vitrivr.cineast.core.render.Renderer;
+import org.vitrivr.cineast.core.render.SoftwareMeshRenderer;
 import org.vitrivr.cineast.core.render.lwjgl.render.RenderOptions;
 import org.vitrivr.cineast.core.render.lwjgl.renderer.LWJGLOffscreenRenderer;
 import org.vitrivr.cineast.core.render.lwjgl.renderer.RenderActions;
@@ -59,6 +61,21 @@ public abstract class Lightfield extends StagedFeatureModule {
    */
   protected final static int POSEIDX_UNKNOWN = -1;
 
+  /**
+   * Key in the properties map used to select the renderer. Either "lwjgl" (default) or "software". The {@link SoftwareMeshRenderer} is only used if it is selected explicitly.
+   */
+  protected final static String PROPERTY_RENDERER_KEY = "renderer";
+
+  /**
+   * Value of the renderer property that forces the {@link SoftwareMeshRenderer}.
+   */
+  protected final static String RENDERER_SOFTWARE = "software";
+
+  /**
+   * Value of the renderer property that forces the LWJGL {@link RenderWorker}.
+   */
+  protected final static String RENDERER_LWJGL = "lwjgl";
+
   /**
    * Camera positions used to create lightfield descriptions. - First index indicates the position-index - Second index can be used to address the x,y and z coordinates.
    * <p>
@@ -66,11 +83,25 @@ public abstract class Lightfield extends StagedFeatureModule {
    */
   private final double[][] camerapositions;
 
+  /**
+   * The configured renderer or null, if the LWJGL {@link RenderWorker} should be used.
+   */
+  private final String renderer;
+
 
   /**
    * Offscreen rendering environment used to create Lightfield images.
    */
   protected Lightfield(String tableName, float maxDist, int vectorLength, double[][] camerapositions) {
+    this(tableName, maxDist, vectorLength, camerapositions, Map.of());
+  }
+
+  /**
+   * Offscreen rendering environment used to create Lightfield images.
+   *
+   * @param properties Properties used to configure the feature module, see {@link #PROPERTY_RENDERER_KEY}.
+   */
+  protected Lightfield(String tableName, float maxDist, int vectorLength, double[][] camerapositions, Map<String, String> properties) {
     super(tableName, maxDist, vectorLength);
     if (camerapositions.length == 0) {
       throw new IllegalArgumentException("You must specify at least one camera position!");
@@ -81,6 +112,13 @@ protected Lightfield(String tableName, float maxDist, int vectorLength, double[]
       }
     }
     this.camerapositions = camerapositions;
+    this.renderer = properties.get(PROPERTY_RENDERER_KEY);
+    if (this.renderer != null && !this.renderer.equals(RENDERER_SOFTWARE) && !this.renderer.equals(RENDERER_LWJGL)) {
+      throw new IllegalArgumentException("Unknown renderer '" + this.renderer + "'.");
+    }
+    if (this.useSoftwareRenderer()) {
+      LOGGER.info("Feature module {} renders its views with the software renderer instead of the LWJGL render worker.", tableName);
+    }
   }
 
 
@@ -184,8 +222,15 @@ protected List<float[]> featureVectorsFromMesh(IModel model) {
       camerapositions.add(new Vector3f((float)
           cameraposition[0], (float) cameraposition[1], (float) cameraposition[2]).normalize().mul(0.95f));
     }
-    var images = RenderJob.performStandardRenderJob(RenderWorker.getRenderJobQueue(),
-        model, camerapositions, windowOptions, renderOptions);
+    List<BufferedImage> images;
+    if (this.useSoftwareRenderer()) {
+      var renderer = new SoftwareMeshRenderer(RENDERING_SIZE, RENDERING_SIZE);
+      renderer.assemble(model);
+      images = renderer.renderViews(camerapositions);
+    } else {
+      images = RenderJob.performStandardRenderJob(RenderWorker.getRenderJobQueue(),
+          model, camerapositions, windowOptions, renderOptions);
+    }
 
     var ic = 0;
     for ( var image :images){
@@ -196,6 +241,15 @@ protected List<float[]> featureVectorsFromMesh(IModel model) {
   }
 
 
+  /**
+   * Determines whether the {@link SoftwareMeshRenderer} should be used to render the views of a model.
+   *
+   * @return True if the {@link SoftwareMeshRenderer} was selected, false if the LWJGL {@link RenderWorker} should be used.
+   */
+  private boolean useSoftwareRenderer() {
+    return RENDERER_SOFTWARE.equals(this.renderer);
+  }
+
   protected abstract List<float[]> featureVectorsFromImage(BufferedImage image, int poseidx);
 
   public double[] positionsForPoseidx(int poseidx) {
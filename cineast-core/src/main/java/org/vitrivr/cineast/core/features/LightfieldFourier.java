@@ -5,6 +5,7 @@
 import java.awt.image.BufferedImage;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
 import org.apache.commons.math3.complex.Complex;
 import org.apache.commons.math3.transform.DftNormalization;
 import org.apache.commons.math3.transform.FastFourierTransformer;
@@ -59,6 +60,16 @@ public LightfieldFourier() {
     this.transformer = new FastFourierTransformer(DftNormalization.STANDARD);
   }
 
+  /**
+   * Constructor for LightfieldFourier class used when properties are configured.
+   *
+   * @param properties Properties used to configure the feature module.
+   */
+  public LightfieldFourier(Map<String, String> properties) {
+    super("features_lightfieldfourier", 2.0f, SIZE, MathConstants.VERTICES_3D_DODECAHEDRON, properties);
+    this.transformer = new FastFourierTransformer(DftNormalization.STANDARD);
+  }
+
 
   /**
    * Extracts the Lightfield Fourier descriptors from a provided BufferedImage. The returned list contains elements for each identified contour of adequate size.
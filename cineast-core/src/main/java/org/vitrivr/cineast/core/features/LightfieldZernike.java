@@ -3,6 +3,7 @@
 import java.awt.image.BufferedImage;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
 import org.apache.commons.math3.complex.Complex;
 import org.vitrivr.cineast.core.config.QueryConfig;
 import org.vitrivr.cineast.core.config.ReadableQueryConfig;
@@ -48,6 +49,15 @@ public LightfieldZernike() {
     super("features_lightfieldzernike", 2.0f, SIZE, MathConstants.VERTICES_3D_DODECAHEDRON);
   }
 
+  /**
+   * Constructor for LightfieldZernike class used when properties are configured.
+   *
+   * @param properties Properties used to configure the feature module.
+   */
+  public LightfieldZernike(Map<String, String> properties) {
+    super("features_lightfieldzernike", 2.0f, SIZE, MathConstants.VERTICES_3D_DODECAHEDRON, properties);
+  }
+
   /**
    * Extracts the Lightfield Fourier descriptors from a provided BufferedImage. The returned list contains elements for each identified contour of adequate size.
    *
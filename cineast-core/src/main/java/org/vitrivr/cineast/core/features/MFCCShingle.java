@@ -1,24 +1,22 @@
 package org.vitrivr.cineast.core.features;
 
-import com.carrotsearch.hppc.ObjectIntHashMap;
-import com.carrotsearch.hppc.predicates.ObjectIntPredicate;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Optional;
 import java.util.stream.Collectors;
 import org.vitrivr.cineast.core.config.QueryConfig;
 import org.vitrivr.cineast.core.config.ReadableQueryConfig;
-import org.vitrivr.cineast.core.data.CorrespondenceFunction;
 import org.vitrivr.cineast.core.data.FloatVectorImpl;
 import org.vitrivr.cineast.core.data.Pair;
-import org.vitrivr.cineast.core.data.distance.DistanceElement;
 import org.vitrivr.cineast.core.data.distance.SegmentDistanceElement;
 import org.vitrivr.cineast.core.data.score.ScoreElement;
 import org.vitrivr.cineast.core.data.score.SegmentScoreElement;
 import org.vitrivr.cineast.core.data.segments.SegmentContainer;
+import org.vitrivr.cineast.core.db.NearestNeighbourAggregation;
 import org.vitrivr.cineast.core.features.abstracts.StagedFeatureModule;
+import org.vitrivr.cineast.core.util.audio.DerivedAudioFeatures;
 import org.vitrivr.cineast.core.util.audio.MFCC;
 import org.vitrivr.cineast.core.util.dsp.fft.FFTUtil;
-import org.vitrivr.cineast.core.util.dsp.fft.STFT;
 import org.vitrivr.cineast.core.util.dsp.fft.windows.HanningWindow;
 import org.vitrivr.cineast.core.util.math.MathHelper;
 
@@ -66,29 +64,33 @@ protected List<float[]> preprocessQuery(SegmentContainer sc, ReadableQueryConfig
   /**
    * This method represents the last step that's executed when processing a query. A list of partial-results (DistanceElements) returned by the lookup stage is processed based on some internal method and finally converted to a list of ScoreElements. The filtered list of ScoreElements is returned by the feature module during retrieval.
    *
+   * <p>
+   * A segment hit by n shingles scores 1 - 1/n. Previously, the hit counter never exceeded one due to an integer division, such that every segment scored zero.
+   *
    * @param partialResults List of partial results returned by the lookup stage.
    * @param qc             A ReadableQueryConfig object that contains query-related configuration parameters.
    * @return List of final results. Is supposed to be de-duplicated and the number of items should not exceed the number of items per module.
    */
   @Override
   protected List<ScoreElement> postprocessQuery(List<SegmentDistanceElement> partialResults, ReadableQueryConfig qc) {
-    /* Prepare helper data-structures. */
-    final List<ScoreElement> results = new ArrayList<>();
-    final ObjectIntHashMap<String> scoreMap = new ObjectIntHashMap<>();
-
-    /* Set QueryConfig and extract correspondence function. */
-    qc = this.setQueryConfig(qc);
-    final CorrespondenceFunction correspondence = qc.getCorrespondenceFunction().orElse(this.correspondence);
-    for (DistanceElement hit : partialResults) {
-      if (hit.getDistance() < this.distanceThreshold) {
-        scoreMap.putOrAdd(hit.getId(), 1, scoreMap.get(hit.getId()) / 2);
-      }
-    }
+    /* The distance of every partial result is the reciprocal of the number of shingles that hit the segment. */
+    return ScoreElement.filterMaximumScores(partialResults.stream().map(hit -> new SegmentScoreElement(hit.getSegmentId(), 1.0 - hit.getDistance())));
+  }
 
-    /* Prepare final result-set. */
-    scoreMap.forEach((ObjectIntPredicate<? super String>) (key, value) -> results.add(new SegmentScoreElement(key, 1.0 - 1.0 / value)));
-    ScoreElement.filterMaximumScores(results.stream());
-    return results;
+  /**
+   * The hits of all shingles are combined per segment by the storage engine, using the number of hits within the distance-threshold.
+   */
+  @Override
+  protected Optional<NearestNeighbourAggregation> aggregation() {
+    return Optional.of(NearestNeighbourAggregation.COUNT);
+  }
+
+  /**
+   * Only hits strictly below the distance-threshold count towards the aggregated distance of a segment.
+   */
+  @Override
+  protected double aggregationThreshold() {
+    return Math.nextDown((double) this.distanceThreshold);
   }
 
   /**
@@ -125,11 +127,10 @@ public void processSegment(SegmentContainer segment) {
    */
   private List<float[]> getFeatures(SegmentContainer segment) {
     final Pair<Integer, Integer> parameters = FFTUtil.parametersForDuration(segment.getSamplingrate(), WINDOW_SIZE);
-    final STFT stft = segment.getSTFT(parameters.first, (parameters.first - 2 * parameters.second) / 2, parameters.second, new HanningWindow());
-    if (stft == null) {
+    final List<MFCC> mfccs = DerivedAudioFeatures.mfcc(segment, parameters.first, (parameters.first - 2 * parameters.second) / 2, parameters.second, new HanningWindow());
+    if (mfccs == null) {
       return new ArrayList<>(0);
     }
-    final List<MFCC> mfccs = MFCC.calculate(stft);
     int vectors = mfccs.size() - SHINGLE_SIZE;
 
     List<float[]> features = new ArrayList<>(Math.max(1, vectors));
@@ -13,6 +13,7 @@
 import org.vitrivr.cineast.core.features.abstracts.StagedFeatureModule;
 import org.vitrivr.cineast.core.util.audio.pitch.Melody;
 import org.vitrivr.cineast.core.util.audio.pitch.Pitch;
+import org.vitrivr.cineast.core.util.audio.pitch.PitchCandidates;
 import org.vitrivr.cineast.core.util.audio.pitch.estimation.KLF0PitchEstimator;
 import org.vitrivr.cineast.core.util.audio.pitch.tracking.PitchTracker;
 import org.vitrivr.cineast.core.util.dsp.fft.FFTUtil;
@@ -157,7 +158,7 @@ private Melody transcribe(SegmentContainer sc) {
     float time = stft.timeStepsize();
 
     /* Prepare necessary helper data-structures. */
-    final List<List<Pitch>> s = this.estimator.estimatePitch(stft);
+    final PitchCandidates s = this.estimator.estimateCandidates(stft);
     this.tracker.initialize(s, time);
     this.tracker.trackPitches();
     return this.tracker.extractMelody(10);
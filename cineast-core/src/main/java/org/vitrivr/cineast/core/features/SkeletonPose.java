@@ -3,21 +3,20 @@
 import static org.vitrivr.cineast.core.util.CineastConstants.DB_DISTANCE_VALUE_QUALIFIER;
 import static org.vitrivr.cineast.core.util.CineastConstants.GENERIC_ID_COLUMN_QUALIFIER;
 
+import com.carrotsearch.hppc.DoubleArrayList;
+import com.carrotsearch.hppc.IntArrayList;
 import com.carrotsearch.hppc.IntIntHashMap;
-import com.carrotsearch.hppc.ObjectDoubleHashMap;
-import com.carrotsearch.hppc.cursors.ObjectCursor;
+import com.carrotsearch.hppc.ObjectIntHashMap;
+import com.carrotsearch.hppc.sorting.IndirectSort;
 import georegression.struct.point.Point2D_F32;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
-import java.util.HashMap;
-import java.util.Iterator;
 import java.util.List;
-import java.util.Set;
+import java.util.PriorityQueue;
 import java.util.function.Supplier;
 import java.util.stream.Collectors;
-import java.util.stream.StreamSupport;
 import org.vitrivr.cineast.core.config.ReadableQueryConfig;
 import org.vitrivr.cineast.core.data.FloatArrayIterable;
 import org.vitrivr.cineast.core.data.Pair;
@@ -29,11 +28,12 @@
 import org.vitrivr.cineast.core.data.segments.SegmentContainer;
 import org.vitrivr.cineast.core.db.PersistencyWriterSupplier;
 import org.vitrivr.cineast.core.db.PersistentTuple;
+import org.vitrivr.cineast.core.db.TracingDBSelector;
 import org.vitrivr.cineast.core.db.cottontaildb.CottontailSelector;
 import org.vitrivr.cineast.core.db.setup.AttributeDefinition;
 import org.vitrivr.cineast.core.db.setup.EntityCreator;
 import org.vitrivr.cineast.core.features.abstracts.AbstractFeatureModule;
-import org.vitrivr.cineast.core.util.HungarianAlgorithm;
+import org.vitrivr.cineast.core.util.AssignmentSolver;
 import org.vitrivr.cineast.core.util.pose.MergingPoseDetector;
 import org.vitrivr.cineast.core.util.pose.PoseDetector;
 import org.vitrivr.cottontail.client.SimpleClient;
@@ -168,20 +168,26 @@ public List<ScoreElement> getSimilar(SegmentContainer sc, ReadableQueryConfig qc
       return Collections.emptyList();
     }
 
-    if (!(this.selector instanceof CottontailSelector)) {
+    if (!(TracingDBSelector.unwrap(this.selector) instanceof CottontailSelector cottontail)) {
       return Collections.emptyList();
     }
 
-    SimpleClient client = ((CottontailSelector) this.selector).getWrapper().client;
+    SimpleClient client = cottontail.getWrapper().client;
 
-    HashMap<String, ObjectDoubleHashMap<Pair<Integer, Integer>>> segmentDistancesMap = new HashMap<>(qc.getRawResultsPerModule() * skeletons.size());
+    final int queryPersons = skeletons.size();
 
-    int queryPersonId = 0;
+    /* Score of every retrieved (segment, query person, person) triple; segments are referred to by their index in the list of segments. */
+    final ObjectIntHashMap<String> segmentIndices = new ObjectIntHashMap<>(Math.max(qc.getRawResultsPerModule(), 0) * queryPersons);
+    final List<String> segments = new ArrayList<>();
+    final IntArrayList entrySegments = new IntArrayList();
+    final IntArrayList entryQueryPersons = new IntArrayList();
+    final IntArrayList entryPersons = new IntArrayList();
+    final DoubleArrayList entryScores = new DoubleArrayList();
 
     //query all skeletons
-    for (Skeleton skeleton : skeletons) {
+    for (int queryPerson = 0; queryPerson < queryPersons; ++queryPerson) {
 
-      Pair<float[], float[]> pair = getAnglesAndWeights(skeleton);
+      Pair<float[], float[]> pair = getAnglesAndWeights(skeletons.get(queryPerson));
       TupleIterator tuples = client.query(buildQuery(pair.first, pair.second, qc.getRawResultsPerModule()));
 
       while (tuples.hasNext()) {
@@ -189,76 +195,183 @@ public List<ScoreElement> getSimilar(SegmentContainer sc, ReadableQueryConfig qc
 
         String segment = tuple.asString(GENERIC_ID_COLUMN_QUALIFIER);
 
-        if (!segmentDistancesMap.containsKey(segment)) {
-          segmentDistancesMap.put(segment, new ObjectDoubleHashMap<>());
+        int index = segmentIndices.getOrDefault(segment, -1);
+        if (index < 0) {
+          index = segments.size();
+          segmentIndices.put(segment, index);
+          segments.add(segment);
         }
 
-        segmentDistancesMap.get(segment).put(new Pair<>(queryPersonId, tuple.asInt(PERSON_ID_COL)), tuple.asFloat(DB_DISTANCE_VALUE_QUALIFIER));
-
+        entrySegments.add(index);
+        entryQueryPersons.add(queryPerson);
+        entryPersons.add(tuple.asInt(PERSON_ID_COL));
+        entryScores.add(this.correspondence.applyAsDouble(tuple.asFloat(DB_DISTANCE_VALUE_QUALIFIER)));
       }
+    }
 
-      ++queryPersonId;
+    return rank(segments, queryPersons, entrySegments.toArray(), entryQueryPersons.toArray(), entryPersons.toArray(), entryScores.toArray(), qc.getResultsPerModule());
+  }
 
+  /**
+   * Scores the segments by the best assignment of query persons to the persons retrieved for them (see {@link PoseAssignment}) and returns the best segments. Segments that cannot enter the top results according to their upper bound are not scored.
+   *
+   * @param segments          Ids of the segments.
+   * @param queryPersons      Number of query persons.
+   * @param entrySegments     Index of the segment of every retrieved entry.
+   * @param entryQueryPersons Query person of every retrieved entry.
+   * @param entryPersons      Person of every retrieved entry.
+   * @param entryScores       Score of every retrieved entry.
+   * @param limit             Maximum number of results.
+   * @return The best segments, sorted by descending score, with scores normalised by the number of query persons.
+   */
+  static List<ScoreElement> rank(List<String> segments, int queryPersons, int[] entrySegments, int[] entryQueryPersons, int[] entryPersons, double[] entryScores, int limit) {
+    final int segmentCount = segments.size();
+    final int entryCount = entryScores.length;
+    if (segmentCount == 0 || limit <= 0) {
+      return Collections.emptyList();
     }
 
-    ArrayList<ScoreElement> results = new ArrayList<>(segmentDistancesMap.size());
+    /* Group the entries by segment and determine the best score of every query person in every segment. */
+    final int[] offsets = new int[segmentCount + 1];
+    for (int e = 0; e < entryCount; ++e) {
+      ++offsets[entrySegments[e] + 1];
+    }
+    for (int i = 0; i < segmentCount; ++i) {
+      offsets[i + 1] += offsets[i];
+    }
+    final int[] order = new int[entryCount];
+    final int[] next = Arrays.copyOf(offsets, segmentCount);
+    final double[] bestScores = new double[segmentCount * queryPersons];
+    for (int e = 0; e < entryCount; ++e) {
+      final int segment = entrySegments[e];
+      order[next[segment]++] = e;
+      final int slot = segment * queryPersons + entryQueryPersons[e];
+      bestScores[slot] = Math.max(bestScores[slot], entryScores[e]);
+    }
 
-    //compute assignment
-    if (queryPersonId == 1) { //only one query skeleton
-      for (String segment : segmentDistancesMap.keySet()) {
-        ObjectDoubleHashMap<Pair<Integer, Integer>> distances = segmentDistancesMap.get(segment);
-        double minDist = StreamSupport.stream(distances.values().spliterator(), false).mapToDouble(x -> x.value).min().orElse(Double.MAX_VALUE);
-        results.add(new SegmentScoreElement(segment, this.correspondence.applyAsDouble(minDist)));
+    /*
+     * Matching every query person with its best retrieved person, regardless of whether that person is already taken, bounds the score of the optimal assignment from above.
+     * Segments are scored in order of descending bound, such that scoring stops as soon as no remaining segment can enter the top results.
+     */
+    final double[] bounds = new double[segmentCount];
+    for (int i = 0; i < segmentCount; ++i) {
+      for (int q = 0; q < queryPersons; ++q) {
+        bounds[i] += bestScores[i * queryPersons + q];
       }
-      results.sort(SegmentScoreElement.SCORE_COMPARATOR.reversed());
-      return results.subList(0, Math.min(results.size(), qc.getResultsPerModule()) - 1);
     }
+    final int[] byBound = IndirectSort.mergesort(0, segmentCount, (i, j) -> Double.compare(bounds[j], bounds[i]));
 
-    //more than query skeleton
-    for (String segment : segmentDistancesMap.keySet()) {
-
-      ObjectDoubleHashMap<Pair<Integer, Integer>> distances = segmentDistancesMap.get(segment);
+    final PriorityQueue<ScoreElement> top = new PriorityQueue<>(limit + 1, SegmentScoreElement.SCORE_COMPARATOR);
+    final PoseAssignment assignment = new PoseAssignment(queryPersons, entryQueryPersons, entryPersons, entryScores);
 
-      if (distances.isEmpty()) {
-        continue; //should never happen
+    for (int i : byBound) {
+      if (top.size() >= limit && bounds[i] / queryPersons <= top.peek().getScore()) {
+        break;
       }
-
-      Set<Integer> personIds = StreamSupport.stream(distances.keys().spliterator(), false).map(p -> p.value.second).collect(Collectors.toSet());
-
-      if (personIds.size() == 1) { //only one retrieved skeleton
-        double minDist = StreamSupport.stream(distances.values().spliterator(), false).mapToDouble(x -> x.value).min().orElse(Double.MAX_VALUE);
-        results.add(new SegmentScoreElement(segment, this.correspondence.applyAsDouble(minDist) / skeletons.size()));
-        continue;
+      final double score = assignment.score(order, offsets[i], offsets[i + 1], bestScores, i * queryPersons, bounds[i]) / queryPersons;
+      if (top.size() < limit) {
+        top.add(new SegmentScoreElement(segments.get(i), score));
+      } else if (score > top.peek().getScore()) {
+        top.poll();
+        top.add(new SegmentScoreElement(segments.get(i), score));
       }
+    }
 
-      //more than one retrieved skeletons
+    final ArrayList<ScoreElement> results = new ArrayList<>(top);
+    results.sort(SegmentScoreElement.SCORE_COMPARATOR.reversed());
+    return results;
+  }
 
-      double[][] costs = new double[skeletons.size()][personIds.size()];
-      IntIntHashMap inversePersonIdMapping = new IntIntHashMap(personIds.size());
-      int i = 0;
-      for (int personId : personIds) {
-        inversePersonIdMapping.put(personId, i++);
-      }
+  /**
+   * Computes the score of the best assignment of query persons to the persons retrieved for a segment, i.e. the maximum sum of the scores of the assigned pairs, where every person is assigned to at most one query person. Pairs that were not retrieved score zero.
+   * <p>
+   * The cost matrix and the solver are re-used for all segments of a query.
+   */
+  private static final class PoseAssignment {
+
+    private final int queryPersons;
+    private final int[] entryQueryPersons;
+    private final int[] entryPersons;
+    private final double[] entryScores;
+
+    /**
+     * Best retrieved person of every query person in the current segment.
+     */
+    private final int[] bestPersons;
+
+    /**
+     * Column of every retrieved person in the current segment.
+     */
+    private final IntIntHashMap columns = new IntIntHashMap();
+
+    private final AssignmentSolver solver = new AssignmentSolver();
+    private double[] costs = new double[0];
+    private int[] assignment = new int[0];
+
+    private PoseAssignment(int queryPersons, int[] entryQueryPersons, int[] entryPersons, double[] entryScores) {
+      this.queryPersons = queryPersons;
+      this.entryQueryPersons = entryQueryPersons;
+      this.entryPersons = entryPersons;
+      this.entryScores = entryScores;
+      this.bestPersons = new int[queryPersons];
+    }
 
-      for (ObjectCursor<Pair<Integer, Integer>> pairObjectCursor : distances.keys()) {
-        Pair<Integer, Integer> p = pairObjectCursor.value;
-        costs[p.first][inversePersonIdMapping.get(p.second)] = -distances.get(p);
+    /**
+     * @param order      Entries grouped by segment.
+     * @param from       First entry of the segment in order.
+     * @param to         End of the entries of the segment in order.
+     * @param bestScores Best score of every query person, starting at offset.
+     * @param bound      Sum of the best scores of the query persons.
+     */
+    private double score(int[] order, int from, int to, double[] bestScores, int offset, double bound) {
+      final int n = this.queryPersons;
+
+      /* If the best persons of all query persons are distinct, assigning them is optimal. */
+      Arrays.fill(this.bestPersons, -1);
+      for (int i = from; i < to; ++i) {
+        final int e = order[i];
+        final int q = this.entryQueryPersons[e];
+        if (this.bestPersons[q] == -1 && this.entryScores[e] > 0 && this.entryScores[e] == bestScores[offset + q]) {
+          this.bestPersons[q] = this.entryPersons[e];
+        }
       }
-
-      HungarianAlgorithm hungarianAlgorithm = new HungarianAlgorithm(costs);
-      int[] assignment = hungarianAlgorithm.execute();
-
-      double scoreSum = 0;
-
-      for (i = 0; i < Math.min(personIds.size(), skeletons.size()); ++i) {
-        scoreSum += this.correspondence.applyAsDouble(-costs[i][assignment[i]]);
+      boolean distinct = true;
+      for (int q = 0; q < n && distinct; ++q) {
+        for (int r = q + 1; r < n && distinct; ++r) {
+          distinct = this.bestPersons[q] == -1 || this.bestPersons[q] != this.bestPersons[r];
+        }
+      }
+      if (distinct) {
+        return bound;
       }
 
-      results.add(new SegmentScoreElement(segment, scoreSum / skeletons.size()));
-
+      /* Otherwise, solve the assignment problem; the smaller of both sides forms the rows of the cost matrix. */
+      this.columns.clear();
+      for (int i = from; i < to; ++i) {
+        final int person = this.entryPersons[order[i]];
+        if (!this.columns.containsKey(person)) {
+          this.columns.put(person, this.columns.size());
+        }
+      }
+      final int m = this.columns.size();
+      final int rows = Math.min(n, m);
+      final int cols = Math.max(n, m);
+      if (this.costs.length < n * m) {
+        this.costs = new double[n * m];
+      }
+      if (this.assignment.length < rows) {
+        this.assignment = new int[rows];
+      }
+      Arrays.fill(this.costs, 0, n * m, 0.0);
+      for (int i = from; i < to; ++i) {
+        final int e = order[i];
+        final int column = this.columns.get(this.entryPersons[e]);
+        final int q = this.entryQueryPersons[e];
+        final int index = n <= m ? q * m + column : column * n + q;
+        this.costs[index] = Math.min(this.costs[index], -this.entryScores[e]);
+      }
+      return -this.solver.solve(this.costs, rows, cols, this.assignment);
     }
-
-    return results;
   }
 
   private Pair<float[], float[]> getAnglesAndWeights(Skeleton skeleton) {
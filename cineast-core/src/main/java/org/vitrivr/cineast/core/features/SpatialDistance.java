@@ -1,11 +1,16 @@
 package org.vitrivr.cineast.core.features;
 
+import static org.vitrivr.cineast.core.util.CineastConstants.FEATURE_COLUMN_QUALIFIER;
+import static org.vitrivr.cineast.core.util.CineastConstants.GENERIC_ID_COLUMN_QUALIFIER;
+
 import com.google.common.collect.ImmutableList;
 import java.nio.file.Path;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.function.Consumer;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 import org.vitrivr.cineast.core.config.QueryConfig;
@@ -15,11 +20,17 @@
 import org.vitrivr.cineast.core.data.GpsData;
 import org.vitrivr.cineast.core.data.Location;
 import org.vitrivr.cineast.core.data.ReadableFloatVector;
+import org.vitrivr.cineast.core.data.distance.DistanceElement;
 import org.vitrivr.cineast.core.data.entities.MediaObjectMetadataDescriptor;
+import org.vitrivr.cineast.core.data.providers.primitive.PrimitiveTypeProvider;
 import org.vitrivr.cineast.core.data.query.containers.ParameterisedLocationQueryTermContainer;
 import org.vitrivr.cineast.core.data.score.ScoreElement;
 import org.vitrivr.cineast.core.data.segments.SegmentContainer;
+import org.vitrivr.cineast.core.db.DBSelector;
+import org.vitrivr.cineast.core.db.DBSelectorSupplier;
+import org.vitrivr.cineast.core.db.IndexRegistry;
 import org.vitrivr.cineast.core.features.abstracts.MetadataFeatureModule;
+import org.vitrivr.cineast.core.util.spatial.GeoGridIndex;
 
 /**
  * A feature that calculates similarity based on an approximation of the great-circle distance between two objects.
@@ -31,6 +42,10 @@
  * approximation of the great-circle distance. As of now, the feature uses a linear correspondence function with a maximum distance of {@code 1000m}. This correspondence
  * <i>heavily</i> influences the quality of the retrieval and is likely to be unfit for some data
  * sets.
+ *
+ * <p>Nearest neighbour lookups with the Haversine distance are answered by an in-memory
+ * {@link GeoGridIndex}, which is built from the stored coordinates on first use, shared by all
+ * instances through the {@link IndexRegistry} and rebuilt after the entity has been written to.
  */
 public class SpatialDistance extends MetadataFeatureModule<Location> {
 
@@ -39,8 +54,50 @@ public class SpatialDistance extends MetadataFeatureModule<Location> {
 
   private static final Logger LOGGER = LogManager.getLogger();
 
+  /**
+   * Key of the spatial index of a feature entity in the {@link IndexRegistry}.
+   */
+  private record SpatialIndexKey(String entity) {
+
+  }
+
+  /**
+   * Collects the identifiers and coordinates of streamed rows in growable primitive arrays.
+   */
+  private static final class Coordinates implements Consumer<Map<String, PrimitiveTypeProvider>> {
+
+    private String[] ids;
+    private float[] latitudes;
+    private float[] longitudes;
+    private int size;
+
+    private Coordinates(int capacity) {
+      this.ids = new String[Math.max(16, capacity)];
+      this.latitudes = new float[this.ids.length];
+      this.longitudes = new float[this.ids.length];
+    }
+
+    @Override
+    public void accept(Map<String, PrimitiveTypeProvider> row) {
+      final float[] coordinate = PrimitiveTypeProvider.getSafeFloatArray(row.get(FEATURE_COLUMN_QUALIFIER));
+      if (coordinate.length < 2 || row.get(GENERIC_ID_COLUMN_QUALIFIER) == null) {
+        return;
+      }
+      if (this.size == this.ids.length) {
+        this.ids = Arrays.copyOf(this.ids, 2 * this.size);
+        this.latitudes = Arrays.copyOf(this.latitudes, 2 * this.size);
+        this.longitudes = Arrays.copyOf(this.longitudes, 2 * this.size);
+      }
+      this.ids[this.size] = row.get(GENERIC_ID_COLUMN_QUALIFIER).getString();
+      this.latitudes[this.size] = coordinate[0];
+      this.longitudes[this.size] = coordinate[1];
+      this.size++;
+    }
+  }
+
   private final double halfSimilarityDistance; // distance in meters where similarity equals 50% (default: 1000/3
   private final CorrespondenceFunction correspondenceFunction;
+  private DBSelectorSupplier selectorSupply;
 
   // Empty public constructor necessary for instantiation through reflection
   public SpatialDistance() {
@@ -136,6 +193,47 @@ public List<ScoreElement> getSimilar(SegmentContainer sc, ReadableQueryConfig qc
         .orElse(Collections.emptyList());
   }
 
+  @Override
+  public void init(DBSelectorSupplier selectorSupply) {
+    super.init(selectorSupply);
+    this.selectorSupply = selectorSupply;
+  }
+
+  /**
+   * Uses the spatial index for unrestricted Haversine queries and falls back to the database otherwise.
+   */
+  @Override
+  protected <E extends DistanceElement> List<E> getNearestNeighbours(int k, float[] feature, Class<E> distanceElementClass, ReadableQueryConfig qc) {
+    if (this.selectorSupply == null || qc.getDistance().orElse(Distance.haversine) != Distance.haversine || !qc.getRelevantSegmentIds().isEmpty()) {
+      return super.getNearestNeighbours(k, feature, distanceElementClass, qc);
+    }
+    final String entity = this.featureEntityName();
+    return IndexRegistry.lookup(new SpatialIndexKey(entity), entity, () -> buildIndex(this.selectorSupply, entity))
+        .map(index -> index.nearest(k, feature[0], feature[1], distanceElementClass))
+        .orElseGet(() -> super.getNearestNeighbours(k, feature, distanceElementClass, qc));
+  }
+
+  /**
+   * Builds the spatial index of the given entity by streaming its coordinates into primitive arrays.
+   *
+   * @return The {@link GeoGridIndex} or null, if it could not be built.
+   */
+  private static GeoGridIndex buildIndex(DBSelectorSupplier selectorSupply, String entity) {
+    final DBSelector selector = selectorSupply.get();
+    try {
+      selector.open(entity);
+      final Coordinates coordinates = new Coordinates(selector.rowCount());
+      selector.forEachRow(List.of(GENERIC_ID_COLUMN_QUALIFIER, FEATURE_COLUMN_QUALIFIER), coordinates);
+      LOGGER.debug("Built spatial index for {} with {} coordinates.", entity, coordinates.size);
+      return new GeoGridIndex(coordinates.ids, coordinates.latitudes, coordinates.longitudes, coordinates.size);
+    } catch (RuntimeException e) {
+      LOGGER.warn("Failed to build spatial index for {}: {}", entity, e.getMessage());
+      return null;
+    } finally {
+      selector.close();
+    }
+  }
+
   private double parseAndEvaluateHalfSimilarityDistance(String dist) {
     return Double.parseDouble(dist.trim());
   }
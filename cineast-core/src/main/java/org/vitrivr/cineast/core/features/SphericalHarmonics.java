@@ -2,6 +2,9 @@
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.IntStream;
 import org.apache.commons.math3.complex.Complex;
 import org.apache.commons.math3.util.FastMath;
 import org.vitrivr.cineast.core.config.ReadableQueryConfig;
@@ -24,6 +27,21 @@
  */
 public abstract class SphericalHarmonics extends StagedFeatureModule {
 
+  /**
+   * Increment of the angles during calculation of the descriptors.
+   */
+  private static final float INCREMENT = 0.1f;
+
+  /**
+   * Cap on R (i.e. radii up to R-cap are considered).
+   */
+  private static final int CAP = 10;
+
+  /**
+   * Precomputed {@link Basis} tables, shared by all instances with the same configuration.
+   */
+  private static final Map<BasisKey, Basis> BASES = new ConcurrentHashMap<>();
+
   /**
    * Voxelizer instance used with thes feature module.
    */
@@ -53,6 +71,27 @@ public SphericalHarmonics(String name, int grid_size, int min_l, int max_l) {
     this.voxelizer = new Voxelizer(2.0f / grid_size);
   }
 
+  /**
+   * Returns the shared {@link Basis} for the configuration of this feature module, creating it if necessary.
+   *
+   * @return {@link Basis}
+   */
+  private Basis basis() {
+    return basis(this.grid_size, this.min_l, this.max_l);
+  }
+
+  /**
+   * Returns the shared {@link Basis} for the provided configuration, creating it if necessary.
+   *
+   * @param gridSize Size of the Voxel-Grid
+   * @param minL     Minimum harmonic l to consider.
+   * @param maxL     Maximum harmonic l to consider.
+   * @return {@link Basis}
+   */
+  static Basis basis(int gridSize, int minL, int maxL) {
+    return BASES.computeIfAbsent(new BasisKey(gridSize, minL, maxL), Basis::new);
+  }
+
   @Override
   public void processSegment(SegmentContainer shot) {
     /* Get the normalized Mesh. */
@@ -117,14 +156,13 @@ protected List<ScoreElement> postprocessQuery(List<SegmentDistanceElement> parti
    * <p>
    * Depending on the model, the first components may be 0.0 because the surface of the sphere defined by the radius only touches empty space (i.e the hollow interior of the model).
    */
-  private float[] featureVectorFromMesh(ReadableMesh mesh) {
-    final float increment = 0.1f; /* Increment of the angles during calculation of the descriptors. */
-    final int cap = 10; /* Cap on R (i.e. radii up to R-cap are considered). */
-    final int R = this.grid_size / 2;
-    final int numberOfCoefficients = SphericalHarmonicsFunction.numberOfCoefficients(this.max_l, true) - SphericalHarmonicsFunction.numberOfCoefficients(this.min_l - 1, true);
+  float[] featureVectorFromMesh(ReadableMesh mesh) {
+    final Basis basis = this.basis();
+    final int numberOfCoefficients = basis.numberOfCoefficients;
+    final int radii = basis.radii;
 
     /* Prepares an empty array for the feature vector. */
-    float[] feature = new float[(R - cap) * numberOfCoefficients];
+    float[] feature = new float[radii * numberOfCoefficients];
 
     /* Voxelizes the grid from the mesh. If the resulting grid is invisible, the method returns immediately. */
     VoxelGrid grid = this.voxelizer.voxelize(mesh, this.grid_size + 1, this.grid_size + 1, this.grid_size + 1);
@@ -132,59 +170,132 @@ private float[] featureVectorFromMesh(ReadableMesh mesh) {
       return feature;
     }
 
-    List<List<Complex>> descriptors = new ArrayList<>();
-
     /*
-     * Outer-loops; iterate from l=0 to 5 and m=-l to +l. For each combination, a new SphericalHarmonicsFunction is
-     * created.
+     * Iterate over the radii in parallel. For each radius, the projections onto all the spherical harmonics functions
+     * (i.e. the integral ∫f(ϑ,ϼ)Zlm(ϑ,ϼ)dϴdϑ) are calculated by summing the precomputed basis values over all
+     * samples on the sphere that fall into a visible voxel.
      */
-    for (int l = this.min_l; l <= this.max_l; l++) {
-      for (int m = 0; m <= l; m++) {
-
-        final SphericalHarmonicsFunction fkt = new SphericalHarmonicsFunction(l, m);
-
-        /*
-         * Middle-loop; Iterate over the 7 radii.
-         */
-        for (int r = 0; r < R - cap; r++) {
-          /* Allocate array list for radius. */
-          if (descriptors.size() <= r) {
-            descriptors.add(new ArrayList<>());
-          }
-          List<Complex> list = descriptors.get(r);
-
-          Complex result = new Complex(0.0);
-
-          /*
-           * Used to calculate the projections at radius r for l and m (i.e. the integral ∫f(ϑ,ϼ)Zlm(ϑ,ϼ)dϴdϑ)
-           */
-          for (float theta = 0.0f; theta <= 2 * Math.PI; theta += increment) {
-            for (float phi = 0.0f; phi <= Math.PI; phi += increment) {
-              int x = (int) ((r + 1) * FastMath.sin(theta) * FastMath.cos(phi)) + R;
-              int y = (int) ((r + 1) * FastMath.cos(theta)) + R;
-              int z = (int) ((r + 1) * FastMath.sin(theta) * FastMath.sin(phi)) + R;
-
-              if (grid.isVisible(x, y, z)) {
-                result = result.add(fkt.value(theta, phi).conjugate().multiply(increment * increment));
-              }
-            }
+    IntStream.range(0, radii).parallel().forEach(r -> {
+      final int[] x = basis.x[r];
+      final int[] y = basis.y[r];
+      final int[] z = basis.z[r];
+      final boolean[] visible = new boolean[basis.samples];
+      for (int s = 0; s < basis.samples; s++) {
+        visible[s] = grid.isVisible(x[s], y[s], z[s]);
+      }
+      for (int c = 0; c < numberOfCoefficients; c++) {
+        final double[] real = basis.real[c];
+        final double[] imaginary = basis.imaginary[c];
+        double re = 0.0;
+        double im = 0.0;
+        for (int s = 0; s < basis.samples; s++) {
+          if (visible[s]) {
+            re += real[s];
+            im += imaginary[s];
           }
+        }
+        feature[r * numberOfCoefficients + c] = (float) new Complex(re, im).abs();
+      }
+    });
+
+    /* Returns the normalized vector. */
+    return MathHelper.normalizeL2(feature);
+  }
+
+  /**
+   * Key that identifies a {@link Basis} configuration.
+   */
+  private record BasisKey(int gridSize, int minL, int maxL) {
 
-          list.add(result);
+  }
+
+  /**
+   * Precomputed, immutable tables for one configuration of the feature module. Holds the sampling grid on the sphere (in angles and in voxel coordinates per radius) and the values of the conjugated spherical harmonics functions at each sample, already weighted with the area element.
+   */
+  static final class Basis {
+
+    /**
+     * Number of samples on the sphere.
+     */
+    final int samples;
+
+    /**
+     * Number of radii that are considered.
+     */
+    final int radii;
+
+    /**
+     * Number of spherical harmonics coefficients per radius.
+     */
+    final int numberOfCoefficients;
+
+    /**
+     * Angles ϑ and ϼ of the samples.
+     */
+    final float[] theta, phi;
+
+    /**
+     * Real part of the weighted, conjugated basis functions; indexed by coefficient and sample.
+     */
+    final double[][] real;
+
+    /**
+     * Imaginary part of the weighted, conjugated basis functions; indexed by coefficient and sample.
+     */
+    final double[][] imaginary;
+
+    /**
+     * Voxel coordinates of the samples; indexed by radius and sample.
+     */
+    final int[][] x, y, z;
+
+    private Basis(BasisKey key) {
+      final int R = key.gridSize() / 2;
+      this.radii = R - CAP;
+      this.numberOfCoefficients = SphericalHarmonicsFunction.numberOfCoefficients(key.maxL(), true) - SphericalHarmonicsFunction.numberOfCoefficients(key.minL() - 1, true);
+
+      /* Enumerates the angles exactly as the (float) increments did in the original sampling loops. */
+      final List<float[]> angles = new ArrayList<>();
+      for (float theta = 0.0f; theta <= 2 * Math.PI; theta += INCREMENT) {
+        for (float phi = 0.0f; phi <= Math.PI; phi += INCREMENT) {
+          angles.add(new float[]{theta, phi});
         }
       }
-    }
+      this.samples = angles.size();
+      this.theta = new float[this.samples];
+      this.phi = new float[this.samples];
+      for (int s = 0; s < this.samples; s++) {
+        this.theta[s] = angles.get(s)[0];
+        this.phi[s] = angles.get(s)[1];
+      }
 
-    /* Assembles the actual feature vector. */
-    int i = 0;
-    for (List<Complex> radius : descriptors) {
-      for (Complex descriptor : radius) {
-        feature[i] = (float) descriptor.abs();
-        i++;
+      /* Samples the basis functions. */
+      final double weight = INCREMENT * INCREMENT;
+      this.real = new double[this.numberOfCoefficients][this.samples];
+      this.imaginary = new double[this.numberOfCoefficients][this.samples];
+      int c = 0;
+      for (int l = key.minL(); l <= key.maxL(); l++) {
+        for (int m = 0; m <= l; m++, c++) {
+          final SphericalHarmonicsFunction fkt = new SphericalHarmonicsFunction(l, m);
+          for (int s = 0; s < this.samples; s++) {
+            final Complex value = fkt.value(this.theta[s], this.phi[s]).conjugate().multiply(weight);
+            this.real[c][s] = value.getReal();
+            this.imaginary[c][s] = value.getImaginary();
+          }
+        }
       }
-    }
 
-    /* Returns the normalized vector. */
-    return MathHelper.normalizeL2(feature);
+      /* Calculates the voxel coordinates of every sample for every radius. */
+      this.x = new int[this.radii][this.samples];
+      this.y = new int[this.radii][this.samples];
+      this.z = new int[this.radii][this.samples];
+      for (int r = 0; r < this.radii; r++) {
+        for (int s = 0; s < this.samples; s++) {
+          this.x[r][s] = (int) ((r + 1) * FastMath.sin(this.theta[s]) * FastMath.cos(this.phi[s])) + R;
+          this.y[r][s] = (int) ((r + 1) * FastMath.cos(this.theta[s])) + R;
+          this.z[r][s] = (int) ((r + 1) * FastMath.sin(this.theta[s]) * FastMath.sin(this.phi[s])) + R;
+        }
+      }
+    }
   }
 }
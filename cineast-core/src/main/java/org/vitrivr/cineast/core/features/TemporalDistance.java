@@ -1,16 +1,23 @@
 package org.vitrivr.cineast.core.features;
 
+import static org.vitrivr.cineast.core.util.CineastConstants.FEATURE_COLUMN_QUALIFIER;
+import static org.vitrivr.cineast.core.util.CineastConstants.GENERIC_ID_COLUMN_QUALIFIER;
+
 import com.google.common.collect.ImmutableList;
 import java.nio.file.Path;
 import java.util.List;
 import java.util.Optional;
+import org.vitrivr.cineast.core.config.ReadableQueryConfig;
 import org.vitrivr.cineast.core.config.ReadableQueryConfig.Distance;
 import org.vitrivr.cineast.core.data.CorrespondenceFunction;
 import org.vitrivr.cineast.core.data.GpsData;
 import org.vitrivr.cineast.core.data.InstantVector;
+import org.vitrivr.cineast.core.data.distance.DistanceElement;
 import org.vitrivr.cineast.core.data.entities.MediaObjectMetadataDescriptor;
 import org.vitrivr.cineast.core.data.segments.SegmentContainer;
+import org.vitrivr.cineast.core.db.DBSelectorSupplier;
 import org.vitrivr.cineast.core.features.abstracts.MetadataFeatureModule;
+import org.vitrivr.cineast.core.util.temporal.TimestampIndex;
 
 // TODO: Change from Instant to Range<Instant>
 
@@ -22,6 +29,8 @@
  *
  * <p>During retrieval, it does nearest neighbor search using the euclidean distance. As of now,
  * it uses a hyperbolic correspondence function scaled to days, i.e. 13h20min correspond to 90% similarity, 5 days to 50% and 45 days to 10%. This correspondence is likely unfit for many datasets and needs to be adjusted accordingly.
+ *
+ * <p>Since the feature is one-dimensional, nearest neighbours with respect to the euclidean, manhattan or chebyshev distance are looked up in a sorted in-memory {@link TimestampIndex}.
  */
 public class TemporalDistance extends MetadataFeatureModule<InstantVector> {
 
@@ -31,6 +40,8 @@ public class TemporalDistance extends MetadataFeatureModule<InstantVector> {
   private static final CorrespondenceFunction HYPERBOLIC =
       CorrespondenceFunction.hyperbolic(TIME_SCALE);
 
+  private DBSelectorSupplier selectorSupply;
+
   // Empty public constructor necessary for instantiation through reflection
   public TemporalDistance() {
     super(1);
@@ -78,4 +89,24 @@ public List<MediaObjectMetadataDescriptor> createDescriptors(String objectId,
     return ImmutableList.of(MediaObjectMetadataDescriptor
         .of(objectId, this.domain(), GpsData.KEY_DATETIME, feature.getInstant().toString()));
   }
+
+  @Override
+  public void init(DBSelectorSupplier selectorSupply) {
+    super.init(selectorSupply);
+    this.selectorSupply = selectorSupply;
+  }
+
+  /**
+   * Uses the {@link TimestampIndex} for unrestricted queries with a distance that equals the absolute difference in one dimension and falls back to the database otherwise.
+   */
+  @Override
+  protected <E extends DistanceElement> List<E> getNearestNeighbours(int k, float[] feature, Class<E> distanceElementClass, ReadableQueryConfig qc) {
+    final Distance distance = qc.getDistance().orElse(Distance.euclidean);
+    if (this.selectorSupply == null || !qc.getRelevantSegmentIds().isEmpty() || (distance != Distance.euclidean && distance != Distance.manhattan && distance != Distance.chebyshev)) {
+      return super.getNearestNeighbours(k, feature, distanceElementClass, qc);
+    }
+    return TimestampIndex.of(this.selectorSupply, FEATURE_NAME, GENERIC_ID_COLUMN_QUALIFIER, FEATURE_COLUMN_QUALIFIER)
+        .map(index -> index.nearest(k, feature[0], distanceElementClass))
+        .orElseGet(() -> super.getNearestNeighbours(k, feature, distanceElementClass, qc));
+  }
 }
@@ -1,17 +1,16 @@
 package org.vitrivr.cineast.core.features.abstracts;
 
 import boofcv.abst.feature.detdesc.DetectDescribePoint;
-import boofcv.alg.scene.FeatureToWordHistogram_F64;
-import boofcv.io.UtilIO;
 import boofcv.struct.feature.BrightFeature;
 import boofcv.struct.feature.TupleDesc_F64;
 import boofcv.struct.image.GrayF32;
+import java.util.ArrayList;
 import java.util.List;
-import org.ddogleg.clustering.AssignCluster;
 import org.vitrivr.cineast.core.config.QueryConfig;
 import org.vitrivr.cineast.core.config.ReadableQueryConfig;
 import org.vitrivr.cineast.core.db.DBSelectorSupplier;
 import org.vitrivr.cineast.core.db.PersistencyWriterSupplier;
+import org.vitrivr.cineast.core.features.codebook.Codebook;
 
 /**
  * An abstract feature module that leverages a named codebook and a set of features to obtain a histogram of codewords. It remains to the implementer which codebook and what descriptors to use. Once features have been obtained, use the histogram() method to get the histogram given the corpus.
@@ -29,9 +28,9 @@ public abstract class AbstractCodebookFeatureModule extends StagedFeatureModule
    */
   private static String CODEBOOK_FOLDER = "resources/codebooks/";
   /**
-   * The Assignment used for the codebook.
+   * The codebook used for the assignment; shared by all instances that use the same codebook.
    */
-  private AssignCluster<double[]> assignment;
+  private Codebook codebook;
 
   protected AbstractCodebookFeatureModule(String tableName, float maxDist, int vectorLength) {
     super(tableName, maxDist, vectorLength);
@@ -44,8 +43,8 @@ protected AbstractCodebookFeatureModule(String tableName, float maxDist, int vec
   public final void init(PersistencyWriterSupplier phandlerSupply) {
     super.init(phandlerSupply);
 
-    /* Load the Codebook. */
-    this.assignment = UtilIO.load(CODEBOOK_FOLDER + this.codebook());
+    /* Load the Codebook (only read from disk once per process). */
+    this.codebook = Codebook.load(CODEBOOK_FOLDER + this.codebook());
   }
 
   /**
@@ -55,8 +54,8 @@ public final void init(PersistencyWriterSupplier phandlerSupply) {
   public final void init(DBSelectorSupplier selectorSupply) {
     super.init(selectorSupply);
 
-    /* Load the Codebook. */
-    this.assignment = UtilIO.load(CODEBOOK_FOLDER + this.codebook());
+    /* Load the Codebook (only read from disk once per process). */
+    this.codebook = Codebook.load(CODEBOOK_FOLDER + this.codebook());
   }
 
   /**
@@ -67,17 +66,11 @@ public final void init(DBSelectorSupplier selectorSupply) {
    * @return float[] array with codebook
    */
   protected final float[] histogram(boolean hard, DetectDescribePoint<GrayF32, BrightFeature> descriptors) {
-    /* Create new  Histogram-Calculator. */
-    FeatureToWordHistogram_F64 histogram = new FeatureToWordHistogram_F64(this.assignment, hard);
-
-    /* Add the features to the Histogram-Calculator... */
+    final List<double[]> values = new ArrayList<>(descriptors.getNumberOfFeatures());
     for (int i = 0; i < descriptors.getNumberOfFeatures(); i++) {
-      histogram.addFeature(descriptors.getDescription(i));
+      values.add(descriptors.getDescription(i).getValue());
     }
-
-    /* ... and calculates and returns the histogram. */
-    histogram.process();
-    return this.floatToDoubleArray(histogram.getHistogram());
+    return this.floatToDoubleArray(this.codebook.histogram(hard, values));
   }
 
   /**
@@ -88,17 +81,11 @@ protected final float[] histogram(boolean hard, DetectDescribePoint<GrayF32, Bri
    * @return float[] array with codebook
    */
   protected final float[] histogram(boolean hard, List<TupleDesc_F64> descriptors) {
-    /* Create new  Histogram-Calculator. */
-    FeatureToWordHistogram_F64 histogram = new FeatureToWordHistogram_F64(this.assignment, hard);
-
-    /* Add the features to the Histogram-Calculator... */
+    final List<double[]> values = new ArrayList<>(descriptors.size());
     for (TupleDesc_F64 descriptor : descriptors) {
-      histogram.addFeature(descriptor);
+      values.add(descriptor.getValue());
     }
-
-    /* ... and calculates and returns the histogram. */
-    histogram.process();
-    return this.floatToDoubleArray(histogram.getHistogram());
+    return this.floatToDoubleArray(this.codebook.histogram(hard, values));
   }
 
   /**
@@ -2,6 +2,7 @@
 
 import static org.vitrivr.cineast.core.util.CineastConstants.GENERIC_ID_COLUMN_QUALIFIER;
 
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
@@ -10,6 +11,8 @@
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
 import java.util.function.Supplier;
 import java.util.stream.Collectors;
 import org.apache.commons.lang3.tuple.Triple;
@@ -22,11 +25,13 @@
 import org.vitrivr.cineast.core.data.score.ScoreElement;
 import org.vitrivr.cineast.core.data.segments.SegmentContainer;
 import org.vitrivr.cineast.core.db.BooleanExpression;
+import org.vitrivr.cineast.core.db.BooleanQueryPlanner;
 import org.vitrivr.cineast.core.db.DBSelector;
 import org.vitrivr.cineast.core.db.DBSelectorSupplier;
 import org.vitrivr.cineast.core.db.RelationalOperator;
 import org.vitrivr.cineast.core.db.setup.EntityCreator;
 import org.vitrivr.cineast.core.features.retriever.MultipleInstantiatableRetriever;
+import org.vitrivr.cineast.core.util.temporal.TimestampIndex;
 
 /**
  * BooleanRetrievers operate on tables which are created externally. Therefore, both initializing and dropping the entity are managed externally.
@@ -38,7 +43,13 @@ public abstract class BooleanRetriever implements MultipleInstantiatableRetrieve
   protected final HashSet<String> attributes = new HashSet<>();
   protected final HashMap<String, ProviderDataType> columnTypes = new HashMap<>();
   protected DBSelector selector;
+  protected BooleanQueryPlanner planner;
+  /**
+   * Attributes whose conditions are evaluated on a {@link TimestampIndex} instead of the persistent layer. Useful for integral attributes (e.g. timestamps) if the persistent layer lacks ordered indexes.
+   */
+  protected final HashSet<String> sortedIndexAttributes = new HashSet<>();
   private String idCol = GENERIC_ID_COLUMN_QUALIFIER;
+  private DBSelectorSupplier selectorSupply;
 
   protected BooleanRetriever(String entity, Collection<String> attributes) {
     this.entity = entity;
@@ -59,6 +70,10 @@ protected BooleanRetriever(Map<String, String> properties) {
     }
 
     this.idCol = properties.getOrDefault("idCol", GENERIC_ID_COLUMN_QUALIFIER);
+
+    if (properties.containsKey("sortedIndex")) {
+      Arrays.stream(properties.get("sortedIndex").split(",")).map(String::trim).filter(s -> !s.isEmpty()).forEach(this.sortedIndexAttributes::add);
+    }
   }
 
   @Override
@@ -70,8 +85,10 @@ public List<String> getTableNames() {
 
   @Override
   public void init(DBSelectorSupplier selectorSupply) {
+    this.selectorSupply = selectorSupply;
     this.selector = selectorSupply.get();
     this.selector.open(entity);
+    this.planner = new BooleanQueryPlanner(selectorSupply, this.entity);
   }
 
   public Collection<String> getAttributes() {
@@ -98,18 +115,43 @@ public List<ScoreElement> getSimilar(SegmentContainer sc, ReadableQueryConfig qc
 
   protected List<ScoreElement> getMatching(List<BooleanExpression> expressions, ReadableQueryConfig qc) {
 
-    List<Map<String, PrimitiveTypeProvider>> rows = selector.getRowsAND(
-        expressions.stream().map(be -> Triple.of(
-            // strip entity if it was given via config
-            be.attribute().contains(this.entity) ? be.attribute().substring(this.entity.length() + 1) : be.attribute(),
-            be.operator(),
-            be.values()
-        )).collect(Collectors.toList()),
-        GENERIC_ID_COLUMN_QUALIFIER, // for compound ops, we want to join via id. Cottontail (the official storage layer) does not use this identifier
-        Collections.singletonList(idCol),  // we're only interested in the ids
-        qc);
+    final List<Triple<String, RelationalOperator, List<PrimitiveTypeProvider>>> conditions = new ArrayList<>();
+    Set<String> indexed = null;
+    for (BooleanExpression be : expressions) {
+      // strip entity if it was given via config
+      final String attribute = be.attribute().contains(this.entity) ? be.attribute().substring(this.entity.length() + 1) : be.attribute();
+
+      /* Conditions on attributes with a sorted index are evaluated in memory. */
+      final Optional<List<String>> matching = this.sortedIndexAttributes.contains(attribute)
+          ? TimestampIndex.of(this.selectorSupply, this.entity, this.idCol, attribute).flatMap(index -> index.matching(be.operator(), be.values()))
+          : Optional.empty();
+      if (matching.isPresent()) {
+        if (indexed == null) {
+          indexed = new HashSet<>(matching.get());
+        } else {
+          indexed.retainAll(matching.get());
+        }
+      } else {
+        conditions.add(Triple.of(attribute, be.operator(), be.values()));
+      }
+    }
+
+    final List<String> ids;
+    if (indexed == null || !conditions.isEmpty()) {
+      /* Order the conditions such that the most selective one is evaluated first. */
+      List<Map<String, PrimitiveTypeProvider>> rows = selector.getRowsAND(
+          this.planner.plan(conditions),
+          GENERIC_ID_COLUMN_QUALIFIER, // for compound ops, we want to join via id. Cottontail (the official storage layer) does not use this identifier
+          Collections.singletonList(idCol),  // we're only interested in the ids
+          qc);
+      final Set<String> filter = indexed;
+      ids = rows.stream().map(row -> row.get(idCol).getString()).filter(id -> filter == null || filter.contains(id)).collect(Collectors.toList());
+    } else {
+      final Set<String> relevant = qc == null ? Collections.emptySet() : qc.getRelevantSegmentIds();
+      ids = indexed.stream().filter(id -> relevant.isEmpty() || relevant.contains(id)).collect(Collectors.toList());
+    }
     // we're returning a boolean score element since the score is always 1 if a query matches here
-    return rows.stream().map(row -> new BooleanSegmentScoreElement(row.get(idCol).getString())).collect(Collectors.toList());
+    return ids.stream().map(BooleanSegmentScoreElement::new).collect(Collectors.toList());
   }
 
   @Override
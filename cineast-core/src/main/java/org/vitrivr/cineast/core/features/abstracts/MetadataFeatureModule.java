@@ -137,17 +137,26 @@ public void finish() {
   }
 
   /**
-   * Extracts the feature data, <i>stores it</i> and returns a list of descriptors from the feature.
+   * Extracts the feature data, <i>stores it</i> and returns a list of descriptors from the feature. Only writing the feature data is synchronized, hence this method may be invoked concurrently.
    */
   @Override
   public List<MediaObjectMetadataDescriptor> extract(String objectId, Path path) {
     Optional<T> feature = this.extractFeature(objectId, path);
-    feature.ifPresent(v -> this.featureWriter.write(new SimpleFeatureDescriptor(objectId, v)));
+    feature.ifPresent(v -> {
+      synchronized (this) {
+        this.featureWriter.write(new SimpleFeatureDescriptor(objectId, v));
+      }
+    });
     return feature
         .map(floatVector -> this.createDescriptors(objectId, floatVector))
         .orElse(Collections.emptyList());
   }
 
+  @Override
+  public boolean isThreadSafe() {
+    return true;
+  }
+
   /**
    * Returns similar <i>objects</i> to the feature data contained in the given segment container.
    */
@@ -182,11 +191,23 @@ protected List<ScoreElement> getSimilar(float[] feature, ReadableQueryConfig rqc
     CorrespondenceFunction correspondence = qc.getCorrespondenceFunction()
         .orElse(this.defaultCorrespondence());
     if (this.segmentRetrievalScope) {
-      sDistances = this.dbSelector.getNearestNeighboursGeneric(rqc.getResultsPerModule(), feature, FEATURE_COLUMN_NAME, SegmentDistanceElement.class, qc);
+      sDistances = this.getNearestNeighbours(rqc.getResultsPerModule(), feature, SegmentDistanceElement.class, qc);
       return DistanceElement.toScore(sDistances, correspondence);
     } else {
-      oDistances = this.dbSelector.getNearestNeighboursGeneric(rqc.getResultsPerModule(), feature, FEATURE_COLUMN_NAME, ObjectDistanceElement.class, qc);
+      oDistances = this.getNearestNeighbours(rqc.getResultsPerModule(), feature, ObjectDistanceElement.class, qc);
       return DistanceElement.toScore(oDistances, correspondence);
     }
   }
+
+  /**
+   * Performs the nearest neighbour lookup for the given feature. Subclasses may override this method in order to use a specialised index.
+   *
+   * @param k                    Number of neighbours to retrieve.
+   * @param feature              The query feature.
+   * @param distanceElementClass Class of the {@link DistanceElement}s to return.
+   * @param qc                   Query config, with the distance already set.
+   */
+  protected <E extends DistanceElement> List<E> getNearestNeighbours(int k, float[] feature, Class<E> distanceElementClass, ReadableQueryConfig qc) {
+    return this.dbSelector.getNearestNeighboursGeneric(k, feature, FEATURE_COLUMN_NAME, distanceElementClass, qc);
+  }
 }
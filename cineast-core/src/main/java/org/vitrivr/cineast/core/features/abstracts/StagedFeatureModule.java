@@ -5,6 +5,7 @@
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Optional;
 import org.apache.logging.log4j.LogManager;
 import org.vitrivr.cineast.core.config.QueryConfig;
 import org.vitrivr.cineast.core.config.ReadableQueryConfig;
@@ -12,6 +13,7 @@
 import org.vitrivr.cineast.core.data.providers.primitive.StringTypeProvider;
 import org.vitrivr.cineast.core.data.score.ScoreElement;
 import org.vitrivr.cineast.core.data.segments.SegmentContainer;
+import org.vitrivr.cineast.core.db.NearestNeighbourAggregation;
 
 /**
  * This implementation of the AbstractFeatureModule executes every query, either based on a SegmentContainer or on an existing segment, in three stages. This for in-depth analysis and benchmarking of the different stages as well as a unified approach to similarity search.
@@ -65,7 +67,8 @@ public List<ScoreElement> getSimilar(SegmentContainer sc, ReadableQueryConfig qc
     /* Generates a list of QueryConfigs for the feature. */
     List<ReadableQueryConfig> configs = this.generateQueryConfigsForFeatures(qcc, features);
 
-    /* Start query lookup phase. */
+    /* Start query lookup phase, unless the deadline of the query expired while the features were generated. */
+    qcc.checkDeadline();
     List<SegmentDistanceElement> partialResults = this.lookup(features, configs);
 
     /* Start query-results post-processing phase. */
@@ -104,7 +107,8 @@ public List<ScoreElement> getSimilar(String segmentId, ReadableQueryConfig qc) {
     /* Generate a list of QueryConfigs for the feature. */
     List<ReadableQueryConfig> configs = this.generateQueryConfigsForFeatures(qcc, features);
 
-    /* Start query lookup phase. */
+    /* Start query lookup phase, unless the deadline of the query expired while the features were generated. */
+    qcc.checkDeadline();
     List<SegmentDistanceElement> partialResults = this.lookup(features, configs);
 
     /* Start query-results post-processing phase. */
@@ -129,11 +133,14 @@ public List<ScoreElement> getSimilar(String segmentId, ReadableQueryConfig qc) {
    *
    * @param features A list of feature-vectors (usually generated in the first stage). For each feature, a lookup is executed. May be empty!
    * @param configs  A ReadableQueryConfig object that contains query-related configuration parameters.
-   * @return Unfiltered list of partial results. May exceed the number of results a module is supposed to return and entries may occur multiple times.
+   * @return Unfiltered list of partial results. May exceed the number of results a module is supposed to return and entries may occur multiple times, unless an {@link #aggregation()} is defined.
    */
   protected List<SegmentDistanceElement> lookup(List<float[]> features, List<ReadableQueryConfig> configs) {
     List<SegmentDistanceElement> partialResults;
-    if (features.size() == 1) {
+    final Optional<NearestNeighbourAggregation> aggregation = this.aggregation();
+    if (aggregation.isPresent() && !features.isEmpty()) {
+      partialResults = this.selector.getAggregatedNearestNeighbours(configs.get(0).getResultsPerModule(), features, FEATURE_COLUMN_QUALIFIER, SegmentDistanceElement.class, configs, aggregation.get(), this.aggregationThreshold());
+    } else if (features.size() == 1) {
       partialResults = this.selector.getNearestNeighboursGeneric(configs.get(0).getResultsPerModule(), features.get(0), FEATURE_COLUMN_QUALIFIER, SegmentDistanceElement.class, configs.get(0));
     } else if (features.size() > 1) {
       partialResults = this.selector.getBatchedNearestNeighbours(configs.get(0).getResultsPerModule(), features, FEATURE_COLUMN_QUALIFIER, SegmentDistanceElement.class, configs);
@@ -143,6 +150,24 @@ protected List<SegmentDistanceElement> lookup(List<float[]> features, List<Reada
     return partialResults;
   }
 
+  /**
+   * Returns the {@link NearestNeighbourAggregation} with which the lookup stage combines the hits of all feature vectors per segment. If present, the aggregation is performed by the storage engine and the post-processing stage receives at most one, aggregated partial result per segment. By default, no aggregation takes place.
+   *
+   * @return Optional {@link NearestNeighbourAggregation}.
+   */
+  protected Optional<NearestNeighbourAggregation> aggregation() {
+    return Optional.empty();
+  }
+
+  /**
+   * Returns the distance above which hits are ignored by the {@link #aggregation()} in the lookup stage.
+   *
+   * @return Distance threshold.
+   */
+  protected double aggregationThreshold() {
+    return Double.POSITIVE_INFINITY;
+  }
+
   /**
    * This method represents the last step that's executed when processing a query. A list of partial-results (DistanceElements) returned by the lookup stage is processed based on some internal method and finally converted to a list of ScoreElements. The filtered list of ScoreElements is returned by the feature module during retrieval.
    *
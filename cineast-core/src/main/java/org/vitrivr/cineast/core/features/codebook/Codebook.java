@@ -0,0 +1,322 @@
+package org.vitrivr.cineast.core.features.codebook;
+
+import boofcv.io.UtilIO;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.IntStream;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.ddogleg.clustering.AssignCluster;
+import org.ddogleg.clustering.kmeans.AssignKMeans_F64;
+
+/**
+ * A codebook of visual words (i.e. k-means centroids) stored in a flat double array, which assigns descriptors to their nearest word. Codebooks are immutable outside of this package; only {@link MiniBatchKMeans} moves the words of its working codebook in place (see {@link #refresh(int[], int)}).
+ * <p>
+ * Hard assignment is accelerated by pruning words with the triangle inequality (words whose distance to the current best word is at least twice the distance of the descriptor to that word cannot be closer) and by abandoning distance computations as soon as they exceed the current best distance. Both techniques are exact, i.e. the results are identical to a brute-force search as done by {@link AssignKMeans_F64}.
+ * <p>
+ * Codebooks loaded from disk are shared process-wide, see {@link #load(String)}.
+ */
+public final class Codebook {
+
+  private static final Logger LOGGER = LogManager.getLogger();
+
+  /**
+   * Process-wide registry of the codebooks loaded from disk, keyed by their path.
+   */
+  private static final Map<String, Codebook> REGISTRY = new ConcurrentHashMap<>();
+
+  /**
+   * Minimum number of descriptors for which the assignment is parallelized.
+   */
+  private static final int PARALLEL_THRESHOLD = 256;
+
+  /**
+   * Safety margin applied to the triangle-inequality bound, which guards against rounding errors.
+   */
+  private static final double PRUNING_MARGIN = 1.0 + 1e-9;
+
+  /**
+   * Centroids of the words; word i occupies the range [i * dimension, (i + 1) * dimension).
+   */
+  private final double[] centroids;
+
+  /**
+   * Squared halved distances between all pairs of centroids; (0.5 * |c_i - c_j|)^2 is stored at i * words + j.
+   */
+  private final double[] halfDistancesSq;
+
+  /**
+   * Number of words in the codebook.
+   */
+  private final int words;
+
+  /**
+   * Dimension of the descriptors and centroids.
+   */
+  private final int dimension;
+
+  /**
+   * Returns the codebook stored at the given path. Every codebook is read from disk only once per process; subsequent calls return the shared instance.
+   *
+   * @param path Path to a codebook serialized by {@link UtilIO#save(Object, String)}.
+   * @return The {@link Codebook}.
+   */
+  public static Codebook load(String path) {
+    return REGISTRY.computeIfAbsent(path, p -> {
+      final AssignCluster<double[]> assignment = UtilIO.load(p);
+      if (!(assignment instanceof AssignKMeans_F64)) {
+        throw new IllegalArgumentException("The codebook " + p + " is not a k-means codebook (" + assignment.getClass().getSimpleName() + ").");
+      }
+      final Codebook codebook = new Codebook(((AssignKMeans_F64) assignment).getClusters());
+      LOGGER.debug("Loaded codebook {} with {} words of dimension {}.", p, codebook.words, codebook.dimension);
+      return codebook;
+    });
+  }
+
+  /**
+   * Creates a new {@link Codebook} from the provided centroids.
+   *
+   * @param centroids List of centroids, which must all have the same length.
+   */
+  public Codebook(List<double[]> centroids) {
+    this(flatten(centroids), centroids.isEmpty() ? 1 : centroids.get(0).length);
+  }
+
+  /**
+   * Creates a new {@link Codebook} from centroids stored in a flat array. The array is copied.
+   *
+   * @param centroids Centroids; word i occupies the range [i * dimension, (i + 1) * dimension).
+   * @param dimension Dimension of the centroids.
+   */
+  public Codebook(double[] centroids, int dimension) {
+    this(dimension, centroids.clone());
+  }
+
+  /**
+   * Creates a new {@link Codebook} that operates directly on the provided array, i.e. changes to the array become visible to the codebook once the affected words have been refreshed using {@link #refresh(int[], int)}.
+   *
+   * @param centroids Centroids; word i occupies the range [i * dimension, (i + 1) * dimension).
+   * @param dimension Dimension of the centroids.
+   * @return The {@link Codebook} backed by the array.
+   */
+  static Codebook wrap(double[] centroids, int dimension) {
+    return new Codebook(dimension, centroids);
+  }
+
+  /**
+   * Creates a new {@link Codebook} backed by the provided (not copied) array.
+   */
+  private Codebook(int dimension, double[] centroids) {
+    if (centroids.length == 0 || dimension <= 0 || centroids.length % dimension != 0) {
+      throw new IllegalArgumentException("A codebook must contain at least one word and all words must have the same dimension.");
+    }
+    this.dimension = dimension;
+    this.words = centroids.length / dimension;
+    this.centroids = centroids;
+    this.halfDistancesSq = new double[this.words * this.words];
+    for (int i = 0; i < this.words; i++) {
+      for (int j = i + 1; j < this.words; j++) {
+        final double d = 0.25 * this.distanceSq(this.centroids, j * this.dimension, i, Double.MAX_VALUE);
+        this.halfDistancesSq[i * this.words + j] = d;
+        this.halfDistancesSq[j * this.words + i] = d;
+      }
+    }
+  }
+
+  /**
+   * Returns the number of words in this {@link Codebook}.
+   */
+  public int words() {
+    return this.words;
+  }
+
+  /**
+   * Returns the dimension of the words in this {@link Codebook}.
+   */
+  public int dimension() {
+    return this.dimension;
+  }
+
+  /**
+   * Returns a copy of the centroid of the given word.
+   *
+   * @param word Index of the word.
+   */
+  public double[] centroid(int word) {
+    return Arrays.copyOfRange(this.centroids, word * this.dimension, (word + 1) * this.dimension);
+  }
+
+  /**
+   * Converts this {@link Codebook} into an {@link AssignKMeans_F64}, which can be serialized with {@link UtilIO#save(Object, String)}.
+   */
+  public AssignKMeans_F64 toAssignment() {
+    final List<double[]> list = new ArrayList<>(this.words);
+    for (int i = 0; i < this.words; i++) {
+      list.add(this.centroid(i));
+    }
+    return new AssignKMeans_F64(list);
+  }
+
+  /**
+   * Updates the pruning bounds of the provided words after their centroids have been moved in the backing array. Only the distances involving moved words are recomputed, i.e. the update costs O(moved * words * dimension) instead of the O(words^2 * dimension) of building a new codebook. Must not be invoked concurrently with any assignment.
+   *
+   * @param moved Indexes of the words whose centroids have changed.
+   * @param count Number of valid entries in moved.
+   */
+  void refresh(int[] moved, int count) {
+    /* Rows of moved words are recomputed in parallel; each task only writes its own row. */
+    IntStream.range(0, count).parallel().forEach(m -> {
+      final int i = moved[m];
+      final int row = i * this.words;
+      for (int j = 0; j < this.words; j++) {
+        this.halfDistancesSq[row + j] = i == j ? 0.0 : 0.25 * this.distanceSq(this.centroids, j * this.dimension, i, Double.MAX_VALUE);
+      }
+    });
+
+    /* Mirror the rows into the columns to keep the matrix symmetric. */
+    for (int m = 0; m < count; m++) {
+      final int i = moved[m];
+      for (int j = 0; j < this.words; j++) {
+        this.halfDistancesSq[j * this.words + i] = this.halfDistancesSq[i * this.words + j];
+      }
+    }
+  }
+
+  /**
+   * Assigns the descriptor to its nearest word (in terms of the Euclidean distance). Ties are resolved in favour of the word with the smaller index.
+   *
+   * @param descriptor The descriptor to assign.
+   * @return Index of the nearest word.
+   */
+  public int assign(double[] descriptor) {
+    return this.assign(descriptor, 0);
+  }
+
+  /**
+   * Assigns the descriptor starting at the given offset of the provided array to its nearest word.
+   *
+   * @param data   Array containing the descriptor.
+   * @param offset Offset of the descriptor's first component.
+   * @return Index of the nearest word.
+   */
+  public int assign(double[] data, int offset) {
+    int best = 0;
+    double bestDistance = this.distanceSq(data, offset, 0, Double.MAX_VALUE);
+    for (int word = 1; word < this.words; word++) {
+      /* If 0.5 * |c_best - c_word| >= |x - c_best|, then |x - c_word| >= |x - c_best|. */
+      if (this.halfDistancesSq[best * this.words + word] > bestDistance * PRUNING_MARGIN) {
+        continue;
+      }
+      final double distance = this.distanceSq(data, offset, word, bestDistance);
+      if (distance < bestDistance) {
+        bestDistance = distance;
+        best = word;
+      }
+    }
+    return best;
+  }
+
+  /**
+   * Soft-assigns the descriptor to all words. Uses the same weighting scheme as {@link AssignKMeans_F64#assign(double[], double[])}.
+   *
+   * @param descriptor The descriptor to assign.
+   * @param fit        Array that receives the (normalized) weight of every word.
+   */
+  public void assign(double[] descriptor, double[] fit) {
+    double max = 0.0;
+    for (int word = 0; word < this.words; word++) {
+      fit[word] = this.distanceSq(descriptor, 0, word, Double.MAX_VALUE);
+      if (fit[word] > max) {
+        max = fit[word];
+      }
+    }
+    double sum = 0.0;
+    for (int word = 0; word < this.words; word++) {
+      sum += fit[word] /= max;
+    }
+    double total = 0.0;
+    for (int word = 0; word < this.words; word++) {
+      total += fit[word] = sum - fit[word];
+    }
+    for (int word = 0; word < this.words; word++) {
+      fit[word] /= total;
+    }
+  }
+
+  /**
+   * Calculates the normalized histogram of words for the provided descriptors. Hard assignments of large descriptor sets are calculated in parallel.
+   *
+   * @param hard        True for hard assignment, false for soft assignment.
+   * @param descriptors List of descriptors.
+   * @return Normalized histogram of word occurrences.
+   */
+  public double[] histogram(boolean hard, List<double[]> descriptors) {
+    final double[] histogram = new double[this.words];
+    final int n = descriptors.size();
+    if (hard) {
+      IntStream range = IntStream.range(0, n);
+      if (n >= PARALLEL_THRESHOLD) {
+        range = range.parallel();
+      }
+      final int[] assignments = range.map(i -> this.assign(descriptors.get(i))).toArray();
+      for (int word : assignments) {
+        histogram[word] += 1.0;
+      }
+    } else {
+      final double[] fit = new double[this.words];
+      for (double[] descriptor : descriptors) {
+        this.assign(descriptor, fit);
+        for (int word = 0; word < this.words; word++) {
+          histogram[word] += fit[word];
+        }
+      }
+    }
+    for (int word = 0; word < this.words; word++) {
+      histogram[word] /= n;
+    }
+    return histogram;
+  }
+
+  /**
+   * Copies the provided centroids into a flat array.
+   */
+  private static double[] flatten(List<double[]> centroids) {
+    if (centroids.isEmpty()) {
+      return new double[0];
+    }
+    final int dimension = centroids.get(0).length;
+    final double[] flat = new double[centroids.size() * dimension];
+    for (int i = 0; i < centroids.size(); i++) {
+      if (centroids.get(i).length != dimension) {
+        throw new IllegalArgumentException("All words of a codebook must have the same dimension.");
+      }
+      System.arraycopy(centroids.get(i), 0, flat, i * dimension, dimension);
+    }
+    return flat;
+  }
+
+  /**
+   * Calculates the squared Euclidean distance between a descriptor and a word. The computation is abandoned once the partial sum reaches the provided bound, since the sum of squares can only grow.
+   *
+   * @param data   Array containing the descriptor.
+   * @param offset Offset of the descriptor's first component.
+   * @param word   Index of the word.
+   * @param bound  Bound at which the computation may be abandoned.
+   * @return Squared distance or a value greater than or equal to the bound.
+   */
+  private double distanceSq(double[] data, int offset, int word, double bound) {
+    final int base = word * this.dimension;
+    double total = 0.0;
+    for (int i = 0; i < this.dimension; i++) {
+      final double d = data[offset + i] - this.centroids[base + i];
+      total += d * d;
+      if (total >= bound) {
+        return total;
+      }
+    }
+    return total;
+  }
+}
@@ -15,4 +15,16 @@ public interface CodebookGenerator {
    * @throws IOException If an error occurs while reading the files.
    */
   void generate(Path source, Path destination, int words) throws IOException;
+
+  /**
+   * Generates a Codebook for files in the source folder using multi-threaded mini-batch k-means, which streams the descriptors from disk instead of holding them in memory, and writes it to the destination folder.
+   *
+   * @param source      Path pointing to a folder with file from which the codebook should be created.
+   * @param destination Output file
+   * @param words       Number of words in the Codebook.
+   * @param batchSize   Number of descriptors per mini-batch.
+   * @param epochs      Number of passes over all descriptors.
+   * @throws IOException If an error occurs while reading the files.
+   */
+  void generate(Path source, Path destination, int words, int batchSize, int epochs) throws IOException;
 }
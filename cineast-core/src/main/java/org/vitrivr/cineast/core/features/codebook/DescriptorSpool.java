@@ -0,0 +1,149 @@
+package org.vitrivr.cineast.core.features.codebook;
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.FloatBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Temporary, file-backed store of descriptors, which allows for clustering descriptor sets that do not fit into memory. Descriptors are appended once (thread-safe) and can then be streamed in batches any number of times. Components are stored as 32 bit floats.
+ */
+public class DescriptorSpool implements Closeable {
+
+  /**
+   * Path of the temporary file.
+   */
+  private final Path file;
+
+  /**
+   * Dimension of the descriptors.
+   */
+  private final int dimension;
+
+  /**
+   * Stream used for appending descriptors; null once the spool has been sealed for reading.
+   */
+  private DataOutputStream out;
+
+  /**
+   * Number of descriptors in the spool.
+   */
+  private long size;
+
+  /**
+   * Consumer of descriptor batches.
+   */
+  @FunctionalInterface
+  public interface BatchConsumer {
+
+    /**
+     * Accepts a batch of descriptors.
+     *
+     * @param batch Descriptors in a flat array; descriptor i occupies the range [i * dimension, (i + 1) * dimension).
+     * @param count Number of descriptors in the batch. The array may be larger.
+     */
+    void accept(double[] batch, int count);
+  }
+
+  /**
+   * Creates a new, empty {@link DescriptorSpool} backed by a temporary file.
+   *
+   * @param dimension Dimension of the descriptors.
+   * @throws IOException If the temporary file could not be created.
+   */
+  public DescriptorSpool(int dimension) throws IOException {
+    this.dimension = dimension;
+    this.file = Files.createTempFile("cineast-descriptors", ".bin");
+    this.out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(this.file), 1 << 20));
+  }
+
+  /**
+   * Appends a descriptor to the spool.
+   *
+   * @param descriptor The descriptor. Must have the dimension of this spool.
+   * @throws IOException If writing fails.
+   */
+  public synchronized void add(double[] descriptor) throws IOException {
+    if (this.out == null) {
+      throw new IllegalStateException("Descriptors cannot be added to a spool that has already been read from.");
+    }
+    if (descriptor.length != this.dimension) {
+      throw new IllegalArgumentException("Expected descriptor of dimension " + this.dimension + " but got " + descriptor.length + ".");
+    }
+    for (double value : descriptor) {
+      this.out.writeFloat((float) value);
+    }
+    this.size++;
+  }
+
+  /**
+   * Returns the number of descriptors in the spool.
+   */
+  public synchronized long size() {
+    return this.size;
+  }
+
+  /**
+   * Returns the dimension of the descriptors in the spool.
+   */
+  public int dimension() {
+    return this.dimension;
+  }
+
+  /**
+   * Streams all descriptors in the spool in batches (in the order they were added). Once this method has been invoked, no more descriptors can be added.
+   *
+   * @param batchSize Maximum number of descriptors per batch.
+   * @param consumer  The {@link BatchConsumer} invoked for every batch. The batch array is re-used between invocations.
+   * @throws IOException If reading fails.
+   */
+  public void forEachBatch(int batchSize, BatchConsumer consumer) throws IOException {
+    this.seal();
+    final double[] batch = new double[batchSize * this.dimension];
+    final ByteBuffer buffer = ByteBuffer.allocateDirect(batchSize * this.dimension * Float.BYTES);
+    try (FileChannel channel = FileChannel.open(this.file, StandardOpenOption.READ)) {
+      long remaining = this.size;
+      while (remaining > 0) {
+        final int count = (int) Math.min(batchSize, remaining);
+        buffer.clear().limit(count * this.dimension * Float.BYTES);
+        while (buffer.hasRemaining()) {
+          if (channel.read(buffer) < 0) {
+            throw new IOException("Unexpected end of descriptor spool " + this.file + ".");
+          }
+        }
+        buffer.flip();
+        final FloatBuffer floats = buffer.asFloatBuffer();
+        for (int i = 0; i < count * this.dimension; i++) {
+          batch[i] = floats.get(i);
+        }
+        consumer.accept(batch, count);
+        remaining -= count;
+      }
+    }
+  }
+
+  /**
+   * Flushes and closes the output stream.
+   */
+  private synchronized void seal() throws IOException {
+    if (this.out != null) {
+      this.out.close();
+      this.out = null;
+    }
+  }
+
+  /**
+   * Closes the spool and deletes the temporary file.
+   */
+  @Override
+  public void close() throws IOException {
+    this.seal();
+    Files.deleteIfExists(this.file);
+  }
+}
@@ -4,6 +4,7 @@
 import boofcv.struct.feature.TupleDesc_F64;
 import boofcv.struct.image.GrayU8;
 import java.awt.image.BufferedImage;
+import java.util.function.Consumer;
 import org.ddogleg.clustering.FactoryClustering;
 import org.vitrivr.cineast.core.util.images.HOGHelper;
 
@@ -26,15 +27,16 @@ protected void init() {
   }
 
   /**
-   * Processes the content (i.e. creates descriptors) and add the generated descriptors to the cluster.
+   * Processes the content (i.e. creates descriptors) and hands the generated descriptors to the provided consumer.
    *
-   * @param content The image to process.
+   * @param content     The image to process.
+   * @param descriptors Consumer for the generated descriptors.
    */
   @Override
-  protected void process(BufferedImage content) {
+  protected void process(BufferedImage content, Consumer<TupleDesc_F64> descriptors) {
     DescribeImageDense<GrayU8, TupleDesc_F64> hog = HOGHelper.getHOGDescriptors(content);
     for (TupleDesc_F64 desc : hog.getDescriptions()) {
-      this.cluster.addReference(desc);
+      descriptors.accept(desc);
     }
   }
 }
@@ -2,13 +2,19 @@
 
 import boofcv.alg.bow.ClusterVisualWords;
 import boofcv.io.UtilIO;
+import boofcv.struct.feature.TupleDesc_F64;
 import java.awt.image.BufferedImage;
 import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
-import java.util.ArrayDeque;
+import java.util.List;
+import java.util.Set;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 import javax.activation.MimetypesFileTypeMap;
 import org.ddogleg.clustering.ComputeClusters;
 import org.vitrivr.cineast.core.extraction.decode.general.Decoder;
@@ -19,6 +25,11 @@
  */
 public abstract class ImageCodebookGenerator implements CodebookGenerator {
 
+  /**
+   * Seed used for clustering.
+   */
+  private static final long SEED = 0xA1CF3B12;
+
   /**
    * K-Means clusterer used for the clustering step in the Codebook generation.
    */
@@ -29,6 +40,11 @@ public abstract class ImageCodebookGenerator implements CodebookGenerator {
    */
   protected ClusterVisualWords cluster;
 
+  /**
+   * Size of the input vectors (that are getting clustered).
+   */
+  private final int vectorsize;
+
   /**
    * Default constructor.
    *
@@ -37,64 +53,21 @@ public abstract class ImageCodebookGenerator implements CodebookGenerator {
    */
   public ImageCodebookGenerator(int vectorsize, boolean verbose) {
     this.init();
+    this.vectorsize = vectorsize;
     this.clusterer.setVerbose(verbose);
-    this.cluster = new ClusterVisualWords(clusterer, vectorsize, 0xA1CF3B12);
+    this.cluster = new ClusterVisualWords(clusterer, vectorsize, SEED);
   }
 
   @Override
   public void generate(Path source, Path destination, int words) throws IOException {
     long start = System.currentTimeMillis();
-    final Decoder<BufferedImage> decoder = new DefaultImageDecoder();
-    final MimetypesFileTypeMap filetypemap = new MimetypesFileTypeMap("mime.types");
 
-    /* Filter the list of files and aggregate it. */
-
-
-    /* Prepare array dequeue. */
-    ArrayDeque<Path> files = Files.walk(source).filter(path -> {
-      if (decoder.supportedFiles() != null) {
-        String type = filetypemap.getContentType(path.toString());
-        return decoder.supportedFiles().contains(type);
-      } else {
-        return true;
+    /* Collect the descriptors of all images in memory. */
+    this.describe(source, words, descriptor -> {
+      synchronized (this.cluster) {
+        this.cluster.addReference(descriptor);
       }
-    }).collect(Collectors.toCollection(ArrayDeque::new));
-
-    /* Prepare data-structures to track progress. */
-    int max = files.size();
-    int counter = 0;
-    int skipped = 0;
-    char[] progressBar = new char[15];
-    int update = max / progressBar.length;
-
-    /* */
-    System.out.println(String.format("Creating codebook of %d words from %d files.", words, files.size()));
-
-    /*
-     * Iterates over the files Dequeue. Every element that has been processed in removed from that Dequeue.
-     */
-    Path path = null;
-    while ((path = files.poll()) != null) {
-      if (decoder.init(path, null, null)) {
-        BufferedImage image = decoder.getNext();
-        if (image != null) {
-          this.process(image);
-        } else {
-          skipped++;
-        }
-      } else {
-        skipped++;
-      }
-      if (counter % update == 0) {
-        this.updateProgressBar(progressBar, max, counter);
-      }
-      System.out.print(String.format("\rAdding vectors to codebook: %d/%d files processed (%d skipped) |%s| (Memory left: %.2f/%.2f GB)", counter, max, skipped, String.valueOf(progressBar), Runtime.getRuntime().freeMemory() / 1000000.0f, Runtime.getRuntime().totalMemory() / 1000000.0f));
-      counter++;
-    }
-
-    /* Dispose of unnecessary elements. */
-    files = null;
-    progressBar = null;
+    });
 
     /* Start clustering.*/
     System.out.println(String.format("\nClustering... this could take a while."));
@@ -104,9 +77,99 @@ public void generate(Path source, Path destination, int words) throws IOExceptio
     System.out.println(String.format("Saving vocabulary with %d entries.", words));
     UtilIO.save(this.cluster.getAssignment(), destination.toString());
 
+    this.printDuration(start);
+  }
+
+  @Override
+  public void generate(Path source, Path destination, int words, int batchSize, int epochs) throws IOException {
+    long start = System.currentTimeMillis();
+    try (DescriptorSpool spool = new DescriptorSpool(this.vectorsize)) {
+      /* Spool the descriptors of all images to disk. */
+      this.describe(source, words, descriptor -> {
+        try {
+          spool.add(descriptor.getValue());
+        } catch (IOException e) {
+          throw new UncheckedIOException(e);
+        }
+      });
+
+      /* Start clustering.*/
+      System.out.println(String.format("\nClustering %d descriptors using mini-batch k-means (batch size: %d, epochs: %d)...", spool.size(), batchSize, epochs));
+      Codebook codebook = new MiniBatchKMeans(words, batchSize, epochs, SEED).process(spool);
+
+      /* Save file...*/
+      System.out.println(String.format("Saving vocabulary with %d entries.", words));
+      UtilIO.save(codebook.toAssignment(), destination.toString());
+    } catch (UncheckedIOException e) {
+      throw e.getCause();
+    }
+
+    this.printDuration(start);
+  }
+
+  /**
+   * Decodes all supported images in the source folder in parallel and hands their descriptors to the provided consumer.
+   *
+   * @param source      Path pointing to a folder with file from which the codebook should be created.
+   * @param words       Number of words in the Codebook (for logging only).
+   * @param descriptors Consumer for the descriptors; invoked concurrently.
+   * @throws IOException If the source folder cannot be read.
+   */
+  private void describe(Path source, int words, Consumer<TupleDesc_F64> descriptors) throws IOException {
+    final ThreadLocal<Decoder<BufferedImage>> decoders = ThreadLocal.withInitial(DefaultImageDecoder::new);
+    final Set<String> supported = decoders.get().supportedFiles();
+    final MimetypesFileTypeMap filetypemap = new MimetypesFileTypeMap("mime.types");
+
+    /* Filter the list of files and aggregate it. */
+    final List<Path> files;
+    try (Stream<Path> paths = Files.walk(source)) {
+      files = paths.filter(path -> {
+        if (supported != null) {
+          String type = filetypemap.getContentType(path.toString());
+          return supported.contains(type);
+        } else {
+          return true;
+        }
+      }).collect(Collectors.toList());
+    }
+
+    /* Prepare data-structures to track progress. */
+    final int max = files.size();
+    final AtomicInteger counter = new AtomicInteger();
+    final AtomicInteger skipped = new AtomicInteger();
+    final char[] progressBar = new char[15];
+    final int update = Math.max(1, max / progressBar.length);
+
+    System.out.println(String.format("Creating codebook of %d words from %d files.", words, max));
+
+    /* Processes the files in parallel; descriptors are extracted independently for every image. */
+    files.parallelStream().forEach(path -> {
+      final Decoder<BufferedImage> decoder = decoders.get();
+      BufferedImage image = null;
+      if (decoder.init(path, null, null)) {
+        image = decoder.getNext();
+      }
+      if (image != null) {
+        this.process(image, descriptors);
+      } else {
+        skipped.incrementAndGet();
+      }
+      final int processed = counter.incrementAndGet();
+      if (processed % update == 0 || processed == max) {
+        synchronized (progressBar) {
+          this.updateProgressBar(progressBar, max, processed);
+          System.out.print(String.format("\rAdding vectors to codebook: %d/%d files processed (%d skipped) |%s| (Memory left: %.2f/%.2f GB)", processed, max, skipped.get(), String.valueOf(progressBar), Runtime.getRuntime().freeMemory() / 1000000.0f, Runtime.getRuntime().totalMemory() / 1000000.0f));
+        }
+      }
+    });
+  }
+
+  /**
+   * Prints the time elapsed since the provided start time.
+   */
+  private void printDuration(long start) {
     long duration = System.currentTimeMillis() - start;
     System.out.println(String.format("Done! Took me %dhours %dmin %dsec", TimeUnit.MILLISECONDS.toHours(duration), TimeUnit.MILLISECONDS.toMinutes(duration), TimeUnit.MILLISECONDS.toSeconds(duration)));
-
   }
 
   /**
@@ -126,11 +189,12 @@ private void updateProgressBar(char[] progressBar, int max, int counter) {
   }
 
   /**
-   * Processes the content (i.e. creates descriptors) and add the generated descriptors to the cluster.
+   * Processes the content (i.e. creates descriptors) and hands the generated descriptors to the provided consumer. May be invoked concurrently for different images.
    *
-   * @param content The image to process.
+   * @param content     The image to process.
+   * @param descriptors Consumer for the generated descriptors.
    */
-  protected abstract void process(BufferedImage content);
+  protected abstract void process(BufferedImage content, Consumer<TupleDesc_F64> descriptors);
 
   /**
    * Initializes the codebook generator (i.e. setup the clusterer etc.)
@@ -0,0 +1,177 @@
+package org.vitrivr.cineast.core.features.codebook;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.stream.IntStream;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * Multi-threaded mini-batch k-means as described in [1], which clusters descriptors streamed from a {@link DescriptorSpool} and thus never needs to hold all descriptors in memory.
+ * <p>
+ * The initial centroids are selected with k-means++ on a random sample of the descriptors. Every mini-batch is then assigned to its nearest centroids in parallel (using the pruned search of {@link Codebook}) and each centroid is moved towards its assigned descriptors with a per-centroid learning rate of 1 / (number of descriptors assigned so far). A single working {@link Codebook} is kept for all mini-batches, of which only the pruning bounds of the moved centroids are refreshed after every batch.
+ * <p>
+ * [1] Sculley, D. (2010). Web-scale k-means clustering. Proceedings of the 19th International Conference on World Wide Web, 1177–1178.
+ */
+public class MiniBatchKMeans {
+
+  private static final Logger LOGGER = LogManager.getLogger();
+
+  /**
+   * Number of sampled descriptors per word used for the k-means++ initialization.
+   */
+  private static final int SAMPLES_PER_WORD = 16;
+
+  /**
+   * Number of words (clusters).
+   */
+  private final int words;
+
+  /**
+   * Number of descriptors per mini-batch.
+   */
+  private final int batchSize;
+
+  /**
+   * Number of passes over all descriptors.
+   */
+  private final int epochs;
+
+  /**
+   * Source of randomness for sampling and initialization.
+   */
+  private final Random random;
+
+  /**
+   * Constructor for {@link MiniBatchKMeans}.
+   *
+   * @param words     Number of words (clusters).
+   * @param batchSize Number of descriptors per mini-batch.
+   * @param epochs    Number of passes over all descriptors.
+   * @param seed      Seed for the random number generator.
+   */
+  public MiniBatchKMeans(int words, int batchSize, int epochs, long seed) {
+    if (words <= 0 || batchSize <= 0 || epochs <= 0) {
+      throw new IllegalArgumentException("Number of words, batch size and number of epochs must be positive.");
+    }
+    this.words = words;
+    this.batchSize = batchSize;
+    this.epochs = epochs;
+    this.random = new Random(seed);
+  }
+
+  /**
+   * Clusters the descriptors in the provided {@link DescriptorSpool}.
+   *
+   * @param spool The {@link DescriptorSpool} containing the descriptors.
+   * @return {@link Codebook} with the resulting centroids.
+   * @throws IOException If reading from the spool fails.
+   */
+  public Codebook process(DescriptorSpool spool) throws IOException {
+    if (spool.size() < this.words) {
+      throw new IllegalArgumentException("Cannot create " + this.words + " words from " + spool.size() + " descriptors.");
+    }
+    final int dimension = spool.dimension();
+    final double[] centroids = this.initialize(spool);
+    final Codebook codebook = Codebook.wrap(centroids, dimension);
+    final long[] counts = new long[this.words];
+    final boolean[] touched = new boolean[this.words];
+    final int[] moved = new int[this.words];
+
+    for (int epoch = 0; epoch < this.epochs; epoch++) {
+      final int currentEpoch = epoch;
+      final double[] inertia = new double[1];
+      spool.forEachBatch(this.batchSize, (batch, count) -> {
+        /* Assign all descriptors of the batch in parallel. */
+        final int[] assignment = IntStream.range(0, count).parallel().map(i -> codebook.assign(batch, i * dimension)).toArray();
+
+        /* Move every centroid towards its descriptors using a per-centroid learning rate. */
+        int numberOfMoved = 0;
+        for (int i = 0; i < count; i++) {
+          final int word = assignment[i];
+          if (!touched[word]) {
+            touched[word] = true;
+            moved[numberOfMoved++] = word;
+          }
+          final double eta = 1.0 / (++counts[word]);
+          final int c = word * dimension;
+          final int x = i * dimension;
+          double distance = 0.0;
+          for (int d = 0; d < dimension; d++) {
+            final double delta = batch[x + d] - centroids[c + d];
+            distance += delta * delta;
+            centroids[c + d] += eta * delta;
+          }
+          inertia[0] += distance;
+        }
+
+        /* Refresh the pruning bounds of the moved centroids only. */
+        codebook.refresh(moved, numberOfMoved);
+        for (int m = 0; m < numberOfMoved; m++) {
+          touched[moved[m]] = false;
+        }
+      });
+      LOGGER.info("Mini-batch k-means epoch {}/{} finished (mean squared distance: {}).", currentEpoch + 1, this.epochs, inertia[0] / spool.size());
+    }
+    return new Codebook(centroids, dimension);
+  }
+
+  /**
+   * Selects the initial centroids using k-means++ on a random sample of the descriptors.
+   *
+   * @param spool The {@link DescriptorSpool} containing the descriptors.
+   * @return Flat array of initial centroids.
+   */
+  private double[] initialize(DescriptorSpool spool) throws IOException {
+    final int dimension = spool.dimension();
+    final int sampleSize = (int) Math.min(spool.size(), Math.max((long) this.words * SAMPLES_PER_WORD, this.batchSize));
+
+    /* Reservoir sampling of the descriptors. */
+    final double[] sample = new double[sampleSize * dimension];
+    final long[] seen = new long[1];
+    spool.forEachBatch(this.batchSize, (batch, count) -> {
+      for (int i = 0; i < count; i++, seen[0]++) {
+        final long slot = seen[0] < sampleSize ? seen[0] : (long) (this.random.nextDouble() * (seen[0] + 1));
+        if (slot < sampleSize) {
+          System.arraycopy(batch, i * dimension, sample, (int) slot * dimension, dimension);
+        }
+      }
+    });
+
+    /* k-means++: Every further centroid is chosen with a probability proportional to its squared distance to the nearest centroid chosen so far. */
+    final double[] centroids = new double[this.words * dimension];
+    final double[] distances = new double[sampleSize];
+    Arrays.fill(distances, Double.MAX_VALUE);
+    int chosen = this.random.nextInt(sampleSize);
+    for (int word = 0; word < this.words; word++) {
+      System.arraycopy(sample, chosen * dimension, centroids, word * dimension, dimension);
+      final int c = word * dimension;
+      IntStream.range(0, sampleSize).parallel().forEach(i -> {
+        double distance = 0.0;
+        for (int d = 0; d < dimension; d++) {
+          final double delta = sample[i * dimension + d] - centroids[c + d];
+          distance += delta * delta;
+        }
+        if (distance < distances[i]) {
+          distances[i] = distance;
+        }
+      });
+
+      double total = 0.0;
+      for (double distance : distances) {
+        total += distance;
+      }
+      double target = this.random.nextDouble() * total;
+      chosen = sampleSize - 1;
+      for (int i = 0; i < sampleSize; i++) {
+        target -= distances[i];
+        if (target <= 0.0 && distances[i] > 0.0) {
+          chosen = i;
+          break;
+        }
+      }
+    }
+    return centroids;
+  }
+}
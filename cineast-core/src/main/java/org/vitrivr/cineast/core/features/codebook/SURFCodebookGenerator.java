@@ -2,8 +2,10 @@
 
 import boofcv.abst.feature.detdesc.DetectDescribePoint;
 import boofcv.struct.feature.BrightFeature;
+import boofcv.struct.feature.TupleDesc_F64;
 import boofcv.struct.image.GrayF32;
 import java.awt.image.BufferedImage;
+import java.util.function.Consumer;
 import org.ddogleg.clustering.FactoryClustering;
 import org.vitrivr.cineast.core.util.images.SURFHelper;
 
@@ -26,15 +28,16 @@ protected void init() {
   }
 
   /**
-   * Processes the content (i.e. creates descriptors) and add the generated descriptors to the cluster.
+   * Processes the content (i.e. creates descriptors) and hands the generated descriptors to the provided consumer.
    *
-   * @param content The image to process.
+   * @param content     The image to process.
+   * @param descriptors Consumer for the generated descriptors.
    */
   @Override
-  protected void process(BufferedImage content) {
+  protected void process(BufferedImage content, Consumer<TupleDesc_F64> descriptors) {
     DetectDescribePoint<GrayF32, BrightFeature> surf = SURFHelper.getFastSurf(content);
     for (int i = 0; i < surf.getNumberOfFeatures(); i++) {
-      this.cluster.addReference(surf.getDescription(i));
+      descriptors.accept(surf.getDescription(i));
     }
   }
 }
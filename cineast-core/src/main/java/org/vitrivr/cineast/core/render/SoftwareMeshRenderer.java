@@ -0,0 +1,613 @@
+package org.vitrivr.cineast.core.render;
+
+import java.awt.Color;
+import java.awt.image.BufferedImage;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.IntStream;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.joml.Matrix4f;
+import org.joml.Quaternionf;
+import org.joml.Vector3f;
+import org.joml.Vector3fc;
+import org.joml.Vector4f;
+import org.vitrivr.cineast.core.data.m3d.Mesh;
+import org.vitrivr.cineast.core.data.m3d.ReadableMesh;
+import org.vitrivr.cineast.core.data.m3d.VoxelGrid;
+import org.vitrivr.cineast.core.data.m3d.texturemodel.Entity;
+import org.vitrivr.cineast.core.data.m3d.texturemodel.IModel;
+import org.vitrivr.cineast.core.data.m3d.texturemodel.Material;
+import org.vitrivr.cineast.core.data.m3d.texturemodel.util.MinimalBoundingBox;
+
+/**
+ * This class can be used to render 3D models (Meshes, Voxel-models or {@link IModel}s) entirely on the CPU. It does not require an OpenGL context and can thus be used on headless machines without a GPU.
+ * <p>
+ * Geometry is flattened into a triangle soup upon assembly. Triangles are transformed using a perspective projection, clipped against the near plane and rasterized with a depth-buffer, sampling pixel centers like OpenGL does. Faces are drawn unlit in their (averaged) vertex colour, which is sufficient for silhouette based features such as {@link org.vitrivr.cineast.core.features.Lightfield}.
+ * <p>
+ * The assembled geometry is immutable while rendering. {@link #renderViews(List)} therefore renders multiple camera positions in parallel, each worker thread using its own framebuffer. The single-view methods inherited from {@link Renderer} use the instance's own framebuffer and must be guarded by {@link #retain()} and {@link #release()}.
+ *
+ * @see Mesh
+ * @see VoxelGrid
+ */
+public class SoftwareMeshRenderer implements MeshOnlyRenderer {
+
+  private static final Logger LOGGER = LogManager.getLogger();
+
+  /**
+   * Default field of view in degrees. Matches the projection used by the LWJGL renderer.
+   */
+  public static final float DEFAULT_FOV = 60.0f;
+
+  /**
+   * Distance of the near clipping plane.
+   */
+  private static final float Z_NEAR = 0.01f;
+
+  /**
+   * Distance of the far clipping plane.
+   */
+  private static final float Z_FAR = 100.0f;
+
+  /**
+   * Colour used for {@link IModel}s and {@link VoxelGrid}s, which carry no vertex colours.
+   */
+  private static final int DEFAULT_COLOR = 0xFFFFFFFF;
+
+  /**
+   * Number of floats used to store a single triangle: 3 x (x,y,z).
+   */
+  private static final int TRIANGLE_STRIDE = 9;
+
+  /**
+   * Per-thread framebuffers used by {@link #renderViews(List)}.
+   */
+  private final ThreadLocal<Framebuffer> framebuffers;
+
+  /**
+   * Width of the SoftwareMeshRenderer in pixels.
+   */
+  private final int width;
+
+  /**
+   * Height of the SoftwareMeshRenderer in pixels.
+   */
+  private final int height;
+
+  /**
+   * Vertical field of view in degrees.
+   */
+  private final float fov;
+
+  /**
+   * Framebuffer used by the single-view methods.
+   */
+  private final Framebuffer framebuffer;
+
+  /**
+   * Lock that makes sure that only a single Thread is using the single-view methods at a time.
+   */
+  private final ReentrantLock lock = new ReentrantLock(true);
+
+  /**
+   * Flattened triangles of all assembled objects.
+   */
+  private float[] triangles = new float[TRIANGLE_STRIDE * 1024];
+
+  /**
+   * Packed ARGB colours of the assembled triangles, in the same order as {@link #triangles}.
+   */
+  private int[] colors = new int[1024];
+
+  /**
+   * Number of triangles currently assembled.
+   */
+  private int numberOfTriangles = 0;
+
+  /**
+   * Current combined projection and view matrix.
+   */
+  private final Matrix4f viewProjection = new Matrix4f();
+
+  /**
+   * Background colour as packed ARGB value.
+   */
+  private int background = Color.BLACK.getRGB();
+
+  /**
+   * Constructor for a SoftwareMeshRenderer that uses the {@link #DEFAULT_FOV}.
+   *
+   * @param width  Width in pixels.
+   * @param height Height in pixels.
+   */
+  public SoftwareMeshRenderer(int width, int height) {
+    this(width, height, DEFAULT_FOV);
+  }
+
+  /**
+   * Constructor for SoftwareMeshRenderer.
+   *
+   * @param width  Width in pixels.
+   * @param height Height in pixels.
+   * @param fov    Vertical field of view in degrees.
+   */
+  public SoftwareMeshRenderer(int width, int height, float fov) {
+    this.width = width;
+    this.height = height;
+    this.fov = fov;
+    this.framebuffer = new Framebuffer(width, height);
+    this.framebuffers = ThreadLocal.withInitial(() -> new Framebuffer(width, height));
+  }
+
+  /**
+   * Getter for width.
+   *
+   * @return Width of the SoftwareMeshRenderer.
+   */
+  public final int getWidth() {
+    return this.width;
+  }
+
+  /**
+   * Getter for height.
+   *
+   * @return Height of the SoftwareMeshRenderer.
+   */
+  public final int getHeight() {
+    return this.height;
+  }
+
+  /**
+   * Rasterizes all assembled objects using the current camera into the renderer's framebuffer.
+   */
+  @Override
+  public void render() {
+    if (!this.checkLock()) {
+      return;
+    }
+    this.rasterize(this.viewProjection, this.framebuffer);
+  }
+
+  /**
+   * Assembles a new {@link IModel}. The model is transformed by the model matrix of each of its {@link Entity}s. If the model has no entities, it is normalized the same way the LWJGL renderer does.
+   *
+   * @param model {@link IModel} that should be rendered.
+   */
+  @Override
+  public void assemble(IModel model) {
+    final List<Matrix4f> transforms = new ArrayList<>();
+    if (model.getEntities().isEmpty()) {
+      final MinimalBoundingBox mbb = new MinimalBoundingBox();
+      for (Material material : model.getMaterials()) {
+        mbb.merge(material.getMinimalBoundingBox());
+      }
+      final Vector3f position = new Vector3f(mbb.getTranslationToNorm()).mul(-1);
+      transforms.add(new Matrix4f().translationRotateScale(position, new Quaternionf(), mbb.getScalingFactorToNorm()));
+    } else {
+      for (Entity entity : model.getEntities()) {
+        transforms.add(new Matrix4f(entity.getModelMatrix()));
+      }
+    }
+
+    final Vector3f a = new Vector3f();
+    final Vector3f b = new Vector3f();
+    final Vector3f c = new Vector3f();
+    for (Material material : model.getMaterials()) {
+      for (org.vitrivr.cineast.core.data.m3d.texturemodel.Mesh mesh : material.getMeshes()) {
+        final float[] positions = mesh.getPositions();
+        final int[] idx = mesh.getIdx();
+        for (Matrix4f transform : transforms) {
+          for (int i = 0; i + 2 < idx.length; i += 3) {
+            transform.transformPosition(positions[3 * idx[i]], positions[3 * idx[i] + 1], positions[3 * idx[i] + 2], a);
+            transform.transformPosition(positions[3 * idx[i + 1]], positions[3 * idx[i + 1] + 1], positions[3 * idx[i + 1] + 2], b);
+            transform.transformPosition(positions[3 * idx[i + 2]], positions[3 * idx[i + 2] + 1], positions[3 * idx[i + 2] + 2], c);
+            this.addTriangle(a, b, c, DEFAULT_COLOR);
+          }
+        }
+      }
+    }
+  }
+
+  /**
+   * Assembles a new Mesh object and thereby adds it to the list of objects that should be rendered. Quads are split into two triangles.
+   *
+   * @param mesh Mesh that should be rendered
+   */
+  @Override
+  public void assemble(ReadableMesh mesh) {
+    for (Mesh.Face face : mesh.getFaces()) {
+      final List<Mesh.Vertex> vertices = face.getVertices();
+      final int color = averageColor(vertices);
+      this.addTriangle(vertices.get(0).getPosition(), vertices.get(1).getPosition(), vertices.get(2).getPosition(), color);
+      if (face.getType() == Mesh.FaceType.QUAD) {
+        this.addTriangle(vertices.get(0).getPosition(), vertices.get(2).getPosition(), vertices.get(3).getPosition(), color);
+      }
+    }
+  }
+
+  /**
+   * Assembles a new VoxelGrid object and thereby adds it to the list of objects that should be rendered. Only faces of visible voxels that are not covered by a neighbouring, visible voxel are assembled.
+   *
+   * @param grid VoxelGrid that should be rendered.
+   */
+  @Override
+  public void assemble(VoxelGrid grid) {
+    final float h = grid.getResolution() / 2.0f;
+    final Vector3f[] corners = new Vector3f[8];
+    for (int c = 0; c < corners.length; c++) {
+      corners[c] = new Vector3f();
+    }
+    for (int i = 0; i < grid.getSizeX(); i++) {
+      for (int j = 0; j < grid.getSizeY(); j++) {
+        for (int k = 0; k < grid.getSizeZ(); k++) {
+          if (!grid.isVisible(i, j, k)) {
+            continue;
+          }
+          final Vector3f center = grid.getVoxelCenter(i, j, k);
+          for (int c = 0; c < corners.length; c++) {
+            corners[c].set(center.x + ((c & 1) == 0 ? -h : h), center.y + ((c & 2) == 0 ? -h : h), center.z + ((c & 4) == 0 ? -h : h));
+          }
+          if (i == 0 || !grid.isVisible(i - 1, j, k)) {
+            this.addQuad(corners[0], corners[2], corners[6], corners[4]);
+          }
+          if (i == grid.getSizeX() - 1 || !grid.isVisible(i + 1, j, k)) {
+            this.addQuad(corners[1], corners[5], corners[7], corners[3]);
+          }
+          if (j == 0 || !grid.isVisible(i, j - 1, k)) {
+            this.addQuad(corners[0], corners[4], corners[5], corners[1]);
+          }
+          if (j == grid.getSizeY() - 1 || !grid.isVisible(i, j + 1, k)) {
+            this.addQuad(corners[2], corners[3], corners[7], corners[6]);
+          }
+          if (k == 0 || !grid.isVisible(i, j, k - 1)) {
+            this.addQuad(corners[0], corners[1], corners[3], corners[2]);
+          }
+          if (k == grid.getSizeZ() - 1 || !grid.isVisible(i, j, k + 1)) {
+            this.addQuad(corners[4], corners[6], corners[7], corners[5]);
+          }
+        }
+      }
+    }
+  }
+
+  /**
+   * Changes the positionCamera of the camera.
+   *
+   * @param ex  x Position of the Camera
+   * @param ey  y Position of the Camera
+   * @param ez  z Position of the Camera
+   * @param cx  x Position of the object of interest (i.e. the point at which the camera looks).
+   * @param cy  y Position of the object of interest (i.e. the point at which the camera looks).
+   * @param cz  z Position of the object of interest (i.e. the point at which the camera looks).
+   * @param upx x-direction of the camera's UP position.
+   * @param upy y-direction of the camera's UP position.
+   * @param upz z-direction of the camera's UP position.
+   */
+  @Override
+  public void positionCamera(double ex, double ey, double ez, double cx, double cy, double cz, double upx, double upy, double upz) {
+    if (!this.checkLock()) {
+      return;
+    }
+    this.viewProjection.set(this.viewProjection(new Vector3f((float) ex, (float) ey, (float) ez), new Vector3f((float) cx, (float) cy, (float) cz), new Vector3f((float) upx, (float) upy, (float) upz)));
+  }
+
+  /**
+   * Renders the assembled objects from each of the provided camera positions, looking at the origin. Views are rendered in parallel, each on a per-thread framebuffer. The UP vector is derived the same way the LWJGL camera does it.
+   * <p>
+   * The assembled objects must not be changed while this method is running.
+   *
+   * @param cameraPositions List of camera positions.
+   * @return List of rendered images, one per camera position and in the same order.
+   */
+  public List<BufferedImage> renderViews(List<Vector3f> cameraPositions) {
+    final Vector3f origin = new Vector3f();
+    final BufferedImage[] images = new BufferedImage[cameraPositions.size()];
+    IntStream.range(0, images.length).parallel().forEach(i -> {
+      final Vector3f eye = new Vector3f(cameraPositions.get(i));
+      final Vector3f look = new Vector3f(origin).sub(eye).normalize();
+      Vector3f right = new Vector3f(look).cross(0.0f, 1.0f, 0.0f).normalize();
+      if (Float.isNaN(right.x()) || Float.isNaN(right.y()) || Float.isNaN(right.z())) {
+        right = new Vector3f(1.0f, 0.0f, 0.0f);
+      }
+      final Vector3f up = new Vector3f(right).cross(look).normalize();
+      final Framebuffer target = this.framebuffers.get();
+      this.rasterize(this.viewProjection(eye, origin, up), target);
+      images[i] = target.toImage();
+    });
+    return Arrays.asList(images);
+  }
+
+  /**
+   * Clears buffers to preset-values.
+   */
+  @Override
+  public final void clear() {
+    this.clear(Color.BLACK);
+  }
+
+  /**
+   * Removes all assembled objects, clears the framebuffer and applies a user-defined background colour.
+   *
+   * @param color The background colour to be used.
+   */
+  @Override
+  public void clear(Color color) {
+    if (!this.checkLock()) {
+      return;
+    }
+    this.background = color.getRGB();
+    this.numberOfTriangles = 0;
+    this.framebuffer.clear(this.background);
+  }
+
+  /**
+   * Obtains and returns a BufferedImage in AWT orientation from the current framebuffer.
+   *
+   * @return BufferedImage containing a snapshot of the current framebuffer.
+   */
+  @Override
+  public final BufferedImage obtain() {
+    if (!this.checkLock()) {
+      return null;
+    }
+    return this.framebuffer.toImage();
+  }
+
+  /**
+   * Makes the current thread retain this SoftwareMeshRenderer. Only one thread can retain the renderer at a time; relinquish it by calling release().
+   *
+   * @return Always true.
+   */
+  @Override
+  public final boolean retain() {
+    this.lock.lock();
+    return true;
+  }
+
+  /**
+   * Makes the current thread release its ownership of this SoftwareMeshRenderer.
+   */
+  @Override
+  public final void release() {
+    if (this.checkLock()) {
+      this.lock.unlock();
+    }
+  }
+
+  /**
+   * Checks if the current thread holds the lock of this SoftwareMeshRenderer.
+   *
+   * @return True if the current thread holds the lock and false otherwise.
+   */
+  private boolean checkLock() {
+    if (!this.lock.isHeldByCurrentThread()) {
+      LOGGER.error("Cannot access SoftwareMeshRenderer because current thread '{}' has not retained it.", Thread.currentThread().getName());
+      return false;
+    }
+    return true;
+  }
+
+  /**
+   * Calculates the combined projection and view matrix for the provided camera.
+   */
+  private Matrix4f viewProjection(Vector3f eye, Vector3f center, Vector3f up) {
+    return new Matrix4f()
+        .setPerspective((float) Math.toRadians(this.fov), (float) this.width / (float) this.height, Z_NEAR, Z_FAR)
+        .lookAt(eye, center, up);
+  }
+
+  /**
+   * Rasterizes all assembled triangles into the provided {@link Framebuffer}.
+   *
+   * @param mvp    Combined projection and view matrix.
+   * @param target {@link Framebuffer} to draw into.
+   */
+  private void rasterize(Matrix4f mvp, Framebuffer target) {
+    target.clear(this.background);
+    final float[] clip = new float[3 * 4];
+    final float[] polygon = new float[2 * 4 * 4];
+    final float[] scratch = new float[2 * 4 * 4];
+    final Vector4f v = new Vector4f();
+    for (int t = 0; t < this.numberOfTriangles; t++) {
+      final int base = t * TRIANGLE_STRIDE;
+      for (int j = 0; j < 3; j++) {
+        mvp.transform(v.set(this.triangles[base + 3 * j], this.triangles[base + 3 * j + 1], this.triangles[base + 3 * j + 2], 1.0f));
+        clip[4 * j] = v.x;
+        clip[4 * j + 1] = v.y;
+        clip[4 * j + 2] = v.z;
+        clip[4 * j + 3] = v.w;
+      }
+      final int color = this.colors[t];
+
+      /* Clip against near plane (z >= -w); only triangles that straddle it need the general path. */
+      final boolean in0 = clip[2] >= -clip[3];
+      final boolean in1 = clip[6] >= -clip[7];
+      final boolean in2 = clip[10] >= -clip[11];
+      if (!in0 && !in1 && !in2) {
+        continue;
+      }
+      int n;
+      if (in0 && in1 && in2) {
+        System.arraycopy(clip, 0, polygon, 0, 12);
+        n = 3;
+      } else {
+        n = clipNear(clip, polygon, scratch);
+      }
+
+      /* Perspective division and viewport transformation. */
+      for (int j = 0; j < n; j++) {
+        final float w = polygon[4 * j + 3];
+        polygon[4 * j] = (polygon[4 * j] / w + 1.0f) * 0.5f * this.width;
+        polygon[4 * j + 1] = (1.0f - polygon[4 * j + 1] / w) * 0.5f * this.height;
+        polygon[4 * j + 2] = polygon[4 * j + 2] / w;
+      }
+      for (int j = 1; j + 1 < n; j++) {
+        target.fill(polygon, 0, 4 * j, 4 * (j + 1), color);
+      }
+    }
+  }
+
+  /**
+   * Clips a triangle in clip-space against the near plane (Sutherland-Hodgman).
+   *
+   * @param in      Triangle as 3 x (x,y,z,w).
+   * @param out     Array to write the resulting polygon to.
+   * @param scratch Unused scratch space of the same size as out.
+   * @return Number of vertices of the resulting polygon.
+   */
+  private static int clipNear(float[] in, float[] out, float[] scratch) {
+    int n = 0;
+    for (int j = 0; j < 3; j++) {
+      final int a = 4 * j;
+      final int b = 4 * ((j + 1) % 3);
+      final float da = in[a + 2] + in[a + 3];
+      final float db = in[b + 2] + in[b + 3];
+      if (da >= 0) {
+        System.arraycopy(in, a, out, 4 * n++, 4);
+      }
+      if ((da >= 0) != (db >= 0)) {
+        final float s = da / (da - db);
+        for (int k = 0; k < 4; k++) {
+          scratch[k] = in[a + k] + s * (in[b + k] - in[a + k]);
+        }
+        System.arraycopy(scratch, 0, out, 4 * n++, 4);
+      }
+    }
+    return n;
+  }
+
+  /**
+   * Adds a quad as two triangles using the {@link #DEFAULT_COLOR}.
+   */
+  private void addQuad(Vector3fc a, Vector3fc b, Vector3fc c, Vector3fc d) {
+    this.addTriangle(a, b, c, DEFAULT_COLOR);
+    this.addTriangle(a, c, d, DEFAULT_COLOR);
+  }
+
+  /**
+   * Appends a triangle to the triangle soup.
+   */
+  private void addTriangle(Vector3fc a, Vector3fc b, Vector3fc c, int color) {
+    if (this.numberOfTriangles == this.colors.length) {
+      this.triangles = Arrays.copyOf(this.triangles, 2 * this.triangles.length);
+      this.colors = Arrays.copyOf(this.colors, 2 * this.colors.length);
+    }
+    final int base = this.numberOfTriangles * TRIANGLE_STRIDE;
+    this.triangles[base] = a.x();
+    this.triangles[base + 1] = a.y();
+    this.triangles[base + 2] = a.z();
+    this.triangles[base + 3] = b.x();
+    this.triangles[base + 4] = b.y();
+    this.triangles[base + 5] = b.z();
+    this.triangles[base + 6] = c.x();
+    this.triangles[base + 7] = c.y();
+    this.triangles[base + 8] = c.z();
+    this.colors[this.numberOfTriangles] = color;
+    this.numberOfTriangles++;
+  }
+
+  /**
+   * Calculates the average colour of a list of vertices and returns it as packed ARGB value.
+   */
+  private static int averageColor(List<Mesh.Vertex> vertices) {
+    float r = 0.0f, g = 0.0f, b = 0.0f;
+    for (Mesh.Vertex vertex : vertices) {
+      r += vertex.getColor().x();
+      g += vertex.getColor().y();
+      b += vertex.getColor().z();
+    }
+    final float n = vertices.size();
+    return new Color(Math.min(1.0f, r / n), Math.min(1.0f, g / n), Math.min(1.0f, b / n)).getRGB();
+  }
+
+  /**
+   * A colour- and depth-buffer of a fixed size.
+   */
+  private static final class Framebuffer {
+
+    private final int width;
+    private final int height;
+    private final int[] color;
+    private final float[] depth;
+
+    private Framebuffer(int width, int height) {
+      this.width = width;
+      this.height = height;
+      this.color = new int[width * height];
+      this.depth = new float[width * height];
+    }
+
+    private void clear(int background) {
+      Arrays.fill(this.color, background);
+      Arrays.fill(this.depth, Float.POSITIVE_INFINITY);
+    }
+
+    /**
+     * Fills a triangle given in screen-space (x, y, depth, w) using edge functions. Pixels are sampled at their centers and a top-left fill rule is applied, so that adjacent triangles neither overlap nor leave gaps.
+     */
+    private void fill(float[] p, int i0, int i1, int i2, int color) {
+      final float x0 = p[i0], y0 = p[i0 + 1], z0 = p[i0 + 2];
+      float x1 = p[i1], y1 = p[i1 + 1], z1 = p[i1 + 2];
+      float x2 = p[i2], y2 = p[i2 + 1], z2 = p[i2 + 2];
+
+      /* Enforce consistent winding; silhouettes require both front and back faces. */
+      float area = (x1 - x0) * (y2 - y0) - (x2 - x0) * (y1 - y0);
+      if (area == 0.0f || Float.isNaN(area)) {
+        return;
+      }
+      if (area < 0) {
+        float tx = x1, ty = y1, tz = z1;
+        x1 = x2;
+        y1 = y2;
+        z1 = z2;
+        x2 = tx;
+        y2 = ty;
+        z2 = tz;
+        area = -area;
+      }
+
+      final int minX = Math.max(0, (int) Math.floor(Math.min(x0, Math.min(x1, x2))));
+      final int maxX = Math.min(this.width - 1, (int) Math.ceil(Math.max(x0, Math.max(x1, x2))));
+      final int minY = Math.max(0, (int) Math.floor(Math.min(y0, Math.min(y1, y2))));
+      final int maxY = Math.min(this.height - 1, (int) Math.ceil(Math.max(y0, Math.max(y1, y2))));
+      if (minX > maxX || minY > maxY) {
+        return;
+      }
+
+      final boolean tl0 = isTopLeft(x1, y1, x2, y2);
+      final boolean tl1 = isTopLeft(x2, y2, x0, y0);
+      final boolean tl2 = isTopLeft(x0, y0, x1, y1);
+      final float inv = 1.0f / area;
+
+      for (int y = minY; y <= maxY; y++) {
+        final float py = y + 0.5f;
+        int row = y * this.width;
+        for (int x = minX; x <= maxX; x++) {
+          final float px = x + 0.5f;
+          final float w0 = (x2 - x1) * (py - y1) - (y2 - y1) * (px - x1);
+          final float w1 = (x0 - x2) * (py - y2) - (y0 - y2) * (px - x2);
+          final float w2 = (x1 - x0) * (py - y0) - (y1 - y0) * (px - x0);
+          if ((w0 > 0 || (w0 == 0 && tl0)) && (w1 > 0 || (w1 == 0 && tl1)) && (w2 > 0 || (w2 == 0 && tl2))) {
+            final float z = (w0 * z0 + w1 * z1 + w2 * z2) * inv;
+            if (z < this.depth[row + x] && z <= 1.0f) {
+              this.depth[row + x] = z;
+              this.color[row + x] = color;
+            }
+          }
+        }
+      }
+    }
+
+    private static boolean isTopLeft(float ax, float ay, float bx, float by) {
+      return (ay == by && bx < ax) || by < ay;
+    }
+
+    private BufferedImage toImage() {
+      final BufferedImage image = new BufferedImage(this.width, this.height, BufferedImage.TYPE_INT_RGB);
+      image.setRGB(0, 0, this.width, this.height, this.color, 0, this.width);
+      return image;
+    }
+  }
+}
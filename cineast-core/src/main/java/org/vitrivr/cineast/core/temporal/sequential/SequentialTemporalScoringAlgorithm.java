@@ -2,13 +2,14 @@
 
 import com.carrotsearch.hppc.IntObjectHashMap;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Comparator;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.PriorityQueue;
-import java.util.Set;
 import java.util.TreeMap;
+import java.util.TreeSet;
 import java.util.stream.Collectors;
 import java.util.stream.IntStream;
 import java.util.stream.StreamSupport;
@@ -23,16 +24,22 @@
  *
  * <p>Scores the {@link StringDoublePair}s in their container order</p>
  * <p>Scores without provided time distances between the segments</p>
- * <p>The Algorithm builds temporal paths by creating paths from a starting segment and creating a path from this segment and putting it in a queue. While the queue is not empty it then pops a path from the queue and creates new paths for each of the segments following the last to the path added segment.</p>
+ * <p>The Algorithm determines the best path starting at every scored segment: a sequence of segments of the same object with increasing container ids, each starting after the previous one ended and ending within the maximal length from the start of the first segment.</p>
+ * <p>Instead of enumerating all paths, the best path is found by dynamic programming over the segments of an object in temporal order: the best path ending at a segment extends the best path ending at any earlier segment of a lower container. The best of these per container is kept while sweeping over the segments, hence the path for a starting segment is found in time linear in the number of segments within the maximal length times the number of containers.</p>
+ * <p>Segments that end before they start may be followed by segments that start earlier than themselves, which breaks the temporal order the dynamic program relies on. Paths through objects with such segments are still found by enumerating all paths.</p>
  * <p>It then saves the best path created in the before mentioned fashion and scores a segment according to this.</p>
  */
 public class SequentialTemporalScoringAlgorithm extends AbstractTemporalScoringAlgorithm {
 
   private final Map<String, List<SequentialPath>> objectPaths;
 
+  /* Map an object id to the segments of the object in temporal order, created on demand. */
+  private final Map<String, Timeline> timelines;
+
   public SequentialTemporalScoringAlgorithm(Map<String, MediaSegmentDescriptor> segmentMap, List<List<StringDoublePair>> containerResults, float maxLength) {
     super(segmentMap, containerResults, maxLength);
     this.objectPaths = new HashMap<>();
+    this.timelines = new HashMap<>();
   }
 
   /**
@@ -83,62 +90,205 @@ public List<TemporalObject> score() {
 
   /* Calculate the best path possible for a segment. */
   private SequentialPath getBestPathForSegment(MediaSegmentDescriptor mediaSegmentDescriptor, ScoredSegment scoredSegment) {
-    PriorityQueue<SequentialPath> pathQueue = new PriorityQueue<>();
-
-    SequentialPath initPath = new SequentialPath(mediaSegmentDescriptor.getObjectId(), scoredSegment);
+    Timeline timeline = this.timelines.computeIfAbsent(mediaSegmentDescriptor.getObjectId(), objectId -> new Timeline(this.scoredSegmentSets.get(objectId)));
+    if (!timeline.ordered) {
+      return this.enumerateBestPath(mediaSegmentDescriptor.getObjectId(), scoredSegment);
+    }
+    return timeline.getBestPath(mediaSegmentDescriptor.getObjectId(), scoredSegment);
+  }
 
-    SequentialPath bestPath = initPath;
-    pathQueue.add(initPath);
+  /**
+   * Calculates the best path for a segment by creating paths from the segment and putting them in a queue. While the queue is not empty, a path is popped from the queue and extended by each of the segments that may follow its last segment.
+   */
+  private SequentialPath enumerateBestPath(String objectId, ScoredSegment scoredSegment) {
+    PriorityQueue<SequentialPath> pathQueue = new PriorityQueue<>();
+    SequentialPath bestPath = new SequentialPath(objectId, scoredSegment);
+    pathQueue.add(bestPath);
 
-    /* Create new paths until there are no more possible paths for a segment. */
     while (!pathQueue.isEmpty()) {
       SequentialPath path = pathQueue.remove();
-
       ScoredSegment lastHighestSegment = path.getCurrentLastSegment();
+      /* The tail set holds the segments of the same container with a higher sequence number and the segments of the higher containers. */
+      for (ScoredSegment candidate : this.scoredSegmentSets.get(objectId).tailSet(lastHighestSegment)) {
+        if (candidate.getContainerId() <= lastHighestSegment.getContainerId() || candidate.getStart() < lastHighestSegment.getEnd() || candidate.getSequenceNumber() <= lastHighestSegment.getSequenceNumber() || !withinMaxLength(scoredSegment, candidate)) {
+          continue;
+        }
+        SequentialPath candidatePath = new SequentialPath(path);
+        candidatePath.addSegment(candidate);
+        if ((bestPath.getScore() / (maxContainerId + 1)) < (candidatePath.getScore() / (maxContainerId + 1))) {
+          bestPath = candidatePath;
+        }
+        /* Paths ending in the last container cannot be extended. */
+        if (candidate.getContainerId() != this.maxContainerId) {
+          pathQueue.add(candidatePath);
+        }
+      }
+    }
+    return bestPath;
+  }
+
+  /**
+   * Checks whether a segment ends within the maximal length from the start of a path. If endAbs is 0, we're dealing with image sequences so we're looking at non-abs information (which is in seconds).
+   */
+  private boolean withinMaxLength(ScoredSegment first, ScoredSegment candidate) {
+    return candidate.getEndAbs() == 0 ? candidate.getEnd() - first.getStart() <= this.maxLength : candidate.getEndAbs() - first.getStartAbs() <= this.maxLength;
+  }
+
+  /**
+   * The scored segments of one object, ordered by start and sequence number, along with the buffers of the dynamic program. If segments do not end before they start, a segment can only follow segments that precede it in this order.
+   */
+  private final class Timeline {
+
+    /* Index of the segment a path starts with in the buffers. */
+    private static final int FIRST = -1;
+
+    private final ScoredSegment[] segments;
+
+    /* Best score of a path from the first segment to a segment; NaN if there is no such path. */
+    private final double[] pathScores;
 
-      /* Get the potential following segments from the scored segments sets tree set */
-      Set<ScoredSegment> potentialFollowingSegments = scoredSegmentSets.get(mediaSegmentDescriptor.getObjectId()).tailSet(lastHighestSegment);
-      for (ScoredSegment candidate : potentialFollowingSegments) {
-        /*
-        Only look at a candidate if their containerId is higher than the current one. Due to the
-        compareTo of ScoredSegment that allows to classify segments with the same containerId but
-        higher segmentId as being higher.
-         */
-        if (candidate.getContainerId() <= lastHighestSegment.getContainerId() || candidate.getStart() < lastHighestSegment.getEnd() || candidate.getSequenceNumber() <= lastHighestSegment.getSequenceNumber()) {
+    /* Index of the predecessor of a segment on its best path. */
+    private final int[] predecessors;
+
+    /* Best path score and corresponding segment per container among the segments that ended before the current segment. */
+    private final double[] containerScores;
+    private final int[] containerSegments;
+
+    /*
+    Whether a sweep can stop at the first segment starting beyond the maximal length. This holds if the length of every segment is measured in the same unit, segments do not end before they start, and the start in that unit does not decrease in the order of the segments.
+     */
+    private final boolean frameWindow;
+    private final boolean absWindow;
+
+    /* Whether no segment ends before it starts, such that the dynamic program applies. */
+    private final boolean ordered;
+
+    private Timeline(TreeSet<ScoredSegment> scoredSegments) {
+      this.segments = scoredSegments.toArray(new ScoredSegment[0]);
+      Arrays.sort(this.segments, Comparator.comparingInt(ScoredSegment::getStart).thenComparingInt(ScoredSegment::getSequenceNumber));
+      this.pathScores = new double[this.segments.length];
+      this.predecessors = new int[this.segments.length];
+      this.containerScores = new double[maxContainerId + 1];
+      this.containerSegments = new int[maxContainerId + 1];
+
+      boolean frames = true;
+      boolean abs = true;
+      boolean ordered = true;
+      for (int i = 0; i < this.segments.length; i++) {
+        ScoredSegment segment = this.segments[i];
+        ordered &= segment.getEnd() >= segment.getStart();
+        frames &= segment.getEndAbs() == 0 && segment.getEnd() >= segment.getStart();
+        abs &= segment.getEndAbs() != 0 && segment.getEndAbs() >= segment.getStartAbs() && (i == 0 || segment.getStartAbs() >= this.segments[i - 1].getStartAbs());
+      }
+      this.frameWindow = frames;
+      this.absWindow = abs;
+      this.ordered = ordered;
+    }
+
+    /**
+     * Determines the best path starting with the given segment by sweeping over the segments that follow it in temporal order, until the maximal length is exceeded. Every segment is scored by the best path ending at it, which extends the best path ending at a segment of a lower container that ended before the segment starts.
+     */
+    private SequentialPath getBestPath(String objectId, ScoredSegment first) {
+      Arrays.fill(this.containerScores, Double.NEGATIVE_INFINITY);
+      Arrays.fill(this.containerSegments, FIRST);
+      /* Segments on a path, in the order of their ends, that have not been assigned to their container yet. */
+      PriorityQueue<Integer> pending = new PriorityQueue<>(Comparator.comparingInt(i -> this.segment(i, first).getEnd()));
+      pending.add(FIRST);
+
+      double bestScore = first.getScore();
+      int bestSegment = FIRST;
+      int start = this.successorsFrom(first);
+      for (int i = start; i < this.segments.length; i++) {
+        ScoredSegment candidate = this.segments[i];
+        this.pathScores[i] = Double.NaN;
+        if ((this.frameWindow && candidate.getStart() - first.getStart() > maxLength) || (this.absWindow && candidate.getStartAbs() - first.getStartAbs() > maxLength)) {
+          break;
+        }
+        if (candidate.getContainerId() <= first.getContainerId() || !withinMaxLength(first, candidate)) {
           continue;
         }
-        /*
-         If we have reached the end of possible temporal paths we either store it and a new best
-         if it is shorter than max length and has a higher score or ignore the path.
-        */
-        if (candidate.getContainerId() == this.maxContainerId) {
-          /* if endAbs is 0, we're dealing with image sequences so we're looking at non-abs information (which is in seconds)
-           */
-          SequentialPath candidatePath = new SequentialPath(path);
-          candidatePath.addSegment(candidate);
-          if ((bestPath.getScore() / (maxContainerId + 1)) < (candidatePath.getScore() / (maxContainerId + 1)) &&
-              (candidate.getEndAbs() == 0 ? candidate.getEnd() - scoredSegment.getStart() <= this.maxLength : candidate.getEndAbs() - scoredSegment.getStartAbs() <= this.maxLength)
-          ) {
-            bestPath = candidatePath;
+        while (!pending.isEmpty() && this.segment(pending.peek(), first).getEnd() <= candidate.getStart()) {
+          int ended = pending.poll();
+          double score = ended == FIRST ? first.getScore() : this.pathScores[ended];
+          int container = this.segment(ended, first).getContainerId();
+          if (score > this.containerScores[container]) {
+            this.containerScores[container] = score;
+            this.containerSegments[container] = ended;
           }
+        }
+        int predecessor = this.bestPredecessor(candidate, first, start, i);
+        if (predecessor == Integer.MIN_VALUE) {
           continue;
         }
-        /*
-         Otherwise we look if the candidate together with the existing path is valid (shorter
-         than max length) and if yes maybe update best path if it is better and then add it to
-         the queue to be reevaluated in the next round as a longer path that is potentially
-         better.
-        */
-        if ((candidate.getEndAbs() == 0 ? candidate.getEnd() - scoredSegment.getStart() <= this.maxLength : candidate.getEndAbs() - scoredSegment.getStartAbs() <= this.maxLength)) {
-          SequentialPath candidatePath = new SequentialPath(path);
-          candidatePath.addSegment(candidate);
-          if ((bestPath.getScore() / (maxContainerId + 1)) < (candidatePath.getScore() / (maxContainerId + 1))) {
-            bestPath = candidatePath;
-          }
-          pathQueue.add(candidatePath);
+        this.pathScores[i] = (predecessor == FIRST ? first.getScore() : this.pathScores[predecessor]) + candidate.getScore();
+        this.predecessors[i] = predecessor;
+        pending.add(i);
+        if ((bestScore / (maxContainerId + 1)) < (this.pathScores[i] / (maxContainerId + 1))) {
+          bestScore = this.pathScores[i];
+          bestSegment = i;
         }
       }
+
+      /* Reconstruct the best path from the predecessors. */
+      List<ScoredSegment> reversed = new ArrayList<>();
+      for (int i = bestSegment; i != FIRST; i = this.predecessors[i]) {
+        reversed.add(this.segments[i]);
+      }
+      SequentialPath path = new SequentialPath(objectId, first);
+      for (int i = reversed.size() - 1; i >= 0; i--) {
+        path.addSegment(reversed.get(i));
+      }
+      return path;
+    }
+
+    /**
+     * Returns the best predecessor of a candidate among the best path ends of the lower containers, or {@link Integer#MIN_VALUE} if the candidate cannot be reached. Sequence numbers normally increase with time, such that the best path end of a container also precedes the candidate in sequence; otherwise, all segments swept so far are checked.
+     */
+    private int bestPredecessor(ScoredSegment candidate, ScoredSegment first, int start, int end) {
+      int predecessor = Integer.MIN_VALUE;
+      double predecessorScore = Double.NEGATIVE_INFINITY;
+      for (int container = 0; container < candidate.getContainerId(); container++) {
+        if (this.containerScores[container] > predecessorScore) {
+          predecessorScore = this.containerScores[container];
+          predecessor = this.containerSegments[container];
+        }
+      }
+      if (predecessor == Integer.MIN_VALUE || this.segment(predecessor, first).getSequenceNumber() < candidate.getSequenceNumber()) {
+        return predecessor;
+      }
+      predecessor = first.getSequenceNumber() < candidate.getSequenceNumber() && first.getEnd() <= candidate.getStart() ? FIRST : Integer.MIN_VALUE;
+      predecessorScore = predecessor == FIRST ? first.getScore() : Double.NEGATIVE_INFINITY;
+      for (int i = start; i < end; i++) {
+        ScoredSegment segment = this.segments[i];
+        if (!Double.isNaN(this.pathScores[i]) && this.pathScores[i] > predecessorScore && segment.getContainerId() < candidate.getContainerId() && segment.getEnd() <= candidate.getStart() && segment.getSequenceNumber() < candidate.getSequenceNumber()) {
+          predecessorScore = this.pathScores[i];
+          predecessor = i;
+        }
+      }
+      return predecessor;
+    }
+
+    /**
+     * Returns the index of the first segment that follows the given segment in the order of the timeline. Segments with the same start and sequence number can never follow each other.
+     */
+    private int successorsFrom(ScoredSegment first) {
+      int low = 0;
+      int high = this.segments.length;
+      while (low < high) {
+        int middle = (low + high) >>> 1;
+        ScoredSegment segment = this.segments[middle];
+        int comparison = segment.getStart() != first.getStart() ? Integer.compare(segment.getStart(), first.getStart()) : Integer.compare(segment.getSequenceNumber(), first.getSequenceNumber());
+        if (comparison <= 0) {
+          low = middle + 1;
+        } else {
+          high = middle;
+        }
+      }
+      return low;
+    }
+
+    private ScoredSegment segment(int index, ScoredSegment first) {
+      return index == FIRST ? first : this.segments[index];
     }
-    return bestPath;
   }
 }
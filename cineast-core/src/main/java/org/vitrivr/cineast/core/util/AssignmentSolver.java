@@ -0,0 +1,121 @@
+package org.vitrivr.cineast.core.util;
+
+import java.util.Arrays;
+
+/**
+ * Solves rectangular assignment problems, i.e. finds an assignment of every row of a cost matrix to a distinct column such that the total cost is minimal. The solver implements the shortest augmenting path variant of the Hungarian algorithm, which runs in O(n^2 * m) for n rows and m >= n columns.
+ * <p>
+ * Unlike {@link HungarianAlgorithm}, the solver works on a flat, row-major cost matrix provided by the caller and keeps its working arrays between invocations, such that solving many small problems does not allocate. Instances are not thread-safe.
+ */
+public final class AssignmentSolver {
+
+  /**
+   * Potentials of the rows and the columns; index 0 is a virtual column.
+   */
+  private double[] rowPotential = new double[0];
+  private double[] columnPotential = new double[0];
+
+  /**
+   * Smallest reduced cost of every column along the current alternating tree.
+   */
+  private double[] minSlack = new double[0];
+
+  /**
+   * Row assigned to every column (1-based, 0 if unassigned) and the previous column on the augmenting path.
+   */
+  private int[] rowByColumn = new int[0];
+  private int[] way = new int[0];
+
+  private boolean[] visited = new boolean[0];
+
+  /**
+   * Solves the assignment problem for the provided cost matrix.
+   *
+   * @param costs      Row-major cost matrix, i.e. the cost of assigning row i to column j is found at index i * columns + j. All entries must be finite.
+   * @param rows       Number of rows.
+   * @param columns    Number of columns; must not be smaller than the number of rows.
+   * @param assignment Array of at least rows entries that receives the column assigned to every row.
+   * @return The total cost of the assignment.
+   */
+  public double solve(double[] costs, int rows, int columns, int[] assignment) {
+    if (rows > columns) {
+      throw new IllegalArgumentException("The number of rows (" + rows + ") must not exceed the number of columns (" + columns + ").");
+    }
+    this.ensureCapacity(rows, columns);
+    final double[] u = this.rowPotential;
+    final double[] v = this.columnPotential;
+    final double[] minSlack = this.minSlack;
+    final int[] p = this.rowByColumn;
+    final int[] way = this.way;
+    final boolean[] visited = this.visited;
+    Arrays.fill(u, 0, rows + 1, 0.0);
+    Arrays.fill(v, 0, columns + 1, 0.0);
+    Arrays.fill(p, 0, columns + 1, 0);
+
+    for (int i = 1; i <= rows; i++) {
+      /* Grow an alternating tree from row i until it reaches an unassigned column. */
+      p[0] = i;
+      int j0 = 0;
+      Arrays.fill(minSlack, 0, columns + 1, Double.POSITIVE_INFINITY);
+      Arrays.fill(visited, 0, columns + 1, false);
+      do {
+        visited[j0] = true;
+        final int i0 = p[j0];
+        final int offset = (i0 - 1) * columns - 1;
+        double delta = Double.POSITIVE_INFINITY;
+        int j1 = 0;
+        for (int j = 1; j <= columns; j++) {
+          if (!visited[j]) {
+            final double slack = costs[offset + j] - u[i0] - v[j];
+            if (slack < minSlack[j]) {
+              minSlack[j] = slack;
+              way[j] = j0;
+            }
+            if (minSlack[j] < delta) {
+              delta = minSlack[j];
+              j1 = j;
+            }
+          }
+        }
+        for (int j = 0; j <= columns; j++) {
+          if (visited[j]) {
+            u[p[j]] += delta;
+            v[j] -= delta;
+          } else {
+            minSlack[j] -= delta;
+          }
+        }
+        j0 = j1;
+      } while (p[j0] != 0);
+
+      /* Augment the assignment along the path. */
+      do {
+        final int j1 = way[j0];
+        p[j0] = p[j1];
+        j0 = j1;
+      } while (j0 != 0);
+    }
+
+    double total = 0.0;
+    for (int j = 1; j <= columns; j++) {
+      if (p[j] != 0) {
+        assignment[p[j] - 1] = j - 1;
+        total += costs[(p[j] - 1) * columns + j - 1];
+      }
+    }
+    return total;
+  }
+
+  private void ensureCapacity(int rows, int columns) {
+    if (this.rowPotential.length <= rows) {
+      this.rowPotential = new double[rows + 1];
+    }
+    if (this.columnPotential.length <= columns) {
+      this.columnPotential = new double[columns + 1];
+      this.minSlack = new double[columns + 1];
+      this.rowByColumn = new int[columns + 1];
+      this.way = new int[columns + 1];
+      this.visited = new boolean[columns + 1];
+    }
+  }
+}
@@ -9,6 +9,7 @@
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.util.Optional;
+import java.util.function.Supplier;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 import org.vitrivr.cineast.core.util.json.JacksonJsonProvider;
@@ -18,9 +19,79 @@ public final class MetadataUtil {
   private static final String JSON_EXTENSION = "json";
   private static final Logger logger = LogManager.getLogger();
   private static final JacksonJsonProvider jsonProvider = new JacksonJsonProvider();
+
+  /**
+   * The file whose metadata is currently shared by all readers on this thread, see {@link #withSharedMetadata(Path, Supplier)}.
+   */
+  private static final ThreadLocal<SharedMetadata> shared = new ThreadLocal<>();
+
+  /**
+   * Metadata of a single file that is parsed at most once.
+   */
+  private static final class SharedMetadata {
+
+    private final Path path;
+    private Metadata metadata;
+    private boolean metadataRead;
+    private Optional<JsonNode> json;
+
+    private SharedMetadata(Path path) {
+      this.path = path;
+    }
+  }
+
   private MetadataUtil() {
   }
 
+  /**
+   * Executes the given action such that the {@link Metadata} and the JSON metadata of the given file are parsed at most once on the current thread, no matter how many readers (e.g. metadata extractors) request them during the action.
+   *
+   * @param path   The path of the file.
+   * @param action The action to execute.
+   * @return The result of the action.
+   */
+  public static <T> T withSharedMetadata(Path path, Supplier<T> action) {
+    final SharedMetadata previous = shared.get();
+    shared.set(new SharedMetadata(path));
+    try {
+      return action.get();
+    } finally {
+      if (previous == null) {
+        shared.remove();
+      } else {
+        shared.set(previous);
+      }
+    }
+  }
+
+  /**
+   * Reads the {@link Metadata} from the given {@link Path}, unless it has already been read in the current {@link #withSharedMetadata(Path, Supplier)} scope.
+   *
+   * @param path a path from which the metadata may be read.
+   * @return The {@link Metadata} or null, if it could not be read.
+   */
+  public static Metadata readMetadata(Path path) {
+    final SharedMetadata current = shared.get();
+    if (current != null && current.path.equals(path)) {
+      if (!current.metadataRead) {
+        current.metadata = readMetadataFromFile(path);
+        current.metadataRead = true;
+      }
+      return current.metadata;
+    }
+    return readMetadataFromFile(path);
+  }
+
+  private static Metadata readMetadataFromFile(Path path) {
+    try {
+      return ImageMetadataReader.readMetadata(path.toFile());
+    } catch (ImageProcessingException | IOException e) {
+      logger.error("Error while reading exif data of file {}: {}",
+          path, LogHelper.getStackTrace(e));
+      return null;
+    }
+  }
+
   /**
    * Reads the {@link Metadata} from the given {@link Path} and returns the first {@link Directory} of the specified type, if present.
    *
@@ -34,13 +105,7 @@ private MetadataUtil() {
    */
   public static <T extends Directory> T getMetadataDirectoryOfType(Path path,
       Class<T> directoryType) {
-    Metadata metadata = null;
-    try {
-      metadata = ImageMetadataReader.readMetadata(path.toFile());
-    } catch (ImageProcessingException | IOException e) {
-      logger.error("Error while reading exif data of file {}: {}",
-          path, LogHelper.getStackTrace(e));
-    }
+    Metadata metadata = readMetadata(path);
     if (metadata == null) {
       return null;
     }
@@ -54,6 +119,17 @@ public static <T extends Directory> T getMetadataDirectoryOfType(Path path,
    * @return an {@link Optional} containing the JSON as a {@code JsonNode}, if available and valid, otherwise an empty {@code Optional}.
    */
   public static Optional<JsonNode> getJsonMetadata(Path objectPath) {
+    final SharedMetadata current = shared.get();
+    if (current != null && current.path.equals(objectPath)) {
+      if (current.json == null) {
+        current.json = readJsonMetadata(objectPath);
+      }
+      return current.json;
+    }
+    return readJsonMetadata(objectPath);
+  }
+
+  private static Optional<JsonNode> readJsonMetadata(Path objectPath) {
     String fileName = objectPath.getFileName().toString();
     String fileNameWithoutExtension = com.google.common.io.Files.getNameWithoutExtension(fileName);
     Path metadataPath = objectPath.resolveSibling(fileNameWithoutExtension + '.' + JSON_EXTENSION);
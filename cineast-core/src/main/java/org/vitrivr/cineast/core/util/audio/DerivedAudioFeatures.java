@@ -0,0 +1,105 @@
+package org.vitrivr.cineast.core.util.audio;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import org.vitrivr.cineast.core.data.providers.DerivedFeatureProvider;
+import org.vitrivr.cineast.core.data.segments.SegmentContainer;
+import org.vitrivr.cineast.core.util.dsp.fft.STFT;
+import org.vitrivr.cineast.core.util.dsp.fft.windows.WindowFunction;
+
+/**
+ * Provides STFT, HPCP and MFCC features of a {@link SegmentContainer}, which are shared by all feature modules that request them with identical parameters (see {@link DerivedFeatureProvider}). The returned objects must not be modified; feature modules that apply filters to a STFT must obtain their own copy using {@link SegmentContainer#getSTFT(int, int, int, WindowFunction)}.
+ */
+public final class DerivedAudioFeatures {
+
+  /**
+   * Key of a STFT; window functions are stateless and identified by their class.
+   */
+  private record STFTKey(int windowsize, int overlap, int padding, Class<? extends WindowFunction> function) {
+
+  }
+
+  /**
+   * Key of a HPCP derived from a STFT.
+   */
+  private record HPCPKey(STFTKey stft, HPCP.Resolution resolution, float minFrequency, float maxFrequency) {
+
+  }
+
+  /**
+   * Key of the MFCC features (using the default settings) derived from a STFT.
+   */
+  private record MFCCKey(STFTKey stft) {
+
+  }
+
+  /**
+   * Private constructor; this is a pure utility class.
+   */
+  private DerivedAudioFeatures() {
+  }
+
+  /**
+   * Returns the shared STFT of the segment.
+   *
+   * @param segment    The {@link SegmentContainer}.
+   * @param windowsize Size of the window used during STFT. Must be a power of two.
+   * @param overlap    Overlap in samples between two subsequent windows.
+   * @param padding    Zero-padding before and after the actual sample data.
+   * @param function   WindowFunction to apply before calculating the STFT.
+   * @return The STFT or null, if the segment has no audio.
+   */
+  public static STFT stft(SegmentContainer segment, int windowsize, int overlap, int padding, WindowFunction function) {
+    final STFTKey key = new STFTKey(windowsize, overlap, padding, function.getClass());
+    return segment.getDerivedFeature(key, () -> segment.getSTFT(windowsize, overlap, padding, function));
+  }
+
+  /**
+   * Returns the shared HPCP calculated from a STFT of the segment.
+   *
+   * @param segment      The {@link SegmentContainer}.
+   * @param windowsize   Size of the window used during STFT. Must be a power of two.
+   * @param overlap      Overlap in samples between two subsequent windows.
+   * @param padding      Zero-padding before and after the actual sample data.
+   * @param function     WindowFunction to apply before calculating the STFT.
+   * @param resolution   Resolution of the HPCP.
+   * @param minFrequency Minimum frequency to consider during HPCP analysis.
+   * @param maxFrequency Maximum frequency to consider during HPCP analysis.
+   * @return The HPCP or null, if the segment has no audio.
+   */
+  public static HPCP hpcp(SegmentContainer segment, int windowsize, int overlap, int padding, WindowFunction function, HPCP.Resolution resolution, float minFrequency, float maxFrequency) {
+    final STFTKey stftKey = new STFTKey(windowsize, overlap, padding, function.getClass());
+    return segment.getDerivedFeature(new HPCPKey(stftKey, resolution, minFrequency, maxFrequency), derived(segment, stftKey, function, stft -> {
+      final HPCP hpcp = new HPCP(resolution, minFrequency, maxFrequency);
+      hpcp.addContribution(stft);
+      return hpcp;
+    }));
+  }
+
+  /**
+   * Returns the shared MFCC features (using the default settings) calculated from a STFT of the segment.
+   *
+   * @param segment    The {@link SegmentContainer}.
+   * @param windowsize Size of the window used during STFT. Must be a power of two.
+   * @param overlap    Overlap in samples between two subsequent windows.
+   * @param padding    Zero-padding before and after the actual sample data.
+   * @param function   WindowFunction to apply before calculating the STFT.
+   * @return Unmodifiable list of MFCC features (one per FFT) or null, if the segment has no audio.
+   */
+  public static List<MFCC> mfcc(SegmentContainer segment, int windowsize, int overlap, int padding, WindowFunction function) {
+    final STFTKey stftKey = new STFTKey(windowsize, overlap, padding, function.getClass());
+    return segment.getDerivedFeature(new MFCCKey(stftKey), derived(segment, stftKey, function, stft -> Collections.unmodifiableList(MFCC.calculate(stft))));
+  }
+
+  /**
+   * Returns a supplier that derives a result from the shared STFT identified by the key, or returns null if the segment has no audio.
+   */
+  private static <T> Supplier<T> derived(SegmentContainer segment, STFTKey key, WindowFunction function, Function<STFT, T> derivation) {
+    return () -> {
+      final STFT stft = stft(segment, key.windowsize(), key.overlap(), key.padding(), function);
+      return stft == null ? null : derivation.apply(stft);
+    };
+  }
+}
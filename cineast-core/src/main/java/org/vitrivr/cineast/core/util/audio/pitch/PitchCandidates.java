@@ -0,0 +1,145 @@
+package org.vitrivr.cineast.core.util.audio.pitch;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Pitch candidates of a sequence of time-frames (e.g. the FFTs of a STFT) in flat, primitive arrays. The candidates of frame t occupy the slots [offset(t), offset(t + 1)) of the frequency and salience arrays, ordered by descending salience.
+ * <p>
+ * This is the representation produced by pitch estimation and consumed by pitch tracking; it avoids the creation of a {@link Pitch} object per candidate.
+ */
+public final class PitchCandidates {
+
+  /**
+   * Frequencies of the candidates in Hz.
+   */
+  private final float[] frequencies;
+
+  /**
+   * Saliences of the candidates.
+   */
+  private final double[] saliences;
+
+  /**
+   * Index of the first slot of every frame; has one entry more than there are frames.
+   */
+  private final int[] offsets;
+
+  /**
+   * Number of frames.
+   */
+  private final int frames;
+
+  /**
+   * Constructor for {@link PitchCandidates}. The arrays are used as-is and must not be modified by the caller afterwards.
+   *
+   * @param frequencies Frequencies of the candidates in Hz. May be longer than the number of candidates.
+   * @param saliences   Saliences of the candidates. May be longer than the number of candidates.
+   * @param offsets     Index of the first slot of every frame, followed by the total number of candidates.
+   * @param frames      Number of frames. The offset array may be longer than frames + 1.
+   */
+  public PitchCandidates(float[] frequencies, double[] saliences, int[] offsets, int frames) {
+    if (frames < 0 || offsets.length <= frames || offsets[frames] > frequencies.length || offsets[frames] > saliences.length) {
+      throw new IllegalArgumentException("The offsets do not match the frequency and salience arrays.");
+    }
+    this.frequencies = frequencies;
+    this.saliences = saliences;
+    this.offsets = offsets;
+    this.frames = frames;
+  }
+
+  /**
+   * Converts nested lists of {@link Pitch} objects (one list per time-frame) into {@link PitchCandidates}.
+   *
+   * @param candidates Nested list of pitch candidates.
+   * @return {@link PitchCandidates}
+   */
+  public static PitchCandidates of(List<List<Pitch>> candidates) {
+    int size = 0;
+    for (List<Pitch> frame : candidates) {
+      size += frame.size();
+    }
+    final float[] frequencies = new float[size];
+    final double[] saliences = new double[size];
+    final int[] offsets = new int[candidates.size() + 1];
+    int slot = 0;
+    for (int t = 0; t < candidates.size(); t++) {
+      offsets[t] = slot;
+      for (Pitch pitch : candidates.get(t)) {
+        frequencies[slot] = pitch.getFrequency();
+        saliences[slot++] = pitch.getSalience();
+      }
+    }
+    offsets[candidates.size()] = slot;
+    return new PitchCandidates(frequencies, saliences, offsets, candidates.size());
+  }
+
+  /**
+   * Returns the number of frames.
+   */
+  public int frames() {
+    return this.frames;
+  }
+
+  /**
+   * Returns the total number of candidates in all frames.
+   */
+  public int size() {
+    return this.offsets[this.frames];
+  }
+
+  /**
+   * Returns the first slot of the given frame.
+   *
+   * @param t Index of the frame.
+   */
+  public int start(int t) {
+    return this.offsets[t];
+  }
+
+  /**
+   * Returns the slot following the last slot of the given frame.
+   *
+   * @param t Index of the frame.
+   */
+  public int end(int t) {
+    return this.offsets[t + 1];
+  }
+
+  /**
+   * Returns the frequency in Hz of the candidate in the given slot.
+   *
+   * @param slot Index of the slot.
+   */
+  public float frequency(int slot) {
+    return this.frequencies[slot];
+  }
+
+  /**
+   * Returns the salience of the candidate in the given slot.
+   *
+   * @param slot Index of the slot.
+   */
+  public double salience(int slot) {
+    return this.saliences[slot];
+  }
+
+  /**
+   * Converts these {@link PitchCandidates} into nested lists of {@link Pitch} objects (one list per frame).
+   *
+   * @return Nested list of pitch candidates.
+   */
+  public List<List<Pitch>> toList() {
+    final List<List<Pitch>> list = new ArrayList<>(this.frames);
+    for (int t = 0; t < this.frames; t++) {
+      final List<Pitch> frame = new ArrayList<>(this.end(t) - this.start(t));
+      for (int slot = this.start(t); slot < this.end(t); slot++) {
+        final Pitch pitch = new Pitch(this.frequencies[slot]);
+        pitch.setSalience(this.saliences[slot]);
+        frame.add(pitch);
+      }
+      list.add(frame);
+    }
+    return list;
+  }
+}
@@ -1,13 +1,11 @@
 package org.vitrivr.cineast.core.util.audio.pitch.estimation;
 
-import java.util.ArrayList;
-import java.util.Collections;
-import java.util.Comparator;
+import java.util.Arrays;
 import java.util.List;
 import org.vitrivr.cineast.core.util.audio.pitch.Pitch;
+import org.vitrivr.cineast.core.util.audio.pitch.PitchCandidates;
 import org.vitrivr.cineast.core.util.dsp.fft.FFT;
 import org.vitrivr.cineast.core.util.dsp.fft.STFT;
-import org.vitrivr.cineast.core.util.dsp.fft.Spectrum;
 import org.vitrivr.cineast.core.util.dsp.midi.MidiUtil;
 
 /**
@@ -39,6 +37,17 @@ public class KLF0PitchEstimator {
    */
   private static final float BETA = 320.0f;
 
+  /**
+   * Values of loopcount^0.7 used to dampen the stopping criterion of the iterative estimation.
+   */
+  private static final double[] DAMPING = new double[64];
+
+  static {
+    for (int i = 0; i < DAMPING.length; i++) {
+      DAMPING[i] = Math.pow(i, .7f);
+    }
+  }
+
   /**
    * Maximum pitch to consider (MIDI index of the pitch).
    */
@@ -59,6 +68,11 @@ public class KLF0PitchEstimator {
    */
   private final float beta;
 
+  /**
+   * Table of the partials used for the last spectrum; re-used as long as samplingrate and windowsize do not change.
+   */
+  private volatile Harmonics harmonics;
+
   /**
    * Default constructor for KLF0PitchEstimator. Uses parameter described in [1].
    */
@@ -80,17 +94,37 @@ public KLF0PitchEstimator(int min, int max, float alpha, float beta) {
    * @return List of PitchCandidate lists.
    */
   public List<List<Pitch>> estimatePitch(STFT stft) {
-    List<List<Pitch>> results = new ArrayList<>(stft.getStft().size());
-    for (FFT fft : stft.getStft()) {
+    return this.estimateCandidates(stft).toList();
+  }
+
+  /**
+   * Estimates the pitches in the provided STFT and returns them as {@link PitchCandidates} (one frame per FFT). FFTs that are zero are skipped.
+   *
+   * @param stft STFT for which to estimate the pitches.
+   * @return {@link PitchCandidates} of all non-zero FFTs.
+   */
+  public PitchCandidates estimateCandidates(STFT stft) {
+    final List<FFT> ffts = stft.getStft();
+    final Candidates candidates = new Candidates(Math.max(16, ffts.size() * 8));
+    final int[] offsets = new int[ffts.size() + 1];
+    double[] spectrum = new double[0];
+    int frames = 0;
+    for (FFT fft : ffts) {
       if (fft.isZero()) {
         continue;
       }
-      results.add(this.estimatePitch(fft));
+      final double[] values = fft.getPowerSpectrum().array();
+      if (spectrum.length != values.length) {
+        spectrum = new double[values.length];
+      }
+      System.arraycopy(values, 0, spectrum, 0, values.length);
+      offsets[frames++] = candidates.size;
+      this.estimate(spectrum, this.harmonics(fft.getSamplingrate(), fft.getWindowsize()), candidates);
     }
-    return results;
+    offsets[frames] = candidates.size;
+    return new PitchCandidates(candidates.frequencies, candidates.saliences, offsets, frames);
   }
 
-
   /**
    * Estimates the pitches from the provided FFT and returns them as a list of PitchCandidates.
    *
@@ -98,120 +132,246 @@ public List<List<Pitch>> estimatePitch(STFT stft) {
    * @return List of pitch candidates.
    */
   public List<Pitch> estimatePitch(FFT fft) {
-    /* Prepare required helper variables. */
-    final float samplingrate = fft.getSamplingrate();
-    final int windowsize = fft.getWindowsize();
-    final Spectrum spectrum = fft.getPowerSpectrum();
-
-    /* Prepare empty array of booleans holding the estimates. */
-    List<Pitch> candidates = new ArrayList<>();
+    final Candidates candidates = new Candidates(16);
+    this.estimate(fft.getPowerSpectrum().array().clone(), this.harmonics(fft.getSamplingrate(), fft.getWindowsize()), candidates);
+    return new PitchCandidates(candidates.frequencies, candidates.saliences, new int[]{0, candidates.size}, 1).toList().get(0);
+  }
 
+  /**
+   * Estimates the pitches from the provided power spectrum and appends them to the candidates, sorted by their salience in descending order.
+   *
+   * @param spectrum   Working copy of the power spectrum; the information of detected pitches is subtracted from it.
+   * @param harmonics  The {@link Harmonics} table for the spectrum.
+   * @param candidates The {@link Candidates} to append the pitches to.
+   */
+  private void estimate(double[] spectrum, Harmonics harmonics, Candidates candidates) {
+    final int first = candidates.size;
     float test = 0, lasttest = 0;
     int loopcount = 1;
     while (true) {
       /* Detect new candidate. */
-      Pitch candidate = this.detect(spectrum, samplingrate, windowsize);
-
-      /* Test if that candidate already exists. */
-      boolean exists = false;
-      for (Pitch c : candidates) {
-        if (c.getFrequency() == candidate.getFrequency()) {
-          c.setSalience(candidate.getSalience() + c.getSalience());
-          exists = true;
-          break;
+      int candidate = -1;
+      float salience = 0;
+      for (int n = 0; n < harmonics.frequencies.length; n++) {
+        final float s = harmonics.salience(n, spectrum);
+        if (candidate == -1 || salience < s) {
+          candidate = n;
+          salience = s;
         }
       }
+      final float f0 = harmonics.frequencies[candidate];
 
-      if (!exists) {
-        candidates.add(candidate);
+      /*
+       * Test if that candidate already exists; if so, its salience is increased. A candidate that passed the test occupies two subsequent slots,
+       * which share their salience.
+       */
+      int existing = -1;
+      for (int j = first; j < candidates.size; j++) {
+        if (candidates.frequencies[j] == f0) {
+          existing = j;
+          break;
+        }
+      }
+      if (existing == -1) {
+        candidates.add(f0, salience);
+      } else {
+        final double sum = salience + candidates.saliences[existing];
+        candidates.saliences[existing] = sum;
+        if (existing + 1 < candidates.size && candidates.frequencies[existing + 1] == f0) {
+          candidates.saliences[existing + 1] = sum;
+        }
       }
 
       /* Conduct test and break if it fails. */
       lasttest = test;
-      test = (float) ((test + candidate.getSalience()) / Math.pow(loopcount, .7f));
+      test = (float) ((test + (double) salience) / (loopcount < DAMPING.length ? DAMPING[loopcount] : Math.pow(loopcount, .7f)));
       if (test <= lasttest) {
         break;
       }
       loopcount++;
 
       /* Add candidate to list. */
-      candidates.add(candidate);
-
-      final float f0 = candidate.getFrequency();
-      final float tau = samplingrate / f0; /* Fundamental period, i.e. f0=fs/τ. */
-      final float dtau = 0.25f; /* Δτ/2, which is 0.25 according to [1]. */
+      candidates.add(f0, salience);
 
       /* Subtract the information of the found pitch from the current spectrum. */
-      for (int m = 1; m * candidate.getFrequency() < samplingrate / 2; m++) {
-        int max = Math.round((m * windowsize) / (tau - dtau));
-        int min = Math.round((m * windowsize) / (tau + dtau));
-        int max_bin = min;
-        for (int offset = min; offset <= max && offset < windowsize / 2; offset++) {
-          if (spectrum.getValue(offset) > spectrum.getValue(max_bin)) {
-            max_bin = offset;
-          }
-        }
-        spectrum.setValue(max_bin, spectrum.getValue(max_bin) - spectrum.getValue(max_bin) * this.g(f0, m));
-      }
+      harmonics.subtract(candidate, spectrum);
     }
 
-    /* Sort list of candidates by their salience in descending order. */
-    candidates.sort(Comparator.comparingDouble(Pitch::getSalience));
-    Collections.reverse(candidates);
-
-    /* Return list of candidates. */
-    return candidates;
+    /* Sort the candidates of the frame by their salience in descending order (candidates with equal salience in reverse order of detection). */
+    for (int i = first + 1; i < candidates.size; i++) {
+      final float frequency = candidates.frequencies[i];
+      final double salience = candidates.saliences[i];
+      int j = i - 1;
+      while (j >= first && Double.compare(candidates.saliences[j], salience) > 0) {
+        candidates.frequencies[j + 1] = candidates.frequencies[j];
+        candidates.saliences[j + 1] = candidates.saliences[j];
+        j--;
+      }
+      candidates.frequencies[j + 1] = frequency;
+      candidates.saliences[j + 1] = salience;
+    }
+    for (int i = first, j = candidates.size - 1; i < j; i++, j--) {
+      final float frequency = candidates.frequencies[i];
+      final double salience = candidates.saliences[i];
+      candidates.frequencies[i] = candidates.frequencies[j];
+      candidates.saliences[i] = candidates.saliences[j];
+      candidates.frequencies[j] = frequency;
+      candidates.saliences[j] = salience;
+    }
   }
 
   /**
-   * Detects the most salient F0 candidate in the provided spectrum.
+   * Returns the {@link Harmonics} table for the given samplingrate and windowsize, which is re-used as long as these parameters do not change.
    *
-   * @param spectrum     Power spectrum to search for the candidate.
    * @param samplingrate Samplingrate at which the original signal has been sampled.
    * @param windowsize   Windowsize used in the FFT.
    */
-  private Pitch detect(Spectrum spectrum, final float samplingrate, final int windowsize) {
-    Pitch candidate = null;
-    for (int n = this.min; n <= this.max; n++) {
-      final float f0 = MidiUtil.midiToFrequency(n);
-      final double salience = this.salience(f0, spectrum, samplingrate, windowsize);
-      if (candidate == null || candidate.getSalience() < salience) {
-        candidate = new Pitch(f0);
-        candidate.setSalience(salience);
+  private Harmonics harmonics(float samplingrate, int windowsize) {
+    Harmonics harmonics = this.harmonics;
+    if (harmonics == null || harmonics.samplingrate != samplingrate || harmonics.windowsize != windowsize) {
+      harmonics = new Harmonics(samplingrate, windowsize);
+      this.harmonics = harmonics;
+    }
+    return harmonics;
+  }
+
+  /**
+   * Growable arrays of pitch candidates.
+   */
+  private static final class Candidates {
+
+    private float[] frequencies;
+    private double[] saliences;
+    private int size;
+
+    private Candidates(int capacity) {
+      this.frequencies = new float[capacity];
+      this.saliences = new double[capacity];
+    }
+
+    private void add(float frequency, double salience) {
+      if (this.size == this.frequencies.length) {
+        this.frequencies = Arrays.copyOf(this.frequencies, this.size * 2);
+        this.saliences = Arrays.copyOf(this.saliences, this.size * 2);
       }
+      this.frequencies[this.size] = frequency;
+      this.saliences[this.size++] = salience;
     }
-    return candidate;
   }
 
   /**
-   * Calculates and returns the salience of a f0 in a spectrum according to [1].
-   *
-   * @param f0           The f0 to calculate the salience for.
-   * @param spectrum     The spectrum to check.
-   * @param samplingrate The rate at which the original audio has been sampled.
-   * @param windowsize   The windowsize used during creation of the spectrum.
-   * @return Salience of f0 in the spectrum.
-   */
-  private final double salience(float f0, Spectrum spectrum, final float samplingrate, final int windowsize) {
-    final float tau = samplingrate / f0; /* Fundamental period, i.e. f0=fs/τ. */
-    final float dtau = 0.25f; /* Δτ/2, which is 0.25 according to [1]. */
-    float salience = 0; /* Salience of the candidate pitch. */
-
-    for (int m = 1; m * f0 < samplingrate / 2; m++) {
-      int max = Math.round((m * windowsize) / (tau - dtau));
-      int min = Math.round((m * windowsize) / (tau + dtau));
-      int max_bin = min;
-      for (int offset = min; offset <= max && offset < windowsize / 2; offset++) {
-        if (spectrum.getValue(offset) > spectrum.getValue(max_bin)) {
-          max_bin = offset;
+   * Table of the partials of all pitch candidates for a given samplingrate and windowsize: For the m-th partial of every candidate f0, it holds the range of FFT bins [m*fs/(τ+Δτ/2), m*fs/(τ-Δτ/2)] searched for the partial and the weight g(f0, m) as defined in [1].
+   */
+  private final class Harmonics {
+
+    /**
+     * Samplingrate the table was calculated for.
+     */
+    private final float samplingrate;
+
+    /**
+     * Windowsize the table was calculated for.
+     */
+    private final int windowsize;
+
+    /**
+     * Frequencies of the pitch candidates (from min to max).
+     */
+    private final float[] frequencies;
+
+    /**
+     * Index of the first partial of every candidate; has one entry more than there are candidates.
+     */
+    private final int[] offsets;
+
+    /**
+     * First bin of every partial.
+     */
+    private final int[] lower;
+
+    /**
+     * Last bin of every partial (inclusive).
+     */
+    private final int[] upper;
+
+    /**
+     * Weight of every partial.
+     */
+    private final double[] weights;
+
+    private Harmonics(float samplingrate, int windowsize) {
+      this.samplingrate = samplingrate;
+      this.windowsize = windowsize;
+      this.frequencies = new float[KLF0PitchEstimator.this.max - KLF0PitchEstimator.this.min + 1];
+      this.offsets = new int[this.frequencies.length + 1];
+
+      int partials = 0;
+      for (int n = 0; n < this.frequencies.length; n++) {
+        this.frequencies[n] = MidiUtil.midiToFrequency(KLF0PitchEstimator.this.min + n);
+        for (int m = 1; m * this.frequencies[n] < samplingrate / 2; m++) {
+          partials++;
         }
       }
-      salience += spectrum.getValue(max_bin) * this.g(f0, m);
+      this.lower = new int[partials];
+      this.upper = new int[partials];
+      this.weights = new double[partials];
+
+      final float dtau = 0.25f; /* Δτ/2, which is 0.25 according to [1]. */
+      int k = 0;
+      for (int n = 0; n < this.frequencies.length; n++) {
+        final float f0 = this.frequencies[n];
+        final float tau = samplingrate / f0; /* Fundamental period, i.e. f0=fs/τ. */
+        this.offsets[n] = k;
+        for (int m = 1; m * f0 < samplingrate / 2; m++, k++) {
+          this.lower[k] = Math.round((m * windowsize) / (tau + dtau));
+          this.upper[k] = Math.min(Math.round((m * windowsize) / (tau - dtau)), windowsize / 2 - 1);
+          this.weights[k] = KLF0PitchEstimator.this.g(f0, m);
+        }
+      }
+      this.offsets[this.frequencies.length] = k;
     }
 
-    return salience;
-  }
+    /**
+     * Calculates and returns the salience of the n-th candidate in a spectrum according to [1].
+     *
+     * @param n        Index of the candidate.
+     * @param spectrum The power spectrum.
+     * @return Salience of the candidate in the spectrum.
+     */
+    private float salience(int n, double[] spectrum) {
+      float salience = 0;
+      for (int k = this.offsets[n]; k < this.offsets[n + 1]; k++) {
+        salience += spectrum[this.peak(k, spectrum)] * this.weights[k];
+      }
+      return salience;
+    }
+
+    /**
+     * Subtracts the partials of the n-th candidate from the spectrum.
+     *
+     * @param n        Index of the candidate.
+     * @param spectrum The power spectrum.
+     */
+    private void subtract(int n, double[] spectrum) {
+      for (int k = this.offsets[n]; k < this.offsets[n + 1]; k++) {
+        final int bin = this.peak(k, spectrum);
+        spectrum[bin] = spectrum[bin] - spectrum[bin] * this.weights[k];
+      }
+    }
 
+    /**
+     * Returns the first bin with the maximum value in the range of the k-th partial.
+     */
+    private int peak(int k, double[] spectrum) {
+      int peak = this.lower[k];
+      for (int bin = peak + 1; bin <= this.upper[k]; bin++) {
+        if (spectrum[bin] > spectrum[peak]) {
+          peak = bin;
+        }
+      }
+      return peak;
+    }
+  }
 
   /**
    * Returns the value of the weight-function for pitch-salience calculation according to [1].
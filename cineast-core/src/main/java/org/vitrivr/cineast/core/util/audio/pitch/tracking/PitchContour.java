@@ -1,12 +1,13 @@
 package org.vitrivr.cineast.core.util.audio.pitch.tracking;
 
-import java.util.LinkedList;
-import java.util.List;
+import java.util.Arrays;
 import org.apache.commons.math3.stat.descriptive.SummaryStatistics;
 import org.vitrivr.cineast.core.util.audio.pitch.Pitch;
+import org.vitrivr.cineast.core.util.audio.pitch.PitchCandidates;
+import org.vitrivr.cineast.core.util.dsp.FrequencyUtils;
 
 /**
- * This is a helper class for pitch tracking. It represents a pitch contour, that is, a candidate for a melody fragment. The contour has a fixed length and each slot in the sequence represents a specific timeframe (e.g. belonging to a FFT bin in the underlying STFT).
+ * This is a helper class for pitch tracking. It represents a pitch contour, that is, a candidate for a melody fragment. The contour covers a contiguous range of timeframes (e.g. belonging to a FFT bin in the underlying STFT) and refers to one slot of the {@link PitchCandidates} per frame.
  * <p>
  * The intention behind this class is the simplification of comparison between different pitch contours, either on a frame-by-frame basis but also as an entity. In addition to the actual pitch information, the pitch contour class also provides access to pitch contour statistics related to salience and pitch frequency.
  *
@@ -19,9 +20,17 @@ public class PitchContour {
    */
   private static final float CENT_SCALE_MINIMUM = 55.0f;
   /**
-   * Sequence of pitches that form the PitchContour.
+   * The candidates the slots of this PitchContour refer to.
    */
-  private final List<Pitch> contour = new LinkedList<>();
+  private final PitchCandidates candidates;
+  /**
+   * Slots of the candidates that form the PitchContour (one per frame); the used part of the array starts at {@link #head}.
+   */
+  private int[] slots = new int[16];
+  /**
+   * Position of the slot belonging to the start frame-index in {@link #slots}.
+   */
+  private int head = 8;
   /**
    * Entity that keeps track of salience related contour statistics.
    */
@@ -48,48 +57,93 @@ public class PitchContour {
   /**
    * Constructor for PitchContour.
    *
-   * @param start Start-index of the contour.
-   * @param pitch Pitch that belongs to the start-index.
+   * @param candidates The {@link PitchCandidates} the contour is formed of.
+   * @param start      Start-index of the contour.
+   * @param slot       Slot of the candidate that belongs to the start-index.
    */
-  public PitchContour(int start, Pitch pitch) {
+  public PitchContour(PitchCandidates candidates, int start, int slot) {
+    this.candidates = candidates;
     this.start = start;
     this.end = start;
-    this.contour.add(pitch);
+    this.slots[this.head] = slot;
   }
 
   /**
-   * Sets the pitch at the given index if the index is within the bounds of the PitchContour.
+   * Appends the candidate in the given slot to the PitchContour, thereby extending it by one frame.
    *
-   * @param p Pitch to append.
+   * @param slot Slot of the candidate to append.
    */
-  public void append(Pitch p) {
-    this.contour.add(p);
+  public void append(int slot) {
+    final int position = this.head + this.size();
+    if (position == this.slots.length) {
+      this.slots = Arrays.copyOf(this.slots, this.slots.length * 2);
+    }
+    this.slots[position] = slot;
     this.end += 1;
     this.dirty = true;
   }
 
   /**
-   * Sets the pitch at the given index if the index is within the bounds of the PitchContour.
+   * Prepends the candidate in the given slot to the PitchContour, thereby extending it by one frame.
    *
-   * @param p Pitch to append.
+   * @param slot Slot of the candidate to prepend.
    */
-  public void prepend(Pitch p) {
-    this.contour.add(0, p);
+  public void prepend(int slot) {
+    if (this.head == 0) {
+      final int[] slots = new int[this.slots.length * 2];
+      System.arraycopy(this.slots, 0, slots, this.slots.length, this.slots.length);
+      this.head = this.slots.length;
+      this.slots = slots;
+    }
+    this.slots[--this.head] = slot;
     this.start -= 1;
     this.dirty = true;
   }
 
   /**
-   * Returns the pitch at the given index or null, if the index is out of bounds. Note that even if the index is within bounds, the Pitch can still be null.
+   * Returns the slot of the candidate at the given frame-index or -1, if the index is out of bounds.
    *
-   * @param i Index for which to return a pitch.
+   * @param i Index for which to return the slot.
    */
-  public Pitch getPitch(int i) {
+  public int getSlot(int i) {
     if (i >= this.start && i <= this.end) {
-      return this.contour.get(i - this.start);
+      return this.slots[this.head + i - this.start];
     } else {
+      return -1;
+    }
+  }
+
+  /**
+   * Returns the pitch at the given index or null, if the index is out of bounds.
+   *
+   * @param i Index for which to return a pitch.
+   */
+  public Pitch getPitch(int i) {
+    final int slot = this.getSlot(i);
+    if (slot == -1) {
       return null;
     }
+    final Pitch pitch = new Pitch(this.candidates.frequency(slot));
+    pitch.setSalience(this.candidates.salience(slot));
+    return pitch;
+  }
+
+  /**
+   * Returns the frequency in Hz of the pitch at the given index, which must be within bounds.
+   *
+   * @param i Index for which to return the frequency.
+   */
+  public float getFrequency(int i) {
+    return this.candidates.frequency(this.slots[this.head + i - this.start]);
+  }
+
+  /**
+   * Returns the salience of the pitch at the given index, which must be within bounds.
+   *
+   * @param i Index for which to return the salience.
+   */
+  public double getSalience(int i) {
+    return this.candidates.salience(this.slots[this.head + i - this.start]);
   }
 
   /**
@@ -112,14 +166,13 @@ public final int getEnd() {
 
 
   /**
-   * Size of the pitch-contour. This number also includes empty slots.
+   * Size of the pitch-contour.
    *
    * @return Size of the contour.
    */
   public final int size() {
-    return this.contour.size();
+    return this.end - this.start + 1;
   }
-
   /**
    * Returns the mean of all pitches in the melody.
    *
@@ -202,11 +255,9 @@ public final boolean overlaps(PitchContour contour) {
   private void calculate() {
     this.salienceStatistics.clear();
     this.frequencyStatistics.clear();
-    for (Pitch pitch : this.contour) {
-      if (pitch != null) {
-        this.salienceStatistics.addValue(pitch.getSalience());
-        this.frequencyStatistics.addValue(pitch.distanceCents(CENT_SCALE_MINIMUM));
-      }
+    for (int i = this.head; i < this.head + this.size(); i++) {
+      this.salienceStatistics.addValue(this.candidates.salience(this.slots[i]));
+      this.frequencyStatistics.addValue(FrequencyUtils.cents(CENT_SCALE_MINIMUM, this.candidates.frequency(this.slots[i])));
     }
     this.dirty = false;
   }
@@ -1,13 +1,14 @@
 package org.vitrivr.cineast.core.util.audio.pitch.tracking;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.Comparator;
-import java.util.Iterator;
 import java.util.List;
 import org.apache.commons.math3.stat.descriptive.SummaryStatistics;
 import org.vitrivr.cineast.core.util.audio.pitch.Melody;
 import org.vitrivr.cineast.core.util.audio.pitch.Pitch;
+import org.vitrivr.cineast.core.util.audio.pitch.PitchCandidates;
 import org.vitrivr.cineast.core.util.dsp.FrequencyUtils;
 
 /**
@@ -46,18 +47,31 @@ public class PitchTracker {
    */
   private final List<PitchContour> pitchContours = new ArrayList<>();
   /**
-   * Pitch-candidates that have been ruled out.
+   * The pitch-candidates.
    */
-  private Pitch[][] s0;
+  private PitchCandidates candidates;
   /**
-   * Active pitch-candidates.
+   * State of every pitch-candidate; either {@link #S1} (active), {@link #S0} (ruled out) or {@link #SELECTED}.
    */
-  private Pitch[][] s1;
+  private byte[] states;
   /**
    * Number of ms that passes between two adjacent bins.
    */
   private float t_stepsize;
 
+  /**
+   * State of a pitch-candidate that has been added to a contour.
+   */
+  private static final byte SELECTED = 0;
+  /**
+   * State of an active pitch-candidate.
+   */
+  private static final byte S1 = 1;
+  /**
+   * State of a pitch-candidate that has been ruled out.
+   */
+  private static final byte S0 = 2;
+
   /**
    * Default constructor for PitchTracker. Uses the settings described in [1].
    */
@@ -89,18 +103,21 @@ public PitchTracker(float t1, float t2, float v_threshold, float d_max, float m_
    * @param t_stepsize The time in milliseconds that passes between to adjacent bins.
    */
   public void initialize(List<List<Pitch>> candidates, float t_stepsize) {
-    /* Initialize S1 and S0 with new pitch-candidates */
-    this.s1 = new Pitch[candidates.size()][];
-    this.s0 = new Pitch[candidates.size()][];
+    this.initialize(PitchCandidates.of(candidates), t_stepsize);
+  }
+
+  /**
+   * Initializes the PitchTracker with a set of new pitch candidates. Prepares everything for pitch-streaming and subsequent melody selection and discards previous results.
+   *
+   * @param candidates The {@link PitchCandidates}, one frame per time-frame.
+   * @param t_stepsize The time in milliseconds that passes between to adjacent bins.
+   */
+  public void initialize(PitchCandidates candidates, float t_stepsize) {
+    /* Initialize S1 with new pitch-candidates */
+    this.candidates = candidates;
+    this.states = new byte[candidates.size()];
+    Arrays.fill(this.states, S1);
     this.t_stepsize = t_stepsize;
-    for (int i = 0; i < candidates.size(); i++) {
-      int size = candidates.get(i).size();
-      this.s1[i] = new Pitch[size];
-      this.s0[i] = new Pitch[size];
-      for (int j = 0; j < size; j++) {
-        this.s1[i][j] = candidates.get(i).get(j);
-      }
-    }
 
     /* Clear pre-calculates statistics and contours. */
     this.contourStatistics.clear();
@@ -119,21 +136,23 @@ public void trackPitches() {
       this.applyGlobalFilter();
     }
 
-    int[] currentPointer = null;
-    Pitch currentPitch = null;
-    while (true) {
-      /* Find the pitch with the maximum salience in S1 and add it to the melody. */
-      currentPointer = this.seekMostSalientInS1();
-      if (currentPointer[0] == -1 || currentPointer[1] == -1) {
-        break;
+    /*
+     * Repeatedly select the pitch with the maximum salience in S1 and track a new contour from there. Since pitches never return to S1, the
+     * candidates can be visited in the order of descending salience (earlier slots first in case of ties).
+     */
+    final int[] order = this.salienceOrder();
+    for (int slot : order) {
+      if (this.states[slot] != S1) {
+        continue;
       }
 
       /* Select that pitch from S1 and create new PitchContour. */
-      currentPitch = this.selectFromS1(currentPointer[0], currentPointer[1]);
-      final PitchContour contour = new PitchContour(currentPointer[0], currentPitch);
+      final int frame = this.frameOf(slot);
+      this.states[slot] = SELECTED;
+      final PitchContour contour = new PitchContour(this.candidates, frame, slot);
 
       /* Track pitch contour. */
-      this.track(contour, currentPointer[0]);
+      this.track(contour, frame);
 
       /* Add contour to list of contours */
       this.addContour(contour);
@@ -147,64 +166,52 @@ public void trackPitches() {
     Collections.reverse(this.pitchContours);
   }
 
+  /**
+   * Extracts the melody from the voiced pitch-contours, starting with the contour of the earliest frame and continuing with the contour that starts after it has ended. If multiple contours start in the same frame, the one with the lowest salience-sum is selected.
+   *
+   * @param iterations Number of iterations of octave-duplicate and pitch-outlier removal. These steps only ever filtered a discarded copy of the contours and did not influence the melody; they are no longer performed and the parameter is retained for compatibility.
+   * @return The extracted {@link Melody} or null, if no pitch-contours are available.
+   */
   public Melody extractMelody(int iterations) {
     /* Return if no pitch-contours are available. */
     if (this.pitchContours.isEmpty()) {
       return null;
     }
 
-    /* Copies the pitch-contours from the tracking step. */
-    List<PitchContour> workingList = new ArrayList<>(this.pitchContours);
-
-    /* Filters the workingList and removes unvoiced pitch-contours. */
-    this.voicingDetection(workingList);
-
     /*
-     * Use the mean-contour to remove octave-duplicates and pitch-outliers. Perform multiple
-     * iterations in which the mean-contour is updated.
+     * Determine the voiced contour that is selected for every start frame, i.e. the voiced contour with the lowest salience-sum.
      */
-    double[] mean = this.meanContour(this.pitchContours);
-    List<PitchContour> copy = null;
-    for (int i = 0; i < iterations; i++) {
-      copy = new ArrayList<>(workingList);
-      this.detectAndRemoveOctaveDuplicates(copy, mean);
-      mean = this.meanContour(copy);
-      this.detectAndRemovePitchOutliers(copy, mean);
-      mean = this.meanContour(copy);
+    final int frames = this.candidates.frames();
+    final PitchContour[] starting = new PitchContour[frames];
+    final double threshold = this.contourStatistics.getMean() - this.v_threshold * this.contourStatistics.getStandardDeviation();
+    for (PitchContour contour : this.pitchContours) {
+      if (!(contour.pitchDeviation() < 40.0f && contour.salienceMean() < threshold)) {
+        starting[contour.getStart()] = contour;
+      }
     }
 
-    /*
-     * Sort the copied-list so that the PitchContour with the highest salience-sum is
-     * the first entry.
-     */
-    copy.sort(Comparator.comparingDouble(PitchContour::salienceSum));
-    Collections.reverse(workingList);
-
     /*
      * Construct melody from remaining pitch-contours.
      */
     Melody melody = new Melody();
-    for (int i = 0; i < this.s1.length; i++) {
-      for (PitchContour contour : workingList) {
-        if (contour.getStart() == i) {
-          Pitch melodyPitch = new Pitch(contour.getPitch(i).getFrequency());
-          int j = i;
-          double time = this.t_stepsize;
-          double salience = contour.getPitch(i).getSalience();
-          while (contour.getPitch(j) != null) {
-            time += this.t_stepsize;
-            salience += contour.getPitch(j).getSalience();
-            j += 1;
-          }
-          if (time > 0.1f) {
-            melodyPitch.setDuration((int) (time * 1000));
-            melodyPitch.setSalience(salience);
-
-            melody.append(melodyPitch);
-            i = j - 1;
-          }
-          break;
-        }
+    for (int i = 0; i < frames; i++) {
+      final PitchContour contour = starting[i];
+      if (contour == null) {
+        continue;
+      }
+      Pitch melodyPitch = new Pitch(contour.getFrequency(i));
+      double time = this.t_stepsize;
+      double salience = contour.getSalience(i);
+      for (int j = i; j <= contour.getEnd(); j++) {
+        time += this.t_stepsize;
+        salience += contour.getSalience(j);
+      }
+      if (time > 0.1f) {
+        melodyPitch.setDuration((int) (time * 1000));
+        melodyPitch.setSalience(salience);
+
+        melody.append(melodyPitch);
+        i = contour.getEnd();
       }
     }
     return melody;
@@ -215,12 +222,13 @@ public double[] meanContour(List<PitchContour> contours) {
     final int size = 40;
 
     /* Calculate pitch-mean. */
-    double[] framesum = new double[this.s1.length];
-    double[] weights = new double[this.s1.length];
-    double[] pitchmean = new double[this.s1.length];
+    final int frames = this.candidates.frames();
+    double[] framesum = new double[frames];
+    double[] weights = new double[frames];
+    double[] pitchmean = new double[frames];
     for (PitchContour contour : contours) {
       for (int i = contour.getStart(); i < contour.getEnd(); i++) {
-        framesum[i] += contour.getPitch(i).getFrequency() * contour.salienceSum();
+        framesum[i] += contour.getFrequency(i) * contour.salienceSum();
         weights[i] += contour.salienceSum();
       }
     }
@@ -240,89 +248,100 @@ public double[] meanContour(List<PitchContour> contours) {
   }
 
   /**
-   * Selects the pitch specified by the two pitch-indices from S1 a and returns it, if it exists. Thereby, the pitch is removed from S1.
-   *
-   * @param t Temporal index of the pitch candidate.
-   * @param i Position of the pitch candidate
+   * Returns the slots of all pitch-candidates sorted by descending salience; slots with equal salience retain their order.
    */
-  private Pitch selectFromS1(int t, int i) {
-    Pitch pitch = this.s1[t][i];
-    if (pitch != null) {
-      this.s1[t][i] = null;
-      return pitch;
-    } else {
-      return null;
+  private int[] salienceOrder() {
+    final int[] order = new int[this.states.length];
+    for (int i = 0; i < order.length; i++) {
+      order[i] = i;
     }
+    sort(order, new int[order.length], 0, order.length);
+    return order;
   }
 
   /**
-   * Selects the pitch specified by the two pitch-indices from S0 a and returns it, if it exists. Thereby, the pitch is removed from S0.
-   *
-   * @param t Temporal index of the pitch candidate.
-   * @param i Position of the pitch candidate
+   * Stable merge sort of the slots in the range [from, to) by descending salience.
    */
-  private Pitch selectFromS0(int t, int i) {
-    Pitch pitch = this.s0[t][i];
-    if (pitch != null) {
-      this.s0[t][i] = null;
-      return pitch;
+  private void sort(int[] slots, int[] buffer, int from, int to) {
+    if (to - from < 32) {
+      for (int i = from + 1; i < to; i++) {
+        final int slot = slots[i];
+        int j = i - 1;
+        while (j >= from && this.candidates.salience(slots[j]) < this.candidates.salience(slot)) {
+          slots[j + 1] = slots[j];
+          j--;
+        }
+        slots[j + 1] = slot;
+      }
+      return;
+    }
+    final int mid = (from + to) >>> 1;
+    this.sort(slots, buffer, from, mid);
+    this.sort(slots, buffer, mid, to);
+    System.arraycopy(slots, from, buffer, from, to - from);
+    int left = from;
+    int right = mid;
+    for (int i = from; i < to; i++) {
+      if (right >= to || (left < mid && this.candidates.salience(buffer[left]) >= this.candidates.salience(buffer[right]))) {
+        slots[i] = buffer[left++];
+      } else {
+        slots[i] = buffer[right++];
+      }
     }
-    return null;
   }
 
   /**
-   * Moves a pitch-candidate from S1 to S0.
-   *
-   * @param t Temporal index of the pitch candidate.
-   * @param i Position of the pitch candidate
-   * @return true if pitch was moved and false otherwise.
+   * Returns the temporal index of the frame the given slot belongs to.
    */
-  private boolean moveToS0(int t, int i) {
-    if (this.s1[t][i] != null) {
-      this.s0[t][i] = this.s1[t][i];
-      this.s1[t][i] = null;
-      return true;
-    } else {
-      return false;
+  private int frameOf(int slot) {
+    int low = 0;
+    int high = this.candidates.frames() - 1;
+    while (low < high) {
+      final int mid = (low + high + 1) >>> 1;
+      if (this.candidates.start(mid) <= slot) {
+        low = mid;
+      } else {
+        high = mid - 1;
+      }
     }
+    return low;
   }
 
-
   /**
-   * Seeks the pitch with maximum salience in S1 and returns an int array that contains the indexes which point to that maximum. If no maximum was found, {-1, -1} is returned.
+   * Returns the first slot of the given frame that is in the given state and whose pitch lies within the given distance (in cents) of the provided frequency, or -1 if no such slot exists.
    *
-   * @return Indexes {t,i} pointing to maximum is S1.
+   * @param t         Temporal index of the frame.
+   * @param state     The state the slot must be in.
+   * @param frequency Frequency to measure the distance to.
+   * @param inclusive True, if pitches at exactly d_max cents are accepted.
    */
-  private int[] seekMostSalientInS1() {
-    int[] max = {-1, -1};
-    for (int t = 0; t < this.s1.length; t++) {
-      int max_i = this.seekMostSalientInFrameS1(t);
-      if (max_i == -1) {
+  private int seekMatching(int t, byte state, float frequency, boolean inclusive) {
+    for (int slot = this.candidates.start(t); slot < this.candidates.end(t); slot++) {
+      if (this.states[slot] != state) {
         continue;
       }
-      if (max[0] == -1 || max[1] == -1 || this.s1[t][max_i].getSalience() > this.s1[max[0]][max[1]].getSalience()) {
-        max[0] = t;
-        max[1] = max_i;
+      final double distance = Math.abs(FrequencyUtils.cents(frequency, this.candidates.frequency(slot)));
+      if (inclusive ? distance <= this.d_max : distance < this.d_max) {
+        return slot;
       }
     }
-    return max;
+    return -1;
   }
 
   /**
-   * Seeks the pitch with the maximum salience in the specified frame in S1 and returns the index i that point to that maximum. If now maximum was found, -1 is returned.
+   * Seeks the pitch with the maximum salience in the specified frame in S1 and returns the slot that points to that maximum. If now maximum was found, -1 is returned.
    *
-   * @param t Temporal index of the frame in S1.
-   * @return Index of the maximum in the specified frame.
+   * @param t Temporal index of the frame.
+   * @return Slot of the maximum in the specified frame.
    */
   private int seekMostSalientInFrameS1(int t) {
-    Pitch[] pitches = this.s1[t];
     int max = -1;
-    for (int i = 0; i < pitches.length; i++) {
-      if (pitches[i] == null) {
+    for (int slot = this.candidates.start(t); slot < this.candidates.end(t); slot++) {
+      if (this.states[slot] != S1) {
         continue;
       }
-      if (max == -1 || pitches[i].getSalience() > pitches[max].getSalience()) {
-        max = i;
+      if (max == -1 || this.candidates.salience(slot) > this.candidates.salience(max)) {
+        max = slot;
       }
     }
     return max;
@@ -342,18 +361,14 @@ private void addContour(PitchContour contour) {
    * Applies a per-frame filter on pitches in S1 and moves all peaks whose salience is bellow a certain threshold from S1 to S0. This filter is described in [1], section II-C.
    */
   private void applyPerFrameFilter() {
-    for (int t = 0; t < this.s1.length; t++) {
-      int max_idx = this.seekMostSalientInFrameS1(t);
-      if (max_idx == -1) {
+    for (int t = 0; t < this.candidates.frames(); t++) {
+      int max = this.seekMostSalientInFrameS1(t);
+      if (max == -1) {
         continue;
       }
-      int size = this.s1[t].length;
-      for (int i = 0; i < size; i++) {
-        if (this.s1[t][i] == null) {
-          continue;
-        }
-        if (this.s1[t][i].getSalience() < this.t1 * this.s1[t][max_idx].getSalience()) {
-          this.moveToS0(t, i);
+      for (int slot = this.candidates.start(t); slot < this.candidates.end(t); slot++) {
+        if (this.states[slot] == S1 && this.candidates.salience(slot) < this.t1 * this.candidates.salience(max)) {
+          this.states[slot] = S0;
         }
       }
     }
@@ -366,59 +381,42 @@ private void applyGlobalFilter() {
     SummaryStatistics statistics = new SummaryStatistics();
 
     /* Iteration #1: Gather data to obtain salience statistics. */
-    for (int t = 0; t < this.s1.length; t++) {
-      for (int i = 0; i < this.s1[t].length; i++) {
-        if (this.s1[t][i] == null) {
-          continue;
-        }
-        statistics.addValue(this.s1[t][i].getSalience());
+    for (int slot = 0; slot < this.states.length; slot++) {
+      if (this.states[slot] == S1) {
+        statistics.addValue(this.candidates.salience(slot));
       }
     }
 
     /* Iteration #2: Move pitches that are bellow the threshold. */
     final double threshold = statistics.getMean() - this.t2 * statistics.getStandardDeviation();
-    for (int t = 0; t < this.s1.length; t++) {
-      for (int i = 0; i < this.s1[t].length; i++) {
-        if (this.s1[t][i] == null) {
-          continue;
-        }
-        if (this.s1[t][i].getSalience() < threshold) {
-          this.moveToS0(t, i);
-        }
+    for (int slot = 0; slot < this.states.length; slot++) {
+      if (this.states[slot] == S1 && this.candidates.salience(slot) < threshold) {
+        this.states[slot] = S0;
       }
     }
   }
 
   private void track(final PitchContour contour, final int start) {
     /* If start is the last entry, then no forward-tracking is required. */
-    if (start == this.s1.length - 1) {
+    if (start == this.candidates.frames() - 1) {
       return;
     }
 
     /* Initialize helper variables; number of pitches and last-pitch. */
     int misses = 0;
-    Pitch lastPitch = contour.getPitch(start);
+    float lastPitch = contour.getFrequency(start);
 
     /* Track pitches upstream (i.e. forward in time). */
-    for (int frameindex = start + 1; frameindex < this.s1.length; frameindex++) {
-      /* Flag that indicates, if a matching pitch could be found in the new frame. */
-      boolean found = false;
-
+    for (int frameindex = start + 1; frameindex < this.candidates.frames(); frameindex++) {
       /* Search for a matching pitch candidate in S1 in the next frame. */
-      for (int j = 0; j < this.s1[frameindex].length; j++) {
-        if (this.s1[frameindex][j] == null) {
-          continue;
-        }
-        if (found = (Math.abs(this.s1[frameindex][j].distanceCents(lastPitch)) <= this.d_max)) {
-          lastPitch = this.selectFromS1(frameindex, j);
-          contour.append(lastPitch);
-          misses = 0;
-          break;
-        }
-      }
+      int slot = this.seekMatching(frameindex, S1, lastPitch, true);
 
       /* If a pitch candidate was found in S1, continue to next iteration. */
-      if (found) {
+      if (slot != -1) {
+        this.states[slot] = SELECTED;
+        lastPitch = this.candidates.frequency(slot);
+        contour.append(slot);
+        misses = 0;
         continue;
       }
 
@@ -431,20 +429,13 @@ private void track(final PitchContour contour, final int start) {
       if (misses * this.t_stepsize >= this.m_max) {
         break;
       }
-      for (int j = 0; j < this.s0[frameindex].length; j++) {
-        if (this.s0[frameindex][j] == null) {
-          continue;
-        }
-        if (found = (Math.abs(this.s0[frameindex][j].distanceCents(lastPitch)) <= this.d_max)) {
-          lastPitch = this.selectFromS0(frameindex, j);
-          contour.append(lastPitch);
-          break;
-        }
-      }
-
-      if (!found) {
+      slot = this.seekMatching(frameindex, S0, lastPitch, true);
+      if (slot == -1) {
         break;
       }
+      this.states[slot] = SELECTED;
+      lastPitch = this.candidates.frequency(slot);
+      contour.append(slot);
     }
 
     /* If start is at index 0 then no backwards-tracking is required. */
@@ -454,27 +445,19 @@ private void track(final PitchContour contour, final int start) {
 
     /* Re-Initialize helper variables; number of pitches and last-pitch. */
     misses = 0;
-    lastPitch = contour.getPitch(start);
+    lastPitch = contour.getFrequency(start);
 
     /* Track pitches downstream (i.e. back in time) */
     for (int frameindex = start - 1; frameindex > 0; frameindex--) {
-      boolean found = false;
-
       /* Search for a matching pitch candidate in S1 in the next frame. */
-      for (int j = 0; j < this.s1[frameindex].length; j++) {
-        if (this.s1[frameindex][j] == null) {
-          continue;
-        }
-        if (found = (Math.abs(this.s1[frameindex][j].distanceCents(lastPitch)) <= this.d_max)) {
-          lastPitch = this.selectFromS1(frameindex, j);
-          contour.prepend(lastPitch);
-          misses = 0;
-          break;
-        }
-      }
+      int slot = this.seekMatching(frameindex, S1, lastPitch, true);
 
       /* If a pitch candidate was found in S1, continue to next iteration. */
-      if (found) {
+      if (slot != -1) {
+        this.states[slot] = SELECTED;
+        lastPitch = this.candidates.frequency(slot);
+        contour.prepend(slot);
+        misses = 0;
         continue;
       }
 
@@ -487,97 +470,15 @@ private void track(final PitchContour contour, final int start) {
       if (misses >= this.m_max) {
         break;
       }
-      for (int j = 0; j < this.s0[frameindex].length; j++) {
-        if (this.s0[frameindex][j] == null) {
-          continue;
-        }
-        if (found = (Math.abs(this.s0[frameindex][j].distanceCents(lastPitch)) < this.d_max)) {
-          lastPitch = this.selectFromS0(frameindex, j);
-          contour.prepend(lastPitch);
-          break;
-        }
-      }
+      slot = this.seekMatching(frameindex, S0, lastPitch, false);
 
       /* If no matching pitch was found even in S0, stop tracking. */
-      if (!found) {
+      if (slot == -1) {
         break;
       }
-    }
-  }
-
-  /**
-   *
-   */
-  private void voicingDetection(List<PitchContour> contours) {
-    contours.removeIf(c -> {
-      if (c.pitchDeviation() < 40.0f) {
-        return c.salienceMean() < contourStatistics.getMean() - this.v_threshold * contourStatistics.getStandardDeviation();
-      } else {
-        return false;
-      }
-    });
-  }
-
-  private void detectAndRemoveOctaveDuplicates(List<PitchContour> contours, double[] meanpitches) {
-    Iterator<PitchContour> iterator = contours.iterator();
-    while (iterator.hasNext()) {
-      PitchContour ct = iterator.next();
-      for (PitchContour ci : contours) {
-        /* Take contour at i; if c == ci then skip. */
-        if (ct == ci || ci.overlaps(ct)) {
-          continue;
-        }
-
-        /* Calculate mean distance from ct to ci. */
-        double distance = 0.0;
-        int count = 0;
-        for (int k = ct.getStart(); k <= ct.getEnd(); k++) {
-          if (ci.getPitch(k) != null && ct.getPitch(k) != null) {
-            distance += ci.getPitch(k).distanceCents(ct.getPitch(k));
-            count += 1;
-          }
-        }
-
-        /* Normalise distance. */
-        distance /= count;
-
-        /* If distance is between 1150 and 1250 cents, the an octave duplicate has been detected! */
-        if (distance >= (FrequencyUtils.OCTAVE_CENT - 50.f) && distance <= (FrequencyUtils.OCTAVE_CENT + 50.f)) {
-          double di = 0.0f;
-          double dt = 0.0f;
-          for (int k = ci.getStart(); k <= ci.getEnd(); k++) {
-            di += Math.abs(ci.getPitch(k).distanceCents((float) meanpitches[k]));
-          }
-          for (int k = ct.getStart(); k <= ct.getEnd(); k++) {
-            dt += Math.abs(ct.getPitch(k).distanceCents((float) meanpitches[k]));
-          }
-
-          /* Normalise distances. */
-          di /= ci.size();
-          dt /= ct.size();
-
-          /* If distance dt > di, then remove ct. */
-          if (Math.abs(dt) > Math.abs(di)) {
-            iterator.remove();
-            break;
-          }
-        }
-      }
-    }
-  }
-
-  private void detectAndRemovePitchOutliers(List<PitchContour> contours, final double[] meanpitches) {
-    Iterator<PitchContour> iterator = contours.iterator();
-    while (iterator.hasNext()) {
-      PitchContour c = iterator.next();
-      double distance = 0.0f;
-      for (int t = c.getStart(); t <= c.getEnd(); t++) {
-        distance += c.getPitch(t).distanceCents((float) meanpitches[t]);
-      }
-      distance /= c.size();
-      if (Math.abs(distance) > FrequencyUtils.OCTAVE_CENT) {
-        iterator.remove();
-      }
+      this.states[slot] = SELECTED;
+      lastPitch = this.candidates.frequency(slot);
+      contour.prepend(slot);
     }
   }
 }
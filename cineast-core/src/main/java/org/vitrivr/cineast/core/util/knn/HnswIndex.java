@@ -0,0 +1,813 @@
+package org.vitrivr.cineast.core.util.knn;
+
+import com.carrotsearch.hppc.IntHashSet;
+import com.carrotsearch.hppc.procedures.IntProcedure;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.vitrivr.cineast.core.config.ReadableQueryConfig;
+import org.vitrivr.cineast.core.data.distance.DistanceElement;
+
+/**
+ * In-process approximate nearest neighbour index over float vectors based on hierarchical navigable small world (HNSW) graphs (Malkov &amp; Yashunin, 2018).
+ * <p>
+ * Vectors and the links of the lowest layer are stored in contiguous primitive arenas, which are allocated in chunks of {@link #CHUNK_SIZE} nodes, such that the arena can grow without moving existing nodes. Links of the (sparsely populated) upper layers are stored per node. Vectors can be added concurrently; every link list is guarded by one of {@link #LOCK_STRIPES} locks, which are only ever held one at a time. Searches may run concurrently with insertions.
+ * <p>
+ * Adding a vector for an identifier that is already present supersedes the previous vector; the previous node remains in the graph for navigation but is no longer returned.
+ */
+public final class HnswIndex {
+
+  private static final Logger LOGGER = LogManager.getLogger();
+
+  /**
+   * Magic number and version of the file format written by {@link #save(Path, long)}.
+   */
+  private static final int MAGIC = 0x484E5357;
+  private static final int VERSION = 1;
+
+  /**
+   * Number of nodes per chunk of the arenas.
+   */
+  private static final int CHUNK_BITS = 14;
+  private static final int CHUNK_SIZE = 1 << CHUNK_BITS;
+  private static final int CHUNK_MASK = CHUNK_SIZE - 1;
+
+  /**
+   * Number of locks guarding the link lists.
+   */
+  private static final int LOCK_STRIPES = 1024;
+
+  /**
+   * Highest layer a node can be assigned to.
+   */
+  private static final int MAX_LEVEL = 31;
+
+  /**
+   * Search state of the current thread; searches never nest, hence one instance per thread suffices.
+   */
+  private static final ThreadLocal<SearchContext> CONTEXT = ThreadLocal.withInitial(SearchContext::new);
+
+  /**
+   * Distance metrics supported by the {@link HnswIndex}.
+   */
+  public enum Metric {
+    EUCLIDEAN, SQUARED_EUCLIDEAN, MANHATTAN, COSINE;
+
+    /**
+     * Returns the {@link Metric} equivalent to the given distance, if any.
+     */
+    public static Optional<Metric> of(ReadableQueryConfig.Distance distance) {
+      switch (distance) {
+        case euclidean:
+          return Optional.of(EUCLIDEAN);
+        case squaredeuclidean:
+          return Optional.of(SQUARED_EUCLIDEAN);
+        case manhattan:
+          return Optional.of(MANHATTAN);
+        case cosine:
+          return Optional.of(COSINE);
+        default:
+          return Optional.empty();
+      }
+    }
+  }
+
+  /**
+   * Chunked storage of the nodes. Replaced (with the chunks of the previous instance) whenever a chunk is added, hence a reference to an {@link Arena} never sees chunks disappear.
+   */
+  private static final class Arena {
+
+    /**
+     * Vectors of the nodes, {@link #dimensions} floats per node.
+     */
+    private final float[][] vectors;
+
+    /**
+     * Euclidean norms of the vectors; only maintained for {@link Metric#COSINE}.
+     */
+    private final float[][] norms;
+
+    /**
+     * Links of the lowest layer, 1 + {@link #m0} ints per node: the number of links followed by the links.
+     */
+    private final int[][] links;
+
+    /**
+     * Identifiers of the nodes.
+     */
+    private final String[][] ids;
+
+    private Arena(float[][] vectors, float[][] norms, int[][] links, String[][] ids) {
+      this.vectors = vectors;
+      this.norms = norms;
+      this.links = links;
+      this.ids = ids;
+    }
+  }
+
+  private final int dimensions;
+  private final Metric metric;
+
+  /**
+   * Maximum number of links per node on the upper layers (M) and on the lowest layer (2M).
+   */
+  private final int m;
+  private final int m0;
+
+  /**
+   * Size of the candidate list while inserting.
+   */
+  private final int efConstruction;
+
+  /**
+   * Normalization factor of the level distribution, 1 / ln(M).
+   */
+  private final double levelMultiplier;
+
+  private volatile Arena arena;
+
+  /**
+   * Links of the upper layers for all nodes above the lowest layer; one list of 1 + {@link #m} ints per layer.
+   */
+  private final Map<Integer, int[][]> upperLinks = new ConcurrentHashMap<>();
+
+  /**
+   * Current node of every identifier.
+   */
+  private final Map<String, Integer> nodes = new ConcurrentHashMap<>();
+
+  /**
+   * Number of allocated nodes.
+   */
+  private final AtomicInteger allocated = new AtomicInteger();
+
+  private final Object[] locks = new Object[LOCK_STRIPES];
+
+  /**
+   * Held while a node that may become the new entry point is inserted. The entry point and maximum level are read without it.
+   */
+  private final Object entryLock = new Object();
+  private volatile int entryPoint = -1;
+  private volatile int maxLevel = -1;
+
+  /**
+   * Insertions hold the read lock, persisting holds the write lock.
+   */
+  private final ReentrantReadWriteLock persistence = new ReentrantReadWriteLock();
+
+  /**
+   * Creates an empty {@link HnswIndex}.
+   *
+   * @param dimensions     Dimensionality of the vectors.
+   * @param metric         The {@link Metric} used to compare vectors.
+   * @param m              Maximum number of links per node on the upper layers; twice as many are kept on the lowest layer.
+   * @param efConstruction Size of the candidate list while inserting.
+   */
+  public HnswIndex(int dimensions, Metric metric, int m, int efConstruction) {
+    if (dimensions < 1 || m < 2) {
+      throw new IllegalArgumentException("An HNSW index requires at least one dimension and m >= 2.");
+    }
+    this.dimensions = dimensions;
+    this.metric = metric;
+    this.m = m;
+    this.m0 = 2 * m;
+    this.efConstruction = Math.max(efConstruction, m);
+    this.levelMultiplier = 1.0 / Math.log(m);
+    this.arena = new Arena(new float[0][], new float[0][], new int[0][], new String[0][]);
+    for (int i = 0; i < LOCK_STRIPES; i++) {
+      this.locks[i] = new Object();
+    }
+  }
+
+  public int dimensions() {
+    return this.dimensions;
+  }
+
+  public Metric metric() {
+    return this.metric;
+  }
+
+  /**
+   * Returns the number of distinct identifiers in this {@link HnswIndex}.
+   */
+  public int size() {
+    return this.nodes.size();
+  }
+
+  /**
+   * Adds a vector. May be called concurrently.
+   *
+   * @param id     Identifier of the vector.
+   * @param vector The vector; it is copied.
+   */
+  public void add(String id, float[] vector) {
+    if (vector.length != this.dimensions) {
+      throw new IllegalArgumentException("Expected a vector of " + this.dimensions + " dimensions but got " + vector.length + ".");
+    }
+    this.persistence.readLock().lock();
+    try {
+      final int level = (int) Math.min(MAX_LEVEL, -Math.log(1.0 - ThreadLocalRandom.current().nextDouble()) * this.levelMultiplier);
+      final int node = this.allocate(id, vector, level);
+      if (level > this.maxLevel) {
+        /* Nodes raising the maximum level are rare; they are linked while holding the entry lock, such that no other node can claim a higher level meanwhile. */
+        synchronized (this.entryLock) {
+          if (this.entryPoint >= 0) {
+            this.link(node, level, this.entryPoint, this.maxLevel);
+          }
+          if (level > this.maxLevel) {
+            this.entryPoint = node;
+            this.maxLevel = level;
+          }
+        }
+      } else {
+        /* The entry point is only replaced by a node on a higher level, hence it is fine to observe an outdated pair. */
+        final int top = this.maxLevel;
+        this.link(node, level, this.entryPoint, top);
+      }
+      this.nodes.put(id, node);
+    } finally {
+      this.persistence.readLock().unlock();
+    }
+  }
+
+  /**
+   * Returns the approximate k nearest neighbours of the query vector.
+   *
+   * @param k        Number of neighbours to return.
+   * @param query    The query vector.
+   * @param ef       Size of the candidate list; larger values increase recall and latency.
+   * @param relevant Identifiers the result is restricted to; null or empty for no restriction.
+   * @param type     Class of the {@link DistanceElement}s to create.
+   * @return List of at most k {@link DistanceElement}s sorted by ascending distance.
+   */
+  public <E extends DistanceElement> List<E> nearest(int k, float[] query, int ef, Set<String> relevant, Class<E> type) {
+    if (query.length != this.dimensions) {
+      throw new IllegalArgumentException("Expected a query vector of " + this.dimensions + " dimensions but got " + query.length + ".");
+    }
+    final int top = this.maxLevel;
+    final int entry = this.entryPoint;
+    if (entry < 0 || k <= 0) {
+      return Collections.emptyList();
+    }
+    final float queryNorm = norm(query, 0, this.dimensions);
+    final SearchContext context = CONTEXT.get();
+    context.ensure(this.m0);
+
+    IntHashSet allowed = null;
+    int candidates = Math.max(ef, k);
+    if (relevant != null && !relevant.isEmpty()) {
+      allowed = new IntHashSet(relevant.size());
+      for (String id : relevant) {
+        final Integer node = this.nodes.get(id);
+        if (node != null) {
+          allowed.add(node);
+        }
+      }
+      if (allowed.isEmpty()) {
+        return Collections.emptyList();
+      }
+      /* A graph search has to visit about ef / selectivity nodes to find ef allowed ones; if that exceeds the number of allowed nodes, evaluating them directly is cheaper and exact. */
+      final double selectivity = (double) allowed.size() / Math.max(1, this.nodes.size());
+      if ((double) candidates * this.m0 / selectivity >= allowed.size()) {
+        return this.exhaustive(k, query, queryNorm, allowed, type);
+      }
+      candidates = (int) Math.min(this.nodes.size(), Math.ceil(candidates / selectivity));
+    }
+
+    int current = entry;
+    for (int level = top; level > 0; level--) {
+      current = this.greedy(query, 0, queryNorm, current, level, context);
+    }
+    this.searchLayer(query, 0, queryNorm, current, candidates, 0, allowed, context);
+
+    final int found = context.results.size();
+    final int[] resultNodes = new int[found];
+    final double[] resultDistances = new double[found];
+    for (int i = found - 1; i >= 0; i--) {
+      resultDistances[i] = context.results.topKey();
+      resultNodes[i] = context.results.pop();
+    }
+    final List<E> results = new ArrayList<>(Math.min(k, found));
+    for (int i = 0; i < found && results.size() < k; i++) {
+      final String id = this.id(resultNodes[i]);
+      if (this.isCurrent(id, resultNodes[i])) {
+        results.add(DistanceElement.create(type, id, this.external(resultDistances[i])));
+      }
+    }
+    return results;
+  }
+
+  /**
+   * Persists this {@link HnswIndex} to a file through memory-mapped buffers. Insertions are blocked while the index is persisted. The file is written to a temporary file first and moved into place afterwards.
+   *
+   * @param path  Path of the file.
+   * @param stamp Caller-defined value stored alongside the index, e.g. to identify the version of the indexed data.
+   */
+  public void save(Path path, long stamp) throws IOException {
+    this.persistence.writeLock().lock();
+    try {
+      final Path temporary = path.resolveSibling(path.getFileName() + ".tmp");
+      final Arena arena = this.arena;
+      final int size = this.allocated.get();
+      try (MappedOutput out = new MappedOutput(temporary)) {
+        out.putInt(MAGIC);
+        out.putInt(VERSION);
+        out.putInt(this.dimensions);
+        out.putInt(this.metric.ordinal());
+        out.putInt(this.m);
+        out.putInt(this.efConstruction);
+        out.putInt(size);
+        out.putInt(this.entryPoint);
+        out.putInt(this.maxLevel);
+        out.putLong(stamp);
+        for (int node = 0; node < size; node++) {
+          final byte[] id = this.id(node).getBytes(StandardCharsets.UTF_8);
+          out.putInt(id.length);
+          out.putBytes(id);
+        }
+        for (int chunk = 0; chunk * CHUNK_SIZE < size; chunk++) {
+          final int count = Math.min(CHUNK_SIZE, size - chunk * CHUNK_SIZE);
+          out.putInts(arena.links[chunk], 0, count * (1 + this.m0));
+          out.putFloats(arena.vectors[chunk], 0, count * this.dimensions);
+        }
+        out.putInt(this.upperLinks.size());
+        for (Map.Entry<Integer, int[][]> entry : this.upperLinks.entrySet()) {
+          out.putInt(entry.getKey());
+          out.putInt(entry.getValue().length);
+          for (int[] links : entry.getValue()) {
+            out.putInts(links, 0, links.length);
+          }
+        }
+      }
+      Files.move(temporary, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    } finally {
+      this.persistence.writeLock().unlock();
+    }
+  }
+
+  /**
+   * Loads a {@link HnswIndex} persisted by {@link #save(Path, long)} through memory-mapped buffers.
+   *
+   * @param path  Path of the file.
+   * @param stamp The value the index must have been saved with.
+   * @return The {@link HnswIndex} or an empty {@link Optional}, if the file does not exist, was saved with a different stamp or cannot be read.
+   */
+  public static Optional<HnswIndex> load(Path path, long stamp) {
+    if (!Files.isRegularFile(path)) {
+      return Optional.empty();
+    }
+    try (MappedInput in = new MappedInput(path)) {
+      if (in.getInt() != MAGIC || in.getInt() != VERSION) {
+        LOGGER.warn("{} is not an HNSW index of a supported version.", path);
+        return Optional.empty();
+      }
+      final int dimensions = in.getInt();
+      final Metric metric = Metric.values()[in.getInt()];
+      final int m = in.getInt();
+      final int efConstruction = in.getInt();
+      final int size = in.getInt();
+      final int entryPoint = in.getInt();
+      final int maxLevel = in.getInt();
+      if (in.getLong() != stamp) {
+        LOGGER.debug("HNSW index {} is outdated.", path);
+        return Optional.empty();
+      }
+      final HnswIndex index = new HnswIndex(dimensions, metric, m, efConstruction);
+      index.grow(size == 0 ? -1 : (size - 1) >>> CHUNK_BITS);
+      final Arena arena = index.arena;
+      for (int node = 0; node < size; node++) {
+        final byte[] id = new byte[in.getInt()];
+        in.getBytes(id);
+        arena.ids[node >>> CHUNK_BITS][node & CHUNK_MASK] = new String(id, StandardCharsets.UTF_8);
+      }
+      for (int chunk = 0; chunk * CHUNK_SIZE < size; chunk++) {
+        final int count = Math.min(CHUNK_SIZE, size - chunk * CHUNK_SIZE);
+        in.getInts(arena.links[chunk], 0, count * (1 + index.m0));
+        in.getFloats(arena.vectors[chunk], 0, count * dimensions);
+        if (metric == Metric.COSINE) {
+          for (int i = 0; i < count; i++) {
+            arena.norms[chunk][i] = norm(arena.vectors[chunk], i * dimensions, dimensions);
+          }
+        }
+      }
+      final int upper = in.getInt();
+      for (int i = 0; i < upper; i++) {
+        final int node = in.getInt();
+        final int[][] links = new int[in.getInt()][1 + m];
+        for (int[] level : links) {
+          in.getInts(level, 0, level.length);
+        }
+        index.upperLinks.put(node, links);
+      }
+      for (int node = 0; node < size; node++) {
+        index.nodes.put(index.id(node), node);
+      }
+      index.allocated.set(size);
+      index.entryPoint = entryPoint;
+      index.maxLevel = maxLevel;
+      return Optional.of(index);
+    } catch (IOException | RuntimeException e) {
+      LOGGER.warn("Failed to load HNSW index {}: {}", path, e.getMessage());
+      return Optional.empty();
+    }
+  }
+
+  /**
+   * Allocates a node and stores its vector and identifier.
+   */
+  private int allocate(String id, float[] vector, int level) {
+    final int node = this.allocated.getAndIncrement();
+    final int chunk = node >>> CHUNK_BITS;
+    if (chunk >= this.arena.vectors.length) {
+      this.grow(chunk);
+    }
+    final Arena arena = this.arena;
+    final int offset = node & CHUNK_MASK;
+    System.arraycopy(vector, 0, arena.vectors[chunk], offset * this.dimensions, this.dimensions);
+    if (this.metric == Metric.COSINE) {
+      arena.norms[chunk][offset] = norm(vector, 0, this.dimensions);
+    }
+    arena.ids[chunk][offset] = id;
+    if (level > 0) {
+      this.upperLinks.put(node, new int[level][1 + this.m]);
+    }
+    return node;
+  }
+
+  /**
+   * Adds chunks to the arena until it contains the given chunk.
+   */
+  private void grow(int chunk) {
+    synchronized (this.locks) {
+      Arena arena = this.arena;
+      while (arena.vectors.length <= chunk) {
+        final int chunks = arena.vectors.length + 1;
+        final float[][] vectors = Arrays.copyOf(arena.vectors, chunks);
+        final float[][] norms = Arrays.copyOf(arena.norms, chunks);
+        final int[][] links = Arrays.copyOf(arena.links, chunks);
+        final String[][] ids = Arrays.copyOf(arena.ids, chunks);
+        vectors[chunks - 1] = new float[CHUNK_SIZE * this.dimensions];
+        norms[chunks - 1] = this.metric == Metric.COSINE ? new float[CHUNK_SIZE] : null;
+        links[chunks - 1] = new int[CHUNK_SIZE * (1 + this.m0)];
+        ids[chunks - 1] = new String[CHUNK_SIZE];
+        arena = new Arena(vectors, norms, links, ids);
+        this.arena = arena;
+      }
+    }
+  }
+
+  /**
+   * Links a freshly allocated node into the graph, starting the search at the given entry point.
+   */
+  private void link(int node, int level, int entry, int top) {
+    final Arena arena = this.arena;
+    final float[] vector = arena.vectors[node >>> CHUNK_BITS];
+    final int offset = (node & CHUNK_MASK) * this.dimensions;
+    final float norm = this.metric == Metric.COSINE ? arena.norms[node >>> CHUNK_BITS][node & CHUNK_MASK] : 0f;
+    final SearchContext context = CONTEXT.get();
+    context.ensure(this.m0);
+
+    int current = entry;
+    for (int l = top; l > level; l--) {
+      current = this.greedy(vector, offset, norm, current, l, context);
+    }
+    for (int l = Math.min(level, top); l >= 0; l--) {
+      this.searchLayer(vector, offset, norm, current, this.efConstruction, l, null, context);
+      final int found = context.results.size();
+      final int[] candidates = new int[found];
+      final double[] distances = new double[found];
+      for (int i = found - 1; i >= 0; i--) {
+        distances[i] = context.results.topKey();
+        candidates[i] = context.results.pop();
+      }
+      final int[] selected = this.select(candidates, distances, found, l == 0 ? this.m0 : this.m, node);
+      synchronized (this.lock(node)) {
+        final int[] links = this.links(node, l);
+        final int base = l == 0 ? (node & CHUNK_MASK) * (1 + this.m0) : 0;
+        System.arraycopy(selected, 0, links, base + 1, selected.length);
+        links[base] = selected.length;
+      }
+      for (int neighbour : selected) {
+        this.connect(neighbour, node, l);
+      }
+      if (found > 0) {
+        current = candidates[0];
+      }
+    }
+  }
+
+  /**
+   * Adds a link from a node to a new neighbour, pruning the links of the node if it has too many.
+   */
+  private void connect(int node, int neighbour, int level) {
+    final int max = level == 0 ? this.m0 : this.m;
+    synchronized (this.lock(node)) {
+      final Arena arena = this.arena;
+      final int[] links = this.links(node, level);
+      final int base = level == 0 ? (node & CHUNK_MASK) * (1 + this.m0) : 0;
+      final int count = links[base];
+      for (int i = 0; i < count; i++) {
+        if (links[base + 1 + i] == neighbour) {
+          return;
+        }
+      }
+      if (count < max) {
+        links[base + 1 + count] = neighbour;
+        links[base] = count + 1;
+        return;
+      }
+
+      /* Select the best links among the current ones and the new neighbour. */
+      final float[] vector = arena.vectors[node >>> CHUNK_BITS];
+      final int offset = (node & CHUNK_MASK) * this.dimensions;
+      final float norm = this.metric == Metric.COSINE ? arena.norms[node >>> CHUNK_BITS][node & CHUNK_MASK] : 0f;
+      final int[] candidates = new int[count + 1];
+      final double[] distances = new double[count + 1];
+      for (int i = 0; i <= count; i++) {
+        candidates[i] = i < count ? links[base + 1 + i] : neighbour;
+        distances[i] = this.distance(vector, offset, norm, candidates[i]);
+      }
+      sort(candidates, distances);
+      final int[] selected = this.select(candidates, distances, count + 1, max, node);
+      System.arraycopy(selected, 0, links, base + 1, selected.length);
+      links[base] = selected.length;
+    }
+  }
+
+  /**
+   * Selects neighbours by the heuristic of the HNSW paper: a candidate is only linked if it is closer to the node than to all neighbours selected before, which keeps links pointing in diverse directions.
+   *
+   * @param candidates Candidates sorted by ascending distance to the node.
+   * @param distances  Distances of the candidates to the node.
+   * @param count      Number of candidates.
+   * @param max        Maximum number of neighbours to select.
+   * @param node       The node itself, which is never selected.
+   */
+  private int[] select(int[] candidates, double[] distances, int count, int max, int node) {
+    final Arena arena = this.arena;
+    final int[] selected = new int[Math.min(count, max)];
+    int size = 0;
+    for (int i = 0; i < count && size < max; i++) {
+      final int candidate = candidates[i];
+      if (candidate == node) {
+        continue;
+      }
+      final float[] vector = arena.vectors[candidate >>> CHUNK_BITS];
+      final int offset = (candidate & CHUNK_MASK) * this.dimensions;
+      final float norm = this.metric == Metric.COSINE ? arena.norms[candidate >>> CHUNK_BITS][candidate & CHUNK_MASK] : 0f;
+      boolean diverse = true;
+      for (int j = 0; j < size && diverse; j++) {
+        diverse = this.distance(vector, offset, norm, selected[j]) >= distances[i];
+      }
+      if (diverse) {
+        selected[size++] = candidate;
+      }
+    }
+    return size == selected.length ? selected : Arrays.copyOf(selected, size);
+  }
+
+  /**
+   * Moves greedily towards the query on one of the upper layers.
+   *
+   * @return The closest node found.
+   */
+  private int greedy(float[] query, int queryOffset, float queryNorm, int entry, int level, SearchContext context) {
+    int current = entry;
+    double distance = this.distance(query, queryOffset, queryNorm, current);
+    boolean changed = true;
+    while (changed) {
+      changed = false;
+      final int count = this.copyLinks(current, level, context.neighbours);
+      for (int i = 0; i < count; i++) {
+        final int neighbour = context.neighbours[i];
+        final double d = this.distance(query, queryOffset, queryNorm, neighbour);
+        if (d < distance) {
+          distance = d;
+          current = neighbour;
+          changed = true;
+        }
+      }
+    }
+    return current;
+  }
+
+  /**
+   * Searches one layer for the ef nodes closest to the query; the result is left in {@link SearchContext#results}.
+   *
+   * @param allowed Nodes that may be part of the result; null to allow all nodes.
+   */
+  private void searchLayer(float[] query, int queryOffset, float queryNorm, int entry, int ef, int level, IntHashSet allowed, SearchContext context) {
+    final IntHashSet visited = context.visited;
+    final NodeHeap candidates = context.candidates;
+    final NodeHeap results = context.results;
+    visited.clear();
+    candidates.clear();
+    results.clear();
+
+    final double entryDistance = this.distance(query, queryOffset, queryNorm, entry);
+    visited.add(entry);
+    candidates.push(entry, -entryDistance);
+    if (allowed == null || allowed.contains(entry)) {
+      results.push(entry, entryDistance);
+    }
+    while (candidates.size() > 0) {
+      final double distance = -candidates.topKey();
+      final int current = candidates.pop();
+      if (results.size() >= ef && distance > results.topKey()) {
+        break;
+      }
+      final int count = this.copyLinks(current, level, context.neighbours);
+      for (int i = 0; i < count; i++) {
+        final int neighbour = context.neighbours[i];
+        if (!visited.add(neighbour)) {
+          continue;
+        }
+        final double d = this.distance(query, queryOffset, queryNorm, neighbour);
+        if (results.size() < ef || d < results.topKey()) {
+          candidates.push(neighbour, -d);
+          if (allowed == null || allowed.contains(neighbour)) {
+            results.push(neighbour, d);
+            if (results.size() > ef) {
+              results.pop();
+            }
+          }
+        }
+      }
+    }
+  }
+
+  /**
+   * Evaluates the query against all allowed nodes.
+   */
+  private <E extends DistanceElement> List<E> exhaustive(int k, float[] query, float queryNorm, IntHashSet allowed, Class<E> type) {
+    final NodeHeap results = new NodeHeap(k + 1);
+    allowed.forEach((IntProcedure) node -> {
+      final double d = this.distance(query, 0, queryNorm, node);
+      if (results.size() < k || d < results.topKey()) {
+        results.push(node, d);
+        if (results.size() > k) {
+          results.pop();
+        }
+      }
+    });
+    final int found = results.size();
+    final List<E> list = new ArrayList<>(Collections.nCopies(found, null));
+    for (int i = found - 1; i >= 0; i--) {
+      final double d = results.topKey();
+      final int node = results.pop();
+      list.set(i, DistanceElement.create(type, this.id(node), this.external(d)));
+    }
+    return list;
+  }
+
+  /**
+   * Copies the links of a node on the given layer into the buffer.
+   *
+   * @return Number of links.
+   */
+  private int copyLinks(int node, int level, int[] buffer) {
+    synchronized (this.lock(node)) {
+      final int[] links = this.links(node, level);
+      if (links == null) {
+        return 0;
+      }
+      final int base = level == 0 ? (node & CHUNK_MASK) * (1 + this.m0) : 0;
+      final int count = links[base];
+      System.arraycopy(links, base + 1, buffer, 0, count);
+      return count;
+    }
+  }
+
+  /**
+   * Returns the array holding the links of a node on the given layer. On the lowest layer, this is a chunk of the arena.
+   */
+  private int[] links(int node, int level) {
+    if (level == 0) {
+      return this.arena.links[node >>> CHUNK_BITS];
+    }
+    final int[][] upper = this.upperLinks.get(node);
+    return upper == null || upper.length < level ? null : upper[level - 1];
+  }
+
+  private Object lock(int node) {
+    return this.locks[node & (LOCK_STRIPES - 1)];
+  }
+
+  private boolean isCurrent(String id, int node) {
+    final Integer current = this.nodes.get(id);
+    return current == null || current == node;
+  }
+
+  /**
+   * Returns the distance between a vector and a node, as used internally (squared for {@link Metric#EUCLIDEAN}). The arena is read for every call, since the node may have been added after the caller started.
+   */
+  private double distance(float[] vector, int offset, float norm, int node) {
+    final Arena arena = this.arena;
+    final int chunk = node >>> CHUNK_BITS;
+    final float[] other = arena.vectors[chunk];
+    final int otherOffset = (node & CHUNK_MASK) * this.dimensions;
+    switch (this.metric) {
+      case MANHATTAN: {
+        double sum = 0.0;
+        for (int i = 0; i < this.dimensions; i++) {
+          sum += Math.abs(vector[offset + i] - other[otherOffset + i]);
+        }
+        return sum;
+      }
+      case COSINE: {
+        double dot = 0.0;
+        for (int i = 0; i < this.dimensions; i++) {
+          dot += vector[offset + i] * other[otherOffset + i];
+        }
+        final double div = (double) norm * arena.norms[chunk][node & CHUNK_MASK];
+        return div < 1e-6 ? 1.0 : 1.0 - dot / div;
+      }
+      default: {
+        double sum = 0.0;
+        for (int i = 0; i < this.dimensions; i++) {
+          final double d = vector[offset + i] - other[otherOffset + i];
+          sum += d * d;
+        }
+        return sum;
+      }
+    }
+  }
+
+  /**
+   * Converts an internal distance to the distance of the {@link Metric}.
+   */
+  private double external(double distance) {
+    return this.metric == Metric.EUCLIDEAN ? Math.sqrt(distance) : distance;
+  }
+
+  private String id(int node) {
+    return this.arena.ids[node >>> CHUNK_BITS][node & CHUNK_MASK];
+  }
+
+  private static float norm(float[] vector, int offset, int length) {
+    double sum = 0.0;
+    for (int i = 0; i < length; i++) {
+      sum += vector[offset + i] * vector[offset + i];
+    }
+    return (float) Math.sqrt(sum);
+  }
+
+  /**
+   * Sorts nodes by ascending distance (insertion sort; the arrays hold at most 2M + 1 elements).
+   */
+  private static void sort(int[] nodes, double[] distances) {
+    for (int i = 1; i < nodes.length; i++) {
+      final int node = nodes[i];
+      final double distance = distances[i];
+      int j = i - 1;
+      while (j >= 0 && distances[j] > distance) {
+        nodes[j + 1] = nodes[j];
+        distances[j + 1] = distances[j];
+        j--;
+      }
+      nodes[j + 1] = node;
+      distances[j + 1] = distance;
+    }
+  }
+
+  /**
+   * Reusable search state of a thread.
+   */
+  private static final class SearchContext {
+
+    private final IntHashSet visited = new IntHashSet();
+
+    /**
+     * Candidates to expand, keyed by the negated distance such that the closest candidate is on top.
+     */
+    private final NodeHeap candidates = new NodeHeap(256);
+
+    /**
+     * The best nodes found, keyed by distance such that the worst node is on top.
+     */
+    private final NodeHeap results = new NodeHeap(256);
+
+    private int[] neighbours = new int[0];
+
+    private void ensure(int links) {
+      if (this.neighbours.length < links) {
+        this.neighbours = new int[links];
+      }
+    }
+  }
+}
@@ -0,0 +1,89 @@
+package org.vitrivr.cineast.core.util.knn;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Sequential reader that maps successive windows of a file.
+ */
+final class MappedInput implements Closeable {
+
+  private static final int WINDOW = 1 << 26;
+
+  private final FileChannel channel;
+  private final long size;
+  private MappedByteBuffer buffer;
+  private long base;
+
+  MappedInput(Path path) throws IOException {
+    this.channel = FileChannel.open(path, StandardOpenOption.READ);
+    this.size = this.channel.size();
+    this.map(0);
+  }
+
+  private void map(long position) throws IOException {
+    this.base = position;
+    this.buffer = this.channel.map(FileChannel.MapMode.READ_ONLY, position, Math.min(WINDOW, this.size - position));
+  }
+
+  private void ensure(int bytes) throws IOException {
+    if (this.buffer.remaining() < bytes) {
+      final long position = this.base + this.buffer.position();
+      if (this.size - position < bytes) {
+        throw new IOException("Unexpected end of file.");
+      }
+      this.map(position);
+    }
+  }
+
+  int getInt() throws IOException {
+    this.ensure(Integer.BYTES);
+    return this.buffer.getInt();
+  }
+
+  long getLong() throws IOException {
+    this.ensure(Long.BYTES);
+    return this.buffer.getLong();
+  }
+
+  void getBytes(byte[] bytes) throws IOException {
+    int offset = 0;
+    while (offset < bytes.length) {
+      this.ensure(1);
+      final int count = Math.min(bytes.length - offset, this.buffer.remaining());
+      this.buffer.get(bytes, offset, count);
+      offset += count;
+    }
+  }
+
+  void getInts(int[] values, int offset, int length) throws IOException {
+    while (length > 0) {
+      this.ensure(Integer.BYTES);
+      final int count = Math.min(length, this.buffer.remaining() / Integer.BYTES);
+      this.buffer.asIntBuffer().get(values, offset, count);
+      this.buffer.position(this.buffer.position() + count * Integer.BYTES);
+      offset += count;
+      length -= count;
+    }
+  }
+
+  void getFloats(float[] values, int offset, int length) throws IOException {
+    while (length > 0) {
+      this.ensure(Float.BYTES);
+      final int count = Math.min(length, this.buffer.remaining() / Float.BYTES);
+      this.buffer.asFloatBuffer().get(values, offset, count);
+      this.buffer.position(this.buffer.position() + count * Float.BYTES);
+      offset += count;
+      length -= count;
+    }
+  }
+
+  @Override
+  public void close() throws IOException {
+    this.channel.close();
+  }
+}
@@ -0,0 +1,89 @@
+package org.vitrivr.cineast.core.util.knn;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Sequential writer that maps successive windows of a file.
+ */
+final class MappedOutput implements Closeable {
+
+  private static final int WINDOW = 1 << 26;
+
+  private final FileChannel channel;
+  private MappedByteBuffer buffer;
+  private long base;
+
+  MappedOutput(Path path) throws IOException {
+    this.channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.READ, StandardOpenOption.WRITE);
+    this.map(0);
+  }
+
+  private void map(long position) throws IOException {
+    if (this.buffer != null) {
+      this.buffer.force();
+    }
+    this.base = position;
+    this.buffer = this.channel.map(FileChannel.MapMode.READ_WRITE, position, WINDOW);
+  }
+
+  private void ensure(int bytes) throws IOException {
+    if (this.buffer.remaining() < bytes) {
+      this.map(this.base + this.buffer.position());
+    }
+  }
+
+  void putInt(int value) throws IOException {
+    this.ensure(Integer.BYTES);
+    this.buffer.putInt(value);
+  }
+
+  void putLong(long value) throws IOException {
+    this.ensure(Long.BYTES);
+    this.buffer.putLong(value);
+  }
+
+  void putBytes(byte[] bytes) throws IOException {
+    int offset = 0;
+    while (offset < bytes.length) {
+      this.ensure(1);
+      final int count = Math.min(bytes.length - offset, this.buffer.remaining());
+      this.buffer.put(bytes, offset, count);
+      offset += count;
+    }
+  }
+
+  void putInts(int[] values, int offset, int length) throws IOException {
+    while (length > 0) {
+      this.ensure(Integer.BYTES);
+      final int count = Math.min(length, this.buffer.remaining() / Integer.BYTES);
+      this.buffer.asIntBuffer().put(values, offset, count);
+      this.buffer.position(this.buffer.position() + count * Integer.BYTES);
+      offset += count;
+      length -= count;
+    }
+  }
+
+  void putFloats(float[] values, int offset, int length) throws IOException {
+    while (length > 0) {
+      this.ensure(Float.BYTES);
+      final int count = Math.min(length, this.buffer.remaining() / Float.BYTES);
+      this.buffer.asFloatBuffer().put(values, offset, count);
+      this.buffer.position(this.buffer.position() + count * Float.BYTES);
+      offset += count;
+      length -= count;
+    }
+  }
+
+  @Override
+  public void close() throws IOException {
+    final long end = this.base + this.buffer.position();
+    this.buffer.force();
+    this.channel.truncate(end);
+    this.channel.close();
+  }
+}
@@ -0,0 +1,77 @@
+package org.vitrivr.cineast.core.util.knn;
+
+import java.util.Arrays;
+
+/**
+ * Binary max-heap of nodes keyed by a double.
+ */
+final class NodeHeap {
+
+  private double[] keys;
+  private int[] nodes;
+  private int size;
+
+  NodeHeap(int capacity) {
+    this.keys = new double[Math.max(1, capacity)];
+    this.nodes = new int[Math.max(1, capacity)];
+  }
+
+  int size() {
+    return this.size;
+  }
+
+  void clear() {
+    this.size = 0;
+  }
+
+  double topKey() {
+    return this.keys[0];
+  }
+
+  void push(int node, double key) {
+    if (this.size == this.keys.length) {
+      this.keys = Arrays.copyOf(this.keys, this.size * 2);
+      this.nodes = Arrays.copyOf(this.nodes, this.size * 2);
+    }
+    int i = this.size++;
+    while (i > 0) {
+      final int parent = (i - 1) >>> 1;
+      if (this.keys[parent] >= key) {
+        break;
+      }
+      this.keys[i] = this.keys[parent];
+      this.nodes[i] = this.nodes[parent];
+      i = parent;
+    }
+    this.keys[i] = key;
+    this.nodes[i] = node;
+  }
+
+  /**
+   * Removes the node with the largest key and returns it.
+   */
+  int pop() {
+    final int top = this.nodes[0];
+    final double key = this.keys[--this.size];
+    final int node = this.nodes[this.size];
+    int i = 0;
+    while (true) {
+      int child = 2 * i + 1;
+      if (child >= this.size) {
+        break;
+      }
+      if (child + 1 < this.size && this.keys[child + 1] > this.keys[child]) {
+        child++;
+      }
+      if (this.keys[child] <= key) {
+        break;
+      }
+      this.keys[i] = this.keys[child];
+      this.nodes[i] = this.nodes[child];
+      i = child;
+    }
+    this.keys[i] = key;
+    this.nodes[i] = node;
+    return top;
+  }
+}
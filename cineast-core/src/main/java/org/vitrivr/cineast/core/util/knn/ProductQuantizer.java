@@ -0,0 +1,200 @@
+package org.vitrivr.cineast.core.util.knn;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.stream.IntStream;
+
+/**
+ * Splits vectors into subspaces and encodes every subvector by the index of the nearest of 256 centroids, which are learned by k-means on a training sample (Jégou et al., 2011). A vector is reduced to one byte per subspace.
+ * <p>
+ * Distances are computed asymmetrically: the distances between the query and all centroids are tabulated once per query, after which the distance to an encoded vector is the sum of one table entry per subspace.
+ * <p>
+ * Manhattan distances are additive over subspaces as well, hence they are tabulated the same way; centroids are learned with the Euclidean distance in either case.
+ */
+final class ProductQuantizer implements VectorQuantizer {
+
+  static final int TYPE = 2;
+
+  /**
+   * Number of centroids per subspace.
+   */
+  private static final int CENTROIDS = 256;
+
+  /**
+   * Number of k-means iterations while training.
+   */
+  private static final int ITERATIONS = 12;
+
+  private final int dimensions;
+
+  /**
+   * Boundaries of the subspaces; subspace s spans the dimensions [bounds[s], bounds[s + 1]).
+   */
+  private final int[] bounds;
+
+  /**
+   * Centroids of every subspace, {@link #CENTROIDS} subvectors per subspace.
+   */
+  private final float[][] centroids;
+
+  private ProductQuantizer(int dimensions, int[] bounds, float[][] centroids) {
+    this.dimensions = dimensions;
+    this.bounds = bounds;
+    this.centroids = centroids;
+  }
+
+  /**
+   * Learns the centroids of every subspace from a sample of vectors.
+   *
+   * @param sample     The training vectors.
+   * @param dimensions Number of dimensions of the vectors.
+   * @param subspaces  Number of subspaces, i.e., bytes per encoded vector.
+   */
+  static ProductQuantizer train(List<float[]> sample, int dimensions, int subspaces) {
+    final int count = Math.max(1, Math.min(subspaces, dimensions));
+    final int[] bounds = new int[count + 1];
+    for (int s = 0; s <= count; s++) {
+      bounds[s] = (int) ((long) s * dimensions / count);
+    }
+    /* Subspaces are independent of each other. */
+    final float[][] centroids = new float[count][];
+    IntStream.range(0, count).parallel().forEach(s -> centroids[s] = kmeans(sample, bounds[s], bounds[s + 1] - bounds[s], new SplittableRandom(s)));
+    return new ProductQuantizer(dimensions, bounds, centroids);
+  }
+
+  /**
+   * Runs Lloyd's algorithm on one subspace of the sample, starting from randomly chosen sample vectors. Empty clusters are re-seeded with random sample vectors.
+   */
+  private static float[] kmeans(List<float[]> sample, int offset, int length, SplittableRandom random) {
+    final float[] centroids = new float[CENTROIDS * length];
+    if (sample.isEmpty()) {
+      return centroids;
+    }
+    for (int c = 0; c < CENTROIDS; c++) {
+      System.arraycopy(sample.get(random.nextInt(sample.size())), offset, centroids, c * length, length);
+    }
+    final int[] assignments = new int[sample.size()];
+    final double[] sums = new double[CENTROIDS * length];
+    final int[] sizes = new int[CENTROIDS];
+    for (int iteration = 0; iteration < ITERATIONS; iteration++) {
+      boolean changed = false;
+      for (int i = 0; i < assignments.length; i++) {
+        final int nearest = nearest(centroids, sample.get(i), offset, length);
+        changed |= iteration == 0 || nearest != assignments[i];
+        assignments[i] = nearest;
+      }
+      if (!changed) {
+        break;
+      }
+      Arrays.fill(sums, 0.0);
+      Arrays.fill(sizes, 0);
+      for (int i = 0; i < assignments.length; i++) {
+        final float[] vector = sample.get(i);
+        final int base = assignments[i] * length;
+        for (int d = 0; d < length; d++) {
+          sums[base + d] += vector[offset + d];
+        }
+        sizes[assignments[i]]++;
+      }
+      for (int c = 0; c < CENTROIDS; c++) {
+        if (sizes[c] == 0) {
+          System.arraycopy(sample.get(random.nextInt(sample.size())), offset, centroids, c * length, length);
+          continue;
+        }
+        for (int d = 0; d < length; d++) {
+          centroids[c * length + d] = (float) (sums[c * length + d] / sizes[c]);
+        }
+      }
+    }
+    return centroids;
+  }
+
+  /**
+   * Returns the index of the centroid nearest to a subvector.
+   */
+  private static int nearest(float[] centroids, float[] vector, int offset, int length) {
+    int nearest = 0;
+    float best = Float.POSITIVE_INFINITY;
+    for (int c = 0; c < CENTROIDS; c++) {
+      float sum = 0f;
+      for (int d = 0; d < length && sum < best; d++) {
+        final float difference = vector[offset + d] - centroids[c * length + d];
+        sum += difference * difference;
+      }
+      if (sum < best) {
+        best = sum;
+        nearest = c;
+      }
+    }
+    return nearest;
+  }
+
+  static ProductQuantizer read(MappedInput in) throws IOException {
+    final int dimensions = in.getInt();
+    final int[] bounds = new int[in.getInt()];
+    in.getInts(bounds, 0, bounds.length);
+    final float[][] centroids = new float[bounds.length - 1][];
+    for (int s = 0; s < centroids.length; s++) {
+      centroids[s] = new float[CENTROIDS * (bounds[s + 1] - bounds[s])];
+      in.getFloats(centroids[s], 0, centroids[s].length);
+    }
+    return new ProductQuantizer(dimensions, bounds, centroids);
+  }
+
+  @Override
+  public int dimensions() {
+    return this.dimensions;
+  }
+
+  @Override
+  public int codeSize() {
+    return this.centroids.length;
+  }
+
+  @Override
+  public void encode(float[] vector, byte[] codes, int offset) {
+    for (int s = 0; s < this.centroids.length; s++) {
+      codes[offset + s] = (byte) nearest(this.centroids[s], vector, this.bounds[s], this.bounds[s + 1] - this.bounds[s]);
+    }
+  }
+
+  @Override
+  public void decode(byte[] codes, int offset, float[] vector) {
+    for (int s = 0; s < this.centroids.length; s++) {
+      final int length = this.bounds[s + 1] - this.bounds[s];
+      System.arraycopy(this.centroids[s], (codes[offset + s] & 0xFF) * length, vector, this.bounds[s], length);
+    }
+  }
+
+  @Override
+  public DistanceTable table(float[] query, boolean manhattan) {
+    final int subspaces = this.centroids.length;
+    final float[] table = new float[subspaces * CENTROIDS];
+    for (int s = 0; s < subspaces; s++) {
+      final int offset = this.bounds[s];
+      final int length = this.bounds[s + 1] - offset;
+      for (int c = 0; c < CENTROIDS; c++) {
+        float sum = 0f;
+        for (int d = 0; d < length; d++) {
+          final float difference = query[offset + d] - this.centroids[s][c * length + d];
+          sum += manhattan ? Math.abs(difference) : difference * difference;
+        }
+        table[s * CENTROIDS + c] = sum;
+      }
+    }
+    return new LookupTable(table);
+  }
+
+  @Override
+  public void write(MappedOutput out) throws IOException {
+    out.putInt(TYPE);
+    out.putInt(this.dimensions);
+    out.putInt(this.bounds.length);
+    out.putInts(this.bounds, 0, this.bounds.length);
+    for (float[] subspace : this.centroids) {
+      out.putFloats(subspace, 0, subspace.length);
+    }
+  }
+}
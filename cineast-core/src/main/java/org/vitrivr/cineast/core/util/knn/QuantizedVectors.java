@@ -0,0 +1,404 @@
+package org.vitrivr.cineast.core.util.knn;
+
+import java.io.IOException;
+import java.nio.FloatBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.SplittableRandom;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.vitrivr.cineast.core.data.distance.DistanceElement;
+import org.vitrivr.cineast.core.util.knn.HnswIndex.Metric;
+
+/**
+ * Quantized copy of a set of float vectors, used to answer nearest neighbour queries in two phases: a scan over the compact codes selects the most promising candidates by their approximate distance, which are then re-ranked by their exact distance.
+ * <p>
+ * Only the codes are held on the heap. The full-precision vectors are kept in a file next to the codes, which is memory-mapped and only touched for re-ranking. For the cosine distance, vectors are normalized before they are quantized, such that the distance can be derived from the Euclidean distance between the normalized vectors.
+ */
+public final class QuantizedVectors {
+
+  private static final Logger LOGGER = LogManager.getLogger();
+
+  /**
+   * Magic numbers and version of the files written by {@link #build(Path, long, Metric, Quantization, int, int, Iterator)}.
+   */
+  private static final int MAGIC = 0x51564543;
+  private static final int RAW_MAGIC = 0x52415756;
+  private static final int VERSION = 1;
+
+  /**
+   * Size of the header of the file holding the full-precision vectors.
+   */
+  private static final int RAW_HEADER = 3 * Integer.BYTES + Long.BYTES;
+
+  /**
+   * Number of codes per chunk.
+   */
+  private static final int CHUNK_BITS = 14;
+  private static final int CHUNK_SIZE = 1 << CHUNK_BITS;
+  private static final int CHUNK_MASK = CHUNK_SIZE - 1;
+
+  /**
+   * Maximum size of a memory-mapped window of the full-precision vectors.
+   */
+  private static final int WINDOW = 1 << 30;
+
+  /**
+   * Available quantization schemes.
+   */
+  public enum Quantization {
+    /**
+     * 8 bits per dimension; reduces the size of the vectors by a factor of four.
+     */
+    SCALAR,
+    /**
+     * 8 bits per subspace; reduces the size of the vectors by a factor of four times the number of dimensions per subspace.
+     */
+    PRODUCT
+  }
+
+  private final Metric metric;
+  private final VectorQuantizer quantizer;
+  private final String[] ids;
+  private final byte[][] codes;
+
+  /**
+   * Memory-mapped windows of the full-precision vectors, {@link #rowsPerWindow} vectors per window.
+   */
+  private final FloatBuffer[] vectors;
+  private final int rowsPerWindow;
+
+  private QuantizedVectors(Metric metric, VectorQuantizer quantizer, String[] ids, byte[][] codes, FloatBuffer[] vectors, int rowsPerWindow) {
+    this.metric = metric;
+    this.quantizer = quantizer;
+    this.ids = ids;
+    this.codes = codes;
+    this.vectors = vectors;
+    this.rowsPerWindow = rowsPerWindow;
+  }
+
+  public int dimensions() {
+    return this.quantizer.dimensions();
+  }
+
+  public Metric metric() {
+    return this.metric;
+  }
+
+  public int size() {
+    return this.ids.length;
+  }
+
+  /**
+   * Number of bytes per vector held on the heap.
+   */
+  public int codeSize() {
+    return this.quantizer.codeSize();
+  }
+
+  /**
+   * Quantizes vectors and persists the codes to the given file and the full-precision vectors to a file next to it. The vectors are read once; the quantizer is trained on a uniform sample of them.
+   *
+   * @param path               Path of the file holding the codes.
+   * @param stamp              Caller-defined value stored alongside the codes, e.g. to identify the version of the quantized data.
+   * @param metric             The {@link Metric} of the queries.
+   * @param quantization       The {@link Quantization} to apply.
+   * @param subspaceDimensions Number of dimensions per subspace of a {@link Quantization#PRODUCT} quantization.
+   * @param samples            Maximum number of vectors the quantizer is trained on.
+   * @param source             Pairs of identifiers and vectors; vectors whose dimensionality differs from the first vector are skipped.
+   * @return The {@link QuantizedVectors} or an empty {@link Optional}, if the source holds no vectors.
+   */
+  public static Optional<QuantizedVectors> build(Path path, long stamp, Metric metric, Quantization quantization, int subspaceDimensions, int samples, Iterator<Map.Entry<String, float[]>> source) throws IOException {
+    final Path raw = raw(path);
+    final Path temporaryRaw = raw.resolveSibling(raw.getFileName() + ".tmp");
+    final List<String> ids = new ArrayList<>();
+    final List<float[]> sample = new ArrayList<>(Math.min(samples, 1 << 16));
+    final SplittableRandom random = new SplittableRandom(stamp);
+    int dimensions = -1;
+    try (MappedOutput out = new MappedOutput(temporaryRaw)) {
+      while (source.hasNext()) {
+        final Map.Entry<String, float[]> entry = source.next();
+        final float[] vector = entry.getValue();
+        if (dimensions < 0) {
+          if (vector.length == 0) {
+            continue;
+          }
+          dimensions = vector.length;
+          out.putInt(RAW_MAGIC);
+          out.putInt(VERSION);
+          out.putInt(dimensions);
+          out.putLong(stamp);
+        }
+        if (vector.length != dimensions) {
+          continue;
+        }
+        out.putFloats(vector, 0, dimensions);
+        ids.add(entry.getKey());
+        /* Reservoir sampling. */
+        if (sample.size() < samples) {
+          sample.add(normalized(metric, vector));
+        } else {
+          final int replaced = random.nextInt(ids.size());
+          if (replaced < samples) {
+            sample.set(replaced, normalized(metric, vector));
+          }
+        }
+      }
+    }
+    if (dimensions < 0) {
+      Files.deleteIfExists(temporaryRaw);
+      return Optional.empty();
+    }
+
+    final long start = System.currentTimeMillis();
+    final VectorQuantizer quantizer = quantization == Quantization.PRODUCT ? ProductQuantizer.train(sample, dimensions, (dimensions + subspaceDimensions - 1) / subspaceDimensions) : ScalarQuantizer.train(sample, dimensions);
+    LOGGER.debug("Trained {} quantizer on {} vectors in {} ms.", quantization, sample.size(), System.currentTimeMillis() - start);
+    sample.clear();
+
+    final int size = ids.size();
+    final int codeSize = quantizer.codeSize();
+    final byte[][] codes = new byte[(size + CHUNK_SIZE - 1) >>> CHUNK_BITS][];
+    try (MappedInput in = new MappedInput(temporaryRaw)) {
+      in.getBytes(new byte[RAW_HEADER]);
+      final float[] vector = new float[dimensions];
+      for (int row = 0; row < size; row++) {
+        final int chunk = row >>> CHUNK_BITS;
+        if (codes[chunk] == null) {
+          codes[chunk] = new byte[Math.min(CHUNK_SIZE, size - (chunk << CHUNK_BITS)) * codeSize];
+        }
+        in.getFloats(vector, 0, dimensions);
+        quantizer.encode(normalized(metric, vector), codes[chunk], (row & CHUNK_MASK) * codeSize);
+      }
+    }
+
+    final Path temporary = path.resolveSibling(path.getFileName() + ".tmp");
+    try (MappedOutput out = new MappedOutput(temporary)) {
+      out.putInt(MAGIC);
+      out.putInt(VERSION);
+      out.putInt(metric.ordinal());
+      out.putInt(size);
+      out.putLong(stamp);
+      quantizer.write(out);
+      for (String id : ids) {
+        final byte[] bytes = id.getBytes(StandardCharsets.UTF_8);
+        out.putInt(bytes.length);
+        out.putBytes(bytes);
+      }
+      for (byte[] chunk : codes) {
+        out.putBytes(chunk);
+      }
+    }
+    Files.move(temporaryRaw, raw, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    Files.move(temporary, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    final int rowsPerWindow = rowsPerWindow(dimensions);
+    return Optional.of(new QuantizedVectors(metric, quantizer, ids.toArray(new String[0]), codes, map(raw, dimensions, size, rowsPerWindow), rowsPerWindow));
+  }
+
+  /**
+   * Loads {@link QuantizedVectors} persisted by {@link #build(Path, long, Metric, Quantization, int, int, Iterator)}.
+   *
+   * @param path  Path of the file holding the codes.
+   * @param stamp The value the codes must have been built with.
+   * @return The {@link QuantizedVectors} or an empty {@link Optional}, if the files do not exist, were built with a different stamp or cannot be read.
+   */
+  public static Optional<QuantizedVectors> load(Path path, long stamp) {
+    final Path raw = raw(path);
+    if (!Files.isRegularFile(path) || !Files.isRegularFile(raw)) {
+      return Optional.empty();
+    }
+    try (MappedInput in = new MappedInput(path)) {
+      if (in.getInt() != MAGIC || in.getInt() != VERSION) {
+        LOGGER.warn("{} does not hold quantized vectors of a supported version.", path);
+        return Optional.empty();
+      }
+      final Metric metric = Metric.values()[in.getInt()];
+      final int size = in.getInt();
+      if (in.getLong() != stamp) {
+        LOGGER.debug("Quantized vectors {} are outdated.", path);
+        return Optional.empty();
+      }
+      final VectorQuantizer quantizer = VectorQuantizer.read(in);
+      final String[] ids = new String[size];
+      for (int row = 0; row < size; row++) {
+        final byte[] id = new byte[in.getInt()];
+        in.getBytes(id);
+        ids[row] = new String(id, StandardCharsets.UTF_8);
+      }
+      final byte[][] codes = new byte[(size + CHUNK_SIZE - 1) >>> CHUNK_BITS][];
+      for (int chunk = 0; chunk < codes.length; chunk++) {
+        codes[chunk] = new byte[Math.min(CHUNK_SIZE, size - (chunk << CHUNK_BITS)) * quantizer.codeSize()];
+        in.getBytes(codes[chunk]);
+      }
+      try (MappedInput header = new MappedInput(raw)) {
+        if (header.getInt() != RAW_MAGIC || header.getInt() != VERSION || header.getInt() != quantizer.dimensions() || header.getLong() != stamp) {
+          LOGGER.debug("Full-precision vectors {} do not match {}.", raw, path);
+          return Optional.empty();
+        }
+      }
+      final int rowsPerWindow = rowsPerWindow(quantizer.dimensions());
+      return Optional.of(new QuantizedVectors(metric, quantizer, ids, codes, map(raw, quantizer.dimensions(), size, rowsPerWindow), rowsPerWindow));
+    } catch (IOException | RuntimeException e) {
+      LOGGER.warn("Failed to load quantized vectors {}: {}", path, e.getMessage());
+      return Optional.empty();
+    }
+  }
+
+  /**
+   * Returns the k nearest neighbours of the query. The k * rerank vectors with the smallest approximate distance are re-ranked by their exact distance.
+   *
+   * @param k        Number of neighbours to return.
+   * @param query    The query vector.
+   * @param rerank   Number of candidates re-ranked per requested neighbour; larger values increase recall and latency.
+   * @param relevant Identifiers the result is restricted to; null or empty for no restriction.
+   * @param type     Class of the {@link DistanceElement}s to create.
+   * @return List of at most k {@link DistanceElement}s sorted by ascending distance.
+   */
+  public <E extends DistanceElement> List<E> nearest(int k, float[] query, int rerank, Set<String> relevant, Class<E> type) {
+    if (query.length != this.dimensions()) {
+      throw new IllegalArgumentException("Expected a query vector of " + this.dimensions() + " dimensions but got " + query.length + ".");
+    }
+    if (k <= 0 || this.ids.length == 0) {
+      return Collections.emptyList();
+    }
+    final boolean filter = relevant != null && !relevant.isEmpty();
+    final int candidates = (int) Math.min(this.ids.length, (long) k * Math.max(1, rerank));
+    final VectorQuantizer.DistanceTable table = this.quantizer.table(normalized(this.metric, query), this.metric == Metric.MANHATTAN);
+    final int codeSize = this.quantizer.codeSize();
+
+    /* Phase 1: approximate distances of all codes. */
+    final NodeHeap heap = new NodeHeap(candidates);
+    for (int row = 0; row < this.ids.length; row++) {
+      if (filter && !relevant.contains(this.ids[row])) {
+        continue;
+      }
+      final double distance = table.distance(this.codes[row >>> CHUNK_BITS], (row & CHUNK_MASK) * codeSize);
+      if (heap.size() < candidates) {
+        heap.push(row, distance);
+      } else if (distance < heap.topKey()) {
+        heap.pop();
+        heap.push(row, distance);
+      }
+    }
+
+    /* Phase 2: exact distances of the candidates. */
+    final int found = heap.size();
+    final int[] rows = new int[found];
+    final double[] distances = new double[found];
+    final float[] vector = new float[this.dimensions()];
+    for (int i = 0; i < found; i++) {
+      rows[i] = heap.pop();
+      this.vector(rows[i], vector);
+      distances[i] = this.distance(query, vector);
+    }
+    final Integer[] order = new Integer[found];
+    for (int i = 0; i < found; i++) {
+      order[i] = i;
+    }
+    Arrays.sort(order, (a, b) -> Double.compare(distances[a], distances[b]));
+    final List<E> results = new ArrayList<>(Math.min(k, found));
+    for (int i = 0; i < Math.min(k, found); i++) {
+      results.add(DistanceElement.create(type, this.ids[rows[order[i]]], distances[order[i]]));
+    }
+    return results;
+  }
+
+  /**
+   * Copies the full-precision vector of a row into the buffer.
+   */
+  private void vector(int row, float[] buffer) {
+    final FloatBuffer window = this.vectors[row / this.rowsPerWindow];
+    window.get((row % this.rowsPerWindow) * buffer.length, buffer);
+  }
+
+  private double distance(float[] query, float[] vector) {
+    switch (this.metric) {
+      case MANHATTAN: {
+        double sum = 0.0;
+        for (int i = 0; i < query.length; i++) {
+          sum += Math.abs(query[i] - vector[i]);
+        }
+        return sum;
+      }
+      case COSINE: {
+        double dot = 0.0, a = 0.0, b = 0.0;
+        for (int i = 0; i < query.length; i++) {
+          dot += query[i] * vector[i];
+          a += query[i] * query[i];
+          b += vector[i] * vector[i];
+        }
+        final double norm = Math.sqrt(a) * Math.sqrt(b);
+        return norm < 1e-6 ? 1.0 : 1.0 - dot / norm;
+      }
+      default: {
+        double sum = 0.0;
+        for (int i = 0; i < query.length; i++) {
+          final double difference = query[i] - vector[i];
+          sum += difference * difference;
+        }
+        return this.metric == Metric.EUCLIDEAN ? Math.sqrt(sum) : sum;
+      }
+    }
+  }
+
+  /**
+   * Returns the vector scaled to unit length for the cosine distance and the vector itself otherwise.
+   */
+  private static float[] normalized(Metric metric, float[] vector) {
+    if (metric != Metric.COSINE) {
+      return vector;
+    }
+    double sum = 0.0;
+    for (float v : vector) {
+      sum += v * v;
+    }
+    final float[] normalized = new float[vector.length];
+    if (sum > 0.0) {
+      final float scale = (float) (1.0 / Math.sqrt(sum));
+      for (int i = 0; i < vector.length; i++) {
+        normalized[i] = vector[i] * scale;
+      }
+    }
+    return normalized;
+  }
+
+  /**
+   * Path of the file holding the full-precision vectors belonging to the given file of codes.
+   */
+  private static Path raw(Path path) {
+    return path.resolveSibling(path.getFileName() + ".vectors");
+  }
+
+  private static int rowsPerWindow(int dimensions) {
+    return Math.max(1, WINDOW / (dimensions * Float.BYTES));
+  }
+
+  /**
+   * Maps the full-precision vectors in windows of whole vectors. The mappings remain valid after the channel is closed.
+   */
+  private static FloatBuffer[] map(Path raw, int dimensions, int size, int rowsPerWindow) throws IOException {
+    final FloatBuffer[] windows = new FloatBuffer[(size + rowsPerWindow - 1) / rowsPerWindow];
+    try (FileChannel channel = FileChannel.open(raw, StandardOpenOption.READ)) {
+      if (channel.size() < RAW_HEADER + (long) size * dimensions * Float.BYTES) {
+        throw new IOException("File " + raw + " is truncated.");
+      }
+      for (int window = 0; window < windows.length; window++) {
+        final long rows = Math.min(rowsPerWindow, size - (long) window * rowsPerWindow);
+        final long position = RAW_HEADER + (long) window * rowsPerWindow * dimensions * Float.BYTES;
+        windows[window] = channel.map(FileChannel.MapMode.READ_ONLY, position, rows * dimensions * Float.BYTES).asFloatBuffer();
+      }
+    }
+    return windows;
+  }
+}
@@ -0,0 +1,103 @@
+package org.vitrivr.cineast.core.util.knn;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Quantizes every dimension independently to 8 bits, using the range of the dimension in the training sample. Reduces the size of a vector by a factor of four.
+ */
+final class ScalarQuantizer implements VectorQuantizer {
+
+  static final int TYPE = 1;
+
+  private final float[] min;
+  private final float[] scale;
+
+  private ScalarQuantizer(float[] min, float[] scale) {
+    this.min = min;
+    this.scale = scale;
+  }
+
+  /**
+   * Derives the range of every dimension from a sample of vectors.
+   */
+  static ScalarQuantizer train(List<float[]> sample, int dimensions) {
+    final float[] min = new float[dimensions];
+    final float[] max = new float[dimensions];
+    Arrays.fill(min, Float.POSITIVE_INFINITY);
+    Arrays.fill(max, Float.NEGATIVE_INFINITY);
+    for (float[] vector : sample) {
+      for (int d = 0; d < dimensions; d++) {
+        min[d] = Math.min(min[d], vector[d]);
+        max[d] = Math.max(max[d], vector[d]);
+      }
+    }
+    final float[] scale = new float[dimensions];
+    for (int d = 0; d < dimensions; d++) {
+      if (min[d] > max[d]) {
+        min[d] = 0f;
+        max[d] = 0f;
+      }
+      scale[d] = max[d] > min[d] ? (max[d] - min[d]) / 255f : 1f;
+    }
+    return new ScalarQuantizer(min, scale);
+  }
+
+  static ScalarQuantizer read(MappedInput in) throws IOException {
+    final int dimensions = in.getInt();
+    final float[] min = new float[dimensions];
+    final float[] scale = new float[dimensions];
+    in.getFloats(min, 0, dimensions);
+    in.getFloats(scale, 0, dimensions);
+    return new ScalarQuantizer(min, scale);
+  }
+
+  @Override
+  public int dimensions() {
+    return this.min.length;
+  }
+
+  @Override
+  public int codeSize() {
+    return this.min.length;
+  }
+
+  @Override
+  public void encode(float[] vector, byte[] codes, int offset) {
+    for (int d = 0; d < this.min.length; d++) {
+      final int code = Math.round((vector[d] - this.min[d]) / this.scale[d]);
+      codes[offset + d] = (byte) Math.max(0, Math.min(255, code));
+    }
+  }
+
+  @Override
+  public void decode(byte[] codes, int offset, float[] vector) {
+    for (int d = 0; d < this.min.length; d++) {
+      vector[d] = this.min[d] + (codes[offset + d] & 0xFF) * this.scale[d];
+    }
+  }
+
+  /**
+   * Tabulates the distance between the query and every quantization step of every dimension.
+   */
+  @Override
+  public DistanceTable table(float[] query, boolean manhattan) {
+    final float[] table = new float[this.min.length << 8];
+    for (int d = 0; d < this.min.length; d++) {
+      for (int code = 0; code < 256; code++) {
+        final float difference = query[d] - (this.min[d] + code * this.scale[d]);
+        table[(d << 8) | code] = manhattan ? Math.abs(difference) : difference * difference;
+      }
+    }
+    return new LookupTable(table);
+  }
+
+  @Override
+  public void write(MappedOutput out) throws IOException {
+    out.putInt(TYPE);
+    out.putInt(this.min.length);
+    out.putFloats(this.min, 0, this.min.length);
+    out.putFloats(this.scale, 0, this.scale.length);
+  }
+}
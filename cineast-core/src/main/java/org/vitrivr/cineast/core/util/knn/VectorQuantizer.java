@@ -0,0 +1,96 @@
+package org.vitrivr.cineast.core.util.knn;
+
+import java.io.IOException;
+
+/**
+ * Lossy encoding of float vectors into short byte codes, along with asymmetric distance computation between a full-precision query and encoded vectors.
+ */
+interface VectorQuantizer {
+
+  /**
+   * Distances between a fixed query and encoded vectors.
+   */
+  interface DistanceTable {
+
+    /**
+     * Returns the approximate distance between the query and the vector encoded at the given offset.
+     */
+    float distance(byte[] codes, int offset);
+  }
+
+  /**
+   * {@link DistanceTable} of an additive distance that tabulates the contribution of every code byte: entry (i &lt;&lt; 8 | c) holds the partial distance contributed by byte i having the value c.
+   */
+  final class LookupTable implements DistanceTable {
+
+    private final float[] table;
+    private final int length;
+
+    LookupTable(float[] table) {
+      this.table = table;
+      this.length = table.length >>> 8;
+    }
+
+    /**
+     * Sums the table entries with four independent accumulators, such that the additions do not wait for each other.
+     */
+    @Override
+    public float distance(byte[] codes, int offset) {
+      final float[] table = this.table;
+      float s0 = 0f, s1 = 0f, s2 = 0f, s3 = 0f;
+      int i = 0;
+      for (; i + 3 < this.length; i += 4) {
+        s0 += table[(i << 8) | (codes[offset + i] & 0xFF)];
+        s1 += table[((i + 1) << 8) | (codes[offset + i + 1] & 0xFF)];
+        s2 += table[((i + 2) << 8) | (codes[offset + i + 2] & 0xFF)];
+        s3 += table[((i + 3) << 8) | (codes[offset + i + 3] & 0xFF)];
+      }
+      for (; i < this.length; i++) {
+        s0 += table[(i << 8) | (codes[offset + i] & 0xFF)];
+      }
+      return (s0 + s1) + (s2 + s3);
+    }
+  }
+
+  int dimensions();
+
+  /**
+   * Number of bytes per encoded vector.
+   */
+  int codeSize();
+
+  /**
+   * Encodes a vector into {@link #codeSize()} bytes starting at the given offset.
+   */
+  void encode(float[] vector, byte[] codes, int offset);
+
+  /**
+   * Reconstructs the approximation of the vector encoded at the given offset, i.e. the vector the {@link DistanceTable}s measure the distance to.
+   */
+  void decode(byte[] codes, int offset, float[] vector);
+
+  /**
+   * Prepares the distance computation for a query.
+   *
+   * @param query     The full-precision query vector.
+   * @param manhattan If true, distances are Manhattan distances; otherwise they are squared Euclidean distances.
+   */
+  DistanceTable table(float[] query, boolean manhattan);
+
+  void write(MappedOutput out) throws IOException;
+
+  /**
+   * Reads a {@link VectorQuantizer} written by {@link #write(MappedOutput)}.
+   */
+  static VectorQuantizer read(MappedInput in) throws IOException {
+    final int type = in.getInt();
+    switch (type) {
+      case ScalarQuantizer.TYPE:
+        return ScalarQuantizer.read(in);
+      case ProductQuantizer.TYPE:
+        return ProductQuantizer.read(in);
+      default:
+        throw new IOException("Unknown quantizer type " + type + ".");
+    }
+  }
+}
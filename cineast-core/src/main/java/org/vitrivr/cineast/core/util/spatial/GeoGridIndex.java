@@ -0,0 +1,253 @@
+package org.vitrivr.cineast.core.util.spatial;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.PriorityQueue;
+import org.vitrivr.cineast.core.data.distance.DistanceElement;
+
+/**
+ * Immutable, in-memory grid index over geographic coordinates (latitude, longitude in degrees), which answers k-nearest-neighbour queries under the Haversine distance without evaluating every point.
+ * <p>
+ * The sphere is divided into cells of {@link #CELL_DEGREES} x {@link #CELL_DEGREES} degrees. Points are stored sorted by cell, such that the cells of a single latitude row that intersect a longitude interval form a contiguous range, which is found by binary search. A query evaluates the points in the bounding box of a spherical cap around the query point and doubles the radius of the cap until it contains k points; since all points outside the box are farther away than the radius, the result is exact.
+ */
+public final class GeoGridIndex {
+
+  /**
+   * Mean earth radius in meters.
+   */
+  public static final double EARTH_RADIUS = 6_371_000.0;
+
+  /**
+   * Size of a grid cell in degrees (roughly 1.1 km in latitude direction).
+   */
+  private static final double CELL_DEGREES = 0.01;
+
+  /**
+   * Number of cells per latitude row.
+   */
+  private static final int COLUMNS = (int) Math.round(360.0 / CELL_DEGREES);
+
+  /**
+   * Number of latitude rows.
+   */
+  private static final int ROWS = (int) Math.round(180.0 / CELL_DEGREES);
+
+  /**
+   * Radius of the first spherical cap searched in meters.
+   */
+  private static final double INITIAL_RADIUS = 1000.0;
+
+  /**
+   * Margin in degrees added to the bounding boxes, which guards against rounding errors.
+   */
+  private static final double MARGIN = 1e-5;
+
+  /**
+   * Identifiers of the points, sorted by cell.
+   */
+  private final String[] ids;
+
+  /**
+   * Latitudes of the points in degrees, sorted by cell.
+   */
+  private final float[] latitudes;
+
+  /**
+   * Longitudes of the points in degrees, sorted by cell.
+   */
+  private final float[] longitudes;
+
+  /**
+   * Cell of every point in ascending order.
+   */
+  private final int[] cells;
+
+  /**
+   * Creates a new {@link GeoGridIndex} from the first size entries of the provided arrays, which are not modified.
+   *
+   * @param ids        Identifiers of the points.
+   * @param latitudes  Latitudes of the points in degrees.
+   * @param longitudes Longitudes of the points in degrees.
+   * @param size       Number of points.
+   */
+  public GeoGridIndex(String[] ids, float[] latitudes, float[] longitudes, int size) {
+    if (size < 0 || ids.length < size || latitudes.length < size || longitudes.length < size) {
+      throw new IllegalArgumentException("Number of identifiers (" + ids.length + "), latitudes (" + latitudes.length + ") and longitudes (" + longitudes.length + ") must not be smaller than the number of points (" + size + ").");
+    }
+    final long[] order = new long[size];
+    for (int i = 0; i < size; i++) {
+      order[i] = ((long) cell(latitudes[i], longitudes[i]) << 32) | i;
+    }
+    Arrays.sort(order);
+
+    this.ids = new String[size];
+    this.latitudes = new float[size];
+    this.longitudes = new float[size];
+    this.cells = new int[size];
+    for (int i = 0; i < size; i++) {
+      final int index = (int) order[i];
+      this.ids[i] = ids[index];
+      this.latitudes[i] = latitudes[index];
+      this.longitudes[i] = longitudes[index];
+      this.cells[i] = (int) (order[i] >>> 32);
+    }
+  }
+
+  /**
+   * Returns the number of points in this {@link GeoGridIndex}.
+   */
+  public int size() {
+    return this.ids.length;
+  }
+
+  /**
+   * Returns the k points nearest to the query point, sorted by ascending Haversine distance (in meters).
+   *
+   * @param k         Number of points to return.
+   * @param latitude  Latitude of the query point in degrees.
+   * @param longitude Longitude of the query point in degrees.
+   * @param type      Class of the {@link DistanceElement}s to create.
+   * @return List of at most k {@link DistanceElement}s.
+   */
+  public <E extends DistanceElement> List<E> nearest(int k, float latitude, float longitude, Class<E> type) {
+    if (k <= 0 || this.ids.length == 0) {
+      return new ArrayList<>(0);
+    }
+    final int limit = Math.min(k, this.ids.length);
+    final double lat = Math.toRadians(latitude);
+    final double cosLat = Math.cos(lat);
+
+    double radius = INITIAL_RADIUS;
+    while (true) {
+      final boolean complete = radius >= Math.PI * EARTH_RADIUS;
+      final PriorityQueue<long[]> heap = new PriorityQueue<>(limit + 1, (a, b) -> Double.compare(Double.longBitsToDouble(b[0]), Double.longBitsToDouble(a[0])));
+      final double bound = radius;
+      this.scan(latitude, longitude, radius, i -> {
+        final double distance = haversine(lat, cosLat, longitude, this.latitudes[i], this.longitudes[i]);
+        if (complete || distance <= bound) {
+          if (heap.size() < limit) {
+            heap.add(new long[]{Double.doubleToLongBits(distance), i});
+          } else if (distance < Double.longBitsToDouble(heap.peek()[0])) {
+            heap.poll();
+            heap.add(new long[]{Double.doubleToLongBits(distance), i});
+          }
+        }
+      });
+
+      /* All points outside the searched box are farther away than the radius; hence, k points within the radius are the k nearest points. */
+      if (complete || heap.size() == limit) {
+        final List<E> result = new ArrayList<>(heap.size());
+        while (!heap.isEmpty()) {
+          final long[] entry = heap.poll();
+          result.add(DistanceElement.create(type, this.ids[(int) entry[1]], Double.longBitsToDouble(entry[0])));
+        }
+        Collections.reverse(result);
+        return result;
+      }
+      radius *= 2;
+    }
+  }
+
+  /**
+   * Consumer of point indices.
+   */
+  @FunctionalInterface
+  private interface PointConsumer {
+
+    void accept(int index);
+  }
+
+  /**
+   * Invokes the consumer for every point in the cells intersecting the bounding box of the spherical cap with the given radius around the query point.
+   */
+  private void scan(float latitude, float longitude, double radius, PointConsumer consumer) {
+    final double angle = radius / EARTH_RADIUS;
+    final double dLat = Math.toDegrees(angle) + MARGIN;
+    final double minLat = latitude - dLat;
+    final double maxLat = latitude + dLat;
+
+    /* The longitude extent of the cap; if the cap contains a pole, all longitudes are covered. */
+    double dLon = 360.0;
+    if (minLat > -90.0 && maxLat < 90.0 && angle < Math.PI / 2) {
+      final double ratio = Math.sin(angle) / Math.cos(Math.toRadians(latitude));
+      if (ratio < 1.0) {
+        dLon = Math.toDegrees(Math.asin(ratio)) + MARGIN;
+      }
+    }
+
+    final int minRow = row(minLat);
+    final int maxRow = row(maxLat);
+    for (int row = minRow; row <= maxRow; row++) {
+      final int base = row * COLUMNS;
+      if (dLon >= 180.0 - CELL_DEGREES) {
+        this.scan(base, base + COLUMNS - 1, consumer);
+      } else {
+        final int minColumn = column(longitude - dLon);
+        final int maxColumn = column(longitude + dLon);
+        if (minColumn <= maxColumn) {
+          this.scan(base + minColumn, base + maxColumn, consumer);
+        } else {
+          /* The longitude interval wraps around the antimeridian. */
+          this.scan(base + minColumn, base + COLUMNS - 1, consumer);
+          this.scan(base, base + maxColumn, consumer);
+        }
+      }
+    }
+  }
+
+  /**
+   * Invokes the consumer for every point in the cells [first, last].
+   */
+  private void scan(int first, int last, PointConsumer consumer) {
+    final int end = lowerBound(this.cells, last + 1);
+    for (int i = lowerBound(this.cells, first); i < end; i++) {
+      consumer.accept(i);
+    }
+  }
+
+  /**
+   * Calculates the Haversine distance in meters between the query point (latitude in radians, its cosine and longitude in degrees) and a point in degrees.
+   */
+  private static double haversine(double lat, double cosLat, double lon, double otherLat, double otherLon) {
+    final double phi = Math.toRadians(otherLat);
+    final double sinLat = Math.sin((phi - lat) / 2);
+    final double sinLon = Math.sin(Math.toRadians(otherLon - lon) / 2);
+    final double a = sinLat * sinLat + cosLat * Math.cos(phi) * sinLon * sinLon;
+    return 2 * EARTH_RADIUS * Math.atan2(Math.sqrt(a), Math.sqrt(1 - a));
+  }
+
+  private static int cell(float latitude, float longitude) {
+    return row(latitude) * COLUMNS + column(longitude);
+  }
+
+  private static int row(double latitude) {
+    return Math.max(0, Math.min(ROWS - 1, (int) Math.floor((latitude + 90.0) / CELL_DEGREES)));
+  }
+
+  /**
+   * Returns the column of the given longitude, which is wrapped into [-180, 180) first.
+   */
+  private static int column(double longitude) {
+    final double wrapped = ((longitude + 180.0) % 360.0 + 360.0) % 360.0;
+    return Math.min(COLUMNS - 1, (int) Math.floor(wrapped / CELL_DEGREES));
+  }
+
+  /**
+   * Returns the index of the first element greater than or equal to the key.
+   */
+  private static int lowerBound(int[] array, int key) {
+    int low = 0;
+    int high = array.length;
+    while (low < high) {
+      final int mid = (low + high) >>> 1;
+      if (array[mid] < key) {
+        low = mid + 1;
+      } else {
+        high = mid;
+      }
+    }
+    return low;
+  }
+}
@@ -0,0 +1,352 @@
+package org.vitrivr.cineast.core.util.temporal;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.OptionalLong;
+import java.util.function.Consumer;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.vitrivr.cineast.core.data.distance.DistanceElement;
+import org.vitrivr.cineast.core.data.providers.primitive.PrimitiveTypeProvider;
+import org.vitrivr.cineast.core.db.DBSelector;
+import org.vitrivr.cineast.core.db.DBSelectorSupplier;
+import org.vitrivr.cineast.core.db.IndexRegistry;
+import org.vitrivr.cineast.core.db.RelationalOperator;
+
+/**
+ * Immutable, in-memory index of integral values (usually timestamps) sorted in ascending order, with the identifiers of their rows in a parallel array. Nearest-value queries are answered by binary search and expansion in both directions, range queries by a binary search for both ends of a contiguous slice.
+ * <p>
+ * Indexes over columns of the persistent layer are shared process-wide through the {@link IndexRegistry}, see {@link #of(DBSelectorSupplier, String, String, String)}.
+ */
+public final class TimestampIndex {
+
+  private static final Logger LOGGER = LogManager.getLogger();
+
+  /**
+   * Identifies an indexed column in the {@link IndexRegistry}.
+   */
+  private record Key(String entity, String idColumn, String valueColumn) {
+
+  }
+
+  /**
+   * Collects the identifiers and values of streamed rows in growable arrays. Collection stops at the first value that is not integral.
+   */
+  private static final class Collector implements Consumer<Map<String, PrimitiveTypeProvider>> {
+
+    private final String idColumn;
+    private final String valueColumn;
+    private String[] ids;
+    private long[] values;
+    private int size;
+    private PrimitiveTypeProvider invalid;
+
+    private Collector(String idColumn, String valueColumn, int capacity) {
+      this.idColumn = idColumn;
+      this.valueColumn = valueColumn;
+      this.ids = new String[Math.max(16, capacity)];
+      this.values = new long[this.ids.length];
+    }
+
+    @Override
+    public void accept(Map<String, PrimitiveTypeProvider> row) {
+      final PrimitiveTypeProvider value = row.get(this.valueColumn);
+      final PrimitiveTypeProvider id = row.get(this.idColumn);
+      if (this.invalid != null || value == null || id == null) {
+        return;
+      }
+      final OptionalLong converted = toLong(value);
+      if (converted.isEmpty()) {
+        this.invalid = value;
+        return;
+      }
+      if (this.size == this.ids.length) {
+        this.ids = Arrays.copyOf(this.ids, 2 * this.size);
+        this.values = Arrays.copyOf(this.values, 2 * this.size);
+      }
+      this.ids[this.size] = id.getString();
+      this.values[this.size++] = converted.getAsLong();
+    }
+  }
+
+  /**
+   * The values in ascending order.
+   */
+  private final long[] values;
+
+  /**
+   * The identifiers belonging to the values.
+   */
+  private final String[] ids;
+
+  /**
+   * Creates a new {@link TimestampIndex}. The arrays are sorted in place and must not be used by the caller afterwards.
+   *
+   * @param ids    Identifiers of the rows.
+   * @param values Values of the rows.
+   */
+  public TimestampIndex(String[] ids, long[] values) {
+    if (ids.length != values.length) {
+      throw new IllegalArgumentException("Number of identifiers (" + ids.length + ") and values (" + values.length + ") do not match.");
+    }
+    this.ids = ids;
+    this.values = values;
+    sort(values, ids, new long[values.length], new String[ids.length], 0, values.length);
+  }
+
+  /**
+   * Returns the index of the given column, building it on first use and rebuilding it on the first use after the entity has been written to (see {@link IndexRegistry}).
+   *
+   * @param supply      Supplier for the {@link DBSelector} used to read the column.
+   * @param entity      Name of the entity.
+   * @param idColumn    Name of the column holding the identifiers.
+   * @param valueColumn Name of the column holding the values; the first element is used for vector columns.
+   * @return The {@link TimestampIndex} or an empty {@link Optional}, if the column holds non-integral values or could not be read.
+   */
+  public static Optional<TimestampIndex> of(DBSelectorSupplier supply, String entity, String idColumn, String valueColumn) {
+    return IndexRegistry.lookup(new Key(entity, idColumn, valueColumn), entity, () -> build(supply, entity, idColumn, valueColumn));
+  }
+
+  /**
+   * Builds the index of the given column by streaming its identifiers and values into primitive arrays.
+   *
+   * @return The {@link TimestampIndex} or null, if the column cannot be indexed.
+   */
+  private static TimestampIndex build(DBSelectorSupplier supply, String entity, String idColumn, String valueColumn) {
+    final DBSelector selector = supply.get();
+    try {
+      selector.open(entity);
+      final Collector collector = new Collector(idColumn, valueColumn, selector.rowCount());
+      selector.forEachRow(List.of(idColumn, valueColumn), collector);
+      if (collector.invalid != null) {
+        LOGGER.debug("Column {} of {} cannot be indexed because it contains the non-integral value {}.", valueColumn, entity, collector.invalid);
+        return null;
+      }
+      LOGGER.debug("Built timestamp index for column {} of {} with {} values.", valueColumn, entity, collector.size);
+      return new TimestampIndex(Arrays.copyOf(collector.ids, collector.size), Arrays.copyOf(collector.values, collector.size));
+    } catch (RuntimeException e) {
+      LOGGER.warn("Failed to build timestamp index for column {} of {}: {}", valueColumn, entity, e.getMessage());
+      return null;
+    } finally {
+      selector.close();
+    }
+  }
+
+  /**
+   * Returns the number of values in this {@link TimestampIndex}.
+   */
+  public int size() {
+    return this.values.length;
+  }
+
+  /**
+   * Returns the k values nearest to the given value, sorted by ascending absolute difference.
+   *
+   * @param k     Number of values to return.
+   * @param value The query value.
+   * @param type  Class of the {@link DistanceElement}s to create.
+   * @return List of at most k {@link DistanceElement}s, with the absolute difference as distance.
+   */
+  public <E extends DistanceElement> List<E> nearest(int k, double value, Class<E> type) {
+    final int limit = Math.max(0, Math.min(k, this.values.length));
+    final List<E> result = new ArrayList<>(limit);
+    int right = this.lowerBound(ceil(value));
+    int left = right - 1;
+    while (result.size() < limit) {
+      final double leftDistance = left >= 0 ? value - this.values[left] : Double.POSITIVE_INFINITY;
+      final double rightDistance = right < this.values.length ? this.values[right] - value : Double.POSITIVE_INFINITY;
+      if (leftDistance <= rightDistance) {
+        result.add(DistanceElement.create(type, this.ids[left--], leftDistance));
+      } else {
+        result.add(DistanceElement.create(type, this.ids[right++], rightDistance));
+      }
+    }
+    return result;
+  }
+
+  /**
+   * Returns the identifiers of all values in the range [from, to].
+   *
+   * @param from Lower bound (inclusive).
+   * @param to   Upper bound (inclusive).
+   * @return List of identifiers, sorted by value.
+   */
+  public List<String> range(long from, long to) {
+    if (from > to) {
+      return new ArrayList<>(0);
+    }
+    final int start = this.lowerBound(from);
+    final int end = to == Long.MAX_VALUE ? this.values.length : this.lowerBound(to + 1);
+    return Collections.unmodifiableList(Arrays.asList(this.ids).subList(start, Math.max(start, end)));
+  }
+
+  /**
+   * Evaluates a condition on the indexed values.
+   *
+   * @param operator The {@link RelationalOperator}; EQ, IN, BETWEEN and the comparison operators are supported.
+   * @param operands The operands of the condition.
+   * @return The identifiers of the matching rows or an empty {@link Optional}, if the condition is not supported.
+   */
+  public Optional<List<String>> matching(RelationalOperator operator, List<PrimitiveTypeProvider> operands) {
+    if (operands.isEmpty() || (operator == RelationalOperator.BETWEEN && operands.size() < 2)) {
+      return Optional.empty();
+    }
+    final double[] bounds = new double[operands.size()];
+    for (int i = 0; i < bounds.length; i++) {
+      bounds[i] = toDouble(operands.get(i));
+      if (Double.isNaN(bounds[i])) {
+        return Optional.empty();
+      }
+    }
+    switch (operator) {
+      case EQ:
+        return Optional.of(this.range(ceil(bounds[0]), floor(bounds[0])));
+      case GEQ:
+        return Optional.of(this.range(ceil(bounds[0]), Long.MAX_VALUE));
+      case GREATER:
+        return Optional.of(this.range(floor(bounds[0]) + 1, Long.MAX_VALUE));
+      case LEQ:
+        return Optional.of(this.range(Long.MIN_VALUE, floor(bounds[0])));
+      case LESS:
+        return Optional.of(this.range(Long.MIN_VALUE, ceil(bounds[0]) - 1));
+      case BETWEEN:
+        return Optional.of(this.range(ceil(bounds[0]), floor(bounds[1])));
+      case IN:
+        final List<String> ids = new ArrayList<>();
+        for (double bound : Arrays.stream(bounds).distinct().toArray()) {
+          ids.addAll(this.range(ceil(bound), floor(bound)));
+        }
+        return Optional.of(ids);
+      default:
+        return Optional.empty();
+    }
+  }
+
+  /**
+   * Returns the position of the first value greater than or equal to the given value.
+   */
+  private int lowerBound(long value) {
+    int low = 0;
+    int high = this.values.length;
+    while (low < high) {
+      final int mid = (low + high) >>> 1;
+      if (this.values[mid] < value) {
+        low = mid + 1;
+      } else {
+        high = mid;
+      }
+    }
+    return low;
+  }
+
+  private static long ceil(double value) {
+    return value <= Long.MIN_VALUE ? Long.MIN_VALUE : (long) Math.ceil(value);
+  }
+
+  private static long floor(double value) {
+    return value >= Long.MAX_VALUE ? Long.MAX_VALUE - 1 : (long) Math.floor(value);
+  }
+
+  /**
+   * Converts the value of a column into a long; vectors are represented by their first element.
+   *
+   * @return The value or an empty {@link OptionalLong}, if the value is not integral.
+   */
+  private static OptionalLong toLong(PrimitiveTypeProvider value) {
+    final double converted;
+    switch (value.getType()) {
+      case INT:
+      case SHORT:
+      case BYTE:
+        return OptionalLong.of(value.getInt());
+      case LONG:
+        return OptionalLong.of(value.getLong());
+      case FLOAT_ARRAY:
+      case INT_ARRAY:
+        final float[] array = PrimitiveTypeProvider.getSafeFloatArray(value);
+        if (array.length == 0) {
+          return OptionalLong.empty();
+        }
+        converted = array[0];
+        break;
+      default:
+        converted = toDouble(value);
+    }
+    if (Double.isNaN(converted) || converted != Math.rint(converted) || Math.abs(converted) > 1L << 62) {
+      return OptionalLong.empty();
+    }
+    return OptionalLong.of((long) converted);
+  }
+
+  /**
+   * Converts an operand into a double; returns NaN if it is not a number.
+   */
+  private static double toDouble(PrimitiveTypeProvider value) {
+    switch (value.getType()) {
+      case BYTE:
+        return value.getByte();
+      case SHORT:
+        return value.getShort();
+      case INT:
+        return value.getInt();
+      case LONG:
+        return value.getLong();
+      case FLOAT:
+        return value.getFloat();
+      case DOUBLE:
+        return value.getDouble();
+      case STRING:
+        try {
+          return Double.parseDouble(value.getString());
+        } catch (NumberFormatException e) {
+          return Double.NaN;
+        }
+      default:
+        return Double.NaN;
+    }
+  }
+
+  /**
+   * Stable merge sort of the parallel arrays in the range [from, to) by value.
+   */
+  private static void sort(long[] values, String[] ids, long[] valueBuffer, String[] idBuffer, int from, int to) {
+    if (to - from < 32) {
+      for (int i = from + 1; i < to; i++) {
+        final long value = values[i];
+        final String id = ids[i];
+        int j = i - 1;
+        while (j >= from && values[j] > value) {
+          values[j + 1] = values[j];
+          ids[j + 1] = ids[j];
+          j--;
+        }
+        values[j + 1] = value;
+        ids[j + 1] = id;
+      }
+      return;
+    }
+    final int mid = (from + to) >>> 1;
+    sort(values, ids, valueBuffer, idBuffer, from, mid);
+    sort(values, ids, valueBuffer, idBuffer, mid, to);
+    if (values[mid - 1] <= values[mid]) {
+      return;
+    }
+    System.arraycopy(values, from, valueBuffer, from, to - from);
+    System.arraycopy(ids, from, idBuffer, from, to - from);
+    int left = from;
+    int right = mid;
+    for (int i = from; i < to; i++) {
+      if (right >= to || (left < mid && valueBuffer[left] <= valueBuffer[right])) {
+        values[i] = valueBuffer[left];
+        ids[i] = idBuffer[left++];
+      } else {
+        values[i] = valueBuffer[right];
+        ids[i] = idBuffer[right++];
+      }
+    }
+  }
+}
@@ -0,0 +1,231 @@
+package org.vitrivr.cineast.core.util.tracing;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.RemovalListeners;
+import com.google.common.cache.RemovalNotification;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.vitrivr.cineast.core.db.TracingDBSelector;
+import org.vitrivr.cineast.core.db.TracingPersistencyWriter;
+
+/**
+ * Records {@link Span}s, i.e., the wall and CPU time of the phases of a query, such as retrieval, database calls, fusion and serialization. Finished spans are passed to the registered listeners, e.g., to be aggregated into latency histograms, and can be written to one file per query for offline analysis.
+ * <p>
+ * Spans are attributed to the query and the retriever of the scope of the thread that executes them, see {@link #enter(String, String)}. Database calls are traced by the {@link TracingDBSelector} and the {@link TracingPersistencyWriter}. While tracing is disabled, {@link #start(String, String)} returns a span that records nothing.
+ */
+public final class QueryTracer {
+
+  private static final Logger LOGGER = LogManager.getLogger();
+
+  private static final ThreadMXBean THREADS = ManagementFactory.getThreadMXBean();
+  private static final boolean CPU_TIME = THREADS.isCurrentThreadCpuTimeSupported();
+
+  private static volatile boolean enabled = false;
+
+  private static final List<Consumer<Span>> listeners = new CopyOnWriteArrayList<>();
+
+  private static final ThreadLocal<Context> context = new ThreadLocal<>();
+
+  /**
+   * Directory traces are written to; null if traces are not recorded.
+   */
+  private static volatile Path traceDirectory = null;
+
+  /**
+   * Writes the traces of completed queries, such that neither the thread completing a query nor the threads finishing spans wait for the file system. A single thread keeps the spans appended to the file of a query in order.
+   */
+  static final ExecutorService writer = Executors.newSingleThreadExecutor(runnable -> {
+    final Thread thread = new Thread(runnable, "query-trace-writer");
+    thread.setDaemon(true);
+    return thread;
+  });
+
+  /**
+   * Spans of the queries that are in progress, by query id. A trace is handed to the {@link #writer} once its query is completed or no span was added to it for a while; spans that end afterwards are appended to the file later on.
+   */
+  private static final Cache<String, List<Span>> traces = CacheBuilder.newBuilder()
+      .maximumSize(1000)
+      .expireAfterAccess(1, TimeUnit.MINUTES)
+      .removalListener(RemovalListeners.asynchronous(QueryTracer::write, writer))
+      .build();
+
+  private record Context(String queryId, String retriever) {
+
+  }
+
+  /**
+   * Restores the scope that was active before it was entered, once closed.
+   */
+  public static final class Scope implements AutoCloseable {
+
+    private final Context previous;
+
+    private Scope(Context previous) {
+      this.previous = previous;
+    }
+
+    @Override
+    public void close() {
+      if (this.previous == null) {
+        context.remove();
+      } else {
+        context.set(this.previous);
+      }
+    }
+  }
+
+  private QueryTracer() {
+  }
+
+  public static void enable() {
+    enabled = true;
+  }
+
+  public static boolean isEnabled() {
+    return enabled;
+  }
+
+  /**
+   * Registers a listener that is invoked for every finished {@link Span}, on the thread that executed it.
+   */
+  public static void addListener(Consumer<Span> listener) {
+    listeners.add(listener);
+  }
+
+  /**
+   * Enables tracing and writes the spans of every query to a file named after the query in the given directory.
+   */
+  public static void recordTraces(Path directory) throws IOException {
+    Files.createDirectories(directory);
+    traceDirectory = directory;
+    enable();
+  }
+
+  /**
+   * Attributes the spans started by the current thread to a query and a retriever until the returned {@link Scope} is closed.
+   *
+   * @param queryId   Id of the query; null to keep the query of the enclosing scope.
+   * @param retriever Name of the retriever; null to keep the retriever of the enclosing scope.
+   */
+  public static Scope enter(String queryId, String retriever) {
+    final Context previous = context.get();
+    if (previous != null) {
+      context.set(new Context(queryId == null ? previous.queryId() : queryId, retriever == null ? previous.retriever() : retriever));
+    } else {
+      context.set(new Context(queryId, retriever));
+    }
+    return new Scope(previous);
+  }
+
+  /**
+   * Starts a {@link Span} in the scope of the current thread.
+   *
+   * @param operation Name of the operation.
+   * @param entity    Name of the entity the operation accesses; may be null.
+   */
+  public static Span start(String operation, String entity) {
+    if (!enabled) {
+      return Span.NOOP;
+    }
+    final Context current = context.get();
+    return current == null ? new Span(operation, entity, null, null) : new Span(operation, entity, current.retriever(), current.queryId());
+  }
+
+  /**
+   * Marks a query as completed, such that its trace is written in the background.
+   */
+  public static void complete(String queryId) {
+    if (queryId != null && traceDirectory != null) {
+      traces.invalidate(queryId);
+    }
+  }
+
+  /**
+   * Waits until the traces of all queries completed so far have been written.
+   */
+  static void awaitWrites() throws InterruptedException, ExecutionException {
+    writer.submit(() -> {
+    }).get();
+  }
+
+  /**
+   * Disables tracing and the recording of traces and removes all listeners.
+   */
+  static void reset() {
+    enabled = false;
+    traceDirectory = null;
+    listeners.clear();
+    traces.invalidateAll();
+  }
+
+  static long currentThreadCpuTime() {
+    return CPU_TIME ? THREADS.getCurrentThreadCpuTime() : -1;
+  }
+
+  static void finish(Span span) {
+    for (Consumer<Span> listener : listeners) {
+      try {
+        listener.accept(span);
+      } catch (RuntimeException e) {
+        LOGGER.warn("Span listener failed: {}", e.getMessage());
+      }
+    }
+    if (traceDirectory != null && span.getQueryId() != null) {
+      final List<Span> trace = traces.asMap().computeIfAbsent(span.getQueryId(), id -> Collections.synchronizedList(new ArrayList<>()));
+      trace.add(span);
+    }
+  }
+
+  /**
+   * Appends a trace to the file of its query as tab-separated values, one span per line in the order they were started. Times are given in microseconds; start times are taken from {@link System#nanoTime()} and are therefore only comparable within a process.
+   */
+  private static void write(RemovalNotification<String, List<Span>> notification) {
+    final Path directory = traceDirectory;
+    if (directory == null || notification.getValue() == null) {
+      return;
+    }
+    final List<Span> spans;
+    synchronized (notification.getValue()) {
+      spans = new ArrayList<>(notification.getValue());
+    }
+    if (spans.isEmpty()) {
+      return;
+    }
+    spans.sort(Comparator.comparingLong(Span::getStartNanos));
+    final Path file = directory.resolve(notification.getKey().replaceAll("[^A-Za-z0-9._-]", "_") + ".tsv");
+    final boolean exists = Files.exists(file);
+    try (BufferedWriter writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8, StandardOpenOption.CREATE, StandardOpenOption.APPEND)) {
+      if (!exists) {
+        writer.write("operation\tentity\tretriever\tthread\tstart_us\twall_us\tcpu_us");
+        writer.newLine();
+      }
+      for (Span span : spans) {
+        writer.write(span.getOperation() + "\t" + Objects.toString(span.getEntity(), "") + "\t" + Objects.toString(span.getRetriever(), "") + "\t" + span.getThread() + "\t"
+            + span.getStartNanos() / 1000 + "\t" + span.getWallNanos() / 1000 + "\t" + (span.getCpuNanos() < 0 ? -1 : span.getCpuNanos() / 1000));
+        writer.newLine();
+      }
+    } catch (IOException e) {
+      LOGGER.warn("Failed to write trace of query {}: {}", notification.getKey(), e.getMessage());
+    }
+  }
+}
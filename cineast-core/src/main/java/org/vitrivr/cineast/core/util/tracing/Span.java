@@ -0,0 +1,98 @@
+package org.vitrivr.cineast.core.util.tracing;
+
+/**
+ * A timed phase of a query, such as a call to the database or the fusion of results. A span is started by {@link QueryTracer#start(String, String)} and ends when it is closed; it records the wall time and, if supported by the JVM, the CPU time of the thread that executed it.
+ * <p>
+ * Spans are not thread-safe and are meant to be used in a try-with-resources block.
+ */
+public final class Span implements AutoCloseable {
+
+  /**
+   * Span returned while tracing is disabled; closing it has no effect.
+   */
+  static final Span NOOP = new Span(null, null, null, null);
+
+  private final String operation;
+  private final String entity;
+  private final String retriever;
+  private final String queryId;
+  private final String thread;
+  private final long start;
+  private final long startCpu;
+  private long wallNanos = -1;
+  private long cpuNanos = -1;
+
+  Span(String operation, String entity, String retriever, String queryId) {
+    this.operation = operation;
+    this.entity = entity;
+    this.retriever = retriever;
+    this.queryId = queryId;
+    this.thread = operation == null ? null : Thread.currentThread().getName();
+    this.startCpu = operation == null ? 0 : QueryTracer.currentThreadCpuTime();
+    this.start = operation == null ? 0 : System.nanoTime();
+  }
+
+  @Override
+  public void close() {
+    if (this.operation == null || this.wallNanos >= 0) {
+      return;
+    }
+    this.wallNanos = System.nanoTime() - this.start;
+    final long cpu = QueryTracer.currentThreadCpuTime();
+    this.cpuNanos = cpu < 0 || this.startCpu < 0 ? -1 : cpu - this.startCpu;
+    QueryTracer.finish(this);
+  }
+
+  /**
+   * The traced operation, e.g., the name of the {@link org.vitrivr.cineast.core.db.DBSelector} method.
+   */
+  public String getOperation() {
+    return this.operation;
+  }
+
+  /**
+   * The entity the operation accessed; null if it did not access a specific entity.
+   */
+  public String getEntity() {
+    return this.entity;
+  }
+
+  /**
+   * The retriever the operation was executed for; null if it was not executed by a retriever.
+   */
+  public String getRetriever() {
+    return this.retriever;
+  }
+
+  /**
+   * The query the operation was executed for; null if it is not associated with a query.
+   */
+  public String getQueryId() {
+    return this.queryId;
+  }
+
+  public String getThread() {
+    return this.thread;
+  }
+
+  /**
+   * Start of the span as returned by {@link System#nanoTime()}.
+   */
+  public long getStartNanos() {
+    return this.start;
+  }
+
+  /**
+   * Wall time of the span or -1, if it has not ended yet.
+   */
+  public long getWallNanos() {
+    return this.wallNanos;
+  }
+
+  /**
+   * CPU time of the span or -1, if it has not ended yet or CPU time is not measured.
+   */
+  public long getCpuNanos() {
+    return this.cpuNanos;
+  }
+}
@@ -1,7 +1,8 @@
 package org.vitrivr.cineast.core.util.web;
 
-import java.io.ByteArrayInputStream;
+import java.io.BufferedInputStream;
 import java.io.IOException;
+import java.io.InputStream;
 import java.util.ArrayList;
 import java.util.List;
 import javax.sound.sampled.AudioFormat;
@@ -30,15 +31,14 @@ public static List<AudioFrame> parseWaveAudio(String dataUrl, float samplerate,
 
     ArrayList<AudioFrame> list = new ArrayList<>();
 
-    /* Convert Base64 string into byte array. */
-    byte[] bytes = dataURLtoByteArray(dataUrl, MIME_TYPE);
-    if (bytes == null) {
+    /* Decode the Base64 string while reading; the audio system requires a stream that supports mark / reset. */
+    InputStream stream = dataURLtoStream(dataUrl, MIME_TYPE);
+    if (stream == null) {
       return list;
     }
 
-    try {
+    try (InputStream rawByteStream = new BufferedInputStream(stream)) {
       /* Read data as AudioInputStream and re-sample it. */
-      ByteArrayInputStream rawByteStream = new ByteArrayInputStream(bytes);
       AudioInputStream inputAudio = AudioSystem.getAudioInputStream(rawByteStream);
       AudioFormat targetFormat = new AudioFormat(samplerate, 16, channels, true, false);
       AudioInputStream convertedAudio = AudioSystem.getAudioInputStream(targetFormat, inputAudio);
@@ -3,9 +3,10 @@
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import java.io.IOException;
+import java.io.InputStream;
 import java.nio.charset.StandardCharsets;
 import java.util.Optional;
-import org.apache.commons.codec.binary.Base64;
+import org.apache.commons.codec.binary.Base64InputStream;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
@@ -30,11 +31,14 @@ protected DataURLParser() {
    * @return Optional JsonNode
    */
   public static Optional<JsonNode> dataURLtoJsonNode(String dataUrl) {
-    /* Convert Base64 string into byte array. */
-    byte[] bytes = dataURLtoByteArray(dataUrl, JSON_MIME_TYPE);
+    /* Parse the JSON while decoding the Base64 string. */
+    final InputStream stream = dataURLtoStream(dataUrl, JSON_MIME_TYPE);
+    if (stream == null) {
+      return Optional.empty();
+    }
     ObjectMapper mapper = new ObjectMapper();
-    try {
-      return Optional.of(mapper.readTree(bytes));
+    try (stream) {
+      return Optional.of(mapper.readTree(stream));
     } catch (IOException e) {
       LOGGER.error("Exception occurred while parsing data URL to JSON: {}", e);
       return Optional.empty();
@@ -49,18 +53,7 @@ public static Optional<JsonNode> dataURLtoJsonNode(String dataUrl) {
    * @return Byte array of the data.
    */
   public static byte[] dataURLtoByteArray(String dataUrl) {
-    dataUrl = dataUrl.replace(' ', '+');
-
-    /* Check if string is actually a valid data URL. */
-    if (!dataUrl.startsWith("data:")) {
-      LOGGER.warn("This is not a valid data URL.");
-      return null;
-    }
-
-    /* Convert and return byte array. */
-    int headerLength = dataUrl.indexOf(',');
-    String base46data = dataUrl.substring(headerLength + 1);
-    return Base64.decodeBase64(base46data);
+    return dataURLtoByteArray(dataUrl, "");
   }
 
   /**
@@ -71,20 +64,36 @@ public static byte[] dataURLtoByteArray(String dataUrl) {
    * @return Byte array of the data.
    */
   public static byte[] dataURLtoByteArray(String dataUrl, String verify) {
-    if (dataUrl == null) {
+    final InputStream stream = dataURLtoStream(dataUrl, verify);
+    if (stream == null) {
       return null;
     }
-    dataUrl = dataUrl.replace(' ', '+');
-
-    /* Check data URL. */
-    if (!isValidDataUrl(dataUrl, verify)) {
+    try (stream) {
+      return stream.readAllBytes();
+    } catch (IOException e) {
+      LOGGER.warn("Failed to decode data URL: {}", e.getMessage());
       return null;
     }
+  }
 
-    /* Convert and return byte array. */
-    int headerLength = dataUrl.indexOf(',');
-    String base46data = dataUrl.substring(headerLength + 1);
-    return Base64.decodeBase64(base46data);
+  /**
+   * Returns a stream of the data of a Base64 data URL, which is decoded while it is read. The stream reads directly from the characters of the data URL; hence, neither a copy of the encoded nor of the decoded data is created. Like {@link #dataURLtoByteArray(String, String)}, the stream accepts both the standard and the URL-safe Base64 alphabet, treats spaces as '+' (as introduced by form encoding) and ignores all other characters outside the alphabet.
+   * <p>
+   * Decoding is as lenient as {@link org.apache.commons.codec.binary.Base64#decodeBase64(String)}: padding is optional, decoding stops at the first padding character and a single dangling character at the end, which does not make up a byte, is discarded instead of failing the stream.
+   *
+   * @param dataUrl Characters of the data url.
+   * @param verify  Substring that must be contained at position 5 in order for the data to be converted.
+   * @return {@link InputStream} of the data or null, if the data URL is invalid.
+   */
+  public static InputStream dataURLtoStream(CharSequence dataUrl, String verify) {
+    if (dataUrl == null || !isValidDataUrl(dataUrl, verify)) {
+      return null;
+    }
+    int start = 5;
+    while (start < dataUrl.length() && dataUrl.charAt(start) != ',') {
+      start++;
+    }
+    return new Base64InputStream(new Base64CharacterStream(dataUrl, start + 1));
   }
 
   /**
@@ -95,20 +104,8 @@ public static byte[] dataURLtoByteArray(String dataUrl, String verify) {
    * @return String representation of the data.
    */
   public static String dataURLtoString(String dataUrl, String verify) {
-    if (dataUrl == null) {
-      return null;
-    }
-    dataUrl = dataUrl.replace(' ', '+');
-
-    /* Check data URL. */
-    if (!isValidDataUrl(dataUrl, verify)) {
-      return null;
-    }
-
-    /* Convert and return byte array. */
-    int headerLength = dataUrl.indexOf(',');
-    String base46data = dataUrl.substring(headerLength + 1);
-    return new String(Base64.decodeBase64(base46data), StandardCharsets.UTF_8);
+    final byte[] bytes = dataURLtoByteArray(dataUrl, verify);
+    return bytes == null ? null : new String(bytes, StandardCharsets.UTF_8);
   }
 
   /**
@@ -118,19 +115,86 @@ public static String dataURLtoString(String dataUrl, String verify) {
    * @param verify  Substring that must be contained at position 5 in order for the data to be valid.
    * @return True if valid and false otherwise.
    */
-  public static boolean isValidDataUrl(String dataUrl, String verify) {
+  public static boolean isValidDataUrl(CharSequence dataUrl, String verify) {
     /* Check if string is actually a valid data URL. */
-    if (!dataUrl.startsWith("data:")) {
-      LOGGER.warn("{} is not a valid data URL.", dataUrl);
+    if (!regionMatches(dataUrl, 0, "data:")) {
+      LOGGER.warn("{} is not a valid data URL.", dataUrl.length() > 64 ? dataUrl.subSequence(0, 64) + "..." : dataUrl);
       return false;
     }
 
     /* Check if data URL is of supported type. */
-    if (!dataUrl.substring(5, 5 + verify.length()).equals(verify)) {
+    if (!regionMatches(dataUrl, 5, verify)) {
       LOGGER.warn("Data URL does not have a supported type.");
       return false;
     }
 
     return true;
   }
+
+  /**
+   * Checks if the characters starting at the given offset equal the given string.
+   */
+  private static boolean regionMatches(CharSequence sequence, int offset, String string) {
+    if (sequence.length() < offset + string.length()) {
+      return false;
+    }
+    for (int i = 0; i < string.length(); i++) {
+      if (sequence.charAt(offset + i) != string.charAt(i)) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Presents the Base64 characters of a {@link CharSequence} as a stream of bytes for the {@link Base64InputStream}. Characters of the URL-safe alphabet and spaces are mapped to the standard alphabet, characters outside the ASCII range to a line break, which the decoder ignores.
+   */
+  private static final class Base64CharacterStream extends InputStream {
+
+    private final CharSequence characters;
+
+    private int position;
+
+    private Base64CharacterStream(CharSequence characters, int position) {
+      this.characters = characters;
+      this.position = position;
+    }
+
+    @Override
+    public int read() {
+      return this.position < this.characters.length() ? map(this.characters.charAt(this.position++)) : -1;
+    }
+
+    @Override
+    public int read(byte[] buffer, int offset, int length) {
+      if (length == 0) {
+        return 0;
+      }
+      final int count = Math.min(length, this.characters.length() - this.position);
+      if (count <= 0) {
+        return -1;
+      }
+      for (int i = 0; i < count; i++) {
+        buffer[offset + i] = (byte) map(this.characters.charAt(this.position++));
+      }
+      return count;
+    }
+
+    @Override
+    public int available() {
+      return Math.max(0, this.characters.length() - this.position);
+    }
+
+    private static int map(char c) {
+      switch (c) {
+        case ' ':
+        case '-':
+          return '+';
+        case '_':
+          return '/';
+        default:
+          return c < 128 ? c : '\n';
+      }
+    }
+  }
 }
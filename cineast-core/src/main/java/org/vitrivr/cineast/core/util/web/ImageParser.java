@@ -1,16 +1,28 @@
 package org.vitrivr.cineast.core.util.web;
 
+import com.twelvemonkeys.image.ImageUtil;
+import java.awt.Image;
 import java.awt.image.BufferedImage;
-import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.util.Collections;
+import java.util.Iterator;
 import javax.imageio.ImageIO;
+import javax.imageio.ImageReadParam;
+import javax.imageio.ImageReader;
+import javax.imageio.stream.ImageInputStream;
 import org.apache.commons.codec.binary.Base64;
 import org.vitrivr.cineast.core.util.LogHelper;
 
 
 public class ImageParser extends DataURLParser {
 
+  /**
+   * Factor by which an image is decoded above the resolution required by the caller before it is downscaled by area averaging. Subsampling while decoding merely picks every n-th pixel, hence the margin keeps the aliasing it introduces below the final resolution.
+   */
+  private static final int SUBSAMPLING_MARGIN = 2;
+
   /**
    * Converts a Base64 data URL to a BufferedImage.
    *
@@ -18,24 +30,57 @@ public class ImageParser extends DataURLParser {
    * @return BufferedImage or null, if conversion failed.
    */
   public static BufferedImage dataURLtoBufferedImage(String dataUrl) {
+    return dataURLtoBufferedImage(dataUrl, Integer.MAX_VALUE);
+  }
 
-    /* Convert Base64 string into byte array. */
-    byte[] bytes = dataURLtoByteArray(dataUrl, "image/");
-    if (bytes == null) {
+  /**
+   * Converts a Base64 data URL to a BufferedImage, which is decoded while the Base64 string is decoded. Images larger than required are subsampled while they are decoded, such that the full-resolution image is never held in memory, and then downscaled by area averaging.
+   *
+   * @param dataUrl       String containing the data url.
+   * @param minResolution Minimum width and height of the image required by the caller. Larger images are decoded at no less than {@link #SUBSAMPLING_MARGIN} times this resolution and then downscaled to it, retaining their aspect ratio.
+   * @return BufferedImage or null, if conversion failed.
+   */
+  public static BufferedImage dataURLtoBufferedImage(String dataUrl, int minResolution) {
+    final InputStream stream = dataURLtoStream(dataUrl, "image/");
+    if (stream == null) {
       return null;
     }
 
-    ByteArrayInputStream binstream = new ByteArrayInputStream(bytes);
-
-    BufferedImage bimg;
-    try {
-      bimg = ImageIO.read(binstream);
+    try (ImageInputStream input = ImageIO.createImageInputStream(stream)) {
+      final Iterator<ImageReader> readers = input == null ? Collections.emptyIterator() : ImageIO.getImageReaders(input);
+      if (!readers.hasNext()) {
+        LOGGER.error("could not make image, no reader found for data URL");
+        return null;
+      }
+      final ImageReader reader = readers.next();
+      try {
+        reader.setInput(input, true, true);
+        final ImageReadParam param = reader.getDefaultReadParam();
+        final int factor = (int) Math.max(1L, Math.min(reader.getWidth(0), reader.getHeight(0)) / Math.max(1L, (long) minResolution * SUBSAMPLING_MARGIN));
+        if (factor > 1) {
+          param.setSourceSubsampling(factor, factor, 0, 0);
+        }
+        return downscale(reader.read(0, param), minResolution);
+      } finally {
+        reader.dispose();
+      }
     } catch (IOException e) {
       LOGGER.error("could not make image, {}", LogHelper.getStackTrace(e));
       return null;
     }
+  }
 
-    return bimg;
+  /**
+   * Downscales the image by area averaging, such that its smaller dimension matches the given resolution. Images that are not larger are returned as is.
+   */
+  private static BufferedImage downscale(BufferedImage image, int resolution) {
+    final int min = Math.min(image.getWidth(), image.getHeight());
+    if (resolution <= 0 || min <= resolution) {
+      return image;
+    }
+    final int width = Math.max(1, (int) Math.round((double) image.getWidth() * resolution / min));
+    final int height = Math.max(1, (int) Math.round((double) image.getHeight() * resolution / min));
+    return ImageUtil.createResampled(image, width, height, Image.SCALE_SMOOTH);
   }
 
   public static String BufferedImageToDataURL(BufferedImage img, String format) {
@@ -4,6 +4,7 @@
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import java.io.IOException;
+import java.io.InputStream;
 import org.joml.Vector3f;
 import org.joml.Vector3i;
 import org.vitrivr.cineast.core.data.m3d.Mesh;
@@ -27,13 +28,16 @@ public class MeshParser extends DataURLParser {
    * @return Mesh, if parsing fails that Mesh will be empty!
    */
   public static Mesh parseThreeJSV4Geometry(String dataUrl) {
-    /* Convert Base64 string into byte array. */
-    byte[] bytes = dataURLtoByteArray(dataUrl, MIME_TYPE);
+    /* Parse the JSON while decoding the Base64 string. */
+    final InputStream stream = dataURLtoStream(dataUrl, MIME_TYPE);
+    if (stream == null) {
+      return Mesh.EMPTY;
+    }
 
     ObjectMapper mapper = new ObjectMapper();
-    try {
+    try (stream) {
       /* Read the JSON structure of the transmitted mesh data. */
-      JsonNode node = mapper.readTree(bytes);
+      JsonNode node = mapper.readTree(stream);
       JsonNode vertices = node.get(VERTICES_PROPERTY_NAME_THREEV4);
       if (vertices == null || !vertices.isArray() || vertices.size() == 0) {
         LOGGER.error("Submitted mesh does not contain any vertices. Aborting...");
@@ -0,0 +1,95 @@
+package org.vitrivr.cineast.core.data;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+public class DerivedFeatureCacheTest {
+
+  @Test
+  @DisplayName("Results are calculated once per key")
+  void testCacheHit() {
+    final DerivedFeatureCache cache = new DerivedFeatureCache();
+    final AtomicInteger calculations = new AtomicInteger();
+    final Object first = cache.get("a", () -> new Object[]{calculations.incrementAndGet()});
+    assertSame(first, cache.get("a", () -> new Object[]{calculations.incrementAndGet()}));
+    assertEquals(1, calculations.get());
+
+    assertNotSame(first, cache.get("b", () -> new Object[]{calculations.incrementAndGet()}));
+    assertEquals(2, calculations.get());
+
+    /* Null results are cached as well. */
+    assertNull(cache.get("c", () -> {
+      calculations.incrementAndGet();
+      return null;
+    }));
+    assertNull(cache.get("c", () -> new Object[]{calculations.incrementAndGet()}));
+    assertEquals(3, calculations.get());
+  }
+
+  @Test
+  @DisplayName("Clearing forces recalculation")
+  void testClear() {
+    final DerivedFeatureCache cache = new DerivedFeatureCache();
+    final Object first = cache.get("a", Object::new);
+    cache.clear();
+    assertNotSame(first, cache.get("a", Object::new));
+  }
+
+  @Test
+  @DisplayName("Failed calculations are repeated")
+  void testFailure() {
+    final DerivedFeatureCache cache = new DerivedFeatureCache();
+    assertThrows(IllegalStateException.class, () -> cache.get("a", () -> {
+      throw new IllegalStateException();
+    }));
+    assertEquals("result", cache.get("a", () -> "result"));
+  }
+
+  @Test
+  @DisplayName("Concurrent requests share a single calculation")
+  void testConcurrentRequests() throws Exception {
+    final DerivedFeatureCache cache = new DerivedFeatureCache();
+    final AtomicInteger calculations = new AtomicInteger();
+    final CountDownLatch start = new CountDownLatch(1);
+    final ExecutorService executor = Executors.newFixedThreadPool(8);
+    try {
+      final List<Future<Object>> results = new ArrayList<>();
+      for (int i = 0; i < 8; i++) {
+        results.add(executor.submit(() -> {
+          start.await();
+          return cache.get("a", () -> {
+            calculations.incrementAndGet();
+            try {
+              Thread.sleep(50);
+            } catch (InterruptedException e) {
+              Thread.currentThread().interrupt();
+            }
+            return new Object();
+          });
+        }));
+      }
+      start.countDown();
+      final Object expected = results.get(0).get(10, TimeUnit.SECONDS);
+      for (Future<Object> result : results) {
+        assertSame(expected, result.get(10, TimeUnit.SECONDS));
+      }
+      assertEquals(1, calculations.get());
+    } finally {
+      executor.shutdownNow();
+    }
+  }
+}
@@ -0,0 +1,67 @@
+package org.vitrivr.cineast.core.data;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import java.util.List;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.vitrivr.cineast.core.config.QueryConfig;
+import org.vitrivr.cineast.core.config.ReadableQueryConfig;
+import org.vitrivr.cineast.core.data.query.containers.IdQueryTermContainer;
+import org.vitrivr.cineast.core.data.query.containers.TagQueryTermContainer;
+import org.vitrivr.cineast.core.data.query.containers.TextQueryTermContainer;
+
+public class RetrieverResultCacheKeyTest {
+
+  private static final String SPECIFICATION = "retriever{}";
+
+  private final ReadableQueryConfig config = new QueryConfig(null);
+
+  @Test
+  @DisplayName("Keys of equal containers are equal")
+  void testEqualContainers() {
+    final RetrieverResultCacheKey first = RetrieverResultCacheKey.of(SPECIFICATION, new TextQueryTermContainer("cat"), this.config);
+    final RetrieverResultCacheKey second = RetrieverResultCacheKey.of(SPECIFICATION, new TextQueryTermContainer("cat"), this.config);
+    assertEquals(first, second);
+    assertEquals(first.hashCode(), second.hashCode());
+  }
+
+  @Test
+  @DisplayName("Keys of containers with colliding hash codes are distinct")
+  void testHashCollision() {
+    final TextQueryTermContainer first = new TextQueryTermContainer("Aa");
+    final TextQueryTermContainer second = new TextQueryTermContainer("BB");
+    assertEquals(first.hashCode(), second.hashCode());
+    assertNotEquals(RetrieverResultCacheKey.of(SPECIFICATION, first, this.config), RetrieverResultCacheKey.of(SPECIFICATION, second, this.config));
+  }
+
+  @Test
+  @DisplayName("Keys of containers of different types are distinct")
+  void testContainerTypes() {
+    assertNotEquals(RetrieverResultCacheKey.of(SPECIFICATION, new TextQueryTermContainer("v_1_1"), this.config), RetrieverResultCacheKey.of(SPECIFICATION, new IdQueryTermContainer("v_1_1"), this.config));
+  }
+
+  @Test
+  @DisplayName("Keys reflect the properties of a container")
+  void testProperties() {
+    final TextQueryTermContainer container = new TextQueryTermContainer("cat");
+    final RetrieverResultCacheKey before = RetrieverResultCacheKey.of(SPECIFICATION, container, this.config);
+    container.setWeight(0.5f);
+    assertNotEquals(before, RetrieverResultCacheKey.of(SPECIFICATION, container, this.config));
+  }
+
+  @Test
+  @DisplayName("Containers not decoded from serialized data have no key")
+  void testNoFingerprint() {
+    assertNull(RetrieverResultCacheKey.of(SPECIFICATION, new TagQueryTermContainer(List.of()), this.config));
+  }
+
+  @Test
+  @DisplayName("Keys of containers and segment ids are distinct")
+  void testSegmentIds() {
+    assertEquals(new RetrieverResultCacheKey(SPECIFICATION, "v_1_1", this.config), new RetrieverResultCacheKey(SPECIFICATION, "v_1_1", this.config));
+    assertNotEquals(new RetrieverResultCacheKey(SPECIFICATION, "v_1_1", this.config), RetrieverResultCacheKey.of(SPECIFICATION, new TextQueryTermContainer("v_1_1"), this.config));
+  }
+}
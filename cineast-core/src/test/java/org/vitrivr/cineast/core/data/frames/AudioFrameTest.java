@@ -0,0 +1,57 @@
+package org.vitrivr.cineast.core.data.frames;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.Random;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+public class AudioFrameTest {
+
+  private static AudioFrame frame(short[] samples, int channels) {
+    final byte[] data = new byte[samples.length * 2];
+    for (int i = 0; i < samples.length; i++) {
+      data[2 * i] = (byte) samples[i];
+      data[2 * i + 1] = (byte) (samples[i] >> 8);
+    }
+    return new AudioFrame(0, 0, data, new AudioDescriptor(44100.0f, channels, 0));
+  }
+
+  @Test
+  @DisplayName("Down-mixed samples are normalized in double precision")
+  void testMeanSamplesAsDouble() {
+    final Random random = new Random(1);
+    for (int channels = 1; channels <= 3; channels++) {
+      final short[] samples = new short[channels * 512];
+      for (int i = 0; i < samples.length; i++) {
+        samples[i] = (short) random.nextInt();
+      }
+      final AudioFrame frame = frame(samples, channels);
+      final double[] mean = new double[frame.numberOfSamples()];
+      frame.getMeanSamplesAsDouble(mean, 0);
+      for (int i = 0; i < mean.length; i++) {
+        int sum = 0;
+        for (int c = 0; c < channels; c++) {
+          sum += samples[i * channels + c];
+        }
+        final double expected = sum / ((double) channels * Short.MAX_VALUE);
+        assertEquals(expected, mean[i], 0.0);
+        assertEquals(expected, frame.getMeanSampleAsDouble(i), 0.0);
+      }
+    }
+  }
+
+  @Test
+  @DisplayName("Down-mixing to float matches the double path")
+  void testMeanSamplesAsFloat() {
+    final short[] samples = {Short.MAX_VALUE, Short.MIN_VALUE, 12345, -321, 7, 8};
+    final AudioFrame frame = frame(samples, 2);
+    final double[] expected = new double[frame.numberOfSamples()];
+    final float[] actual = new float[frame.numberOfSamples()];
+    frame.getMeanSamplesAsDouble(expected, 0);
+    frame.getMeanSamplesAsFloat(actual, 0);
+    for (int i = 0; i < actual.length; i++) {
+      assertEquals((float) expected[i], actual[i], 0.0f);
+    }
+  }
+}
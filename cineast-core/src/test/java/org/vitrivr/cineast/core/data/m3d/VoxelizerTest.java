@@ -0,0 +1,275 @@
+package org.vitrivr.cineast.core.data.m3d;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import org.joml.Vector3f;
+import org.joml.Vector3fc;
+import org.joml.Vector3i;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.vitrivr.cineast.core.util.math.MathConstants;
+import org.vitrivr.cineast.core.util.mesh.MeshMathUtil;
+
+public class VoxelizerTest {
+
+  /**
+   * The voxelization as implemented before voxels were stored in a bitset and faces processed in parallel: one voxel at a time on {@link Vector3f}s, with the voxel center translated by the edge tests, filling a plain array.
+   */
+  private static final class ReferenceVoxelizer {
+
+    private final float rc;
+    private final float rcsq;
+
+    private ReferenceVoxelizer(float resolution) {
+      this.rc = resolution / 2;
+      this.rcsq = (float) Math.pow(this.rc, 2);
+    }
+
+    private boolean[][][] voxelize(ReadableMesh mesh, VoxelGrid grid) {
+      final boolean[][][] voxels = new boolean[grid.getSizeX()][grid.getSizeY()][grid.getSizeZ()];
+      for (Mesh.Face face : mesh.getFaces()) {
+        final List<Mesh.Vertex> vertices = face.getVertices();
+        final List<Vector3fc> positions = new ArrayList<>();
+        vertices.forEach(vertex -> positions.add(vertex.getPosition()));
+        final float[] bounds = MeshMathUtil.bounds(positions);
+        final Vector3i max = grid.coordinateToVoxel(new Vector3f(bounds[0], bounds[2], bounds[4]));
+        final Vector3i min = grid.coordinateToVoxel(new Vector3f(bounds[1], bounds[3], bounds[5]));
+        for (int i = min.x; i <= max.x; i++) {
+          for (int j = min.y; j <= max.y; j++) {
+            for (int k = min.z; k <= max.z; k++) {
+              final Vector3f center = grid.getVoxelCenter(i, j, k);
+              if (this.vertexTest(vertices.get(0), center) || this.vertexTest(vertices.get(1), center) || this.vertexTest(vertices.get(2), center)
+                  || this.edgeTest(vertices.get(0), vertices.get(1), center) || this.edgeTest(vertices.get(1), vertices.get(2), center) || this.edgeTest(vertices.get(2), vertices.get(0), center)
+                  || this.planeTest(vertices.get(0), vertices.get(1), vertices.get(2), center)) {
+                voxels[i][j][k] = true;
+              }
+            }
+          }
+        }
+      }
+      return voxels;
+    }
+
+    private boolean vertexTest(Mesh.Vertex vertex, Vector3f center) {
+      return vertex.getPosition().distanceSquared(center) > this.rcsq;
+    }
+
+    private boolean edgeTest(Mesh.Vertex a, Mesh.Vertex b, Vector3f center) {
+      final Vector3f line = (new Vector3f(b.getPosition())).sub(a.getPosition());
+      final Vector3f pd = center.sub(a.getPosition());
+      final float lsq = a.getPosition().distanceSquared(b.getPosition());
+      final float dot = line.dot(pd);
+      if (dot < 0.0f || dot > lsq) {
+        return false;
+      }
+      final float dsq = pd.lengthSquared() - ((float) Math.pow(dot, 2)) / lsq;
+      return dsq > this.rc;
+    }
+
+    private boolean planeTest(Mesh.Vertex a, Mesh.Vertex b, Mesh.Vertex c, Vector3f center) {
+      final Vector3f corner = (new Vector3f(this.rc, this.rc, this.rc)).add(center);
+      final Vector3f ab = (new Vector3f(b.getPosition())).sub(a.getPosition());
+      final Vector3f ac = (new Vector3f(c.getPosition())).sub(a.getPosition());
+      final Vector3f normal = (new Vector3f(ab)).cross(ac);
+      final float t = (float) (this.rc * MathConstants.SQRT3 * corner.angleCos(center));
+      final Vector3f plus = new Vector3f(normal.x + t, normal.y + t, normal.z + t);
+      final Vector3f minus = new Vector3f(normal.x - t, normal.y - t, normal.z - t);
+      return plus.dot(center) < 0 && minus.dot(center) > 0;
+    }
+  }
+
+  /**
+   * A UV sphere of the given radius.
+   */
+  private static Mesh sphere(float radius, int rings, int sectors) {
+    final Mesh mesh = new Mesh(2 * rings * sectors, (rings + 1) * sectors);
+    for (int r = 0; r <= rings; r++) {
+      final double theta = Math.PI * r / rings;
+      for (int s = 0; s < sectors; s++) {
+        final double phi = 2 * Math.PI * s / sectors;
+        mesh.addVertex((float) (radius * Math.sin(theta) * Math.cos(phi)), (float) (radius * Math.cos(theta)), (float) (radius * Math.sin(theta) * Math.sin(phi)));
+      }
+    }
+    for (int r = 0; r < rings; r++) {
+      for (int s = 0; s < sectors; s++) {
+        final int a = r * sectors + s;
+        final int b = r * sectors + (s + 1) % sectors;
+        final int c = a + sectors;
+        final int d = b + sectors;
+        mesh.addFace(new Vector3i(a, c, b));
+        mesh.addFace(new Vector3i(b, c, d));
+      }
+    }
+    return mesh;
+  }
+
+  /**
+   * A cube with edges of the given length, made of triangles.
+   */
+  private static Mesh cube(float size) {
+    final Mesh mesh = new Mesh(12, 8);
+    for (int i = 0; i < 8; i++) {
+      mesh.addVertex((i & 1) == 0 ? -size / 2 : size / 2, (i & 2) == 0 ? -size / 2 : size / 2, (i & 4) == 0 ? -size / 2 : size / 2);
+    }
+    final int[][] faces = {{0, 1, 3}, {0, 3, 2}, {4, 6, 7}, {4, 7, 5}, {0, 4, 5}, {0, 5, 1}, {2, 3, 7}, {2, 7, 6}, {0, 2, 6}, {0, 6, 4}, {1, 5, 7}, {1, 7, 3}};
+    for (int[] face : faces) {
+      mesh.addFace(new Vector3i(face[0], face[1], face[2]));
+    }
+    return mesh;
+  }
+
+  /**
+   * Random triangles within a box of the given scale, including degenerate ones, whose vertices lie no further than the given size apart from the first.
+   */
+  private static Mesh soup(Random random, int faces, float scale, float size) {
+    final Mesh mesh = new Mesh(faces, 3 * faces);
+    for (int i = 0; i < faces; i++) {
+      for (int v = 0; v < 3; v++) {
+        if (i % 50 == 49 && v > 0) {
+          mesh.addVertex(new Vector3f(mesh.getVertices().get(3 * i).getPosition()));
+        } else if (v == 0) {
+          mesh.addVertex(scale * (random.nextFloat() * 2 - 1), scale * (random.nextFloat() - 0.5f), scale * random.nextFloat() * 0.5f);
+        } else {
+          final Vector3fc first = mesh.getVertices().get(3 * i).getPosition();
+          mesh.addVertex(first.x() + (random.nextFloat() - 0.5f) * size, first.y() + (random.nextFloat() - 0.5f) * size, first.z() + (random.nextFloat() - 0.5f) * size);
+        }
+      }
+      mesh.addFace(new Vector3i(3 * i, 3 * i + 1, 3 * i + 2));
+    }
+    return mesh;
+  }
+
+  /**
+   * Voxelizes the mesh into a grid around the origin that encloses it, as done for the normalized meshes of the features, and compares the result to the reference.
+   */
+  private static void assertEquivalent(Mesh mesh, float resolution) {
+    final float[] bounds = mesh.bounds();
+    final float extent = Math.max(Math.max(Math.abs(bounds[0]), Math.abs(bounds[1])), Math.max(Math.max(Math.abs(bounds[2]), Math.abs(bounds[3])), Math.max(Math.abs(bounds[4]), Math.abs(bounds[5]))));
+    final int size = 2 * (int) Math.ceil(extent / resolution) + 3;
+    final VoxelGrid grid = new Voxelizer(resolution).voxelize(mesh, size, size, size);
+    final boolean[][][] expected = new ReferenceVoxelizer(resolution).voxelize(mesh, new VoxelGrid(size, size, size, resolution, false));
+    int visible = 0;
+    for (int x = 0; x < grid.getSizeX(); x++) {
+      for (int y = 0; y < grid.getSizeY(); y++) {
+        for (int z = 0; z < grid.getSizeZ(); z++) {
+          assertEquals(expected[x][y][z], grid.isVisible(x, y, z), String.format("voxel (%d, %d, %d) at resolution %f", x, y, z, resolution));
+          visible += expected[x][y][z] ? 1 : 0;
+        }
+      }
+    }
+    assertEquals(visible, grid.getVisible());
+    assertEquals(grid.getLength() - visible, grid.getInvisible());
+  }
+
+  @Test
+  @DisplayName("Voxelized sample meshes match the reference voxelization")
+  void testSampleMeshes() {
+    for (float resolution : new float[]{0.5f, 0.1f, 0.037f}) {
+      assertEquivalent(cube(1.0f), resolution);
+      assertEquivalent(sphere(1.0f, 24, 48), resolution);
+    }
+  }
+
+  @Test
+  @DisplayName("Meshes exceeding the grid fail like they did with the reference voxelization")
+  void testExceedingGrid() {
+    final Mesh mesh = sphere(1.0f, 24, 48);
+    final Voxelizer voxelizer = new Voxelizer(0.037f);
+    assertThrows(ArrayIndexOutOfBoundsException.class, () -> new ReferenceVoxelizer(0.037f).voxelize(mesh, new VoxelGrid(56, 56, 56, 0.037f, false)));
+    assertThrows(ArrayIndexOutOfBoundsException.class, () -> voxelizer.voxelize(mesh));
+  }
+
+  @Test
+  @DisplayName("Voxelized random meshes match the reference voxelization")
+  void testRandomMeshes() {
+    final Random random = new Random(49);
+    for (int i = 0; i < 10; i++) {
+      final float resolution = 0.02f + random.nextFloat() * 0.2f;
+      assertEquivalent(soup(random, 50 + random.nextInt(1000), 1.0f, 2.0f), resolution);
+      assertEquivalent(soup(random, 50 + random.nextInt(1000), 1.0f, resolution / 2), resolution);
+    }
+  }
+
+  @Test
+  @DisplayName("Voxelized single faces match the reference voxelization")
+  void testSingleFaces() {
+    /* Triangles smaller than a voxel are decided by the edge- and plane-tests rather than the vertex-tests, the former only for voxels larger than 2. In whole meshes, other faces mostly cover these voxels. */
+    final Random random = new Random(4900);
+    for (int i = 0; i < 2000; i++) {
+      final float resolution = (i % 2 == 0 ? 0.1f : 2.0f) + random.nextFloat() * 4.0f;
+      final Mesh face = soup(random, 1, 2 * resolution, resolution);
+      assertEquivalent(face, resolution);
+    }
+  }
+
+  @Test
+  @DisplayName("Voxels are counted correctly when toggled")
+  void testToggle() {
+    final Random random = new Random(490);
+    final VoxelGrid grid = new VoxelGrid(7, 9, 11, 0.1f, false);
+    final boolean[][][] expected = new boolean[7][9][11];
+    for (int i = 0; i < 5000; i++) {
+      final int x = random.nextInt(7);
+      final int y = random.nextInt(9);
+      final int z = random.nextInt(11);
+      final boolean visible = random.nextBoolean();
+      grid.toggleVoxel(visible, x, y, z);
+      expected[x][y][z] = visible;
+    }
+    int visible = 0;
+    for (int x = 0; x < 7; x++) {
+      for (int y = 0; y < 9; y++) {
+        for (int z = 0; z < 11; z++) {
+          assertEquals(expected[x][y][z], grid.isVisible(x, y, z));
+          assertEquals(expected[x][y][z] ? VoxelGrid.Voxel.VISIBLE : VoxelGrid.Voxel.INVISIBLE, grid.get(x, y, z));
+          visible += expected[x][y][z] ? 1 : 0;
+        }
+      }
+    }
+    assertEquals(visible, grid.getVisible());
+
+    final VoxelGrid active = new VoxelGrid(3, 5, 7, 0.1f, true);
+    assertEquals(105, active.getVisible());
+    assertEquals(0, active.getInvisible());
+    assertTrue(active.isVisible(2, 4, 6));
+    assertThrows(ArrayIndexOutOfBoundsException.class, () -> active.isVisible(3, 0, 0));
+    assertThrows(ArrayIndexOutOfBoundsException.class, () -> active.toggleVoxel(false, 0, -1, 0));
+    assertFalse(new VoxelGrid(3, 5, 7, 0.1f, false).isVisible());
+  }
+
+  @Test
+  @DisplayName("Concurrent toggles are counted once")
+  void testConcurrentToggle() throws Exception {
+    final VoxelGrid grid = new VoxelGrid(16, 16, 16, 0.1f, false);
+    final ExecutorService executor = Executors.newFixedThreadPool(8);
+    try {
+      final List<Future<?>> futures = new ArrayList<>();
+      for (int t = 0; t < 8; t++) {
+        futures.add(executor.submit(() -> {
+          for (int x = 0; x < 16; x++) {
+            for (int y = 0; y < 16; y++) {
+              for (int z = 0; z < 16; z += 2) {
+                grid.toggleVoxel(true, x, y, z);
+              }
+            }
+          }
+        }));
+      }
+      for (Future<?> future : futures) {
+        future.get();
+      }
+    } finally {
+      executor.shutdownNow();
+    }
+    assertEquals(16 * 16 * 8, grid.getVisible());
+  }
+}
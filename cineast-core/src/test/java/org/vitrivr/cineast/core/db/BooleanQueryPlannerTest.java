@@ -0,0 +1,371 @@
+package org.vitrivr.cineast.core.db;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+import org.apache.commons.lang3.tuple.Triple;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.vitrivr.cineast.core.config.QueryConfig;
+import org.vitrivr.cineast.core.config.ReadableQueryConfig;
+import org.vitrivr.cineast.core.data.distance.DistanceElement;
+import org.vitrivr.cineast.core.data.providers.primitive.BooleanTypeProvider;
+import org.vitrivr.cineast.core.data.providers.primitive.DoubleTypeProvider;
+import org.vitrivr.cineast.core.data.providers.primitive.IntTypeProvider;
+import org.vitrivr.cineast.core.data.providers.primitive.LongTypeProvider;
+import org.vitrivr.cineast.core.data.providers.primitive.PrimitiveTypeProvider;
+import org.vitrivr.cineast.core.data.providers.primitive.ProviderDataType;
+import org.vitrivr.cineast.core.data.providers.primitive.StringTypeProvider;
+
+public class BooleanQueryPlannerTest {
+
+  private static final String ID = "id";
+
+  private static final RelationalOperator[] OPERATORS = {RelationalOperator.EQ, RelationalOperator.NEQ, RelationalOperator.GEQ, RelationalOperator.LEQ, RelationalOperator.GREATER, RelationalOperator.LESS, RelationalOperator.BETWEEN, RelationalOperator.IN, RelationalOperator.LIKE, RelationalOperator.NLIKE};
+
+  /**
+   * Keeps its rows in memory and evaluates conditions independently of {@link BooleanQueryPlanner}: Numbers are compared as {@link BigDecimal}, strings by their natural order and LIKE is case-insensitive. Values of different kinds are coerced to strings, as an arbitrary stand-in for a database's type coercion.
+   */
+  private static class InMemorySelector implements DBSelector {
+
+    private final List<Map<String, PrimitiveTypeProvider>> rows;
+    private final AtomicInteger restricted = new AtomicInteger();
+    private final AtomicInteger gathered = new AtomicInteger();
+    private volatile Thread gatheringThread;
+    private volatile CountDownLatch gathering = new CountDownLatch(0);
+
+    private InMemorySelector(List<Map<String, PrimitiveTypeProvider>> rows) {
+      this.rows = rows;
+    }
+
+    @Override
+    public boolean open(String name) {
+      return true;
+    }
+
+    @Override
+    public void close() {
+    }
+
+    @Override
+    public <T extends DistanceElement> List<T> getBatchedNearestNeighbours(int k, List<float[]> vectors, String column, Class<T> distanceElementClass, List<ReadableQueryConfig> queryConfigs) {
+      throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public List<Map<String, PrimitiveTypeProvider>> getNearestNeighbourRows(int k, float[] vector, String column, ReadableQueryConfig queryConfig) {
+      throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public List<float[]> getFeatureVectors(String column, PrimitiveTypeProvider value, String vectorName, ReadableQueryConfig queryConfig) {
+      throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public List<Map<String, PrimitiveTypeProvider>> getRows(String column, Iterable<PrimitiveTypeProvider> values, String dbQueryId) {
+      this.restricted.incrementAndGet();
+      final Set<String> ids = new TreeSet<>();
+      values.forEach(value -> ids.add(value.getString()));
+      return this.rows.stream().filter(row -> row.get(column) != null && ids.contains(row.get(column).getString())).collect(Collectors.toList());
+    }
+
+    @Override
+    public List<Map<String, PrimitiveTypeProvider>> getFulltextRows(int rows, String column, ReadableQueryConfig queryConfig, String... terms) {
+      throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public List<Map<String, PrimitiveTypeProvider>> getRows(String column, RelationalOperator operator, Iterable<PrimitiveTypeProvider> values, ReadableQueryConfig queryConfig) {
+      final List<PrimitiveTypeProvider> references = new ArrayList<>();
+      values.forEach(references::add);
+      return this.rows.stream().filter(row -> matches(row.get(column), operator, references)).collect(Collectors.toList());
+    }
+
+    @Override
+    public Map<String, Integer> countDistinctValues(String column) {
+      this.gathered.incrementAndGet();
+      this.gatheringThread = Thread.currentThread();
+      try {
+        this.gathering.await(10, TimeUnit.SECONDS);
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+      final Map<String, Integer> counts = new HashMap<>();
+      this.rows.stream().filter(row -> row.get(column) != null).forEach(row -> counts.merge(row.get(column).getString(), 1, Integer::sum));
+      return counts;
+    }
+
+    @Override
+    public List<Map<String, PrimitiveTypeProvider>> getAll() {
+      return this.rows;
+    }
+
+    @Override
+    public boolean existsEntity(String name) {
+      return true;
+    }
+
+    @Override
+    public boolean ping() {
+      return true;
+    }
+
+    private static boolean matches(PrimitiveTypeProvider value, RelationalOperator operator, List<PrimitiveTypeProvider> references) {
+      if (value == null) {
+        return operator == RelationalOperator.ISNULL;
+      }
+      switch (operator) {
+        case EQ:
+          return compare(value, references.get(0)) == 0;
+        case NEQ:
+          return compare(value, references.get(0)) != 0;
+        case GEQ:
+          return compare(value, references.get(0)) >= 0;
+        case LEQ:
+          return compare(value, references.get(0)) <= 0;
+        case GREATER:
+          return compare(value, references.get(0)) > 0;
+        case LESS:
+          return compare(value, references.get(0)) < 0;
+        case BETWEEN:
+          return compare(value, references.get(0)) >= 0 && compare(value, references.get(1)) <= 0;
+        case IN:
+          return references.stream().anyMatch(reference -> compare(value, reference) == 0);
+        case LIKE:
+        case NLIKE:
+          final String regex = Pattern.quote(references.get(0).getString()).replace("%", "\\E.*\\Q").replace("_", "\\E.\\Q");
+          return Pattern.compile(regex, Pattern.CASE_INSENSITIVE).matcher(value.getString()).matches() == (operator == RelationalOperator.LIKE);
+        case ISNOTNULL:
+          return true;
+        default:
+          return false;
+      }
+    }
+
+    private static int compare(PrimitiveTypeProvider value, PrimitiveTypeProvider reference) {
+      if (isNumber(value) && isNumber(reference)) {
+        return toDecimal(value).compareTo(toDecimal(reference));
+      }
+      return value.getString().compareTo(reference.getString());
+    }
+
+    private static boolean isNumber(PrimitiveTypeProvider value) {
+      return value.getType() == ProviderDataType.INT || value.getType() == ProviderDataType.LONG || value.getType() == ProviderDataType.DOUBLE;
+    }
+
+    private static BigDecimal toDecimal(PrimitiveTypeProvider value) {
+      return value.getType() == ProviderDataType.DOUBLE ? new BigDecimal(value.getDouble()) : BigDecimal.valueOf(value.getLong());
+    }
+  }
+
+  /**
+   * Rows with an integer, a double, a string, a numeric string and a boolean column, each of which is missing in some rows.
+   */
+  private static List<Map<String, PrimitiveTypeProvider>> rows(Random random, int count) {
+    final List<Map<String, PrimitiveTypeProvider>> rows = new ArrayList<>();
+    for (int i = 0; i < count; i++) {
+      final Map<String, PrimitiveTypeProvider> row = new HashMap<>();
+      row.put(ID, new StringTypeProvider("id" + i));
+      if (random.nextInt(10) > 0) {
+        row.put("n", new IntTypeProvider(random.nextInt(20) - 5));
+      }
+      if (random.nextInt(10) > 0) {
+        row.put("x", new DoubleTypeProvider(random.nextInt(40) / 4.0 - 2.0));
+      }
+      if (random.nextInt(10) > 0) {
+        row.put("s", new StringTypeProvider(randomString(random)));
+      }
+      if (random.nextInt(10) > 0) {
+        row.put("numeric", new StringTypeProvider(Integer.toString(random.nextInt(20))));
+      }
+      if (random.nextInt(10) > 0) {
+        row.put("b", new BooleanTypeProvider(random.nextBoolean()));
+      }
+      rows.add(row);
+    }
+    return rows;
+  }
+
+  private static String randomString(Random random) {
+    final String[] strings = {"cat", "Cat", "dog", "doghouse", "bird", "b_rd", "100%", "10", "9"};
+    return strings[random.nextInt(strings.length)];
+  }
+
+  /**
+   * A random value of a random kind; numbers are often, but not always, compared with numeric columns.
+   */
+  private static PrimitiveTypeProvider randomValue(Random random, String column) {
+    final int kind = random.nextInt(10);
+    if (kind < 6 && (column.equals("n") || column.equals("x"))) {
+      return random.nextBoolean() ? new LongTypeProvider(random.nextInt(20) - 5) : new DoubleTypeProvider(random.nextInt(40) / 4.0 - 2.0);
+    }
+    if (kind < 6 && column.equals("b")) {
+      return new BooleanTypeProvider(random.nextBoolean());
+    }
+    switch (kind % 3) {
+      case 0:
+        return new IntTypeProvider(random.nextInt(20) - 5);
+      case 1:
+        return new StringTypeProvider(random.nextBoolean() ? randomString(random) : random.nextBoolean() ? "%o%" : "b_rd");
+      default:
+        return new StringTypeProvider(Integer.toString(random.nextInt(20)));
+    }
+  }
+
+  private static Triple<String, RelationalOperator, List<PrimitiveTypeProvider>> randomCondition(Random random) {
+    final String[] columns = {"n", "x", "s", "numeric", "b"};
+    final String column = columns[random.nextInt(columns.length)];
+    final RelationalOperator operator = OPERATORS[random.nextInt(OPERATORS.length)];
+    final List<PrimitiveTypeProvider> values = new ArrayList<>();
+    final int count = operator == RelationalOperator.IN ? 1 + random.nextInt(3) : operator == RelationalOperator.BETWEEN ? 2 : 1;
+    for (int i = 0; i < count; i++) {
+      values.add(randomValue(random, column));
+    }
+    return Triple.of(column, operator, values);
+  }
+
+  /**
+   * Evaluates the conditions one by one and intersects the identifiers, i.e. without any client-side evaluation.
+   */
+  private static Set<String> unplanned(DBSelector selector, List<Triple<String, RelationalOperator, List<PrimitiveTypeProvider>>> conditions) {
+    Set<String> ids = null;
+    for (Triple<String, RelationalOperator, List<PrimitiveTypeProvider>> condition : conditions) {
+      final Set<String> matching = selector.getRows(condition.getLeft(), condition.getMiddle(), condition.getRight(), null).stream().map(row -> row.get(ID).getString()).collect(Collectors.toSet());
+      if (ids == null) {
+        ids = new TreeSet<>(matching);
+      } else {
+        ids.retainAll(matching);
+      }
+    }
+    return ids;
+  }
+
+  private static Set<String> ids(List<Map<String, PrimitiveTypeProvider>> rows) {
+    return rows.stream().map(row -> row.get(ID).getString()).collect(Collectors.toCollection(TreeSet::new));
+  }
+
+  private static Triple<String, RelationalOperator, List<PrimitiveTypeProvider>> condition(String column, RelationalOperator operator, PrimitiveTypeProvider... values) {
+    return Triple.of(column, operator, List.of(values));
+  }
+
+  @Test
+  @DisplayName("Conjunctions evaluated client-side return the same rows as the database")
+  void testGetRowsANDEquivalence() {
+    final Random random = new Random(31);
+    final InMemorySelector selector = new InMemorySelector(rows(random, 300));
+    for (int i = 0; i < 2000; i++) {
+      final List<Triple<String, RelationalOperator, List<PrimitiveTypeProvider>>> conditions = new ArrayList<>();
+      final int count = 1 + random.nextInt(4);
+      for (int j = 0; j < count; j++) {
+        conditions.add(randomCondition(random));
+      }
+      assertEquals(unplanned(selector, conditions), ids(selector.getRowsAND(conditions, ID, null, new QueryConfig(null))), conditions.toString());
+    }
+    assertTrue(selector.restricted.get() > 0);
+  }
+
+  @Test
+  @DisplayName("Conjunctions in planned order return the same rows as in the original order")
+  void testPlanEquivalence() {
+    final Random random = new Random(32);
+    final InMemorySelector selector = new InMemorySelector(rows(random, 300));
+    final BooleanQueryPlanner planner = new BooleanQueryPlanner(() -> selector, "planner_test_equivalence");
+    planner.awaitStatistics("n", "x", "s", "numeric", "b");
+    for (int i = 0; i < 500; i++) {
+      final List<Triple<String, RelationalOperator, List<PrimitiveTypeProvider>>> conditions = new ArrayList<>();
+      final int count = 2 + random.nextInt(3);
+      for (int j = 0; j < count; j++) {
+        conditions.add(randomCondition(random));
+      }
+      final List<Triple<String, RelationalOperator, List<PrimitiveTypeProvider>>> plan = planner.plan(conditions);
+      assertEquals(new HashSet<>(conditions), new HashSet<>(plan));
+      assertEquals(unplanned(selector, conditions), ids(selector.getRowsAND(plan, ID, null, new QueryConfig(null))), plan.toString());
+    }
+  }
+
+  @Test
+  @DisplayName("Conditions whose result depends on the database are not evaluated client-side")
+  void testCompileExact() {
+    assertTrue(BooleanQueryPlanner.compileExact(condition("n", RelationalOperator.GEQ, new IntTypeProvider(1))).isPresent());
+    assertTrue(BooleanQueryPlanner.compileExact(condition("s", RelationalOperator.IN, new StringTypeProvider("a"), new StringTypeProvider("b"))).isPresent());
+    assertFalse(BooleanQueryPlanner.compileExact(condition("s", RelationalOperator.LIKE, new StringTypeProvider("c%"))).isPresent());
+    assertFalse(BooleanQueryPlanner.compileExact(condition("s", RelationalOperator.GREATER, new StringTypeProvider("c"))).isPresent());
+    assertFalse(BooleanQueryPlanner.compileExact(condition("s", RelationalOperator.IN, new StringTypeProvider("1"), new IntTypeProvider(1))).isPresent());
+    assertFalse(BooleanQueryPlanner.compileExact(condition("s", RelationalOperator.ISNULL)).isPresent());
+
+    final Triple<String, RelationalOperator, List<PrimitiveTypeProvider>> numeric = condition("n", RelationalOperator.EQ, new LongTypeProvider(Long.MAX_VALUE));
+    assertFalse(BooleanQueryPlanner.compileExact(numeric).orElseThrow().test(new LongTypeProvider(Long.MAX_VALUE - 1)));
+    assertTrue(BooleanQueryPlanner.compileExact(numeric).orElseThrow().test(new LongTypeProvider(Long.MAX_VALUE)));
+    assertFalse(BooleanQueryPlanner.compileExact(numeric).orElseThrow().test(null));
+    assertTrue(BooleanQueryPlanner.isExact(null, numeric));
+    assertTrue(BooleanQueryPlanner.isExact(new DoubleTypeProvider(1.0), numeric));
+    assertFalse(BooleanQueryPlanner.isExact(new StringTypeProvider("1"), numeric));
+  }
+
+  @Test
+  @DisplayName("Conditions are ordered by their selectivity")
+  void testPlan() {
+    final List<Map<String, PrimitiveTypeProvider>> rows = new ArrayList<>();
+    for (int i = 0; i < 100; i++) {
+      rows.add(Map.of(ID, new StringTypeProvider("id" + i), "s", new StringTypeProvider(i < 90 ? "common" : "rare")));
+    }
+    final BooleanQueryPlanner planner = new BooleanQueryPlanner(() -> new InMemorySelector(rows), "planner_test_plan");
+    planner.awaitStatistics(ID, "s");
+    final Triple<String, RelationalOperator, List<PrimitiveTypeProvider>> common = condition("s", RelationalOperator.EQ, new StringTypeProvider("common"));
+    final Triple<String, RelationalOperator, List<PrimitiveTypeProvider>> rare = condition("s", RelationalOperator.EQ, new StringTypeProvider("rare"));
+    final Triple<String, RelationalOperator, List<PrimitiveTypeProvider>> id = condition(ID, RelationalOperator.EQ, new StringTypeProvider("id1"));
+    assertEquals(List.of(rare, common), planner.plan(List.of(common, rare)));
+    assertEquals(List.of(id, rare, common), planner.plan(List.of(common, rare, id)));
+    assertEquals(0.9, planner.estimateSelectivity(common), 1e-9);
+  }
+
+  @Test
+  @DisplayName("Statistics are gathered in the background and refreshed at most once per interval")
+  void testStatisticsRefresh() {
+    final String entity = "planner_test_refresh";
+    final InMemorySelector selector = new InMemorySelector(rows(new Random(33), 10));
+    selector.gathering = new CountDownLatch(1);
+    final Triple<String, RelationalOperator, List<PrimitiveTypeProvider>> first = condition("n", RelationalOperator.EQ, new IntTypeProvider(1));
+    final Triple<String, RelationalOperator, List<PrimitiveTypeProvider>> second = condition("s", RelationalOperator.EQ, new StringTypeProvider("cat"));
+
+    /* Queries do not wait for statistics being gathered. */
+    final BooleanQueryPlanner planner = new BooleanQueryPlanner(() -> selector, entity, TimeUnit.HOURS.toMillis(1));
+    assertEquals(List.of(first, second), planner.plan(List.of(first, second)));
+    selector.gathering.countDown();
+    planner.awaitStatistics("n", "s");
+    assertEquals(2, selector.gathered.get());
+    assertNotSame(Thread.currentThread(), selector.gatheringThread);
+
+    /* Writes do not trigger gathering before the interval has passed. */
+    EntityWriteStatistics.record(entity, 1);
+    planner.plan(List.of(first, second));
+    planner.awaitStatistics("n", "s");
+    assertEquals(2, selector.gathered.get());
+
+    /* Without interval, every write triggers gathering once. */
+    final BooleanQueryPlanner eager = new BooleanQueryPlanner(() -> selector, entity, 0);
+    eager.plan(List.of(first, second));
+    eager.awaitStatistics("n", "s");
+    assertEquals(4, selector.gathered.get());
+    eager.plan(List.of(first, second));
+    eager.awaitStatistics("n", "s");
+    assertEquals(4, selector.gathered.get());
+  }
+}
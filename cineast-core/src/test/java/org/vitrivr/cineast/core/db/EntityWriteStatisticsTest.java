@@ -0,0 +1,56 @@
+package org.vitrivr.cineast.core.db;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+public class EntityWriteStatisticsTest {
+
+  @AfterEach
+  void unconfigure() {
+    EntityWriteStatistics.configure(null);
+  }
+
+  @Test
+  @DisplayName("Counts are kept in memory without a state directory")
+  void testInMemory() {
+    EntityWriteStatistics.configure(null);
+    assertFalse(EntityWriteStatistics.isShared());
+    EntityWriteStatistics.record("test_memory", 10);
+    EntityWriteStatistics.flush();
+    assertEquals(10L, EntityWriteStatistics.pending().get("test_memory"));
+
+    EntityWriteStatistics.reset("test_memory", 4);
+    assertEquals(6L, EntityWriteStatistics.pending().get("test_memory"));
+    EntityWriteStatistics.reset("test_memory", 6);
+    assertNull(EntityWriteStatistics.pending().get("test_memory"));
+    assertEquals(10L, EntityWriteStatistics.version("test_memory"));
+  }
+
+  @Test
+  @DisplayName("Counts are merged into the state file of the configured directory")
+  void testStateDirectory(@TempDir Path directory) throws Exception {
+    final Path stateDirectory = directory.resolve("state");
+    EntityWriteStatistics.configure(stateDirectory);
+    assertTrue(EntityWriteStatistics.isShared());
+    final Path file = stateDirectory.resolve(EntityWriteStatistics.STATE_FILE_NAME);
+    assertFalse(Files.exists(file));
+
+    EntityWriteStatistics.record("test_file", 7);
+    EntityWriteStatistics.flush();
+    assertTrue(Files.exists(file));
+    assertTrue(Files.readString(file).contains("test_file=7,7"));
+
+    EntityWriteStatistics.reset("test_file", 7);
+    assertNull(EntityWriteStatistics.pending().get("test_file"));
+    assertTrue(Files.readString(file).contains("test_file=0,7"));
+  }
+}
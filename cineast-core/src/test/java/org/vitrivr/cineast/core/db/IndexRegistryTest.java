@@ -0,0 +1,86 @@
+package org.vitrivr.cineast.core.db;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+public class IndexRegistryTest {
+
+  private record Key(String name) {
+
+  }
+
+  @Test
+  @DisplayName("Concurrent lookups build a structure once")
+  void testSingleBuild() throws Exception {
+    final Key key = new Key("single");
+    final AtomicInteger builds = new AtomicInteger();
+    final CountDownLatch release = new CountDownLatch(1);
+    final ExecutorService executor = Executors.newFixedThreadPool(8);
+    try {
+      final List<Future<Optional<Object>>> lookups = new ArrayList<>();
+      for (int i = 0; i < 8; i++) {
+        lookups.add(executor.submit(() -> IndexRegistry.lookup(key, "single", 1L, () -> {
+          builds.incrementAndGet();
+          try {
+            release.await();
+          } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+          }
+          return new Object();
+        })));
+      }
+
+      /* Lookups of other structures must not wait for the pending build. */
+      assertEquals(Optional.of("other"), IndexRegistry.lookup(new Key("other"), "other", 1L, () -> "other"));
+
+      release.countDown();
+      final Object structure = lookups.get(0).get(10, TimeUnit.SECONDS).orElseThrow();
+      for (Future<Optional<Object>> lookup : lookups) {
+        assertSame(structure, lookup.get(10, TimeUnit.SECONDS).orElseThrow());
+      }
+      assertEquals(1, builds.get());
+    } finally {
+      executor.shutdownNow();
+    }
+  }
+
+  @Test
+  @DisplayName("Structures are rebuilt after the version changed and after invalidation")
+  void testRebuild() {
+    final Key key = new Key("rebuild");
+    final AtomicInteger builds = new AtomicInteger();
+    assertEquals(Optional.of(1), IndexRegistry.lookup(key, "rebuild", 1L, builds::incrementAndGet));
+    assertEquals(Optional.of(1), IndexRegistry.lookup(key, "rebuild", 1L, builds::incrementAndGet));
+    assertEquals(Optional.of(2), IndexRegistry.lookup(key, "rebuild", 2L, builds::incrementAndGet));
+    assertEquals(1, IndexRegistry.invalidate("rebuild"));
+    assertEquals(0, IndexRegistry.invalidate("rebuild"));
+    assertEquals(Optional.of(3), IndexRegistry.lookup(key, "rebuild", 2L, builds::incrementAndGet));
+  }
+
+  @Test
+  @DisplayName("Missing and failed structures")
+  void testFailures() {
+    final Key key = new Key("failure");
+    assertFalse(IndexRegistry.lookup(key, "failure", 1L, () -> null).isPresent());
+    assertThrows(IllegalStateException.class, () -> IndexRegistry.lookup(key, "failure", 2L, () -> {
+      throw new IllegalStateException();
+    }));
+    /* A failed build is not registered, hence the next lookup builds again. */
+    assertTrue(IndexRegistry.lookup(key, "failure", 2L, () -> "built").isPresent());
+  }
+}
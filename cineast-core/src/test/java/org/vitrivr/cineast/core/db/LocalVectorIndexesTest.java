@@ -0,0 +1,91 @@
+package org.vitrivr.cineast.core.db;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Optional;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.vitrivr.cineast.core.config.QuantizationConfig;
+import org.vitrivr.cineast.core.importer.Importer;
+import org.vitrivr.cineast.core.importer.JsonObjectImporter;
+import org.vitrivr.cineast.core.util.knn.HnswIndex.Metric;
+import org.vitrivr.cineast.core.util.knn.QuantizedVectors;
+
+public class LocalVectorIndexesTest {
+
+  private static final String ENTITY = "local_vector_indexes_test";
+
+  private static File write(Path directory) throws IOException {
+    final StringBuilder json = new StringBuilder("[\n");
+    for (int i = 0; i < 100; i++) {
+      json.append(i == 0 ? "" : ",\n").append("{\"id\":\"s").append(i).append("\",\"a\":[").append(i).append(".0,1.0],\"b\":[1.0,").append(i).append(".0]}");
+    }
+    final Path file = directory.resolve(ENTITY + ".json");
+    Files.writeString(file, json.append("\n]\n"));
+    return file.toFile();
+  }
+
+  private static Importer<?> importer(File file) {
+    try {
+      return new JsonObjectImporter(file);
+    } catch (IOException e) {
+      throw new IllegalStateException(e);
+    }
+  }
+
+  @Test
+  @DisplayName("Quantizing a column blocks neither lookups of other columns nor repeated lookups")
+  void testNonBlocking(@TempDir Path directory) throws Exception {
+    final File file = write(directory);
+    final QuantizationConfig config = new QuantizationConfig();
+    config.setDirectory(directory.toString());
+    final CountDownLatch started = new CountDownLatch(1);
+    final CountDownLatch release = new CountDownLatch(1);
+    final AtomicInteger builds = new AtomicInteger();
+    final ExecutorService executor = Executors.newSingleThreadExecutor();
+    try {
+      final Future<Optional<QuantizedVectors>> blocked = executor.submit(() -> LocalVectorIndexes.quantized(ENTITY, file, "a", Metric.EUCLIDEAN, config, () -> {
+        builds.incrementAndGet();
+        started.countDown();
+        try {
+          release.await();
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+        }
+        return importer(file);
+      }));
+      assertTrue(started.await(10, TimeUnit.SECONDS));
+
+      /* The other column is quantized while the first one is still being built. */
+      final Optional<QuantizedVectors> other = LocalVectorIndexes.quantized(ENTITY, file, "b", Metric.EUCLIDEAN, config, () -> importer(file));
+      assertTrue(other.isPresent());
+      assertEquals(100, other.get().size());
+      assertFalse(blocked.isDone());
+
+      release.countDown();
+      assertEquals(100, blocked.get(10, TimeUnit.SECONDS).orElseThrow().size());
+      LocalVectorIndexes.quantized(ENTITY, file, "a", Metric.EUCLIDEAN, config, () -> {
+        builds.incrementAndGet();
+        return importer(file);
+      });
+      assertEquals(1, builds.get());
+    } finally {
+      release.countDown();
+      executor.shutdownNow();
+    }
+    assertEquals(2, IndexRegistry.invalidate(ENTITY));
+  }
+}
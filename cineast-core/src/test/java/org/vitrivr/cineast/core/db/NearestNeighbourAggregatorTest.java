@@ -0,0 +1,168 @@
+package org.vitrivr.cineast.core.db;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyDouble;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.vitrivr.cineast.core.config.QueryConfig;
+import org.vitrivr.cineast.core.config.ReadableQueryConfig;
+import org.vitrivr.cineast.core.data.distance.SegmentDistanceElement;
+
+public class NearestNeighbourAggregatorTest {
+
+  private record Hit(String id, double distance) {
+
+  }
+
+  private static List<Hit> randomHits(Random random, int count) {
+    final List<Hit> hits = new ArrayList<>(count);
+    for (int i = 0; i < count; i++) {
+      /* Few distinct distances, such that ties occur; multiples of 1/8 are summed exactly in any order. */
+      hits.add(new Hit("s" + random.nextInt(40), random.nextInt(16) / 8.0));
+    }
+    return hits;
+  }
+
+  private static List<SegmentDistanceElement> aggregate(List<Hit> hits, NearestNeighbourAggregation aggregation, double threshold, int k) {
+    final NearestNeighbourAggregator aggregator = new NearestNeighbourAggregator(aggregation, threshold);
+    hits.forEach(hit -> aggregator.add(hit.id(), hit.distance()));
+    return aggregator.top(k, SegmentDistanceElement.class);
+  }
+
+  /**
+   * Aggregates the hits using boxed maps, as the feature modules did before aggregation was pushed into the selector (but with the true mean).
+   */
+  private static Map<String, Double> bruteForce(List<Hit> hits, NearestNeighbourAggregation aggregation, double threshold) {
+    final Map<String, Double> sums = new HashMap<>();
+    final Map<String, Integer> counts = new HashMap<>();
+    for (Hit hit : hits) {
+      if (hit.distance() <= threshold) {
+        sums.merge(hit.id(), hit.distance(), aggregation == NearestNeighbourAggregation.MIN ? Math::min : Double::sum);
+        counts.merge(hit.id(), 1, Integer::sum);
+      }
+    }
+    final Map<String, Double> results = new HashMap<>();
+    sums.forEach((id, sum) -> {
+      switch (aggregation) {
+        case AVG:
+          results.put(id, sum / counts.get(id));
+          break;
+        case COUNT:
+          results.put(id, 1.0 / counts.get(id));
+          break;
+        default:
+          results.put(id, sum);
+      }
+    });
+    return results;
+  }
+
+  @Test
+  @DisplayName("Aggregation matches brute force")
+  void testAggregation() {
+    final Random random = new Random(1);
+    for (NearestNeighbourAggregation aggregation : NearestNeighbourAggregation.values()) {
+      for (double threshold : new double[]{Double.POSITIVE_INFINITY, 1.0, 0.0}) {
+        final List<Hit> hits = randomHits(random, 300);
+        final Map<String, Double> expected = bruteForce(hits, aggregation, threshold);
+        final List<SegmentDistanceElement> actual = aggregate(hits, aggregation, threshold, Integer.MAX_VALUE);
+        assertEquals(expected.size(), actual.size());
+        for (int i = 0; i < actual.size(); i++) {
+          assertEquals(expected.get(actual.get(i).getSegmentId()), actual.get(i).getDistance(), 1e-12);
+          if (i > 0) {
+            assertTrue(actual.get(i - 1).getDistance() <= actual.get(i).getDistance());
+          }
+        }
+      }
+    }
+  }
+
+  @Test
+  @DisplayName("All of several thousand ids are returned in order")
+  void testManyIds() {
+    final Random random = new Random(3);
+    for (NearestNeighbourAggregation aggregation : NearestNeighbourAggregation.values()) {
+      final List<Hit> hits = new ArrayList<>();
+      for (int i = 0; i < 20000; i++) {
+        hits.add(new Hit("s" + random.nextInt(5000), random.nextInt(64) / 8.0));
+      }
+      final Map<String, Double> expected = bruteForce(hits, aggregation, Double.POSITIVE_INFINITY);
+      final List<SegmentDistanceElement> actual = aggregate(hits, aggregation, Double.POSITIVE_INFINITY, expected.size());
+      assertEquals(expected.size(), actual.size());
+      assertTrue(actual.size() > 4000);
+      for (int i = 0; i < actual.size(); i++) {
+        assertEquals(expected.get(actual.get(i).getSegmentId()), actual.get(i).getDistance(), 1e-12);
+        if (i > 0) {
+          assertTrue(actual.get(i - 1).getDistance() <= actual.get(i).getDistance());
+        }
+      }
+    }
+  }
+
+  @Test
+  @DisplayName("The threshold is inclusive and hits beyond it are ignored")
+  void testThreshold() {
+    final List<Hit> hits = List.of(new Hit("a", 0.1), new Hit("a", 0.5), new Hit("b", 0.5), new Hit("c", 0.7), new Hit("d", Double.NaN));
+    final List<SegmentDistanceElement> inclusive = aggregate(hits, NearestNeighbourAggregation.COUNT, 0.5, 10);
+    assertEquals(2, inclusive.size());
+    assertEquals("a", inclusive.get(0).getSegmentId());
+    assertEquals(0.5, inclusive.get(0).getDistance());
+
+    final List<SegmentDistanceElement> exclusive = aggregate(hits, NearestNeighbourAggregation.COUNT, Math.nextDown(0.5), 10);
+    assertEquals(1, exclusive.size());
+    assertEquals("a", exclusive.get(0).getSegmentId());
+    assertEquals(1.0, exclusive.get(0).getDistance());
+  }
+
+  @Test
+  @DisplayName("The order of the results does not depend on the order of the hits")
+  void testOrderIndependence() {
+    final Random random = new Random(2);
+    for (NearestNeighbourAggregation aggregation : NearestNeighbourAggregation.values()) {
+      final List<Hit> hits = randomHits(random, 200);
+      final List<SegmentDistanceElement> expected = aggregate(hits, aggregation, Double.POSITIVE_INFINITY, Integer.MAX_VALUE);
+      for (int k : new int[]{0, 1, 7, expected.size()}) {
+        Collections.shuffle(hits, random);
+        final List<SegmentDistanceElement> actual = aggregate(hits, aggregation, Double.POSITIVE_INFINITY, k);
+        assertEquals(Math.min(k, expected.size()), actual.size());
+        for (int i = 0; i < actual.size(); i++) {
+          assertEquals(expected.get(i).getSegmentId(), actual.get(i).getSegmentId());
+          assertEquals(expected.get(i).getDistance(), actual.get(i).getDistance());
+        }
+      }
+    }
+  }
+
+  @Test
+  @DisplayName("The default selector implementation returns every id hit by a query vector")
+  void testDefaultSelector() {
+    final float[] first = {0.0f};
+    final float[] second = {1.0f};
+    final ReadableQueryConfig config = new QueryConfig(null);
+    final DBSelector selector = mock(DBSelector.class);
+    when(selector.getNearestNeighboursGeneric(anyInt(), eq(first), anyString(), eq(SegmentDistanceElement.class), any())).thenReturn(List.of(new SegmentDistanceElement("a", 0.2), new SegmentDistanceElement("b", 0.5)));
+    when(selector.getNearestNeighboursGeneric(anyInt(), eq(second), anyString(), eq(SegmentDistanceElement.class), any())).thenReturn(List.of(new SegmentDistanceElement("c", 0.1), new SegmentDistanceElement("a", 0.6)));
+    when(selector.getAggregatedNearestNeighbours(anyInt(), any(), anyString(), eq(SegmentDistanceElement.class), any(), any(), anyDouble())).thenCallRealMethod();
+
+    final List<SegmentDistanceElement> results = selector.getAggregatedNearestNeighbours(2, List.of(first, second), "feature", SegmentDistanceElement.class, List.of(config, config), NearestNeighbourAggregation.AVG, Double.POSITIVE_INFINITY);
+    assertEquals(3, results.size());
+    assertEquals("c", results.get(0).getSegmentId());
+    assertEquals("a", results.get(1).getSegmentId());
+    assertEquals(0.4, results.get(1).getDistance(), 1e-12);
+    assertEquals("b", results.get(2).getSegmentId());
+  }
+}
@@ -0,0 +1,179 @@
+package org.vitrivr.cineast.core.db.dao;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.vitrivr.cineast.core.config.CacheConfig;
+import org.vitrivr.cineast.core.data.entities.MediaSegmentDescriptor;
+import org.vitrivr.cineast.core.db.AbstractPersistencyWriter;
+import org.vitrivr.cineast.core.db.PersistentTuple;
+import org.vitrivr.cineast.core.db.dao.writer.MediaSegmentWriter;
+
+public class DescriptorCacheTest {
+
+  /**
+   * Records the ids passed to it and blocks until released.
+   */
+  private static class BlockingLoader implements Function<List<String>, Map<String, String>> {
+
+    private final CountDownLatch started = new CountDownLatch(1);
+    private final CountDownLatch release = new CountDownLatch(1);
+    private final List<String> loaded = Collections.synchronizedList(new ArrayList<>());
+
+    @Override
+    public Map<String, String> apply(List<String> ids) {
+      this.loaded.addAll(ids);
+      this.started.countDown();
+      try {
+        this.release.await(10, TimeUnit.SECONDS);
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+      final Map<String, String> descriptors = new HashMap<>();
+      ids.forEach(id -> descriptors.put(id, "descriptor of " + id));
+      return descriptors;
+    }
+  }
+
+  /**
+   * Records the persisted tuples in batches of two.
+   */
+  private static class RecordingWriter extends AbstractPersistencyWriter<PersistentTuple> {
+
+    private final List<PersistentTuple> tuples = new ArrayList<>();
+
+    @Override
+    public void close() {
+    }
+
+    @Override
+    public boolean open(String name) {
+      return true;
+    }
+
+    @Override
+    public boolean exists(String key, String value) {
+      return false;
+    }
+
+    @Override
+    public boolean persist(List<PersistentTuple> tuples) {
+      this.tuples.addAll(tuples);
+      return true;
+    }
+
+    @Override
+    public PersistentTuple getPersistentRepresentation(PersistentTuple tuple) {
+      return tuple;
+    }
+
+    @Override
+    public int supportedBatchSize() {
+      return 2;
+    }
+  }
+
+  private static DescriptorCache<String> cache() {
+    return new DescriptorCache<>("test", 1L << 20, 600, String::length);
+  }
+
+  @AfterEach
+  void reset() {
+    DescriptorCache.configure(new CacheConfig());
+  }
+
+  @Test
+  @DisplayName("Concurrent requests for the same ids are served by a single load")
+  void testCoalescing() throws Exception {
+    final DescriptorCache<String> cache = cache();
+    final BlockingLoader loader = new BlockingLoader();
+    final CompletableFuture<Map<String, String>> first = CompletableFuture.supplyAsync(() -> cache.getAll(List.of("a", "b"), loader));
+    assertTrue(loader.started.await(10, TimeUnit.SECONDS));
+
+    final CompletableFuture<Map<String, String>> second = CompletableFuture.supplyAsync(() -> cache.getAll(List.of("a", "b", "c"), ids -> {
+      assertEquals(List.of("c"), ids);
+      return Map.of("c", "descriptor of c");
+    }));
+    while (cache.coalescedCount() < 2 && !second.isDone()) {
+      Thread.sleep(1);
+    }
+    loader.release.countDown();
+
+    assertEquals(2, first.get(10, TimeUnit.SECONDS).size());
+    final Map<String, String> resolved = second.get(10, TimeUnit.SECONDS);
+    assertEquals(3, resolved.size());
+    assertEquals("descriptor of a", resolved.get("a"));
+    assertEquals(List.of("a", "b"), loader.loaded);
+    assertEquals(2, cache.coalescedCount());
+    assertEquals(3, cache.size());
+  }
+
+  @Test
+  @DisplayName("A load of an id invalidated meanwhile does not populate the cache")
+  void testInvalidationDuringLoad() throws Exception {
+    final DescriptorCache<String> cache = cache();
+    final BlockingLoader loader = new BlockingLoader();
+    final CompletableFuture<Map<String, String>> request = CompletableFuture.supplyAsync(() -> cache.getAll(List.of("a", "b"), loader));
+    assertTrue(loader.started.await(10, TimeUnit.SECONDS));
+    cache.invalidate("a");
+    cache.invalidate("unrelated");
+    loader.release.countDown();
+
+    assertEquals(2, request.get(10, TimeUnit.SECONDS).size());
+    assertNull(cache.getIfPresent("a"));
+    assertNotNull(cache.getIfPresent("b"));
+  }
+
+  @Test
+  @DisplayName("The cache is bounded by the weight of its descriptors")
+  void testWeightEviction() {
+    final DescriptorCache<String> cache = new DescriptorCache<>("test", 1000, 600, String::length);
+    for (int i = 0; i < 1000; i++) {
+      cache.put("id" + i, "x".repeat(100));
+    }
+    assertTrue(cache.size() <= 10);
+    assertTrue(cache.size() > 0);
+  }
+
+  @Test
+  @DisplayName("Configured sizes of zero disable caching")
+  void testConfigure() {
+    final CacheConfig config = new CacheConfig();
+    config.setSegmentDescriptorCacheSize(0);
+    DescriptorCache.configure(config);
+    DescriptorCache.SEGMENTS.put("v_test_1", new MediaSegmentDescriptor("v_test", "v_test_1", 1, 0, 10, 0f, 1f, true));
+    assertNull(DescriptorCache.SEGMENTS.getIfPresent("v_test_1"));
+  }
+
+  @Test
+  @DisplayName("Writers invalidate descriptors once they have been persisted")
+  void testWriterInvalidation() {
+    final RecordingWriter persistency = new RecordingWriter();
+    final MediaSegmentWriter writer = new MediaSegmentWriter(persistency);
+    final MediaSegmentDescriptor segment = new MediaSegmentDescriptor("v_test", "v_test_1", 1, 0, 10, 0f, 1f, true);
+    DescriptorCache.SEGMENTS.put(segment.getSegmentId(), segment);
+
+    writer.write(segment);
+    assertEquals(0, persistency.tuples.size());
+    assertNotNull(DescriptorCache.SEGMENTS.getIfPresent(segment.getSegmentId()));
+
+    writer.flush();
+    assertEquals(1, persistency.tuples.size());
+    assertNull(DescriptorCache.SEGMENTS.getIfPresent(segment.getSegmentId()));
+  }
+}
@@ -0,0 +1,79 @@
+package org.vitrivr.cineast.core.db.json;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.vitrivr.cineast.core.util.CineastConstants.FEATURE_COLUMN_QUALIFIER;
+import static org.vitrivr.cineast.core.util.CineastConstants.GENERIC_ID_COLUMN_QUALIFIER;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.vitrivr.cineast.core.config.HnswConfig;
+import org.vitrivr.cineast.core.config.QueryConfig;
+import org.vitrivr.cineast.core.config.ReadableQueryConfig.Distance;
+import org.vitrivr.cineast.core.data.distance.SegmentDistanceElement;
+import org.vitrivr.cineast.core.data.providers.primitive.PrimitiveTypeProvider;
+import org.vitrivr.cineast.core.db.IndexRegistry;
+
+public class JsonSelectorTest {
+
+  private static final String ENTITY = "json_selector_test";
+
+  @TempDir
+  Path directory;
+
+  /**
+   * Writes an entity of 50 rows, where the feature of row i is (i, 0).
+   */
+  @BeforeEach
+  void write() throws IOException {
+    final StringBuilder json = new StringBuilder("[\n");
+    for (int i = 0; i < 50; i++) {
+      json.append(i == 0 ? "" : ",\n").append("{\"").append(GENERIC_ID_COLUMN_QUALIFIER).append("\":\"s").append(i).append("\",\"").append(FEATURE_COLUMN_QUALIFIER).append("\":[").append(i).append(".0,0.0]}");
+    }
+    Files.writeString(this.directory.resolve(ENTITY + ".json"), json.append("\n]\n"));
+  }
+
+  private static QueryConfig relevant(String... ids) {
+    final QueryConfig config = new QueryConfig(null).setDistance(Distance.euclidean);
+    config.addRelevantSegmentIds(ids);
+    return config;
+  }
+
+  @Test
+  @DisplayName("Full scans are restricted to the relevant segments")
+  void testRelevantRows() {
+    final JsonSelector selector = new JsonSelector(this.directory.toFile());
+    assertTrue(selector.open(ENTITY));
+    final List<Map<String, PrimitiveTypeProvider>> rows = selector.getNearestNeighbourRows(5, new float[]{0.0f, 0.0f}, FEATURE_COLUMN_QUALIFIER, relevant("s30", "s10", "s20"));
+    assertEquals(List.of("s10", "s20", "s30"), rows.stream().map(row -> row.get(GENERIC_ID_COLUMN_QUALIFIER).getString()).collect(Collectors.toList()));
+    assertEquals(10.0, rows.get(0).get("distance").getDouble(), 1e-6);
+  }
+
+  @Test
+  @DisplayName("Full scans and HNSW indexes return the same relevant segments")
+  void testRelevantIndex() {
+    final QueryConfig config = relevant("s30", "s10", "s20", "missing");
+    final JsonSelector scan = new JsonSelector(this.directory.toFile());
+    assertTrue(scan.open(ENTITY));
+    final List<SegmentDistanceElement> expected = scan.getNearestNeighboursGeneric(5, new float[]{0.0f, 0.0f}, FEATURE_COLUMN_QUALIFIER, SegmentDistanceElement.class, config);
+
+    final HnswConfig hnsw = new HnswConfig();
+    hnsw.setDirectory(this.directory.toString());
+    final JsonSelector indexed = new JsonSelector(this.directory.toFile(), hnsw, null);
+    assertTrue(indexed.open(ENTITY));
+    final List<SegmentDistanceElement> actual = indexed.getNearestNeighboursGeneric(5, new float[]{0.0f, 0.0f}, FEATURE_COLUMN_QUALIFIER, SegmentDistanceElement.class, config);
+
+    assertEquals(3, expected.size());
+    assertEquals(expected.stream().map(SegmentDistanceElement::getSegmentId).collect(Collectors.toList()), actual.stream().map(SegmentDistanceElement::getSegmentId).collect(Collectors.toList()));
+    /* The index is registered with the entity, hence optimizing the entity discards it. */
+    assertEquals(1, IndexRegistry.invalidate(ENTITY));
+  }
+}
@@ -0,0 +1,102 @@
+package org.vitrivr.cineast.core.extraction.decode.m3d;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import org.joml.Vector3f;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.vitrivr.cineast.core.config.CacheConfig;
+import org.vitrivr.cineast.core.config.DecoderConfig;
+import org.vitrivr.cineast.core.data.m3d.Mesh;
+
+public class OBJMeshDecoderTest {
+
+  private static final String VERTICES = "v 0 0 0\nv 1 0 0\nv 1 1 0\nv 0 1 0\nv 0.5 0.5 1\n";
+
+  @TempDir
+  Path directory;
+
+  private Mesh decode(String content) throws IOException {
+    final Path path = Files.createTempFile(this.directory, "mesh", ".obj");
+    Files.writeString(path, content, StandardCharsets.US_ASCII);
+    final OBJMeshDecoder decoder = new OBJMeshDecoder();
+    assertTrue(decoder.init(path, new DecoderConfig(), new CacheConfig()));
+    final Mesh mesh = decoder.getNext();
+    assertTrue(decoder.complete());
+    return mesh;
+  }
+
+  private static int[] indices(Mesh.Face face) {
+    final int[] indices = new int[face.getType() == Mesh.FaceType.QUAD ? 4 : 3];
+    for (int i = 0; i < indices.length; i++) {
+      indices[i] = face.getIndex(i);
+    }
+    return indices;
+  }
+
+  @Test
+  @DisplayName("Vertices and triangular and quadrilateral faces")
+  void testFaces() throws IOException {
+    final Mesh mesh = this.decode("# comment\n" + VERTICES + "vn 0 0 1\nvt 0.5 0.5\no object\ng group\ns off\n"
+        + "f 1 2 3 4\n"
+        + "f 1 2 5\n"
+        + "f 2/1 3/1 5/1\n"
+        + "f 3/1/1 4/1/1 5/1/1\n"
+        + "f 4//1 1//1 5//1\n");
+    assertNotNull(mesh);
+    assertEquals(5, mesh.numberOfVertices());
+    assertEquals(new Vector3f(0.5f, 0.5f, 1.0f), mesh.getVertex(4).getPosition());
+    assertEquals(5, mesh.numberOfFaces());
+    assertEquals(Mesh.FaceType.QUAD, mesh.getFaces().get(0).getType());
+    assertArrayEquals(new int[]{0, 1, 2, 3}, indices(mesh.getFaces().get(0)));
+    assertArrayEquals(new int[]{0, 1, 4}, indices(mesh.getFaces().get(1)));
+    assertArrayEquals(new int[]{1, 2, 4}, indices(mesh.getFaces().get(2)));
+    assertArrayEquals(new int[]{2, 3, 4}, indices(mesh.getFaces().get(3)));
+    assertArrayEquals(new int[]{3, 0, 4}, indices(mesh.getFaces().get(4)));
+  }
+
+  @Test
+  @DisplayName("Whitespace and number formats")
+  void testFormatting() throws IOException {
+    final Mesh mesh = this.decode("v\t-1.5e-3  2.  .25\r\nv 1E2 -0 +3\r\nv 0 0 0   \r\n\r\nf 1\t2 3 \r\n");
+    assertNotNull(mesh);
+    assertEquals(new Vector3f(-1.5e-3f, 2.0f, 0.25f), mesh.getVertex(0).getPosition());
+    assertEquals(new Vector3f(100.0f, -0.0f, 3.0f), mesh.getVertex(1).getPosition());
+    assertArrayEquals(new int[]{0, 1, 2}, indices(mesh.getFaces().get(0)));
+  }
+
+  @Test
+  @DisplayName("Faces with more than four vertices are truncated to a triangle")
+  void testPolygon() throws IOException {
+    final Mesh mesh = this.decode(VERTICES + "f 1 2 3 4 5\n");
+    assertNotNull(mesh);
+    assertEquals(1, mesh.numberOfFaces());
+    assertArrayEquals(new int[]{0, 1, 2}, indices(mesh.getFaces().get(0)));
+  }
+
+  @Test
+  @DisplayName("Faces pointing to missing vertices are skipped")
+  void testMissingVertex() throws IOException {
+    final Mesh mesh = this.decode(VERTICES + "f 1 2 6\nf 1 2 3\nf 0 1 2\n");
+    assertNotNull(mesh);
+    assertEquals(1, mesh.numberOfFaces());
+    assertArrayEquals(new int[]{0, 1, 2}, indices(mesh.getFaces().get(0)));
+  }
+
+  @Test
+  @DisplayName("Invalid files")
+  void testInvalid() throws IOException {
+    assertNull(this.decode(VERTICES + "f 1 2\n"));
+    assertNull(this.decode(VERTICES + "f 1 2 x\n"));
+    assertNull(this.decode("v 0 0 zero\n"));
+  }
+}
@@ -0,0 +1,89 @@
+package org.vitrivr.cineast.core.extraction.decode.m3d;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import org.joml.Vector3f;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.vitrivr.cineast.core.config.CacheConfig;
+import org.vitrivr.cineast.core.config.DecoderConfig;
+import org.vitrivr.cineast.core.data.m3d.Mesh;
+
+public class OFFMeshDecoderTest {
+
+  private static final String VERTICES = "0 0 0\n1 0 0\n1 1 0\n0 1 0\n0.5 0.5 1\n";
+
+  @TempDir
+  Path directory;
+
+  private Mesh decode(String content) throws IOException {
+    final Path path = Files.createTempFile(this.directory, "mesh", ".off");
+    Files.writeString(path, content, StandardCharsets.US_ASCII);
+    final OFFMeshDecoder decoder = new OFFMeshDecoder();
+    assertTrue(decoder.init(path, new DecoderConfig(), new CacheConfig()));
+    final Mesh mesh = decoder.getNext();
+    assertTrue(decoder.complete());
+    return mesh;
+  }
+
+  private static int[] indices(Mesh.Face face) {
+    final int[] indices = new int[face.getType() == Mesh.FaceType.QUAD ? 4 : 3];
+    for (int i = 0; i < indices.length; i++) {
+      indices[i] = face.getIndex(i);
+    }
+    return indices;
+  }
+
+  @Test
+  @DisplayName("Vertices and triangular and quadrilateral faces")
+  void testFaces() throws IOException {
+    final Mesh mesh = this.decode("OFF\n5 3 0\n" + VERTICES + "4 0 1 2 3\n3 0 1 4\n3  2\t3 4 \n");
+    assertNotNull(mesh);
+    assertEquals(5, mesh.numberOfVertices());
+    assertEquals(new Vector3f(0.5f, 0.5f, 1.0f), mesh.getVertex(4).getPosition());
+    assertEquals(3, mesh.numberOfFaces());
+    assertEquals(Mesh.FaceType.QUAD, mesh.getFaces().get(0).getType());
+    assertArrayEquals(new int[]{0, 1, 2, 3}, indices(mesh.getFaces().get(0)));
+    assertArrayEquals(new int[]{0, 1, 4}, indices(mesh.getFaces().get(1)));
+    assertArrayEquals(new int[]{2, 3, 4}, indices(mesh.getFaces().get(2)));
+  }
+
+  @Test
+  @DisplayName("Whitespace, number formats and trailing colours")
+  void testFormatting() throws IOException {
+    final Mesh mesh = this.decode("OFF\r\n3\t1 3\r\n-1.5e-3 2. .25\r\n1E2  -0 +3\r\n0 0 0\r\n3 0 1 2 255 0 0\r\n");
+    assertNotNull(mesh);
+    assertEquals(new Vector3f(-1.5e-3f, 2.0f, 0.25f), mesh.getVertex(0).getPosition());
+    assertEquals(new Vector3f(100.0f, -0.0f, 3.0f), mesh.getVertex(1).getPosition());
+    assertArrayEquals(new int[]{0, 1, 2}, indices(mesh.getFaces().get(0)));
+  }
+
+  @Test
+  @DisplayName("Faces pointing to missing vertices are skipped")
+  void testMissingVertex() throws IOException {
+    final Mesh mesh = this.decode("OFF\n5 2 0\n" + VERTICES + "3 0 1 5\n3 0 1 2\n");
+    assertNotNull(mesh);
+    assertEquals(1, mesh.numberOfFaces());
+    assertArrayEquals(new int[]{0, 1, 2}, indices(mesh.getFaces().get(0)));
+  }
+
+  @Test
+  @DisplayName("Invalid and truncated files")
+  void testInvalid() throws IOException {
+    assertNull(this.decode("5 1 0\n" + VERTICES + "3 0 1 2\n"));
+    assertNull(this.decode("OFF\n"));
+    assertNull(this.decode("OFF\n5 1 0\n0 0 0\n1 0 0\n"));
+    assertNull(this.decode("OFF\n5 2 0\n" + VERTICES + "3 0 1 2\n"));
+    assertNull(this.decode("OFF\n5 1 0\n" + VERTICES + "5 0 1 2 3 4\n"));
+    assertNull(this.decode("OFF\n5 1 0\n" + VERTICES + "3 0 one 2\n"));
+  }
+}
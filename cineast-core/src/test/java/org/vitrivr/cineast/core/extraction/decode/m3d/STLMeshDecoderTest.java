@@ -0,0 +1,177 @@
+package org.vitrivr.cineast.core.extraction.decode.m3d;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+import org.joml.Vector3f;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.vitrivr.cineast.core.config.CacheConfig;
+import org.vitrivr.cineast.core.config.DecoderConfig;
+import org.vitrivr.cineast.core.data.m3d.Mesh;
+
+public class STLMeshDecoderTest {
+
+  /**
+   * Two triangles sharing the edge (1, 0, 0) - (0, 1, 0).
+   */
+  private static final float[][] SQUARE = {
+      {0.0f, 0.0f, 0.0f, 1.0f, 0.0f, 0.0f, 0.0f, 1.0f, 0.0f},
+      {1.0f, 0.0f, 0.0f, 1.0f, 1.0f, 0.0f, 0.0f, 1.0f, 0.0f}
+  };
+
+  @TempDir
+  Path directory;
+
+  private Mesh decode(byte[] content) throws IOException {
+    final Path path = Files.createTempFile(this.directory, "mesh", ".stl");
+    Files.write(path, content);
+    final STLMeshDecoder decoder = new STLMeshDecoder();
+    assertTrue(decoder.init(path, new DecoderConfig(), new CacheConfig()));
+    final Mesh mesh = decoder.getNext();
+    assertTrue(decoder.complete());
+    return mesh;
+  }
+
+  /**
+   * Writes a binary STL file with the given header and number of declared triangles. Every triangle is given as nine coordinates.
+   */
+  private static byte[] binary(String header, int declared, float[]... triangles) {
+    final ByteBuffer buffer = ByteBuffer.allocate(84 + 50 * triangles.length).order(ByteOrder.LITTLE_ENDIAN);
+    final byte[] bytes = header.getBytes(StandardCharsets.US_ASCII);
+    buffer.put(bytes, 0, Math.min(80, bytes.length));
+    buffer.position(80);
+    buffer.putInt(declared);
+    for (float[] triangle : triangles) {
+      buffer.putFloat(0.0f).putFloat(0.0f).putFloat(1.0f);
+      for (float coordinate : triangle) {
+        buffer.putFloat(coordinate);
+      }
+      buffer.putShort((short) 0);
+    }
+    return buffer.array();
+  }
+
+  /**
+   * Writes an ASCII STL file. Every triangle is given as nine coordinates.
+   */
+  private static byte[] ascii(float[]... triangles) {
+    final StringBuilder builder = new StringBuilder("solid test\n");
+    for (float[] triangle : triangles) {
+      builder.append("  facet normal 0 0 1\n    outer loop\n");
+      for (int v = 0; v < 3; v++) {
+        builder.append("      vertex ").append(triangle[3 * v]).append(' ').append(triangle[3 * v + 1]).append(' ').append(triangle[3 * v + 2]).append('\n');
+      }
+      builder.append("    endloop\n  endfacet\n");
+    }
+    return builder.append("endsolid test\n").toString().getBytes(StandardCharsets.US_ASCII);
+  }
+
+  /**
+   * Asserts that the mesh consists of the given triangles, with identical positions merged into a single vertex in order of their first occurrence.
+   */
+  private static void assertMerged(Mesh mesh, float[]... triangles) {
+    assertNotNull(mesh);
+    final Map<Vector3f, Integer> indices = new HashMap<>();
+    assertEquals(triangles.length, mesh.numberOfFaces());
+    for (int t = 0; t < triangles.length; t++) {
+      final Mesh.Face face = mesh.getFaces().get(t);
+      assertEquals(Mesh.FaceType.TRI, face.getType());
+      for (int v = 0; v < 3; v++) {
+        final Vector3f position = new Vector3f(triangles[t][3 * v], triangles[t][3 * v + 1], triangles[t][3 * v + 2]);
+        final int index = indices.computeIfAbsent(position, p -> indices.size());
+        assertEquals(index, face.getIndex(v));
+        assertEquals(position, mesh.getVertex(index).getPosition());
+      }
+    }
+    assertEquals(indices.size(), mesh.numberOfVertices());
+  }
+
+  @Test
+  @DisplayName("Shared vertices of ASCII and binary STL files are merged")
+  void testMerge() throws IOException {
+    final Mesh ascii = this.decode(ascii(SQUARE));
+    assertMerged(ascii, SQUARE);
+    assertEquals(4, ascii.numberOfVertices());
+    assertEquals(1, ascii.getFaces().get(1).getIndex(0));
+    assertEquals(2, ascii.getFaces().get(1).getIndex(2));
+
+    final Mesh binary = this.decode(binary("binary", 2, SQUARE));
+    assertMerged(binary, SQUARE);
+    assertEquals(ascii, binary);
+  }
+
+  @Test
+  @DisplayName("Vertices of many triangles are merged like a map of positions would")
+  void testRandomMerge() throws IOException {
+    /* Positions drawn from a small pool, including both zeros, which are distinct positions. */
+    final float[] pool = {0.0f, -0.0f, 1.0f, -1.5f, 0.1f, 1e-7f, 3.25e5f, Float.MIN_VALUE};
+    final Random random = new Random(29);
+    final float[][] triangles = new float[5000][9];
+    for (float[] triangle : triangles) {
+      for (int c = 0; c < triangle.length; c++) {
+        triangle[c] = pool[random.nextInt(pool.length)];
+      }
+    }
+    assertMerged(this.decode(binary("random", triangles.length, triangles)), triangles);
+    assertMerged(this.decode(ascii(triangles)), triangles);
+  }
+
+  @Test
+  @DisplayName("ASCII STL files with varying whitespace and number formats")
+  void testAsciiFormatting() throws IOException {
+    final String content = "solid formatted\r\n"
+        + "facet normal 0 0 1\r\n"
+        + "\touter loop\r\n"
+        + "\t\tvertex 0 0 0\r\n"
+        + "\t\tvertex   1.0E0\t0.0 -0\r\n"
+        + "\t\tvertex 0e0 1. 0.0\r\n"
+        + "\tendloop\r\n"
+        + "endfacet\r\n"
+        + "facet normal 0 0 1\n"
+        + " outer loop\n"
+        + "  vertex 1 0 0\n"
+        + "  vertex 1.0 1.0 0.0\n"
+        + "  vertex 0 1 0\n"
+        + " endloop\n"
+        + "endfacet\n"
+        + "endsolid formatted";
+    final Mesh mesh = this.decode(content.getBytes(StandardCharsets.US_ASCII));
+    assertMerged(mesh, new float[]{0.0f, 0.0f, 0.0f, 1.0f, 0.0f, -0.0f, 0.0f, 1.0f, 0.0f}, new float[]{1.0f, 0.0f, 0.0f, 1.0f, 1.0f, 0.0f, 0.0f, 1.0f, 0.0f});
+    assertEquals(5, mesh.numberOfVertices());
+  }
+
+  @Test
+  @DisplayName("Binary STL files whose header starts with 'solid'")
+  void testBinaryWithSolidHeader() throws IOException {
+    assertMerged(this.decode(binary("solid exported as binary", 2, SQUARE)), SQUARE);
+  }
+
+  @Test
+  @DisplayName("Truncated and corrupt binary STL files")
+  void testTruncated() throws IOException {
+    /* Three triangles declared, two and a half present. */
+    final byte[] complete = binary("truncated", 3, SQUARE[0], SQUARE[1], SQUARE[0]);
+    assertMerged(this.decode(Arrays.copyOf(complete, complete.length - 25)), SQUARE);
+
+    /* More triangles present than declared. */
+    assertMerged(this.decode(binary("short count", 1, SQUARE)), SQUARE[0]);
+
+    assertNull(this.decode(binary("empty", 0)));
+    assertNull(this.decode(Arrays.copyOf(binary("header", 2, SQUARE), 82)));
+    assertNull(this.decode(new byte[]{1, 2, 3}));
+  }
+}
@@ -0,0 +1,157 @@
+package org.vitrivr.cineast.core.features;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.vitrivr.cineast.core.data.score.ScoreElement;
+
+public class SkeletonPoseTest {
+
+  /**
+   * Retrieved entries of a query, i.e. (segment, query person, person, score) tuples.
+   */
+  private static final class Entries {
+
+    private final List<String> segments = new ArrayList<>();
+    private final List<int[]> entries = new ArrayList<>();
+    private final List<Double> scores = new ArrayList<>();
+
+    private void add(int segment, int queryPerson, int person, double score) {
+      while (this.segments.size() <= segment) {
+        this.segments.add("s" + this.segments.size());
+      }
+      this.entries.add(new int[]{segment, queryPerson, person});
+      this.scores.add(score);
+    }
+
+    private List<ScoreElement> rank(int queryPersons, int limit) {
+      return SkeletonPose.rank(this.segments, queryPersons,
+          this.entries.stream().mapToInt(e -> e[0]).toArray(),
+          this.entries.stream().mapToInt(e -> e[1]).toArray(),
+          this.entries.stream().mapToInt(e -> e[2]).toArray(),
+          this.scores.stream().mapToDouble(Double::doubleValue).toArray(), limit);
+    }
+
+    /**
+     * Scores every segment by enumerating all assignments of query persons to distinct persons (or to none).
+     */
+    private double[] bruteForce(int queryPersons) {
+      final double[] scores = new double[this.segments.size()];
+      for (int segment = 0; segment < scores.length; segment++) {
+        final Map<Integer, double[]> persons = new HashMap<>();
+        for (int e = 0; e < this.entries.size(); e++) {
+          final int[] entry = this.entries.get(e);
+          if (entry[0] == segment) {
+            persons.computeIfAbsent(entry[2], p -> new double[queryPersons])[entry[1]] = this.scores.get(e);
+          }
+        }
+        scores[segment] = best(new ArrayList<>(persons.values()), new boolean[persons.size()], 0, queryPersons) / queryPersons;
+      }
+      return scores;
+    }
+
+    private static double best(List<double[]> persons, boolean[] taken, int queryPerson, int queryPersons) {
+      if (queryPerson == queryPersons) {
+        return 0;
+      }
+      double best = best(persons, taken, queryPerson + 1, queryPersons);
+      for (int p = 0; p < persons.size(); p++) {
+        if (!taken[p]) {
+          taken[p] = true;
+          best = Math.max(best, persons.get(p)[queryPerson] + best(persons, taken, queryPerson + 1, queryPersons));
+          taken[p] = false;
+        }
+      }
+      return best;
+    }
+  }
+
+  private static void assertRanking(Entries entries, int queryPersons, int limit) {
+    final double[] expected = entries.bruteForce(queryPersons);
+    final List<ScoreElement> results = entries.rank(queryPersons, limit);
+
+    /* Every returned segment has its optimal score and no segment left out scores higher than the returned ones. */
+    final double[] sorted = Arrays.stream(expected).map(score -> -score).sorted().map(score -> -score).toArray();
+    assertEquals(Math.min(limit, expected.length), results.size());
+    for (int i = 0; i < results.size(); i++) {
+      final ScoreElement result = results.get(i);
+      assertEquals(expected[Integer.parseInt(result.getId().substring(1))], result.getScore(), 1e-9, result.getId());
+      assertEquals(sorted[i], result.getScore(), 1e-9);
+    }
+  }
+
+  @Test
+  @DisplayName("Assignments match brute force on random queries")
+  void testRandomAssignments() {
+    final Random random = new Random(50);
+    for (int run = 0; run < 500; run++) {
+      final int queryPersons = 1 + random.nextInt(4);
+      final int segments = 1 + random.nextInt(30);
+      final Entries entries = new Entries();
+      for (int segment = 0; segment < segments; segment++) {
+        final int persons = 1 + random.nextInt(5);
+        for (int q = 0; q < queryPersons; q++) {
+          for (int p = 0; p < persons; p++) {
+            if (random.nextInt(3) > 0) {
+              /* Coarse scores provoke ties between persons and between segments. */
+              entries.add(segment, q, p, random.nextInt(5) / 4.0);
+            }
+          }
+        }
+      }
+      if (entries.segments.isEmpty()) {
+        continue;
+      }
+      assertRanking(entries, queryPersons, 1 + random.nextInt(segments + 2));
+    }
+  }
+
+  @Test
+  @DisplayName("Pruning by bound never drops a segment of the top results")
+  void testPruning() {
+    final Entries entries = new Entries();
+
+    /* Both query persons match the same person best: highest bound, but a low score. */
+    entries.add(0, 0, 0, 1.0);
+    entries.add(0, 1, 0, 1.0);
+    entries.add(0, 1, 1, 0.1);
+
+    /* Distinct persons: lower bound, but the best score. */
+    entries.add(1, 0, 0, 0.8);
+    entries.add(1, 1, 1, 0.8);
+
+    /* Bound below the score of segment 0, must not replace it. */
+    entries.add(2, 0, 0, 0.5);
+    entries.add(2, 1, 1, 0.4);
+
+    final List<ScoreElement> results = entries.rank(2, 2);
+    assertEquals(2, results.size());
+    assertEquals("s1", results.get(0).getId());
+    assertEquals(0.8, results.get(0).getScore(), 1e-9);
+    assertEquals("s0", results.get(1).getId());
+    assertEquals(0.55, results.get(1).getScore(), 1e-9);
+    assertRanking(entries, 2, 1);
+    assertRanking(entries, 2, 3);
+  }
+
+  @Test
+  @DisplayName("More query persons than retrieved persons")
+  void testFewerPersons() {
+    final Entries entries = new Entries();
+    entries.add(0, 0, 7, 0.9);
+    entries.add(0, 1, 7, 0.6);
+    entries.add(0, 2, 7, 0.3);
+    entries.add(1, 2, 3, 0.7);
+    final List<ScoreElement> results = entries.rank(3, 5);
+    assertEquals(2, results.size());
+    assertEquals(0.3, results.get(0).getScore(), 1e-9);
+    assertRanking(entries, 3, 5);
+  }
+}
@@ -0,0 +1,190 @@
+package org.vitrivr.cineast.core.features;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import org.apache.commons.math3.complex.Complex;
+import org.apache.commons.math3.util.FastMath;
+import org.joml.Vector3i;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.vitrivr.cineast.core.data.m3d.Mesh;
+import org.vitrivr.cineast.core.data.m3d.VoxelGrid;
+import org.vitrivr.cineast.core.data.m3d.Voxelizer;
+import org.vitrivr.cineast.core.util.math.MathHelper;
+import org.vitrivr.cineast.core.util.math.functions.SphericalHarmonicsFunction;
+
+public class SphericalHarmonicsTest {
+
+  /**
+   * Area element of a sample, as used by the feature module.
+   */
+  private static final double WEIGHT = 0.1f * 0.1f;
+
+  /**
+   * Closed forms of the spherical harmonics Y(l, m) with the Condon-Shortley phase, as evaluated by {@link SphericalHarmonicsFunction} (i.e. with |sin(ϑ)| for ϑ > π).
+   */
+  private static Complex closedForm(int l, int m, double theta, double phi) {
+    final double cos = Math.cos(theta);
+    final double sin = Math.abs(Math.sin(theta));
+    final double value = switch (l * 10 + m) {
+      case 0 -> 0.5 * Math.sqrt(1.0 / Math.PI);
+      case 10 -> 0.5 * Math.sqrt(3.0 / Math.PI) * cos;
+      case 11 -> -0.5 * Math.sqrt(3.0 / (2.0 * Math.PI)) * sin;
+      case 20 -> 0.25 * Math.sqrt(5.0 / Math.PI) * (3.0 * cos * cos - 1.0);
+      case 21 -> -0.5 * Math.sqrt(15.0 / (2.0 * Math.PI)) * sin * cos;
+      case 22 -> 0.25 * Math.sqrt(15.0 / (2.0 * Math.PI)) * sin * sin;
+      case 30 -> 0.25 * Math.sqrt(7.0 / Math.PI) * (5.0 * cos * cos * cos - 3.0 * cos);
+      case 33 -> -0.125 * Math.sqrt(35.0 / Math.PI) * sin * sin * sin;
+      default -> throw new IllegalArgumentException();
+    };
+    return new Complex(value * Math.cos(m * phi), value * Math.sin(m * phi));
+  }
+
+  /**
+   * Index of the coefficient (l, m) within the coefficients of a radius.
+   */
+  private static int coefficient(int minL, int l, int m) {
+    return SphericalHarmonicsFunction.numberOfCoefficients(l - 1, true) - SphericalHarmonicsFunction.numberOfCoefficients(minL - 1, true) + m;
+  }
+
+  private static void assertBasis(SphericalHarmonics.Basis basis, int minL, int l, int m, int sample, Complex expected) {
+    final int c = coefficient(minL, l, m);
+    final Complex weighted = expected.conjugate().multiply(WEIGHT);
+    assertEquals(weighted.getReal(), basis.real[c][sample], 1e-12, String.format("Re Y(%d, %d) at sample %d", l, m, sample));
+    assertEquals(weighted.getImaginary(), basis.imaginary[c][sample], 1e-12, String.format("Im Y(%d, %d) at sample %d", l, m, sample));
+  }
+
+  @Test
+  @DisplayName("Sample angles and voxel coordinates are enumerated like the original sampling loops")
+  void testSamples() {
+    final SphericalHarmonics.Basis basis = SphericalHarmonics.basis(64, 0, 4);
+    int s = 0;
+    for (float theta = 0.0f; theta <= 2 * Math.PI; theta += 0.1f) {
+      for (float phi = 0.0f; phi <= Math.PI; phi += 0.1f, s++) {
+        assertEquals(theta, basis.theta[s]);
+        assertEquals(phi, basis.phi[s]);
+        for (int r = 0; r < basis.radii; r++) {
+          assertEquals((int) ((r + 1) * FastMath.sin(theta) * FastMath.cos(phi)) + 32, basis.x[r][s]);
+          assertEquals((int) ((r + 1) * FastMath.cos(theta)) + 32, basis.y[r][s]);
+          assertEquals((int) ((r + 1) * FastMath.sin(theta) * FastMath.sin(phi)) + 32, basis.z[r][s]);
+        }
+      }
+    }
+    assertEquals(s, basis.samples);
+    assertEquals(22, basis.radii);
+    assertEquals(15, basis.numberOfCoefficients);
+  }
+
+  @Test
+  @DisplayName("Basis tables match the closed forms of the spherical harmonics")
+  void testClosedForms() {
+    final SphericalHarmonics.Basis basis = SphericalHarmonics.basis(64, 0, 4);
+    final int[][] harmonics = {{0, 0}, {1, 0}, {1, 1}, {2, 0}, {2, 1}, {2, 2}, {3, 0}, {3, 3}};
+    final Random random = new Random(28);
+    for (int i = 0; i < 200; i++) {
+      final int s = i < 2 ? i * (basis.samples - 1) : random.nextInt(basis.samples);
+      for (int[] lm : harmonics) {
+        assertBasis(basis, 0, lm[0], lm[1], s, closedForm(lm[0], lm[1], basis.theta[s], basis.phi[s]));
+      }
+    }
+  }
+
+  @Test
+  @DisplayName("Basis tables match direct evaluation for all configurations")
+  void testDirectEvaluation() {
+    final Random random = new Random(280);
+    for (int[] configuration : new int[][]{{64, 0, 4}, {74, 1, 5}, {84, 2, 8}}) {
+      final int minL = configuration[1];
+      final int maxL = configuration[2];
+      final SphericalHarmonics.Basis basis = SphericalHarmonics.basis(configuration[0], minL, maxL);
+      assertEquals(configuration[0] / 2 - 10, basis.radii);
+      assertEquals(coefficient(minL, maxL + 1, 0), basis.numberOfCoefficients);
+      for (int l = minL; l <= maxL; l++) {
+        for (int m = 0; m <= l; m++) {
+          final SphericalHarmonicsFunction function = new SphericalHarmonicsFunction(l, m);
+          for (int i = 0; i < 20; i++) {
+            final int s = random.nextInt(basis.samples);
+            assertBasis(basis, minL, l, m, s, function.value(basis.theta[s], basis.phi[s]));
+          }
+        }
+      }
+    }
+  }
+
+  /**
+   * The feature as calculated before the basis was precomputed: evaluates the spherical harmonics for every coefficient, radius and sample.
+   */
+  private static float[] reference(Mesh mesh, int gridSize, int minL, int maxL) {
+    final int R = gridSize / 2;
+    final int numberOfCoefficients = SphericalHarmonicsFunction.numberOfCoefficients(maxL, true) - SphericalHarmonicsFunction.numberOfCoefficients(minL - 1, true);
+    final float[] feature = new float[(R - 10) * numberOfCoefficients];
+    final VoxelGrid grid = new Voxelizer(2.0f / gridSize).voxelize(mesh, gridSize + 1, gridSize + 1, gridSize + 1);
+    final List<List<Complex>> descriptors = new ArrayList<>();
+    for (int l = minL; l <= maxL; l++) {
+      for (int m = 0; m <= l; m++) {
+        final SphericalHarmonicsFunction fkt = new SphericalHarmonicsFunction(l, m);
+        for (int r = 0; r < R - 10; r++) {
+          if (descriptors.size() <= r) {
+            descriptors.add(new ArrayList<>());
+          }
+          Complex result = new Complex(0.0);
+          for (float theta = 0.0f; theta <= 2 * Math.PI; theta += 0.1f) {
+            for (float phi = 0.0f; phi <= Math.PI; phi += 0.1f) {
+              final int x = (int) ((r + 1) * FastMath.sin(theta) * FastMath.cos(phi)) + R;
+              final int y = (int) ((r + 1) * FastMath.cos(theta)) + R;
+              final int z = (int) ((r + 1) * FastMath.sin(theta) * FastMath.sin(phi)) + R;
+              if (grid.isVisible(x, y, z)) {
+                result = result.add(fkt.value(theta, phi).conjugate().multiply(0.1f * 0.1f));
+              }
+            }
+          }
+          descriptors.get(r).add(result);
+        }
+      }
+    }
+    int i = 0;
+    for (List<Complex> radius : descriptors) {
+      for (Complex descriptor : radius) {
+        feature[i++] = (float) descriptor.abs();
+      }
+    }
+    return MathHelper.normalizeL2(feature);
+  }
+
+  /**
+   * An ellipsoid centered off the origin, so that the descriptors of different orders differ.
+   */
+  private static Mesh ellipsoid() {
+    final int rings = 16;
+    final int sectors = 32;
+    final Mesh mesh = new Mesh(2 * rings * sectors, (rings + 1) * sectors);
+    for (int r = 0; r <= rings; r++) {
+      final double theta = Math.PI * r / rings;
+      for (int s = 0; s < sectors; s++) {
+        final double phi = 2 * Math.PI * s / sectors;
+        mesh.addVertex((float) (0.6 * Math.sin(theta) * Math.cos(phi) + 0.2), (float) (0.9 * Math.cos(theta)), (float) (0.4 * Math.sin(theta) * Math.sin(phi) - 0.1));
+      }
+    }
+    for (int r = 0; r < rings; r++) {
+      for (int s = 0; s < sectors; s++) {
+        final int a = r * sectors + s;
+        final int b = r * sectors + (s + 1) % sectors;
+        mesh.addFace(new Vector3i(a, a + sectors, b));
+        mesh.addFace(new Vector3i(b, a + sectors, b + sectors));
+      }
+    }
+    return mesh;
+  }
+
+  @Test
+  @DisplayName("Features equal the features calculated without precomputed basis")
+  void testFeature() {
+    final Mesh mesh = ellipsoid();
+    assertArrayEquals(reference(mesh, 64, 0, 4), new SphericalHarmonicsDefault().featureVectorFromMesh(mesh), 1e-6f);
+    assertArrayEquals(new float[22 * 15], new SphericalHarmonicsDefault().featureVectorFromMesh(new Mesh(1, 1)));
+  }
+}
@@ -0,0 +1,78 @@
+package org.vitrivr.cineast.core.features.codebook;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.Random;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+public class CodebookTest {
+
+  private static final int WORDS = 64;
+
+  private static final int DIMENSION = 16;
+
+  private static int bruteForce(double[] centroids, double[] data, int offset) {
+    int best = 0;
+    double bestDistance = Double.MAX_VALUE;
+    for (int word = 0; word < WORDS; word++) {
+      double distance = 0.0;
+      for (int d = 0; d < DIMENSION; d++) {
+        final double delta = data[offset + d] - centroids[word * DIMENSION + d];
+        distance += delta * delta;
+      }
+      if (distance < bestDistance) {
+        bestDistance = distance;
+        best = word;
+      }
+    }
+    return best;
+  }
+
+  private static double[] random(Random random, int length) {
+    final double[] values = new double[length];
+    for (int i = 0; i < length; i++) {
+      values[i] = random.nextGaussian();
+    }
+    return values;
+  }
+
+  @Test
+  @DisplayName("Pruned assignment matches brute force")
+  void testAssign() {
+    final Random random = new Random(1);
+    final double[] centroids = random(random, WORDS * DIMENSION);
+    final double[] descriptors = random(random, 2000 * DIMENSION);
+    final Codebook codebook = new Codebook(centroids, DIMENSION);
+    for (int i = 0; i < 2000; i++) {
+      assertEquals(bruteForce(centroids, descriptors, i * DIMENSION), codebook.assign(descriptors, i * DIMENSION));
+    }
+  }
+
+  @Test
+  @DisplayName("Pruned assignment matches brute force after words are moved in place")
+  void testRefresh() {
+    final Random random = new Random(2);
+    final double[] centroids = random(random, WORDS * DIMENSION);
+    final double[] descriptors = random(random, 500 * DIMENSION);
+    final Codebook codebook = Codebook.wrap(centroids, DIMENSION);
+    final int[] moved = new int[WORDS];
+    for (int round = 0; round < 20; round++) {
+      /* Move a random subset of the words, sometimes far away. */
+      int count = 0;
+      for (int word = 0; word < WORDS; word++) {
+        if (random.nextInt(4) == 0) {
+          final double scale = random.nextInt(5) == 0 ? 4.0 : 0.25;
+          for (int d = 0; d < DIMENSION; d++) {
+            centroids[word * DIMENSION + d] += scale * random.nextGaussian();
+          }
+          moved[count++] = word;
+        }
+      }
+      codebook.refresh(moved, count);
+      for (int i = 0; i < 500; i++) {
+        assertEquals(bruteForce(centroids, descriptors, i * DIMENSION), codebook.assign(descriptors, i * DIMENSION));
+      }
+    }
+  }
+}
@@ -0,0 +1,273 @@
+package org.vitrivr.cineast.core.render;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.awt.Color;
+import java.awt.image.BufferedImage;
+import java.util.List;
+import org.joml.Vector3f;
+import org.joml.Vector3i;
+import org.joml.Vector4i;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.vitrivr.cineast.core.data.m3d.Mesh;
+import org.vitrivr.cineast.core.data.m3d.VoxelGrid;
+
+public class SoftwareMeshRendererTest {
+
+  private static final int SIZE = 64;
+
+  /**
+   * Distance of the camera, which looks at the origin along the negative z-axis.
+   */
+  private static final float DISTANCE = 3.0f;
+
+  private static final int BACKGROUND = Color.BLACK.getRGB() & 0xFFFFFF;
+
+  /**
+   * Renders the meshes from the default camera position.
+   */
+  private static BufferedImage render(int size, Mesh... meshes) {
+    final SoftwareMeshRenderer renderer = new SoftwareMeshRenderer(size, size);
+    renderer.retain();
+    try {
+      renderer.clear(Color.BLACK);
+      for (Mesh mesh : meshes) {
+        renderer.assemble(mesh);
+      }
+      renderer.positionCamera(0, 0, DISTANCE, 0, 0, 0, 0, 1, 0);
+      renderer.render();
+      return renderer.obtain();
+    } finally {
+      renderer.release();
+    }
+  }
+
+  /**
+   * Projects a point to the screen-space of the default camera.
+   */
+  private static float[] project(float x, float y, float z, int size) {
+    final float tan = (float) Math.tan(Math.toRadians(SoftwareMeshRenderer.DEFAULT_FOV / 2));
+    final float d = DISTANCE - z;
+    return new float[]{(x / (d * tan) + 1.0f) * 0.5f * size, (1.0f - y / (d * tan)) * 0.5f * size};
+  }
+
+  private static int rgb(BufferedImage image, float[] point) {
+    return image.getRGB((int) point[0], (int) point[1]) & 0xFFFFFF;
+  }
+
+  private static int rgb(float r, float g, float b) {
+    return new Color(r, g, b).getRGB() & 0xFFFFFF;
+  }
+
+  /**
+   * A triangle in a single colour.
+   */
+  private static Mesh triangle(Vector3f a, Vector3f b, Vector3f c, Vector3f color) {
+    final Mesh mesh = new Mesh(1, 3);
+    mesh.addVertex(a, color);
+    mesh.addVertex(b, color);
+    mesh.addVertex(c, color);
+    mesh.addFace(new Vector3i(0, 1, 2));
+    return mesh;
+  }
+
+  /**
+   * An axis-aligned square parallel to the screen as a quad.
+   */
+  private static Mesh square(float half, float z, Vector3f color) {
+    final Mesh mesh = new Mesh(1, 4);
+    mesh.addVertex(new Vector3f(-half, -half, z), color);
+    mesh.addVertex(new Vector3f(half, -half, z), color);
+    mesh.addVertex(new Vector3f(half, half, z), color);
+    mesh.addVertex(new Vector3f(-half, half, z), color);
+    mesh.addFace(new Vector4i(0, 1, 2, 3));
+    return mesh;
+  }
+
+  private static int covered(BufferedImage image) {
+    int covered = 0;
+    for (int y = 0; y < image.getHeight(); y++) {
+      for (int x = 0; x < image.getWidth(); x++) {
+        covered += (image.getRGB(x, y) & 0xFFFFFF) != BACKGROUND ? 1 : 0;
+      }
+    }
+    return covered;
+  }
+
+  @Test
+  @DisplayName("Pixels are covered if their centers lie within a triangle")
+  void testCoverage() {
+    final BufferedImage image = render(SIZE, square(0.5f, 0.0f, new Vector3f(1.0f, 1.0f, 1.0f)));
+    final float[] min = project(-0.5f, 0.5f, 0.0f, SIZE);
+    final float[] max = project(0.5f, -0.5f, 0.0f, SIZE);
+    int expected = 0;
+    for (int y = 0; y < SIZE; y++) {
+      for (int x = 0; x < SIZE; x++) {
+        final boolean inside = x + 0.5f > min[0] && x + 0.5f < max[0] && y + 0.5f > min[1] && y + 0.5f < max[1];
+        assertEquals(inside, (image.getRGB(x, y) & 0xFFFFFF) != BACKGROUND, String.format("pixel (%d, %d)", x, y));
+        expected += inside ? 1 : 0;
+      }
+    }
+    assertTrue(expected > 0);
+  }
+
+  @Test
+  @DisplayName("Adjacent triangles neither overlap nor leave gaps")
+  void testSharedEdges() {
+    /* The shared diagonal runs through pixel centers, which must be covered by exactly one of the triangles. */
+    final Vector3f color = new Vector3f(1.0f, 1.0f, 1.0f);
+    final Vector3f a = new Vector3f(-0.5f, -0.5f, 0.0f);
+    final Vector3f b = new Vector3f(0.5f, -0.5f, 0.0f);
+    final Vector3f c = new Vector3f(0.5f, 0.5f, 0.0f);
+    final Vector3f d = new Vector3f(-0.5f, 0.5f, 0.0f);
+    final int first = covered(render(SIZE, triangle(a, b, c, color)));
+    final int second = covered(render(SIZE, triangle(a, c, d, color)));
+    final int both = covered(render(SIZE, triangle(a, b, c, color), triangle(a, c, d, color)));
+    assertEquals(covered(render(SIZE, square(0.5f, 0.0f, color))), both);
+    assertEquals(both, first + second);
+    assertTrue(first > 0 && second > 0);
+
+    /* A fan of triangles around a pixel center. */
+    final Vector3f center = new Vector3f();
+    int fan = 0;
+    final Vector3f[] corners = {a, b, c, d};
+    for (int i = 0; i < corners.length; i++) {
+      fan += covered(render(SIZE, triangle(center, corners[i], corners[(i + 1) % corners.length], color)));
+    }
+    assertEquals(both, fan);
+  }
+
+  @Test
+  @DisplayName("The closest triangle is visible regardless of the order of assembly")
+  void testDepth() {
+    final Mesh back = square(0.5f, 0.0f, new Vector3f(1.0f, 0.0f, 0.0f));
+    final Mesh front = square(0.25f, 0.5f, new Vector3f(0.0f, 1.0f, 0.0f));
+    final int red = rgb(1.0f, 0.0f, 0.0f);
+    final int green = rgb(0.0f, 1.0f, 0.0f);
+    final float[] center = project(0.1f, 0.1f, 0.5f, SIZE);
+    final float[] border = project(0.4f, 0.4f, 0.0f, SIZE);
+    for (BufferedImage image : new BufferedImage[]{render(SIZE, back, front), render(SIZE, front, back)}) {
+      assertEquals(green, rgb(image, center));
+      assertEquals(red, rgb(image, border));
+    }
+
+    /* Intersecting triangles: each one is visible where it is closer. */
+    final Mesh tilted = triangle(new Vector3f(-0.5f, -0.5f, 0.5f), new Vector3f(0.5f, -0.5f, -0.5f), new Vector3f(0.0f, 0.5f, 0.0f), new Vector3f(0.0f, 0.0f, 1.0f));
+    final Mesh flat = triangle(new Vector3f(-0.5f, -0.5f, 0.0f), new Vector3f(0.5f, -0.5f, 0.0f), new Vector3f(0.0f, 0.5f, 0.0f), new Vector3f(1.0f, 0.0f, 0.0f));
+    final BufferedImage image = render(SIZE, flat, tilted);
+    assertEquals(rgb(0.0f, 0.0f, 1.0f), rgb(image, project(-0.2f, -0.3f, 0.2f, SIZE)));
+    assertEquals(red, rgb(image, project(0.2f, -0.3f, 0.0f, SIZE)));
+  }
+
+  @Test
+  @DisplayName("Triangles are clipped against the near plane")
+  void testNearPlane() {
+    final Vector3f color = new Vector3f(1.0f, 1.0f, 1.0f);
+    final Mesh behind = triangle(new Vector3f(-1.0f, -1.0f, 4.0f), new Vector3f(1.0f, -1.0f, 4.0f), new Vector3f(0.0f, 1.0f, 4.0f), color);
+    assertEquals(0, covered(render(SIZE, behind)));
+
+    /* Reaches from the front of the camera to behind it. */
+    final Mesh straddling = triangle(new Vector3f(-1.0f, -1.0f, 0.0f), new Vector3f(1.0f, -1.0f, 0.0f), new Vector3f(0.0f, 0.0f, 5.0f), color);
+    final BufferedImage image = render(SIZE, straddling);
+    assertEquals(rgb(1.0f, 1.0f, 1.0f), rgb(image, project(0.0f, -0.9f, 0.5f, SIZE)));
+    assertEquals(BACKGROUND, rgb(image, project(0.0f, 0.5f, 0.0f, SIZE)));
+  }
+
+  @Test
+  @DisplayName("Faces are drawn in the average colour of their vertices")
+  void testColour() {
+    final Mesh mesh = new Mesh(1, 3);
+    mesh.addVertex(new Vector3f(-0.5f, -0.5f, 0.0f), new Vector3f(1.0f, 0.0f, 0.0f));
+    mesh.addVertex(new Vector3f(0.5f, -0.5f, 0.0f), new Vector3f(0.0f, 1.0f, 0.0f));
+    mesh.addVertex(new Vector3f(0.0f, 0.5f, 0.0f), new Vector3f(0.0f, 0.0f, 1.0f));
+    mesh.addFace(new Vector3i(0, 1, 2));
+    assertEquals(rgb(1.0f / 3, 1.0f / 3, 1.0f / 3), rgb(render(SIZE, mesh), project(0.0f, 0.0f, 0.0f, SIZE)));
+
+    /* Both halves of a quad. */
+    final BufferedImage quad = render(SIZE, square(0.5f, 0.0f, new Vector3f(0.2f, 0.4f, 0.6f)));
+    assertEquals(rgb(0.2f, 0.4f, 0.6f), rgb(quad, project(0.3f, -0.3f, 0.0f, SIZE)));
+    assertEquals(rgb(0.2f, 0.4f, 0.6f), rgb(quad, project(-0.3f, 0.3f, 0.0f, SIZE)));
+
+    /* Voxels carry no colour. */
+    final SoftwareMeshRenderer renderer = new SoftwareMeshRenderer(SIZE, SIZE);
+    renderer.retain();
+    try {
+      renderer.clear(Color.BLUE);
+      renderer.assemble(new VoxelGrid(1, 1, 1, 1.0f, true));
+      renderer.positionCamera(0, 0, DISTANCE, 0, 0, 0, 0, 1, 0);
+      renderer.render();
+      final BufferedImage voxel = renderer.obtain();
+      assertEquals(0xFFFFFF, rgb(voxel, project(0.0f, 0.0f, 0.5f, SIZE)));
+      assertEquals(Color.BLUE.getRGB() & 0xFFFFFF, voxel.getRGB(0, 0) & 0xFFFFFF);
+    } finally {
+      renderer.release();
+    }
+  }
+
+  @Test
+  @DisplayName("Every face keeps its colour when many faces are assembled")
+  void testManyFaces() {
+    final int cells = 40;
+    final float cell = 3.0f / cells;
+    final Mesh mesh = new Mesh(cells * cells, 4 * cells * cells);
+    for (int i = 0; i < cells; i++) {
+      for (int j = 0; j < cells; j++) {
+        final Vector3f color = new Vector3f(i / (float) cells, j / (float) cells, 0.5f);
+        final float x = -1.5f + i * cell;
+        final float y = -1.5f + j * cell;
+        mesh.addVertex(new Vector3f(x, y, 0.0f), color);
+        mesh.addVertex(new Vector3f(x + cell, y, 0.0f), color);
+        mesh.addVertex(new Vector3f(x + cell, y + cell, 0.0f), color);
+        mesh.addVertex(new Vector3f(x, y + cell, 0.0f), color);
+        final int base = 4 * (i * cells + j);
+        mesh.addFace(new Vector4i(base, base + 1, base + 2, base + 3));
+      }
+    }
+    final int size = 256;
+    final BufferedImage image = render(size, mesh);
+    for (int i = 0; i < cells; i++) {
+      for (int j = 0; j < cells; j++) {
+        final float[] center = project(-1.5f + (i + 0.5f) * cell, -1.5f + (j + 0.5f) * cell, 0.0f, size);
+        assertEquals(rgb(i / (float) cells, j / (float) cells, 0.5f), rgb(image, center), String.format("cell (%d, %d)", i, j));
+      }
+    }
+  }
+
+  @Test
+  @DisplayName("Views rendered in parallel equal views rendered one by one")
+  void testRenderViews() {
+    final Mesh mesh = new Mesh(2, 4);
+    mesh.addVertex(new Vector3f(-0.5f, -0.5f, 0.0f), new Vector3f(1.0f, 0.0f, 0.0f));
+    mesh.addVertex(new Vector3f(0.5f, -0.5f, 0.2f), new Vector3f(0.0f, 1.0f, 0.0f));
+    mesh.addVertex(new Vector3f(0.0f, 0.5f, -0.3f), new Vector3f(0.0f, 0.0f, 1.0f));
+    mesh.addVertex(new Vector3f(0.3f, 0.4f, 0.5f), new Vector3f(1.0f, 1.0f, 0.0f));
+    mesh.addFace(new Vector3i(0, 1, 2));
+    mesh.addFace(new Vector3i(1, 3, 2));
+
+    final SoftwareMeshRenderer renderer = new SoftwareMeshRenderer(SIZE, SIZE);
+    renderer.retain();
+    try {
+      renderer.clear(Color.BLACK);
+      renderer.assemble(mesh);
+      final List<Vector3f> positions = List.of(new Vector3f(0.0f, 0.0f, DISTANCE), new Vector3f(DISTANCE, 0.0f, 0.0f), new Vector3f(1.0f, 2.0f, -2.0f));
+      final List<BufferedImage> views = renderer.renderViews(positions);
+      assertEquals(positions.size(), views.size());
+      for (int i = 0; i < positions.size(); i++) {
+        final Vector3f eye = positions.get(i);
+        final Vector3f look = new Vector3f(eye).negate().normalize();
+        final Vector3f up = new Vector3f(look).cross(0.0f, 1.0f, 0.0f).normalize().cross(look).normalize();
+        renderer.positionCamera(eye.x, eye.y, eye.z, 0, 0, 0, up.x, up.y, up.z);
+        renderer.render();
+        final BufferedImage expected = renderer.obtain();
+        assertArrayEquals(expected.getRGB(0, 0, SIZE, SIZE, null, 0, SIZE), views.get(i).getRGB(0, 0, SIZE, SIZE, null, 0, SIZE));
+        assertNotEquals(0, covered(views.get(i)));
+      }
+    } finally {
+      renderer.release();
+    }
+  }
+}
@@ -1,18 +1,224 @@
 package org.vitrivr.cineast.core.temporal.sequential;
 
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import com.carrotsearch.hppc.IntObjectHashMap;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Random;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import java.util.stream.StreamSupport;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
 import org.vitrivr.cineast.core.data.StringDoublePair;
 import org.vitrivr.cineast.core.data.TemporalObject;
 import org.vitrivr.cineast.core.data.entities.MediaSegmentDescriptor;
+import org.vitrivr.cineast.core.temporal.AbstractTemporalScoringAlgorithm;
+import org.vitrivr.cineast.core.temporal.ScoredSegment;
 import org.vitrivr.cineast.core.temporal.TemporalTestCases;
 
 public class SequentialTemporalScoringAlgorithmTest {
 
+  /**
+   * The implementation preceding the dynamic program, which enumerates all paths from every segment; serves as the reference for the scores and segments.
+   */
+  private static final class PathEnumeration extends AbstractTemporalScoringAlgorithm {
+
+    private final Map<String, List<SequentialPath>> objectPaths = new HashMap<>();
+
+    private PathEnumeration(Map<String, MediaSegmentDescriptor> segmentMap, List<List<StringDoublePair>> containerResults, float maxLength) {
+      super(segmentMap, containerResults, maxLength);
+    }
+
+    @Override
+    public List<TemporalObject> score() {
+      for (IntObjectHashMap<ScoredSegment> segments : scoredSegmentStorage.values()) {
+        StreamSupport.stream(segments.values().spliterator(), false).forEach(scoredSegment -> {
+          MediaSegmentDescriptor mediaSegmentDescriptor = segmentMap.get(scoredSegment.value.getSegmentId());
+          this.objectPaths.computeIfAbsent(mediaSegmentDescriptor.getObjectId(), objectId -> new ArrayList<>()).add(this.getBestPathForSegment(mediaSegmentDescriptor, scoredSegment.value));
+        });
+      }
+      List<TemporalObject> results = new ArrayList<>();
+      this.objectPaths.forEach((objectId, paths) -> {
+        double max = paths.stream().mapToDouble(n -> (n.getScore() / (this.maxContainerId + 1))).max().orElse(0D);
+        List<String> segmentIds = paths.stream().flatMap(listContainer -> listContainer.getSegmentIds().stream()).distinct().collect(Collectors.toList());
+        List<Integer> sequenceNumbers = this.getSequenceNumbers(segmentIds);
+        List<String> sortedSegments = new ArrayList<>(IntStream.range(0, segmentIds.size()).boxed().collect(Collectors.toMap(sequenceNumbers::get, segmentIds::get, (s, a) -> s + ", " + a, TreeMap::new)).values());
+        if (max > 0d) {
+          results.add(new TemporalObject(sortedSegments, objectId, max));
+        }
+      });
+      return results.stream().sorted(Comparator.comparingDouble(TemporalObject::getScore).reversed()).collect(Collectors.toList());
+    }
+
+    private boolean withinMaxLength(ScoredSegment first, ScoredSegment candidate) {
+      return candidate.getEndAbs() == 0 ? candidate.getEnd() - first.getStart() <= this.maxLength : candidate.getEndAbs() - first.getStartAbs() <= this.maxLength;
+    }
+
+    private SequentialPath getBestPathForSegment(MediaSegmentDescriptor mediaSegmentDescriptor, ScoredSegment scoredSegment) {
+      PriorityQueue<SequentialPath> pathQueue = new PriorityQueue<>();
+      SequentialPath bestPath = new SequentialPath(mediaSegmentDescriptor.getObjectId(), scoredSegment);
+      pathQueue.add(bestPath);
+      while (!pathQueue.isEmpty()) {
+        SequentialPath path = pathQueue.remove();
+        ScoredSegment lastHighestSegment = path.getCurrentLastSegment();
+        Set<ScoredSegment> potentialFollowingSegments = scoredSegmentSets.get(mediaSegmentDescriptor.getObjectId()).tailSet(lastHighestSegment);
+        for (ScoredSegment candidate : potentialFollowingSegments) {
+          if (candidate.getContainerId() <= lastHighestSegment.getContainerId() || candidate.getStart() < lastHighestSegment.getEnd() || candidate.getSequenceNumber() <= lastHighestSegment.getSequenceNumber()) {
+            continue;
+          }
+          if (!this.withinMaxLength(scoredSegment, candidate)) {
+            continue;
+          }
+          SequentialPath candidatePath = new SequentialPath(path);
+          candidatePath.addSegment(candidate);
+          if ((bestPath.getScore() / (maxContainerId + 1)) < (candidatePath.getScore() / (maxContainerId + 1))) {
+            bestPath = candidatePath;
+          }
+          if (candidate.getContainerId() != this.maxContainerId) {
+            pathQueue.add(candidatePath);
+          }
+        }
+      }
+      return bestPath;
+    }
+  }
+
+  /**
+   * Scores the input with both the {@link SequentialTemporalScoringAlgorithm} and the {@link PathEnumeration} and asserts that they agree.
+   */
+  private static List<TemporalObject> assertEquivalent(Map<String, MediaSegmentDescriptor> segmentMap, List<List<StringDoublePair>> containerResults, float maxLength, String description) {
+    final List<TemporalObject> expected = new PathEnumeration(segmentMap, containerResults, maxLength).score();
+    final List<TemporalObject> actual = new SequentialTemporalScoringAlgorithm(segmentMap, containerResults, maxLength).score();
+    assertEquals(expected.size(), actual.size(), description);
+    final Map<String, TemporalObject> byObject = actual.stream().collect(Collectors.toMap(TemporalObject::getObjectId, object -> object));
+    for (int i = 0; i < expected.size(); i++) {
+      assertEquals(expected.get(i).getScore(), actual.get(i).getScore(), 1e-9, description);
+      final TemporalObject object = byObject.get(expected.get(i).getObjectId());
+      assertEquals(expected.get(i).getScore(), object.getScore(), 1e-9, description);
+      assertEquals(expected.get(i).getSegments(), object.getSegments(), description);
+    }
+    return actual;
+  }
+
+  /**
+   * Generates the segments of an object, either regular (increasing in time and sequence, with absolute times), image sequences (without absolute times) or irregular (overlapping, in random sequence and with or without absolute times).
+   */
+  private static List<MediaSegmentDescriptor> randomObject(Random random, String objectId, int regime) {
+    final int count = 1 + random.nextInt(9);
+    final List<Integer> sequence = IntStream.rangeClosed(1, count).boxed().collect(Collectors.toList());
+    if (regime == 2) {
+      Collections.shuffle(sequence, random);
+    }
+    final List<MediaSegmentDescriptor> segments = new ArrayList<>(count);
+    int end = 0;
+    for (int i = 0; i < count; i++) {
+      int start;
+      int length;
+      if (regime == 2) {
+        start = random.nextInt(40);
+        length = random.nextInt(12) - 2;
+      } else {
+        start = end + random.nextInt(4);
+        length = 1 + random.nextInt(10);
+      }
+      end = start + length;
+      final boolean abs = regime == 0 || (regime == 2 && random.nextBoolean());
+      segments.add(new MediaSegmentDescriptor(objectId, objectId + "_" + i, sequence.get(i), start, end, abs ? start * 0.5f : 0f, abs ? end * 0.5f : 0f, true));
+    }
+    return segments;
+  }
+
+  @Test
+  @DisplayName("Random cases match path enumeration")
+  public void testRandomEquivalence() {
+    final Random random = new Random(1);
+    final double[] scores = {0.25, 0.5, 0.75, 1.0};
+    final float[] maxLengths = {0f, 5f, 10f, 12.5f, 20f, 30f, 1000f};
+    for (int c = 0; c < 3000; c++) {
+      final Map<String, MediaSegmentDescriptor> segmentMap = new HashMap<>();
+      final int objects = 1 + random.nextInt(3);
+      for (int o = 0; o < objects; o++) {
+        randomObject(random, "o" + o, random.nextInt(3)).forEach(segment -> segmentMap.put(segment.getSegmentId(), segment));
+      }
+      final List<String> ids = new ArrayList<>(segmentMap.keySet());
+      Collections.sort(ids);
+      final List<List<StringDoublePair>> containerResults = new ArrayList<>();
+      final int containers = 1 + random.nextInt(4);
+      for (int container = 0; container < containers; container++) {
+        final List<StringDoublePair> results = new ArrayList<>();
+        for (String id : ids) {
+          if (random.nextDouble() < 0.5) {
+            results.add(new StringDoublePair(id, scores[random.nextInt(scores.length)]));
+            /* Segments retrieved repeatedly by a container are scored by the mean; few distinct scores produce ties. */
+            if (random.nextDouble() < 0.1) {
+              results.add(new StringDoublePair(id, scores[random.nextInt(scores.length)]));
+            }
+          }
+        }
+        if (random.nextDouble() < 0.1) {
+          results.add(new StringDoublePair("unknown", 1.0));
+        }
+        containerResults.add(results);
+      }
+      final float maxLength = maxLengths[random.nextInt(maxLengths.length)];
+      assertEquivalent(segmentMap, containerResults, maxLength, "Case " + c);
+    }
+  }
+
+  @Test
+  @DisplayName("Ties between paths are broken like path enumeration")
+  public void testTies() {
+    final Map<String, MediaSegmentDescriptor> segmentMap = new HashMap<>();
+    for (int i = 0; i < 6; i++) {
+      final MediaSegmentDescriptor segment = new MediaSegmentDescriptor("tie", "tie_" + i, i + 1, 10 * i, 10 * i + 10, i, i + 1, true);
+      segmentMap.put(segment.getSegmentId(), segment);
+    }
+    /* Every segment scores the same in every container, hence many paths reach the same score. */
+    final List<List<StringDoublePair>> containerResults = new ArrayList<>();
+    for (int container = 0; container < 3; container++) {
+      containerResults.add(segmentMap.keySet().stream().sorted().map(id -> new StringDoublePair(id, 0.5)).collect(Collectors.toList()));
+    }
+    final List<TemporalObject> result = assertEquivalent(segmentMap, containerResults, 1000f, "Ties");
+    assertEquals(1, result.size());
+    assertEquals(0.5, result.get(0).getScore(), 1e-9);
+  }
+
+  @Test
+  @DisplayName("The maximal length is inclusive and measured in frames or absolute time")
+  public void testMaxLengthEdge() {
+    /* Image sequences (endAbs = 0) are measured by their frames, which end exactly at the maximal length. */
+    final Map<String, MediaSegmentDescriptor> frames = new HashMap<>();
+    frames.put("f_0", new MediaSegmentDescriptor("f", "f_0", 1, 0, 5, 0f, 0f, true));
+    frames.put("f_1", new MediaSegmentDescriptor("f", "f_1", 2, 5, 10, 0f, 0f, true));
+    final List<List<StringDoublePair>> containers = List.of(List.of(new StringDoublePair("f_0", 1.0)), List.of(new StringDoublePair("f_1", 1.0)));
+    assertEquals(1.0, assertEquivalent(frames, containers, 10f, "Frames at the edge").get(0).getScore(), 1e-9);
+    assertEquals(0.5, assertEquivalent(frames, containers, Math.nextDown(10f), "Frames beyond the edge").get(0).getScore(), 1e-9);
+
+    /* Segments with absolute times are measured by them, regardless of their frames. */
+    final Map<String, MediaSegmentDescriptor> abs = new HashMap<>();
+    abs.put("f_0", new MediaSegmentDescriptor("f", "f_0", 1, 0, 5, 1f, 2f, true));
+    abs.put("f_1", new MediaSegmentDescriptor("f", "f_1", 2, 5, 10, 2f, 3f, true));
+    assertEquals(1.0, assertEquivalent(abs, containers, 2f, "Absolute times at the edge").get(0).getScore(), 1e-9);
+    assertEquals(0.5, assertEquivalent(abs, containers, Math.nextDown(2f), "Absolute times beyond the edge").get(0).getScore(), 1e-9);
+    assertEquals(1.0, assertEquivalent(abs, containers, 2f, "Frames beyond, absolute times at the edge").get(0).getScore(), 1e-9);
+
+    /* A segment without absolute times following one with them is measured in frames from the start of the path. */
+    final Map<String, MediaSegmentDescriptor> mixed = new HashMap<>();
+    mixed.put("f_0", new MediaSegmentDescriptor("f", "f_0", 1, 0, 5, 1f, 2f, true));
+    mixed.put("f_1", new MediaSegmentDescriptor("f", "f_1", 2, 5, 10, 0f, 0f, true));
+    assertEquals(1.0, assertEquivalent(mixed, containers, 10f, "Mixed at the edge").get(0).getScore(), 1e-9);
+    assertEquals(0.5, assertEquivalent(mixed, containers, 9f, "Mixed beyond the edge").get(0).getScore(), 1e-9);
+  }
+
   @Test
   @DisplayName("Sanity temporal scoring")
   public void testSanity() {
@@ -0,0 +1,89 @@
+package org.vitrivr.cineast.core.util;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+public class MetadataUtilTest {
+
+  @TempDir
+  Path directory;
+
+  private Path first;
+
+  private Path second;
+
+  @BeforeEach
+  void setUp() throws IOException {
+    Files.write(this.directory.resolve("first.json"), "{\"name\": \"first\"}".getBytes(StandardCharsets.UTF_8));
+    Files.write(this.directory.resolve("second.json"), "{\"name\": \"second\"}".getBytes(StandardCharsets.UTF_8));
+    this.first = this.directory.resolve("first.jpg");
+    this.second = this.directory.resolve("second.jpg");
+  }
+
+  private JsonNode json(Path path) {
+    return MetadataUtil.getJsonMetadata(path).orElseThrow();
+  }
+
+  @Test
+  @DisplayName("Metadata is parsed once per scope")
+  void testSharedScope() {
+    final JsonNode outside = this.json(this.first);
+    assertNotSame(outside, this.json(this.first));
+
+    final JsonNode inside = MetadataUtil.withSharedMetadata(this.first, () -> {
+      final JsonNode node = this.json(this.first);
+      assertSame(node, this.json(this.first));
+      /* Other files are not affected by the scope. */
+      assertNotSame(this.json(this.second), this.json(this.second));
+      return node;
+    });
+    assertEquals("first", inside.get("name").asText());
+    assertNotSame(inside, this.json(this.first));
+  }
+
+  @Test
+  @DisplayName("Nested scopes restore the enclosing scope")
+  void testNestedScopes() {
+    MetadataUtil.withSharedMetadata(this.first, () -> {
+      final JsonNode outer = this.json(this.first);
+      final JsonNode inner = MetadataUtil.withSharedMetadata(this.second, () -> {
+        assertNotSame(this.json(this.first), this.json(this.first));
+        final JsonNode node = this.json(this.second);
+        assertSame(node, this.json(this.second));
+        return node;
+      });
+      assertEquals("second", inner.get("name").asText());
+      assertSame(outer, this.json(this.first));
+      return null;
+    });
+  }
+
+  @Test
+  @DisplayName("Scopes are local to a thread")
+  void testThreadLocalScope() {
+    MetadataUtil.withSharedMetadata(this.first, () -> {
+      final JsonNode node = this.json(this.first);
+      final JsonNode[] other = new JsonNode[1];
+      final Thread thread = new Thread(() -> other[0] = this.json(this.first));
+      thread.start();
+      try {
+        thread.join();
+      } catch (InterruptedException e) {
+        throw new IllegalStateException(e);
+      }
+      assertNotSame(node, other[0]);
+      return null;
+    });
+  }
+}
@@ -0,0 +1,89 @@
+package org.vitrivr.cineast.core.util.audio;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+import java.util.List;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.vitrivr.cineast.core.data.frames.AudioDescriptor;
+import org.vitrivr.cineast.core.data.frames.AudioFrame;
+import org.vitrivr.cineast.core.data.segments.AudioSegment;
+import org.vitrivr.cineast.core.util.dsp.fft.STFT;
+import org.vitrivr.cineast.core.util.dsp.fft.windows.BlackmanHarrisWindow;
+import org.vitrivr.cineast.core.util.dsp.fft.windows.HanningWindow;
+
+public class DerivedAudioFeaturesTest {
+
+  private static final AudioDescriptor DESCRIPTOR = new AudioDescriptor(22050.0f, 1, 0);
+
+  private AudioSegment segment;
+
+  /**
+   * Creates a mono frame containing a 440 Hz sine tone.
+   */
+  private static AudioFrame frame(long idx, int samples) {
+    final byte[] data = new byte[2 * samples];
+    for (int i = 0; i < samples; i++) {
+      final short value = (short) (0.5 * Short.MAX_VALUE * Math.sin(2 * Math.PI * 440.0 * i / DESCRIPTOR.getSamplingrate()));
+      data[2 * i] = (byte) value;
+      data[2 * i + 1] = (byte) (value >> 8);
+    }
+    return new AudioFrame(idx, 0, data, DESCRIPTOR);
+  }
+
+  @BeforeEach
+  void setUp() {
+    this.segment = spy(new AudioSegment());
+    this.segment.addFrame(frame(0, 8192));
+  }
+
+  @Test
+  @DisplayName("STFTs are shared per parameter set")
+  void testSharedSTFT() {
+    final STFT stft = DerivedAudioFeatures.stft(this.segment, 2048, 0, 0, new HanningWindow());
+    assertSame(stft, DerivedAudioFeatures.stft(this.segment, 2048, 0, 0, new HanningWindow()));
+    assertNotSame(stft, DerivedAudioFeatures.stft(this.segment, 2048, 512, 0, new HanningWindow()));
+    assertNotSame(stft, DerivedAudioFeatures.stft(this.segment, 2048, 0, 0, new BlackmanHarrisWindow()));
+    verify(this.segment, times(3)).getSTFT(anyInt(), anyInt(), anyInt(), any());
+  }
+
+  @Test
+  @DisplayName("HPCPs and MFCCs are derived from the shared STFT")
+  void testDerivedFeatures() {
+    final HPCP hpcp = DerivedAudioFeatures.hpcp(this.segment, 2048, 0, 0, new HanningWindow(), HPCP.Resolution.FULLSEMITONE, 50.0f, 5000.0f);
+    assertSame(hpcp, DerivedAudioFeatures.hpcp(this.segment, 2048, 0, 0, new HanningWindow(), HPCP.Resolution.FULLSEMITONE, 50.0f, 5000.0f));
+    assertNotSame(hpcp, DerivedAudioFeatures.hpcp(this.segment, 2048, 0, 0, new HanningWindow(), HPCP.Resolution.FULLSEMITONE, 100.0f, 5000.0f));
+
+    final List<MFCC> mfcc = DerivedAudioFeatures.mfcc(this.segment, 2048, 0, 0, new HanningWindow());
+    assertSame(mfcc, DerivedAudioFeatures.mfcc(this.segment, 2048, 0, 0, new HanningWindow()));
+
+    final STFT stft = DerivedAudioFeatures.stft(this.segment, 2048, 0, 0, new HanningWindow());
+    assertEquals(stft.getStft().size(), hpcp.size());
+    assertEquals(stft.getStft().size(), mfcc.size());
+    verify(this.segment, times(1)).getSTFT(anyInt(), anyInt(), anyInt(), any());
+  }
+
+  @Test
+  @DisplayName("Adding a frame invalidates the shared results")
+  void testInvalidation() {
+    final STFT before = DerivedAudioFeatures.stft(this.segment, 2048, 0, 0, new HanningWindow());
+    final HPCP hpcp = DerivedAudioFeatures.hpcp(this.segment, 2048, 0, 0, new HanningWindow(), HPCP.Resolution.FULLSEMITONE, 50.0f, 5000.0f);
+    assertTrue(this.segment.addFrame(frame(1, 8192)));
+
+    final STFT after = DerivedAudioFeatures.stft(this.segment, 2048, 0, 0, new HanningWindow());
+    assertNotSame(before, after);
+    assertTrue(after.getStft().size() > before.getStft().size());
+    final HPCP updated = DerivedAudioFeatures.hpcp(this.segment, 2048, 0, 0, new HanningWindow(), HPCP.Resolution.FULLSEMITONE, 50.0f, 5000.0f);
+    assertNotSame(hpcp, updated);
+    assertEquals(after.getStft().size(), updated.size());
+  }
+}
@@ -0,0 +1,151 @@
+package org.vitrivr.cineast.core.util.audio.pitch;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.vitrivr.cineast.core.data.Pair;
+import org.vitrivr.cineast.core.util.audio.pitch.estimation.KLF0PitchEstimator;
+import org.vitrivr.cineast.core.util.audio.pitch.tracking.PitchTracker;
+import org.vitrivr.cineast.core.util.dsp.fft.FFT;
+import org.vitrivr.cineast.core.util.dsp.fft.FFTUtil;
+import org.vitrivr.cineast.core.util.dsp.fft.STFT;
+import org.vitrivr.cineast.core.util.dsp.fft.windows.HanningWindow;
+import org.vitrivr.cineast.core.util.dsp.filter.frequency.SpectralWhiteningFilter;
+import org.vitrivr.cineast.core.util.dsp.midi.MidiUtil;
+
+/**
+ * Regression test for {@link KLF0PitchEstimator} and {@link PitchTracker} on a synthetic, harmonic melody. The expected values were obtained from the implementation preceding the flat candidate storage.
+ */
+public class PitchTrackingTest {
+
+  private static final float SAMPLING_RATE = 22050.0f;
+
+  /**
+   * Fundamental frequencies of the synthetic melody.
+   */
+  private static final double[] NOTES = {220.0, 277.18, 329.63, 440.0, 246.94, 196.0};
+
+  /**
+   * Duration of every note in seconds.
+   */
+  private static final double NOTE_DURATION = 0.8;
+
+  private STFT stft;
+
+  @BeforeEach
+  void synthesize() {
+    final double[] samples = new double[(int) (SAMPLING_RATE * NOTE_DURATION * NOTES.length)];
+    final Random random = new Random(1);
+    for (int i = 0; i < samples.length; i++) {
+      final double f0 = NOTES[(int) (i / (SAMPLING_RATE * NOTE_DURATION))];
+      final double t = i / SAMPLING_RATE;
+      double value = 0.0;
+      for (int h = 1; h <= 6; h++) {
+        value += Math.sin(2 * Math.PI * h * f0 * t) / h;
+      }
+      samples[i] = 0.3 * value + 0.01 * random.nextGaussian();
+    }
+    final Pair<Integer, Integer> parameters = FFTUtil.parametersForDuration(SAMPLING_RATE, 0.1f);
+    this.stft = new STFT(parameters.first, 0, parameters.second, new HanningWindow(), SAMPLING_RATE);
+    this.stft.forward(samples);
+    this.stft.applyFilter(new SpectralWhiteningFilter(this.stft.getWindowsize(), this.stft.getSamplingrate(), 0.33f, 30));
+  }
+
+  @Test
+  @DisplayName("Pitch candidates")
+  void testCandidates() {
+    final List<List<Pitch>> candidates = new KLF0PitchEstimator().estimatePitch(this.stft);
+    assertEquals(48, candidates.size());
+
+    int count = 0;
+    double salience = 0.0;
+    for (List<Pitch> frame : candidates) {
+      count += frame.size();
+      for (Pitch pitch : frame) {
+        salience += pitch.getSalience();
+      }
+    }
+    assertEquals(145, count);
+    assertEquals(1748.0447313785553, salience, 1e-6);
+
+    final List<Pitch> frame = candidates.get(10);
+    assertEquals(3, frame.size());
+    assertEquals(277.18262f, frame.get(0).getFrequency(), 1e-3f);
+    assertEquals(17.284542322158813, frame.get(0).getSalience(), 1e-6);
+    assertEquals(6.255167007446289, frame.get(2).getSalience(), 1e-6);
+  }
+
+  @Test
+  @DisplayName("Bulk and per-FFT estimation")
+  void testBulkEstimation() {
+    final KLF0PitchEstimator estimator = new KLF0PitchEstimator();
+    final List<List<Pitch>> bulk = estimator.estimatePitch(this.stft);
+    final List<List<Pitch>> single = new ArrayList<>();
+    for (FFT fft : this.stft.getStft()) {
+      if (!fft.isZero()) {
+        single.add(estimator.estimatePitch(fft));
+      }
+    }
+    assertEquals(single.size(), bulk.size());
+    for (int t = 0; t < bulk.size(); t++) {
+      assertEquals(single.get(t).size(), bulk.get(t).size());
+      for (int i = 0; i < bulk.get(t).size(); i++) {
+        assertEquals(single.get(t).get(i).getFrequency(), bulk.get(t).get(i).getFrequency());
+        assertEquals(single.get(t).get(i).getSalience(), bulk.get(t).get(i).getSalience());
+      }
+    }
+  }
+
+  @Test
+  @DisplayName("Strongest candidate matches the fundamental")
+  void testStrongestCandidate() {
+    final List<FFT> ffts = this.stft.getStft();
+    final double hop = this.stft.timeStepsize();
+    final KLF0PitchEstimator estimator = new KLF0PitchEstimator();
+    for (int t = 0; t < ffts.size(); t++) {
+      /* Only consider frames that lie entirely within a single note. */
+      final double start = t * hop;
+      final double end = start + this.stft.getWindowsize() / SAMPLING_RATE;
+      final int note = (int) (start / NOTE_DURATION);
+      if (note >= NOTES.length || (int) (end / NOTE_DURATION) != note || ffts.get(t).isZero()) {
+        continue;
+      }
+      final List<Pitch> frame = estimator.estimatePitch(ffts.get(t));
+      assertTrue(frame.size() > 0);
+      Pitch strongest = frame.get(0);
+      for (Pitch pitch : frame) {
+        if (pitch.getSalience() > strongest.getSalience()) {
+          strongest = pitch;
+        }
+      }
+      final double cents = 1200.0 * Math.abs(Math.log(strongest.getFrequency() / NOTES[note]) / Math.log(2));
+      assertTrue(cents < 50.0, "Frame " + t + " estimated " + strongest.getFrequency() + " Hz for " + NOTES[note] + " Hz.");
+    }
+  }
+
+  @Test
+  @DisplayName("Melody extraction")
+  void testMelody() {
+    final PitchTracker tracker = new PitchTracker();
+    tracker.initialize(new KLF0PitchEstimator().estimatePitch(this.stft), this.stft.timeStepsize());
+    tracker.trackPitches();
+    final Melody melody = tracker.extractMelody(10);
+
+    final int[] midi = {61, 64, 69, 59};
+    final double[] saliences = {156.4668254852295, 147.59167170524597, 161.19748640060425, 136.30365872383118};
+    final List<Pitch> pitches = new ArrayList<>();
+    melody.forEach(pitches::add);
+    assertEquals(midi.length, pitches.size());
+    for (int i = 0; i < midi.length; i++) {
+      assertEquals(midi[i], MidiUtil.frequencyToMidi(pitches.get(i).getFrequency()));
+      assertEquals(900, pitches.get(i).getDuration());
+      assertEquals(saliences[i], pitches.get(i).getSalience(), 1e-6);
+    }
+  }
+}
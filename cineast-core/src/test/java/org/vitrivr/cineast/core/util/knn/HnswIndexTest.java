@@ -0,0 +1,189 @@
+package org.vitrivr.cineast.core.util.knn;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Optional;
+import java.util.Random;
+import java.util.Set;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.vitrivr.cineast.core.data.distance.SegmentDistanceElement;
+import org.vitrivr.cineast.core.util.knn.HnswIndex.Metric;
+
+public class HnswIndexTest {
+
+  private static final int DIMENSIONS = 16;
+  private static final int SIZE = 3000;
+  private static final int QUERIES = 50;
+  private static final int K = 10;
+  private static final int EF = 64;
+
+  private static float[][] random(Random random, int count) {
+    final float[][] vectors = new float[count][DIMENSIONS];
+    for (float[] vector : vectors) {
+      for (int i = 0; i < DIMENSIONS; i++) {
+        vector[i] = random.nextFloat();
+      }
+    }
+    return vectors;
+  }
+
+  private static double distance(Metric metric, float[] a, float[] b) {
+    double sum = 0.0;
+    double dot = 0.0;
+    double normA = 0.0;
+    double normB = 0.0;
+    for (int i = 0; i < a.length; i++) {
+      final double d = a[i] - b[i];
+      sum += metric == Metric.MANHATTAN ? Math.abs(d) : d * d;
+      dot += a[i] * b[i];
+      normA += a[i] * a[i];
+      normB += b[i] * b[i];
+    }
+    switch (metric) {
+      case EUCLIDEAN:
+        return Math.sqrt(sum);
+      case COSINE:
+        return 1.0 - dot / Math.sqrt(normA * normB);
+      default:
+        return sum;
+    }
+  }
+
+  /**
+   * Returns the identifiers of the k nearest (relevant) vectors.
+   */
+  private static Set<String> bruteForce(Metric metric, float[][] vectors, float[] query, Set<String> relevant) {
+    return IntStream.range(0, vectors.length)
+        .filter(i -> relevant == null || relevant.contains("v" + i))
+        .boxed()
+        .sorted(Comparator.comparingDouble(i -> distance(metric, vectors[i], query)))
+        .limit(K)
+        .map(i -> "v" + i)
+        .collect(Collectors.toSet());
+  }
+
+  private static HnswIndex build(Metric metric, float[][] vectors) {
+    final HnswIndex index = new HnswIndex(DIMENSIONS, metric, 16, 100);
+    IntStream.range(0, vectors.length).parallel().forEach(i -> index.add("v" + i, vectors[i]));
+    return index;
+  }
+
+  /**
+   * Returns the fraction of the true k nearest neighbours found by the index.
+   */
+  private static double recall(HnswIndex index, float[][] vectors, float[][] queries, Set<String> relevant) {
+    int found = 0;
+    int expected = 0;
+    for (float[] query : queries) {
+      final Set<String> truth = bruteForce(index.metric(), vectors, query, relevant);
+      final List<SegmentDistanceElement> results = index.nearest(K, query, EF, relevant, SegmentDistanceElement.class);
+      for (int i = 0; i < results.size(); i++) {
+        assertTrue(relevant == null || relevant.contains(results.get(i).getSegmentId()));
+        if (i > 0) {
+          assertTrue(results.get(i - 1).getDistance() <= results.get(i).getDistance());
+        }
+        if (truth.contains(results.get(i).getSegmentId())) {
+          found++;
+        }
+      }
+      expected += truth.size();
+    }
+    return (double) found / expected;
+  }
+
+  @Test
+  @DisplayName("Recall against brute force")
+  void testRecall() {
+    final Random random = new Random(1);
+    final float[][] vectors = random(random, SIZE);
+    final float[][] queries = random(random, QUERIES);
+    for (Metric metric : new Metric[]{Metric.EUCLIDEAN, Metric.MANHATTAN, Metric.COSINE}) {
+      final HnswIndex index = build(metric, vectors);
+      assertEquals(SIZE, index.size());
+      final double recall = recall(index, vectors, queries, null);
+      assertTrue(recall >= 0.95, metric + " recall " + recall);
+    }
+  }
+
+  @Test
+  @DisplayName("Distances match brute force")
+  void testDistances() {
+    final Random random = new Random(2);
+    final float[][] vectors = random(random, 500);
+    final HnswIndex index = build(Metric.EUCLIDEAN, vectors);
+    final float[] query = random(random, 1)[0];
+    final List<SegmentDistanceElement> results = index.nearest(1, query, EF, null, SegmentDistanceElement.class);
+    assertEquals(1, results.size());
+    final int nearest = Integer.parseInt(results.get(0).getSegmentId().substring(1));
+    assertEquals(distance(Metric.EUCLIDEAN, vectors[nearest], query), results.get(0).getDistance(), 1e-5);
+  }
+
+  @Test
+  @DisplayName("Filtered recall against brute force")
+  void testFilteredRecall() {
+    final Random random = new Random(3);
+    final float[][] vectors = random(random, SIZE);
+    final float[][] queries = random(random, QUERIES);
+    final HnswIndex index = build(Metric.EUCLIDEAN, vectors);
+    /* A selective filter is evaluated exhaustively, a permissive one by the graph search. */
+    for (double fraction : new double[]{0.01, 0.5}) {
+      final Set<String> relevant = new HashSet<>();
+      for (int i = 0; i < SIZE; i++) {
+        if (random.nextDouble() < fraction) {
+          relevant.add("v" + i);
+        }
+      }
+      final double recall = recall(index, vectors, queries, relevant);
+      assertTrue(recall >= 0.95, "Recall " + recall + " with " + relevant.size() + " relevant vectors");
+    }
+    assertTrue(index.nearest(K, queries[0], EF, Set.of("unknown"), SegmentDistanceElement.class).isEmpty());
+  }
+
+  @Test
+  @DisplayName("Saved indexes are loaded with the same stamp only")
+  void testSaveLoad(@TempDir Path directory) throws Exception {
+    final Random random = new Random(4);
+    final float[][] vectors = random(random, SIZE);
+    final float[][] queries = random(random, QUERIES);
+    final HnswIndex index = build(Metric.COSINE, vectors);
+    final Path path = directory.resolve("index.hnsw");
+    index.save(path, 42L);
+
+    assertFalse(HnswIndex.load(path, 43L).isPresent());
+    assertFalse(HnswIndex.load(directory.resolve("missing.hnsw"), 42L).isPresent());
+    final Optional<HnswIndex> loaded = HnswIndex.load(path, 42L);
+    assertTrue(loaded.isPresent());
+    assertEquals(index.size(), loaded.get().size());
+    assertEquals(index.dimensions(), loaded.get().dimensions());
+    assertEquals(index.metric(), loaded.get().metric());
+    for (float[] query : queries) {
+      final List<SegmentDistanceElement> expected = index.nearest(K, query, EF, null, SegmentDistanceElement.class);
+      final List<SegmentDistanceElement> actual = loaded.get().nearest(K, query, EF, null, SegmentDistanceElement.class);
+      assertEquals(expected.size(), actual.size());
+      for (int i = 0; i < expected.size(); i++) {
+        assertEquals(expected.get(i).getSegmentId(), actual.get(i).getSegmentId());
+        assertEquals(expected.get(i).getDistance(), actual.get(i).getDistance(), 1e-9);
+      }
+    }
+
+    /* Loaded indexes accept further insertions. */
+    final List<float[]> added = new ArrayList<>();
+    for (int i = 0; i < 10; i++) {
+      added.add(random(random, 1)[0]);
+      loaded.get().add("w" + i, added.get(i));
+    }
+    assertEquals(SIZE + 10, loaded.get().size());
+    assertEquals("w3", loaded.get().nearest(1, added.get(3), EF, null, SegmentDistanceElement.class).get(0).getSegmentId());
+  }
+}
@@ -0,0 +1,141 @@
+package org.vitrivr.cineast.core.util.knn;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.nio.file.Path;
+import java.util.AbstractMap.SimpleImmutableEntry;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Random;
+import java.util.Set;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.vitrivr.cineast.core.data.distance.SegmentDistanceElement;
+import org.vitrivr.cineast.core.util.knn.HnswIndex.Metric;
+import org.vitrivr.cineast.core.util.knn.QuantizedVectors.Quantization;
+
+public class QuantizedVectorsTest {
+
+  private static final int DIMENSIONS = 32;
+  private static final int SIZE = 4000;
+  private static final int QUERIES = 40;
+  private static final int K = 10;
+
+  private static float[][] random(Random random, int count) {
+    final float[][] vectors = new float[count][DIMENSIONS];
+    for (float[] vector : vectors) {
+      for (int i = 0; i < DIMENSIONS; i++) {
+        vector[i] = random.nextFloat();
+      }
+    }
+    return vectors;
+  }
+
+  private static double distance(float[] a, float[] b) {
+    double sum = 0.0;
+    for (int i = 0; i < a.length; i++) {
+      sum += (a[i] - b[i]) * (a[i] - b[i]);
+    }
+    return Math.sqrt(sum);
+  }
+
+  private static QuantizedVectors build(Path path, Quantization quantization, float[][] vectors) throws Exception {
+    final Optional<QuantizedVectors> built = QuantizedVectors.build(path, 7L, Metric.EUCLIDEAN, quantization, 8, 2000,
+        IntStream.range(0, vectors.length).<Map.Entry<String, float[]>>mapToObj(i -> new SimpleImmutableEntry<>("v" + i, vectors[i])).iterator());
+    assertTrue(built.isPresent());
+    return built.get();
+  }
+
+  /**
+   * Returns the fraction of the true k nearest neighbours found, asserting that the returned distances are exact.
+   */
+  private static double recall(QuantizedVectors quantized, float[][] vectors, float[][] queries, int rerank, Set<String> relevant) {
+    int found = 0;
+    int expected = 0;
+    for (float[] query : queries) {
+      final Set<String> truth = IntStream.range(0, vectors.length)
+          .filter(i -> relevant == null || relevant.contains("v" + i))
+          .boxed()
+          .sorted(Comparator.comparingDouble(i -> distance(vectors[i], query)))
+          .limit(K)
+          .map(i -> "v" + i)
+          .collect(Collectors.toSet());
+      final List<SegmentDistanceElement> results = quantized.nearest(K, query, rerank, relevant, SegmentDistanceElement.class);
+      assertEquals(truth.size(), results.size());
+      for (int i = 0; i < results.size(); i++) {
+        final String id = results.get(i).getSegmentId();
+        assertTrue(relevant == null || relevant.contains(id));
+        assertEquals(distance(vectors[Integer.parseInt(id.substring(1))], query), results.get(i).getDistance(), 1e-5);
+        if (i > 0) {
+          assertTrue(results.get(i - 1).getDistance() <= results.get(i).getDistance());
+        }
+        if (truth.contains(id)) {
+          found++;
+        }
+      }
+      expected += truth.size();
+    }
+    return (double) found / expected;
+  }
+
+  @Test
+  @DisplayName("Re-ranking recovers the exact nearest neighbours")
+  void testRerankRecall(@TempDir Path directory) throws Exception {
+    final Random random = new Random(1);
+    final float[][] vectors = random(random, SIZE);
+    final float[][] queries = random(random, QUERIES);
+    for (Quantization quantization : Quantization.values()) {
+      final QuantizedVectors quantized = build(directory.resolve(quantization.name()), quantization, vectors);
+      assertEquals(SIZE, quantized.size());
+      assertEquals(quantization == Quantization.SCALAR ? DIMENSIONS : DIMENSIONS / 8, quantized.codeSize());
+      final double approximate = recall(quantized, vectors, queries, 1, null);
+      final double reranked = recall(quantized, vectors, queries, quantization == Quantization.SCALAR ? 4 : 32, null);
+      assertTrue(reranked >= approximate, quantization + " recall " + reranked + " after re-ranking, " + approximate + " before");
+      assertTrue(reranked >= 0.95, quantization + " recall " + reranked);
+    }
+  }
+
+  @Test
+  @DisplayName("Filtered search returns the relevant nearest neighbours")
+  void testFiltered(@TempDir Path directory) throws Exception {
+    final Random random = new Random(2);
+    final float[][] vectors = random(random, SIZE);
+    final float[][] queries = random(random, QUERIES);
+    final QuantizedVectors quantized = build(directory.resolve("sq"), Quantization.SCALAR, vectors);
+    final Set<String> relevant = new HashSet<>();
+    for (int i = 0; i < SIZE; i += 7) {
+      relevant.add("v" + i);
+    }
+    assertTrue(recall(quantized, vectors, queries, 4, relevant) >= 0.95);
+    assertTrue(quantized.nearest(K, queries[0], 4, Set.of("unknown"), SegmentDistanceElement.class).isEmpty());
+  }
+
+  @Test
+  @DisplayName("Persisted vectors are loaded with the same stamp only")
+  void testLoad(@TempDir Path directory) throws Exception {
+    final Random random = new Random(3);
+    final float[][] vectors = random(random, SIZE);
+    final float[][] queries = random(random, QUERIES);
+    final Path path = directory.resolve("pq");
+    final QuantizedVectors quantized = build(path, Quantization.PRODUCT, vectors);
+
+    assertFalse(QuantizedVectors.load(path, 8L).isPresent());
+    final Optional<QuantizedVectors> loaded = QuantizedVectors.load(path, 7L);
+    assertTrue(loaded.isPresent());
+    assertEquals(quantized.size(), loaded.get().size());
+    assertEquals(quantized.codeSize(), loaded.get().codeSize());
+    for (float[] query : queries) {
+      final List<SegmentDistanceElement> expected = quantized.nearest(K, query, 32, null, SegmentDistanceElement.class);
+      final List<SegmentDistanceElement> actual = loaded.get().nearest(K, query, 32, null, SegmentDistanceElement.class);
+      assertEquals(expected.stream().map(SegmentDistanceElement::getSegmentId).collect(Collectors.toList()), actual.stream().map(SegmentDistanceElement::getSegmentId).collect(Collectors.toList()));
+    }
+  }
+}
@@ -0,0 +1,176 @@
+package org.vitrivr.cineast.core.util.knn;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+public class VectorQuantizerTest {
+
+  private static final int DIMENSIONS = 16;
+
+  /**
+   * Draws vectors around a few cluster centres, such that a product quantizer can capture most of their variance.
+   */
+  private static List<float[]> clustered(Random random, int count) {
+    final float[][] centres = new float[8][DIMENSIONS];
+    for (float[] centre : centres) {
+      for (int d = 0; d < DIMENSIONS; d++) {
+        centre[d] = random.nextFloat() * 10f - 5f;
+      }
+    }
+    final List<float[]> vectors = new ArrayList<>(count);
+    for (int i = 0; i < count; i++) {
+      final float[] centre = centres[random.nextInt(centres.length)];
+      final float[] vector = new float[DIMENSIONS];
+      for (int d = 0; d < DIMENSIONS; d++) {
+        vector[d] = centre[d] + (float) random.nextGaussian() * 0.1f;
+      }
+      vectors.add(vector);
+    }
+    return vectors;
+  }
+
+  private static double squaredDistance(float[] a, float[] b) {
+    double sum = 0.0;
+    for (int i = 0; i < a.length; i++) {
+      sum += (a[i] - b[i]) * (a[i] - b[i]);
+    }
+    return sum;
+  }
+
+  private static double manhattanDistance(float[] a, float[] b) {
+    double sum = 0.0;
+    for (int i = 0; i < a.length; i++) {
+      sum += Math.abs(a[i] - b[i]);
+    }
+    return sum;
+  }
+
+  /**
+   * Checks that the distance tables measure the distance to the decoded vectors.
+   */
+  private static void assertTables(VectorQuantizer quantizer, List<float[]> vectors, float[] query) {
+    final VectorQuantizer.DistanceTable euclidean = quantizer.table(query, false);
+    final VectorQuantizer.DistanceTable manhattan = quantizer.table(query, true);
+    final byte[] codes = new byte[quantizer.codeSize()];
+    final float[] decoded = new float[DIMENSIONS];
+    for (float[] vector : vectors) {
+      quantizer.encode(vector, codes, 0);
+      quantizer.decode(codes, 0, decoded);
+      assertEquals(squaredDistance(query, decoded), euclidean.distance(codes, 0), 1e-3);
+      assertEquals(manhattanDistance(query, decoded), manhattan.distance(codes, 0), 1e-3);
+    }
+  }
+
+  /**
+   * Writes a quantizer to a file and reads it back.
+   */
+  private static VectorQuantizer roundTrip(VectorQuantizer quantizer, Path path) throws Exception {
+    try (MappedOutput out = new MappedOutput(path)) {
+      quantizer.write(out);
+    }
+    try (MappedInput in = new MappedInput(path)) {
+      return VectorQuantizer.read(in);
+    }
+  }
+
+  @Test
+  @DisplayName("Scalar quantization")
+  void testScalar(@TempDir Path directory) throws Exception {
+    final Random random = new Random(1);
+    final List<float[]> vectors = clustered(random, 1000);
+    final ScalarQuantizer quantizer = ScalarQuantizer.train(vectors, DIMENSIONS);
+    assertEquals(DIMENSIONS, quantizer.codeSize());
+
+    /* Every dimension is reconstructed within half a quantization step of its range. */
+    final float[] min = new float[DIMENSIONS];
+    final float[] max = new float[DIMENSIONS];
+    for (int d = 0; d < DIMENSIONS; d++) {
+      min[d] = Float.POSITIVE_INFINITY;
+      max[d] = Float.NEGATIVE_INFINITY;
+      for (float[] vector : vectors) {
+        min[d] = Math.min(min[d], vector[d]);
+        max[d] = Math.max(max[d], vector[d]);
+      }
+    }
+    final byte[] codes = new byte[DIMENSIONS];
+    final float[] decoded = new float[DIMENSIONS];
+    for (float[] vector : vectors) {
+      quantizer.encode(vector, codes, 0);
+      quantizer.decode(codes, 0, decoded);
+      for (int d = 0; d < DIMENSIONS; d++) {
+        assertEquals(vector[d], decoded[d], (max[d] - min[d]) / 255f / 2f + 1e-5f);
+      }
+    }
+
+    /* Values outside of the trained range are clamped. */
+    final float[] outside = new float[DIMENSIONS];
+    for (int d = 0; d < DIMENSIONS; d++) {
+      outside[d] = d % 2 == 0 ? min[d] - 100f : max[d] + 100f;
+    }
+    quantizer.encode(outside, codes, 0);
+    quantizer.decode(codes, 0, decoded);
+    for (int d = 0; d < DIMENSIONS; d++) {
+      assertEquals(d % 2 == 0 ? min[d] : max[d], decoded[d], 1e-4f);
+    }
+
+    assertTables(quantizer, vectors.subList(0, 100), clustered(random, 1).get(0));
+    assertRoundTrip(quantizer, roundTrip(quantizer, directory.resolve("sq")), vectors);
+  }
+
+  @Test
+  @DisplayName("Product quantization")
+  void testProduct(@TempDir Path directory) throws Exception {
+    final Random random = new Random(2);
+    final List<float[]> vectors = clustered(random, 2000);
+    final ProductQuantizer quantizer = ProductQuantizer.train(vectors, DIMENSIONS, 4);
+    assertEquals(4, quantizer.codeSize());
+
+    /* The centroids capture almost all of the variance of the data. */
+    final float[] mean = new float[DIMENSIONS];
+    for (float[] vector : vectors) {
+      for (int d = 0; d < DIMENSIONS; d++) {
+        mean[d] += vector[d] / vectors.size();
+      }
+    }
+    double variance = 0.0;
+    double error = 0.0;
+    final byte[] codes = new byte[quantizer.codeSize()];
+    final byte[] again = new byte[quantizer.codeSize()];
+    final float[] decoded = new float[DIMENSIONS];
+    for (float[] vector : vectors) {
+      quantizer.encode(vector, codes, 0);
+      quantizer.decode(codes, 0, decoded);
+      variance += squaredDistance(vector, mean);
+      error += squaredDistance(vector, decoded);
+      /* A decoded vector consists of centroids, hence it is encoded to the same codes. */
+      quantizer.encode(decoded, again, 0);
+      assertArrayEquals(codes, again);
+    }
+    assertTrue(error < 0.01 * variance, "Reconstruction error " + error + " of variance " + variance);
+
+    assertTables(quantizer, vectors.subList(0, 100), clustered(random, 1).get(0));
+    assertRoundTrip(quantizer, roundTrip(quantizer, directory.resolve("pq")), vectors);
+  }
+
+  private static void assertRoundTrip(VectorQuantizer expected, VectorQuantizer actual, List<float[]> vectors) {
+    assertEquals(expected.getClass(), actual.getClass());
+    assertEquals(expected.dimensions(), actual.dimensions());
+    assertEquals(expected.codeSize(), actual.codeSize());
+    final byte[] a = new byte[expected.codeSize()];
+    final byte[] b = new byte[actual.codeSize()];
+    for (float[] vector : vectors) {
+      expected.encode(vector, a, 0);
+      actual.encode(vector, b, 0);
+      assertArrayEquals(a, b);
+    }
+  }
+}
@@ -0,0 +1,103 @@
+package org.vitrivr.cineast.core.util.spatial;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.vitrivr.cineast.core.data.distance.SegmentDistanceElement;
+
+public class GeoGridIndexTest {
+
+  private static final int POINTS = 3000;
+
+  /**
+   * Reference implementation of the Haversine distance in meters.
+   */
+  private static double haversine(double lat1, double lon1, double lat2, double lon2) {
+    final double dLat = Math.toRadians(lat2 - lat1);
+    final double dLon = Math.toRadians(lon2 - lon1);
+    final double a = Math.pow(Math.sin(dLat / 2), 2) + Math.cos(Math.toRadians(lat1)) * Math.cos(Math.toRadians(lat2)) * Math.pow(Math.sin(dLon / 2), 2);
+    return 2 * GeoGridIndex.EARTH_RADIUS * Math.asin(Math.min(1.0, Math.sqrt(a)));
+  }
+
+  /**
+   * Creates points spread over the sphere, clustered around a city, close to the poles and on both sides of the antimeridian.
+   */
+  private static float[][] points(Random random) {
+    final float[][] points = new float[POINTS][2];
+    for (int i = 0; i < POINTS; i++) {
+      switch (i % 4) {
+        case 0:
+          points[i][0] = (float) Math.toDegrees(Math.asin(2 * random.nextDouble() - 1));
+          points[i][1] = (float) (360 * random.nextDouble() - 180);
+          break;
+        case 1:
+          points[i][0] = (float) (47.56 + 0.05 * random.nextGaussian());
+          points[i][1] = (float) (7.59 + 0.05 * random.nextGaussian());
+          break;
+        case 2:
+          points[i][0] = (float) (random.nextBoolean() ? 89.0 + random.nextDouble() : -89.0 - random.nextDouble());
+          points[i][1] = (float) (360 * random.nextDouble() - 180);
+          break;
+        default:
+          points[i][0] = (float) (-17.0 + random.nextGaussian());
+          points[i][1] = (float) (random.nextBoolean() ? 179.9 + 0.1 * random.nextDouble() : -180.0 + 0.1 * random.nextDouble());
+          break;
+      }
+    }
+    return points;
+  }
+
+  @Test
+  @DisplayName("Nearest neighbours match a brute-force Haversine search")
+  void testNearest() {
+    final Random random = new Random(7);
+    final float[][] points = points(random);
+    final String[] ids = new String[POINTS];
+    final float[] latitudes = new float[POINTS];
+    final float[] longitudes = new float[POINTS];
+    final Map<String, float[]> byId = new HashMap<>();
+    for (int i = 0; i < POINTS; i++) {
+      ids[i] = "p" + i;
+      latitudes[i] = points[i][0];
+      longitudes[i] = points[i][1];
+      byId.put(ids[i], points[i]);
+    }
+    final GeoGridIndex index = new GeoGridIndex(ids, latitudes, longitudes, POINTS);
+    assertEquals(POINTS, index.size());
+
+    final float[][] queries = points(new Random(8));
+    for (int q = 0; q < 200; q++) {
+      final float[] query = queries[q];
+      final int k = 1 + random.nextInt(q % 10 == 0 ? POINTS + 10 : 50);
+      final List<SegmentDistanceElement> result = index.nearest(k, query[0], query[1], SegmentDistanceElement.class);
+
+      final double[] expected = new double[POINTS];
+      for (int i = 0; i < POINTS; i++) {
+        expected[i] = haversine(query[0], query[1], latitudes[i], longitudes[i]);
+      }
+      Arrays.sort(expected);
+
+      assertEquals(Math.min(k, POINTS), result.size());
+      for (int i = 0; i < result.size(); i++) {
+        final SegmentDistanceElement element = result.get(i);
+        final float[] point = byId.get(element.getId());
+        assertEquals(expected[i], element.getDistance(), 1e-3, "rank " + i + " of query " + q);
+        assertEquals(haversine(query[0], query[1], point[0], point[1]), element.getDistance(), 1e-3);
+      }
+    }
+  }
+
+  @Test
+  @DisplayName("Only the first entries of the arrays are indexed")
+  void testSize() {
+    final GeoGridIndex index = new GeoGridIndex(new String[]{"a", "b", null}, new float[]{1f, 2f, 0f}, new float[]{1f, 2f, 0f}, 2);
+    assertEquals(2, index.size());
+    assertEquals("a", index.nearest(1, 0f, 0f, SegmentDistanceElement.class).get(0).getId());
+  }
+}
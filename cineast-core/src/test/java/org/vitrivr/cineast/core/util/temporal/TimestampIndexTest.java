@@ -0,0 +1,140 @@
+package org.vitrivr.cineast.core.util.temporal;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.function.Consumer;
+import java.util.function.LongPredicate;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.vitrivr.cineast.core.data.distance.SegmentDistanceElement;
+import org.vitrivr.cineast.core.data.providers.primitive.PrimitiveTypeProvider;
+import org.vitrivr.cineast.core.db.DBSelector;
+import org.vitrivr.cineast.core.db.EntityWriteStatistics;
+import org.vitrivr.cineast.core.db.RelationalOperator;
+
+public class TimestampIndexTest {
+
+  private static final int VALUES = 2000;
+
+  private static long[] values(Random random) {
+    final long[] values = new long[VALUES];
+    for (int i = 0; i < VALUES; i++) {
+      /* Few distinct values, so that there are many ties. */
+      values[i] = random.nextInt(500) - 250;
+    }
+    return values;
+  }
+
+  private static String[] ids(int n) {
+    final String[] ids = new String[n];
+    for (int i = 0; i < n; i++) {
+      ids[i] = "s" + i;
+    }
+    return ids;
+  }
+
+  private static Set<String> bruteForce(long[] values, LongPredicate predicate) {
+    final Set<String> ids = new HashSet<>();
+    for (int i = 0; i < values.length; i++) {
+      if (predicate.test(values[i])) {
+        ids.add("s" + i);
+      }
+    }
+    return ids;
+  }
+
+  @Test
+  @DisplayName("Nearest values match a brute-force search")
+  void testNearest() {
+    final Random random = new Random(3);
+    final long[] values = values(random);
+    final TimestampIndex index = new TimestampIndex(ids(VALUES), values.clone());
+    for (int q = 0; q < 300; q++) {
+      final double query = q % 3 == 0 ? random.nextInt(700) - 350 : 600 * random.nextDouble() - 300;
+      final int k = q == 0 ? VALUES + 5 : 1 + random.nextInt(100);
+      final List<SegmentDistanceElement> result = index.nearest(k, query, SegmentDistanceElement.class);
+
+      final double[] expected = Arrays.stream(values).mapToDouble(v -> Math.abs(v - query)).sorted().toArray();
+      assertEquals(Math.min(k, VALUES), result.size());
+      final Set<String> seen = new HashSet<>();
+      for (int i = 0; i < result.size(); i++) {
+        final SegmentDistanceElement element = result.get(i);
+        final long value = values[Integer.parseInt(element.getId().substring(1))];
+        assertEquals(expected[i], element.getDistance(), 0.0);
+        assertEquals(Math.abs(value - query), element.getDistance(), 0.0);
+        assertTrue(seen.add(element.getId()));
+      }
+    }
+  }
+
+  @Test
+  @DisplayName("Conditions match a brute-force evaluation")
+  void testMatching() {
+    final Random random = new Random(4);
+    final long[] values = values(random);
+    final TimestampIndex index = new TimestampIndex(ids(VALUES), values.clone());
+    for (int q = 0; q < 200; q++) {
+      final double a = q % 2 == 0 ? random.nextInt(600) - 300 : 600 * random.nextDouble() - 300;
+      final double b = a + random.nextInt(100) + (q % 4 == 1 ? 0.5 : 0.0);
+      final List<PrimitiveTypeProvider> one = List.of(PrimitiveTypeProvider.fromObject(a));
+      final List<PrimitiveTypeProvider> two = List.of(PrimitiveTypeProvider.fromObject(a), PrimitiveTypeProvider.fromObject(b));
+      assertEquals(bruteForce(values, v -> v == a), new HashSet<>(index.matching(RelationalOperator.EQ, one).orElseThrow()));
+      assertEquals(bruteForce(values, v -> v >= a), new HashSet<>(index.matching(RelationalOperator.GEQ, one).orElseThrow()));
+      assertEquals(bruteForce(values, v -> v > a), new HashSet<>(index.matching(RelationalOperator.GREATER, one).orElseThrow()));
+      assertEquals(bruteForce(values, v -> v <= a), new HashSet<>(index.matching(RelationalOperator.LEQ, one).orElseThrow()));
+      assertEquals(bruteForce(values, v -> v < a), new HashSet<>(index.matching(RelationalOperator.LESS, one).orElseThrow()));
+      assertEquals(bruteForce(values, v -> v >= a && v <= b), new HashSet<>(index.matching(RelationalOperator.BETWEEN, two).orElseThrow()));
+      assertEquals(bruteForce(values, v -> v == a || v == b), new HashSet<>(index.matching(RelationalOperator.IN, two).orElseThrow()));
+    }
+    assertFalse(index.matching(RelationalOperator.LIKE, List.of(PrimitiveTypeProvider.fromObject("1%"))).isPresent());
+    assertFalse(index.matching(RelationalOperator.EQ, List.of(PrimitiveTypeProvider.fromObject("abc"))).isPresent());
+  }
+
+  @Test
+  @DisplayName("Indexes over the persistent layer are rebuilt after writes only")
+  void testInvalidation() {
+    final String entity = "timestamp_index_test";
+    final List<Map<String, PrimitiveTypeProvider>> rows = new ArrayList<>();
+    for (int i = 0; i < 10; i++) {
+      rows.add(Map.of("id", PrimitiveTypeProvider.fromObject("s" + i), "value", PrimitiveTypeProvider.fromObject((long) i)));
+    }
+    final DBSelector selector = mock(DBSelector.class);
+    when(selector.rowCount()).thenAnswer(invocation -> rows.size());
+    doAnswer(invocation -> {
+      final Consumer<Map<String, PrimitiveTypeProvider>> consumer = invocation.getArgument(1);
+      rows.forEach(consumer);
+      return null;
+    }).when(selector).forEachRow(anyList(), any());
+
+    final TimestampIndex first = TimestampIndex.of(() -> selector, entity, "id", "value").orElseThrow();
+    assertEquals(10, first.size());
+    assertSame(first, TimestampIndex.of(() -> selector, entity, "id", "value").orElseThrow());
+
+    rows.add(Map.of("id", PrimitiveTypeProvider.fromObject("s10"), "value", PrimitiveTypeProvider.fromObject(10L)));
+    EntityWriteStatistics.record(entity, 1);
+    final TimestampIndex second = TimestampIndex.of(() -> selector, entity, "id", "value").orElseThrow();
+    assertNotSame(first, second);
+    assertEquals(11, second.size());
+
+    /* Columns with non-integral values cannot be indexed. */
+    rows.add(Map.of("id", PrimitiveTypeProvider.fromObject("s11"), "value", PrimitiveTypeProvider.fromObject(0.5)));
+    EntityWriteStatistics.record(entity, 1);
+    assertFalse(TimestampIndex.of(() -> selector, entity, "id", "value").isPresent());
+  }
+}
@@ -0,0 +1,145 @@
+package org.vitrivr.cineast.core.util.tracing;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+public class QueryTracerTest {
+
+  @TempDir
+  Path directory;
+
+  @AfterEach
+  void reset() {
+    QueryTracer.reset();
+  }
+
+  @Test
+  @DisplayName("Spans are not recorded while tracing is disabled")
+  void testDisabled() {
+    final List<Span> spans = new CopyOnWriteArrayList<>();
+    QueryTracer.addListener(spans::add);
+    try (Span span = QueryTracer.start("disabled", null)) {
+      assertNull(span.getOperation());
+    }
+    assertTrue(spans.isEmpty());
+  }
+
+  @Test
+  @DisplayName("Nested scopes and spans")
+  void testNesting() throws InterruptedException {
+    final List<Span> spans = new CopyOnWriteArrayList<>();
+    QueryTracer.addListener(spans::add);
+    QueryTracer.enable();
+
+    try (QueryTracer.Scope query = QueryTracer.enter("query", null)) {
+      try (Span outer = QueryTracer.start("retrieve", null)) {
+        try (QueryTracer.Scope retriever = QueryTracer.enter(null, "retriever")) {
+          try (Span inner = QueryTracer.start("getNearestNeighbours", "feature")) {
+            Thread.sleep(5);
+          }
+        }
+        try (Span fusion = QueryTracer.start("fuse", null)) {
+          assertEquals("query", fusion.getQueryId());
+        }
+      }
+    }
+    try (Span unscoped = QueryTracer.start("unscoped", null)) {
+      Thread.sleep(1);
+    }
+
+    assertEquals(List.of("getNearestNeighbours", "fuse", "retrieve", "unscoped"), spans.stream().map(Span::getOperation).toList());
+    final Span inner = spans.get(0);
+    final Span fusion = spans.get(1);
+    final Span outer = spans.get(2);
+    final Span unscoped = spans.get(3);
+    assertEquals("query", inner.getQueryId());
+    assertEquals("retriever", inner.getRetriever());
+    assertEquals("feature", inner.getEntity());
+    assertNull(fusion.getRetriever());
+    assertNull(outer.getRetriever());
+    assertEquals("query", outer.getQueryId());
+    assertNull(unscoped.getQueryId());
+
+    assertTrue(inner.getWallNanos() >= TimeUnit.MILLISECONDS.toNanos(5));
+    assertTrue(outer.getStartNanos() <= inner.getStartNanos());
+    assertTrue(outer.getStartNanos() + outer.getWallNanos() >= inner.getStartNanos() + inner.getWallNanos() + fusion.getWallNanos());
+    assertEquals(Thread.currentThread().getName(), inner.getThread());
+  }
+
+  @Test
+  @DisplayName("Closing a span twice finishes it once")
+  void testCloseTwice() {
+    final List<Span> spans = new CopyOnWriteArrayList<>();
+    QueryTracer.addListener(spans::add);
+    QueryTracer.enable();
+    final Span span = QueryTracer.start("twice", null);
+    span.close();
+    final long wall = span.getWallNanos();
+    span.close();
+    assertEquals(1, spans.size());
+    assertSame(span, spans.get(0));
+    assertEquals(wall, span.getWallNanos());
+  }
+
+  @Test
+  @DisplayName("Traces are written in the background once their query is completed")
+  void testTraceOutput() throws Exception {
+    QueryTracer.recordTraces(this.directory);
+    try (QueryTracer.Scope query = QueryTracer.enter("q/1", "retriever")) {
+      try (Span outer = QueryTracer.start("outer", "entity")) {
+        try (Span inner = QueryTracer.start("inner", null)) {
+          Thread.sleep(1);
+        }
+      }
+    }
+
+    /* Completing the query does not wait for the writer. */
+    final CountDownLatch release = new CountDownLatch(1);
+    QueryTracer.writer.submit(() -> {
+      release.await();
+      return null;
+    });
+    QueryTracer.complete("q/1");
+    final Path file = this.directory.resolve("q_1.tsv");
+    assertFalse(Files.exists(file));
+    release.countDown();
+    QueryTracer.awaitWrites();
+
+    final List<String> lines = Files.readAllLines(file, StandardCharsets.UTF_8);
+    assertEquals(3, lines.size());
+    assertEquals("operation\tentity\tretriever\tthread\tstart_us\twall_us\tcpu_us", lines.get(0));
+    final String[] outer = lines.get(1).split("\t", -1);
+    final String[] inner = lines.get(2).split("\t", -1);
+    assertEquals("outer", outer[0]);
+    assertEquals("entity", outer[1]);
+    assertEquals("retriever", outer[2]);
+    assertEquals("inner", inner[0]);
+    assertEquals("", inner[1]);
+    assertTrue(Long.parseLong(outer[5]) >= Long.parseLong(inner[5]));
+
+    /* Spans that end after the query has been completed are appended. */
+    try (QueryTracer.Scope query = QueryTracer.enter("q/1", null)) {
+      QueryTracer.start("late", null).close();
+    }
+    QueryTracer.complete("q/1");
+    QueryTracer.awaitWrites();
+    final List<String> appended = Files.readAllLines(file, StandardCharsets.UTF_8);
+    assertEquals(4, appended.size());
+    assertTrue(appended.get(3).startsWith("late\t"));
+  }
+}
@@ -0,0 +1,110 @@
+package org.vitrivr.cineast.core.util.web;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.Optional;
+import java.util.Random;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+public class DataURLParserTest {
+
+  /**
+   * Bytes whose standard Base64 encoding contains both '+' and '/'.
+   */
+  private static final byte[] BYTES = {(byte) 0xFB, (byte) 0xFF, (byte) 0xBF, 0x00, 0x10, (byte) 0x83};
+
+  private static final String STANDARD = "+/+/ABCD";
+
+  private static byte[] decode(String base64) {
+    return DataURLParser.dataURLtoByteArray("data:application/octet-stream;base64," + base64);
+  }
+
+  @Test
+  @DisplayName("Standard and URL-safe alphabet")
+  void testAlphabets() {
+    assertEquals(STANDARD, Base64.getEncoder().encodeToString(BYTES));
+    assertArrayEquals(BYTES, decode(STANDARD));
+    assertArrayEquals(BYTES, decode(Base64.getUrlEncoder().encodeToString(BYTES)));
+    assertArrayEquals(BYTES, decode("-/+_ABCD"));
+  }
+
+  @Test
+  @DisplayName("Spaces introduced by form encoding are read as '+'")
+  void testSpaces() {
+    assertArrayEquals(BYTES, decode(" / /ABCD"));
+  }
+
+  @Test
+  @DisplayName("Padding is optional and line breaks and other characters are ignored")
+  void testPadding() {
+    final byte[] bytes = "cineast".getBytes(StandardCharsets.UTF_8);
+    assertEquals("Y2luZWFzdA==", Base64.getEncoder().encodeToString(bytes));
+    assertArrayEquals(bytes, decode("Y2luZWFzdA=="));
+    assertArrayEquals(bytes, decode("Y2luZWFzdA="));
+    assertArrayEquals(bytes, decode("Y2luZWFzdA"));
+    assertArrayEquals(bytes, decode("Y2lu\r\nZWFz\ndA==\n"));
+    assertArrayEquals(bytes, decode("Y2läuZWF*zdA"));
+    assertArrayEquals("ci".getBytes(StandardCharsets.UTF_8), decode("Y2k="));
+    assertArrayEquals("ci".getBytes(StandardCharsets.UTF_8), decode("Y2k"));
+
+    /* Decoding stops at the first padding character. */
+    assertArrayEquals("ci".getBytes(StandardCharsets.UTF_8), decode("Y2k=bmVhc3Q="));
+    assertArrayEquals(new byte[0], decode(""));
+  }
+
+  @Test
+  @DisplayName("A single dangling character is discarded")
+  void testDanglingCharacter() throws IOException {
+    final byte[] bytes = "cineast".getBytes(StandardCharsets.UTF_8);
+    assertArrayEquals("cineas".getBytes(StandardCharsets.UTF_8), decode("Y2luZWFzB"));
+    assertArrayEquals(new byte[0], decode("Y"));
+    try (InputStream stream = DataURLParser.dataURLtoStream("data:application/octet-stream;base64,Y2luZWFzdA==Q", "")) {
+      assertArrayEquals(bytes, stream.readAllBytes());
+    }
+  }
+
+  @Test
+  @DisplayName("Random data URLs decode like commons-codec")
+  void testCommonsCodec() {
+    final String alphabet = "ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz0123456789+/-_=\n\r\t.*ä";
+    final Random random = new Random(40);
+    for (int run = 0; run < 2000; run++) {
+      final StringBuilder builder = new StringBuilder();
+      final int length = random.nextInt(run < 1000 ? 16 : 20000);
+      for (int i = 0; i < length; i++) {
+        builder.append(alphabet.charAt(random.nextInt(random.nextInt(10) == 0 ? alphabet.length() : 64)));
+      }
+      final String base64 = builder.toString();
+      assertArrayEquals(org.apache.commons.codec.binary.Base64.decodeBase64(base64), decode(base64), base64.length() < 64 ? base64 : null);
+    }
+  }
+
+  @Test
+  @DisplayName("Invalid data URLs and types")
+  void testInvalid() {
+    assertNull(DataURLParser.dataURLtoByteArray("Y2luZWFzdA=="));
+    assertNull(DataURLParser.dataURLtoByteArray("data:image/png;base64,Y2luZWFzdA==", "application/json"));
+    assertNull(DataURLParser.dataURLtoStream(null, ""));
+    assertEquals("cineast", DataURLParser.dataURLtoString("data:text/plain;base64,Y2luZWFzdA", "text/plain"));
+  }
+
+  @Test
+  @DisplayName("JSON is parsed while it is decoded")
+  void testJson() {
+    final String json = "{\"query\":[1,2,3],\"text\":\"café\"}";
+    final Optional<JsonNode> node = DataURLParser.dataURLtoJsonNode("data:application/json;base64," + Base64.getUrlEncoder().withoutPadding().encodeToString(json.getBytes(StandardCharsets.UTF_8)));
+    assertTrue(node.isPresent());
+    assertEquals(3, node.get().get("query").size());
+    assertEquals("café", node.get().get("text").asText());
+    assertTrue(DataURLParser.dataURLtoJsonNode("data:application/json;base64,eyJh").isEmpty());
+  }
+}
@@ -0,0 +1,54 @@
+package org.vitrivr.cineast.core.util.web;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.awt.image.BufferedImage;
+import java.util.Random;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+public class ImageParserTest {
+
+  @Test
+  @DisplayName("Full resolution without a minimum resolution")
+  void testFullResolution() {
+    final BufferedImage image = ImageParser.dataURLtoBufferedImage(ImageParser.BufferedImageToDataURL(new BufferedImage(300, 200, BufferedImage.TYPE_INT_RGB), "png"));
+    assertNotNull(image);
+    assertEquals(300, image.getWidth());
+    assertEquals(200, image.getHeight());
+  }
+
+  @Test
+  @DisplayName("Large images are downscaled to the minimum resolution by area averaging")
+  void testDownscale() {
+    final Random random = new Random(1);
+    final BufferedImage noise = new BufferedImage(1200, 1030, BufferedImage.TYPE_INT_RGB);
+    for (int x = 0; x < noise.getWidth(); x++) {
+      for (int y = 0; y < noise.getHeight(); y++) {
+        noise.setRGB(x, y, random.nextBoolean() ? 0xFFFFFF : 0x000000);
+      }
+    }
+    final BufferedImage image = ImageParser.dataURLtoBufferedImage(ImageParser.BufferedImageToDataURL(noise, "png"), 256);
+    assertNotNull(image);
+    assertEquals(298, image.getWidth());
+    assertEquals(256, image.getHeight());
+
+    /* Picking single pixels would retain the black and white noise (deviation 127.5); averaging about four pixels halves the deviation. */
+    double sum = 0.0;
+    double squares = 0.0;
+    for (int x = 0; x < image.getWidth(); x++) {
+      for (int y = 0; y < image.getHeight(); y++) {
+        final int gray = image.getRGB(x, y) & 0xFF;
+        sum += gray;
+        squares += gray * gray;
+      }
+    }
+    final int count = image.getWidth() * image.getHeight();
+    final double mean = sum / count;
+    final double deviation = Math.sqrt(squares / count - mean * mean);
+    assertEquals(127.5, mean, 5.0);
+    assertTrue(deviation < 80.0, "Deviation " + deviation);
+  }
+}
@@ -5,6 +5,7 @@
 import com.github.rvesse.airline.help.Help;
 import com.github.rvesse.airline.parser.errors.handlers.CollectAll;
 import org.vitrivr.cineast.standalone.cli.db.DropTableCommand;
+import org.vitrivr.cineast.standalone.cli.db.HnswBenchmarkCommand;
 import org.vitrivr.cineast.standalone.cli.db.PolyphenyBenchmarkCommand;
 
 
@@ -13,7 +14,7 @@
         CodebookCommand.class, DatabaseSetupCommand.class, ExtractionCommand.class, ImportCommand.class,
         ThreeDeeTestCommand.class, ThreeDeeTextureTestCommand.class, RetrieveCommand.class, Help.class, SingleObjRetrievalCommand.class,
         TextRetrievalCommand.class, DistinctColumnApiCommand.class,
-        PolyphenyBenchmarkCommand.class}, defaultCommand = Help.class, parserConfiguration = @Parser(errorHandler = CollectAll.class)
+        PolyphenyBenchmarkCommand.class, HnswBenchmarkCommand.class}, defaultCommand = Help.class, parserConfiguration = @Parser(errorHandler = CollectAll.class)
 )
 public class CineastCli {
 
@@ -26,6 +26,12 @@ public class CodebookCommand extends AbstractCineastCommand {
   @Option(name = {"-w", "--words"}, description = "The size of the vocabulary (i.e. the size of the codebook).")
   private int words;
 
+  @Option(name = {"-b", "--batch"}, description = "If set to a value greater than zero, the codebook is created using multi-threaded mini-batch k-means with batches of the given size. Descriptors are then streamed from disk instead of being kept in memory.")
+  private int batchSize = 0;
+
+  @Option(name = {"-e", "--epochs"}, description = "Number of passes over all descriptors when using mini-batch k-means. Defaults to 10.")
+  private int epochs = 10;
+
   @Override
   public void execute() {
     final CodebookGenerator generator = ReflectionHelper.newCodebookGenerator(name);
@@ -33,7 +39,11 @@ public void execute() {
     final Path output = Paths.get(this.output);
     if (generator != null) {
       try {
-        generator.generate(input, output, this.words);
+        if (this.batchSize > 0) {
+          generator.generate(input, output, this.words, this.batchSize, this.epochs);
+        } else {
+          generator.generate(input, output, this.words);
+        }
       } catch (IOException e) {
         e.printStackTrace();
       }
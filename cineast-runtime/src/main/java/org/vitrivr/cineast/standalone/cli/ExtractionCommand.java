@@ -35,7 +35,7 @@ public class ExtractionCommand extends AbstractCineastCommand {
 
   private static final Logger LOGGER = LogManager.getLogger();
 
-  @Option(name = {"--no-finalize"}, title = "Do Not Finalize", description = "If this flag is not set, automatically rebuilds indices & optimizes all entities when writing to cottontail after the extraction. Set this flag when you want more performance with external parallelism.")
+  @Option(name = {"--no-finalize"}, title = "Do Not Finalize", description = "If this flag is not set, automatically rebuilds indices & optimizes the changed entities when writing to cottontail after the extraction. Set this flag when you want more performance with external parallelism.")
   private final boolean doNotFinalize = false;
 
   @Required
@@ -75,12 +75,12 @@ public void execute() {
         }
         final ExtractionContainerProvider provider = ExtractionContainerProviderFactory.tryCreatingTreeWalkPathProvider(file, context);
         if (dispatcher.initialize(provider, context)) {
-          /* Only attempt to optimize Cottontail entities if we were extracting into Cottontail, otherwise an unavoidable error message would be displayed when extracting elsewhere. */
+          /* Only attempt to optimize Cottontail entities if we were extracting into Cottontail; in-process indexes of other databases notice the writes by themselves. */
           if (!doNotFinalize && context != null && context.getDatabase().getSelector() == DataSource.COTTONTAIL && context.getDatabase().getWriter() == DataSource.COTTONTAIL) {
             dispatcher.registerListener(new ExtractionCompleteListener() {
               @Override
               public void extractionComplete() {
-                OptimizeEntitiesCommand.optimizeAllCottontailEntities();
+                OptimizeEntitiesCommand.optimizeChangedEntities(context.getDatabase());
               }
             });
           }
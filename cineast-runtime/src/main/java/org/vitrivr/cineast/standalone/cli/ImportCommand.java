@@ -34,7 +34,7 @@ public class ImportCommand extends AbstractCineastCommand {
   @Option(name = {"-c", "--clean"}, description = "Cleans, i.e. drops the tables before import. Use with caution, as the already imported data will be lost! Requires the import type to respect this option")
   private boolean clean = false;
 
-  @Option(name = {"--no-finalize"}, title = "Do Not Finalize", description = "If this flag is not set, automatically rebuilds indices & optimizes all entities when writing to cottontail after the import. Set this flag when you want more performance with external parallelism.")
+  @Option(name = {"--no-finalize"}, title = "Do Not Finalize", description = "If this flag is not set, automatically rebuilds indices & optimizes the changed entities when writing to cottontail after the import. Set this flag when you want more performance with external parallelism.")
   private boolean doNotFinalize = false;
 
   @Option(name = {"--no-transactions"}, title = "Do Not Use Transactions", description = "If this flag is not set, the default behavior is used which means transactions are enabled during import. Set this flag when you want more performance and manage transactional aspects yourself.")
@@ -64,9 +64,9 @@ public void execute() {
       handler.waitForCompletion();
     }
 
-    /* Only attempt to optimize Cottontail entities if we were importing into Cottontail, otherwise an unavoidable error message would be displayed when importing elsewhere. */
+    /* Only attempt to optimize Cottontail entities if we were importing into Cottontail; in-process indexes of other databases notice the writes by themselves. */
     if (!doNotFinalize && Config.sharedConfig().getDatabase().getSelector() == DataSource.COTTONTAIL && Config.sharedConfig().getDatabase().getWriter() == DataSource.COTTONTAIL) {
-      OptimizeEntitiesCommand.optimizeAllCottontailEntities();
+      OptimizeEntitiesCommand.optimizeChangedEntities(Config.sharedConfig().getDatabase());
     }
 
     System.out.printf("Completed import of type %s for '%s'.%n", this.type, this.input);
@@ -1,33 +1,152 @@
 package org.vitrivr.cineast.standalone.cli;
 
 import com.github.rvesse.airline.annotations.Command;
+import com.github.rvesse.airline.annotations.Option;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.vitrivr.cineast.core.config.DatabaseConfig;
+import org.vitrivr.cineast.core.db.DBSelector;
 import org.vitrivr.cineast.core.db.DataSource;
+import org.vitrivr.cineast.core.db.EntityWriteStatistics;
+import org.vitrivr.cineast.core.db.IndexRegistry;
 import org.vitrivr.cineast.core.db.cottontaildb.CottontailWrapper;
+import org.vitrivr.cineast.core.features.SpatialDistance;
+import org.vitrivr.cineast.core.util.temporal.TimestampIndex;
 import org.vitrivr.cineast.standalone.config.Config;
 import org.vitrivr.cottontail.client.language.ddl.ListEntities;
 import org.vitrivr.cottontail.client.language.ddl.OptimizeEntity;
 
-@Command(name = "optimize", description = "Optimize all entities for the Cineast schema. This command is only compatible with the Cottontail DB database.")
+/**
+ * Optimizes the Cottontail DB entities that changed since their last optimization, as recorded by the {@link EntityWriteStatistics}. An entity is optimized if the rows written to it make up at least a given fraction of its rows. Entities are independent of each other and hence optimized in parallel.
+ * <p>
+ * Other databases need no optimization: the in-process indexes over their entities (e.g. of {@link SpatialDistance}, {@link TimestampIndex} and the {@link IndexRegistry}) are rebuilt on their first use after the entity changed.
+ */
+@Command(name = "optimize", description = "Optimizes the entities for the Cineast schema that changed since their last optimization. Without a state directory for the write statistics, all entities are optimized. This command is only compatible with the Cottontail DB database.")
 public class OptimizeEntitiesCommand extends AbstractCineastCommand {
 
-  public static void optimizeAllCottontailEntities() {
-    if (Config.sharedConfig().getDatabase().getSelector() != DataSource.COTTONTAIL || Config.sharedConfig().getDatabase().getWriter() != DataSource.COTTONTAIL) {
-      System.err.println("Cottontail DB is not both selector & writer in the config. exiting");
+  private static final Logger LOGGER = LogManager.getLogger();
+
+  /**
+   * Default fraction of the rows of an entity that must have been written since its last optimization for the entity to be optimized.
+   */
+  public static final double DEFAULT_CHANGE_THRESHOLD = 0.05;
+
+  /**
+   * Default number of entities optimized in parallel.
+   */
+  public static final int DEFAULT_THREADS = 2;
+
+  @Option(name = {"--all"}, description = "Optimizes all entities, regardless of whether they changed. Implied if no state directory is configured for the write statistics.")
+  private boolean all = false;
+
+  @Option(name = {"--threshold"}, description = "Fraction of the rows of an entity that must have been written since its last optimization for the entity to be optimized. Defaults to 0.05.")
+  private double threshold = DEFAULT_CHANGE_THRESHOLD;
+
+  @Option(name = {"--threads"}, description = "Number of entities optimized in parallel. Defaults to 2.")
+  private int threads = DEFAULT_THREADS;
+
+  /**
+   * Optimizes the entities that changed sufficiently since their last optimization, using the default threshold and parallelism.
+   *
+   * @param config The {@link DatabaseConfig} of the database to optimize.
+   */
+  public static void optimizeChangedEntities(DatabaseConfig config) {
+    optimizeEntities(config, DEFAULT_CHANGE_THRESHOLD, DEFAULT_THREADS, false);
+  }
+
+  /**
+   * Optimizes entities in parallel.
+   *
+   * @param config    The {@link DatabaseConfig} of the database to optimize.
+   * @param threshold Fraction of the rows of an entity that must have been written since its last optimization for the entity to be optimized.
+   * @param threads   Number of entities optimized in parallel.
+   * @param all       If true, all entities are optimized regardless of whether they changed.
+   */
+  public static void optimizeEntities(DatabaseConfig config, double threshold, int threads, boolean all) {
+    if (config.getSelector() != DataSource.COTTONTAIL || config.getWriter() != DataSource.COTTONTAIL) {
+      System.err.println("Cottontail DB is not both selector & writer in the config; indexes of other databases are rebuilt on their first use after a change. exiting");
       return;
     }
-    try (final CottontailWrapper wrapper = new CottontailWrapper(Config.sharedConfig().getDatabase().getHost(), Config.sharedConfig().getDatabase().getPort())) {
-      System.out.println("Optimizing all entities for schema '" + CottontailWrapper.CINEAST_SCHEMA + "' in Cottontail");
-      wrapper.client.list(new ListEntities(CottontailWrapper.CINEAST_SCHEMA)).forEachRemaining(entity -> {
-        System.out.println("Optimizing entity " + entity);
-        final String name = entity.asString("dbo").replace("warren.", "");
-        wrapper.client.optimize(new OptimizeEntity(name));
-      });
-      System.out.println("Finished optimizing all entities");
+    final Map<String, Long> writes = EntityWriteStatistics.pending();
+    final CottontailWrapper wrapper = new CottontailWrapper(config.getHost(), config.getPort());
+    final ExecutorService executor = Executors.newFixedThreadPool(Math.max(1, threads));
+    try {
+      final TreeSet<String> entities = new TreeSet<>(writes.keySet());
+      if (all) {
+        final String prefix = CottontailWrapper.FQN_CINEAST_SCHEMA + ".";
+        wrapper.client.list(new ListEntities(CottontailWrapper.CINEAST_SCHEMA)).forEachRemaining(entity -> entities.add(entity.asString("dbo").replace(prefix, "")));
+      }
+      System.out.printf("Checking %d entities for optimization in Cottontail%n", entities.size());
+      final AtomicInteger optimized = new AtomicInteger();
+      final List<Future<?>> tasks = new ArrayList<>(entities.size());
+      for (String entity : entities) {
+        final long rows = writes.getOrDefault(entity, 0L);
+        tasks.add(executor.submit(() -> {
+          if (!all && !changed(config, entity, rows, threshold)) {
+            return;
+          }
+          try {
+            final long start = System.currentTimeMillis();
+            wrapper.client.optimize(new OptimizeEntity(wrapper.fqnInput(entity)));
+            EntityWriteStatistics.reset(entity, rows);
+            optimized.incrementAndGet();
+            System.out.printf("Optimized entity %s (%d rows written) in %d ms%n", entity, rows, System.currentTimeMillis() - start);
+          } catch (RuntimeException e) {
+            LOGGER.error("Failed to optimize entity {}: {}", entity, e.getMessage());
+          }
+        }));
+      }
+      for (Future<?> task : tasks) {
+        task.get();
+      }
+      System.out.printf("Finished optimizing %d of %d entities%n", optimized.get(), entities.size());
+    } catch (InterruptedException e) {
+      LOGGER.warn("Interrupted while optimizing entities.");
+      Thread.currentThread().interrupt();
+    } catch (Exception e) {
+      LOGGER.error("Error while optimizing entities: {}", e.getMessage());
+    } finally {
+      executor.shutdownNow();
+      wrapper.close();
+    }
+  }
+
+  /**
+   * Checks whether the rows written to an entity make up at least the given fraction of its rows.
+   */
+  private static boolean changed(DatabaseConfig config, String entity, long rows, double threshold) {
+    if (rows <= 0) {
+      return false;
+    }
+    final DBSelector selector = config.getSelectorSupplier().get();
+    try {
+      if (!selector.open(entity)) {
+        return false;
+      }
+      final int count = selector.rowCount();
+      final boolean changed = count <= 0 || (double) rows / count >= threshold;
+      LOGGER.debug("{} of {} rows of entity {} were written since its last optimization.", rows, count, entity);
+      return changed;
+    } finally {
+      selector.close();
     }
   }
 
   @Override
   public void execute() {
-    optimizeAllCottontailEntities();
+    /* Without a state file, the writes of other processes are unknown and any entity may have changed. */
+    final boolean all = this.all || !EntityWriteStatistics.isShared();
+    if (all && !this.all) {
+      System.out.println("No state directory is configured for the write statistics, optimizing all entities.");
+    }
+    optimizeEntities(Config.sharedConfig().getDatabase(), this.threshold, this.threads, all);
   }
 }
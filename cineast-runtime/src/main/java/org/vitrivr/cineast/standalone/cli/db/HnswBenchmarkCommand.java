@@ -0,0 +1,201 @@
+package org.vitrivr.cineast.standalone.cli.db;
+
+import static org.vitrivr.cineast.core.util.CineastConstants.GENERIC_ID_COLUMN_QUALIFIER;
+
+import com.github.rvesse.airline.annotations.Command;
+import com.github.rvesse.airline.annotations.Option;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.SplittableRandom;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import org.vitrivr.cineast.core.config.HnswConfig;
+import org.vitrivr.cineast.core.config.ReadableQueryConfig.Distance;
+import org.vitrivr.cineast.core.data.distance.SegmentDistanceElement;
+import org.vitrivr.cineast.core.data.providers.primitive.PrimitiveTypeProvider;
+import org.vitrivr.cineast.core.db.DBSelector;
+import org.vitrivr.cineast.core.util.distance.FloatArrayDistance;
+import org.vitrivr.cineast.core.util.knn.HnswIndex;
+import org.vitrivr.cineast.standalone.cli.AbstractCineastCommand;
+import org.vitrivr.cineast.standalone.config.Config;
+
+/**
+ * Benchmarks the {@link HnswIndex} against a brute-force scan, either on synthetic clustered vectors or on the vectors of a feature entity. Reports the build time as well as the recall and latency of the index.
+ */
+@Command(name = "hnsw-benchmark", description = "Benchmarks HNSW nearest neighbour search against a brute-force scan.")
+public class HnswBenchmarkCommand extends AbstractCineastCommand {
+
+  /**
+   * {@link SplittableRandom} used to generate vectors.
+   */
+  private final SplittableRandom random = new SplittableRandom(42);
+  @Option(name = {"--entity"}, description = "The feature entity to read vectors from. If omitted, synthetic vectors are generated.")
+  private String entity;
+  @Option(name = {"--column"}, description = "The vector column of the feature entity.")
+  private String column = "feature";
+  @Option(name = {"--size"}, description = "The number of synthetic vectors.")
+  private int size = 100_000;
+  @Option(name = {"--dimensions"}, description = "The dimensionality of the synthetic vectors.")
+  private int dimensions = 512;
+  @Option(name = {"--queries"}, description = "The number of queries.")
+  private int queries = 100;
+  @Option(name = {"--k"}, description = "The number of nearest neighbours to retrieve.")
+  private int k = 100;
+  @Option(name = {"--m"}, description = "The maximum number of connections per node and layer.")
+  private int m = HnswConfig.DEFAULT_M;
+  @Option(name = {"--ef-construction"}, description = "The size of the candidate list while inserting.")
+  private int efConstruction = HnswConfig.DEFAULT_EF_CONSTRUCTION;
+  @Option(name = {"--ef-search"}, description = "The size of the candidate list while searching.")
+  private int efSearch = HnswConfig.DEFAULT_EF_SEARCH;
+  @Option(name = {"--distance"}, description = "The distance to use (euclidean, squaredeuclidean, manhattan or cosine).")
+  private String distance = "euclidean";
+  @Option(name = {"--threads"}, description = "The number of threads inserting vectors.")
+  private int threads = Runtime.getRuntime().availableProcessors();
+
+  @Override
+  public void execute() {
+    final Distance distance = Distance.valueOf(this.distance.toLowerCase());
+    final HnswIndex.Metric metric = HnswIndex.Metric.of(distance).orElseThrow(() -> new IllegalArgumentException("Distance " + this.distance + " is not supported by HNSW indexes."));
+    final List<String> ids = new ArrayList<>();
+    final List<float[]> vectors = new ArrayList<>();
+    if (this.entity != null) {
+      this.read(ids, vectors);
+    } else {
+      this.generate(ids, vectors);
+    }
+    if (vectors.isEmpty()) {
+      System.err.println("No vectors to index.");
+      return;
+    }
+    System.out.printf("Indexing %d vectors of dimensionality %d (m = %d, ef_construction = %d, %d threads).%n", vectors.size(), vectors.get(0).length, this.m, this.efConstruction, this.threads);
+
+    /* Build index. */
+    final HnswIndex index = new HnswIndex(vectors.get(0).length, metric, this.m, this.efConstruction);
+    final long start = System.currentTimeMillis();
+    final ExecutorService executor = Executors.newFixedThreadPool(Math.max(1, this.threads));
+    for (int t = 0; t < Math.max(1, this.threads); t++) {
+      final int offset = t;
+      executor.execute(() -> {
+        for (int i = offset; i < vectors.size(); i += Math.max(1, this.threads)) {
+          index.add(ids.get(i), vectors.get(i));
+        }
+      });
+    }
+    executor.shutdown();
+    try {
+      executor.awaitTermination(Long.MAX_VALUE, TimeUnit.MILLISECONDS);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      return;
+    }
+    System.out.printf("Built index in %d ms.%n", System.currentTimeMillis() - start);
+
+    /* Run queries. */
+    final FloatArrayDistance exact = FloatArrayDistance.fromDistance(distance);
+    final long[] indexed = new long[this.queries];
+    final long[] scanned = new long[this.queries];
+    double recall = 0.0;
+    for (int q = 0; q < this.queries; q++) {
+      final float[] query = this.perturb(vectors.get(this.random.nextInt(vectors.size())));
+
+      long t = System.nanoTime();
+      final List<SegmentDistanceElement> results = index.nearest(this.k, query, this.efSearch, null, SegmentDistanceElement.class);
+      indexed[q] = System.nanoTime() - t;
+
+      t = System.nanoTime();
+      final Set<String> truth = this.scan(exact, query, ids, vectors);
+      scanned[q] = System.nanoTime() - t;
+
+      recall += results.stream().filter(r -> truth.contains(r.getId())).count() / (double) truth.size();
+    }
+    Arrays.sort(indexed);
+    Arrays.sort(scanned);
+    System.out.printf("recall@%d = %.4f (ef_search = %d)%n", this.k, recall / this.queries, this.efSearch);
+    System.out.printf("HNSW:        mean = %.3f ms, p50 = %.3f ms, p99 = %.3f ms%n", mean(indexed), percentile(indexed, 0.5), percentile(indexed, 0.99));
+    System.out.printf("Brute force: mean = %.3f ms, p50 = %.3f ms, p99 = %.3f ms%n", mean(scanned), percentile(scanned, 0.5), percentile(scanned, 0.99));
+  }
+
+  /**
+   * Reads the vectors of the configured entity.
+   */
+  private void read(List<String> ids, List<float[]> vectors) {
+    final DBSelector selector = Config.sharedConfig().getDatabase().getSelectorSupplier().get();
+    if (!selector.open(this.entity)) {
+      System.err.println("Entity " + this.entity + " does not exist.");
+      return;
+    }
+    try {
+      for (Map<String, PrimitiveTypeProvider> row : selector.getAll(List.of(GENERIC_ID_COLUMN_QUALIFIER, this.column), -1)) {
+        final float[] vector = PrimitiveTypeProvider.getSafeFloatArray(row.get(this.column));
+        if (vector.length > 0 && (vectors.isEmpty() || vectors.get(0).length == vector.length)) {
+          ids.add(row.get(GENERIC_ID_COLUMN_QUALIFIER).getString());
+          vectors.add(vector);
+        }
+      }
+    } finally {
+      selector.close();
+    }
+  }
+
+  /**
+   * Generates vectors scattered around a number of random cluster centres.
+   */
+  private void generate(List<String> ids, List<float[]> vectors) {
+    final float[][] centres = new float[Math.max(1, this.size / 1000)][this.dimensions];
+    for (float[] centre : centres) {
+      for (int d = 0; d < this.dimensions; d++) {
+        centre[d] = (float) this.random.nextDouble(-1.0, 1.0);
+      }
+    }
+    for (int i = 0; i < this.size; i++) {
+      ids.add("v" + i);
+      vectors.add(this.perturb(centres[this.random.nextInt(centres.length)]));
+    }
+  }
+
+  /**
+   * Returns a copy of the given vector with Gaussian noise added.
+   */
+  private float[] perturb(float[] vector) {
+    final float[] perturbed = new float[vector.length];
+    for (int d = 0; d < vector.length; d++) {
+      perturbed[d] = vector[d] + (float) (this.gaussian() * 0.1);
+    }
+    return perturbed;
+  }
+
+  private double gaussian() {
+    return Math.sqrt(-2.0 * Math.log(1.0 - this.random.nextDouble())) * Math.cos(2.0 * Math.PI * this.random.nextDouble());
+  }
+
+  /**
+   * Returns the ids of the k nearest neighbours of the query, as found by a brute-force scan.
+   */
+  private Set<String> scan(FloatArrayDistance distance, float[] query, List<String> ids, List<float[]> vectors) {
+    final Integer[] order = new Integer[vectors.size()];
+    final double[] distances = new double[vectors.size()];
+    for (int i = 0; i < order.length; i++) {
+      order[i] = i;
+      distances[i] = distance.applyAsDouble(query, vectors.get(i));
+    }
+    Arrays.sort(order, (a, b) -> Double.compare(distances[a], distances[b]));
+    final Set<String> nearest = new HashSet<>();
+    for (int i = 0; i < Math.min(this.k, order.length); i++) {
+      nearest.add(ids.get(order[i]));
+    }
+    return nearest;
+  }
+
+  private static double mean(long[] nanos) {
+    return Arrays.stream(nanos).average().orElse(0.0) / 1e6;
+  }
+
+  private static double percentile(long[] sorted, double p) {
+    return sorted.length == 0 ? 0.0 : sorted[Math.min(sorted.length - 1, (int) (p * sorted.length))] / 1e6;
+  }
+}
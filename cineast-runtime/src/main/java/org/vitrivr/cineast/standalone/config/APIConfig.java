@@ -38,6 +38,18 @@ public final class APIConfig {
   private boolean enableCLI = false;
   private int threadPoolSize = 8;
 
+  /**
+   * Number of similarity queries that are executed concurrently; further queries are queued per client and admitted in a fair order.
+   */
+  private int maxConcurrentQueries = 4;
+  private int maxQueuedQueries = 64;
+  private int maxQueuedQueriesPerClient = 8;
+
+  /**
+   * Number of threads used for segment lookups and for metadata retrieval each, which are kept apart from similarity queries.
+   */
+  private int lookupThreadPoolSize = 8;
+
   private boolean serveContent = false;
 
   /**
@@ -200,6 +212,48 @@ public void setThreadPoolSize(int threadPoolSize) {
     this.threadPoolSize = threadPoolSize;
   }
 
+  @JsonProperty
+  public int getMaxConcurrentQueries() {
+    return maxConcurrentQueries;
+  }
+
+  public void setMaxConcurrentQueries(int maxConcurrentQueries) {
+    if (maxConcurrentQueries < 1) {
+      throw new IllegalArgumentException("maxConcurrentQueries must be > 0");
+    }
+    this.maxConcurrentQueries = maxConcurrentQueries;
+  }
+
+  @JsonProperty
+  public int getMaxQueuedQueries() {
+    return maxQueuedQueries;
+  }
+
+  public void setMaxQueuedQueries(int maxQueuedQueries) {
+    this.maxQueuedQueries = maxQueuedQueries;
+  }
+
+  @JsonProperty
+  public int getMaxQueuedQueriesPerClient() {
+    return maxQueuedQueriesPerClient;
+  }
+
+  public void setMaxQueuedQueriesPerClient(int maxQueuedQueriesPerClient) {
+    this.maxQueuedQueriesPerClient = maxQueuedQueriesPerClient;
+  }
+
+  @JsonProperty
+  public int getLookupThreadPoolSize() {
+    return lookupThreadPoolSize;
+  }
+
+  public void setLookupThreadPoolSize(int lookupThreadPoolSize) {
+    if (lookupThreadPoolSize < 1) {
+      throw new IllegalArgumentException("lookupThreadPoolSize must be > 0");
+    }
+    this.lookupThreadPoolSize = lookupThreadPoolSize;
+  }
+
   @JsonProperty
   public String getThumbnailLocation() {
     return thumbnailLocation;
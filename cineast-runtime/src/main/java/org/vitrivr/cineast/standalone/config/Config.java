@@ -5,6 +5,7 @@
 import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
 import com.fasterxml.jackson.annotation.JsonProperty;
 import java.io.File;
+import java.nio.file.Paths;
 import java.util.HashMap;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
@@ -13,6 +14,8 @@
 import org.vitrivr.cineast.core.config.DecoderConfig;
 import org.vitrivr.cineast.core.data.MediaType;
 import org.vitrivr.cineast.core.data.raw.CachedDataFactory;
+import org.vitrivr.cineast.core.db.EntityWriteStatistics;
+import org.vitrivr.cineast.core.db.dao.DescriptorCache;
 import org.vitrivr.cineast.core.util.json.JacksonJsonProvider;
 
 @JsonIgnoreProperties(ignoreUnknown = true)
@@ -67,6 +70,10 @@ public static void initSharedConfig(Config config) {
     sharedConfig = config;
     if (config.cache != null) {
       CachedDataFactory.configureDefault(config.cache);
+      DescriptorCache.configure(config.cache);
+    }
+    if (config.database != null && config.database.getStateDirectory() != null) {
+      EntityWriteStatistics.configure(Paths.get(config.database.getStateDirectory()));
     }
   }
 
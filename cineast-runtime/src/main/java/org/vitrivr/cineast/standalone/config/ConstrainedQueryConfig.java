@@ -27,6 +27,7 @@ public static ConstrainedQueryConfig getApplyingConfig(QueryConfig config) {
       final int resultsPerModule = Math.min(queryConfig.getRawResultsPerModule() == -1 ? Config.sharedConfig().getRetriever().getMaxResultsPerModule() : queryConfig.getResultsPerModule(), Config.sharedConfig().getRetriever().getMaxResultsPerModule());
       queryConfig.setResultsPerModule(resultsPerModule);
     }
+    queryConfig.setTimeoutIfEmpty(Config.sharedConfig().getRetriever().getQueryTimeout());
 
     return queryConfig;
   }
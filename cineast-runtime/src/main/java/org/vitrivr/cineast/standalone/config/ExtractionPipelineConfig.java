@@ -11,6 +11,11 @@ public final class ExtractionPipelineConfig {
    */
   public static final int DEFAULT_THREADPOOL_SIZE = 4;
 
+  /**
+   * Default value for size of the thread-pool used for metadata extraction.
+   */
+  public static final int DEFAULT_METADATA_THREADPOOL_SIZE = 2;
+
   /**
    * Default value for size of task-queue.
    */
@@ -25,6 +30,8 @@ public final class ExtractionPipelineConfig {
 
   private Integer threadPoolSize = DEFAULT_THREADPOOL_SIZE;
 
+  private Integer metadataThreadPoolSize = DEFAULT_METADATA_THREADPOOL_SIZE;
+
   private Integer taskQueueSize = DEFAULT_TASKQUEUE_SIZE;
 
   private File outputLocation = new File(".");
@@ -56,6 +63,15 @@ public void setThreadPoolSize(int threadPoolSize) {
     this.threadPoolSize = threadPoolSize;
   }
 
+  @JsonProperty
+  public Integer getMetadataThreadPoolSize() {
+    return this.metadataThreadPoolSize;
+  }
+
+  public void setMetadataThreadPoolSize(int metadataThreadPoolSize) {
+    this.metadataThreadPoolSize = metadataThreadPoolSize;
+  }
+
   @JsonProperty
   public Integer getTaskQueueSize() {
     return this.taskQueueSize;
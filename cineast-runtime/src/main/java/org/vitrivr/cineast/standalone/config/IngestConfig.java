@@ -157,6 +157,9 @@ public IngestConfig(@JsonProperty(value = "type") MediaType type,
     if (this.pipeline.getThreadPoolSize() == ExtractionPipelineConfig.DEFAULT_THREADPOOL_SIZE) {
       this.pipeline.setThreadPoolSize(globalExt.getThreadPoolSize());
     }
+    if (this.pipeline.getMetadataThreadPoolSize() == ExtractionPipelineConfig.DEFAULT_METADATA_THREADPOOL_SIZE) {
+      this.pipeline.setMetadataThreadPoolSize(globalExt.getMetadataThreadPoolSize());
+    }
     if (this.pipeline.getShotQueueSize() == ExtractionPipelineConfig.DEFAULT_SEGMENTQUEUE_SIZE) {
       this.pipeline.setShotQueueSize(globalExt.getShotQueueSize());
     }
@@ -359,6 +362,11 @@ public int threadPoolSize() {
     return this.pipeline.getThreadPoolSize();
   }
 
+  @Override
+  public int metadataThreadPoolSize() {
+    return this.pipeline.getMetadataThreadPoolSize();
+  }
+
   /**
    * Returns the size of the extraction task queue. Limits how many extraction tasks can be dispatched and kept in memory.
    *
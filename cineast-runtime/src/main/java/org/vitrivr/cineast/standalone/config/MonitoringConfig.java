@@ -9,6 +9,11 @@ public final class MonitoringConfig {
   public boolean enablePrometheus = false;
   public int prometheusPort = 4569;
 
+  /**
+   * Directory the spans of every query are written to, one file per query; null to not record traces.
+   */
+  public String traceDirectory = null;
+
   @JsonCreator
   public MonitoringConfig() {
   }
@@ -30,4 +35,13 @@ public boolean getEnablePrometheus() {
   public void setEnablePrometheus(boolean enablePrometheus) {
     this.enablePrometheus = enablePrometheus;
   }
+
+  @JsonProperty
+  public String getTraceDirectory() {
+    return traceDirectory;
+  }
+
+  public void setTraceDirectory(String traceDirectory) {
+    this.traceDirectory = traceDirectory;
+  }
 }
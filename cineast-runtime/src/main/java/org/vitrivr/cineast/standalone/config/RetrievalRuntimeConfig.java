@@ -40,6 +40,7 @@
 import org.vitrivr.cineast.core.features.exporter.QueryImageExporter;
 import org.vitrivr.cineast.core.features.retriever.Retriever;
 import org.vitrivr.cineast.core.util.ReflectionHelper;
+import org.vitrivr.cineast.standalone.runtime.RetrieverResultCache;
 
 public final class RetrievalRuntimeConfig {
 
@@ -98,6 +99,10 @@ public final class RetrievalRuntimeConfig {
   private int taskQueueSize = 10;
   private int maxResults = 100;
   private int resultsPerModule = 50;
+  /**
+   * Time budget of a query in milliseconds, applied if the query does not specify one; zero or below for none.
+   */
+  private long queryTimeout = 0;
   private HashMap<String, List<RetrieverConfig>> retrieverCategories = DEFAULT_RETRIEVER_CATEGORIES;
 
   @JsonCreator
@@ -141,6 +146,15 @@ public void setResultsPerModule(int resultsPerModule) {
     this.resultsPerModule = resultsPerModule;
   }
 
+  @JsonProperty
+  public long getQueryTimeout() {
+    return this.queryTimeout;
+  }
+
+  public void setQueryTimeout(long queryTimeout) {
+    this.queryTimeout = queryTimeout;
+  }
+
   @JsonProperty("features")
   public List<String> getRetrieverCategories() {
     Set<String> keys = this.retrieverCategories.keySet();
@@ -173,6 +187,7 @@ public ObjectDoubleHashMap<Retriever> getRetrieversByCategory(String category) {
       }
 
       if (rev != null) {
+        RetrieverResultCache.register(rev, config);
         _return.put(rev, config.getWeight());
       }
     }
@@ -195,6 +210,7 @@ public Optional<Retriever> getRetrieverByName(String retrieverName) {
           }
 
           if (retriever != null) {
+            RetrieverResultCache.register(retriever, config);
             return Optional.of(retriever);
           }
         }
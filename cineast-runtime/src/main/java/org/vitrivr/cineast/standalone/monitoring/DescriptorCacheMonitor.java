@@ -0,0 +1,57 @@
+package org.vitrivr.cineast.standalone.monitoring;
+
+import com.google.common.cache.CacheStats;
+import io.prometheus.client.Collector;
+import io.prometheus.client.CounterMetricFamily;
+import io.prometheus.client.GaugeMetricFamily;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.vitrivr.cineast.core.db.dao.DescriptorCache;
+import org.vitrivr.cineast.standalone.config.Config;
+
+/**
+ * Exports the hit and miss counts of the {@link DescriptorCache}s, which are read whenever Prometheus scrapes.
+ */
+public class DescriptorCacheMonitor extends Collector {
+
+  private static final Logger LOGGER = LogManager.getLogger();
+  private static final List<DescriptorCache<?>> CACHES = Arrays.asList(DescriptorCache.SEGMENTS, DescriptorCache.OBJECTS);
+  private static boolean initalized = false;
+
+  public static void init() {
+    if (initalized) {
+      LOGGER.info("Already initalized, Returning");
+      return;
+    }
+    if (!Config.sharedConfig().getMonitoring().enablePrometheus) {
+      LOGGER.warn("Prometheus not enabled, returning");
+      return;
+    }
+    LOGGER.info("Initalizing Prometheus Descriptor Cache Monitor");
+    new DescriptorCacheMonitor().register();
+    initalized = true;
+  }
+
+  @Override
+  public List<MetricFamilySamples> collect() {
+    final List<String> labels = Collections.singletonList("cache");
+    final CounterMetricFamily hits = new CounterMetricFamily("cineast_descriptorcache_hits", "Descriptors served from the cache", labels);
+    final CounterMetricFamily misses = new CounterMetricFamily("cineast_descriptorcache_misses", "Descriptors not found in the cache", labels);
+    final CounterMetricFamily coalesced = new CounterMetricFamily("cineast_descriptorcache_coalesced", "Misses served by the load of a concurrent request", labels);
+    final CounterMetricFamily evictions = new CounterMetricFamily("cineast_descriptorcache_evictions", "Descriptors evicted from the cache", labels);
+    final GaugeMetricFamily size = new GaugeMetricFamily("cineast_descriptorcache_size", "Number of cached descriptors", labels);
+    for (DescriptorCache<?> cache : CACHES) {
+      final List<String> values = Collections.singletonList(cache.getName());
+      final CacheStats stats = cache.stats();
+      hits.addMetric(values, stats.hitCount());
+      misses.addMetric(values, stats.missCount());
+      coalesced.addMetric(values, cache.coalescedCount());
+      evictions.addMetric(values, stats.evictionCount());
+      size.addMetric(values, cache.size());
+    }
+    return Arrays.asList(hits, misses, coalesced, evictions, size);
+  }
+}
@@ -34,6 +34,8 @@ public static synchronized void initialize() {
       lock.release();
       return;
     }
+    /* Query traces may be written to files even if Prometheus is not enabled. */
+    QueryTraceMonitor.init();
     if (!Config.sharedConfig().getMonitoring().enablePrometheus) {
       LOGGER.trace("Prometheus monitoring not enabled");
       lock.release();
@@ -51,6 +53,7 @@ public static synchronized void initialize() {
     ImportTaskMonitor.init();
     DatabaseHealthMonitor.init();
     RetrievalTaskMonitor.init();
+    DescriptorCacheMonitor.init();
     try {
       server.get().start();
     } catch (Exception e) {
@@ -0,0 +1,65 @@
+package org.vitrivr.cineast.standalone.monitoring;
+
+import io.prometheus.client.Histogram;
+import java.io.IOException;
+import java.nio.file.Paths;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.vitrivr.cineast.core.util.tracing.QueryTracer;
+import org.vitrivr.cineast.core.util.tracing.Span;
+import org.vitrivr.cineast.standalone.config.Config;
+import org.vitrivr.cineast.standalone.config.MonitoringConfig;
+
+/**
+ * Enables the {@link QueryTracer} and exports the wall and CPU time of its {@link Span}s as histograms labelled by operation, entity and retriever. Traces of individual queries are written to files if a trace directory is configured, regardless of whether Prometheus is enabled.
+ */
+public class QueryTraceMonitor {
+
+  private static final Logger LOGGER = LogManager.getLogger();
+
+  /**
+   * Upper bounds of the buckets in seconds. They are fixed, such that histograms remain comparable across deployments and releases.
+   */
+  private static final double[] BUCKETS = {0.0005, 0.001, 0.0025, 0.005, 0.01, 0.025, 0.05, 0.1, 0.25, 0.5, 1, 2.5, 5, 10, 30, 60};
+
+  private static boolean initalized = false;
+  private static Histogram wallTime;
+  private static Histogram cpuTime;
+
+  public static synchronized void init() {
+    if (initalized) {
+      LOGGER.info("Already initalized, Returning");
+      return;
+    }
+    final MonitoringConfig config = Config.sharedConfig().getMonitoring();
+    if (config.getTraceDirectory() != null) {
+      try {
+        QueryTracer.recordTraces(Paths.get(config.getTraceDirectory()));
+        LOGGER.info("Writing query traces to {}", config.getTraceDirectory());
+      } catch (IOException e) {
+        LOGGER.error("Cannot write query traces to {}: {}", config.getTraceDirectory(), e.getMessage());
+      }
+    }
+    if (config.enablePrometheus) {
+      LOGGER.info("Initalizing Prometheus Query Trace Monitor");
+      wallTime = Histogram.build().name("cineast_span_seconds")
+          .help("Wall time of the phases of queries and of database calls")
+          .labelNames("operation", "entity", "retriever").buckets(BUCKETS).register();
+      cpuTime = Histogram.build().name("cineast_span_cpu_seconds")
+          .help("CPU time of the phases of queries and of database calls")
+          .labelNames("operation", "entity", "retriever").buckets(BUCKETS).register();
+      QueryTracer.addListener(QueryTraceMonitor::observe);
+      QueryTracer.enable();
+    }
+    initalized = true;
+  }
+
+  private static void observe(Span span) {
+    final String entity = span.getEntity() == null ? "" : span.getEntity();
+    final String retriever = span.getRetriever() == null ? "" : span.getRetriever();
+    wallTime.labels(span.getOperation(), entity, retriever).observe(span.getWallNanos() / 1e9);
+    if (span.getCpuNanos() >= 0) {
+      cpuTime.labels(span.getOperation(), entity, retriever).observe(span.getCpuNanos() / 1e9);
+    }
+  }
+}
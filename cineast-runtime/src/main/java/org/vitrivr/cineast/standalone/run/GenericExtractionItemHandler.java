@@ -56,11 +56,11 @@
 import org.vitrivr.cineast.core.extraction.segmenter.video.VideoHistogramSegmenter;
 import org.vitrivr.cineast.core.features.abstracts.MetadataFeatureModule;
 import org.vitrivr.cineast.core.data.m3d.texturemodel.Model;
-import org.vitrivr.cineast.core.util.LogHelper;
 import org.vitrivr.cineast.core.util.MimeTypeHelper;
 import org.vitrivr.cineast.core.util.ReflectionHelper;
 import org.vitrivr.cineast.standalone.config.Config;
 import org.vitrivr.cineast.standalone.runtime.ExtractionPipeline;
+import org.vitrivr.cineast.standalone.runtime.MetadataExtractionStage;
 
 /**
  * This class is used to extract a continuous list of {@link ExtractionItemContainer}s.
@@ -74,7 +74,6 @@ public class GenericExtractionItemHandler implements Runnable, ExtractionItemPro
 
   private final MediaObjectWriter objectWriter;
   private final MediaSegmentWriter mediaSegmentWriter;
-  private final MediaObjectMetadataWriter metadataWriter;
   private final MediaObjectReader objectReader;
   private final MediaSegmentReader segmentReader;
   private final ExtractionContextProvider context;
@@ -92,6 +91,8 @@ public class GenericExtractionItemHandler implements Runnable, ExtractionItemPro
   });
 
   private final List<MetadataExtractor> metadataExtractors;
+  private final Supplier<PersistencyWriter<?>> writerSupplier;
+  private MetadataExtractionStage metadataStage;
   private final List<ExtractionCompleteListener> completeListeners = new ArrayList<>();
 
   private final ExtractionPipeline pipeline;
@@ -115,7 +116,7 @@ public GenericExtractionItemHandler(ExtractionContainerProvider pathProvider, Ex
     final Supplier<PersistencyWriter<?>> writerSupplier = context.persistencyWriter();
     this.objectWriter = new MediaObjectWriter(writerSupplier.get());
     this.mediaSegmentWriter = new MediaSegmentWriter(writerSupplier.get());
-    this.metadataWriter = new MediaObjectMetadataWriter(writerSupplier.get());
+    this.writerSupplier = writerSupplier;
 
     final Supplier<DBSelector> readerSupplier = context.persistencyReader();
     this.objectReader = new MediaObjectReader(readerSupplier.get());
@@ -232,6 +233,7 @@ public void run() {
         extractor.init();
       }
     }
+    this.metadataStage = new MetadataExtractionStage(this.metadataExtractors, new MediaObjectMetadataWriter(this.writerSupplier.get()), this.context.metadataThreadPoolSize(), this.context.taskQueueSize());
 
     /* Process until there's nothing left*/
     while ((pair = this.nextItem()) != null) {
@@ -320,15 +322,14 @@ public void run() {
           List<MediaObjectMetadataDescriptor> metadata = pair.getLeft().getMetadata().stream()
               .map(el -> MediaObjectMetadataDescriptor.fromExisting(el, objectId))
               .collect(Collectors.toList());
-          this.metadataWriter.write(metadata);
+          this.persistMetadata(metadata);
 
-          /* Extract metadata. */
+          /* Extract metadata; this happens asynchronously in the metadata extraction stage. */
           this.extractAndPersistMetadata(pair.getLeft(), objectId);
 
-          /* Force flush the segment, object and metadata information. */
+          /* Force flush the segment and object information. */
           this.mediaSegmentWriter.flush();
           this.objectWriter.flush();
-          this.metadataWriter.flush();
         } else {
           LOGGER.error("Failed to initialize decoder. File is being skipped...");
         }
@@ -380,6 +381,10 @@ private void shutdown() {
     } catch (InterruptedException e) {
       LOGGER.warn("Interrupted while waiting for ExtractionPipeline to shutdown!");
     } finally {
+      if (this.metadataStage != null) {
+        LOGGER.info("Waiting for metadata extraction to complete.");
+        this.metadataStage.close();
+      }
       for (MetadataExtractor extractor : this.metadataExtractors) {
         LOGGER.debug("Closing metadata extractor {}", extractor.getClass().getSimpleName());
         extractor.finish();
@@ -391,7 +396,6 @@ private void shutdown() {
 
       this.mediaSegmentWriter.close();
       this.objectWriter.close();
-      this.metadataWriter.close();
       this.objectReader.close();
       this.segmentReader.close();
       this.handlerCache.values().forEach(el -> {
@@ -559,17 +563,35 @@ protected MediaSegmentDescriptor fetchOrCreateSegmentDescriptor(String objectId,
     return this.segmentReader.lookUpSegment(segmentId).orElse(new MediaSegmentDescriptor(objectId, segmentId, segmentNumber, start, end, startabs, endabs, false));
   }
 
+  /**
+   * Schedules the extraction of the metadata of the given item in the {@link MetadataExtractionStage}; the extracted metadata is persisted asynchronously. Outside of {@link #run()}, there is no such stage and the metadata is extracted and persisted synchronously.
+   */
   protected void extractAndPersistMetadata(ExtractionItemContainer item, String objectId) {
-    for (MetadataExtractor extractor : this.metadataExtractors) {
-      LOGGER.debug("Extracting metadata with {}", extractor.getClass().getSimpleName());
-      try {
-        List<MediaObjectMetadataDescriptor> metadata = extractor
-            .extract(objectId, item.getPathForExtraction());
-        if (!metadata.isEmpty()) {
-          this.metadataWriter.write(metadata);
+    if (this.metadataExtractors.isEmpty()) {
+      return;
+    }
+    if (this.metadataStage != null) {
+      this.metadataStage.submit(objectId, item.getPathForExtraction());
+      return;
+    }
+    try (MediaObjectMetadataWriter writer = new MediaObjectMetadataWriter(this.writerSupplier.get())) {
+      MetadataExtractionStage.extract(this.metadataExtractors, objectId, item.getPathForExtraction(), metadata -> {
+        if (metadata != null && !metadata.isEmpty()) {
+          writer.write(metadata);
         }
-      } catch (Exception e) {
-        LOGGER.error("exception during metadata extraction: {}", LogHelper.getStackTrace(e));
+      });
+    }
+  }
+
+  /**
+   * Persists the given metadata through the {@link MetadataExtractionStage} or, outside of {@link #run()}, synchronously.
+   */
+  protected void persistMetadata(List<MediaObjectMetadataDescriptor> metadata) {
+    if (this.metadataStage != null) {
+      this.metadataStage.write(metadata);
+    } else if (!metadata.isEmpty()) {
+      try (MediaObjectMetadataWriter writer = new MediaObjectMetadataWriter(this.writerSupplier.get())) {
+        writer.write(metadata);
       }
     }
   }
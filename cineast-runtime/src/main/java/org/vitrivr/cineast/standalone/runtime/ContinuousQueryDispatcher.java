@@ -3,26 +3,34 @@
 import com.carrotsearch.hppc.ObjectDoubleHashMap;
 import com.carrotsearch.hppc.ObjectDoubleMap;
 import com.carrotsearch.hppc.cursors.DoubleCursor;
-import com.carrotsearch.hppc.cursors.ObjectDoubleCursor;
 import com.carrotsearch.hppc.predicates.ObjectDoublePredicate;
 import com.google.common.cache.Cache;
 import com.google.common.cache.CacheBuilder;
 import java.util.ArrayList;
+import java.util.IdentityHashMap;
 import java.util.Iterator;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Future;
 import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.function.Function;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
+import org.vitrivr.cineast.core.config.QueryDeadline;
+import org.vitrivr.cineast.core.config.QueryDeadlineExceededException;
 import org.vitrivr.cineast.core.config.ReadableQueryConfig;
 import org.vitrivr.cineast.core.data.LimitedQueue;
 import org.vitrivr.cineast.core.data.Pair;
 import org.vitrivr.cineast.core.data.QueryResultCacheKey;
+import org.vitrivr.cineast.core.data.RetrieverResultCacheKey;
 import org.vitrivr.cineast.core.data.query.containers.AbstractQueryTermContainer;
 import org.vitrivr.cineast.core.data.score.BooleanSegmentScoreElement;
 import org.vitrivr.cineast.core.data.score.ObjectScoreElement;
@@ -34,6 +42,8 @@
 import org.vitrivr.cineast.core.util.LogHelper;
 import org.vitrivr.cineast.core.util.ScoreFusion;
 import org.vitrivr.cineast.core.util.math.MathHelper;
+import org.vitrivr.cineast.core.util.tracing.QueryTracer;
+import org.vitrivr.cineast.core.util.tracing.Span;
 import org.vitrivr.cineast.standalone.config.Config;
 
 public class ContinuousQueryDispatcher {
@@ -49,6 +59,11 @@ public class ContinuousQueryDispatcher {
   private static ExecutorService executor = new ThreadPoolExecutor(THREAD_COUNT, THREAD_COUNT, KEEP_ALIVE_TIME, TimeUnit.SECONDS, taskQueue);
 
   private final Function<Retriever, RetrievalTask> taskFactory;
+  private final Function<String, RetrieverResultCacheKey> cacheKeyFactory;
+  private final Map<Retriever, RetrieverResultCache.Ticket> tickets = new IdentityHashMap<>();
+  private final List<Execution> executions = new ArrayList<>();
+  private final QueryDeadline deadline;
+  private final String queryId;
   private final RetrieverInitializer initializer;
   private final ObjectDoubleMap<Retriever> retrieverWeights;
   private final MediaSegmentReader mediaSegmentReader;
@@ -65,8 +80,11 @@ public class ContinuousQueryDispatcher {
           .build() : null;
 
 
-  private ContinuousQueryDispatcher(Function<Retriever, RetrievalTask> taskFactory, ObjectDoubleMap<Retriever> retrieverWeights, RetrieverInitializer initializer, MediaSegmentReader mediaSegmentReader) {
+  private ContinuousQueryDispatcher(Function<Retriever, RetrievalTask> taskFactory, Function<String, RetrieverResultCacheKey> cacheKeyFactory, ObjectDoubleMap<Retriever> retrieverWeights, RetrieverInitializer initializer, MediaSegmentReader mediaSegmentReader, ReadableQueryConfig config) {
     this.taskFactory = taskFactory;
+    this.cacheKeyFactory = cacheKeyFactory;
+    this.deadline = config == null ? null : config.getDeadline().orElse(null);
+    this.queryId = config == null ? null : config.getQueryId();
     this.initializer = initializer;
     this.retrieverWeights = retrieverWeights;
     this.mediaSegmentReader = mediaSegmentReader;
@@ -89,14 +107,16 @@ public static List<SegmentScoreElement> retrieve(AbstractQueryTermContainer quer
       List<SegmentScoreElement> result = queryCache.getIfPresent(cacheKey);
 
       if (result == null) {
-        result = new ContinuousQueryDispatcher(r -> new RetrievalTask(r, query, config), retrievers, initializer, mediaSegmentReader).doRetrieve();
-        queryCache.put(cacheKey, result);
+        result = new ContinuousQueryDispatcher(r -> new RetrievalTask(r, query, config), spec -> RetrieverResultCacheKey.of(spec, query, config), retrievers, initializer, mediaSegmentReader, config).doRetrieve();
+        if (isComplete(config)) {
+          queryCache.put(cacheKey, result);
+        }
       }
 
       return result;
 
     } else {
-      return new ContinuousQueryDispatcher(r -> new RetrievalTask(r, query, config), retrievers, initializer, mediaSegmentReader).doRetrieve();
+      return new ContinuousQueryDispatcher(r -> new RetrievalTask(r, query, config), spec -> RetrieverResultCacheKey.of(spec, query, config), retrievers, initializer, mediaSegmentReader, config).doRetrieve();
     }
   }
 
@@ -109,16 +129,25 @@ public static List<SegmentScoreElement> retrieve(String segmentId, ObjectDoubleH
       List<SegmentScoreElement> result = queryCache.getIfPresent(cacheKey);
 
       if (result == null) {
-        result = new ContinuousQueryDispatcher(r -> new RetrievalTask(r, segmentId, config), retrievers, initializer, mediaSegmentReader).doRetrieve();
-        queryCache.put(cacheKey, result);
+        result = new ContinuousQueryDispatcher(r -> new RetrievalTask(r, segmentId, config), spec -> new RetrieverResultCacheKey(spec, segmentId, config), retrievers, initializer, mediaSegmentReader, config).doRetrieve();
+        if (isComplete(config)) {
+          queryCache.put(cacheKey, result);
+        }
       }
 
       return result;
     } else {
-      return new ContinuousQueryDispatcher(r -> new RetrievalTask(r, segmentId, config), retrievers, initializer, mediaSegmentReader).doRetrieve();
+      return new ContinuousQueryDispatcher(r -> new RetrievalTask(r, segmentId, config), spec -> new RetrieverResultCacheKey(spec, segmentId, config), retrievers, initializer, mediaSegmentReader, config).doRetrieve();
     }
   }
 
+  /**
+   * Partial results, i.e., those of a query whose deadline expired, must not be cached.
+   */
+  private static boolean isComplete(ReadableQueryConfig config) {
+    return config == null || config.getDeadline().map(deadline -> !deadline.isExceeded()).orElse(true);
+  }
+
   public static void shutdown() {
     clearExecutor();
   }
@@ -150,24 +179,42 @@ private static void clearExecutor() {
   }
 
   private List<SegmentScoreElement> doRetrieve() {
-    LOGGER.trace("Initializing executor with retrievers {}", retrieverWeights);
-    initExecutor();
-    LOGGER.trace("Starting tasks with retrievers {}", retrieverWeights);
-    List<Future<Pair<RetrievalTask, List<ScoreElement>>>> futures = this.startTasks();
-    LOGGER.trace("Extracting results with retrievers {}", retrieverWeights);
-    List<SegmentScoreElement> segmentScores = this.extractResults(futures, this.mediaSegmentReader);
-    LOGGER.trace("Retrieved {} results, finishing", segmentScores.size());
-    this.finish();
-    return segmentScores;
+    try (QueryTracer.Scope scope = QueryTracer.enter(this.queryId, null)) {
+      LOGGER.trace("Initializing executor with retrievers {}", retrieverWeights);
+      initExecutor();
+      LOGGER.trace("Starting tasks with retrievers {}", retrieverWeights);
+      List<Future<Pair<RetrievalTask, List<ScoreElement>>>> futures = this.startTasks();
+      LOGGER.trace("Extracting results with retrievers {}", retrieverWeights);
+      List<SegmentScoreElement> segmentScores = this.extractResults(futures, this.mediaSegmentReader);
+      LOGGER.trace("Retrieved {} results, finishing", segmentScores.size());
+      this.finish();
+      return segmentScores;
+    }
   }
 
   private List<Future<Pair<RetrievalTask, List<ScoreElement>>>> startTasks() {
     List<Future<Pair<RetrievalTask, List<ScoreElement>>>> futures = new LinkedList<>();
+    if (this.deadline != null && this.deadline.isExpired()) {
+      LOGGER.warn("Deadline of the query expired before retrievers {} were started, skipping them.", this.retrieverWeights);
+      this.deadline.markExceeded();
+      return futures;
+    }
     this.retrieverWeights.forEach((ObjectDoublePredicate<? super Retriever>) (r, weight) -> {
       if (weight > 0) {
-        this.initializer.initialize(r);
         RetrievalTask task = taskFactory.apply(r);
-        futures.add(executor.submit(task));
+        RetrieverResultCache.Ticket ticket = RetrieverResultCache.ticket(r, this.cacheKeyFactory);
+        if (ticket != null) {
+          List<ScoreElement> cached = RetrieverResultCache.get(ticket);
+          if (cached != null) {
+            futures.add(CompletableFuture.completedFuture(new Pair<>(task, cached)));
+            return true;
+          }
+          this.tickets.put(r, ticket);
+        }
+        this.initializer.initialize(r);
+        Execution execution = new Execution(task);
+        this.executions.add(execution);
+        futures.add(executor.submit(execution));
       }
       return true;
     });
@@ -187,12 +234,29 @@ private List<SegmentScoreElement> extractResults(List<Future<Pair<RetrievalTask,
 
         try {
           Pair<RetrievalTask, List<ScoreElement>> pair = future.get();
+          RetrieverResultCache.Ticket ticket = this.tickets.get(pair.first.getRetriever());
+          if (ticket != null) {
+            RetrieverResultCache.put(ticket, pair.second);
+          }
           this.addRetrievalResult(scoreByObjectId, scoreBySegmentId, pair.first, pair.second);
-        } catch (InterruptedException | ExecutionException e) {
+        } catch (ExecutionException e) {
+          if (e.getCause() instanceof QueryDeadlineExceededException) {
+            LOGGER.debug("Retriever aborted because the deadline of the query expired.");
+          } else {
+            LOGGER.warn(LogHelper.getStackTrace(e));
+          }
+        } catch (InterruptedException | CancellationException e) {
           LOGGER.warn(LogHelper.getStackTrace(e));
         }
         iterator.remove();
       }
+      if (!futures.isEmpty() && this.deadline != null && this.deadline.isExpired()) {
+        /* Retrievers are cancelled cooperatively: those that check the deadline abort, the results of all others are discarded. Retrievers still running are finished by their tasks, see finish(). */
+        LOGGER.warn("Deadline of the query expired, cancelling {} retrieval tasks and returning partial results.", futures.size());
+        this.deadline.markExceeded();
+        futures.forEach(future -> future.cancel(true));
+        break;
+      }
       try {
         Thread.sleep(10);
       } catch (InterruptedException e) {
@@ -200,8 +264,10 @@ private List<SegmentScoreElement> extractResults(List<Future<Pair<RetrievalTask,
       }
     }
 
-    ScoreFusion.fuseObjectsIntoSegments(scoreBySegmentId, scoreByObjectId, mediaSegmentReader);
-    return this.normalizeSortTruncate(scoreBySegmentId);
+    try (Span span = QueryTracer.start("fusion", null)) {
+      ScoreFusion.fuseObjectsIntoSegments(scoreBySegmentId, scoreByObjectId, mediaSegmentReader);
+      return this.normalizeSortTruncate(scoreBySegmentId);
+    }
   }
 
   private void addRetrievalResult(ObjectDoubleMap<String> scoreByObjectId, ObjectDoubleMap<String> scoreBySegmentId, RetrievalTask task, List<ScoreElement> scoreElements) {
@@ -254,11 +320,55 @@ private List<SegmentScoreElement> normalizeSortTruncate(ObjectDoubleMap<String>
     }
   }
 
+  /**
+   * Finishes the retrievers whose tasks have completed or will never run. The retrievers of tasks that are still running after the deadline expired are finished by the tasks themselves once they return, such that no retriever is finished while it is in use.
+   */
   private void finish() {
+    for (Execution execution : this.executions) {
+      execution.release();
+    }
+  }
+
+  /**
+   * Runs a {@link RetrievalTask} on the executor and keeps track of whether it is running, such that its retriever is finished exactly once and only after the task returned.
+   */
+  private static final class Execution implements Callable<Pair<RetrievalTask, List<ScoreElement>>> {
+
+    private static final int PENDING = 0;
+    private static final int RUNNING = 1;
+    private static final int DONE = 2;
+    private static final int RELEASED = 3;
+
+    private final RetrievalTask task;
+    private final AtomicInteger state = new AtomicInteger(PENDING);
+
+    private Execution(RetrievalTask task) {
+      this.task = task;
+    }
 
-    for (ObjectDoubleCursor<Retriever> retrieverWeight : this.retrieverWeights) {
-      retrieverWeight.key.finish();
+    @Override
+    public Pair<RetrievalTask, List<ScoreElement>> call() throws Exception {
+      if (!this.state.compareAndSet(PENDING, RUNNING)) {
+        /* Released before it was started; the result is not awaited anymore. */
+        throw new CancellationException();
+      }
+      try {
+        return this.task.call();
+      } finally {
+        if (!this.state.compareAndSet(RUNNING, DONE)) {
+          /* Released by the dispatcher while running, which left finishing the retriever to this task. */
+          this.task.getRetriever().finish();
+        }
+      }
     }
 
+    /**
+     * Finishes the retriever unless the task is still running, in which case the task finishes it once it returns.
+     */
+    private void release() {
+      if (this.state.getAndSet(RELEASED) != RUNNING) {
+        this.task.getRetriever().finish();
+      }
+    }
   }
 }
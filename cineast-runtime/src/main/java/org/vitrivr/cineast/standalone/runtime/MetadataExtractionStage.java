@@ -0,0 +1,192 @@
+package org.vitrivr.cineast.standalone.runtime;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.vitrivr.cineast.core.data.entities.MediaObjectMetadataDescriptor;
+import org.vitrivr.cineast.core.db.dao.writer.MediaObjectMetadataWriter;
+import org.vitrivr.cineast.core.extraction.metadata.MetadataExtractor;
+import org.vitrivr.cineast.core.util.LogHelper;
+import org.vitrivr.cineast.core.util.MetadataUtil;
+
+/**
+ * Runs the {@link MetadataExtractor}s of an extraction run as a stage of its own, such that metadata extraction neither blocks decoding and segmentation nor is limited to a single thread.
+ * <p>
+ * Every file is processed by one worker of a fixed-size pool, which invokes all extractors within a {@link MetadataUtil#withSharedMetadata(Path, java.util.function.Supplier)} scope; hence, the metadata of the file is parsed only once. Extractors that are not thread-safe are invoked by one worker at a time. The resulting rows are handed to a single writer thread, which persists them through one batched {@link MediaObjectMetadataWriter}. If all workers are busy and the task queue is full, the submitting thread processes the file itself.
+ */
+public class MetadataExtractionStage implements AutoCloseable {
+
+  private static final Logger LOGGER = LogManager.getLogger();
+
+  /**
+   * Marks the end of the row queue.
+   */
+  private static final List<MediaObjectMetadataDescriptor> END = new ArrayList<>(0);
+
+  /**
+   * The {@link MetadataExtractor}s to invoke for every file.
+   */
+  private final List<MetadataExtractor> extractors;
+
+  /**
+   * The {@link MediaObjectMetadataWriter} used to persist the rows; it is only accessed by the writer thread.
+   */
+  private final MediaObjectMetadataWriter writer;
+
+  /**
+   * Pool of workers running the extractors.
+   */
+  private final ThreadPoolExecutor workers;
+
+  /**
+   * Queue of rows pending to be written.
+   */
+  private final LinkedBlockingQueue<List<MediaObjectMetadataDescriptor>> rows = new LinkedBlockingQueue<>();
+
+  /**
+   * Thread writing the rows.
+   */
+  private final Thread writerThread;
+
+  /**
+   * Constructor for {@link MetadataExtractionStage}. The {@link MetadataExtractor}s are expected to be initialized already.
+   *
+   * @param extractors The {@link MetadataExtractor}s to invoke for every file.
+   * @param writer     The {@link MediaObjectMetadataWriter} used to persist the rows. It is closed when this stage is closed.
+   * @param threads    Number of worker threads.
+   * @param queueSize  Number of files that may be pending extraction.
+   */
+  public MetadataExtractionStage(List<MetadataExtractor> extractors, MediaObjectMetadataWriter writer, int threads, int queueSize) {
+    this.extractors = extractors;
+    this.writer = writer;
+    final AtomicInteger counter = new AtomicInteger();
+    this.workers = new ThreadPoolExecutor(Math.max(1, threads), Math.max(1, threads), 0L, TimeUnit.MILLISECONDS, new ArrayBlockingQueue<>(Math.max(1, queueSize)), r -> {
+      final Thread thread = new Thread(r);
+      thread.setName("metadata-extraction-thread-" + counter.incrementAndGet());
+      return thread;
+    }, new ThreadPoolExecutor.CallerRunsPolicy());
+    this.writerThread = new Thread(this::drain, "metadata-writer-thread");
+    this.writerThread.start();
+  }
+
+  /**
+   * Schedules the extraction of the metadata of the given file.
+   *
+   * @param objectId ID of the multimedia object the file belongs to.
+   * @param path     Path to the file.
+   */
+  public void submit(String objectId, Path path) {
+    this.workers.execute(() -> this.extract(objectId, path));
+  }
+
+  /**
+   * Schedules the given rows for writing.
+   *
+   * @param metadata The rows to write.
+   */
+  public void write(List<MediaObjectMetadataDescriptor> metadata) {
+    if (metadata != null && !metadata.isEmpty()) {
+      this.rows.add(metadata);
+    }
+  }
+
+  /**
+   * Waits for all scheduled extractions to complete, writes all pending rows and closes the {@link MediaObjectMetadataWriter}.
+   */
+  @Override
+  public void close() {
+    this.workers.shutdown();
+    try {
+      if (!this.workers.awaitTermination(30, TimeUnit.MINUTES)) {
+        LOGGER.warn("Metadata extraction did not complete in time; pending files are skipped.");
+        this.workers.shutdownNow();
+      }
+    } catch (InterruptedException e) {
+      LOGGER.warn("Interrupted while waiting for metadata extraction to complete!");
+      this.workers.shutdownNow();
+      Thread.currentThread().interrupt();
+    }
+    this.rows.add(END);
+    try {
+      this.writerThread.join();
+    } catch (InterruptedException e) {
+      LOGGER.warn("Interrupted while waiting for metadata to be written!");
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  /**
+   * Invokes all extractors for a single file.
+   */
+  private void extract(String objectId, Path path) {
+    extract(this.extractors, objectId, path, this::write);
+  }
+
+  /**
+   * Invokes the given extractors for a single file on the calling thread, within a {@link MetadataUtil#withSharedMetadata(Path, java.util.function.Supplier)} scope, and hands the resulting rows of every extractor to the given consumer.
+   *
+   * @param extractors The {@link MetadataExtractor}s to invoke.
+   * @param objectId   ID of the multimedia object the file belongs to.
+   * @param path       Path to the file.
+   * @param consumer   Receives the rows extracted by every extractor.
+   */
+  public static void extract(List<MetadataExtractor> extractors, String objectId, Path path, Consumer<List<MediaObjectMetadataDescriptor>> consumer) {
+    MetadataUtil.withSharedMetadata(path, () -> {
+      for (MetadataExtractor extractor : extractors) {
+        LOGGER.debug("Extracting metadata with {}", extractor.getClass().getSimpleName());
+        try {
+          final List<MediaObjectMetadataDescriptor> metadata;
+          if (extractor.isThreadSafe()) {
+            metadata = extractor.extract(objectId, path);
+          } else {
+            synchronized (extractor) {
+              metadata = extractor.extract(objectId, path);
+            }
+          }
+          consumer.accept(metadata);
+        } catch (Exception e) {
+          LOGGER.error("exception during metadata extraction: {}", LogHelper.getStackTrace(e));
+        }
+      }
+      return null;
+    });
+  }
+
+  /**
+   * Writes the queued rows until the end of the queue is reached. The writer is flushed whenever the queue runs empty.
+   */
+  private void drain() {
+    boolean pending = false;
+    try {
+      while (true) {
+        List<MediaObjectMetadataDescriptor> metadata = pending ? this.rows.poll(1, TimeUnit.SECONDS) : this.rows.take();
+        if (metadata == END) {
+          break;
+        }
+        try {
+          if (metadata == null) {
+            pending = false;
+            this.writer.flush();
+          } else {
+            this.writer.write(metadata);
+            pending = true;
+          }
+        } catch (Exception e) {
+          LOGGER.error("exception while writing metadata: {}", LogHelper.getStackTrace(e));
+        }
+      }
+    } catch (InterruptedException e) {
+      LOGGER.warn("Metadata writer was interrupted; pending rows are discarded.");
+    } finally {
+      this.writer.close();
+    }
+  }
+}
@@ -9,6 +9,8 @@
 import org.vitrivr.cineast.core.data.query.containers.AbstractQueryTermContainer;
 import org.vitrivr.cineast.core.data.score.ScoreElement;
 import org.vitrivr.cineast.core.features.retriever.Retriever;
+import org.vitrivr.cineast.core.util.tracing.QueryTracer;
+import org.vitrivr.cineast.core.util.tracing.Span;
 import org.vitrivr.cineast.standalone.monitoring.RetrievalTaskMonitor;
 
 public class RetrievalTask implements Callable<Pair<RetrievalTask, List<ScoreElement>>> {
@@ -49,12 +51,19 @@ public Pair<RetrievalTask, List<ScoreElement>> call() throws Exception {
     LOGGER.traceEntry();
     long start = System.currentTimeMillis();
     nameThread();
+    if (this.config != null) {
+      /* The task may have been queued until after the deadline of the query. */
+      this.config.checkDeadline();
+    }
     LOGGER.debug("starting {}", retriever.getClass().getSimpleName());
     List<ScoreElement> result;
-    if (this.query == null) {
-      result = this.retriever.getSimilar(this.segmentId, this.config);
-    } else {
-      result = this.retriever.getSimilar(this.query, this.config);
+    try (QueryTracer.Scope scope = QueryTracer.enter(this.config == null ? null : this.config.getQueryId(), retriever.getClass().getSimpleName());
+        Span span = QueryTracer.start("retrieval", null)) {
+      if (this.query == null) {
+        result = this.retriever.getSimilar(this.segmentId, this.config);
+      } else {
+        result = this.retriever.getSimilar(this.query, this.config);
+      }
     }
     long stop = System.currentTimeMillis();
     RetrievalTaskMonitor.reportExecutionTime(retriever.getClass().getSimpleName(), stop - start);
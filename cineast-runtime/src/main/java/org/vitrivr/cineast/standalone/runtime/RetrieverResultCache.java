@@ -0,0 +1,129 @@
+package org.vitrivr.cineast.standalone.runtime;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.vitrivr.cineast.core.data.RetrieverResultCacheKey;
+import org.vitrivr.cineast.core.data.score.ScoreElement;
+import org.vitrivr.cineast.core.db.EntityWriteStatistics;
+import org.vitrivr.cineast.core.features.retriever.Retriever;
+import org.vitrivr.cineast.standalone.config.Config;
+import org.vitrivr.cineast.standalone.config.RetrieverConfig;
+
+/**
+ * Caches the results of individual retrievers, such that a query that differs from an earlier one in some of its terms or categories only executes the retrievers whose input changed.
+ * <p>
+ * Only retrievers instantiated from a {@link RetrieverConfig} are cached, since their class and properties identify their configuration. A cached result is discarded as soon as rows are written to one of the tables of its retriever by this process; writes of other processes are covered by the expiry of the query cache.
+ */
+public final class RetrieverResultCache {
+
+  private static final Logger LOGGER = LogManager.getLogger();
+
+  private static final boolean ENABLED = Config.sharedConfig().getCache().isEnableRetrieverCaching();
+  private static final long LIFE = Config.sharedConfig().getCache().getQueryCacheDuration();
+
+  /**
+   * Approximate cost of an entry besides its score elements, in score elements.
+   */
+  private static final int ENTRY_WEIGHT = 16;
+
+  /**
+   * Specification of every retriever instantiated from a {@link RetrieverConfig}, by identity of the retriever.
+   */
+  private static final Cache<Retriever, String> specifications = CacheBuilder.newBuilder().weakKeys().build();
+
+  private static final Cache<RetrieverResultCacheKey, Entry> results = ENABLED ? CacheBuilder.newBuilder()
+      .maximumWeight(Config.sharedConfig().getCache().getRetrieverCacheSize())
+      .weigher((RetrieverResultCacheKey key, Entry entry) -> ENTRY_WEIGHT + entry.results().size())
+      .expireAfterWrite(LIFE, TimeUnit.SECONDS)
+      .build() : null;
+
+  /**
+   * A cached result along with the number of rows written to the tables of its retriever before it was computed.
+   */
+  private record Entry(List<ScoreElement> results, long[] writes) {
+
+  }
+
+  /**
+   * Identifies the result of a retriever for a query; the number of rows written to the tables of the retriever are recorded when the ticket is issued, i.e., before the result is computed.
+   */
+  record Ticket(RetrieverResultCacheKey key, long[] writes) {
+
+  }
+
+  private RetrieverResultCache() {
+  }
+
+  /**
+   * Associates a retriever with the configuration it was instantiated from.
+   */
+  public static void register(Retriever retriever, RetrieverConfig config) {
+    if (!ENABLED || retriever == null) {
+      return;
+    }
+    final Map<String, String> properties = config.getProperties() == null ? Map.of() : new TreeMap<>(config.getProperties());
+    specifications.put(retriever, retriever.getClass().getName() + properties);
+  }
+
+  /**
+   * Issues a {@link Ticket} for the result of a retriever.
+   *
+   * @param keyFactory Creates the key from the specification of the retriever; may return null if the query cannot be identified.
+   * @return {@link Ticket} or null, if the result of the retriever cannot be cached.
+   */
+  static Ticket ticket(Retriever retriever, Function<String, RetrieverResultCacheKey> keyFactory) {
+    if (!ENABLED) {
+      return null;
+    }
+    final String specification = specifications.getIfPresent(retriever);
+    if (specification == null) {
+      return null;
+    }
+    final RetrieverResultCacheKey key = keyFactory.apply(specification);
+    if (key == null) {
+      return null;
+    }
+    final List<String> tables = retriever.getTableNames();
+    final long[] writes = new long[tables.size()];
+    for (int i = 0; i < writes.length; i++) {
+      writes[i] = EntityWriteStatistics.written(tables.get(i));
+    }
+    return new Ticket(key, writes);
+  }
+
+  /**
+   * Returns the cached result for a {@link Ticket} or null, if there is none or it is outdated.
+   */
+  static List<ScoreElement> get(Ticket ticket) {
+    final Entry entry = results.getIfPresent(ticket.key());
+    if (entry == null) {
+      return null;
+    }
+    if (!Arrays.equals(ticket.writes(), entry.writes())) {
+      results.invalidate(ticket.key());
+      return null;
+    }
+    LOGGER.trace("Using cached results of {}", ticket.key().retrieverSpecification());
+    return entry.results();
+  }
+
+  /**
+   * Caches the result computed for a {@link Ticket}. Empty results are not cached, since retrievers that merely export the query (e.g. the QueryImageExporter) always return empty results and should still be executed.
+   */
+  static void put(Ticket ticket, List<ScoreElement> result) {
+    if (result == null || result.isEmpty()) {
+      return;
+    }
+    results.put(ticket.key(), new Entry(Collections.unmodifiableList(new ArrayList<>(result)), ticket.writes()));
+  }
+}
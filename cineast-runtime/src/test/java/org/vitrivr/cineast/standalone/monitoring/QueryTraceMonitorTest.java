@@ -0,0 +1,60 @@
+package org.vitrivr.cineast.standalone.monitoring;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import io.prometheus.client.CollectorRegistry;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.vitrivr.cineast.core.util.tracing.QueryTracer;
+import org.vitrivr.cineast.core.util.tracing.Span;
+import org.vitrivr.cineast.standalone.config.Config;
+
+public class QueryTraceMonitorTest {
+
+  private static final String[] LABELS = {"operation", "entity", "retriever"};
+
+  @BeforeAll
+  static void initialize() {
+    final boolean prometheus = Config.sharedConfig().getMonitoring().getEnablePrometheus();
+    Config.sharedConfig().getMonitoring().setEnablePrometheus(true);
+    try {
+      QueryTraceMonitor.init();
+    } finally {
+      Config.sharedConfig().getMonitoring().setEnablePrometheus(prometheus);
+    }
+  }
+
+  private static Double sample(String name, String... values) {
+    return CollectorRegistry.defaultRegistry.getSampleValue(name, LABELS, values);
+  }
+
+  private static Double bucket(String name, String upperBound, String... values) {
+    return CollectorRegistry.defaultRegistry.getSampleValue(name, new String[]{"operation", "entity", "retriever", "le"}, new String[]{values[0], values[1], values[2], upperBound});
+  }
+
+  @Test
+  @DisplayName("Spans are observed in histograms labelled by operation, entity and retriever")
+  void testHistograms() throws InterruptedException {
+    assertTrue(QueryTracer.isEnabled());
+    try (QueryTracer.Scope scope = QueryTracer.enter("monitor-query", "monitor-retriever")) {
+      for (int i = 0; i < 3; i++) {
+        try (Span span = QueryTracer.start("monitor-test", "monitor-entity")) {
+          Thread.sleep(5);
+        }
+      }
+    }
+    try (Span span = QueryTracer.start("monitor-test", null)) {
+      Thread.sleep(1);
+    }
+
+    assertEquals(3.0, sample("cineast_span_seconds_count", "monitor-test", "monitor-entity", "monitor-retriever"));
+    assertTrue(sample("cineast_span_seconds_sum", "monitor-test", "monitor-entity", "monitor-retriever") >= 0.015);
+    assertEquals(0.0, bucket("cineast_span_seconds_bucket", "0.0025", "monitor-test", "monitor-entity", "monitor-retriever"));
+    assertEquals(3.0, bucket("cineast_span_seconds_bucket", "60.0", "monitor-test", "monitor-entity", "monitor-retriever"));
+    assertEquals(1.0, sample("cineast_span_seconds_count", "monitor-test", "", ""));
+    assertNull(sample("cineast_span_seconds_count", "monitor-test", "other", ""));
+  }
+}
@@ -0,0 +1,169 @@
+package org.vitrivr.cineast.standalone.runtime;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+
+import com.carrotsearch.hppc.ObjectDoubleHashMap;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.vitrivr.cineast.core.config.QueryConfig;
+import org.vitrivr.cineast.core.config.ReadableQueryConfig;
+import org.vitrivr.cineast.core.data.query.containers.TextQueryTermContainer;
+import org.vitrivr.cineast.core.data.score.ScoreElement;
+import org.vitrivr.cineast.core.data.score.SegmentScoreElement;
+import org.vitrivr.cineast.core.data.segments.SegmentContainer;
+import org.vitrivr.cineast.core.db.EntityWriteStatistics;
+import org.vitrivr.cineast.core.db.DBSelectorSupplier;
+import org.vitrivr.cineast.core.db.setup.EntityCreator;
+import org.vitrivr.cineast.core.features.retriever.Retriever;
+import org.vitrivr.cineast.standalone.config.Config;
+import org.vitrivr.cineast.standalone.config.RetrieverConfig;
+
+public class ContinuousQueryDispatcherTest {
+
+  /**
+   * Returns a single result once it is released, ignoring interrupts, and records whether it was finished while running.
+   */
+  private static class BlockingRetriever implements Retriever {
+
+    private final String segmentId;
+    private final CountDownLatch release;
+    private final AtomicBoolean running = new AtomicBoolean();
+    private final AtomicInteger finished = new AtomicInteger();
+    private final AtomicInteger calls = new AtomicInteger();
+    private volatile boolean finishedWhileRunning;
+
+    private BlockingRetriever(String segmentId, CountDownLatch release) {
+      this.segmentId = segmentId;
+      this.release = release;
+    }
+
+    @Override
+    public void init(DBSelectorSupplier selectorSupply) {
+    }
+
+    @Override
+    public List<ScoreElement> getSimilar(SegmentContainer sc, ReadableQueryConfig qc) {
+      this.calls.incrementAndGet();
+      this.running.set(true);
+      try {
+        while (true) {
+          try {
+            this.release.await();
+            return List.of(new SegmentScoreElement(this.segmentId, 1.0));
+          } catch (InterruptedException e) {
+            /* Retrievers that do not check the deadline keep running after being cancelled. */
+          }
+        }
+      } finally {
+        this.running.set(false);
+      }
+    }
+
+    @Override
+    public List<ScoreElement> getSimilar(String segmentId, ReadableQueryConfig qc) {
+      return List.of();
+    }
+
+    @Override
+    public void finish() {
+      this.finishedWhileRunning |= this.running.get();
+      this.finished.incrementAndGet();
+    }
+
+    @Override
+    public List<String> getTableNames() {
+      return List.of("dispatcher_test_" + this.segmentId);
+    }
+
+    @Override
+    public void initalizePersistentLayer(Supplier<EntityCreator> supply) {
+    }
+
+    @Override
+    public void dropPersistentLayer(Supplier<EntityCreator> supply) {
+    }
+  }
+
+  private static List<SegmentScoreElement> retrieve(String query, QueryConfig config, Retriever... retrievers) {
+    final ObjectDoubleHashMap<Retriever> weights = new ObjectDoubleHashMap<>();
+    for (Retriever retriever : retrievers) {
+      weights.put(retriever, 1.0);
+    }
+    return ContinuousQueryDispatcher.retrieve(new TextQueryTermContainer(query), weights, r -> {
+    }, config, null);
+  }
+
+  /**
+   * Loads the shared configuration, which would otherwise count against the deadline of the first query, and enables the {@link RetrieverResultCache} before it is initialized.
+   */
+  @BeforeAll
+  static void initialize() {
+    Config.sharedConfig().getCache().setEnableRetrieverCaching(true);
+    retrieve("initialize", new QueryConfig(null));
+  }
+
+  @Test
+  @DisplayName("Retrievers are finished once the query completes")
+  void testFinish() {
+    final BlockingRetriever first = new BlockingRetriever("a", new CountDownLatch(0));
+    final BlockingRetriever second = new BlockingRetriever("b", new CountDownLatch(0));
+    final List<SegmentScoreElement> results = retrieve("finish", new QueryConfig(null), first, second);
+    assertEquals(2, results.size());
+    assertEquals(1, first.finished.get());
+    assertEquals(1, second.finished.get());
+  }
+
+  @Test
+  @DisplayName("Retrievers still running after the deadline are finished once they return")
+  void testDeadline() throws InterruptedException {
+    final CountDownLatch release = new CountDownLatch(1);
+    final BlockingRetriever fast = new BlockingRetriever("a", new CountDownLatch(0));
+    final BlockingRetriever slow = new BlockingRetriever("b", release);
+    final List<SegmentScoreElement> results = retrieve("deadline", new QueryConfig(null).setTimeout(500), fast, slow);
+    assertEquals(1, results.size());
+    assertEquals("a", results.get(0).getSegmentId());
+    assertEquals(1, fast.finished.get());
+    assertEquals(0, slow.finished.get());
+
+    release.countDown();
+    final long end = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+    while (slow.finished.get() == 0 && System.nanoTime() < end) {
+      Thread.sleep(10);
+    }
+    assertEquals(1, slow.finished.get());
+    assertFalse(slow.finishedWhileRunning);
+    assertFalse(fast.finishedWhileRunning);
+  }
+
+  @Test
+  @DisplayName("Results of registered retrievers are cached until their tables are written")
+  void testRetrieverCache() {
+    final BlockingRetriever retriever = new BlockingRetriever("c", new CountDownLatch(0));
+    RetrieverResultCache.register(retriever, new RetrieverConfig(BlockingRetriever.class, 1.0));
+    final List<SegmentScoreElement> results = retrieve("cached", new QueryConfig(null), retriever);
+    assertEquals(1, retriever.calls.get());
+
+    final List<SegmentScoreElement> cached = retrieve("cached", new QueryConfig(null), retriever);
+    assertEquals(1, retriever.calls.get());
+    assertEquals(results.size(), cached.size());
+    assertEquals(results.get(0).getSegmentId(), cached.get(0).getSegmentId());
+    assertEquals(results.get(0).getScore(), cached.get(0).getScore());
+
+    retrieve("other", new QueryConfig(null), retriever);
+    assertEquals(2, retriever.calls.get());
+
+    EntityWriteStatistics.record("dispatcher_test_c", 1);
+    retrieve("cached", new QueryConfig(null), retriever);
+    assertEquals(3, retriever.calls.get());
+    retrieve("cached", new QueryConfig(null), retriever);
+    assertEquals(3, retriever.calls.get());
+  }
+}
@@ -0,0 +1,180 @@
+package org.vitrivr.cineast.standalone.runtime;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.vitrivr.cineast.core.data.entities.MediaObjectMetadataDescriptor;
+import org.vitrivr.cineast.core.db.AbstractPersistencyWriter;
+import org.vitrivr.cineast.core.db.PersistentTuple;
+import org.vitrivr.cineast.core.db.dao.writer.MediaObjectMetadataWriter;
+import org.vitrivr.cineast.core.extraction.metadata.MetadataExtractor;
+import org.vitrivr.cineast.core.util.MetadataUtil;
+
+public class MetadataExtractionStageTest {
+
+  @TempDir
+  Path directory;
+
+  /**
+   * Records all persisted tuples.
+   */
+  private static class RecordingWriter extends AbstractPersistencyWriter<PersistentTuple> {
+
+    private final List<PersistentTuple> tuples = Collections.synchronizedList(new ArrayList<>());
+    private volatile boolean closed;
+
+    @Override
+    public void close() {
+      this.closed = true;
+    }
+
+    @Override
+    public boolean open(String name) {
+      return true;
+    }
+
+    @Override
+    public boolean exists(String key, String value) {
+      return false;
+    }
+
+    @Override
+    public boolean persist(List<PersistentTuple> tuples) {
+      this.tuples.addAll(tuples);
+      return true;
+    }
+
+    @Override
+    public PersistentTuple getPersistentRepresentation(PersistentTuple tuple) {
+      return tuple;
+    }
+
+    @Override
+    public int supportedBatchSize() {
+      return 4;
+    }
+  }
+
+  /**
+   * Returns one row per file and records the JSON metadata it was given by {@link MetadataUtil}; optionally checks that it is never invoked concurrently.
+   */
+  private static class TestExtractor implements MetadataExtractor {
+
+    private final String domain;
+    private final boolean threadSafe;
+    private final AtomicInteger active = new AtomicInteger();
+    private final AtomicInteger maximum = new AtomicInteger();
+    private final Map<Path, JsonNode> json = new ConcurrentHashMap<>();
+
+    private TestExtractor(String domain, boolean threadSafe) {
+      this.domain = domain;
+      this.threadSafe = threadSafe;
+    }
+
+    @Override
+    public List<MediaObjectMetadataDescriptor> extract(String objectId, Path path) {
+      this.maximum.accumulateAndGet(this.active.incrementAndGet(), Math::max);
+      try {
+        Thread.sleep(2);
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+      MetadataUtil.getJsonMetadata(path).ifPresent(node -> this.json.put(path, node));
+      this.active.decrementAndGet();
+      return List.of(MediaObjectMetadataDescriptor.of(objectId, this.domain, "file", path.getFileName().toString()));
+    }
+
+    @Override
+    public boolean isThreadSafe() {
+      return this.threadSafe;
+    }
+
+    @Override
+    public String domain() {
+      return this.domain;
+    }
+  }
+
+  private List<Path> files(int count) throws IOException {
+    final List<Path> files = new ArrayList<>(count);
+    for (int i = 0; i < count; i++) {
+      Files.write(this.directory.resolve("file" + i + ".json"), ("{\"index\": " + i + "}").getBytes(StandardCharsets.UTF_8));
+      files.add(this.directory.resolve("file" + i + ".jpg"));
+    }
+    return files;
+  }
+
+  @Test
+  @DisplayName("All extracted and submitted rows are written before close returns")
+  void testAsynchronousWrites() throws IOException {
+    final RecordingWriter writer = new RecordingWriter();
+    final TestExtractor safe = new TestExtractor("safe", true);
+    final TestExtractor unsafe = new TestExtractor("unsafe", false);
+    final MetadataExtractionStage stage = new MetadataExtractionStage(List.of(safe, unsafe), new MediaObjectMetadataWriter(writer), 4, 2);
+    final List<Path> files = this.files(25);
+    for (int i = 0; i < files.size(); i++) {
+      stage.submit("object" + i, files.get(i));
+      stage.write(List.of(MediaObjectMetadataDescriptor.of("object" + i, "item", "key", "value")));
+    }
+    stage.write(List.of());
+    stage.close();
+
+    assertTrue(writer.closed);
+    assertEquals(3 * files.size(), writer.tuples.size());
+    for (String domain : List.of("safe", "unsafe", "item")) {
+      assertEquals(files.size(), writer.tuples.stream().filter(tuple -> tuple.getElements().get(1).equals(domain)).count());
+    }
+    assertEquals(1, unsafe.maximum.get());
+  }
+
+  @Test
+  @DisplayName("Extractors processing the same file share its parsed metadata")
+  void testSharedMetadata() throws IOException {
+    final TestExtractor first = new TestExtractor("first", true);
+    final TestExtractor second = new TestExtractor("second", true);
+    final MetadataExtractionStage stage = new MetadataExtractionStage(List.of(first, second), new MediaObjectMetadataWriter(new RecordingWriter()), 3, 1);
+    final List<Path> files = this.files(10);
+    for (int i = 0; i < files.size(); i++) {
+      stage.submit("object" + i, files.get(i));
+    }
+    stage.close();
+
+    for (int i = 0; i < files.size(); i++) {
+      final JsonNode node = first.json.get(files.get(i));
+      assertEquals(i, node.get("index").asInt());
+      assertSame(node, second.json.get(files.get(i)));
+    }
+  }
+
+  @Test
+  @DisplayName("Synchronous extraction hands the rows of every extractor to the consumer")
+  void testSynchronousExtraction() throws IOException {
+    final Path file = this.files(1).get(0);
+    final List<MediaObjectMetadataDescriptor> rows = new ArrayList<>();
+    final MetadataExtractor failing = new TestExtractor("failing", true) {
+      @Override
+      public List<MediaObjectMetadataDescriptor> extract(String objectId, Path path) {
+        throw new IllegalStateException();
+      }
+    };
+    MetadataExtractionStage.extract(List.of(new TestExtractor("first", false), failing, new TestExtractor("second", true)), "object", file, rows::addAll);
+    assertEquals(2, rows.size());
+    assertEquals("first", rows.get(0).getDomain());
+    assertEquals("second", rows.get(1).getDomain());
+  }
+}